@@ -94,12 +94,12 @@ public class EnhancedSuffixArrayFatOpt extends primerDesign.dsc.indexStructures.
 	@Override
 	public void createIndex(){
 
-		this.suftab = new int[sequenceLength+1];
+		this.suftab = new int[(int) sequenceLength+1];
 		
 		for(int i=0; i< sequenceLength; i++){
 			setSufTab(i, i);
 		}
-		this.suftab[sequenceLength] = Integer.MAX_VALUE;
+		this.suftab[(int) sequenceLength] = Integer.MAX_VALUE;
 		// sort table
 		Runtime runtime = Runtime.getRuntime();
 		NumberFormat format = NumberFormat.getInstance();
@@ -119,8 +119,8 @@ public class EnhancedSuffixArrayFatOpt extends primerDesign.dsc.indexStructures.
 			System.out.println("Before LCP Table: " + format.format(runtime.totalMemory()-runtime.freeMemory()));
 		}
 		
-		this.lcptab = new int[sequenceLength+1];
-		this.childtab = new int[sequenceLength+1];
+		this.lcptab = new int[(int) sequenceLength+1];
+		this.childtab = new int[(int) sequenceLength+1];
 		
 		//computeLCPTable();
 		{
@@ -163,9 +163,9 @@ public class EnhancedSuffixArrayFatOpt extends primerDesign.dsc.indexStructures.
 	 * @return the entry 'SUF_TAB' for index i
 	 */
 	@Override
-	protected int getSufTab(int i){
+	protected long getSufTab(long i){
 		assert(i>=0 && i<this.suftab.length);
-		return this.suftab[i];
+		return this.suftab[(int) i];
 	}
 	
 	/**
@@ -175,9 +175,9 @@ public class EnhancedSuffixArrayFatOpt extends primerDesign.dsc.indexStructures.
 	 * @param j the value of 'SUF_TAB(i)' to set
 	 */
 	@Override
-	protected void setSufTab(int i, int j){
+	protected void setSufTab(long i, long j){
 		assert(i>=0 && j>=0 && i<this.getSufTabLength() && j<this.getSufTabLength());
-		this.suftab[i] = j;
+		this.suftab[(int) i] = (int) j;
 	}
 	
 	/**
@@ -187,9 +187,9 @@ public class EnhancedSuffixArrayFatOpt extends primerDesign.dsc.indexStructures.
 	 * @return the entry 'LCP_TABLE' for index 'i'
 	 */
 	@Override
-	protected int getLcpTab(int i){
+	protected long getLcpTab(long i){
 		assert(i>=0 && i<this.lcptab.length);
-		return this.lcptab[i];
+		return this.lcptab[(int) i];
 	}
 	
 	/**
@@ -199,9 +199,9 @@ public class EnhancedSuffixArrayFatOpt extends primerDesign.dsc.indexStructures.
 	 * @param j the value of 'LCP_TAB(i)' to set
 	 */
 	@Override
-	protected void setLcpTab(int i, int j){
+	protected void setLcpTab(long i, long j){
 		assert(i>=0 && j>=0 && i<this.lcptab.length && j<=this.sequenceLength);
-		this.lcptab[i] = j;
+		this.lcptab[(int) i] = (int) j;
 	}
 	
 	/**
@@ -211,9 +211,9 @@ public class EnhancedSuffixArrayFatOpt extends primerDesign.dsc.indexStructures.
 	 * @return the entry 'CHILD_TABLE' for index 'i', -1 iff it needs to be recomputed (used in getChildTab{UP|DOWN|NEXT})
 	 */
 	@Override
-	protected int getChildTab(int i){
+	protected long getChildTab(long i){
 		assert(i>=0 && i<this.childtab.length);
-		return this.childtab[i]; 
+		return this.childtab[(int) i]; 
 	}
 	
 	/**
@@ -223,16 +223,16 @@ public class EnhancedSuffixArrayFatOpt extends primerDesign.dsc.indexStructures.
 	 * @param j the value of 'CHILD_TAB(i)' to set
 	 */
 	@Override
-	protected void setChildTab(int i, int j){
+	protected void setChildTab(long i, long j){
 		assert i>=0 && i<this.suftab.length && j>=0 && j<this.suftab.length : "i and j must be in interval [0,sequenceLength]";
-		this.childtab[i] = j;
+		this.childtab[(int) i] = (int) j;
 	}
 	
 	/* (non-Javadoc)
 	 * @see primerDesign.Test.esa.EnhancedSuffixArray#getChildTabLength()
 	 */
 	@Override
-	protected int getChildTabLength() {
+	protected long getChildTabLength() {
 		return this.childtab.length;
 	}
 
@@ -240,7 +240,7 @@ public class EnhancedSuffixArrayFatOpt extends primerDesign.dsc.indexStructures.
 	 * @see primerDesign.Test.esa.EnhancedSuffixArray#getLcpTabLength()
 	 */
 	@Override
-	protected int getLcpTabLength() {
+	protected long getLcpTabLength() {
 		return this.lcptab.length;
 	}
 
@@ -248,7 +248,7 @@ public class EnhancedSuffixArrayFatOpt extends primerDesign.dsc.indexStructures.
 	 * @see primerDesign.Test.esa.EnhancedSuffixArray#getSufTabLength()
 	 */
 	@Override
-	protected int getSufTabLength() {
+	protected long getSufTabLength() {
 		return this.suftab.length;
 	}
 	
@@ -259,7 +259,7 @@ public class EnhancedSuffixArrayFatOpt extends primerDesign.dsc.indexStructures.
 	 * @return true iff the child entry for suffix 'i' is an up index
 	 */
 	@Override
-	protected boolean containsUpIndex(int i){
+	protected boolean containsUpIndex(long i){
 		assert(i>=0 && i<this.childtab.length);
 		if(i == sequenceLength) return true;
 		else return getLcpTab(i) > getLcpTab(i+1);
@@ -272,7 +272,7 @@ public class EnhancedSuffixArrayFatOpt extends primerDesign.dsc.indexStructures.
 	 * @return true iff the child entry for suffix 'i' is a down index
 	 */
 	@Override
-	protected boolean containsDownIndex(int i){
+	protected boolean containsDownIndex(long i){
 		assert(i>=0 && i<this.childtab.length);
 		return getLcpTab(getChildTab(i)) > getLcpTab(i);
 	}
@@ -284,7 +284,7 @@ public class EnhancedSuffixArrayFatOpt extends primerDesign.dsc.indexStructures.
 	 * @return true iff the child entry for suffix 'i' is the next index
 	 */
 	@Override
-	protected boolean containsNextIndex(int i){
+	protected boolean containsNextIndex(long i){
 		assert(i>=0 && i<this.childtab.length);
 		return i != sequenceLength - 1 && getChildTab(i) != Integer.MIN_VALUE && getLcpTab(getChildTab(i)) == getLcpTab(i) && getChildTab(i) > i;
 	}
@@ -296,7 +296,7 @@ public class EnhancedSuffixArrayFatOpt extends primerDesign.dsc.indexStructures.
 	 * @return the 'up' value stored in 'childtab(i)'
 	 */
 	@Override
-	protected int getChildTabUP(int i){
+	protected long getChildTabUP(long i){
 		assert containsUpIndex(i-1) : "Child table does not contain an up value for index " + i + "!";
 		return getChildTab(i-1);
 	}
@@ -308,7 +308,7 @@ public class EnhancedSuffixArrayFatOpt extends primerDesign.dsc.indexStructures.
 	 * @return the 'down' value stored in 'childtab(i)'
 	 */
 	@Override
-	protected int getChildTabDown(int i){
+	protected long getChildTabDown(long i){
 		assert containsDownIndex(i) : "up?: " + containsUpIndex(i)  + " down?: " + containsDownIndex(i) + " next?: " + containsNextIndex(i) + "\t" + printStatus(i) + "Child table does not contain a down value for index " + i + "!";
 		return getChildTab(i);
 	}
@@ -320,20 +320,20 @@ public class EnhancedSuffixArrayFatOpt extends primerDesign.dsc.indexStructures.
 	 * @return the 'down' value stored in 'childtab(i)'
 	 */
 	@Override
-	protected int getChildTabNext(int i){
+	protected long getChildTabNext(long i){
 		assert containsNextIndex(i) : "Child table does not contain a next value for index " + i + "!";
 		return getChildTab(i);
 	}
 	
-	private String printStatus(int i){
+	private String printStatus(long i){
 		return getChildTab(i) + "\t" + getLcpTab(getChildTab(i)) + "\t" + printSuffices(i-1, getChildTab(i) + 1, 15);
 	}
 	
-	private String printSuffices(int from, int to, int length){
+	private String printSuffices(long from, long to, int length){
 		StringBuffer buffer = new StringBuffer();
 		buffer.append("\n");
-		for(int i=from; i<=to; i++){
-			buffer.append(this.getSequence().substring(getSufTab(i), getSufTab(i) + length) + "\n");
+		for(long i=from; i<=to; i++){
+			buffer.append(this.getSequence().substring((int) getSufTab(i), (int) getSufTab(i) + length) + "\n");
 		}
 		return buffer.toString();
 	}
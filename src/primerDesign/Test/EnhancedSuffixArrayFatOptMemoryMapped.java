@@ -80,9 +80,9 @@ public class EnhancedSuffixArrayFatOptMemoryMapped extends primerDesign.dsc.inde
 		NumberFormat format = NumberFormat.getInstance();
 		SimpleTimer timer = new SimpleTimer();
 		try{
-			this.suftab = new MemoryMappedIntFile(new File(transformName(getName()) + "_suftab") , (sequenceLength+1));
-			this.lcptab = new MemoryMappedIntFile(new File(transformName(getName()) + "_lcptab") , (sequenceLength+1));
-			this.childtab = new MemoryMappedIntFile(new File(transformName(getName()) + "_childtab") , (sequenceLength+1));
+			this.suftab = new MemoryMappedIntFile(new File(transformName(getName()) + "_suftab") , ((int) sequenceLength+1));
+			this.lcptab = new MemoryMappedIntFile(new File(transformName(getName()) + "_lcptab") , ((int) sequenceLength+1));
+			this.childtab = new MemoryMappedIntFile(new File(transformName(getName()) + "_childtab") , ((int) sequenceLength+1));
 		}
 		catch(IOException e){
 			e.printStackTrace();
@@ -94,7 +94,7 @@ public class EnhancedSuffixArrayFatOptMemoryMapped extends primerDesign.dsc.inde
 			setSufTab(i, i);
 		}
 
-		this.suftab.put(sequenceLength, Integer.MAX_VALUE);
+		this.suftab.put((int) sequenceLength, Integer.MAX_VALUE);
 		if(printStatus){
 			System.out.println(" - done in " + timer.getTimeString());
 		}
@@ -166,7 +166,7 @@ public class EnhancedSuffixArrayFatOptMemoryMapped extends primerDesign.dsc.inde
 	 * @see primerDesign.Test.esa.EnhancedSuffixArray#containsUpIndex(int)
 	 */
 	@Override
-	protected boolean containsUpIndex(int i) {
+	protected boolean containsUpIndex(long i) {
 		assert(i>=0 && i<this.childtab.length());
 		if(i == sequenceLength) return true;
 		else return getLcpTab(i) > getLcpTab(i+1);
@@ -176,7 +176,7 @@ public class EnhancedSuffixArrayFatOptMemoryMapped extends primerDesign.dsc.inde
 	 * @see primerDesign.Test.esa.EnhancedSuffixArray#containsDownIndex(int)
 	 */
 	@Override
-	protected boolean containsDownIndex(int i) {
+	protected boolean containsDownIndex(long i) {
 		assert(i>=0 && i<this.childtab.length());
 		return getLcpTab(getChildTab(i)) > getLcpTab(i);
 	}
@@ -185,7 +185,7 @@ public class EnhancedSuffixArrayFatOptMemoryMapped extends primerDesign.dsc.inde
 	 * @see primerDesign.Test.esa.EnhancedSuffixArray#containsNextIndex(int)
 	 */
 	@Override
-	protected boolean containsNextIndex(int i) {
+	protected boolean containsNextIndex(long i) {
 		assert(i>=0 && i<this.childtab.length());
 		//return getChildTab(i) != Integer.MIN_VALUE && getLcpTab(getChildTab(i)) == getLcpTab(i);
 		return i != sequenceLength - 1 && getChildTab(i) != Integer.MIN_VALUE && getLcpTab(getChildTab(i)) == getLcpTab(i) && getChildTab(i) > i;
@@ -195,16 +195,16 @@ public class EnhancedSuffixArrayFatOptMemoryMapped extends primerDesign.dsc.inde
 	 * @see primerDesign.Test.esa.EnhancedSuffixArray#getChildTab(int)
 	 */
 	@Override
-	protected int getChildTab(int i) {
+	protected long getChildTab(long i) {
 		assert(i>=0 && i<this.childtab.length());
-		return this.childtab.get(i); 
+		return this.childtab.get((int) i); 
 	}
 
 	/* (non-Javadoc)
 	 * @see primerDesign.Test.esa.EnhancedSuffixArray#getChildTabUP(int)
 	 */
 	@Override
-	protected int getChildTabUP(int i) {
+	protected long getChildTabUP(long i) {
 		assert containsUpIndex(i-1) : "Child table does not contain an up value for index " + i + "!";
 		return getChildTab(i-1);
 	}
@@ -213,7 +213,7 @@ public class EnhancedSuffixArrayFatOptMemoryMapped extends primerDesign.dsc.inde
 	 * @see primerDesign.Test.esa.EnhancedSuffixArray#getChildTabDown(int)
 	 */
 	@Override
-	protected int getChildTabDown(int i) {
+	protected long getChildTabDown(long i) {
 		assert containsDownIndex(i) : "up?: " + containsUpIndex(i)  + " down?: " + containsDownIndex(i) + " next?: " + containsNextIndex(i) + "\t" + printStatus(i) + "Child table does not contain a down value for index " + i + "!";
 		return getChildTab(i);
 	}
@@ -222,7 +222,7 @@ public class EnhancedSuffixArrayFatOptMemoryMapped extends primerDesign.dsc.inde
 	 * @see primerDesign.Test.esa.EnhancedSuffixArray#getChildTabNext(int)
 	 */
 	@Override
-	protected int getChildTabNext(int i) {
+	protected long getChildTabNext(long i) {
 		assert containsNextIndex(i) : "Child table does not contain a next value for index " + i + "!";
 		return getChildTab(i);
 	}
@@ -231,7 +231,7 @@ public class EnhancedSuffixArrayFatOptMemoryMapped extends primerDesign.dsc.inde
 	 * @see primerDesign.Test.esa.EnhancedSuffixArray#getChildTabLength()
 	 */
 	@Override
-	protected int getChildTabLength() {
+	protected long getChildTabLength() {
 		return this.childtab.length();
 	}
 
@@ -239,16 +239,16 @@ public class EnhancedSuffixArrayFatOptMemoryMapped extends primerDesign.dsc.inde
 	 * @see primerDesign.Test.esa.EnhancedSuffixArray#getLcpTab(int)
 	 */
 	@Override
-	protected int getLcpTab(int i) {
+	protected long getLcpTab(long i) {
 		assert(i>=0 && i<this.lcptab.length());
-		return this.lcptab.get(i);
+		return this.lcptab.get((int) i);
 	}
 
 	/* (non-Javadoc)
 	 * @see primerDesign.Test.esa.EnhancedSuffixArray#getLcpTabLength()
 	 */
 	@Override
-	protected int getLcpTabLength() {
+	protected long getLcpTabLength() {
 		return this.lcptab.length();
 	}
 
@@ -256,16 +256,16 @@ public class EnhancedSuffixArrayFatOptMemoryMapped extends primerDesign.dsc.inde
 	 * @see primerDesign.Test.esa.EnhancedSuffixArray#getSufTab(int)
 	 */
 	@Override
-	protected int getSufTab(int i) {
+	protected long getSufTab(long i) {
 		assert(i>=0 && i<this.suftab.length());
-		return this.suftab.get(i);
+		return this.suftab.get((int) i);
 	}
 
 	/* (non-Javadoc)
 	 * @see primerDesign.Test.esa.EnhancedSuffixArray#getSufTabLength()
 	 */
 	@Override
-	protected int getSufTabLength() {
+	protected long getSufTabLength() {
 		return this.suftab.length();
 	}
 
@@ -273,38 +273,38 @@ public class EnhancedSuffixArrayFatOptMemoryMapped extends primerDesign.dsc.inde
 	 * @see primerDesign.Test.esa.EnhancedSuffixArray#setChildTab(int, int)
 	 */
 	@Override
-	protected void setChildTab(int i, int j) {
+	protected void setChildTab(long i, long j) {
 		assert i>=0 && i<this.suftab.length() && j>=0 && j<this.suftab.length() : "i and j must be in interval [0,sequenceLength]";
-		this.childtab.put(i, j);
+		this.childtab.put((int) i, (int) j);
 	}
 
 	/* (non-Javadoc)
 	 * @see primerDesign.Test.esa.EnhancedSuffixArray#setLcpTab(int, int)
 	 */
 	@Override
-	protected void setLcpTab(int i, int j) {
+	protected void setLcpTab(long i, long j) {
 		assert(i>=0 && j>=0 && i<this.lcptab.length() && j<=this.sequenceLength);
-		this.lcptab.put(i, j);
+		this.lcptab.put((int) i, (int) j);
 	}
 
 	/* (non-Javadoc)
 	 * @see primerDesign.Test.esa.EnhancedSuffixArray#setSufTab(int, int)
 	 */
 	@Override
-	protected void setSufTab(int i, int j) {
+	protected void setSufTab(long i, long j) {
 		assert(i>=0 && j>=0 && i<this.suftab.length() && j<this.suftab.length());
-		this.suftab.put(i, j);
+		this.suftab.put((int) i, (int) j);
 	}
 	
-	private String printStatus(int i){
+	private String printStatus(long i){
 		return getChildTab(i) + "\t" + getLcpTab(getChildTab(i)) + "\t" + printSuffices(i-1, getChildTab(i) + 1, 15);
 	}
 	
-	private String printSuffices(int from, int to, int length){
+	private String printSuffices(long from, long to, int length){
 		StringBuffer buffer = new StringBuffer();
 		buffer.append("\n");
-		for(int i=from; i<=to; i++){
-			buffer.append(this.getSequence().substring(getSufTab(i), getSufTab(i) + length) + "\n");
+		for(long i=from; i<=to; i++){
+			buffer.append(this.getSequence().substring((int) getSufTab(i), (int) getSufTab(i) + length) + "\n");
 		}
 		return buffer.toString();
 	}
@@ -0,0 +1,314 @@
+/**
+ *
+ */
+package primerDesign.algo;
+
+import primerDesign.dsc.PrimerAlignmentScores;
+import primerDesign.dsc.PrimerPair;
+import primerDesign.dsc.PrimerPairSet;
+import primerDesign.dsc.PrimerPairTable;
+import primerDesign.dsc.RestrictionSite;
+import primerDesign.util.PrimerSearchParameters;
+
+/**
+ * This class implements an exact branch and bound primer set picking algorithm.
+ *
+ * The primer pairs of the restriction sites are assigned site by site in a depth-first search. At each site, the candidate pairs
+ * are visited in the order of a PrimerPairIterator, i.e. by increasing difference of their distance to the optimal primer pair
+ * to the average distance of the partial pair set.
+ *
+ * A partial pair set is pruned iff a lower bound of the weighted score of all its completions is not better than the best complete set found so far.
+ * The bound combines:
+ * - the homogenity of the pairs assigned so far (the standard deviation of all distances is at least the one of the assigned distances scaled to all sites),
+ * - the average distance to the optimal primer pair assuming the closest pair for each unassigned site,
+ * - the maximum inter-pair alignment scores of the pairs assigned so far, which can only increase.
+ * As the candidates of a site are visited by increasing difference to the average distance, the remaining candidates of a site are skipped
+ * once the homogenity bound of the current candidate alone exceeds the best score.
+ *
+ * The search stops after a time budget or when cancelled and returns the best primer pair set found so far.
+ *
+ * @author Sebastian Frhler
+ *
+ */
+public class BranchAndBoundPrimerPairPicking implements PrimerPairPickingAlgorithm {
+	private static final int DEADLINE_CHECK_INTERVAL = 1024; // the number of search nodes between two checks of the deadline
+
+	private long timeBudget;
+	private boolean printDebugInfo = false;
+
+	private RestrictionSite[] sites;
+	private PrimerSearchParameters searchParams;
+	private PrimerPairSetAlignments alignments;
+	private double[] minRemainingDistance; // the sum of the minimum distances to the optimal primer pair of the sites i..n-1
+	private PrimerPair[] path;
+	private int[] pathPA;
+	private int[] pathPEA;
+	private double pathSumDistance;
+
+	private PrimerPair[] bestPath;
+	private int[] bestPathPA;
+	private int[] bestPathPEA;
+	private double bestScore;
+
+	private boolean canPrune; // whether all score weights are non-negative, the bounds are admissible only then
+	private long deadline;
+	private long nodes;
+	private boolean timedOut;
+	private volatile boolean cancelled = false;
+
+	/**
+	 * Initializes a branch and bound primer pair picking without time budget.
+	 */
+	public BranchAndBoundPrimerPairPicking(){
+		this(Long.MAX_VALUE);
+	}
+
+	/**
+	 * Initializes a branch and bound primer pair picking.
+	 *
+	 * @param timeBudget the time budget of a picking in milliseconds
+	 */
+	public BranchAndBoundPrimerPairPicking(long timeBudget){
+		this.setTimeBudget(timeBudget);
+	}
+
+	/**
+	 * Sets the time budget of a picking.
+	 *
+	 * @param timeBudget the time budget of a picking in milliseconds
+	 */
+	public void setTimeBudget(long timeBudget){
+		if(timeBudget <= 0) throw new IllegalArgumentException("The time budget must be > 0!");
+		this.timeBudget = timeBudget;
+	}
+
+	/**
+	 * @param printDebugInfo the printDebugInfo to set
+	 */
+	public void setPrintDebugInfo(boolean printDebugInfo) {
+		this.printDebugInfo = printDebugInfo;
+	}
+
+	/**
+	 * Returns whether the last picking explored the whole search space.
+	 *
+	 * @return true iff the last picking finished within its time budget and was not cancelled, its result is then optimal
+	 */
+	public boolean isOptimal(){
+		return !this.timedOut;
+	}
+
+	/**
+	 * Returns the number of search nodes visited by the last picking.
+	 *
+	 * @return the number of search nodes visited by the last picking
+	 */
+	public long getNumberOfNodes(){
+		return this.nodes;
+	}
+
+	/**
+	 * Picks the best primer pair set of a set of restriction sites.
+	 *
+	 * @param optimalSites the restriction sites
+	 * @param searchParams the 3PD search parameters
+	 *
+	 * @return the best primer pair set found within the time budget or null if there is none
+	 */
+	public PrimerPairSet pickBestPrimerSet(RestrictionSite[] optimalSites, PrimerSearchParameters searchParams){
+		return this.pickBestPrimerSet(optimalSites, searchParams, null);
+	}
+
+	/* (non-Javadoc)
+	 * @see primerDesign.algo.PrimerPairPickingAlgorithm#cancel()
+	 */
+	public void cancel(){
+		this.cancelled = true;
+	}
+
+	/**
+	 * Picks the best primer pair set of a set of restriction sites.
+	 *
+	 * @param optimalSites the restriction sites
+	 * @param searchParams the 3PD search parameters
+	 * @param alignments the alignments of the scan regions of 'optimalSites' or of a previous set of restriction sites, null if there are none
+	 *
+	 * @return the best primer pair set found within the time budget or null if there is none
+	 */
+	public PrimerPairSet pickBestPrimerSet(RestrictionSite[] optimalSites, PrimerSearchParameters searchParams, PrimerPairSetAlignments alignments){
+		try{
+			return this.pick(optimalSites, searchParams, alignments);
+		}
+		finally{
+			this.cancelled = false;
+		}
+	}
+
+	private PrimerPairSet pick(RestrictionSite[] optimalSites, PrimerSearchParameters searchParams, PrimerPairSetAlignments alignments){
+		if(optimalSites.length < 2) throw new IllegalArgumentException("The list of optimal restriction sites must contain >= 2 elements!");
+
+		this.deadline = (Long.MAX_VALUE - System.currentTimeMillis() > this.timeBudget) ? System.currentTimeMillis() + this.timeBudget : Long.MAX_VALUE;
+		this.nodes = 0;
+		this.timedOut = false;
+
+		for(int i=0; i<optimalSites.length; i++){
+			if(!optimalSites[i].hasEnumeratedPrimerPairs()) optimalSites[i].enumeratePrimerPairs();
+			if(optimalSites[i].getNumberOfValidPrimerPairs() == 0) return null;
+			optimalSites[i].sortPrimerPairs();
+		}
+
+		this.sites = optimalSites;
+		this.searchParams = searchParams;
+		this.alignments = (alignments == null) ? new PrimerPairSetAlignments(optimalSites, searchParams) : alignments.deriveFor(optimalSites);
+		this.minRemainingDistance = new double[optimalSites.length + 1];
+		for(int i=optimalSites.length-1; i>=0; i--){
+			// pairs are sorted by increasing distance to the optimal primer pair
+			this.minRemainingDistance[i] = this.minRemainingDistance[i+1] + optimalSites[i].getPrimerPairTable().getDistanceToOptimalPrimerPair(0);
+		}
+		this.canPrune = searchParams.getPRIMER_PAIR_HOMOGENITY_WEIGHT() >= 0 && searchParams.getPRIMER_PAIR_DOPT_WEIGHT() >= 0 && searchParams.getPAIR_ALIGNMENT_WEIGHT() >= 0 && searchParams.getPAIR_END_ALIGNMENT_WEIGHT() >= 0;
+		this.path = new PrimerPair[optimalSites.length];
+		this.pathPA = new int[optimalSites.length];
+		this.pathPEA = new int[optimalSites.length];
+		this.bestPath = null;
+		this.bestScore = Double.MAX_VALUE;
+
+		PrimerPairTable roots = optimalSites[0].getPrimerPairTable();
+		for(int i=0; i<roots.size() && !this.timedOut; i++){
+			PrimerPair root = roots.getPrimerPair(i);
+			if(root.isNotAcceptablePair() || !this.hasValidIntraPairAlignment(root)) continue;
+			// roots are sorted by distance, no homogenity is gained by the first pair
+			if(this.lowerBound(1, 0, root.getDistanceToOptimalPrimerPair() + this.minRemainingDistance[1], -1, -1) >= this.bestScore) break;
+
+			this.path[0] = root;
+			this.pathPA[0] = -1;
+			this.pathPEA[0] = -1;
+			this.pathSumDistance = root.getDistanceToOptimalPrimerPair();
+			this.search(new PrimerPairSet(root, searchParams), 1, 0, -1, -1);
+		}
+
+		if(this.printDebugInfo) System.err.println("Branch and bound: " + this.nodes + " nodes, " + (this.timedOut ? "stopped" : "optimal") + ", best score: " + this.bestScore);
+
+		PrimerPairSet result = null;
+		if(this.bestPath != null){
+			result = new PrimerPairSet(this.bestPath[0], searchParams);
+			for(int i=1; i<this.bestPath.length; i++) result.addPrimerPair(this.bestPath[i], this.bestPathPA[i], this.bestPathPEA[i]);
+		}
+		this.sites = null;
+		this.alignments = null;
+		return result;
+	}
+
+	/**
+	 * Extends a partial primer pair set by the pairs of the next restriction site.
+	 *
+	 * @param pairSet the partial primer pair set, containing the pairs of sites 0..depth-1
+	 * @param depth the index of the next restriction site
+	 * @param sumSquares the sum of squared deviations of the distances of the assigned pairs from their mean
+	 * @param pa the maximum inter-pair alignment score of the assigned pairs
+	 * @param pea the maximum inter-pair end alignment score of the assigned pairs
+	 */
+	private void search(PrimerPairSet pairSet, int depth, double sumSquares, int pa, int pea){
+		if(depth == this.sites.length){
+			this.acceptIfBetter(pa, pea);
+			return;
+		}
+
+		// the iterator orders the candidates w.r.t. the average distance of 'pairSet'
+		double mean = pairSet.getAvgDistOptPrimerPair();
+		PrimerPairIterator iter = new PrimerPairIterator(this.sites[depth].getPrimerPairTable(), pairSet);
+		PrimerPair candidate;
+		PrimerAlignmentScores scores;
+		double delta;
+		double candidateSumSquares;
+		boolean isFirst = true;
+
+		while(iter.hasNext() && !this.timedOut){
+			if(++this.nodes % DEADLINE_CHECK_INTERVAL == 0 && (this.cancelled || System.currentTimeMillis() >= this.deadline)){
+				this.timedOut = true;
+				break;
+			}
+			candidate = iter.getNext();
+			delta = candidate.getDistanceToOptimalPrimerPair() - mean;
+			// Welford update of the sum of squared deviations
+			candidateSumSquares = sumSquares + delta * delta * depth / (depth + 1);
+
+			// after the first candidate, candidates are visited by increasing |delta|, none of the remaining candidates has a better bound
+			if(!isFirst && this.lowerBound(depth + 1, candidateSumSquares, this.pathSumDistance + this.minRemainingDistance[depth], pa, pea) >= this.bestScore) break;
+			isFirst = false;
+			if(this.lowerBound(depth + 1, candidateSumSquares, this.pathSumDistance + candidate.getDistanceToOptimalPrimerPair() + this.minRemainingDistance[depth + 1], pa, pea) >= this.bestScore) continue;
+
+			if(candidate.isNotAcceptablePair() || !this.hasValidIntraPairAlignment(candidate) || !pairSet.hasCompatibleMeltingTemps(candidate, this.searchParams)) continue;
+
+			scores = PrimerPairSet.checkInterPairAlignments(candidate, pairSet, this.alignments, depth, this.searchParams);
+			if(scores.getPairScore() > this.searchParams.getMAX_PRIMER_PAIR_ALIGNMENT_SCORE() || scores.getPairEndScore() > this.searchParams.getMAX_PRIMER_PAIR_END_ALIGNMENT_SCORE()) continue;
+			int candidatePA = Math.max(pa, scores.getPairScore());
+			int candidatePEA = Math.max(pea, scores.getPairEndScore());
+			if(this.lowerBound(depth + 1, candidateSumSquares, this.pathSumDistance + candidate.getDistanceToOptimalPrimerPair() + this.minRemainingDistance[depth + 1], candidatePA, candidatePEA) >= this.bestScore) continue;
+
+			this.path[depth] = candidate;
+			this.pathPA[depth] = scores.getPairScore();
+			this.pathPEA[depth] = scores.getPairEndScore();
+			this.pathSumDistance += candidate.getDistanceToOptimalPrimerPair();
+			pairSet.addPrimerPair(candidate, scores.getPairScore(), scores.getPairEndScore());
+
+			this.search(pairSet, depth + 1, candidateSumSquares, candidatePA, candidatePEA);
+
+			pairSet.deleteLastPrimerPair();
+			this.pathSumDistance -= candidate.getDistanceToOptimalPrimerPair();
+		}
+	}
+
+	/**
+	 * Accepts the current complete primer pair set iff it is better than the best set found so far and passes the mispriming check.
+	 *
+	 * @param pa the maximum inter-pair alignment score of the set
+	 * @param pea the maximum inter-pair end alignment score of the set
+	 */
+	private void acceptIfBetter(int pa, int pea){
+		PrimerPairSet candidate = new PrimerPairSet(this.path[0], this.searchParams);
+		for(int i=1; i<this.path.length; i++) candidate.addPrimerPair(this.path[i], this.pathPA[i], this.pathPEA[i]);
+		double score = SimpleGreedyPrimerPairPicking.weightedScore(candidate.getHomogenityScore(), candidate.getAvgDistOptPrimerPair(), pa, pea, this.searchParams);
+		if(score >= this.bestScore) return;
+
+		// the lazy mispriming check is only done for sets improving the best score
+		for(int i=0; i<this.path.length; i++){
+			if(this.path[i].containsUnacceptablePrimers()) return;
+		}
+		this.bestScore = score;
+		this.bestPath = this.path.clone();
+		this.bestPathPA = this.pathPA.clone();
+		this.bestPathPEA = this.pathPEA.clone();
+		if(this.printDebugInfo) System.err.println("Branch and bound: new best score " + score + " after " + this.nodes + " nodes");
+	}
+
+	/**
+	 * Computes a lower bound of the weighted score of all completions of a partial primer pair set.
+	 *
+	 * @param assigned the number of assigned primer pairs
+	 * @param sumSquares the sum of squared deviations of the distances of the assigned pairs from their mean
+	 * @param sumDistance a lower bound of the sum of the distances of all pairs of a completion
+	 * @param pa the maximum inter-pair alignment score of the assigned pairs
+	 * @param pea the maximum inter-pair end alignment score of the assigned pairs
+	 *
+	 * @return a lower bound of the weighted score of all completions
+	 */
+	private double lowerBound(int assigned, double sumSquares, double sumDistance, int pa, int pea){
+		if(!this.canPrune) return Double.NEGATIVE_INFINITY;
+		int n = this.sites.length;
+		// the sum of squared deviations of all distances from their mean is >= the one of the assigned distances from theirs
+		double homogenity = (assigned > 1) ? Math.sqrt(Math.max(0, sumSquares) / n) : 0;
+		return SimpleGreedyPrimerPairPicking.weightedScore(homogenity, sumDistance / n, Math.max(0, pa), Math.max(0, pea), this.searchParams);
+	}
+
+	/**
+	 * Checks the intra-pair alignment scores of a primer pair.
+	 *
+	 * @param pair the primer pair
+	 *
+	 * @return true iff the intra-pair alignment scores of 'pair' do not exceed the maximum pair alignment scores
+	 */
+	private boolean hasValidIntraPairAlignment(PrimerPair pair){
+		PrimerAlignmentScores scores = pair.getMaxPairElementsAlignmentScore();
+		return scores.getPairScore() <= this.searchParams.getMAX_PRIMER_PAIR_ALIGNMENT_SCORE() && scores.getPairEndScore() <= this.searchParams.getMAX_PRIMER_PAIR_END_ALIGNMENT_SCORE();
+	}
+}
@@ -0,0 +1,39 @@
+/**
+ *
+ */
+package primerDesign.algo;
+
+import java.io.IOException;
+
+import primerDesign.dsc.indexStructures.esa.CompactLcpTable;
+import primerDesign.dsc.nio.SegmentedMemoryMappedByteFile;
+import primerDesign.dsc.nio.SegmentedMemoryMappedLongFile;
+
+/**
+ * This class is the base class of the constructions of the tables of a memory mapped enhanced suffix array.
+ *
+ * A construction computes the suffix array, the lcp table and the child table of a memory mapped text and writes them directly into their
+ * final (memory mapped) tables:
+ * - the suffix array equals the one computed by KoAluruSuffixSort: it contains n+1 entries, the empty suffix n is the smallest one,
+ * - the lcp table equals the one computed by LinearTimeLCP,
+ * - the child table equals the one computed by EnhancedSuffixArray.computeChildTable(), undefined entries are UNDEFINED.
+ *
+ * @author Sebastian Frhler
+ *
+ */
+public abstract class ESAConstruction {
+	public static final long UNDEFINED = -1; // the value of an undefined child table entry
+
+	/**
+	 * Computes the suffix array, the lcp table and the child table of 'text'.
+	 *
+	 * @param text the sequence, one byte per character
+	 * @param suffixArray the table to store the suffix array in, must contain >= text.length()+1 entries
+	 * @param lcp the table to store the lcp values in, must contain >= text.length()+1 entries, all lcp values must be 0
+	 * @param childTable the table to store the child table in, must contain >= text.length()+1 entries
+	 * @param tempPath the path prefix of the temporary files of the construction, which are deleted before returning
+	 *
+	 * @throws IOException
+	 */
+	public abstract void createTables(SegmentedMemoryMappedByteFile text, SegmentedMemoryMappedLongFile suffixArray, CompactLcpTable lcp, SegmentedMemoryMappedLongFile childTable, String tempPath) throws IOException;
+}
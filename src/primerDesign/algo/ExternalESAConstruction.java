@@ -0,0 +1,611 @@
+/**
+ *
+ */
+package primerDesign.algo;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import primerDesign.dsc.indexStructures.esa.CompactLcpTable;
+import primerDesign.dsc.nio.SegmentedMemoryMappedByteFile;
+import primerDesign.dsc.nio.SegmentedMemoryMappedLongFile;
+
+/**
+ * This class implements an external memory construction of the suffix array, the lcp table and the child table of an enhanced suffix array,
+ * for texts whose tables exceed the available memory.
+ *
+ * All intermediate data are files of fixed size records of long values, which are read and written in sequential passes only and sorted
+ * by an external merge sort: runs of at most (budget/2) bytes are sorted in memory, the runs are merged in passes of at most 'fanIn' runs,
+ * each of them read through a buffer of 'ioBufferSize' bytes. The final tables are written sequentially.
+ * - The suffix array is computed by prefix doubling (Manber, Myers): in each step, the ranks of the suffixes i and i+h are joined by two
+ *   sequential reads of the ranks in text order, the tuples are sorted, renamed by one scan and sorted back into text order.
+ *   The scan of each step writes the suffix array into its final table, the last step (all ranks unique) leaves the final suffix array.
+ * - The lcp table is computed by the permuted lcp (Phi) algorithm: the tuples (SA[k], k, SA[k-1]) are sorted into text order, the permuted
+ *   lcp values are computed by one scan, the tuples (k, lcp) are sorted back into suffix array order and written in ascending order.
+ *   The scan reads the text at i+h sequentially and at Phi(i)+h randomly, the text of one byte per character is the only structure read
+ *   randomly by this construction.
+ * - The child table is computed by the stack based computation of EnhancedSuffixArray.computeChildTable() in one scan of the lcp table.
+ *   The stacks keep two blocks in memory and spill further blocks to a file, the entries set are written as tuples (index, value),
+ *   sorted by index and written in ascending order.
+ *
+ * The heap memory used is bounded by the memory budget, except for the lcp values >= CompactLcpTable.OVERFLOW, which are part of the
+ * (in memory) exception table of the lcp table. The construction runs in a single thread, its passes are bounded by the disk rather than by the processors,
+ * ParallelESAConstruction is faster for tables which fit into the available memory.
+ *
+ * Reference: Manber, Myers: Suffix arrays: a new method for on-line string searches. SIAM J. Comput. 22 (1993) p.935-948
+ * Reference: Kaerkkaeinen, Manzini, Puglisi: Permuted Longest-Common-Prefix Array. CPM 2009, LNCS 5577, p.181-192
+ *
+ * @author Sebastian Frhler
+ *
+ */
+public class ExternalESAConstruction extends ESAConstruction {
+	private static final int MIN_RUN_RECORDS = 16;
+	private static final int INSERTION_SORT_SIZE = 16;
+	private static final int MIN_IO_BUFFER_SIZE = 64;
+	private static final int MAX_IO_BUFFER_SIZE = 1 << 16;
+	private static final int MAX_FAN_IN = 1 << 10;
+	private static final int MIN_STACK_BLOCK_RECORDS = 4;
+	private static final int MAX_BUFFER_SIZE = Integer.MAX_VALUE - 8; // the max size of a java array
+
+	private final long memoryBudget;
+	private final int ioBufferSize;
+	private final int fanIn;
+
+	/**
+	 * Initializes an external memory ESA construction.
+	 *
+	 * @param memoryBudget the number of bytes of heap memory to use for sort runs, file buffers and stacks
+	 */
+	public ExternalESAConstruction(long memoryBudget){
+		if(memoryBudget < 0) throw new IllegalArgumentException("The memory budget must be >= 0!");
+		this.memoryBudget = memoryBudget;
+		// one half of the budget is used by the sort runs, the other one by the buffers of the merged runs
+		this.ioBufferSize = (int) Math.max(MIN_IO_BUFFER_SIZE, Math.min(MAX_IO_BUFFER_SIZE, memoryBudget / 16));
+		this.fanIn = (int) Math.max(2, Math.min(MAX_FAN_IN, memoryBudget / 2 / this.ioBufferSize - 1));
+	}
+
+	/* (non-Javadoc)
+	 * @see primerDesign.algo.ESAConstruction#createTables(primerDesign.dsc.nio.SegmentedMemoryMappedByteFile, primerDesign.dsc.nio.SegmentedMemoryMappedLongFile, primerDesign.dsc.indexStructures.esa.CompactLcpTable, primerDesign.dsc.nio.SegmentedMemoryMappedLongFile, java.lang.String)
+	 */
+	@Override
+	public void createTables(SegmentedMemoryMappedByteFile text, SegmentedMemoryMappedLongFile suffixArray, CompactLcpTable lcp, SegmentedMemoryMappedLongFile childTable, String tempPath) throws IOException{
+		long n = text.length();
+		if(suffixArray.length() <= n || lcp.length() <= n || childTable.length() <= n) throw new IllegalArgumentException("The tables must contain >= " + (n + 1) + " entries!");
+		TempFiles files = new TempFiles(tempPath);
+		try{
+			this.getSuffixArray(text, suffixArray, files);
+			this.getLCP(text, suffixArray, lcp, files);
+			this.getChildTable(n, lcp, childTable, files);
+		}
+		finally{
+			files.deleteAll();
+		}
+	}
+
+	/**
+	 * Computes the suffix array of 'text' by prefix doubling.
+	 *
+	 * @param text the sequence, one byte per character
+	 * @param suffixArray the table to store the suffix array in
+	 * @param files the temporary files
+	 *
+	 * @throws IOException
+	 */
+	private void getSuffixArray(SegmentedMemoryMappedByteFile text, SegmentedMemoryMappedLongFile suffixArray, TempFiles files) throws IOException{
+		long n = text.length();
+		// the initial ranks are the characters, the empty suffix n is the smallest one
+		File ranks = files.create();
+		RecordWriter out = new RecordWriter(ranks, this.ioBufferSize);
+		for(long i=0; i<n; i++) out.write((text.getQuick(i) & 0xFF) + 1);
+		out.write(0);
+		out.close();
+
+		for(long h=1; ; h*=2){
+			// the ranks of suffix i and i+h, the ranks of suffixes shorter than h are unique already
+			File tuples = files.create();
+			RecordReader current = new RecordReader(ranks, 1, this.ioBufferSize);
+			RecordReader ahead = new RecordReader(ranks, 1, this.ioBufferSize);
+			out = new RecordWriter(tuples, this.ioBufferSize);
+			for(long i=0; i<h && ahead.next(); i++);
+			for(long i=0; current.next(); i++){
+				out.write(current.record[0], (i + h <= n && ahead.next()) ? ahead.record[0] : 0, i);
+			}
+			out.close();
+			current.close();
+			ahead.close();
+			files.delete(ranks);
+
+			// the rank of a suffix is the position of the first suffix with equal ranks in the sorted tuples
+			File sorted = this.sort(tuples, 3, files);
+			File renamed = files.create();
+			RecordReader in = new RecordReader(sorted, 3, this.ioBufferSize);
+			out = new RecordWriter(renamed, this.ioBufferSize);
+			boolean isUnique = true;
+			long rank = 0;
+			long previous = -1;
+			long previousNext = -1;
+			for(long k=0; in.next(); k++){
+				if(in.record[0] != previous || in.record[1] != previousNext){
+					rank = k;
+					previous = in.record[0];
+					previousNext = in.record[1];
+				}
+				else isUnique = false;
+				suffixArray.putQuick(k, in.record[2]);
+				out.write(in.record[2], rank);
+			}
+			out.close();
+			in.close();
+			files.delete(sorted);
+			if(isUnique){
+				files.delete(renamed);
+				return;
+			}
+
+			// the new ranks in text order
+			File byPosition = this.sort(renamed, 2, files);
+			ranks = files.create();
+			in = new RecordReader(byPosition, 2, this.ioBufferSize);
+			out = new RecordWriter(ranks, this.ioBufferSize);
+			while(in.next()) out.write(in.record[1]);
+			out.close();
+			in.close();
+			files.delete(byPosition);
+		}
+	}
+
+	/**
+	 * Computes the lcp table of 'text' by the permuted lcp algorithm.
+	 *
+	 * @param text the sequence, one byte per character
+	 * @param suffixArray the suffix array of 'text'
+	 * @param lcp the table to store the lcp values in
+	 * @param files the temporary files
+	 *
+	 * @throws IOException
+	 */
+	private void getLCP(SegmentedMemoryMappedByteFile text, SegmentedMemoryMappedLongFile suffixArray, CompactLcpTable lcp, TempFiles files) throws IOException{
+		long n = text.length();
+		// phi(SA[k]) = SA[k-1]
+		File tuples = files.create();
+		RecordWriter out = new RecordWriter(tuples, this.ioBufferSize);
+		long previous = -1;
+		long current;
+		for(long k=0; k<=n; k++){
+			current = suffixArray.getQuick(k);
+			out.write(current, k, previous);
+			previous = current;
+		}
+		out.close();
+
+		// the permuted lcp of suffix i is >= the one of suffix i-1 minus 1
+		File byPosition = this.sort(tuples, 3, files);
+		File values = files.create();
+		RecordReader in = new RecordReader(byPosition, 3, this.ioBufferSize);
+		out = new RecordWriter(values, this.ioBufferSize);
+		long h = 0;
+		long j;
+		for(long i=0; in.next(); i++){
+			j = in.record[2];
+			if(j < 0) h = 0;
+			else{
+				while(i + h < n && j + h < n && text.getQuick(i + h) == text.getQuick(j + h)) h++;
+			}
+			out.write(in.record[1], h);
+			if(h > 0) h--;
+		}
+		out.close();
+		in.close();
+		files.delete(byPosition);
+
+		// lcp[k] = plcp[SA[k]], set in ascending order such that exceptions are appended to the exception table
+		File byRank = this.sort(values, 2, files);
+		in = new RecordReader(byRank, 2, this.ioBufferSize);
+		while(in.next()) lcp.set(in.record[0], in.record[1]);
+		in.close();
+		files.delete(byRank);
+	}
+
+	/**
+	 * Computes the child table from the lcp table.
+	 *
+	 * The steps equal the ones of ParallelESAConstruction.getChildTable(), on stacks spilling to a file.
+	 *
+	 * @param n the length of the text
+	 * @param lcp the lcp table
+	 * @param childTable the table to store the child table in
+	 * @param files the temporary files
+	 *
+	 * @throws IOException
+	 */
+	private void getChildTable(long n, CompactLcpTable lcp, SegmentedMemoryMappedLongFile childTable, TempFiles files) throws IOException{
+		// each stack uses one eighth of the budget
+		int blockRecords = (int) Math.max(MIN_STACK_BLOCK_RECORDS, Math.min(MAX_BUFFER_SIZE / 6, this.memoryBudget / 8 / 2 / 8 / 3));
+		SpillingStack runs = new SpillingStack(files.create(), 3, blockRecords); // runs of equal lcp values: first index, last index, lcp value
+		SpillingStack nexts = new SpillingStack(files.create(), 2, blockRecords); // the last index of each distinct lcp value: index, lcp value
+		File entries = files.create();
+		RecordWriter out = new RecordWriter(entries, this.ioBufferSize);
+		try{
+			long value;
+			long lastIndex;
+			for(long i=0; i<=n; i++){
+				value = lcp.get(i);
+				lastIndex = -1;
+				while(!runs.empty() && value < runs.get(2)){
+					lastIndex = runs.get(0);
+					runs.pop();
+					// a down value for an index whose lcp value equals the one of i is replaced by its next l-index below
+					if(!runs.empty() && value < runs.get(2)) out.write(runs.get(1), lastIndex);
+				}
+				if(lastIndex != -1) out.write(i - 1, lastIndex);
+				if(!runs.empty() && value == runs.get(2)) runs.set(1, i);
+				else{
+					runs.push();
+					runs.set(0, i);
+					runs.set(1, i);
+					runs.set(2, value);
+				}
+
+				while(!nexts.empty() && value < nexts.get(1)) nexts.pop();
+				if(!nexts.empty() && value == nexts.get(1)){
+					out.write(nexts.get(0), i);
+					nexts.pop();
+				}
+				nexts.push();
+				nexts.set(0, i);
+				nexts.set(1, value);
+			}
+		}
+		finally{
+			out.close();
+			runs.close();
+			nexts.close();
+		}
+
+		// each entry is set at most once, entries which are not set are undefined
+		File sorted = this.sort(entries, 2, files);
+		RecordReader in = new RecordReader(sorted, 2, this.ioBufferSize);
+		boolean hasEntry = in.next();
+		for(long i=0; i<=n; i++){
+			if(hasEntry && in.record[0] == i){
+				childTable.putQuick(i, in.record[1]);
+				hasEntry = in.next();
+			}
+			else childTable.putQuick(i, UNDEFINED);
+		}
+		in.close();
+		files.delete(sorted);
+	}
+
+	/**
+	 * Sorts a file of records by an external merge sort, the records are compared lexicographically by all of their values.
+	 *
+	 * @param input the file to sort, deleted by this method
+	 * @param width the number of long values per record
+	 * @param files the temporary files
+	 *
+	 * @return the sorted file
+	 *
+	 * @throws IOException
+	 */
+	private File sort(File input, int width, TempFiles files) throws IOException{
+		// runs of one half of the budget are sorted in memory
+		int runRecords = (int) Math.max(MIN_RUN_RECORDS, Math.min(MAX_BUFFER_SIZE / width, this.memoryBudget / 2 / 8 / width));
+		long[] buffer = new long[runRecords * width];
+		long[] pivot = new long[width];
+		List<File> runs = new ArrayList<File>();
+		RecordReader in = new RecordReader(input, width, this.ioBufferSize);
+		int count = 0;
+		while(in.next()){
+			System.arraycopy(in.record, 0, buffer, count * width, width);
+			count++;
+			if(count == runRecords){
+				runs.add(this.writeRun(buffer, count, width, pivot, files));
+				count = 0;
+			}
+		}
+		if(count > 0 || runs.isEmpty()) runs.add(this.writeRun(buffer, count, width, pivot, files));
+		in.close();
+		files.delete(input);
+		buffer = null;
+
+		// the runs are merged in passes of at most this.fanIn runs
+		List<File> merged;
+		while(runs.size() > 1){
+			merged = new ArrayList<File>();
+			for(int from=0; from<runs.size(); from+=this.fanIn){
+				List<File> group = runs.subList(from, Math.min(from + this.fanIn, runs.size()));
+				merged.add((group.size() == 1) ? group.get(0) : this.merge(group, width, files));
+			}
+			runs = merged;
+		}
+		return runs.get(0);
+	}
+
+	/**
+	 * Sorts the records of a run in memory and writes them to a new file.
+	 *
+	 * @return the file of the sorted run
+	 */
+	private File writeRun(long[] buffer, int count, int width, long[] pivot, TempFiles files) throws IOException{
+		quicksort(buffer, width, 0, count, pivot);
+		File run = files.create();
+		RecordWriter out = new RecordWriter(run, this.ioBufferSize);
+		for(int i=0; i<count; i++) out.write(buffer, i * width, width);
+		out.close();
+		return run;
+	}
+
+	/**
+	 * Merges sorted runs into a new file, the runs are deleted.
+	 *
+	 * @return the file of the merged runs
+	 */
+	private File merge(List<File> runs, final int width, TempFiles files) throws IOException{
+		PriorityQueue<RecordReader> heads = new PriorityQueue<RecordReader>(runs.size(), new Comparator<RecordReader>(){
+			public int compare(RecordReader a, RecordReader b){
+				return ExternalESAConstruction.compare(a.record, 0, b.record, 0, width);
+			}
+		});
+		for(File run : runs){
+			RecordReader reader = new RecordReader(run, width, this.ioBufferSize);
+			if(reader.next()) heads.add(reader);
+			else reader.close();
+		}
+		File result = files.create();
+		RecordWriter out = new RecordWriter(result, this.ioBufferSize);
+		RecordReader head;
+		while(!heads.isEmpty()){
+			head = heads.poll();
+			out.write(head.record, 0, width);
+			if(head.next()) heads.add(head);
+			else head.close();
+		}
+		out.close();
+		for(File run : runs) files.delete(run);
+		return result;
+	}
+
+	/**
+	 * Sorts the records [from,to) of 'records' by a three-way quicksort.
+	 */
+	private static void quicksort(long[] records, int width, int from, int to, long[] pivot){
+		while(to - from > INSERTION_SORT_SIZE){
+			int middle = from + (to - from) / 2;
+			System.arraycopy(records, medianOfThree(records, width, from, middle, to - 1) * width, pivot, 0, width);
+			// [from,lower) < pivot, [lower,i) == pivot, [upper,to) > pivot
+			int lower = from;
+			int upper = to;
+			int i = from;
+			int comparison;
+			while(i < upper){
+				comparison = compare(records, i * width, pivot, 0, width);
+				if(comparison < 0) swap(records, width, lower++, i++);
+				else if(comparison > 0) swap(records, width, i, --upper);
+				else i++;
+			}
+			// recurse into the smaller part only
+			if(lower - from < to - upper){
+				quicksort(records, width, from, lower, pivot);
+				from = upper;
+			}
+			else{
+				quicksort(records, width, upper, to, pivot);
+				to = lower;
+			}
+		}
+		for(int i=from+1; i<to; i++){
+			for(int j=i; j>from && compare(records, (j - 1) * width, records, j * width, width) > 0; j--) swap(records, width, j - 1, j);
+		}
+	}
+
+	private static int medianOfThree(long[] records, int width, int a, int b, int c){
+		if(compare(records, a * width, records, b * width, width) < 0){
+			if(compare(records, b * width, records, c * width, width) < 0) return b;
+			return (compare(records, a * width, records, c * width, width) < 0) ? c : a;
+		}
+		if(compare(records, a * width, records, c * width, width) < 0) return a;
+		return (compare(records, b * width, records, c * width, width) < 0) ? c : b;
+	}
+
+	private static int compare(long[] a, int offsetA, long[] b, int offsetB, int width){
+		for(int i=0; i<width; i++){
+			if(a[offsetA + i] != b[offsetB + i]) return (a[offsetA + i] < b[offsetB + i]) ? -1 : 1;
+		}
+		return 0;
+	}
+
+	private static void swap(long[] records, int width, int a, int b){
+		long temp;
+		for(int i=0; i<width; i++){
+			temp = records[a * width + i];
+			records[a * width + i] = records[b * width + i];
+			records[b * width + i] = temp;
+		}
+	}
+
+	/**
+	 * The temporary files of a construction, named by a common path prefix and deleted at the end of the construction.
+	 */
+	private static class TempFiles{
+		private final String path;
+		private final List<File> files = new ArrayList<File>();
+		private int count = 0;
+
+		TempFiles(String path){
+			this.path = path;
+		}
+
+		File create(){
+			File result = new File(this.path + "_external" + this.count++);
+			this.files.add(result);
+			return result;
+		}
+
+		void delete(File file){
+			if(!file.delete() && file.exists()) file.deleteOnExit();
+			this.files.remove(file);
+		}
+
+		void deleteAll(){
+			for(File file : this.files){
+				if(!file.delete() && file.exists()) file.deleteOnExit();
+			}
+			this.files.clear();
+		}
+	}
+
+	/**
+	 * Writes records of long values sequentially to a file.
+	 */
+	private static class RecordWriter{
+		private final DataOutputStream out;
+
+		RecordWriter(File file, int bufferSize) throws IOException{
+			this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), bufferSize));
+		}
+
+		void write(long a) throws IOException{
+			this.out.writeLong(a);
+		}
+
+		void write(long a, long b) throws IOException{
+			this.out.writeLong(a);
+			this.out.writeLong(b);
+		}
+
+		void write(long a, long b, long c) throws IOException{
+			this.out.writeLong(a);
+			this.out.writeLong(b);
+			this.out.writeLong(c);
+		}
+
+		void write(long[] values, int offset, int width) throws IOException{
+			for(int i=0; i<width; i++) this.out.writeLong(values[offset + i]);
+		}
+
+		void close() throws IOException{
+			this.out.close();
+		}
+	}
+
+	/**
+	 * Reads records of long values sequentially from a file, the current record is 'record'.
+	 */
+	private static class RecordReader{
+		private final DataInputStream in;
+		private long remaining;
+		final long[] record;
+
+		RecordReader(File file, int width, int bufferSize) throws IOException{
+			this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), bufferSize));
+			this.remaining = file.length() / 8 / width;
+			this.record = new long[width];
+		}
+
+		/**
+		 * Reads the next record.
+		 *
+		 * @return true iff a record was read
+		 */
+		boolean next() throws IOException{
+			if(this.remaining == 0) return false;
+			for(int i=0; i<this.record.length; i++) this.record[i] = this.in.readLong();
+			this.remaining--;
+			return true;
+		}
+
+		void close() throws IOException{
+			this.in.close();
+		}
+	}
+
+	/**
+	 * A stack of records of long values keeping two blocks of records in memory, further blocks are spilled to a file.
+	 *
+	 * A record is pushed first and its values are set afterwards.
+	 */
+	private static class SpillingStack{
+		private final File file;
+		private final int width;
+		private final int blockLength; // the number of long values per block
+		private final long[] buffer;
+		private final ByteBuffer bytes;
+		private RandomAccessFile spill;
+		private int size = 0; // the number of long values in the buffer
+		private long spilledBlocks = 0;
+
+		SpillingStack(File file, int width, int blockRecords){
+			this.file = file;
+			this.width = width;
+			this.blockLength = width * blockRecords;
+			this.buffer = new long[2 * this.blockLength];
+			this.bytes = ByteBuffer.allocate(8 * this.blockLength);
+		}
+
+		boolean empty(){
+			return this.size == 0 && this.spilledBlocks == 0;
+		}
+
+		void push() throws IOException{
+			if(this.size == this.buffer.length){
+				// the lower block is spilled, the upper one remains in memory
+				if(this.spill == null) this.spill = new RandomAccessFile(this.file, "rw");
+				this.bytes.clear();
+				this.bytes.asLongBuffer().put(this.buffer, 0, this.blockLength);
+				this.spill.seek(this.spilledBlocks * this.bytes.capacity());
+				this.spill.write(this.bytes.array());
+				this.spilledBlocks++;
+				System.arraycopy(this.buffer, this.blockLength, this.buffer, 0, this.blockLength);
+				this.size = this.blockLength;
+			}
+			this.size += this.width;
+		}
+
+		long get(int field) throws IOException{
+			this.load();
+			return this.buffer[this.size - this.width + field];
+		}
+
+		void set(int field, long value) throws IOException{
+			this.load();
+			this.buffer[this.size - this.width + field] = value;
+		}
+
+		void pop() throws IOException{
+			this.load();
+			this.size -= this.width;
+		}
+
+		/**
+		 * Reads the last spilled block back if the buffer is empty.
+		 */
+		private void load() throws IOException{
+			if(this.size == 0 && this.spilledBlocks > 0){
+				this.spilledBlocks--;
+				this.spill.seek(this.spilledBlocks * this.bytes.capacity());
+				this.spill.readFully(this.bytes.array());
+				this.bytes.clear();
+				this.bytes.asLongBuffer().get(this.buffer, 0, this.blockLength);
+				this.size = this.blockLength;
+			}
+			if(this.size == 0) throw new IllegalStateException("The stack is empty!");
+		}
+
+		void close() throws IOException{
+			if(this.spill != null) this.spill.close();
+		}
+	}
+}
@@ -0,0 +1,376 @@
+/**
+ *
+ */
+package primerDesign.algo;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import primerDesign.dsc.PrimerAlignmentScores;
+import primerDesign.dsc.PrimerPair;
+import primerDesign.dsc.PrimerPairSet;
+import primerDesign.dsc.PrimerPairTable;
+import primerDesign.dsc.RestrictionSite;
+import primerDesign.util.ForkJoinPools;
+import primerDesign.util.PrimerSearchParameters;
+
+/**
+ * This class implements an island model genetic algorithm picking the best primer pair set.
+ *
+ * An individual assigns one valid primer pair to each restriction site, a gene is the row of the primer pair in the primer pair table of its site.
+ * The population is split into islands evolving independently by tournament selection, uniform crossover and mutation, keeping the best
+ * individual of each island (elitism). Every GA_MIGRATION_INTERVAL generations the best individuals of each island replace the worst
+ * individuals of the next island (ring topology).
+ *
+ * Individuals are ranked by their number of constraint violations (unacceptable pairs, intra- and inter-pair alignments exceeding the maximum
+ * scores, incompatible melting temperatures as checked by greedy primer pair set extension) and then by the weighted score of their
+ * primer pair set. The offspring of all islands is evaluated concurrently on the shared fork/join pool of GA_NUM_THREADS threads, the inter-pair
+ * alignments are shared by all evaluations.
+ *
+ * All random decisions are drawn from per-island random number generators seeded from GA_RANDOM_SEED, runs with equal parameters
+ * and equal restriction sites therefore pick equal primer pair sets independent of the number of threads.
+ *
+ * This methodology is based on: Wu et.al.: "Primer design for multiplex PCR using a genetic algorithm. Soft Comp (2007) 11:855-863
+ *
+ * @author Sebastian Frhler
+ *
+ */
+public class GAPrimerPairPicking implements PrimerPairPickingAlgorithm {
+	private static final int TOURNAMENT_SIZE = 2;
+	private static final int EVALUATION_GRAIN_SIZE = 16; // the maximum number of individuals evaluated by a single task
+	private boolean printDebugInfo = false;
+	private volatile boolean cancelled = false;
+
+	/**
+	 * @param printDebugInfo the printDebugInfo to set
+	 */
+	public void setPrintDebugInfo(boolean printDebugInfo) {
+		this.printDebugInfo = printDebugInfo;
+	}
+
+	/* (non-Javadoc)
+	 * @see primerDesign.algo.PrimerPairPickingAlgorithm#pickBestPrimerSet(primerDesign.dsc.RestrictionSite[], primerDesign.util.PrimerSearchParameters)
+	 */
+	public PrimerPairSet pickBestPrimerSet(RestrictionSite[] optimalSites, PrimerSearchParameters searchParams) {
+		return this.pickBestPrimerSet(optimalSites, searchParams, null);
+	}
+
+	/* (non-Javadoc)
+	 * @see primerDesign.algo.PrimerPairPickingAlgorithm#cancel()
+	 */
+	public void cancel(){
+		this.cancelled = true;
+	}
+
+	/* (non-Javadoc)
+	 * @see primerDesign.algo.PrimerPairPickingAlgorithm#pickBestPrimerSet(primerDesign.dsc.RestrictionSite[], primerDesign.util.PrimerSearchParameters, primerDesign.algo.PrimerPairSetAlignments)
+	 */
+	public PrimerPairSet pickBestPrimerSet(RestrictionSite[] optimalSites, PrimerSearchParameters searchParams, PrimerPairSetAlignments alignments) {
+		try{
+			return this.evolve(optimalSites, searchParams, alignments);
+		}
+		finally{
+			this.cancelled = false;
+		}
+	}
+
+	/**
+	 * Picks the best primer pair set of a set of restriction sites by evolving the islands.
+	 *
+	 * @param optimalSites the restriction sites
+	 * @param searchParams the 3PD search parameters
+	 * @param alignments the alignments of the scan regions of 'optimalSites' or of a previous set of restriction sites, null if there are none
+	 *
+	 * @return the best primer pair set found or null if there is none
+	 */
+	private PrimerPairSet evolve(RestrictionSite[] optimalSites, PrimerSearchParameters searchParams, PrimerPairSetAlignments alignments) {
+		if(optimalSites.length < 2) throw new IllegalArgumentException("The list of optimal restriction sites must contain >= 2 elements!");
+		if(searchParams.getGA_NUM_MIGRANTS() >= searchParams.getGA_ISLAND_POPULATION_SIZE()) throw new IllegalArgumentException("The number of migrants must be smaller than the island population size!");
+
+		PrimerPairTable[] tables = new PrimerPairTable[optimalSites.length];
+		for(int i=0; i<optimalSites.length; i++){
+			if(!optimalSites[i].hasEnumeratedPrimerPairs()) optimalSites[i].enumeratePrimerPairs();
+			if(optimalSites[i].getNumberOfValidPrimerPairs() == 0) return null;
+			// sorted tables make neighbouring rows similar w.r.t. the distance to the optimal primer pair
+			optimalSites[i].sortPrimerPairs();
+			tables[i] = optimalSites[i].getPrimerPairTable();
+		}
+
+		Evaluator evaluator = new Evaluator(tables, (alignments == null) ? new PrimerPairSetAlignments(optimalSites, searchParams) : alignments.deriveFor(optimalSites), searchParams);
+		Random random = new Random(searchParams.getGA_RANDOM_SEED());
+		Island[] islands = new Island[searchParams.getGA_NUM_ISLANDS()];
+		for(int i=0; i<islands.length; i++) islands[i] = new Island(tables, new Random(random.nextLong()), searchParams);
+		// the pairs closest to the optimal primer pair are a good starting point of the search
+		islands[0].population[0] = new Individual(new int[tables.length]);
+
+		ForkJoinPool pool = ForkJoinPools.getPool(searchParams.getGA_NUM_THREADS());
+		this.evaluate(islands, true, evaluator, pool);
+		for(int generation=1; generation<=searchParams.getGA_NUM_GENERATIONS() && !this.cancelled; generation++){
+			for(int i=0; i<islands.length; i++) islands[i].breed();
+			this.evaluate(islands, false, evaluator, pool);
+			for(int i=0; i<islands.length; i++) islands[i].replace();
+
+			if(generation % searchParams.getGA_MIGRATION_INTERVAL() == 0) migrate(islands, searchParams.getGA_NUM_MIGRANTS());
+			if(this.printDebugInfo) System.err.println("GA generation " + generation + ": best individual " + best(islands));
+		}
+
+		// return the best feasible individual passing the lazy mispriming check
+		Individual[] individuals = new Individual[islands.length * searchParams.getGA_ISLAND_POPULATION_SIZE()];
+		for(int i=0; i<islands.length; i++) System.arraycopy(islands[i].population, 0, individuals, i * islands[i].population.length, islands[i].population.length);
+		Arrays.sort(individuals, INDIVIDUAL_COMPARATOR);
+		for(int i=0; i<individuals.length && individuals[i].violations == 0; i++){
+			if(!evaluator.containsUnacceptablePrimers(individuals[i])) return evaluator.toPrimerPairSet(individuals[i]);
+		}
+		return null;
+	}
+
+	/**
+	 * Evaluates the individuals of all islands concurrently.
+	 *
+	 * @param islands the islands
+	 * @param population true iff the populations are evaluated, false iff the offspring is evaluated
+	 * @param evaluator the evaluator
+	 * @param pool the worker pool
+	 */
+	private void evaluate(Island[] islands, boolean population, Evaluator evaluator, ForkJoinPool pool){
+		int size = 0;
+		for(int i=0; i<islands.length; i++) size += population ? islands[i].population.length : islands[i].offspring.length;
+		Individual[] individuals = new Individual[size];
+		int offset = 0;
+		for(int i=0; i<islands.length; i++){
+			Individual[] source = population ? islands[i].population : islands[i].offspring;
+			System.arraycopy(source, 0, individuals, offset, source.length);
+			offset += source.length;
+		}
+		pool.invoke(new EvaluationTask(individuals, 0, individuals.length, evaluator));
+		if(population) for(int i=0; i<islands.length; i++) Arrays.sort(islands[i].population, INDIVIDUAL_COMPARATOR);
+	}
+
+	/**
+	 * Replaces the worst individuals of each island by copies of the best individuals of the previous island.
+	 *
+	 * @param islands the islands, each population sorted by increasing rank
+	 * @param migrants the number of individuals to migrate
+	 */
+	private static void migrate(Island[] islands, int migrants){
+		if(islands.length < 2 || migrants == 0) return;
+		Individual[][] emigrants = new Individual[islands.length][migrants];
+		for(int i=0; i<islands.length; i++) System.arraycopy(islands[i].population, 0, emigrants[i], 0, migrants);
+		for(int i=0; i<islands.length; i++){
+			Individual[] population = islands[(i + 1) % islands.length].population;
+			System.arraycopy(emigrants[i], 0, population, population.length - migrants, migrants);
+			Arrays.sort(population, INDIVIDUAL_COMPARATOR);
+		}
+	}
+
+	private static Individual best(Island[] islands){
+		Individual best = islands[0].population[0];
+		for(int i=1; i<islands.length; i++){
+			if(INDIVIDUAL_COMPARATOR.compare(islands[i].population[0], best) < 0) best = islands[i].population[0];
+		}
+		return best;
+	}
+
+	private static final Comparator<Individual> INDIVIDUAL_COMPARATOR = new Comparator<Individual>(){
+		public int compare(Individual first, Individual second){
+			if(first.violations != second.violations) return first.violations < second.violations ? -1 : 1;
+			return Double.compare(first.score, second.score);
+		}
+	};
+
+	/**
+	 * An assignment of one primer pair to each restriction site.
+	 *
+	 * Individuals are immutable once evaluated.
+	 */
+	private static class Individual{
+		private final int[] genes; // the row of the primer pair of each restriction site
+		private int violations;
+		private double score;
+
+		Individual(int[] genes){
+			this.genes = genes;
+		}
+
+		public String toString(){
+			return "violations: " + this.violations + " score: " + this.score;
+		}
+	}
+
+	/**
+	 * A subpopulation evolving independently between migrations.
+	 */
+	private static class Island{
+		private final PrimerPairTable[] tables;
+		private final Random random;
+		private final double crossoverRate;
+		private final double mutationRate;
+		private Individual[] population; // sorted by increasing rank after evaluation
+		private Individual[] offspring;
+
+		Island(PrimerPairTable[] tables, Random random, PrimerSearchParameters searchParams){
+			this.tables = tables;
+			this.random = random;
+			this.crossoverRate = searchParams.getGA_CROSSOVER_RATE();
+			this.mutationRate = searchParams.getGA_MUTATION_RATE();
+			this.population = new Individual[searchParams.getGA_ISLAND_POPULATION_SIZE()];
+			int[] genes;
+			for(int i=0; i<this.population.length; i++){
+				genes = new int[tables.length];
+				for(int j=0; j<genes.length; j++) genes[j] = random.nextInt(tables[j].size());
+				this.population[i] = new Individual(genes);
+			}
+		}
+
+		/**
+		 * Breeds the offspring replacing all but the best individual of the population.
+		 */
+		void breed(){
+			this.offspring = new Individual[this.population.length - 1];
+			int[] genes;
+			for(int i=0; i<this.offspring.length; i++){
+				Individual first = this.select();
+				genes = first.genes.clone();
+				if(this.random.nextDouble() < this.crossoverRate){
+					Individual second = this.select();
+					// uniform crossover
+					for(int j=0; j<genes.length; j++) if(this.random.nextBoolean()) genes[j] = second.genes[j];
+				}
+				for(int j=0; j<genes.length; j++){
+					if(this.random.nextDouble() < this.mutationRate) genes[j] = this.mutate(j, genes[j]);
+				}
+				this.offspring[i] = new Individual(genes);
+			}
+		}
+
+		/**
+		 * Replaces all but the best individual of the population by the evaluated offspring.
+		 */
+		void replace(){
+			System.arraycopy(this.offspring, 0, this.population, 1, this.offspring.length);
+			this.offspring = null;
+			Arrays.sort(this.population, INDIVIDUAL_COMPARATOR);
+		}
+
+		private Individual select(){
+			Individual best = this.population[this.random.nextInt(this.population.length)];
+			Individual current;
+			for(int i=1; i<TOURNAMENT_SIZE; i++){
+				current = this.population[this.random.nextInt(this.population.length)];
+				if(INDIVIDUAL_COMPARATOR.compare(current, best) < 0) best = current;
+			}
+			return best;
+		}
+
+		private int mutate(int site, int row){
+			int size = this.tables[site].size();
+			if(size == 1) return row;
+			// half of the mutations move to a neighbouring pair of similar distance to the optimal primer pair
+			if(this.random.nextBoolean()){
+				if(row == 0) return 1;
+				if(row == size - 1) return row - 1;
+				return this.random.nextBoolean() ? row + 1 : row - 1;
+			}
+			int result = this.random.nextInt(size - 1);
+			return result < row ? result : result + 1;
+		}
+	}
+
+	/**
+	 * Evaluates individuals, instances are thread-safe.
+	 */
+	private static class Evaluator{
+		private final PrimerPairTable[] tables;
+		private final PrimerPairSetAlignments alignments;
+		private final PrimerSearchParameters searchParams;
+
+		Evaluator(PrimerPairTable[] tables, PrimerPairSetAlignments alignments, PrimerSearchParameters searchParams){
+			this.tables = tables;
+			this.alignments = alignments;
+			this.searchParams = searchParams;
+		}
+
+		/**
+		 * Computes the constraint violations and the weighted score of an individual.
+		 *
+		 * @param individual the individual
+		 */
+		void evaluate(Individual individual){
+			int violations = 0;
+			int pa = -1;
+			int pea = -1;
+			PrimerPair pair = this.tables[0].getPrimerPair(individual.genes[0]);
+			PrimerPairSet pairSet = new PrimerPairSet(pair, this.searchParams);
+			if(!this.isValidPair(pair)) violations++;
+			PrimerAlignmentScores scores;
+			for(int i=1; i<this.tables.length; i++){
+				pair = this.tables[i].getPrimerPair(individual.genes[i]);
+				if(!this.isValidPair(pair)) violations++;
+				if(!pairSet.hasCompatibleMeltingTemps(pair, this.searchParams)) violations++;
+				scores = PrimerPairSet.checkInterPairAlignments(pair, pairSet, this.alignments, i, this.searchParams);
+				if(scores.getPairScore() > this.searchParams.getMAX_PRIMER_PAIR_ALIGNMENT_SCORE() || scores.getPairEndScore() > this.searchParams.getMAX_PRIMER_PAIR_END_ALIGNMENT_SCORE()) violations++;
+				pa = Math.max(pa, scores.getPairScore());
+				pea = Math.max(pea, scores.getPairEndScore());
+				pairSet.addPrimerPair(pair, scores.getPairScore(), scores.getPairEndScore());
+			}
+			individual.violations = violations;
+			individual.score = SimpleGreedyPrimerPairPicking.weightedScore(pairSet.getHomogenityScore(), pairSet.getAvgDistOptPrimerPair(), pa, pea, this.searchParams);
+		}
+
+		boolean containsUnacceptablePrimers(Individual individual){
+			for(int i=0; i<this.tables.length; i++){
+				if(this.tables[i].getPrimerPair(individual.genes[i]).containsUnacceptablePrimers()) return true;
+			}
+			return false;
+		}
+
+		PrimerPairSet toPrimerPairSet(Individual individual){
+			PrimerPairSet result = new PrimerPairSet(this.tables[0].getPrimerPair(individual.genes[0]), this.searchParams);
+			PrimerPair pair;
+			PrimerAlignmentScores scores;
+			for(int i=1; i<this.tables.length; i++){
+				pair = this.tables[i].getPrimerPair(individual.genes[i]);
+				scores = PrimerPairSet.checkInterPairAlignments(pair, result, this.alignments, i, this.searchParams);
+				result.addPrimerPair(pair, scores.getPairScore(), scores.getPairEndScore());
+			}
+			return result;
+		}
+
+		private boolean isValidPair(PrimerPair pair){
+			if(pair.isNotAcceptablePair()) return false;
+			PrimerAlignmentScores scores = pair.getMaxPairElementsAlignmentScore();
+			return scores.getPairScore() <= this.searchParams.getMAX_PRIMER_PAIR_ALIGNMENT_SCORE() && scores.getPairEndScore() <= this.searchParams.getMAX_PRIMER_PAIR_END_ALIGNMENT_SCORE();
+		}
+	}
+
+	/**
+	 * Evaluates a range of individuals, splitting it in halves down to EVALUATION_GRAIN_SIZE individuals.
+	 */
+	private static class EvaluationTask extends RecursiveAction{
+		private static final long serialVersionUID = 1L;
+		private final Individual[] individuals;
+		private final int from;
+		private final int to;
+		private final Evaluator evaluator;
+
+		EvaluationTask(Individual[] individuals, int from, int to, Evaluator evaluator){
+			this.individuals = individuals;
+			this.from = from;
+			this.to = to;
+			this.evaluator = evaluator;
+		}
+
+		protected void compute(){
+			if(this.to - this.from <= EVALUATION_GRAIN_SIZE){
+				for(int i=this.from; i<this.to; i++) this.evaluator.evaluate(this.individuals[i]);
+			}
+			else{
+				int mid = (this.from + this.to) >>> 1;
+				invokeAll(new EvaluationTask(this.individuals, this.from, mid, this.evaluator), new EvaluationTask(this.individuals, mid, this.to, this.evaluator));
+			}
+		}
+	}
+}
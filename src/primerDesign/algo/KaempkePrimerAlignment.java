@@ -1,9 +1,8 @@
 package primerDesign.algo;
 
-import java.util.HashMap;
-
 import primerDesign.dsc.PrimerAlignmentScores;
 import primerDesign.util.Constants;
+import primerDesign.util.PackedSequenceCache;
 import primerDesign.util.PrimerSearchParameters;
 import primerDesign.util.SeqTools;
 import primerDesign.util.SimpleTimer;
@@ -19,12 +18,10 @@ public class KaempkePrimerAlignment implements PrimerAlignmentCalculation {
 	private int seaScore;
 	private int paScore;
 	private int peaScore;
-	private static HashMap<String, Integer> skValues_sa_hash = new HashMap<String, Integer>();
-	private static HashMap<String, Integer> skValues_sea_hash = new HashMap<String, Integer>();
-	private static HashMap<String, Integer> dynsa_APP_hash_sa = new HashMap<String, Integer>(); 
-	private static HashMap<String, Integer> dynsa_APP_hash_sea = new HashMap<String, Integer>();
-	private static HashMap<String, Integer> dynpa_APP_hash_pa = new HashMap<String, Integer>(); 
-	private static HashMap<String, Integer> dynpa_APP_hash_pea = new HashMap<String, Integer>();
+	// alignment scores are cached as (pair score << 32) | pair end score
+	private static final PackedSequenceCache alignmentScoringCache = new PackedSequenceCache("Kaempke alignment scoring", Constants.SEQUENCE_CACHE_CAPACITY);
+	private static final PackedSequenceCache selfAlignmentCache = new PackedSequenceCache("Kaempke self alignment", Constants.SEQUENCE_CACHE_CAPACITY);
+	private static final PackedSequenceCache pairAlignmentCache = new PackedSequenceCache("Kaempke pair alignment", Constants.SEQUENCE_CACHE_CAPACITY);
 	
 	private PrimerSearchParameters params;
 	
@@ -81,9 +78,11 @@ public class KaempkePrimerAlignment implements PrimerAlignmentCalculation {
 		PrimerAlignmentScores alignment = null;
 		
 		// if alignment values for this primer have already been computed, re-use these
-		if(this.params.isUseIndices() && KaempkePrimerAlignment.dynsa_APP_hash_sa.containsKey(primer) && KaempkePrimerAlignment.dynsa_APP_hash_sea.containsKey(primer)){
-			this.saScore = KaempkePrimerAlignment.dynsa_APP_hash_sa.get(primer);
-			this.seaScore = KaempkePrimerAlignment.dynsa_APP_hash_sea.get(primer);
+		long key = this.params.isUseIndices() ? PackedSequenceCache.pack(primer) : PackedSequenceCache.NOT_PACKABLE;
+		long cached = (key != PackedSequenceCache.NOT_PACKABLE) ? selfAlignmentCache.get(key, 0, this.getScoringContext()) : PackedSequenceCache.MISSING;
+		if(cached != PackedSequenceCache.MISSING){
+			this.saScore = (int) (cached >>> 32);
+			this.seaScore = (int) cached;
 			alignment = new PrimerAlignmentScores(this.saScore, this.seaScore);
 		}else{
 			int maxScore_sa = 0;
@@ -118,10 +117,7 @@ public class KaempkePrimerAlignment implements PrimerAlignmentCalculation {
 			
 			alignment = new PrimerAlignmentScores(this.saScore, this.seaScore);
 			
-			if(this.params.isUseIndices()){
-				KaempkePrimerAlignment.dynsa_APP_hash_sa.put(primr, this.saScore);
-				KaempkePrimerAlignment.dynsa_APP_hash_sea.put(primr, this.seaScore);
-			}
+			if(key != PackedSequenceCache.NOT_PACKABLE) selfAlignmentCache.put(key, 0, this.getScoringContext(), packScores(this.saScore, this.seaScore));
 		}
 		return alignment;
 	}
@@ -141,13 +137,13 @@ public class KaempkePrimerAlignment implements PrimerAlignmentCalculation {
 		PrimerAlignmentScores alignment = null;
 		
 		// if alignment values for this primer pair have already been computed, re-use these
-		if(this.params.isUseIndices() && KaempkePrimerAlignment.dynpa_APP_hash_pa.containsKey(primer1 + primer2) && KaempkePrimerAlignment.dynpa_APP_hash_pea.containsKey(primer1 + primer2)){
-			this.paScore = KaempkePrimerAlignment.dynpa_APP_hash_pa.get(primer1 + primer2);
-			this.peaScore = KaempkePrimerAlignment.dynpa_APP_hash_pea.get(primer1 + primer2);
-			alignment = new PrimerAlignmentScores(this.paScore, this.peaScore);
-		}else if(this.params.isUseIndices() && KaempkePrimerAlignment.dynpa_APP_hash_pa.containsKey(primer2 + primer1) && KaempkePrimerAlignment.dynpa_APP_hash_pea.containsKey(primer2 + primer1)){
-			this.paScore = KaempkePrimerAlignment.dynpa_APP_hash_pa.get(primer2 + primer1);
-			this.peaScore = KaempkePrimerAlignment.dynpa_APP_hash_pea.get(primer2 + primer1);
+		long key1 = this.params.isUseIndices() ? PackedSequenceCache.pack(primer1) : PackedSequenceCache.NOT_PACKABLE;
+		long key2 = this.params.isUseIndices() ? PackedSequenceCache.pack(primer2) : PackedSequenceCache.NOT_PACKABLE;
+		boolean cacheable = key1 != PackedSequenceCache.NOT_PACKABLE && key2 != PackedSequenceCache.NOT_PACKABLE;
+		long cached = cacheable ? this.getCachedPairScores(pairAlignmentCache, key1, key2) : PackedSequenceCache.MISSING;
+		if(cached != PackedSequenceCache.MISSING){
+			this.paScore = (int) (cached >>> 32);
+			this.peaScore = (int) cached;
 			alignment = new PrimerAlignmentScores(this.paScore, this.peaScore);
 		}else{
 			int max_Score_pa = 0;
@@ -190,10 +186,7 @@ public class KaempkePrimerAlignment implements PrimerAlignmentCalculation {
 			
 			alignment = new PrimerAlignmentScores(this.paScore, this.peaScore);
 			
-			if(this.params.isUseIndices()){
-				KaempkePrimerAlignment.dynpa_APP_hash_pa.put(primer1 + primer2, this.paScore);
-				KaempkePrimerAlignment.dynpa_APP_hash_pea.put(primer1 + primer2, this.peaScore);
-			}
+			if(cacheable) pairAlignmentCache.put(key1, key2, this.getScoringContext(), packScores(this.paScore, this.peaScore));
 		}
 		return alignment;
 	}
@@ -238,13 +231,13 @@ public class KaempkePrimerAlignment implements PrimerAlignmentCalculation {
 		int max_sea = 0;
 		
 		// retrieve pre-computed value iff exists
-		if(this.params.isUseIndices() && skValues_sa_hash.containsKey(x + y)){
-			max_sa = skValues_sa_hash.get(x + y);
-			max_sea = skValues_sea_hash.get(x + y);
-			scores = new PrimerAlignmentScores(max_sa, max_sea);
-		}else if(this.params.isUseIndices() && skValues_sa_hash.containsKey(y + x)){
-			max_sa = skValues_sa_hash.get(y + x);
-			max_sea = skValues_sea_hash.get(y + x);
+		long keyX = this.params.isUseIndices() ? PackedSequenceCache.pack(x) : PackedSequenceCache.NOT_PACKABLE;
+		long keyY = this.params.isUseIndices() ? PackedSequenceCache.pack(y) : PackedSequenceCache.NOT_PACKABLE;
+		boolean cacheable = keyX != PackedSequenceCache.NOT_PACKABLE && keyY != PackedSequenceCache.NOT_PACKABLE;
+		long cached = cacheable ? this.getCachedPairScores(alignmentScoringCache, keyX, keyY) : PackedSequenceCache.MISSING;
+		if(cached != PackedSequenceCache.MISSING){
+			max_sa = (int) (cached >>> 32);
+			max_sea = (int) cached;
 			scores = new PrimerAlignmentScores(max_sa, max_sea);
 		}else{
 			//for(int k=(y.length()-1); k>-x.length();k--){
@@ -299,10 +292,7 @@ public class KaempkePrimerAlignment implements PrimerAlignmentCalculation {
 					max_sa = sum_sa_down;
 				}
 			}
-			if(this.params.isUseIndices()){
-				skValues_sa_hash.put(x + y, max_sa);
-				skValues_sea_hash.put(x + y, max_sea);
-			}
+			if(cacheable) alignmentScoringCache.put(keyX, keyY, this.getScoringContext(), packScores(max_sa, max_sea));
 			scores = new PrimerAlignmentScores(max_sa, max_sea);
 		}		
 		return scores;
@@ -312,6 +302,43 @@ public class KaempkePrimerAlignment implements PrimerAlignmentCalculation {
 		return this.params;
 	}
 	
+	/**
+	 * Returns the cached scores of a pair of sequences, scores cached for the swapped pair are re-used as well.
+	 * 
+	 * @param cache the cache
+	 * @param key1 the first packed sequence
+	 * @param key2 the second packed sequence
+	 * 
+	 * @return the cached scores or PackedSequenceCache.MISSING
+	 */
+	private long getCachedPairScores(PackedSequenceCache cache, long key1, long key2){
+		long context = this.getScoringContext();
+		long cached = cache.get(key1, key2, context);
+		if(cached == PackedSequenceCache.MISSING && key1 != key2) cached = cache.get(key2, key1, context);
+		return cached;
+	}
+	
+	/**
+	 * Returns the fingerprint of all parameters alignment scores depend on.
+	 * 
+	 * @return the fingerprint of all parameters alignment scores depend on
+	 */
+	private long getScoringContext(){
+		return PackedSequenceCache.context(this.params.getA_t_basepair_score(), this.params.getG_c_basepair_score(), this.params.getMAX_PRIMER_LENGTH(), 0);
+	}
+	
+	/**
+	 * Packs two (non-negative) alignment scores into a long.
+	 * 
+	 * @param score the pair score
+	 * @param endScore the pair end score
+	 * 
+	 * @return the packed scores
+	 */
+	private static long packScores(int score, int endScore){
+		return (((long) score) << 32) | (endScore & 0xFFFFFFFFL);
+	}
+	
 	/**
 	 * Returns the maximum value of an integer array.
 	 * 
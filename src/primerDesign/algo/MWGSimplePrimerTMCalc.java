@@ -33,6 +33,13 @@ public class MWGSimplePrimerTMCalc implements PrimerMeltingTempCalculation {
 	public double computeMonoAndDivalentCationCorrectedTM(String primr, double primerConcentration, double cationConcentration, double divalentCationConcentration, double dNTPConcentration) {
 		throw new IllegalStateException("This method does not support concentration-dependent primer TM calculations!");
 	}
+	
+	/* (non-Javadoc)
+	 * @see primerDesign.algo.PrimerMeltingTempCalculation#computeMonoAndDivalentCationCorrectedTM(char[], int, int, double, double, double, double)
+	 */
+	public double computeMonoAndDivalentCationCorrectedTM(char[] sequence, int start, int length, double primerConcentration, double cationConcentration, double divalentCationConcentration, double dNTPConcentration) {
+		throw new IllegalStateException("This method does not support concentration-dependent primer TM calculations!");
+	}
 
 	public static void main(String[] args){
 		String primer = args[0];
@@ -0,0 +1,231 @@
+package primerDesign.algo;
+
+import primerDesign.util.Constants;
+
+/**
+ * Implements nearest-neighbor melting temperature and deltaG computation for all windows of a scan region.
+ *
+ * The nearest-neighbor terms of a scan region are summed up once as prefix sums, the melting temperature of any window
+ * (start, length) is then computed in constant time including salt correction and symmetry correction as in SantaLuciaTM.
+ * All nearest-neighbor parameters are multiples of 0.1, prefix sums are therefore kept exactly in tenths.
+ *
+ * Instances are created by SantaLuciaTM.createScanRegionTable(...).
+ *
+ * @author Sebastian Frhler
+ *
+ */
+public class NearestNeighborTMTable {
+	private static final int INVALID_BASE = 4;
+	private static final long HASH_BASE = 1000003;
+	private static final int kilocalories = 1000;
+	private static final int temperatureDeltaG = 310;
+
+	private char[] region;
+	private int[] bases; // the base index of each position, INVALID_BASE for non-ACGT characters
+	private long[] pairDeltaH; // pairDeltaH[i]: sum of dinucleotide deltaH (in tenths) of all dinucleotides starting before position i
+	private long[] pairDeltaS; // pairDeltaS[i]: sum of dinucleotide deltaS (in tenths) of all dinucleotides starting before position i
+	private int[] invalidCount; // invalidCount[i]: number of non-ACGT characters in region[0..i-1]
+	private long[] forwardHash; // rolling hash of the scan region
+	private long[] reverseComplementHash; // rolling hash of the reverse complement of the scan region
+	private long[] hashPower;
+	private int[] terminalDeltaH = new int[4];
+	private int[] terminalDeltaS = new int[4];
+
+	private double cationConcentration;
+	private double saltCorrection; // the entropic salt correction per nearest-neighbor pair
+	private double lastPrimerConcentration = Double.NaN;
+	private double lastSymmetricConcentrationTerm;
+	private double lastConcentrationTerm;
+
+	/**
+	 * Precomputes the prefix sums of the nearest-neighbor terms of a scan region.
+	 *
+	 * @param region the scan region
+	 * @param cationConcentration the concentration of monovalent cations in mol!
+	 * @param divalentCationConcentration the concentration of divalent cations in mol!
+	 * @param dNTPConcentration the concentration of dNTPs in mol!
+	 */
+	NearestNeighborTMTable(char[] region, double cationConcentration, double divalentCationConcentration, double dNTPConcentration){
+		if(cationConcentration < 0) throw new IllegalArgumentException("The cation concentration must be >= 0!!!");
+		if(divalentCationConcentration < 0) throw new IllegalArgumentException("The divalent cation concentration must be >= 0!!!");
+		if(dNTPConcentration < 0) throw new IllegalArgumentException("The dNTP concentration must be >= 0!!!");
+
+		this.cationConcentration = SantaLuciaTM.effectiveMonovalentCationConcentration(cationConcentration, divalentCationConcentration, dNTPConcentration);
+		this.saltCorrection = (this.cationConcentration > 0) ? 0.368 * Math.log(this.cationConcentration) : 0;
+
+		for(int base=0; base<4; base++){
+			this.terminalDeltaH[base] = tenths(SantaLuciaTM.getTerminalDeltaH(base));
+			this.terminalDeltaS[base] = tenths(SantaLuciaTM.getTerminalDeltaS(base));
+		}
+
+		final int n = region.length;
+		this.region = region;
+		this.bases = new int[n];
+		this.invalidCount = new int[n + 1];
+		for(int i=0; i<n; i++){
+			switch(region[i]){
+				case 'A': case 'a': case 'C': case 'c': case 'G': case 'g': case 'T': case 't': this.bases[i] = SantaLuciaTM.baseIndex(region[i]); break;
+				default: this.bases[i] = INVALID_BASE;
+			}
+			this.invalidCount[i+1] = this.invalidCount[i] + ((this.bases[i] == INVALID_BASE) ? 1 : 0);
+		}
+
+		this.pairDeltaH = new long[n + 1];
+		this.pairDeltaS = new long[n + 1];
+		int pair;
+		for(int i=0; i<n; i++){
+			this.pairDeltaH[i+1] = this.pairDeltaH[i];
+			this.pairDeltaS[i+1] = this.pairDeltaS[i];
+			if(i+1 < n && this.bases[i] != INVALID_BASE && this.bases[i+1] != INVALID_BASE){
+				pair = 4*this.bases[i] + this.bases[i+1];
+				this.pairDeltaH[i+1] += tenths(SantaLuciaTM.getDinucleotideDeltaH(pair));
+				this.pairDeltaS[i+1] += tenths(SantaLuciaTM.getDinucleotideDeltaS(pair));
+			}
+		}
+
+		this.forwardHash = new long[n + 1];
+		this.reverseComplementHash = new long[n + 1];
+		this.hashPower = new long[n + 1];
+		this.hashPower[0] = 1;
+		int complement;
+		for(int i=0; i<n; i++){
+			this.hashPower[i+1] = this.hashPower[i] * HASH_BASE;
+			this.forwardHash[i+1] = this.forwardHash[i] * HASH_BASE + this.bases[i] + 1;
+			complement = this.bases[n-1-i] == INVALID_BASE ? INVALID_BASE : 3 - this.bases[n-1-i];
+			this.reverseComplementHash[i+1] = this.reverseComplementHash[i] * HASH_BASE + complement + 1;
+		}
+	}
+
+	/**
+	 * Computes the melting temperature of the primer region[start..start+length-1].
+	 *
+	 * Results equal SantaLuciaTM.computeMonoAndDivalentCationCorrectedTM(...) up to floating point rounding.
+	 *
+	 * @param start the start of the primer within the scan region
+	 * @param length the length of the primer
+	 * @param primerConcentration the primer concentration in mol!
+	 *
+	 * @return the melting temperature of the primer region[start..start+length-1]
+	 */
+	public double computeTM(int start, int length, double primerConcentration){
+		if(length > Constants.MAX_PRIMER_LENGTH_FOR_TM_CALC) throw new IllegalArgumentException("Tm calculation for primers is only valid for primer lengths <= " + Constants.MAX_PRIMER_LENGTH_FOR_TM_CALC + "bp");
+		if(primerConcentration <= 0 ) throw new IllegalArgumentException("Primer concentration (in mol!) must be > 0!!");
+		this.checkWindow(start, length);
+
+		if(primerConcentration != this.lastPrimerConcentration){
+			this.lastSymmetricConcentrationTerm = Constants.GAS_CONST_R * Math.log(primerConcentration);
+			this.lastConcentrationTerm = Constants.GAS_CONST_R * Math.log(primerConcentration/4);
+			this.lastPrimerConcentration = primerConcentration;
+		}
+
+		boolean symmetry = this.isSymmetric(start, length);
+		double dH = this.sumDeltaH(start, length);
+		double dS = this.sumDeltaS(start, length, symmetry);
+
+		if(symmetry) return dH * kilocalories/(dS + this.lastSymmetricConcentrationTerm) + Constants.ABSOLUTE_ZERO_TEMP;
+		else return dH * kilocalories/(dS + this.lastConcentrationTerm) + Constants.ABSOLUTE_ZERO_TEMP;
+	}
+
+	/**
+	 * Computes the worst-case (optimal, complete binding) binding energy of the oligonucleotide region[start..start+length-1] (in kcal/mol) at 37C.
+	 *
+	 * @param start the start of the oligonucleotide within the scan region
+	 * @param length the length of the oligonucleotide
+	 *
+	 * @return the binding energy of the oligonucleotide region[start..start+length-1] (in kcal/mol) at 37C
+	 */
+	public double computeDeltaG(int start, int length){
+		this.checkWindow(start, length);
+		double dH = this.sumDeltaH(start, length);
+		double dS = this.sumDeltaS(start, length, this.isSymmetric(start, length));
+		return (dH * kilocalories - temperatureDeltaG * dS) / kilocalories;
+	}
+
+	/**
+	 * Returns true iff the oligonucleotide region[start..start+length-1] is self-symmetric (equals its reverse complement).
+	 *
+	 * @param start the start of the oligonucleotide within the scan region
+	 * @param length the length of the oligonucleotide
+	 *
+	 * @return true iff the oligonucleotide region[start..start+length-1] is self-symmetric
+	 */
+	public boolean isSymmetric(int start, int length){
+		if(length % 2 != 0) return false;
+		final int n = this.bases.length;
+		long forward = this.forwardHash[start + length] - this.forwardHash[start] * this.hashPower[length];
+		int reverseStart = n - start - length;
+		long reverse = this.reverseComplementHash[reverseStart + length] - this.reverseComplementHash[reverseStart] * this.hashPower[length];
+		if(forward != reverse) return false;
+
+		// verify hash hits to exclude collisions
+		for(int i=0; i<length/2; i++){
+			if(this.bases[start + i] + this.bases[start + length - 1 - i] != 3) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the scan region of this table.
+	 *
+	 * @return the scan region of this table
+	 */
+	public char[] getRegion(){
+		return this.region;
+	}
+
+	/**
+	 * Sums up deltaH of all neighbor-terms plus initiation parameters at both ends of the oligonucleotide.
+	 *
+	 * @param start the start of the oligonucleotide
+	 * @param length the length of the oligonucleotide
+	 *
+	 * @return deltaH of the oligonucleotide in kcal/mol
+	 */
+	private double sumDeltaH(int start, int length){
+		final int end = start + length - 1;
+		return (this.pairDeltaH[end] - this.pairDeltaH[start] + this.terminalDeltaH[this.bases[start]] + this.terminalDeltaH[this.bases[end]]) / 10.0;
+	}
+
+	/**
+	 * Sums up deltaS of all neighbor-terms plus initiation parameters at both ends of the oligonucleotide, symmetry and salt correction.
+	 *
+	 * @param start the start of the oligonucleotide
+	 * @param length the length of the oligonucleotide
+	 * @param symmetry whether the oligonucleotide is self-symmetric
+	 *
+	 * @return deltaS of the oligonucleotide in cal/(K*mol)
+	 */
+	private double sumDeltaS(int start, int length, boolean symmetry){
+		final int end = start + length - 1;
+		// symmetry correction as in Primer3 & SantaLucia et.al.
+		long dS = this.pairDeltaS[end] - this.pairDeltaS[start] + this.terminalDeltaS[this.bases[start]] + this.terminalDeltaS[this.bases[end]] + (symmetry ? -14 : 0);
+		return dS / 10.0 + this.saltCorrection * (length - 1);
+	}
+
+	/**
+	 * Checks that region[start..start+length-1] is a valid oligonucleotide.
+	 *
+	 * @param start the start of the oligonucleotide
+	 * @param length the length of the oligonucleotide
+	 */
+	private void checkWindow(int start, int length){
+		if(length < 2) throw new IllegalArgumentException("Primer length must be >= 2!");
+		if(start < 0 || start + length > this.bases.length) throw new IndexOutOfBoundsException("Primer " + start + "-" + (start + length) + " exceeds sequence of length " + this.bases.length);
+		if(this.invalidCount[start + length] - this.invalidCount[start] > 0){
+			for(int i=start; i<start+length; i++){
+				if(this.bases[i] == INVALID_BASE) throw new IllegalArgumentException("The DNA base " + this.region[i] + " is no valid base!");
+			}
+		}
+	}
+
+	/**
+	 * Converts a nearest-neighbor parameter to tenths.
+	 *
+	 * @param value the nearest-neighbor parameter
+	 *
+	 * @return the parameter in tenths
+	 */
+	private static int tenths(double value){
+		return (int) Math.round(value * 10);
+	}
+}
@@ -0,0 +1,976 @@
+/**
+ *
+ */
+package primerDesign.algo;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import primerDesign.dsc.FastLongStack;
+import primerDesign.dsc.indexStructures.esa.CompactLcpTable;
+import primerDesign.dsc.nio.SegmentedMemoryMappedByteFile;
+import primerDesign.dsc.nio.SegmentedMemoryMappedLongFile;
+import primerDesign.util.ForkJoinPools;
+import cern.colt.list.LongArrayList;
+
+/**
+ * This class implements a parallel construction of the suffix array, the lcp table and the child table of an enhanced suffix array,
+ * writing all tables directly into their final (memory mapped) storage.
+ *
+ * The suffix array equals the one computed by KoAluruSuffixSort: it contains n+1 entries, the empty suffix n is the smallest one.
+ * Suffixes are sorted in three phases:
+ * - all suffixes are distributed into buckets by their first k characters (counting and distribution run concurrently on parts of the text),
+ * - the buckets are sorted concurrently by a multikey quicksort up to depth SORT_DEPTH,
+ * - groups of suffixes sharing a prefix of length SORT_DEPTH are sorted by prefix doubling on their ranks (Larsson, Sadakane), the groups of each
+ *   doubling step are sorted concurrently.
+ *
+ * The lcp table equals the one computed by LinearTimeLCP, it is computed by the permuted lcp (Phi) algorithm on concurrently processed parts of the text.
+ * Reference: Kaerkkaeinen, Manzini, Puglisi: Permuted Longest-Common-Prefix Array. CPM 2009, LNCS 5577, p.181-192
+ *
+ * The child table equals the one computed by EnhancedSuffixArray.computeChildTable(), the stack based computation is run concurrently on chunks of the lcp table
+ * starting from the stacks of the sequential computation at their first index.
+ *
+ * The text is a memory mapped file of one byte per character, IUPAC codes, runs of N and the separators of concatenated indices are therefore
+ * sorted exactly as by KoAluruSuffixSort, which a 2 bit packed text could not represent. All tables of size n are memory mapped files addressed by long positions,
+ * the construction therefore works on texts and tables larger than the available memory, which are paged by the operating system.
+ * The heap memory used is bounded by a memory budget:
+ * - the number of buckets is limited such that the bucket counts fit into one half of the budget,
+ * - each thread sorts buckets and groups in a buffer of at most (budget/2)/threads bytes, larger buckets and groups are sorted in place in the
+ *   memory mapped suffix array,
+ * - the groups of each doubling step are found by scanning the suffix array and the ranks instead of being stored in lists,
+ *   the ranks are read from one table and the ranks of the next step are written to a second one.
+ * The lcp values >= CompactLcpTable.OVERFLOW are part of the (in memory) exception table of the lcp table and are not limited by the budget.
+ * Neither are the stacks of the child table computation, which hold one entry per distinct lcp value on the stacks at the start of each chunk.
+ *
+ * This is not an external memory construction: the multikey quicksort and the prefix doubling access the memory mapped text and tables
+ * randomly rather than in sequential passes. Tables exceeding the available memory are constructed correctly, but their random access
+ * may cause heavy paging, ExternalESAConstruction constructs them in sequential passes instead.
+ *
+ * @author Sebastian Frhler
+ *
+ */
+public class ParallelESAConstruction extends ESAConstruction {
+	private static final int MAX_BUCKETS = 1 << 17;
+	private static final int SORT_DEPTH = 64; // the depth of the multikey quicksort, longer common prefixes are sorted by prefix doubling
+	private static final int INSERTION_SORT_SIZE = 16;
+	private static final int CHUNK_SIZE = 1 << 20; // the number of table entries per task
+	private static final int END = -1; // the character beyond the end of the text
+	private static final int ALPHABET_SIZE = 1 << 8; // the number of distinct byte characters
+	private static final int MAX_BUFFER_SIZE = Integer.MAX_VALUE - 8; // the max size of a java array
+
+	private final int threads;
+	private final long memoryBudget;
+
+	/**
+	 * Initializes a parallel ESA construction using all available processors.
+	 */
+	public ParallelESAConstruction(){
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Initializes a parallel ESA construction without a memory budget.
+	 *
+	 * @param threads the number of threads to use
+	 */
+	public ParallelESAConstruction(int threads){
+		this(threads, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Initializes a parallel ESA construction.
+	 *
+	 * @param threads the number of threads to use
+	 * @param memoryBudget the number of bytes of heap memory to use for buckets and sort buffers
+	 */
+	public ParallelESAConstruction(int threads, long memoryBudget){
+		if(threads < 1) throw new IllegalArgumentException("The number of threads must be >= 1!");
+		if(memoryBudget < 0) throw new IllegalArgumentException("The memory budget must be >= 0!");
+		this.threads = threads;
+		this.memoryBudget = memoryBudget;
+	}
+
+	/**
+	 * Returns the number of entries of a sort buffer of one thread.
+	 *
+	 * @param bytesPerEntry the size of an entry in bytes
+	 *
+	 * @return the number of entries of a sort buffer of one thread
+	 */
+	private int getBufferSize(int bytesPerEntry){
+		return (int) Math.min(MAX_BUFFER_SIZE, this.memoryBudget / 2 / this.threads / bytesPerEntry);
+	}
+
+	/* (non-Javadoc)
+	 * @see primerDesign.algo.ESAConstruction#createTables(primerDesign.dsc.nio.SegmentedMemoryMappedByteFile, primerDesign.dsc.nio.SegmentedMemoryMappedLongFile, primerDesign.dsc.indexStructures.esa.CompactLcpTable, primerDesign.dsc.nio.SegmentedMemoryMappedLongFile, java.lang.String)
+	 */
+	@Override
+	public void createTables(SegmentedMemoryMappedByteFile text, SegmentedMemoryMappedLongFile suffixArray, CompactLcpTable lcp, SegmentedMemoryMappedLongFile childTable, String tempPath) throws IOException{
+		// the ranks of the sort are reused as permuted lcp values
+		File tempFile = new File(tempPath + "_temp");
+		File nextTempFile = new File(tempPath + "_temp2");
+		try{
+			SegmentedMemoryMappedLongFile temp = new SegmentedMemoryMappedLongFile(tempFile, text.length() + 1, text.length());
+			SegmentedMemoryMappedLongFile nextTemp = new SegmentedMemoryMappedLongFile(nextTempFile, text.length() + 1, text.length());
+			this.getSuffixArray(text, suffixArray, temp, nextTemp);
+			this.getLCP(text, suffixArray, temp, lcp);
+		}
+		finally{
+			if(!tempFile.delete()) tempFile.deleteOnExit();
+			if(!nextTempFile.delete()) nextTempFile.deleteOnExit();
+		}
+		this.getChildTable(lcp, childTable);
+	}
+
+	/**
+	 * Computes the suffix array of 'text'.
+	 *
+	 * @param text the sequence, one byte per character
+	 * @param suffixArray the table to store the suffix array in, must contain >= text.length()+1 entries
+	 * @param ranks a temporary table, must contain >= text.length()+1 entries
+	 * @param nextRanks a second temporary table, must contain >= text.length()+1 entries
+	 */
+	public void getSuffixArray(final SegmentedMemoryMappedByteFile text, final SegmentedMemoryMappedLongFile suffixArray, final SegmentedMemoryMappedLongFile ranks, final SegmentedMemoryMappedLongFile nextRanks){
+		final long n = text.length();
+		if(suffixArray.length() <= n || ranks.length() <= n || nextRanks.length() <= n) throw new IllegalArgumentException("The tables must contain >= " + (n + 1) + " entries!");
+
+		// the bucket of a suffix is the number of its first k characters in base 'base', the end of the text is character 0
+		final int[] code = new int[ALPHABET_SIZE];
+		for(long i=0; i<n; i++) code[getChar(text, n, i)] = 1;
+		int sigma = 0;
+		for(int c=0; c<code.length; c++) if(code[c] != 0) code[c] = ++sigma;
+		final int base = sigma + 1;
+		final int parts = (int) Math.min(this.threads, Math.max(1, n));
+		// the counts of each part and the bucket starts fit into one half of the budget
+		long maxBuckets = Math.min(MAX_BUCKETS, this.memoryBudget / 2 / (8L * (parts + 1)));
+		int k = 1;
+		long buckets = base;
+		while(k < SORT_DEPTH && buckets * base <= maxBuckets){
+			buckets *= base;
+			k++;
+		}
+		final int prefixLength = k;
+		final int numBuckets = (int) buckets;
+		final int highestDigit = (int) (buckets / base);
+
+		// count the suffixes per bucket and part of the text
+		final long[][] positions = new long[parts][];
+		List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+		for(int t=0; t<parts; t++){
+			final int part = t;
+			tasks.add(new Callable<Object>(){
+				public Object call(){
+					long[] counts = new long[numBuckets];
+					long from = n * part / parts;
+					long to = n * (part + 1) / parts;
+					int bucket = getBucket(text, n, code, base, prefixLength, from);
+					for(long i=from; i<to; i++){
+						counts[bucket]++;
+						bucket = (bucket - getCode(text, n, code, i) * highestDigit) * base + getCode(text, n, code, i + prefixLength);
+					}
+					positions[part] = counts;
+					return null;
+				}
+			});
+		}
+		this.invokeAll(tasks);
+
+		// turn the counts into the start positions of each part in each bucket, position 0 is the empty suffix
+		final long[] bucketStarts = new long[numBuckets + 1];
+		long start = 1;
+		long count;
+		for(int b=0; b<numBuckets; b++){
+			bucketStarts[b] = start;
+			for(int t=0; t<parts; t++){
+				count = positions[t][b];
+				positions[t][b] = start;
+				start += count;
+			}
+		}
+		bucketStarts[numBuckets] = start;
+		suffixArray.put(0, n);
+		ranks.put(n, 0);
+
+		// distribute the suffixes into their buckets
+		tasks.clear();
+		for(int t=0; t<parts; t++){
+			final int part = t;
+			tasks.add(new Callable<Object>(){
+				public Object call(){
+					long[] next = positions[part];
+					long from = n * part / parts;
+					long to = n * (part + 1) / parts;
+					int bucket = getBucket(text, n, code, base, prefixLength, from);
+					for(long i=from; i<to; i++){
+						suffixArray.putQuick(next[bucket]++, i);
+						bucket = (bucket - getCode(text, n, code, i) * highestDigit) * base + getCode(text, n, code, i + prefixLength);
+					}
+					return null;
+				}
+			});
+		}
+		this.invokeAll(tasks);
+		for(int t=0; t<parts; t++) positions[t] = null;
+
+		// sort the buckets up to depth SORT_DEPTH and rank the suffixes: the rank of a suffix is its position in the suffix array,
+		// the rank of a group of suffixes sharing a prefix of length SORT_DEPTH is the position of its last suffix
+		final int bufferSize = this.getBufferSize(8);
+		final AtomicInteger nextBucket = new AtomicInteger(0);
+		tasks.clear();
+		for(int t=0; t<this.threads; t++){
+			tasks.add(new Callable<Object>(){
+				public Object call(){
+					long[] buffer = new long[0];
+					int bucket;
+					long from;
+					long size;
+					while((bucket = nextBucket.getAndIncrement()) < numBuckets){
+						from = bucketStarts[bucket];
+						size = bucketStarts[bucket + 1] - from;
+						if(size == 0) continue;
+						if(size > bufferSize){
+							multikeyQuicksort(text, n, new MappedSuffixes(suffixArray, from), 0, size, prefixLength, from, ranks);
+							continue;
+						}
+						if(buffer.length < size) buffer = new long[(int) Math.min(bufferSize, Math.max(size, 2L * buffer.length))];
+						for(int i=0; i<size; i++) buffer[i] = suffixArray.getQuick(from + i);
+						multikeyQuicksort(text, n, new BufferedSuffixes(buffer), 0, size, prefixLength, from, ranks);
+						for(int i=0; i<size; i++) suffixArray.putQuick(from + i, buffer[i]);
+					}
+					return null;
+				}
+			});
+		}
+		this.invokeAll(tasks);
+
+		// prefix doubling: the groups share a prefix of length 'depth', sorting them by the rank of suffix i+depth doubles the shared prefix
+		SegmentedMemoryMappedLongFile current = ranks;
+		SegmentedMemoryMappedLongFile next = nextRanks;
+		SegmentedMemoryMappedLongFile temp;
+		long depth = SORT_DEPTH;
+		while(this.refineGroups(n, depth, suffixArray, current, next)){
+			temp = current;
+			current = next;
+			next = temp;
+			depth = 2 * depth;
+		}
+	}
+
+	/**
+	 * Computes the lcp table of 'text'.
+	 *
+	 * @param text the sequence, one byte per character
+	 * @param suffixArray the suffix array of 'text' as computed by getSuffixArray()
+	 * @param phi a temporary table, must contain >= text.length()+1 entries
+	 * @param lcp the table to store the lcp values in, must contain >= text.length()+1 entries, all lcp values must be 0
+	 */
+	public void getLCP(final SegmentedMemoryMappedByteFile text, final SegmentedMemoryMappedLongFile suffixArray, final SegmentedMemoryMappedLongFile phi, final CompactLcpTable lcp){
+		final long n = text.length();
+		if(phi.length() <= n || lcp.length() <= n) throw new IllegalArgumentException("The tables must contain >= " + (n + 1) + " entries!");
+
+		// phi(SA[i]) is the suffix preceding SA[i] in the suffix array
+		List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+		for(long from=0; from<=n; from+=CHUNK_SIZE){
+			final long chunkStart = from;
+			tasks.add(new Callable<Object>(){
+				public Object call(){
+					long to = Math.min(chunkStart + CHUNK_SIZE, n + 1);
+					long previous = (chunkStart == 0) ? -1 : suffixArray.getQuick(chunkStart - 1);
+					long current;
+					for(long i=chunkStart; i<to; i++){
+						current = suffixArray.getQuick(i);
+						phi.putQuick(current, previous);
+						previous = current;
+					}
+					return null;
+				}
+			});
+		}
+		this.invokeAll(tasks);
+
+		// the permuted lcp of suffix i is >= the one of suffix i-1 minus 1, each part of the text starts from 0
+		tasks.clear();
+		for(long from=0; from<=n; from+=CHUNK_SIZE){
+			final long chunkStart = from;
+			tasks.add(new Callable<Object>(){
+				public Object call(){
+					long to = Math.min(chunkStart + CHUNK_SIZE, n + 1);
+					long h = 0;
+					long j;
+					for(long i=chunkStart; i<to; i++){
+						j = phi.getQuick(i);
+						if(j < 0) h = 0;
+						else{
+							while(i + h < n && j + h < n && text.getQuick(i + h) == text.getQuick(j + h)) h++;
+						}
+						phi.putQuick(i, h);
+						if(h > 0) h--;
+					}
+					return null;
+				}
+			});
+		}
+		this.invokeAll(tasks);
+
+		// lcp[i] = plcp[SA[i]], compact values are set concurrently, larger ones are added to the exception table in ascending order
+		List<Callable<LongArrayList>> lcpTasks = new ArrayList<Callable<LongArrayList>>();
+		for(long from=0; from<=n; from+=CHUNK_SIZE){
+			final long chunkStart = from;
+			lcpTasks.add(new Callable<LongArrayList>(){
+				public LongArrayList call(){
+					long to = Math.min(chunkStart + CHUNK_SIZE, n + 1);
+					LongArrayList exceptions = new LongArrayList();
+					long value;
+					for(long i=chunkStart; i<to; i++){
+						value = (i == 0) ? 0 : phi.getQuick(suffixArray.getQuick(i));
+						if(value < CompactLcpTable.OVERFLOW) lcp.set(i, value);
+						else{
+							exceptions.add(i);
+							exceptions.add(value);
+						}
+					}
+					return exceptions;
+				}
+			});
+		}
+		for(LongArrayList exceptions : this.invokeAll(lcpTasks)){
+			for(int i=0; i<exceptions.size(); i+=2) lcp.set(exceptions.getQuick(i), exceptions.getQuick(i + 1));
+		}
+	}
+
+	/**
+	 * Computes the child table of an enhanced suffix array from its lcp table.
+	 *
+	 * The child table equals the one computed sequentially by EnhancedSuffixArray.computeChildTable(): entry i holds the next l-index of i if defined,
+	 * else the up value of i+1 if defined, else the down value of i if defined, else UNDEFINED. Each entry is set at most once by the step
+	 * of the sequential computation which pops i (or i+1) from its stacks, the steps of distinct chunks of the lcp table therefore set distinct entries.
+	 * The chunks are processed concurrently twice: first from empty stacks, leaving the stacks each chunk contributes, then from the stacks
+	 * of the sequential computation at their first index, composed from the stacks of all chunks before them.
+	 * The stacks hold one entry per run of equal lcp values only, their size is bounded by the number of distinct lcp values.
+	 *
+	 * @param lcp the lcp table as computed by getLCP()
+	 * @param childTable the table to store the child table in, must contain >= lcp.length() entries
+	 */
+	public void getChildTable(final CompactLcpTable lcp, final SegmentedMemoryMappedLongFile childTable){
+		final long n = lcp.length() - 1;
+		if(childTable.length() <= n) throw new IllegalArgumentException("The child table must contain >= " + (n + 1) + " entries!");
+
+		// entries which are not set below are undefined
+		List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+		for(long from=0; from<=n; from+=CHUNK_SIZE){
+			final long chunkStart = from;
+			tasks.add(new Callable<Object>(){
+				public Object call(){
+					long to = Math.min(chunkStart + CHUNK_SIZE, n + 1);
+					for(long i=chunkStart; i<to; i++) childTable.putQuick(i, UNDEFINED);
+					return null;
+				}
+			});
+		}
+		this.invokeAll(tasks);
+
+		// the stacks left by each chunk of indices 1..n when processed from empty stacks
+		final long chunkSize = Math.max(1, Math.min(CHUNK_SIZE, (n + this.threads - 1) / this.threads));
+		List<Callable<ChildStacks>> stackTasks = new ArrayList<Callable<ChildStacks>>();
+		for(long from=1; from<=n; from+=chunkSize){
+			final long chunkStart = from;
+			stackTasks.add(new Callable<ChildStacks>(){
+				public ChildStacks call(){
+					long to = Math.min(chunkStart + chunkSize, n + 1);
+					ChildStacks stacks = new ChildStacks();
+					for(long i=chunkStart; i<to; i++) stacks.step(lcp, i, null);
+					return stacks;
+				}
+			});
+		}
+		List<ChildStacks> chunkStacks = this.invokeAll(stackTasks);
+
+		// each chunk sets its entries from the stacks at its first index, at most this.threads stacks are copied at a time
+		ChildStacks stacks = new ChildStacks();
+		stacks.step(lcp, 0, null);
+		tasks.clear();
+		long from = 1;
+		for(ChildStacks next : chunkStacks){
+			final long chunkStart = from;
+			final ChildStacks start = new ChildStacks(stacks);
+			tasks.add(new Callable<Object>(){
+				public Object call(){
+					long to = Math.min(chunkStart + chunkSize, n + 1);
+					for(long i=chunkStart; i<to; i++) start.step(lcp, i, childTable);
+					return null;
+				}
+			});
+			if(tasks.size() == this.threads){
+				this.invokeAll(tasks);
+				tasks.clear();
+			}
+			stacks.append(next);
+			from += chunkSize;
+		}
+		this.invokeAll(tasks);
+	}
+
+	/**
+	 * Sorts the groups of suffixes by the ranks of the suffixes 'depth' positions behind them.
+	 *
+	 * A group starts at position i of the suffix array iff the rank of suffix SA[i] is > i, the suffix array is scanned concurrently in chunks,
+	 * each group is sorted by the chunk it starts in. The ranks are read from 'ranks' only, the ranks of the sorted suffixes are written to 'nextRanks'.
+	 *
+	 * @param n the length of the text
+	 * @param depth the length of the prefix shared by the suffixes of each group
+	 * @param suffixArray the suffix array
+	 * @param ranks the ranks of the suffixes
+	 * @param nextRanks the table to store the ranks of the suffixes sharing a prefix of length 2*depth in
+	 *
+	 * @return true iff any group was sorted, otherwise 'ranks' are the final ranks and 'nextRanks' is unchanged
+	 */
+	private boolean refineGroups(final long n, final long depth, final SegmentedMemoryMappedLongFile suffixArray, final SegmentedMemoryMappedLongFile ranks, final SegmentedMemoryMappedLongFile nextRanks){
+		// the ranks of the suffixes not contained in any group remain unchanged
+		List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+		for(long from=0; from<=n; from+=CHUNK_SIZE){
+			final long chunkStart = from;
+			tasks.add(new Callable<Object>(){
+				public Object call(){
+					long to = Math.min(chunkStart + CHUNK_SIZE, n + 1);
+					for(long i=chunkStart; i<to; i++) nextRanks.putQuick(i, ranks.getQuick(i));
+					return null;
+				}
+			});
+		}
+
+		final int bufferSize = this.getBufferSize(16);
+		List<Callable<Boolean>> groupTasks = new ArrayList<Callable<Boolean>>();
+		for(long from=0; from<=n; from+=CHUNK_SIZE){
+			final long chunkStart = from;
+			groupTasks.add(new Callable<Boolean>(){
+				public Boolean call(){
+					long to = Math.min(chunkStart + CHUNK_SIZE, n + 1);
+					long[] keys = new long[0];
+					long[] suffixes = new long[0];
+					boolean hasGroups = false;
+					long i = chunkStart;
+					long last;
+					// the suffixes of a group share its rank, a group starting in a preceding chunk is skipped
+					if(i > 0){
+						last = ranks.getQuick(suffixArray.getQuick(i));
+						if(ranks.getQuick(suffixArray.getQuick(i - 1)) == last) i = last + 1;
+					}
+					while(i < to){
+						last = ranks.getQuick(suffixArray.getQuick(i));
+						if(last <= i){
+							i++;
+							continue;
+						}
+						hasGroups = true;
+						long size = last - i + 1;
+						if(size > bufferSize) sortGroup(suffixArray, ranks, nextRanks, depth, i, last + 1);
+						else{
+							if(keys.length < size){
+								keys = new long[(int) Math.min(bufferSize, Math.max(size, 2L * keys.length))];
+								suffixes = new long[keys.length];
+							}
+							sortGroup(suffixArray, ranks, nextRanks, depth, i, last + 1, keys, suffixes);
+						}
+						i = last + 1;
+					}
+					return hasGroups;
+				}
+			});
+		}
+
+		// the groups are found before the ranks are copied, which is skipped if there are no groups left
+		boolean hasGroups = false;
+		for(long from=0; from<=n && !hasGroups; from+=CHUNK_SIZE){
+			long to = Math.min(from + CHUNK_SIZE, n + 1);
+			for(long i=from; i<to && !hasGroups; i++) hasGroups = ranks.getQuick(suffixArray.getQuick(i)) > i;
+		}
+		if(!hasGroups) return false;
+		this.invokeAll(tasks);
+		this.invokeAll(groupTasks);
+		return true;
+	}
+
+	/**
+	 * Sorts a group of suffixes in a buffer by the ranks of the suffixes 'depth' positions behind them.
+	 *
+	 * @param suffixArray the suffix array
+	 * @param ranks the ranks of the suffixes
+	 * @param nextRanks the table to store the ranks of the sorted suffixes in
+	 * @param depth the length of the prefix shared by the suffixes of the group
+	 * @param from the first position of the group in the suffix array
+	 * @param to the last position of the group in the suffix array + 1
+	 * @param keys the buffer to store the sort keys of the group in, must contain >= to-from entries
+	 * @param suffixes the buffer to sort the suffixes of the group in, must contain >= to-from entries
+	 */
+	private static void sortGroup(SegmentedMemoryMappedLongFile suffixArray, SegmentedMemoryMappedLongFile ranks, SegmentedMemoryMappedLongFile nextRanks, long depth, long from, long to, long[] keys, long[] suffixes){
+		int size = (int) (to - from);
+		// a suffix of a group is at least 'depth' characters long, suffix+depth is at most the empty suffix
+		for(int i=0; i<size; i++){
+			suffixes[i] = suffixArray.getQuick(from + i);
+			keys[i] = ranks.getQuick(suffixes[i] + depth);
+		}
+		quicksort(keys, suffixes, 0, size);
+		int start = 0;
+		for(int i=0; i<size; i++){
+			suffixArray.putQuick(from + i, suffixes[i]);
+			if(i == size - 1 || keys[i] != keys[i + 1]){
+				for(int j=start; j<=i; j++) nextRanks.putQuick(suffixes[j], from + i);
+				start = i + 1;
+			}
+		}
+	}
+
+	/**
+	 * Sorts the suffixes of a buffer by their keys.
+	 *
+	 * @param keys the sort keys of the suffixes
+	 * @param suffixes the suffixes, permuted along with their keys
+	 * @param from the first position to sort
+	 * @param to the last position to sort + 1
+	 */
+	private static void quicksort(long[] keys, long[] suffixes, int from, int to){
+		int lower;
+		int upper;
+		int i;
+		long pivot;
+		while(to - from > 1){
+			if(to - from < INSERTION_SORT_SIZE){
+				long key;
+				long suffix;
+				int j;
+				for(i=from+1; i<to; i++){
+					key = keys[i];
+					suffix = suffixes[i];
+					for(j=i; j>from && keys[j - 1] > key; j--){
+						keys[j] = keys[j - 1];
+						suffixes[j] = suffixes[j - 1];
+					}
+					keys[j] = key;
+					suffixes[j] = suffix;
+				}
+				return;
+			}
+			pivot = medianOfThree(keys[from], keys[(from + to) >>> 1], keys[to - 1]);
+			// three-way partition: [from,lower) < pivot, [lower,upper) = pivot, [upper,to) > pivot
+			lower = from;
+			upper = to;
+			i = from;
+			while(i < upper){
+				if(keys[i] < pivot) swap(keys, suffixes, lower++, i++);
+				else if(keys[i] > pivot) swap(keys, suffixes, --upper, i);
+				else i++;
+			}
+			// the smaller part is sorted recursively, which bounds the depth of the recursion
+			if(lower - from < to - upper){
+				quicksort(keys, suffixes, from, lower);
+				from = upper;
+			}
+			else{
+				quicksort(keys, suffixes, upper, to);
+				to = lower;
+			}
+		}
+	}
+
+	private static void swap(long[] keys, long[] suffixes, int a, int b){
+		long temp = keys[a];
+		keys[a] = keys[b];
+		keys[b] = temp;
+		temp = suffixes[a];
+		suffixes[a] = suffixes[b];
+		suffixes[b] = temp;
+	}
+
+	/**
+	 * Sorts a group of suffixes in place in the suffix array by the ranks of the suffixes 'depth' positions behind them.
+	 *
+	 * @see #sortGroup(SegmentedMemoryMappedLongFile, SegmentedMemoryMappedLongFile, SegmentedMemoryMappedLongFile, long, long, long, long[], long[])
+	 */
+	private static void sortGroup(SegmentedMemoryMappedLongFile suffixArray, SegmentedMemoryMappedLongFile ranks, SegmentedMemoryMappedLongFile nextRanks, long depth, long from, long to){
+		quicksort(suffixArray, ranks, depth, from, to);
+		long start = from;
+		long key = getKey(suffixArray, ranks, depth, from);
+		long nextKey;
+		for(long i=from; i<to; i++){
+			nextKey = (i == to - 1) ? key : getKey(suffixArray, ranks, depth, i + 1);
+			if(i == to - 1 || key != nextKey){
+				for(long j=start; j<=i; j++) nextRanks.putQuick(suffixArray.getQuick(j), i);
+				start = i + 1;
+			}
+			key = nextKey;
+		}
+	}
+
+	/**
+	 * Sorts the suffixes of the suffix array in place by the ranks of the suffixes 'depth' positions behind them.
+	 *
+	 * @param suffixArray the suffix array
+	 * @param ranks the ranks of the suffixes
+	 * @param depth the length of the prefix shared by the suffixes to sort
+	 * @param from the first position to sort
+	 * @param to the last position to sort + 1
+	 */
+	private static void quicksort(SegmentedMemoryMappedLongFile suffixArray, SegmentedMemoryMappedLongFile ranks, long depth, long from, long to){
+		long lower;
+		long upper;
+		long i;
+		long pivot;
+		long key;
+		while(to - from > 1){
+			if(to - from < INSERTION_SORT_SIZE){
+				long suffix;
+				long j;
+				for(i=from+1; i<to; i++){
+					suffix = suffixArray.getQuick(i);
+					key = ranks.getQuick(suffix + depth);
+					for(j=i; j>from && getKey(suffixArray, ranks, depth, j - 1) > key; j--) suffixArray.putQuick(j, suffixArray.getQuick(j - 1));
+					suffixArray.putQuick(j, suffix);
+				}
+				return;
+			}
+			pivot = medianOfThree(getKey(suffixArray, ranks, depth, from), getKey(suffixArray, ranks, depth, (from + to) >>> 1), getKey(suffixArray, ranks, depth, to - 1));
+			// three-way partition: [from,lower) < pivot, [lower,upper) = pivot, [upper,to) > pivot
+			lower = from;
+			upper = to;
+			i = from;
+			while(i < upper){
+				key = getKey(suffixArray, ranks, depth, i);
+				if(key < pivot) swap(suffixArray, lower++, i++);
+				else if(key > pivot) swap(suffixArray, --upper, i);
+				else i++;
+			}
+			// the smaller part is sorted recursively, which bounds the depth of the recursion
+			if(lower - from < to - upper){
+				quicksort(suffixArray, ranks, depth, from, lower);
+				from = upper;
+			}
+			else{
+				quicksort(suffixArray, ranks, depth, upper, to);
+				to = lower;
+			}
+		}
+	}
+
+	private static long getKey(SegmentedMemoryMappedLongFile suffixArray, SegmentedMemoryMappedLongFile ranks, long depth, long position){
+		return ranks.getQuick(suffixArray.getQuick(position) + depth);
+	}
+
+	private static void swap(SegmentedMemoryMappedLongFile suffixArray, long a, long b){
+		long temp = suffixArray.getQuick(a);
+		suffixArray.putQuick(a, suffixArray.getQuick(b));
+		suffixArray.putQuick(b, temp);
+	}
+
+	/**
+	 * Sorts suffixes by a multikey quicksort up to depth SORT_DEPTH and sets their ranks.
+	 *
+	 * Reference: Bentley, Sedgewick: Fast algorithms for sorting and searching strings. SODA 1997, p.360-369
+	 *
+	 * @param text the sequence
+	 * @param n the length of the sequence
+	 * @param suffixes the suffixes to sort
+	 * @param from the first suffix to sort
+	 * @param to the last suffix to sort + 1
+	 * @param depth the length of the prefix shared by all suffixes to sort
+	 * @param offset the position of suffixes[0] in the suffix array
+	 * @param ranks the table to store the ranks of the suffixes in
+	 */
+	private static void multikeyQuicksort(SegmentedMemoryMappedByteFile text, long n, Suffixes suffixes, long from, long to, int depth, long offset, SegmentedMemoryMappedLongFile ranks){
+		long lower;
+		long upper;
+		long i;
+		int pivot;
+		int c;
+		long temp;
+		while(true){
+			if(to - from < 2 || depth >= SORT_DEPTH){
+				setRanks(suffixes, from, to, offset + to - 1, ranks);
+				return;
+			}
+			if(to - from < INSERTION_SORT_SIZE){
+				insertionSort(text, n, suffixes, from, to, depth, offset, ranks);
+				return;
+			}
+			pivot = (int) medianOfThree(getChar(text, n, suffixes.get(from) + depth), getChar(text, n, suffixes.get((from + to) >>> 1) + depth), getChar(text, n, suffixes.get(to - 1) + depth));
+			// three-way partition: [from,lower) < pivot, [lower,upper) = pivot, [upper,to) > pivot
+			lower = from;
+			upper = to;
+			i = from;
+			while(i < upper){
+				c = getChar(text, n, suffixes.get(i) + depth);
+				if(c < pivot){
+					temp = suffixes.get(lower);
+					suffixes.set(lower++, suffixes.get(i));
+					suffixes.set(i++, temp);
+				}
+				else if(c > pivot){
+					temp = suffixes.get(--upper);
+					suffixes.set(upper, suffixes.get(i));
+					suffixes.set(i, temp);
+				}
+				else i++;
+			}
+			if(lower > from) multikeyQuicksort(text, n, suffixes, from, lower, depth, offset, ranks);
+			if(to > upper) multikeyQuicksort(text, n, suffixes, upper, to, depth, offset, ranks);
+			// suffixes ending at this depth are equal, i.e. there is only one
+			if(pivot == END){
+				setRanks(suffixes, lower, upper, offset + upper - 1, ranks);
+				return;
+			}
+			from = lower;
+			to = upper;
+			depth++;
+		}
+	}
+
+	/**
+	 * Sorts few suffixes by insertion sort up to depth SORT_DEPTH and sets their ranks.
+	 *
+	 * @see #multikeyQuicksort(SegmentedMemoryMappedByteFile, long, Suffixes, long, long, int, long, SegmentedMemoryMappedLongFile)
+	 */
+	private static void insertionSort(SegmentedMemoryMappedByteFile text, long n, Suffixes suffixes, long from, long to, int depth, long offset, SegmentedMemoryMappedLongFile ranks){
+		long suffix;
+		long j;
+		for(long i=from+1; i<to; i++){
+			suffix = suffixes.get(i);
+			for(j=i; j>from && compare(text, n, suffixes.get(j - 1), suffix, depth) > 0; j--) suffixes.set(j, suffixes.get(j - 1));
+			suffixes.set(j, suffix);
+		}
+		long start = from;
+		for(long i=from+1; i<=to; i++){
+			if(i == to || compare(text, n, suffixes.get(i - 1), suffixes.get(i), depth) != 0){
+				setRanks(suffixes, start, i, offset + i - 1, ranks);
+				start = i;
+			}
+		}
+	}
+
+	/**
+	 * Sets the rank of a range of sorted suffixes sharing a prefix of length SORT_DEPTH or being a single suffix.
+	 *
+	 * @param suffixes the suffixes
+	 * @param from the first suffix of the range
+	 * @param to the last suffix of the range + 1
+	 * @param rank the position of the last suffix of the range in the suffix array
+	 * @param ranks the table to store the ranks of the suffixes in
+	 */
+	private static void setRanks(Suffixes suffixes, long from, long to, long rank, SegmentedMemoryMappedLongFile ranks){
+		for(long i=from; i<to; i++) ranks.putQuick(suffixes.get(i), rank);
+	}
+
+	/**
+	 * Compares two suffixes sharing a prefix of length 'depth' up to depth SORT_DEPTH.
+	 *
+	 * @return -1|0|1 like compareTo for Strings does, 0 iff both suffixes share a prefix of length SORT_DEPTH
+	 */
+	private static int compare(SegmentedMemoryMappedByteFile text, long n, long a, long b, int depth){
+		int ca;
+		int cb;
+		for(int d=depth; d<SORT_DEPTH; d++){
+			ca = getChar(text, n, a + d);
+			cb = getChar(text, n, b + d);
+			if(ca != cb) return (ca < cb) ? -1 : 1;
+			if(ca == END) return 0;
+		}
+		return 0;
+	}
+
+	private static long medianOfThree(long a, long b, long c){
+		if(a < b) return (b < c) ? b : ((a < c) ? c : a);
+		else return (a < c) ? a : ((b < c) ? c : b);
+	}
+
+	private static int getChar(SegmentedMemoryMappedByteFile text, long n, long position){
+		return (position < n) ? text.getQuick(position) & 0xFF : END;
+	}
+
+	private static int getCode(SegmentedMemoryMappedByteFile text, long n, int[] code, long position){
+		return (position < n) ? code[text.getQuick(position) & 0xFF] : 0;
+	}
+
+	private static int getBucket(SegmentedMemoryMappedByteFile text, long n, int[] code, int base, int prefixLength, long position){
+		int bucket = 0;
+		for(int i=0; i<prefixLength; i++) bucket = bucket * base + getCode(text, n, code, position + i);
+		return bucket;
+	}
+
+	/**
+	 * The stacks of the sequential child table computation: the up/down stack holds runs of equal lcp values (first index, last index, lcp value),
+	 * the next stack holds the last index of each distinct lcp value.
+	 */
+	private static class ChildStacks{
+		private final FastLongStack firstIndices;
+		private final FastLongStack lastIndices;
+		private final FastLongStack values;
+		private final FastLongStack nextIndices;
+		private final FastLongStack nextValues;
+
+		ChildStacks(){
+			this.firstIndices = new FastLongStack();
+			this.lastIndices = new FastLongStack();
+			this.values = new FastLongStack();
+			this.nextIndices = new FastLongStack();
+			this.nextValues = new FastLongStack();
+		}
+
+		ChildStacks(ChildStacks other){
+			this.firstIndices = new FastLongStack(other.firstIndices);
+			this.lastIndices = new FastLongStack(other.lastIndices);
+			this.values = new FastLongStack(other.values);
+			this.nextIndices = new FastLongStack(other.nextIndices);
+			this.nextValues = new FastLongStack(other.nextValues);
+		}
+
+		/**
+		 * Processes index i, setting the child table entries the sequential computation sets in this step unless 'childTable' is null.
+		 *
+		 * @param lcp the lcp table
+		 * @param i the index
+		 * @param childTable the child table or null
+		 */
+		void step(CompactLcpTable lcp, long i, SegmentedMemoryMappedLongFile childTable){
+			long value = lcp.get(i);
+			long lastIndex = -1;
+			while(!this.values.empty() && value < this.values.peek()){
+				lastIndex = this.firstIndices.pop();
+				this.lastIndices.pop();
+				this.values.pop();
+				// a down value for an index whose lcp value equals the one of i is replaced by its next l-index below
+				if(childTable != null && !this.values.empty() && value < this.values.peek()) childTable.putQuick(this.lastIndices.peek(), lastIndex);
+			}
+			if(childTable != null && lastIndex != -1) childTable.putQuick(i - 1, lastIndex);
+			if(!this.values.empty() && value == this.values.peek()){
+				this.lastIndices.pop();
+				this.lastIndices.push(i);
+			}
+			else{
+				this.firstIndices.push(i);
+				this.lastIndices.push(i);
+				this.values.push(value);
+			}
+
+			while(!this.nextValues.empty() && value < this.nextValues.peek()){
+				this.nextIndices.pop();
+				this.nextValues.pop();
+			}
+			if(!this.nextValues.empty() && value == this.nextValues.peek()){
+				this.nextValues.pop();
+				long index = this.nextIndices.pop();
+				if(childTable != null) childTable.putQuick(index, i);
+			}
+			this.nextIndices.push(i);
+			this.nextValues.push(value);
+		}
+
+		/**
+		 * Processes the indices of a chunk following the ones processed so far, given the stacks the chunk leaves when processed from empty stacks.
+		 *
+		 * @param chunk the stacks left by the chunk
+		 */
+		void append(ChildStacks chunk){
+			// the first run of a chunk holds its minimum lcp value
+			long min = chunk.values.get(0);
+			while(!this.values.empty() && min < this.values.peek()){
+				this.firstIndices.pop();
+				this.lastIndices.pop();
+				this.values.pop();
+			}
+			int first = 0;
+			if(!this.values.empty() && min == this.values.peek()){
+				this.lastIndices.pop();
+				this.lastIndices.push(chunk.lastIndices.get(0));
+				first = 1;
+			}
+			for(int k=first; k<chunk.values.size(); k++){
+				this.firstIndices.push(chunk.firstIndices.get(k));
+				this.lastIndices.push(chunk.lastIndices.get(k));
+				this.values.push(chunk.values.get(k));
+			}
+
+			while(!this.nextValues.empty() && min < this.nextValues.peek()){
+				this.nextIndices.pop();
+				this.nextValues.pop();
+			}
+			if(!this.nextValues.empty() && min == this.nextValues.peek()){
+				this.nextIndices.pop();
+				this.nextValues.pop();
+			}
+			for(int k=0; k<chunk.nextValues.size(); k++){
+				this.nextIndices.push(chunk.nextIndices.get(k));
+				this.nextValues.push(chunk.nextValues.get(k));
+			}
+		}
+	}
+
+	/**
+	 * The suffixes of a bucket sorted by the multikey quicksort, either copied to a buffer or in place in the suffix array.
+	 */
+	private static abstract class Suffixes{
+		abstract long get(long i);
+		abstract void set(long i, long suffix);
+	}
+
+	private static class BufferedSuffixes extends Suffixes{
+		private final long[] buffer;
+
+		BufferedSuffixes(long[] buffer){
+			this.buffer = buffer;
+		}
+
+		long get(long i){
+			return this.buffer[(int) i];
+		}
+
+		void set(long i, long suffix){
+			this.buffer[(int) i] = suffix;
+		}
+	}
+
+	private static class MappedSuffixes extends Suffixes{
+		private final SegmentedMemoryMappedLongFile suffixArray;
+		private final long offset;
+
+		MappedSuffixes(SegmentedMemoryMappedLongFile suffixArray, long offset){
+			this.suffixArray = suffixArray;
+			this.offset = offset;
+		}
+
+		long get(long i){
+			return this.suffixArray.getQuick(this.offset + i);
+		}
+
+		void set(long i, long suffix){
+			this.suffixArray.putQuick(this.offset + i, suffix);
+		}
+	}
+
+	/**
+	 * Runs a set of tasks on the shared fork/join pool of this.threads threads.
+	 *
+	 * @param tasks the tasks
+	 *
+	 * @return the results of the tasks in the order of the tasks
+	 */
+	private <T> List<T> invokeAll(List<Callable<T>> tasks){
+		List<T> results = new ArrayList<T>(tasks.size());
+		ForkJoinPool pool = ForkJoinPools.getPool(this.threads);
+		try{
+			for(Future<T> result : pool.invokeAll(tasks)){
+				results.add(result.get());
+			}
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("The construction of the enhanced suffix array was interrupted!", e);
+		}catch(ExecutionException e){
+			throw new IllegalStateException("The construction of the enhanced suffix array failed!", e.getCause());
+		}
+		return results;
+	}
+}
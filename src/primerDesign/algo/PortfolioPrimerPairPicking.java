@@ -0,0 +1,244 @@
+/**
+ *
+ */
+package primerDesign.algo;
+
+import java.util.IdentityHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import primerDesign.dsc.PrimerPairSet;
+import primerDesign.dsc.RestrictionSite;
+import primerDesign.dsc.SequenceRegion;
+import primerDesign.util.ForkJoinPools;
+import primerDesign.util.PrimerSearchParameters;
+
+/**
+ * This class implements a portfolio primer pair set picking, racing several primer pair picking algorithms on the same restriction sites.
+ *
+ * The primer pairs of all sites are enumerated and sorted once, then each strategy picks concurrently on the shared fork/join pools from its own
+ * copies of the sites and of their sequence regions. Refining a sequence region therefore neither affects the other strategies nor the
+ * sites passed to the portfolio. All strategies share the primer pair tables and the lazily computed inter-pair alignments of the scan regions,
+ * each alignment is therefore computed at most once.
+ *
+ * The best primer pair set by weighted score is returned
+ * - as soon as a branch and bound strategy finishes with a non-empty result, this set is optimal and the remaining strategies are cancelled,
+ * - as soon as all strategies finished,
+ * - at the latest PORTFOLIO_DEADLINE milliseconds after the start, all strategies still running are cancelled and return the best set found so far.
+ *
+ * The greedy strategy refines sequence regions as long as no set is found, the portfolio therefore finds a set whenever the greedy picking
+ * does so before the deadline.
+ *
+ * @author Sebastian Frhler
+ *
+ */
+public class PortfolioPrimerPairPicking implements PrimerPairPickingAlgorithm {
+	private boolean printDebugInfo = false;
+	private volatile boolean cancelled = false;
+	private volatile PrimerPairPickingAlgorithm[] running = null; // the strategies of the running race
+
+	/**
+	 * @param printDebugInfo the printDebugInfo to set
+	 */
+	public void setPrintDebugInfo(boolean printDebugInfo) {
+		this.printDebugInfo = printDebugInfo;
+	}
+
+	/* (non-Javadoc)
+	 * @see primerDesign.algo.PrimerPairPickingAlgorithm#pickBestPrimerSet(primerDesign.dsc.RestrictionSite[], primerDesign.util.PrimerSearchParameters)
+	 */
+	public PrimerPairSet pickBestPrimerSet(RestrictionSite[] optimalSites, PrimerSearchParameters searchParams) {
+		return this.pickBestPrimerSet(optimalSites, searchParams, null);
+	}
+
+	/* (non-Javadoc)
+	 * @see primerDesign.algo.PrimerPairPickingAlgorithm#pickBestPrimerSet(primerDesign.dsc.RestrictionSite[], primerDesign.util.PrimerSearchParameters, primerDesign.algo.PrimerPairSetAlignments)
+	 */
+	public PrimerPairSet pickBestPrimerSet(RestrictionSite[] optimalSites, PrimerSearchParameters searchParams, PrimerPairSetAlignments alignments) {
+		try{
+			return this.race(optimalSites, searchParams, alignments);
+		}
+		finally{
+			this.running = null;
+			this.cancelled = false;
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see primerDesign.algo.PrimerPairPickingAlgorithm#cancel()
+	 */
+	public void cancel(){
+		this.cancelled = true;
+		PrimerPairPickingAlgorithm[] strategies = this.running;
+		if(strategies != null) cancel(strategies);
+	}
+
+	/**
+	 * Creates the strategies of a race.
+	 *
+	 * Each race uses new strategy instances, a strategy is cancelled at most once and only during its own picking.
+	 * Subclasses may override this method to race other strategies.
+	 *
+	 * @return the strategies of a race
+	 */
+	protected PrimerPairPickingAlgorithm[] createStrategies(){
+		SimpleGreedyPrimerPairPicking greedy = new SimpleGreedyPrimerPairPicking();
+		greedy.setPrintDebugInfo(this.printDebugInfo);
+		return new PrimerPairPickingAlgorithm[]{greedy, new BranchAndBoundPrimerPairPicking(), new SimulatedAnnealingPrimerPairPicking(), new GAPrimerPairPicking()};
+	}
+
+	/**
+	 * Races the strategies on a set of restriction sites.
+	 *
+	 * @param optimalSites the restriction sites
+	 * @param searchParams the 3PD search parameters
+	 * @param alignments the alignments of the scan regions of 'optimalSites' or of a previous set of restriction sites, null if there are none
+	 *
+	 * @return the best primer pair set found by any strategy or null if there is none
+	 */
+	private PrimerPairSet race(RestrictionSite[] optimalSites, final PrimerSearchParameters searchParams, PrimerPairSetAlignments alignments){
+		if(optimalSites.length < 2) throw new IllegalArgumentException("The list of optimal restriction sites must contain >= 2 elements!");
+
+		long start = System.currentTimeMillis();
+		long deadline = (Long.MAX_VALUE - start > searchParams.getPORTFOLIO_DEADLINE()) ? start + searchParams.getPORTFOLIO_DEADLINE() : Long.MAX_VALUE;
+
+		// the primer pair tables are enumerated and sorted before the race, sorting sorted tables does not modify them
+		final RestrictionSite[] sites = optimalSites.clone();
+		for(int i=0; i<sites.length; i++){
+			if(!sites[i].hasEnumeratedPrimerPairs()) sites[i].enumeratePrimerPairs();
+			sites[i].sortPrimerPairs();
+		}
+		// all strategies index the shared alignments by the order of the greedy picking, which does not reorder these sites
+		SimpleGreedyPrimerPairPicking.orderSites(sites);
+		final PrimerPairSetAlignments sharedAlignments = (alignments == null) ? new PrimerPairSetAlignments(sites, searchParams) : alignments.deriveFor(sites);
+
+		final PrimerPairPickingAlgorithm[] strategies = this.createStrategies();
+		this.running = strategies;
+		boolean stopped = this.cancelled;
+		if(stopped) cancel(strategies);
+
+		CompletionService<PrimerPairSet> completion = new ExecutorCompletionService<PrimerPairSet>(ForkJoinPools.getPool(strategies.length));
+		PrimerPairSet bestSet = null;
+		double bestScore = Double.MAX_VALUE;
+		RuntimeException failure = null;
+		try{
+			final Future<?>[] futures = new Future<?>[strategies.length];
+			for(int i=0; i<strategies.length; i++){
+				final PrimerPairPickingAlgorithm strategy = strategies[i];
+				final RestrictionSite[] strategySites = copySites(sites);
+				futures[i] = completion.submit(new Callable<PrimerPairSet>(){
+					public PrimerPairSet call(){
+						return strategy.pickBestPrimerSet(strategySites, searchParams, sharedAlignments);
+					}
+				});
+			}
+
+			Future<PrimerPairSet> future;
+			PrimerPairSet result;
+			double score;
+			for(int pending=strategies.length; pending>0; pending--){
+				if(stopped) future = completion.take();
+				else{
+					long remaining = deadline - System.currentTimeMillis();
+					future = (remaining > 0) ? completion.poll(remaining, TimeUnit.MILLISECONDS) : null;
+					if(future == null){
+						if(this.printDebugInfo) System.err.println("Portfolio: deadline reached after " + (System.currentTimeMillis() - start) + "ms");
+						stopped = true;
+						cancel(strategies);
+						pending++;
+						continue;
+					}
+				}
+
+				try{
+					result = future.get();
+				}
+				catch(ExecutionException e){
+					// the remaining strategies may still succeed, the failure is reported iff none does
+					if(failure == null) failure = (e.getCause() instanceof RuntimeException) ? (RuntimeException) e.getCause() : new RuntimeException(e.getCause());
+					continue;
+				}
+				if(result == null) continue;
+
+				score = SimpleGreedyPrimerPairPicking.weightedScore(result.getHomogenityScore(), result.getAvgDistOptPrimerPair(), result.getMaxPairAlignScore(), result.getMaxPairAlignEndScore(), searchParams);
+				int index = indexOf(futures, future);
+				if(this.printDebugInfo) System.err.println("Portfolio: " + strategies[index].getClass().getSimpleName() + " finished after " + (System.currentTimeMillis() - start) + "ms, score: " + score);
+				if(score < bestScore){
+					bestScore = score;
+					bestSet = result;
+				}
+				if(!stopped && strategies[index] instanceof BranchAndBoundPrimerPairPicking && ((BranchAndBoundPrimerPairPicking) strategies[index]).isOptimal()){
+					stopped = true;
+					cancel(strategies);
+				}
+			}
+		}
+		catch(InterruptedException e){
+			// the running strategies are cancelled and finish in the background
+			cancel(strategies);
+			Thread.currentThread().interrupt();
+		}
+
+		if(bestSet == null && failure != null) throw failure;
+		return bestSet;
+	}
+
+	/**
+	 * Copies restriction sites and their sequence regions for a strategy.
+	 *
+	 * Strategies may reorder their site arrays, refine sequence regions and scan the alternative restriction sites of a region,
+	 * each strategy therefore picks from copies of its own. The copies share the primers and the primer pair tables of 'sites'.
+	 *
+	 * @param sites the restriction sites to copy
+	 *
+	 * @return the copies of 'sites', sites of a common sequence region are copied to a common sequence region
+	 */
+	private static RestrictionSite[] copySites(RestrictionSite[] sites){
+		IdentityHashMap<SequenceRegion, SequenceRegion> regions = new IdentityHashMap<SequenceRegion, SequenceRegion>();
+		RestrictionSite[] result = new RestrictionSite[sites.length];
+		SequenceRegion region;
+		int index;
+		for(int i=0; i<sites.length; i++){
+			if(sites[i].getSequenceRegion() == null){
+				result[i] = new RestrictionSite(sites[i], null);
+				continue;
+			}
+			region = regions.get(sites[i].getSequenceRegion());
+			if(region == null){
+				region = new SequenceRegion(sites[i].getSequenceRegion());
+				regions.put(sites[i].getSequenceRegion(), region);
+			}
+			index = sites[i].getSequenceRegion().getRestricionSiteIndex(sites[i]);
+			result[i] = (index >= 0) ? region.getRestrictionSite(index) : new RestrictionSite(sites[i], region);
+		}
+		return result;
+	}
+
+	/**
+	 * Cancels a set of strategies.
+	 *
+	 * @param strategies the strategies to cancel
+	 */
+	private static void cancel(PrimerPairPickingAlgorithm[] strategies){
+		for(int i=0; i<strategies.length; i++) strategies[i].cancel();
+	}
+
+	/**
+	 * Returns the index of a future in an array of futures.
+	 *
+	 * @param futures the futures
+	 * @param future the future to find
+	 *
+	 * @return the index of 'future' in 'futures', -1 if it is not contained
+	 */
+	private static int indexOf(Future<?>[] futures, Future<?> future){
+		for(int i=0; i<futures.length; i++){
+			if(futures[i] == future) return i;
+		}
+		return -1;
+	}
+}
@@ -32,5 +32,22 @@ public interface PrimerMeltingTempCalculation {
 	 * @return the melting temperature of primer 'primer'
 	 */
 	public abstract double computeMonoAndDivalentCationCorrectedTM(String primr, double primerConcentration, double cationConcentration, double divalentCationConcentration, double dNTPConcentration);
+	
+	/**
+	 * This method specifies the melting temperature calculation for a window of a dna sequence using concentration corrections.
+	 * 
+	 * The window is evaluated in place, no primer string has to be created for it.
+	 * 
+	 * @param sequence the sequence containing the primer
+	 * @param start the start of the primer within 'sequence'
+	 * @param length the length of the primer
+	 * @param primerConcentration the concentration of the primer
+	 * @param cationConcentration the monovalent cation concentration - usually Na+
+	 * @param divalentCationConcentration the divalent cation concentration - usually Mg2+
+	 * @param dNTPConcentration the dNTP concentration
+	 * 
+	 * @return the melting temperature of the primer sequence[start..start+length-1]
+	 */
+	public abstract double computeMonoAndDivalentCationCorrectedTM(char[] sequence, int start, int length, double primerConcentration, double cationConcentration, double divalentCationConcentration, double dNTPConcentration);
 
 }
\ No newline at end of file
@@ -1,18 +1,8 @@
 package primerDesign.algo;
 
-import java.util.Iterator;
-import java.util.TreeSet;
-
-import org.biojava.bio.molbio.RestrictionEnzyme;
-import org.biojava.bio.molbio.RestrictionEnzymeManager;
-import org.biojava.bio.molbio.RestrictionMapper;
-import org.biojava.bio.seq.DNATools;
-import org.biojava.bio.seq.Sequence;
-import org.biojava.bio.symbol.IllegalSymbolException;
-import org.biojava.utils.SimpleThreadPool;
-
 import primerDesign.dsc.Primer;
 import primerDesign.dsc.PrimerTypes;
+import primerDesign.dsc.RestrictionSitePositions;
 import primerDesign.dsc.indexStructures.IndexHit;
 import primerDesign.dsc.indexStructures.IndexHitImpl;
 import primerDesign.util.Constants;
@@ -34,22 +24,22 @@ import cern.colt.list.ObjectArrayList;
  *
  */
 public class PrimerMispriming {
-	private static RestrictionMapper mapper = new RestrictionMapper(new SimpleThreadPool(Constants.MAX_NUM_RESTRICTION_MAPPER_THREADS, true));
-	
 	/**
 	 * Computes whether a false positive match can produce an amplicon which is capable of disturbing qPCR.
 	 * 
 	 * All false positive amplicons of length > Constants.SAFE_FALSE_POSITIVE_AMPLICON_LENGTH are assumed to
-	 * have no influence on the qPCR experiment
+	 * have no influence on the qPCR experiment.
+	 * The restriction sites close to each hit are looked up in the precomputed restriction site positions of the hit's contig,
+	 * 'sitePositions' should therefore be shared by all checks against the same background sequence.
 	 * 
 	 * @param primer the primer to check
-	 * @param enzyme the restriction enzyme
+	 * @param sitePositions the restriction site positions of the restriction enzyme on the contigs of the background sequence
 	 * @param hits a list of hits of primer primer in the background sequence
 	 * @param searchParams the primer search parameters
 	 * 
 	 * @return true iff length of FP amplicon is > Threshold (s.o.)
 	 */
-	public static boolean hasSafeDistanceToNextRSS(Primer primer, RestrictionEnzyme enzyme, ObjectArrayList hits, PrimerSearchParameters searchParams){
+	public static boolean hasSafeDistanceToNextRSS(Primer primer, RestrictionSitePositions sitePositions, ObjectArrayList hits, PrimerSearchParameters searchParams){
 		int offset = searchParams.getSAFE_FALSE_POSITIVE_AMPLICON_LENGTH();
 		//Integer[] positions = backgroundIndex.searchMatchPositionsInIndex(seq);
 		
@@ -83,12 +73,7 @@ public class PrimerMispriming {
 			positions = hits;
 		}
 		
-		synchronized(mapper){
-			//mapper.addEnzyme(enzyme);
-			RestrictionEnzymeManager.register(enzyme, new TreeSet());
-			mapper.clearEnzymes();
-			mapper.addEnzyme(enzyme);
-		}
+		int furtherSites;
 		
 		// if no mispriming can be found XOR one 'mispriming' (original primer match!) can be found and the index includes the primer scan region 
 		//if(PrimerMispriming.positions.size() == Constants.MAX_PRIMER_MISPRIMING_CUTOFF && !backgroundIndex.includesScanRegion()) return true;
@@ -110,7 +95,6 @@ public class PrimerMispriming {
 		double tm;
 		int start;
 		int end;
-		String scanRegion;
 		int position;
 		for(int i=0; i< positions.size(); i++){
 			//truePositivePrimingFound = false;
@@ -173,12 +157,10 @@ public class PrimerMispriming {
 			if(mispriming.isForwardHit()){
 				start = Math.max(0, position + searchParams.getPRIMER_END_MISMATCH_SCAN_LENGTH() - primer.getLength());
 				end = Math.min(start + offset, mispriming.getContigLength());
-				scanRegion = mispriming.getContig().getSubsequence(start, end);
 			}
 			else{
 				end = Math.min(position + searchParams.getPRIMER_END_MISMATCH_SCAN_LENGTH(), mispriming.getContigLength()); 
 				start = Math.max(0, end - offset);
-				scanRegion = mispriming.getContig().getSubsequence(start, end);
 			}
 			//int position = (Integer) PrimerMispriming.positions.get(i);
 			//start = Math.max(0, position - offset);
@@ -205,20 +187,8 @@ public class PrimerMispriming {
 //			if(primerType.equals(PrimerTypes.forwardPrimer)) scanRegion = backgroundIndex.getSequence().substring(start, start + length);
 //			else if(primerType.equals(PrimerTypes.reversePrimer)) scanRegion = backgroundIndex.getSequence().substring(start - length, start);
 //			else throw new IllegalArgumentException("Unsupported primer type!");
-			Sequence dnaSeq = null;
-			Sequence newSeq;
-			try{
-				dnaSeq = DNATools.createDNASequence(scanRegion, "");
-			}catch(IllegalSymbolException e){
-				e.printStackTrace();
-			}
-			synchronized (mapper) {
-				newSeq = mapper.annotate(dnaSeq);
-			}
-			
-			Iterator iter = newSeq.features();
 			// skip MAX_PRIMER_MISPRIMING_CUTOFF 'acceptable' misprimings
-			for(int j=0; j < searchParams.getMAX_PRIMER_MISPRIMING_CUTOFF(); j++)	iter.next();
+			furtherSites = sitePositions.countSites(mispriming.getContig(), start, end) - searchParams.getMAX_PRIMER_MISPRIMING_CUTOFF();
 			// check remaining misprimings
 //			if(iter.hasNext() &! backgroundIndex.includesScanRegion()){
 //				// if mispriming scan region does not include primer scan region, NO mispriming match is allowed but at least one was found
@@ -235,12 +205,11 @@ public class PrimerMispriming {
 //				}
 //			}
 			//if(searchParams.isPRINT_DEBUG_LOG()) 
-				//System.err.print("Mispriming - forward?: " + mispriming.isForwardHit() + " RSSs found in vicinity: " + newSeq.countFeatures());
+				//System.err.print("Mispriming - forward?: " + mispriming.isForwardHit() + " RSSs found in vicinity: " + (furtherSites + searchParams.getMAX_PRIMER_MISPRIMING_CUTOFF()));
 			
-			if(iter.hasNext() && !truePositivePrimingFound){
+			if(furtherSites > 0 && !truePositivePrimingFound){
 				truePositivePrimingFound = true;
-				iter.next();
-				if(iter.hasNext()){
+				if(furtherSites > 1){
 					//System.err.println(" vote: UNSAFE");
 					if(searchParams.isPRINT_DEBUG_LOG()){
 						System.err.println("\tUNSAFE Mispriming(s) at " + mispriming.getContigName() + " at position: " + position);
@@ -254,7 +223,7 @@ public class PrimerMispriming {
 					//System.err.println();
 				}
 			}
-			else if(iter.hasNext()){
+			else if(furtherSites > 0){
 				//System.err.println(" vote: UNSAFE");
 				if(searchParams.isPRINT_DEBUG_LOG()){
 					System.err.println("\tUNSAFE Mispriming(s) at " + mispriming.getContigName() + " at position: " + position);
@@ -5,7 +5,7 @@ package primerDesign.algo;
 
 import primerDesign.dsc.PrimerPair;
 import primerDesign.dsc.PrimerPairSet;
-import cern.colt.list.ObjectArrayList;
+import primerDesign.dsc.PrimerPairTable;
 
 /**
  * A class for iterating over a list of primer pairs in a sorted manner!
@@ -16,7 +16,7 @@ import cern.colt.list.ObjectArrayList;
  *
  */
 public class PrimerPairIterator {
-	private ObjectArrayList pairs;
+	private PrimerPairTable pairs;
 	private PrimerPairSet pairSet;
 	private int low;
 	private int high;
@@ -26,10 +26,10 @@ public class PrimerPairIterator {
 	/**
 	 * Initializes a primer pair iterator.
 	 * 
-	 * @param pairs the primer pairs to iterate over
+	 * @param pairs the primer pairs to iterate over, sorted by increasing distance to the optimal primer pair
 	 * @param pairSet the primer pair to compare and order each element in 'pairs' with
 	 */
-	public PrimerPairIterator(ObjectArrayList pairs, PrimerPairSet pairSet){
+	public PrimerPairIterator(PrimerPairTable pairs, PrimerPairSet pairSet){
 		this.pairs = pairs;
 		this.pairSet = pairSet;
 		this.isInit = false;
@@ -41,40 +41,43 @@ public class PrimerPairIterator {
 	 * @return the next primer pair w.r.t distance
 	 */
 	public PrimerPair getNext(){
+		return this.pairs.getPrimerPair(this.nextRow());
+	}
+	
+	/**
+	 * Returns the row of the next primer pair w.r.t distance.
+	 * 
+	 * @return the row of the next primer pair w.r.t distance in the primer pair table
+	 */
+	public int nextRow(){
 		if(!this.isInit){
-			// find pair with d(pairs(x), pair) = argmin
+			// find the first pair with d(pairs(x), pair) >= the average distance of the primer pair set, the last pair if there is none
 			this.low = 0;
-			this.high = pairs.size() -1;
-			this.current = (this.high + this.low)/2;
-			while(this.low != this.high){
-				if(((PrimerPair)pairs.getQuick(current)).getDistanceToOptimalPrimerPair() < pairSet.getAvgDistOptPrimerPair()){
-					if(this.low == this.current) this.current++;
-					this.low = this.current;
-					this.current = Math.round((1.0F + this.high + this.low)/2);
-				}
-				else{
-					if(this.high == this.current) this.current--;
-					this.high = this.current;
-					this.current = Math.round((1.0F + this.high + this.low)/2);
-				}
+			this.high = pairs.size() - 1;
+			while(this.low < this.high){
+				this.current = (this.low + this.high) >>> 1;
+				if(pairs.getDistanceToOptimalPrimerPair(this.current) < pairSet.getAvgDistOptPrimerPair()) this.low = this.current + 1;
+				else this.high = this.current;
 			}
+			this.current = this.low;
 			this.low = this.current - 1;
 			this.high = this.current +1;
 			this.isInit = true;
-			return ((PrimerPair)this.pairs.getQuick(this.current));
+			return this.current;
 		}
-		else if(this.low < 0 && this.high < this.pairs.size()) return ((PrimerPair) this.pairs.getQuick(this.high++));
-		else if(this.low >= 0 && this.high >= this.pairs.size()) return ((PrimerPair) this.pairs.getQuick(this.low--));
+		else if(this.low < 0 && this.high < this.pairs.size()) return this.high++;
+		else if(this.low >= 0 && this.high >= this.pairs.size()) return this.low--;
 		else if(this.low < 0 && this.high >= this.pairs.size()) throw new IllegalStateException("No more pair to output - complete list scanned!");
-		else if(Math.abs(((PrimerPair) this.pairs.getQuick(this.low)).getDistanceToOptimalPrimerPair() - this.pairSet.getAvgDistOptPrimerPair()) < 		Math.abs(((PrimerPair) this.pairs.getQuick(this.high)).getDistanceToOptimalPrimerPair() - this.pairSet.getAvgDistOptPrimerPair())){
-			return ((PrimerPair) this.pairs.getQuick(this.low--));
+		else if(Math.abs(this.pairs.getDistanceToOptimalPrimerPair(this.low) - this.pairSet.getAvgDistOptPrimerPair()) < 		Math.abs(this.pairs.getDistanceToOptimalPrimerPair(this.high) - this.pairSet.getAvgDistOptPrimerPair())){
+			return this.low--;
 		}
 		else{
-			return ((PrimerPair) this.pairs.getQuick(this.high++));
+			return this.high++;
 		}
 	}
 	
 	public boolean hasNext(){
+		if(!this.isInit) return this.pairs.size() > 0;
 		return this.low >= 0 || this.high < this.pairs.size();
 	}
 }
@@ -0,0 +1,51 @@
+/**
+ *
+ */
+package primerDesign.algo;
+
+import primerDesign.dsc.PrimerPairSet;
+import primerDesign.dsc.RestrictionSite;
+import primerDesign.util.PrimerSearchParameters;
+
+/**
+ * This interface specifies the picking procedure of the best primer pair set from a set of restriction sites with valid
+ * forward, reverse and hybridization probe primers.
+ *
+ * @author Sebastian Frhler
+ *
+ */
+public interface PrimerPairPickingAlgorithm {
+	/**
+	 * This method picks a set of most-homogenous primer pairs from a list of restriction sites with associated valid primers.
+	 *
+	 * The set contains exactly one valid primer pair per restriction site, the pairs are valid w.r.t. each other and
+	 * the set is supposed to be most-homogenous w.r.t. the search parameters.
+	 *
+	 * @param optimalSites the restriction sites to pick one primer pair each from
+	 * @param searchParams the 3PD search parameters
+	 *
+	 * @return the best primer pair set according to the primer search parameters specified or null if none is found
+	 */
+	public PrimerPairSet pickBestPrimerSet(RestrictionSite[] optimalSites, PrimerSearchParameters searchParams);
+	
+	/**
+	 * This method picks a set of most-homogenous primer pairs from a list of restriction sites with associated valid primers.
+	 * 
+	 * The inter-pair alignments of scan regions contained in 'alignments' are shared with the picking, this allows several
+	 * pickings to compute each alignment once.
+	 * 
+	 * @param optimalSites the restriction sites to pick one primer pair each from
+	 * @param searchParams the 3PD search parameters
+	 * @param alignments the alignments of the scan regions of 'optimalSites' or of a previous set of restriction sites, null if there are none
+	 * 
+	 * @return the best primer pair set according to the primer search parameters specified or null if none is found
+	 */
+	public PrimerPairSet pickBestPrimerSet(RestrictionSite[] optimalSites, PrimerSearchParameters searchParams, PrimerPairSetAlignments alignments);
+	
+	/**
+	 * Stops the running picking as soon as possible, the picking then returns the best primer pair set found so far.
+	 * 
+	 * If no picking is running, the next picking is stopped.
+	 */
+	public void cancel();
+}
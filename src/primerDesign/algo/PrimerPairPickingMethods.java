@@ -0,0 +1,48 @@
+/**
+ *
+ */
+package primerDesign.algo;
+
+/**
+ * Enumerates the primer pair set picking algorithms.
+ *
+ * Each picking algorithm keeps the state of its running picking (e.g. whether it is cancelled), a method therefore creates
+ * a new picking algorithm per picking and may be shared by concurrent primer searches.
+ *
+ * @author Sebastian Frhler
+ *
+ */
+public enum PrimerPairPickingMethods {
+	simpleGreedy{
+		public PrimerPairPickingAlgorithm createPicker(){
+			return new SimpleGreedyPrimerPairPicking();
+		}
+	},
+	branchAndBound{
+		public PrimerPairPickingAlgorithm createPicker(){
+			return new BranchAndBoundPrimerPairPicking();
+		}
+	},
+	geneticAlgorithm{
+		public PrimerPairPickingAlgorithm createPicker(){
+			return new GAPrimerPairPicking();
+		}
+	},
+	simulatedAnnealing{
+		public PrimerPairPickingAlgorithm createPicker(){
+			return new SimulatedAnnealingPrimerPairPicking();
+		}
+	},
+	portfolio{
+		public PrimerPairPickingAlgorithm createPicker(){
+			return new PortfolioPrimerPairPicking();
+		}
+	};
+
+	/**
+	 * Creates a new picking algorithm of this method.
+	 *
+	 * @return a new picking algorithm of this method
+	 */
+	public abstract PrimerPairPickingAlgorithm createPicker();
+}
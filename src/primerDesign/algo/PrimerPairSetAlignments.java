@@ -3,8 +3,13 @@
  */
 package primerDesign.algo;
 
+import java.util.HashMap;
+
 import primerDesign.dsc.AlignmentType;
 import primerDesign.dsc.PrimerAlignmentScores;
+import primerDesign.dsc.PrimerTypes;
+import primerDesign.dsc.RestrictionSite;
+import primerDesign.dsc.ScanRegion;
 import primerDesign.dsc.SequenceRegionAlignment;
 import primerDesign.util.PrimerSearchParameters;
 
@@ -13,18 +18,24 @@ import primerDesign.util.PrimerSearchParameters;
  * 
  * For each primer pair combination, the forward primers and the forward primers and the probes are aligned.
  * 
+ * The alignments of each pair of scan regions are computed lazily on first access, at most once. Once all scan regions are added,
+ * instances may be shared by any number of threads. Alignments of unchanged scan region pairs are shared with derived instances,
+ * e.g. after refining a sequence region.
+ * 
  * @author Sebastian Frhler
  *
  */
 public class PrimerPairSetAlignments {
-	Object[][] forward1Forward2;
-	Object[][] forward1Probe2;
-	Object[][] forward2Probe1;
+	RegionPairAlignments[][] alignments; // the alignments of regions i < j, stored at [i][j]
 	
-	Object[] forwardSequences;
+	char[][] forwardSequences;
 	int numFwSeq;
-	Object[] probeSequences;
+	char[][] probeSequences;
 	int numPrSeq;
+	ScanRegion[] forwardRegions; // the coordinates of the forward scan regions, null iff unknown
+	ScanRegion[] probeRegions; // the coordinates of the probe scan regions, null iff unknown
+	
+	PrimerSearchParameters searchParams;
 	
 	/**
 	 * Initializes a primer pairs alignment.
@@ -32,54 +43,120 @@ public class PrimerPairSetAlignments {
 	 * @param elements the number of elements
 	 */
 	public PrimerPairSetAlignments(int elements){
-		this.forward1Forward2 = new Object[elements][elements];
-		this.forward1Probe2 = new Object[elements][elements];
-		this.forward2Probe1 = new Object[elements][elements];
+		this.alignments = new RegionPairAlignments[elements][elements];
 		
-		this.forwardSequences = new Object[elements];
-		this.probeSequences = new Object[elements];
+		this.forwardSequences = new char[elements][];
+		this.probeSequences = new char[elements][];
+		this.forwardRegions = new ScanRegion[elements];
+		this.probeRegions = new ScanRegion[elements];
 		
  		this.numFwSeq = 0;
 		this.numPrSeq = 0;
 	}
 	
+	/**
+	 * Initializes a primer pairs alignment of the scan regions of a set of restriction sites.
+	 * 
+	 * @param sites the restriction sites
+	 * @param searchParams the 3PD search parameters
+	 */
+	public PrimerPairSetAlignments(RestrictionSite[] sites, PrimerSearchParameters searchParams){
+		this(sites.length);
+		for(int i=0; i<sites.length; i++){
+			this.addScanRegion(sites[i].getForwardScanSequence(), sites[i].getProbeScanSequence(), searchParams);
+			this.forwardRegions[i] = sites[i].getScanRegion(PrimerTypes.forwardPrimer);
+			this.probeRegions[i] = sites[i].getScanRegion(PrimerTypes.hybridizationProbe);
+		}
+	}
+	
 	/**
 	 * Initializes a primer pairs alignment.
 	 * 
 	 * @param other the primer pair set to initialize this set with
 	 */
 	public PrimerPairSetAlignments(PrimerPairSetAlignments other){
-		this.forward1Forward2 = other.forward1Forward2.clone();
-		this.forward1Probe2 = other.forward1Probe2.clone();
-		this.forward2Probe1 = other.forward2Probe1.clone();
+		this.alignments = new RegionPairAlignments[other.alignments.length][];
+		for(int i=0; i<this.alignments.length; i++) this.alignments[i] = other.alignments[i].clone();
 		
 		this.forwardSequences = other.forwardSequences.clone();
 		this.probeSequences = other.probeSequences.clone();
+		this.forwardRegions = other.forwardRegions.clone();
+		this.probeRegions = other.probeRegions.clone();
 		
 		this.numFwSeq = other.numFwSeq;
 		this.numPrSeq = other.numPrSeq;
+		this.searchParams = other.searchParams;
+	}
+	
+	/**
+	 * Returns a primer pairs alignment of the scan regions of a set of restriction sites.
+	 * 
+	 * Scan regions are identified by their coordinates (contig, start, end and primer type), independent of their index. Copies of a
+	 * restriction site and sites cut anew at the same coordinates, e.g. by refining a sequence region, are therefore identified with it.
+	 * Scan regions of unknown coordinates are never identified. The alignments of each pair of scan regions contained in this alignment
+	 * in the same relative order are shared with the result. Replacing a site and reordering the sites stably keeps the relative order of all other sites,
+	 * only the alignments of the replaced site are then computed again.
+	 * 
+	 * @param sites the restriction sites
+	 * 
+	 * @return a primer pairs alignment of the scan regions of 'sites'
+	 */
+	public PrimerPairSetAlignments deriveFor(RestrictionSite[] sites){
+		PrimerPairSetAlignments result = new PrimerPairSetAlignments(sites, this.searchParams);
+		HashMap<ScanRegion, Integer> regions = new HashMap<ScanRegion, Integer>();
+		for(int i=0; i<this.numFwSeq; i++) if(this.forwardRegions[i] != null) regions.put(this.forwardRegions[i], i);
+		
+		// the index of the scan regions of each site in this alignment, -1 iff they are not contained
+		int[] index = new int[sites.length];
+		ScanRegion region;
+		Integer previous;
+		for(int i=0; i<sites.length; i++){
+			region = sites[i].getScanRegion(PrimerTypes.forwardPrimer);
+			previous = (region == null) ? null : regions.get(region);
+			index[i] = (previous != null && this.hasScanRegion(previous, sites[i])) ? previous : -1;
+		}
+		for(int i=0; i<sites.length; i++){
+			if(index[i] < 0) continue;
+			for(int j=i+1; j<sites.length; j++){
+				// the alignments of regions i < j are directed, they are shared iff the regions keep their order
+				if(index[j] > index[i]) result.alignments[i][j] = this.alignments[index[i]][index[j]];
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Checks whether a scan region of this alignment belongs to a restriction site.
+	 * 
+	 * @param index the index of the scan region
+	 * @param site the restriction site
+	 * 
+	 * @return true iff scan region 'index' of this alignment has the coordinates of the scan regions of 'site'
+	 */
+	private boolean hasScanRegion(int index, RestrictionSite site){
+		ScanRegion forward = site.getScanRegion(PrimerTypes.forwardPrimer);
+		ScanRegion probe = site.getScanRegion(PrimerTypes.hybridizationProbe);
+		// probes are scanned for iff TaqMan probes are picked, their coordinates are unknown otherwise
+		return forward != null && forward.equals(this.forwardRegions[index]) && ((probe == null) ? this.probeRegions[index] == null && site.getProbeScanSequence() == this.probeSequences[index] : probe.equals(this.probeRegions[index]));
 	}
 	
 	/**
 	 * Adds a scan regions to the alignment set.
 	 * 
+	 * The coordinates of the scan region are unknown, it is therefore not shared with derived alignments.
+	 * 
 	 * @param scanRegionForward the forward scan region to add
 	 * @param scanRegionProbe the probe scan region to add
 	 * @param searchParams the 3PD search parameters
 	 */
 	public void addScanRegion(char[] scanRegionForward, char[] scanRegionProbe, PrimerSearchParameters searchParams){
-		char[] current;
 		assert(numFwSeq == numPrSeq);
-		if(numFwSeq > 0){
-			for(int i=0; i<numFwSeq; i++){
-				current = (char[])forwardSequences[i];
-				this.forward1Forward2[i][numFwSeq] = SequenceRegionAligner.alignSequenceRegions(current, scanRegionForward, searchParams.getA_t_basepair_score(), searchParams.getG_c_basepair_score());
-				if(searchParams.isPickTaqManProbe()){
-					this.forward1Probe2[i][numFwSeq] = SequenceRegionAligner.alignSequenceRegions(current, scanRegionProbe, searchParams.getA_t_basepair_score(), searchParams.getG_c_basepair_score());
-					this.forward2Probe1[i][numFwSeq] = SequenceRegionAligner.alignSequenceRegions(scanRegionForward, (char[])probeSequences[i], searchParams.getA_t_basepair_score(), searchParams.getG_c_basepair_score());
-				}
-			}
+		this.searchParams = searchParams;
+		for(int i=0; i<numFwSeq; i++){
+			this.alignments[i][numFwSeq] = new RegionPairAlignments();
 		}
+		this.forwardRegions[numFwSeq] = null;
+		this.probeRegions[numPrSeq] = null;
 		this.forwardSequences[numFwSeq++] = scanRegionForward;
 		this.probeSequences[numPrSeq++] = scanRegionProbe;
 	}
@@ -89,6 +166,21 @@ public class PrimerPairSetAlignments {
 		this.numPrSeq--;
 	}
 	
+	/**
+	 * Returns the number of scan region pairs whose alignments are computed.
+	 * 
+	 * @return the number of scan region pairs whose alignments are computed
+	 */
+	public int getNumberOfComputedRegionPairs(){
+		int result = 0;
+		for(int i=0; i<this.numFwSeq; i++){
+			for(int j=i+1; j<this.numFwSeq; j++){
+				if(this.alignments[i][j].isComputed()) result++;
+			}
+		}
+		return result;
+	}
+	
 	/**
 	 * Returns a specific sub-alignment.
 	 * 
@@ -105,15 +197,55 @@ public class PrimerPairSetAlignments {
 	public PrimerAlignmentScores getAlignment(int regionIndex1, int regionPos1, int regionLength1, int regionIndex2, int regionPos2, int regionLength2, Enum<AlignmentType> type){
 		if(regionIndex2 < regionIndex1) throw new IllegalArgumentException("Index 1 must be < index 2!");
 		if(regionIndex1 >= numFwSeq || regionIndex2 >= numFwSeq || regionIndex1 >= numPrSeq || regionIndex2 >= numPrSeq) throw new ArrayIndexOutOfBoundsException();
+		RegionPairAlignments pairAlignments = this.alignments[regionIndex1][regionIndex2];
+		if(!pairAlignments.isComputed()) pairAlignments.compute(this.forwardSequences[regionIndex1], this.probeSequences[regionIndex1], this.forwardSequences[regionIndex2], this.probeSequences[regionIndex2], this.searchParams);
+		
 		if(type.equals(AlignmentType.forward1Forward2)){
-			return ((SequenceRegionAlignment)this.forward1Forward2[regionIndex1][regionIndex2]).getGlobalAlignmentValues(regionPos1, regionLength1, regionPos2, regionLength2);
+			return pairAlignments.forward1Forward2.getGlobalAlignmentValues(regionPos1, regionLength1, regionPos2, regionLength2);
 		}
 		else if(type.equals(AlignmentType.forward1Probe2)){
-			return ((SequenceRegionAlignment)this.forward1Probe2[regionIndex1][regionIndex2]).getGlobalAlignmentValues(regionPos1, regionLength1, regionPos2, regionLength2);
+			return pairAlignments.forward1Probe2.getGlobalAlignmentValues(regionPos1, regionLength1, regionPos2, regionLength2);
 		}
 		else if(type.equals(AlignmentType.forward2Probe1)){
-			return ((SequenceRegionAlignment)this.forward2Probe1[regionIndex1][regionIndex2]).getGlobalAlignmentValues(regionPos1, regionLength1, regionPos2, regionLength2);
+			return pairAlignments.forward2Probe1.getGlobalAlignmentValues(regionPos1, regionLength1, regionPos2, regionLength2);
 		}
 		else throw new IllegalArgumentException("Unsupported alignment type");
 	}
+	
+	/**
+	 * The alignments of a pair of scan regions, computed at most once.
+	 * 
+	 * @author Sebastian Frhler
+	 *
+	 */
+	static class RegionPairAlignments{
+		private SequenceRegionAlignment forward1Forward2;
+		private SequenceRegionAlignment forward1Probe2;
+		private SequenceRegionAlignment forward2Probe1;
+		private volatile boolean computed = false;
+		
+		boolean isComputed(){
+			return this.computed;
+		}
+		
+		/**
+		 * Computes the alignments of a pair of scan regions unless they are computed already.
+		 * 
+		 * @param forward1 the forward scan region 1
+		 * @param probe1 the probe scan region 1
+		 * @param forward2 the forward scan region 2
+		 * @param probe2 the probe scan region 2
+		 * @param searchParams the 3PD search parameters
+		 */
+		synchronized void compute(char[] forward1, char[] probe1, char[] forward2, char[] probe2, PrimerSearchParameters searchParams){
+			if(this.computed) return;
+			this.forward1Forward2 = SequenceRegionAligner.alignSequenceRegions(forward1, forward2, searchParams.getA_t_basepair_score(), searchParams.getG_c_basepair_score());
+			if(searchParams.isPickTaqManProbe()){
+				this.forward1Probe2 = SequenceRegionAligner.alignSequenceRegions(forward1, probe2, searchParams.getA_t_basepair_score(), searchParams.getG_c_basepair_score());
+				this.forward2Probe1 = SequenceRegionAligner.alignSequenceRegions(forward2, probe1, searchParams.getA_t_basepair_score(), searchParams.getG_c_basepair_score());
+			}
+			// the volatile write publishes the alignments to all threads
+			this.computed = true;
+		}
+	}
 }
@@ -2,61 +2,64 @@ package primerDesign.algo;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
-import java.util.TreeSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.biojava.bio.molbio.RestrictionEnzyme;
-import org.biojava.bio.molbio.RestrictionEnzymeManager;
-import org.biojava.bio.molbio.RestrictionMapper;
 import org.biojava.bio.seq.DNATools;
-import org.biojava.bio.seq.Sequence;
-import org.biojava.bio.symbol.IllegalSymbolException;
-import org.biojava.utils.SimpleThreadPool;
 
 import primerDesign.dsc.Primer;
-import primerDesign.dsc.PrimerAcceptanceLevel;
 import primerDesign.dsc.PrimerAlignmentScores;
+import primerDesign.dsc.PrimerCandidateTable;
 import primerDesign.dsc.PrimerPairSet;
 import primerDesign.dsc.PrimerSearchStatistics;
 import primerDesign.dsc.PrimerTypes;
 import primerDesign.dsc.RestrictionSite;
-import primerDesign.dsc.SequenceRegionAlignment;
+import primerDesign.dsc.ScanRegion;
 import primerDesign.dsc.indexStructures.TargetOrganisms;
 import primerDesign.dsc.indexStructures.primerMisprimingCheck.PrimerMisprimingCheck;
 import primerDesign.dsc.indexStructures.primerMisprimingCheck.PrimerMisprimingCheckDeserializer;
 import primerDesign.util.Constants;
 import primerDesign.util.DuplicateUseOfRestrictionSiteException;
 import primerDesign.util.EmptyResultSetException;
+import primerDesign.util.ForkJoinPools;
+import primerDesign.util.PackedSequenceCache;
 import primerDesign.util.PrimerSearchParameters;
 import primerDesign.util.SeqTools;
+import primerDesign.util.SimpleContig;
 import primerDesign.util.SimpleContigImpl;
 import primerDesign.util.SimpleTimer;
 import primerDesign.util.SlimFastaParser;
 import primerDesign.web.PrimerDesignWebProperites;
 import weka.core.FastVector;
-import cern.colt.list.ObjectArrayList;
 
 /**
  * This class enumerates all valid primers in a given interval.
  * 
- * @author Sebastian Fr�hler
+ * @author Sebastian Frhler
  *
  */
 public class PrimerSearch {
 	
-	private static final Pattern repetitiveElementPattern = Pattern.compile(".*" + Constants.REPETITIVE_ELEMENT_CHARACTER.toUpperCase() + ".*");
-	private static final Pattern ambiguityCodePattern = Pattern.compile(".*[MRWSYKVHDB].*");
 	private Pattern singleNucleotideRepeatPattern;
+	private volatile SequenceFilterAutomaton sequenceFilter;
 	private static final Pattern newGcClampPattern = Pattern.compile("[GC]");
 	private Pattern restrictionEnzymeForwardPattern;
 	private Pattern restrictionEnzymeReversePattern;
-	private static RestrictionMapper mapper = new RestrictionMapper(new SimpleThreadPool(Constants.MAX_NUM_RESTRICTION_MAPPER_THREADS, true));
-	private static Sequence rssScanRegion;
-	private static int primerCount = 0;
-	private static int primerIndexCount = 0;
+	private volatile EnzymeScanner restrictionSiteScanner;
+	private AtomicInteger primerCount = new AtomicInteger();
+	private AtomicInteger primerIndexCount = new AtomicInteger();
 	private PrimerSearchStatistics stat = new PrimerSearchStatistics();
 	private boolean doStat = true;
 	
@@ -76,203 +79,95 @@ public class PrimerSearch {
 	 * @return the set of all valid primers for sequence 'sequence'
 	 */
 	public Primer[] enumeratePrimers(String sequence, PrimerTypes primerType, int minlength, int maxlength, int regionStart, boolean returnOrdered, int fivePrimeDistToRSS, RestrictionSite restrictionSite, RestrictionEnzyme enzyme, PrimerSearchParameters searchParams){
+		return this.enumerateCandidates(sequence, primerType, minlength, maxlength, regionStart, returnOrdered, fivePrimeDistToRSS, restrictionSite, enzyme, searchParams, this.stat).toPrimers();
+	}
+	
+	/**
+	 * Enumerates all 'potential' primers and returns all valid primers as primer candidate table, counting statistics into 'stat'.
+	 * 
+	 * @param sequence the sequence the primer can be placed in
+	 * @param primerType the type of the primer
+	 * @param regionStart the start of 'sequence' w.r.t. the genomic sequence
+	 * @param returnOrdered whether valid primers should be returned ordered by their distance to the '(virtual) optimal' primer
+	 * @param fivePrimeDistToRSS the five prime distance of the scan region to the restriction site
+	 * @param enzyme the restriction enzyme which generated the restriction site adjacent to the scan region
+	 * @param searchParams the 3PD search parameters
+	 * @param stat the statistics to count into
+	 * 
+	 * @return the table of all valid primers for sequence 'sequence'
+	 */
+	private PrimerCandidateTable enumerateCandidates(String sequence, PrimerTypes primerType, int minlength, int maxlength, int regionStart, boolean returnOrdered, int fivePrimeDistToRSS, RestrictionSite restrictionSite, RestrictionEnzyme enzyme, PrimerSearchParameters searchParams, PrimerSearchStatistics stat){
 		// if valid primers for this sequence have been precomputed, return these
 //		if(enumerated_primers_hash.containsKey(sequence)){
 //			return enumerated_primers_hash.get(sequence);
 //		}else{
 		//System.out.println("Enumerate primers for sequence " + sequence);
 		
-		if(this.doStat) this.stat.incEnumeratePrimersCount();
+		if(this.doStat) stat.incEnumeratePrimersCount();
 		
-		this.singleNucleotideRepeatPattern = searchParams.getSINGLE_NUCLEOTIDE_REPEAT_PATTERN();
-		this.restrictionEnzymeForwardPattern = searchParams.getEnzymeForwardPattern();
-		this.restrictionEnzymeReversePattern = searchParams.getEnzymeReversePattern();
+		setScanSequence(restrictionSite, primerType, sequence, regionStart);
 		
-			PrimerMisprimingCheck misprimingCheck = searchParams.getPrimerMisprimingCheck();
-			Primer currentPrimer; 
-			ObjectArrayList primers = new ObjectArrayList();
-			//Vector<Primer> primers = new Vector<Primer>();
-			
-			//RSSDPAligner scanRegionAligner = new RSSDPAligner(sequence, regionStart);
-			int relativePosition;
-			if(primerType.equals(PrimerTypes.forwardPrimer)){
-				restrictionSite.setForwardScanSequence(sequence.toCharArray());
-			}
-			else if(primerType.equals(PrimerTypes.reversePrimer)){
-				restrictionSite.setReverseScanSequence(sequence.toCharArray());
-			}
-			else if(primerType.equals(PrimerTypes.hybridizationProbe)){
-				restrictionSite.setProbeScanSequence(sequence.toCharArray());
-			}
-			else{
-				throw new IllegalArgumentException("Unsupported primer type!");
-			}
-			
-			if(searchParams.isPRINT_DEBUG_LOG()) System.err.println("Scan - enumerating primers in sequence: " + sequence);
-			
-			SequenceRegionAlignment alignment = SequenceRegionAligner.alignSequenceRegions(sequence.toCharArray(), sequence.toCharArray(), searchParams.getA_t_basepair_score(), searchParams.getG_c_basepair_score());
-			PrimerAlignmentScores scores;
-			String primerSequence;
-			
-			for(int i=minlength; i<=maxlength ; i++){
-				//for(int j=0; j<sequence.length()-maxlength; j++){
-				for(int j=0; j<=sequence.length()-minlength; j++){
-					if(j+i > sequence.length()) continue;
-					// if primer does not contain masked basepairs = repetitive dna -> primers containing repetitive dna are prone to mispriming!
-					// AND if primer sequence does NOT contain a restriction site for the specified restriction enzyme (-> would prevent full-length priming iff cut by restriction enzyme)
-					primerSequence = sequence.substring(j, j+i).toUpperCase();
-					
-					if(this.doStat) this.stat.incPrimerCount();
-					PrimerSearch.primerCount++;
-					
-					// skip primers containing ambiguity characters as bases
-					if(ambiguityCodePattern.matcher(primerSequence).matches()){
-						this.stat.incPrimerAmbiguityCode();
-						continue;
-					}
-					
-					if(searchParams.isPRINT_DEBUG_LOG()) System.err.println("Scan - candidate primer: " + primerSequence + " of length " + primerSequence.length());
-					
-					// parameters: http://www.premierbiosoft.com/tech_notes/PCR_Primer_Design.html
-					// Poly-X exclude: .*([A]{5,}|[T]{5,}|[G]{5,}|[C]{5,}).*
-					if(singleNucleotideRepeatPattern.matcher(primerSequence).matches()){
-						if(this.doStat) this.stat.incSingleNucleotideRepeatPattern();
-						if(searchParams.isPRINT_DEBUG_LOG()) System.err.println("Reject - repetitive single nucleotides: " + primerSequence);
-						continue;
-					}
-					if(!PrimerSearch.matchesGCClampPattern(primerSequence, searchParams)){
-						if(this.doStat) this.stat.incGCClampCount();
-						if(searchParams.isPRINT_DEBUG_LOG()) System.err.println("Reject - NO GC-Clamp: " + primerSequence);
-						continue;
-					}
-					
-					//System.out.println("Current primer: " + primerSequence);
-					
-					if(!(repetitiveElementPattern.matcher(primerSequence).matches()) && !(restrictionEnzymeForwardPattern.matcher(primerSequence).matches()) && !(restrictionEnzymeReversePattern.matcher(primerSequence).matches())){
-						if(primerType.equals(PrimerTypes.forwardPrimer)) relativePosition = regionStart + j;
-						// due to 3C experiment setup, hybridization probes are designed to located at the reverse strand 5' of the restriction site
-						else if(primerType.equals(PrimerTypes.reversePrimer) || primerType.equals(PrimerTypes.hybridizationProbe)) relativePosition = regionStart - j;
-						else throw new IllegalArgumentException("Unsupported primer type! " + primerType);
-						
-						scores = alignment.getGlobalAlignmentValues(j, primerSequence.length(), j, primerSequence.length());
-						
-						currentPrimer = new Primer(primerSequence, primerType, relativePosition, scores.getPairScore(), scores.getPairEndScore(), searchParams); //new Primer(primerSequence, primerType, scanRegionAligner, relativePosition); //new Primer(primerSequence, primerType);
-						currentPrimer.setRestrictionSite(restrictionSite);
-						currentPrimer.setPositionInScanSequence(j);
-						int currentPrimerLength = currentPrimer.getSequence().length();
-						
-						// debug trace
-						//if(primerType.equals(PrimerTypes.hybridizationProbe)) System.out.println("Seq " + currentPrimer.getSequence() + " Pos " + currentPrimer.getRelativePosition() + " TM: " + currentPrimer.getMeltingTemp() + " GC " + currentPrimer.getGcContent());
-						
-						if(primerType.equals(PrimerTypes.forwardPrimer) || primerType.equals(PrimerTypes.reversePrimer)) currentPrimer.setDistanceToRSS(fivePrimeDistToRSS - j);
-						else if(primerType.equals(PrimerTypes.hybridizationProbe)) currentPrimer.setDistanceToRSS(fivePrimeDistToRSS + j);
-						else throw new IllegalArgumentException("Unsupported primer type! " + primerType);
-						
-						if((primerType.equals(PrimerTypes.forwardPrimer) || primerType.equals(PrimerTypes.reversePrimer)) && isValidPrimer(currentPrimer, searchParams)){
-							//int maxMispriming = 0;
-							boolean primerMisprimingDoesNOTAffectExperiment = true;
-							//int five_prime_start = currentPrimerLength - MyExtendedMath.floor(currentPrimerLength * Constants.SAFE_MISPRIMING_SEQUENCE_PRECENT_CUTOFF) -1;
-							// scan primer mispriming property in increasing order, starting form three prime end - offset 'five_prime_start
-							// primer mismatch counts decrease monotonically with increasing length of 'primerEnd'
-//							for(int k= five_prime_start; k > 0; k--){
-//								String primerEnd = currentPrimer.getSequence().substring(k, currentPrimerLength);
-//								float hits = 0;
-//								if(backgroundIndex.includesScanRegion()){
-//									hits = backgroundIndex.searchNbMatchesInIndex(primerEnd);
-//								}else{
-//									hits = primerScanRegionIndex.searchNbMatchesInIndex(primerEnd) + backgroundIndex.searchNbMatchesInIndex(primerEnd);
-//								}								
-//								if(hits == 1){
-//									currentPrimer.setFalsePositiveMatches(0);
-//									break;
-//								}else if(hits > 1){
-//									hits--; // besides a TP hit, there are hits-1 FP hits in the sequence!
-//									if(hits > currentPrimer.getFalsePositiveMatches()) currentPrimer.setFalsePositiveMatches((int) hits);
-//									if(hits > maxMispriming) maxMispriming = (int) hits;
-//									hits++; // re-increment hits for proper break condition
-//								}
-//								if(hits == 1) break; // if a primer-end can only be found once, each longer stretch of that same primer end can also only be found at max once!
-//							}
-//							// if this primer can produce spurious amplicons besides the desired amplicon, reject this primer
-//							if(!PrimerMispriming.hasSafeDistanceToNextRSS(currentPrimer.getSequence(), primerType, enzyme, backgroundIndex)){
-//								maxMispriming = Integer.MAX_VALUE;
-//								primerMisprimingAffectsExperiment = true;
-//								currentPrimer.setFalsePositiveMatches(maxMispriming);
-//								//break;
-//							}
-							
-//							ObjectArrayList hits;
-//							if(currentPrimer.getPrimerType().equals(PrimerTypes.forwardPrimer)){
-//								//hits = ApproxHitSearcher.findHits(currentPrimer.getSequence(), backgroundIndex, searchParams.getSEED_WORD_SIZE(), searchParams.getSEED_STEP_SIZE(), searchParams.getTHREE_PRIME_DP_LENGTH(), searchParams.getTHREE_PRIME_DP_THRESHOLD(), searchParams.getWHOLE_DP_THRESHOLD());
-//								hits = backgroundIndex.findHitPositions(currentPrimer.getSequence().substring(currentPrimer.getLength() - searchParams.getPRIMER_END_MISMATCH_SCAN_LENGTH()));
-//								if(this.doStat) this.stat.incPrimerIndexCount();
-//								//System.err.println("Found " + hits.size() + " hits for forward primer " + currentPrimer.getSequence());
-//							}
-//							else{
-//								//hits = ApproxHitSearcher.findHits(SeqTools.complementDNA(currentPrimer.getSequence().toCharArray()), backgroundIndex, Constants.SEED_WORD_SIZE, Constants.SEED_STEP_SIZE, Constants.THREE_PRIME_DP_LENGTH, Constants.THREE_PRIME_DP_THRESHOLD, Constants.WHOLE_DP_THRESHOLD);
-//								hits = backgroundIndex.findHitPositions(currentPrimer.getSequence().substring(currentPrimer.getLength()  - searchParams.getPRIMER_END_MISMATCH_SCAN_LENGTH()));
-//								if(this.doStat) this.stat.incPrimerIndexCount();
-//								//System.err.println("Found " + hits.size() + " hits for reverse primer " + currentPrimer.getSequence());
-//							}
-//							//ObjectArrayList hits = new ObjectArrayList();
-//							if(searchParams.isPRINT_DEBUG_LOG()) System.err.println("Found " + hits.size() + " hits for primer " + currentPrimer.getSequence() + " in index!");
-//							primerMisprimingDoesNOTAffectExperiment = PrimerMispriming.hasSafeDistanceToNextRSS(currentPrimer, enzyme, hits, searchParams);
-//							maxMispriming = hits.size() - 1;
-							
-							if(Constants.doEarlyMMScan){
-								primerMisprimingDoesNOTAffectExperiment = !misprimingCheck.hasMisprimings(currentPrimer);
-								
-								if(primerMisprimingDoesNOTAffectExperiment) currentPrimer.setAcceptanceLevel(PrimerAcceptanceLevel.ACCEPTABLE);
-								else currentPrimer.setAcceptanceLevel(PrimerAcceptanceLevel.UNACCEPTABLE);
-								
-								if(this.doStat) this.stat.incPrimerIndexCount();
-								
-								primerIndexCount++;
-							}
-							
-							//if(maxMispriming <= Constants.MAX_PRIMER_MISPRIMING_CUTOFF || !primerMisprimingAffectsExperiment)	primers.add(currentPrimer);			
-							if(primerMisprimingDoesNOTAffectExperiment){
-								primers.add(currentPrimer);
-								if(this.doStat) this.stat.incNoMispriming();
-							}
-							else{
-								if(searchParams.isPRINT_DEBUG_LOG()) System.err.println("Reject - Primer mispriming does affect experiment: " + !primerMisprimingDoesNOTAffectExperiment + " found FP hits! for primer " + currentPrimer.toString());
-								if(this.doStat) this.stat.incMispriming();
-							}
-						}
-						else if(primerType.equals(PrimerTypes.hybridizationProbe) && isValidHybridizationProbe(currentPrimer, searchParams)){
-							currentPrimer.setAcceptanceLevel(PrimerAcceptanceLevel.ACCEPTABLE);
-							primers.add(currentPrimer);
-						}
-						
-						else if(searchParams.isPRINT_DEBUG_LOG() && (primerType.equals(PrimerTypes.forwardPrimer) || primerType.equals(PrimerTypes.reversePrimer)) && !isValidPrimer(currentPrimer, searchParams)) System.err.println("Reject - invalid primer: " + currentPrimer.toString());
-						else if(searchParams.isPRINT_DEBUG_LOG() && primerType.equals(PrimerTypes.hybridizationProbe) && !isValidHybridizationProbe(currentPrimer, searchParams)) System.err.println("Reject - invalid probe: " + currentPrimer.toString());
-					}
-					else{
-						if(searchParams.isPRINT_DEBUG_LOG() && repetitiveElementPattern.matcher(primerSequence).matches()) System.err.println("Reject - masked basepairs (repeats): " + primerSequence);
-						else if(searchParams.isPRINT_DEBUG_LOG() && restrictionEnzymeForwardPattern.matcher(primerSequence).matches()) System.err.println("Reject - restriction site in forward sequence found: " + primerSequence);
-						else if(searchParams.isPRINT_DEBUG_LOG() && restrictionEnzymeReversePattern.matcher(primerSequence).matches()) System.err.println("Reject - restriction site in reverse sequence found: " + primerSequence);
-						if(this.doStat){
-							if(repetitiveElementPattern.matcher(primerSequence).matches()) this.stat.incRepetitiveElementPattern();
-							if(restrictionEnzymeForwardPattern.matcher(primerSequence).matches() || restrictionEnzymeReversePattern.matcher(primerSequence).matches()) this.stat.incRestrictionEnzymePattern();
-						}
-					}
-				}
-			}
-			// include primer mispriming verification as batch after all primers have been enumerated
-			
-			
-			if(returnOrdered){
-				// sort primers in ascending distance to '(virtual) optimal' primer
-				//Collections.sort(primers);
-				primers.quickSortFromTo(0, primers.size()-1);
-			}
-			Primer[] result = new Primer[primers.size()];
-			if(primers.size() > 0){
-				primers.toArray(result);
-			}
-			return result;
-		//}
+		if(searchParams.isPRINT_DEBUG_LOG()) System.err.println("Scan - enumerating primers in sequence: " + sequence);
+		
+		// judge all candidate primers in a single pass over the scan region, valid candidates are only materialized as primer objects on demand
+		SlidingWindowPrimerEnumerator enumerator = new SlidingWindowPrimerEnumerator(searchParams, this.getSequenceFilter(searchParams, enzyme), stat, this.doStat);
+		PrimerCandidateTable result = enumerator.enumerateCandidates(sequence.toCharArray(), primerType, minlength, maxlength, regionStart, returnOrdered, fivePrimeDistToRSS, restrictionSite);
+		this.primerCount.addAndGet(enumerator.getCandidateCount());
+		this.primerIndexCount.addAndGet(enumerator.getIndexQueryCount());
+		
+		return result;
+	}
+	
+	/**
+	 * Sets the scan sequence of a specific primer type at a restriction site.
+	 * 
+	 * The coordinates of the scan sequence are set as well iff the contig of the restriction site is known.
+	 * 
+	 * @param restrictionSite the restriction site
+	 * @param primerType the type of the primer
+	 * @param sequence the scan region of primers of type 'primerType'
+	 * @param regionStart the start of 'sequence' w.r.t. the genomic sequence, the 3' end for reverse primers and probes
+	 */
+	private static void setScanSequence(RestrictionSite restrictionSite, PrimerTypes primerType, String sequence, int regionStart){
+		SimpleContig contig = (restrictionSite.getSequenceRegion() == null) ? null : restrictionSite.getSequenceRegion().getContig();
+		if(contig != null && sequence.length() > 0){
+			// reverse primer and probe scan regions are reverse complemented, they end at 'regionStart'
+			int start = primerType.equals(PrimerTypes.forwardPrimer) ? regionStart : regionStart - sequence.length() + 1;
+			restrictionSite.setScanSequence(new ScanRegion(contig.getID(), start, start + sequence.length() - 1, primerType), sequence.toCharArray());
+		}
+		else if(primerType.equals(PrimerTypes.forwardPrimer)){
+			restrictionSite.setForwardScanSequence(sequence.toCharArray());
+		}
+		else if(primerType.equals(PrimerTypes.reversePrimer)){
+			restrictionSite.setReverseScanSequence(sequence.toCharArray());
+		}
+		else if(primerType.equals(PrimerTypes.hybridizationProbe)){
+			restrictionSite.setProbeScanSequence(sequence.toCharArray());
+		}
+		else{
+			throw new IllegalArgumentException("Unsupported primer type!");
+		}
+	}
+	
+	/**
+	 * Returns the sequence filter automaton for the current search parameters and restriction enzyme.
+	 * 
+	 * The automaton is compiled once and reused for all scan regions (and threads) as long as the enzyme and MAX_POLY_X_LENGTH do not change.
+	 * The automaton is immutable, threads racing on a change of parameters at worst compile it more than once.
+	 * 
+	 * @param searchParams the 3PD search parameters
+	 * @param enzyme the restriction enzyme, may be null
+	 * 
+	 * @return the sequence filter automaton
+	 */
+	private SequenceFilterAutomaton getSequenceFilter(PrimerSearchParameters searchParams, RestrictionEnzyme enzyme){
+		String recognitionSite = (enzyme == null) ? null : enzyme.getRecognitionSite().seqString();
+		SequenceFilterAutomaton filter = this.sequenceFilter;
+		if(filter == null || !filter.isCompiledFor(searchParams.getMAX_POLY_X_LENGTH(), recognitionSite)){
+			filter = new SequenceFilterAutomaton(searchParams.getMAX_POLY_X_LENGTH(), recognitionSite);
+			this.sequenceFilter = filter;
+		}
+		return filter;
 	}
 	
 	/**
@@ -306,63 +201,6 @@ public class PrimerSearch {
 		else return false;
 	}
 	
-	/**
-	 * Determines whether a primer is acceptable according to the preconditions specified.
-	 * 
-	 * @param primer the primer
-	 * @param searchParams the 3PD search parameters
-	 * 
-	 * @return true: iff all preconditions are met, false: else
-	 */
-	private boolean isValidPrimer(Primer primer, PrimerSearchParameters searchParams){
-		if(primer.getGcContent() >= searchParams.getMIN_GC() &&
-				primer.getGcContent() <= searchParams.getMAX_GC() &&
-				primer.getMeltingTemp() >= searchParams.getMIN_TM() &&
-				primer.getMeltingTemp() <= searchParams.getMAX_TM() &&
-				primer.getSelfAlignmentScore() <= searchParams.getMAX_PRIMER_SELF_ALIGNMENT_SCORE() &&
-				primer.getSelfEndAlignmentScore() <= searchParams.getMAX_PRIMER_SELF_END_ALIGNMENT_SCORE()
-				){
-			if(this.doStat) this.stat.incValidPrimer();
-			return true;
-		}else{
-			if(searchParams.isPRINT_DEBUG_LOG()) System.err.println("Reject - Invalid primer: " + primer.toString());
-			if(this.doStat){
-				this.stat.incInvalidPrimer();
-				this.stat.evaluatePrimer(primer, searchParams);
-			}
-			return false;
-		}
-	}
-	
-	/**
-	 * Determines whether a hybridization probe is valid according to the preconditions specified.
-	 * 
-	 * @param primer the hybridization probe
-	 * @param searchParams the 3PD search parameters
-	 * 
-	 * @return true iff hybridization probe 'primer' is valid
-	 */
-	private boolean isValidHybridizationProbe(Primer primer, PrimerSearchParameters searchParams){
-		if(primer.getGcContent() >= searchParams.getTAQMAN_MIN_GC() &&
-				primer.getGcContent() <= searchParams.getTAQMAN_MAX_GC() &&
-				primer.getMeltingTemp() >= searchParams.getTAQMAN_MIN_TM() &&
-				primer.getMeltingTemp() <= searchParams.getTAQMAN_MAX_TM() &&
-				primer.getSelfAlignmentScore() <= searchParams.getMAX_TAQMAN_SELF_ALIGNMENT_SCORE() &&
-				primer.getSelfEndAlignmentScore() <= searchParams.getMAX_TAQMAN_SELF_END_ALIGNMENT_SCORE() &&
-				primer.getSequence().charAt(0) != 'G'
-				){
-			if(this.doStat) this.stat.incValidTaqManPrimer();
-			return true;
-		}else{
-			if(searchParams.isPRINT_DEBUG_LOG()) System.err.println("Reject - Invalid TaqMan probe: " + primer.toString());
-			if(this.doStat){
-				this.stat.incInvalidTaqManPrimer();
-				this.stat.evaluateProbe(primer, searchParams);
-			}
-			return false;
-		}
-	}
-	
 	/**
 	 * Naively searches the search space for 'nbOfPrimers' best primers for sequence 'sequence' and restriction sites of enzyme 'enzyme'.
 	 * 
@@ -386,169 +224,292 @@ public class PrimerSearch {
 		PrimerMisprimingCheck misprimingCheck = searchParams.getPrimerMisprimingCheck();
 		
 		// scan for most homogenuous restriction sites
-		boolean returnOrderedPrimerLists = false;
 		RestrictionSiteSearch search = new RestrictionSiteSearch();
 		FastVector optimalRSSs = new FastVector();
 		optimalRSSs.appendElements(search.getMostHomogenuousRSSs(enzyme, numberOfPrimers, searchParams));
 		
-		RestrictionEnzymeManager.register(enzyme, new TreeSet());
-		PrimerSearch.mapper.clearEnzymes();
-		PrimerSearch.mapper.addEnzyme(enzyme);
+		this.getRestrictionSiteScanner(enzyme);
+		this.getSequenceFilter(searchParams, enzyme);
 		
+		// compute primers for each restriction site, each site is scanned by a task of its own
+		RestrictionSite[] sites = new RestrictionSite[optimalRSSs.size()];
+		for(int i=0; i<sites.length; i++) sites[i] = (RestrictionSite) optimalRSSs.elementAt(i);
+		List<RestrictionSite> initialRSSs = Arrays.asList(sites);
+		Map<SimpleContig, Set<Integer>> initialCoordinates = getCoordinates(initialRSSs);
+		SiteScanTask[] tasks = new SiteScanTask[initialRSSs.size()];
+		RestrictionSite[] result = new RestrictionSite[initialRSSs.size()];
+		// a single search thread scans all restriction sites sequentially in the calling thread
+		boolean parallel = searchParams.getNUM_SEARCH_THREADS() > 1;
+		try{
+			for(int i=0; i<tasks.length; i++){
+				tasks[i] = new SiteScanTask(i, initialRSSs, initialCoordinates, enzyme, searchParams);
+				if(parallel) ForkJoinPools.getPool(searchParams.getNUM_SEARCH_THREADS()).execute(tasks[i]);
+			}
+			// collect results in the order of the restriction sites, the first site failing (in this order) determines the exception thrown
+			for(int i=0; i<tasks.length; i++){
+				result[i] = parallel ? tasks[i].join() : tasks[i].invoke();
+				if(this.doStat) this.stat.add(tasks[i].getStat());
+				for(int j=0; j<i; j++){
+					if(result[j].equals(result[i])) throw new DuplicateUseOfRestrictionSiteException("Restriction site at position " + result[i].getPosition() + " is used multiple times!");
+				}
+			}
+		}
+		finally{
+			// the pool is shared, do not leave the remaining tasks of a failed search to it
+			for(int i=0; i<tasks.length; i++) if(tasks[i] != null) tasks[i].cancel(false);
+		}
+		System.out.println("return");
+		return result;
+	}
+	
+	/**
+	 * Scans the restriction site at position 'i' of a list of optimal restriction sites for primers.
+	 * 
+	 * If no valid primers can be found at this restriction site, the remaining restriction sites of its sequence region are scanned.
+	 * 
+	 * @param i the position of the restriction site in 'optimalRSSs'
+	 * @param optimalRSSs the list of optimal restriction sites
+	 * @param optimalCoordinates the positions of the optimal restriction sites in each contig
+	 * @param enzyme the restriction enzyme
+	 * @param searchParams the 3PD search parameters
+	 * @param stat the statistics to count into
+	 * 
+	 * @return the restriction site at position 'i' or the restriction site of the same sequence region replacing it
+	 */
+	private RestrictionSite scanRestrictionSite(int i, List<RestrictionSite> optimalRSSs, Map<SimpleContig, Set<Integer>> optimalCoordinates, RestrictionEnzyme enzyme, PrimerSearchParameters searchParams, PrimerSearchStatistics stat){
+		System.out.println("Site: " + (i+1) + "/" + optimalRSSs.size());
+		RestrictionSite site = optimalRSSs.get(i);
+		RestrictionSite resultSite = site;
 		String sequence;
+		int position = site.getPosition();
+		// compute start and end for 5' scan region for primer search
+		int forwardStart =  Math.max(0,position - searchParams.getMAX_AMPLICON_LENGTH()/2);
+		int forwardEnd = position - (searchParams.getMIN_AMPLICON_LENGTH()/2 - searchParams.getMAX_PRIMER_LENGTH());
 		
-		// compute primers for each restriction site
-		for(int i=0; i<optimalRSSs.size(); i++){
-			System.out.println("Site: " + (i+1) + "/" + optimalRSSs.size());
-			RestrictionSite site = (RestrictionSite) optimalRSSs.elementAt(i);
-			int position = site.getPosition();
-			// compute start and end for 5' scan region for primer search
-			int forwardStart =  Math.max(0,position - searchParams.getMAX_AMPLICON_LENGTH()/2);
-			int forwardEnd = position - (searchParams.getMIN_AMPLICON_LENGTH()/2 - searchParams.getMAX_PRIMER_LENGTH());
-			
-			// compute start and end for 3' scan region for primer search
-			int reverseStart = Math.min(position + searchParams.getMAX_AMPLICON_LENGTH()/2, site.getSequenceRegion().getContigSequenceLength() - 1);
-			int reverseEnd = position + (searchParams.getMIN_AMPLICON_LENGTH()/2 - searchParams.getMAX_PRIMER_LENGTH());
-			
-			// compute start and end for 5' scan region for hybridization probe search
-			int hybProbeStart = position - 1;
-			int hybProbeEnd = position - (searchParams.getMIN_AMPLICON_LENGTH()/2 - searchParams.getMAX_PRIMER_LENGTH());
-			if(searchParams.isPickTaqManProbe() && searchParams.getMIN_AMPLICON_LENGTH()/2 - searchParams.getMAX_PRIMER_LENGTH() < searchParams.getTAQMAN_MAX_PRIMER_LENGTH()) throw new IllegalArgumentException("MIN_AMPLICON_LENGTH/2 - MAX_PRIMER_LENGTH must be > TAQMAN_MAX_PRIMER_LENGTH! Scan regions for forward primer and HybProbe must NOT overlap!");
-			
-			assert(forwardEnd+1 > forwardStart);
-			assert(reverseStart+1 > reverseEnd);
-			if(searchParams.isPickTaqManProbe()) assert(hybProbeStart+1 > hybProbeEnd);
-			
-			sequence = site.getSequenceRegion().getContigSequence();
-			
-			if(forwardStart < 0 || forwardEnd+1<=forwardStart || reverseEnd >= sequence.length()) continue;
-			
-			String forwardScanRegion = sequence.substring(forwardStart, forwardEnd+1);
-			String reverseScanRegion = SeqTools.revcompDNA(sequence.substring(reverseEnd, reverseStart+1).toCharArray());
-			String hybProbeScanRegion = "";
-			if(searchParams.isPickTaqManProbe()) hybProbeScanRegion = SeqTools.revcompDNA(sequence.substring(hybProbeEnd, hybProbeStart+1).toCharArray());
-			
-			Primer[] validUpstreamPrimers = new Primer[0];
-			Primer[] validDownstreamPrimers = new Primer[0];
-			Primer[] validHybridizationProbes = new Primer[0];
-			
-			String wholeAmplicon = sequence.substring(position - searchParams.getMAX_AMPLICON_LENGTH()/2, position + searchParams.getMAX_AMPLICON_LENGTH()/2);
-			
-			// if another restriction site for enzyme was found in this amplicon, reject this amplicon and 'search remaining restriction sites in this region'
-			if(doesNotContainAnotherRSS(wholeAmplicon)){
-				// compute and store all valid 5' primers in sequence 'scanRegion' of current restriction site
-				validUpstreamPrimers = this.enumeratePrimers(forwardScanRegion, PrimerTypes.forwardPrimer, searchParams.getMIN_PRIMER_LENGTH(), searchParams.getMAX_PRIMER_LENGTH(), forwardStart, returnOrderedPrimerLists, position - forwardStart, site, enzyme, searchParams);
-				if(validUpstreamPrimers.length != 0) validDownstreamPrimers = this.enumeratePrimers(reverseScanRegion, PrimerTypes.reversePrimer, searchParams.getMIN_PRIMER_LENGTH(), searchParams.getMAX_PRIMER_LENGTH(), reverseStart, returnOrderedPrimerLists, -position + reverseStart, site, enzyme, searchParams);
-				else if(searchParams.isPRINT_DEBUG_LOG()) System.err.println("Empty upstream primer list");
-				if(validUpstreamPrimers.length != 0 && validDownstreamPrimers.length != 0 && searchParams.isPickTaqManProbe()) validHybridizationProbes = this.enumeratePrimers(hybProbeScanRegion, PrimerTypes.hybridizationProbe, searchParams.getTAQMAN_MIN_PRIMER_LENGTH(), searchParams.getTAQMAN_MAX_PRIMER_LENGTH(), hybProbeStart, returnOrderedPrimerLists, 1, site, enzyme, searchParams);
-				else if(searchParams.isPRINT_DEBUG_LOG() && validUpstreamPrimers.length == 0) System.out.println("Empty upstream primer list!"); 
+		// compute start and end for 3' scan region for primer search
+		int reverseStart = Math.min(position + searchParams.getMAX_AMPLICON_LENGTH()/2, site.getSequenceRegion().getContigSequenceLength() - 1);
+		int reverseEnd = position + (searchParams.getMIN_AMPLICON_LENGTH()/2 - searchParams.getMAX_PRIMER_LENGTH());
+		
+		// compute start and end for 5' scan region for hybridization probe search
+		int hybProbeStart = position - 1;
+		int hybProbeEnd = position - (searchParams.getMIN_AMPLICON_LENGTH()/2 - searchParams.getMAX_PRIMER_LENGTH());
+		if(searchParams.isPickTaqManProbe() && searchParams.getMIN_AMPLICON_LENGTH()/2 - searchParams.getMAX_PRIMER_LENGTH() < searchParams.getTAQMAN_MAX_PRIMER_LENGTH()) throw new IllegalArgumentException("MIN_AMPLICON_LENGTH/2 - MAX_PRIMER_LENGTH must be > TAQMAN_MAX_PRIMER_LENGTH! Scan regions for forward primer and HybProbe must NOT overlap!");
+		
+		assert(forwardEnd+1 > forwardStart);
+		assert(reverseStart+1 > reverseEnd);
+		if(searchParams.isPickTaqManProbe()) assert(hybProbeStart+1 > hybProbeEnd);
+		
+		sequence = site.getSequenceRegion().getContigSequence();
+		
+		if(forwardStart < 0 || forwardEnd+1<=forwardStart || reverseEnd >= sequence.length()) return resultSite;
+		
+		String forwardScanRegion = sequence.substring(forwardStart, forwardEnd+1);
+		String reverseScanRegion = SeqTools.revcompDNA(sequence.substring(reverseEnd, reverseStart+1).toCharArray());
+		String hybProbeScanRegion = "";
+		if(searchParams.isPickTaqManProbe()) hybProbeScanRegion = SeqTools.revcompDNA(sequence.substring(hybProbeEnd, hybProbeStart+1).toCharArray());
+		
+		PrimerCandidateTable validUpstreamPrimers = new PrimerCandidateTable(PrimerTypes.forwardPrimer, searchParams);
+		PrimerCandidateTable validDownstreamPrimers = new PrimerCandidateTable(PrimerTypes.reversePrimer, searchParams);
+		PrimerCandidateTable validHybridizationProbes = new PrimerCandidateTable(PrimerTypes.hybridizationProbe, searchParams);
+		
+		String wholeAmplicon = sequence.substring(position - searchParams.getMAX_AMPLICON_LENGTH()/2, position + searchParams.getMAX_AMPLICON_LENGTH()/2);
+		
+		// if another restriction site for enzyme was found in this amplicon, reject this amplicon and 'search remaining restriction sites in this region'
+		if(doesNotContainAnotherRSS(wholeAmplicon, enzyme)){
+			// compute and store all valid 5' and 3' primers and probes in the scan regions of current restriction site
+			PrimerCandidateTable[] validPrimers = this.enumerateScanRegions(forwardScanRegion, forwardStart, reverseScanRegion, reverseStart, hybProbeScanRegion, hybProbeStart, position, site, enzyme, searchParams, stat);
+			validUpstreamPrimers = validPrimers[0];
+			validDownstreamPrimers = validPrimers[1];
+			validHybridizationProbes = validPrimers[2];
+			if(validUpstreamPrimers.size() == 0 && searchParams.isPRINT_DEBUG_LOG()) System.err.println("Empty upstream primer list");
+			if(!(validUpstreamPrimers.size() != 0 && validDownstreamPrimers.size() != 0 && searchParams.isPickTaqManProbe())){
+				if(searchParams.isPRINT_DEBUG_LOG() && validUpstreamPrimers.size() == 0) System.out.println("Empty upstream primer list!"); 
 				else if(searchParams.isPRINT_DEBUG_LOG()) System.err.println("Empty downstream primer list");
-				if(this.doStat){
-					if(validUpstreamPrimers.length == 0) this.stat.incEmptyUpstreamPrimersList();
-					else this.stat.incNonemptyUpstreamPrimersList();
-					if(validDownstreamPrimers.length == 0) this.stat.incEmptyDownstreamPrimersList();
-					else this.stat.incNonEmptyDownstreamPrimersList();
-					if(searchParams.isPickTaqManProbe() && validHybridizationProbes.length == 0) this.stat.incEmptyTaqManPrimersList();
-					else if(searchParams.isPickTaqManProbe()) this.stat.incNonEmptyTaqManPrimersList();
-				}
 			}
-			else{
-				if(this.doStat) this.stat.incAnotherRSSinAmpliconCount();
-				if(searchParams.isPRINT_DEBUG_LOG()) System.err.println("Found another RSS in this amplicon!");
+			if(this.doStat){
+				if(validUpstreamPrimers.size() == 0) stat.incEmptyUpstreamPrimersList();
+				else stat.incNonemptyUpstreamPrimersList();
+				if(validDownstreamPrimers.size() == 0) stat.incEmptyDownstreamPrimersList();
+				else stat.incNonEmptyDownstreamPrimersList();
+				if(searchParams.isPickTaqManProbe() && validHybridizationProbes.size() == 0) stat.incEmptyTaqManPrimersList();
+				else if(searchParams.isPickTaqManProbe()) stat.incNonEmptyTaqManPrimersList();
 			}
-			
-			if(validUpstreamPrimers.length != 0 && validDownstreamPrimers.length != 0 && (!searchParams.isPickTaqManProbe() || validHybridizationProbes.length != 0)){
-				site.setValidUpstreamPrimers(validUpstreamPrimers); 
-				site.setValidDownstreamPrimers(validDownstreamPrimers);
-				if(searchParams.isPickTaqManProbe()) site.setValidTaqManProbes(validHybridizationProbes);
-				site.wasScannedForPrimers(true);
-				if(this.doStat) this.stat.incNonEmptyUpDpwnTaqManList();
-			}else{
-				if(this.doStat) this.stat.incEmptyUpDownTaqManList();
-				// if no acceptable 5', 3' or TaqMan primers can be found in this 'scanRegion' (at current restriction site), scan next best restriction site's sequence in current sequence region
-				Iterator allRSSIterator = site.getSequenceRegion().getRestrictionSitesIterator(true);
-				RestrictionSite nextBestSite;
-				while((validUpstreamPrimers.length == 0 || validDownstreamPrimers.length == 0 || (searchParams.isPickTaqManProbe() && validHybridizationProbes.length == 0)) && allRSSIterator.hasNext()){
-					nextBestSite = (RestrictionSite) allRSSIterator.next();
+		}
+		else{
+			if(this.doStat) stat.incAnotherRSSinAmpliconCount();
+			if(searchParams.isPRINT_DEBUG_LOG()) System.err.println("Found another RSS in this amplicon!");
+		}
+		
+		if(validUpstreamPrimers.size() != 0 && validDownstreamPrimers.size() != 0 && (!searchParams.isPickTaqManProbe() || validHybridizationProbes.size() != 0)){
+			site.setValidUpstreamPrimers(validUpstreamPrimers); 
+			site.setValidDownstreamPrimers(validDownstreamPrimers);
+			if(searchParams.isPickTaqManProbe()) site.setValidTaqManProbes(validHybridizationProbes);
+			site.wasScannedForPrimers(true);
+			if(this.doStat) stat.incNonEmptyUpDpwnTaqManList();
+		}else{
+			if(this.doStat) stat.incEmptyUpDownTaqManList();
+			// if no acceptable 5', 3' or TaqMan primers can be found in this 'scanRegion' (at current restriction site), scan next best restriction site's sequence in current sequence region
+			Iterator allRSSIterator = site.getSequenceRegion().getRestrictionSitesIterator(true);
+			RestrictionSite nextBestSite;
+			while((validUpstreamPrimers.size() == 0 || validDownstreamPrimers.size() == 0 || (searchParams.isPickTaqManProbe() && validHybridizationProbes.size() == 0)) && allRSSIterator.hasNext()){
+				nextBestSite = (RestrictionSite) allRSSIterator.next();
+				
+				// if this restriction site is not already used as optimal restriction site
+				if(!isContained(nextBestSite, optimalCoordinates)){
+					position = nextBestSite.getPosition();
 					
-					// if this restriction site is not already used as optimal restriction site
-					if(!optimalRSSs.contains(nextBestSite)){
-						position = nextBestSite.getPosition();
+					if(position - searchParams.getMAX_AMPLICON_LENGTH()/2 < 0 || position + searchParams.getMAX_AMPLICON_LENGTH()/2 >= sequence.length()) continue; // terminate search with empty result (last element!)
+					wholeAmplicon = sequence.substring(position - searchParams.getMAX_AMPLICON_LENGTH()/2, position + searchParams.getMAX_AMPLICON_LENGTH()/2);
+					
+					if(doesNotContainAnotherRSS(wholeAmplicon, enzyme)){
+						// compute start and end for scan region for 5' primer search
+						forwardStart = Math.max(0, position - searchParams.getMAX_AMPLICON_LENGTH()/2);
+						forwardEnd = position - (searchParams.getMIN_AMPLICON_LENGTH()/2 - searchParams.getMAX_PRIMER_LENGTH());
+						
+						reverseStart = Math.min(position + searchParams.getMAX_AMPLICON_LENGTH()/2, sequence.length() - 1);
+						reverseEnd = position + (searchParams.getMIN_AMPLICON_LENGTH()/2 - searchParams.getMAX_PRIMER_LENGTH());
+						
+						// compute start and end for 5' scan region for hybridization probe search
+						hybProbeStart = position - 1;
+						hybProbeEnd = position - (searchParams.getMIN_AMPLICON_LENGTH()/2 - searchParams.getMAX_PRIMER_LENGTH());
+						
+						if(forwardStart < 0 || forwardEnd >= sequence.length() || reverseStart < 0 || reverseEnd >= sequence.length() || hybProbeStart < 0 || hybProbeStart >= sequence.length()) break; // terminate search with empty result (last element!)
+						if(searchParams.isPickTaqManProbe() && searchParams.getMIN_AMPLICON_LENGTH()/2 - searchParams.getMAX_PRIMER_LENGTH() < searchParams.getTAQMAN_MAX_PRIMER_LENGTH()) throw new IllegalArgumentException("MIN_AMPLICON_LENGTH/2 - MAX_PRIMER_LENGTH must be > TAQMAN_MAX_PRIMER_LENGTH! Scan regions for forward primer and HybProbe must NOT overlap!");
+						
+						assert(forwardEnd+1 > forwardStart);
+						assert(reverseStart+1 > reverseEnd);
+						if(searchParams.isPickTaqManProbe()) assert(hybProbeStart+1 > hybProbeEnd);
+						
+						if(forwardStart < 0 || forwardEnd+1<=forwardStart || reverseEnd >= sequence.length()) continue;
+						
+						forwardScanRegion = sequence.substring(forwardStart, forwardEnd+1);
+						reverseScanRegion = SeqTools.revcompDNA(sequence.substring(reverseEnd, reverseStart+1).toCharArray());
+						if(searchParams.isPickTaqManProbe()) hybProbeScanRegion = SeqTools.revcompDNA(sequence.substring(hybProbeEnd, hybProbeStart+1).toCharArray());
 						
-						if(position - searchParams.getMAX_AMPLICON_LENGTH()/2 < 0 || position + searchParams.getMAX_AMPLICON_LENGTH()/2 >= sequence.length()) continue; // terminate search with empty result (last element!)
-						wholeAmplicon = sequence.substring(position - searchParams.getMAX_AMPLICON_LENGTH()/2, position + searchParams.getMAX_AMPLICON_LENGTH()/2);
+						PrimerCandidateTable[] validPrimers = this.enumerateScanRegions(forwardScanRegion, forwardStart, reverseScanRegion, reverseStart, hybProbeScanRegion, hybProbeStart, position, nextBestSite, enzyme, searchParams, stat);
+						validUpstreamPrimers = validPrimers[0];
+						validDownstreamPrimers = validPrimers[1];
+						validHybridizationProbes = validPrimers[2];
+						if(validUpstreamPrimers.size() == 0){
+							if(this.doStat) stat.incEmptyUpstreamPrimersList();
+							if(searchParams.isPRINT_DEBUG_LOG()) System.err.println("Empty upstream primer list");
+						}
+						if(!(validUpstreamPrimers.size() != 0 && validDownstreamPrimers.size() != 0 && searchParams.isPickTaqManProbe())){
+							if(this.doStat) stat.incEmptyDownstreamPrimersList();
+							if(searchParams.isPRINT_DEBUG_LOG() && validUpstreamPrimers.size() == 0) System.out.println("Empty upstream primer list!"); 
+							else if(searchParams.isPRINT_DEBUG_LOG()) System.err.println("Empty downstream primer list");
+						}
 						
-						if(doesNotContainAnotherRSS(wholeAmplicon)){
-							// compute start and end for scan region for 5' primer search
-							forwardStart = Math.max(0, position - searchParams.getMAX_AMPLICON_LENGTH()/2);
-							forwardEnd = position - (searchParams.getMIN_AMPLICON_LENGTH()/2 - searchParams.getMAX_PRIMER_LENGTH());
-							
-							reverseStart = Math.min(position + searchParams.getMAX_AMPLICON_LENGTH()/2, sequence.length() - 1);
-							reverseEnd = position + (searchParams.getMIN_AMPLICON_LENGTH()/2 - searchParams.getMAX_PRIMER_LENGTH());
-							
-							// compute start and end for 5' scan region for hybridization probe search
-							hybProbeStart = position - 1;
-							hybProbeEnd = position - (searchParams.getMIN_AMPLICON_LENGTH()/2 - searchParams.getMAX_PRIMER_LENGTH());
-							
-							if(forwardStart < 0 || forwardEnd >= sequence.length() || reverseStart < 0 || reverseEnd >= sequence.length() || hybProbeStart < 0 || hybProbeStart >= sequence.length()) break; // terminate search with empty result (last element!)
-							if(searchParams.isPickTaqManProbe() && searchParams.getMIN_AMPLICON_LENGTH()/2 - searchParams.getMAX_PRIMER_LENGTH() < searchParams.getTAQMAN_MAX_PRIMER_LENGTH()) throw new IllegalArgumentException("MIN_AMPLICON_LENGTH/2 - MAX_PRIMER_LENGTH must be > TAQMAN_MAX_PRIMER_LENGTH! Scan regions for forward primer and HybProbe must NOT overlap!");
-							
-							assert(forwardEnd+1 > forwardStart);
-							assert(reverseStart+1 > reverseEnd);
-							if(searchParams.isPickTaqManProbe()) assert(hybProbeStart+1 > hybProbeEnd);
-							
-							if(forwardStart < 0 || forwardEnd+1<=forwardStart || reverseEnd >= sequence.length()) continue;
-							
-							forwardScanRegion = sequence.substring(forwardStart, forwardEnd+1);
-							reverseScanRegion = SeqTools.revcompDNA(sequence.substring(reverseEnd, reverseStart+1).toCharArray());
-							if(searchParams.isPickTaqManProbe()) hybProbeScanRegion = SeqTools.revcompDNA(sequence.substring(hybProbeEnd, hybProbeStart+1).toCharArray());
-							
-							validUpstreamPrimers = this.enumeratePrimers(forwardScanRegion, PrimerTypes.forwardPrimer, searchParams.getMIN_PRIMER_LENGTH(), searchParams.getMAX_PRIMER_LENGTH(), forwardStart, returnOrderedPrimerLists, position - forwardStart, nextBestSite, enzyme, searchParams);
-							if(validUpstreamPrimers.length != 0) validDownstreamPrimers = this.enumeratePrimers(reverseScanRegion, PrimerTypes.reversePrimer, searchParams.getMIN_PRIMER_LENGTH(), searchParams.getMAX_PRIMER_LENGTH(), reverseStart, returnOrderedPrimerLists, -position + reverseStart, nextBestSite, enzyme, searchParams);
-							else{
-								validDownstreamPrimers = new Primer[0];
-								if(this.doStat) this.stat.incEmptyUpstreamPrimersList();
-								if(searchParams.isPRINT_DEBUG_LOG()) System.err.println("Empty upstream primer list");
-							}
-							if(validUpstreamPrimers.length != 0 && validDownstreamPrimers.length != 0 && searchParams.isPickTaqManProbe()) validHybridizationProbes = this.enumeratePrimers(hybProbeScanRegion, PrimerTypes.hybridizationProbe, searchParams.getTAQMAN_MIN_PRIMER_LENGTH(), searchParams.getTAQMAN_MAX_PRIMER_LENGTH(), hybProbeStart, returnOrderedPrimerLists, 1, nextBestSite, enzyme, searchParams);
-							else{
-								validHybridizationProbes = new Primer[0];
-								if(this.doStat) this.stat.incEmptyDownstreamPrimersList();
-								if(searchParams.isPRINT_DEBUG_LOG() && validUpstreamPrimers.length == 0) System.out.println("Empty upstream primer list!"); 
-								else if(searchParams.isPRINT_DEBUG_LOG()) System.err.println("Empty downstream primer list");
-							}
-							
-							if(this.doStat && (searchParams.isPickTaqManProbe() && validHybridizationProbes.length == 0)) this.stat.incEmptyTaqManPrimersList();
-							if(searchParams.isPRINT_DEBUG_LOG() && searchParams.isPickTaqManProbe() && validHybridizationProbes.length == 0) System.err.println("Empty TaqMan probe list!");
-							
-							// remember new, optimal restriction site 'nextBestSite' and all of its valid primers instead of 'old', unsuitable restriction site 'site'
-							if(validUpstreamPrimers.length != 0 && validDownstreamPrimers.length != 0 && (!searchParams.isPickTaqManProbe() || validHybridizationProbes.length != 0)){
-								if(this.doStat) this.stat.incNonEmptyUpDpwnTaqManList();
-								nextBestSite.setValidUpstreamPrimers(validUpstreamPrimers);
-								nextBestSite.setValidDownstreamPrimers(validDownstreamPrimers);
-								if(searchParams.isPickTaqManProbe()) nextBestSite.setValidTaqManProbes(validHybridizationProbes);
-								nextBestSite.wasScannedForPrimers(true);
-								// replace 'site' by 'nextBestSite' (in result vector) and continue with next 'optimal restriction site'
-								optimalRSSs.setElementAt(nextBestSite, optimalRSSs.indexOf(site));
-								break;
-							}
-						}else{
-							if(this.doStat) this.stat.incAnotherRSSinAmpliconCount();
-							if(searchParams.isPRINT_DEBUG_LOG()) System.err.println("Found another RSS in this amplicon!");
+						if(this.doStat && (searchParams.isPickTaqManProbe() && validHybridizationProbes.size() == 0)) stat.incEmptyTaqManPrimersList();
+						if(searchParams.isPRINT_DEBUG_LOG() && searchParams.isPickTaqManProbe() && validHybridizationProbes.size() == 0) System.err.println("Empty TaqMan probe list!");
+						
+						// remember new, optimal restriction site 'nextBestSite' and all of its valid primers instead of 'old', unsuitable restriction site 'site'
+						if(validUpstreamPrimers.size() != 0 && validDownstreamPrimers.size() != 0 && (!searchParams.isPickTaqManProbe() || validHybridizationProbes.size() != 0)){
+							if(this.doStat) stat.incNonEmptyUpDpwnTaqManList();
+							nextBestSite.setValidUpstreamPrimers(validUpstreamPrimers);
+							nextBestSite.setValidDownstreamPrimers(validDownstreamPrimers);
+							if(searchParams.isPickTaqManProbe()) nextBestSite.setValidTaqManProbes(validHybridizationProbes);
+							nextBestSite.wasScannedForPrimers(true);
+							// replace 'site' by 'nextBestSite' (in result vector) and continue with next 'optimal restriction site'
+							resultSite = nextBestSite;
+							break;
 						}
+					}else{
+						if(this.doStat) stat.incAnotherRSSinAmpliconCount();
+						if(searchParams.isPRINT_DEBUG_LOG()) System.err.println("Found another RSS in this amplicon!");
 					}
-					else throw new DuplicateUseOfRestrictionSiteException("Restriction site at position " + nextBestSite.getPosition() + " is used multiple times!");
 				}
+				else throw new DuplicateUseOfRestrictionSiteException("Restriction site at position " + nextBestSite.getPosition() + " is used multiple times!");
 			}
-			// base case if no primers can be found at all in this sequence region
-			if(validUpstreamPrimers.length == 0) throw new EmptyResultSetException("No valid upstream primers could be found in Sequence " + i + " in SequenceRegion: " + site.getSequenceRegion().getSeqRegionStart() + "-" + site.getSequenceRegion().getSeqRegionEnd() + " (at any restriction site) please check your selection parameters/ change enzyme!");
-			else if(validDownstreamPrimers.length == 0) throw new EmptyResultSetException("No valid downstream primers could be found in Sequence " + i + " inSequenceRegion: " + site.getSequenceRegion().getSeqRegionStart() + "-" + site.getSequenceRegion().getSeqRegionEnd() + " (at any restriction site) please check your selection parameters/ change enzyme!");
-			else if(searchParams.isPickTaqManProbe() && validHybridizationProbes.length == 0) throw new EmptyResultSetException("No valid hybridization probes could be found in Sequence " + i + " in SequenceRegion: " + site.getSequenceRegion().getSeqRegionStart() + "-" + site.getSequenceRegion().getSeqRegionEnd() + " (at any restriction site) please check your selection parameters/ change enzyme!");
 		}
-		RestrictionSite[] result = new RestrictionSite[optimalRSSs.size()];
-		System.arraycopy(optimalRSSs.toArray(), 0, result, 0, optimalRSSs.size());
-		System.out.println("return");
-		return result;
+		// base case if no primers can be found at all in this sequence region
+		if(validUpstreamPrimers.size() == 0) throw new EmptyResultSetException("No valid upstream primers could be found in Sequence " + i + " in SequenceRegion: " + site.getSequenceRegion().getSeqRegionStart() + "-" + site.getSequenceRegion().getSeqRegionEnd() + " (at any restriction site) please check your selection parameters/ change enzyme!");
+		else if(validDownstreamPrimers.size() == 0) throw new EmptyResultSetException("No valid downstream primers could be found in Sequence " + i + " inSequenceRegion: " + site.getSequenceRegion().getSeqRegionStart() + "-" + site.getSequenceRegion().getSeqRegionEnd() + " (at any restriction site) please check your selection parameters/ change enzyme!");
+		else if(searchParams.isPickTaqManProbe() && validHybridizationProbes.size() == 0) throw new EmptyResultSetException("No valid hybridization probes could be found in Sequence " + i + " in SequenceRegion: " + site.getSequenceRegion().getSeqRegionStart() + "-" + site.getSequenceRegion().getSeqRegionEnd() + " (at any restriction site) please check your selection parameters/ change enzyme!");
+		return resultSite;
+	}
+	
+	/**
+	 * Returns the coordinates of a list of restriction sites.
+	 * 
+	 * @param sites the restriction sites
+	 * 
+	 * @return the positions of the restriction sites in each contig
+	 */
+	private static Map<SimpleContig, Set<Integer>> getCoordinates(List<RestrictionSite> sites){
+		Map<SimpleContig, Set<Integer>> coordinates = new IdentityHashMap<SimpleContig, Set<Integer>>();
+		Set<Integer> positions;
+		for(RestrictionSite site : sites){
+			positions = coordinates.get(site.getSequenceRegion().getContig());
+			if(positions == null){
+				positions = new HashSet<Integer>();
+				coordinates.put(site.getSequenceRegion().getContig(), positions);
+			}
+			positions.add(site.getPosition());
+		}
+		return coordinates;
+	}
+	
+	/**
+	 * Checks whether the coordinates of a restriction site are contained in a set of coordinates.
+	 * 
+	 * @param site the restriction site
+	 * @param coordinates the positions of restriction sites in each contig
+	 * 
+	 * @return true iff the position of 'site' in its contig is contained in 'coordinates'
+	 */
+	private static boolean isContained(RestrictionSite site, Map<SimpleContig, Set<Integer>> coordinates){
+		Set<Integer> positions = coordinates.get(site.getSequenceRegion().getContig());
+		return positions != null && positions.contains(site.getPosition());
+	}
+	
+	/**
+	 * Enumerates the valid forward primers, reverse primers and hybridization probes at a restriction site.
+	 * 
+	 * As in a sequential search, reverse primers are only returned if forward primers were found and probes only if both were found.
+	 * When called from a fork/join pool, the reverse and probe scan regions are enumerated speculatively and concurrently with the forward scan region.
+	 * Speculative enumerations neither change the restriction site nor query the mispriming index, only the enumerations needed are
+	 * committed: their scan sequences are set, their misprimings are checked and their counts and statistics are added.
+	 * 
+	 * @param forwardScanRegion the scan region of forward primers
+	 * @param forwardStart the start of the forward scan region w.r.t. the contig sequence
+	 * @param reverseScanRegion the scan region of reverse primers
+	 * @param reverseStart the start of the reverse scan region w.r.t. the contig sequence
+	 * @param hybProbeScanRegion the scan region of hybridization probes
+	 * @param hybProbeStart the start of the probe scan region w.r.t. the contig sequence
+	 * @param position the position of the restriction site
+	 * @param site the restriction site
+	 * @param enzyme the restriction enzyme
+	 * @param searchParams the 3PD search parameters
+	 * @param stat the statistics to count into
+	 * 
+	 * @return the valid forward primers, reverse primers and hybridization probes
+	 */
+	private PrimerCandidateTable[] enumerateScanRegions(String forwardScanRegion, int forwardStart, String reverseScanRegion, int reverseStart, String hybProbeScanRegion, int hybProbeStart, int position, RestrictionSite site, RestrictionEnzyme enzyme, PrimerSearchParameters searchParams, PrimerSearchStatistics stat){
+		boolean returnOrderedPrimerLists = false;
+		ScanRegionTask reverseTask = new ScanRegionTask(reverseScanRegion, PrimerTypes.reversePrimer, searchParams.getMIN_PRIMER_LENGTH(), searchParams.getMAX_PRIMER_LENGTH(), reverseStart, returnOrderedPrimerLists, -position + reverseStart, site, enzyme, searchParams);
+		ScanRegionTask probeTask = null;
+		if(searchParams.isPickTaqManProbe()) probeTask = new ScanRegionTask(hybProbeScanRegion, PrimerTypes.hybridizationProbe, searchParams.getTAQMAN_MIN_PRIMER_LENGTH(), searchParams.getTAQMAN_MAX_PRIMER_LENGTH(), hybProbeStart, returnOrderedPrimerLists, 1, site, enzyme, searchParams);
+		
+		boolean concurrent = ForkJoinTask.inForkJoinPool();
+		if(concurrent){
+			reverseTask.fork();
+			if(probeTask != null) probeTask.fork();
+		}
+		
+		PrimerCandidateTable validUpstreamPrimers = this.enumerateCandidates(forwardScanRegion, PrimerTypes.forwardPrimer, searchParams.getMIN_PRIMER_LENGTH(), searchParams.getMAX_PRIMER_LENGTH(), forwardStart, returnOrderedPrimerLists, position - forwardStart, site, enzyme, searchParams, stat);
+		PrimerCandidateTable validDownstreamPrimers = new PrimerCandidateTable(PrimerTypes.reversePrimer, searchParams);
+		PrimerCandidateTable validHybridizationProbes = new PrimerCandidateTable(PrimerTypes.hybridizationProbe, searchParams);
+		if(validUpstreamPrimers.size() != 0){
+			validDownstreamPrimers = reverseTask.commit(concurrent ? reverseTask.join() : reverseTask.invoke(), stat);
+		}
+		else reverseTask.cancel(false);
+		if(probeTask != null && validUpstreamPrimers.size() != 0 && validDownstreamPrimers.size() != 0){
+			validHybridizationProbes = probeTask.commit(concurrent ? probeTask.join() : probeTask.invoke(), stat);
+		}
+		else if(probeTask != null) probeTask.cancel(false);
+		
+		return new PrimerCandidateTable[]{validUpstreamPrimers, validDownstreamPrimers, validHybridizationProbes};
 	}
 	
 	/**
@@ -558,18 +519,31 @@ public class PrimerSearch {
 	 * If no: accept this sequence
 	 * 
 	 * @param sequence the query sequence to scan for RSSs
+	 * @param enzyme the restriction enzyme specified by user
 	 * 
 	 * @return true if query sequence only contains one RSS for enzyme specified by user 
 	 */
-	private boolean doesNotContainAnotherRSS(String sequence){
-		try{
-			PrimerSearch.rssScanRegion = DNATools.createDNASequence(sequence, "");
-		}catch(IllegalSymbolException e){
-			e.printStackTrace();
+	private boolean doesNotContainAnotherRSS(String sequence, RestrictionEnzyme enzyme){
+		return this.getRestrictionSiteScanner(enzyme).countSites(sequence, 0, 2) == 1;
+	}
+	
+	/**
+	 * Returns the restriction site scanner of this primer search, compiled for restriction enzyme 'enzyme'.
+	 * 
+	 * The scanner is immutable and shared by all threads scanning restriction sites for primers without locking,
+	 * threads racing on a change of the enzyme at worst compile it more than once.
+	 * 
+	 * @param enzyme the restriction enzyme
+	 * 
+	 * @return the restriction site scanner of this primer search
+	 */
+	private RestrictionSiteScanner getRestrictionSiteScanner(RestrictionEnzyme enzyme){
+		EnzymeScanner scanner = this.restrictionSiteScanner;
+		if(scanner == null || enzyme != scanner.enzyme){
+			scanner = new EnzymeScanner(enzyme, new RestrictionSiteScanner(enzyme));
+			this.restrictionSiteScanner = scanner;
 		}
-		PrimerSearch.rssScanRegion = PrimerSearch.mapper.annotate(PrimerSearch.rssScanRegion);
-		
-		return PrimerSearch.rssScanRegion.countFeatures() == 1;
+		return scanner.scanner;
 	}
 	
 	/**
@@ -601,13 +575,13 @@ public class PrimerSearch {
 		Iterator<RestrictionSite> allRSSIterator = sites[refinePosition].getSequenceRegion().getCurrentRestrictionSitesIterator();
 		if(allRSSIterator == null) allRSSIterator = sites[refinePosition].getSequenceRegion().getRestrictionSitesIterator(true);
 		RestrictionSite nextBestSite = null;
-		Primer[] validUpstreamPrimers = new Primer[0];
-		Primer[] validDownstreamPrimers = new Primer[0];
-		Primer[] validHybridizationProbes = new Primer[0];
+		PrimerCandidateTable validUpstreamPrimers = new PrimerCandidateTable(PrimerTypes.forwardPrimer, searchParams);
+		PrimerCandidateTable validDownstreamPrimers = new PrimerCandidateTable(PrimerTypes.reversePrimer, searchParams);
+		PrimerCandidateTable validHybridizationProbes = new PrimerCandidateTable(PrimerTypes.hybridizationProbe, searchParams);
 		
 		boolean returnOrderedPrimerLists = false;
 		
-		while((validUpstreamPrimers.length == 0 || validDownstreamPrimers.length == 0 || (searchParams.isPickTaqManProbe() && validHybridizationProbes.length == 0)) && allRSSIterator.hasNext()){
+		while((validUpstreamPrimers.size() == 0 || validDownstreamPrimers.size() == 0 || (searchParams.isPickTaqManProbe() && validHybridizationProbes.size() == 0)) && allRSSIterator.hasNext()){
 			nextBestSite = allRSSIterator.next();
 			
 			// if this restriction site is not already used as optimal restriction site
@@ -617,7 +591,7 @@ public class PrimerSearch {
 				if(position - searchParams.getMAX_AMPLICON_LENGTH()/2 < 0 || position + searchParams.getMAX_AMPLICON_LENGTH()/2 >= sequence.length()) continue; // terminate search with empty result (last element!)
 				String wholeAmplicon = sequence.substring(position - searchParams.getMAX_AMPLICON_LENGTH()/2, position + searchParams.getMAX_AMPLICON_LENGTH()/2);
 				
-				if(doesNotContainAnotherRSS(wholeAmplicon)){
+				if(doesNotContainAnotherRSS(wholeAmplicon, enzyme)){
 					// compute start and end for scan region for 5' primer search
 					int forwardStart = position - searchParams.getMAX_AMPLICON_LENGTH()/2;
 					int forwardEnd = position - (searchParams.getMIN_AMPLICON_LENGTH()/2 - searchParams.getMAX_PRIMER_LENGTH());
@@ -642,23 +616,23 @@ public class PrimerSearch {
 					String reverseScanRegion = SeqTools.revcompDNA(sequence.substring(reverseEnd, reverseStart+1).toCharArray());
 					String hybProbeScanRegion = SeqTools.revcompDNA(sequence.substring(hybProbeEnd, hybProbeStart+1).toCharArray());
 					
-					validUpstreamPrimers = this.enumeratePrimers(forwardScanRegion, PrimerTypes.forwardPrimer, searchParams.getMIN_PRIMER_LENGTH(), searchParams.getMAX_PRIMER_LENGTH(), forwardStart, returnOrderedPrimerLists, position - forwardStart, nextBestSite, enzyme, searchParams);
-					if(validUpstreamPrimers.length != 0) validDownstreamPrimers = this.enumeratePrimers(reverseScanRegion, PrimerTypes.reversePrimer, searchParams.getMIN_PRIMER_LENGTH(), searchParams.getMAX_PRIMER_LENGTH(), reverseStart, returnOrderedPrimerLists, -position + reverseStart, nextBestSite, enzyme, searchParams);
+					validUpstreamPrimers = this.enumerateCandidates(forwardScanRegion, PrimerTypes.forwardPrimer, searchParams.getMIN_PRIMER_LENGTH(), searchParams.getMAX_PRIMER_LENGTH(), forwardStart, returnOrderedPrimerLists, position - forwardStart, nextBestSite, enzyme, searchParams, this.stat);
+					if(validUpstreamPrimers.size() != 0) validDownstreamPrimers = this.enumerateCandidates(reverseScanRegion, PrimerTypes.reversePrimer, searchParams.getMIN_PRIMER_LENGTH(), searchParams.getMAX_PRIMER_LENGTH(), reverseStart, returnOrderedPrimerLists, -position + reverseStart, nextBestSite, enzyme, searchParams, this.stat);
 					else{
-						validDownstreamPrimers = new Primer[0];
+						validDownstreamPrimers = new PrimerCandidateTable(PrimerTypes.reversePrimer, searchParams);
 						if(searchParams.isPRINT_DEBUG_LOG()) System.err.println("Empty upstream primer list");
 					}
-					if(validUpstreamPrimers.length != 0 && validDownstreamPrimers.length != 0 && searchParams.isPickTaqManProbe()) validHybridizationProbes = this.enumeratePrimers(hybProbeScanRegion, PrimerTypes.hybridizationProbe, searchParams.getTAQMAN_MIN_PRIMER_LENGTH(), searchParams.getTAQMAN_MAX_PRIMER_LENGTH(), hybProbeStart, returnOrderedPrimerLists, 1, nextBestSite, enzyme, searchParams);
+					if(validUpstreamPrimers.size() != 0 && validDownstreamPrimers.size() != 0 && searchParams.isPickTaqManProbe()) validHybridizationProbes = this.enumerateCandidates(hybProbeScanRegion, PrimerTypes.hybridizationProbe, searchParams.getTAQMAN_MIN_PRIMER_LENGTH(), searchParams.getTAQMAN_MAX_PRIMER_LENGTH(), hybProbeStart, returnOrderedPrimerLists, 1, nextBestSite, enzyme, searchParams, this.stat);
 					else{
-						validHybridizationProbes = new Primer[0];
-						if(searchParams.isPRINT_DEBUG_LOG() && validUpstreamPrimers.length == 0) System.out.println("Empty upstream primer list!"); 
-						else if(searchParams.isPRINT_DEBUG_LOG() && validDownstreamPrimers.length == 0) System.err.println("Empty downstream primer list");
+						validHybridizationProbes = new PrimerCandidateTable(PrimerTypes.hybridizationProbe, searchParams);
+						if(searchParams.isPRINT_DEBUG_LOG() && validUpstreamPrimers.size() == 0) System.out.println("Empty upstream primer list!"); 
+						else if(searchParams.isPRINT_DEBUG_LOG() && validDownstreamPrimers.size() == 0) System.err.println("Empty downstream primer list");
 					}
 					
-					if(searchParams.isPRINT_DEBUG_LOG() && searchParams.isPickTaqManProbe() && validHybridizationProbes.length == 0) System.err.println("Empty TaqMan probe list!");
+					if(searchParams.isPRINT_DEBUG_LOG() && searchParams.isPickTaqManProbe() && validHybridizationProbes.size() == 0) System.err.println("Empty TaqMan probe list!");
 					
 					// remember new, optimal restriction site 'nextBestSite' and all of its valid primers instead of 'old', unsuitable restriction site 'site'
-					if(validUpstreamPrimers.length != 0 && validDownstreamPrimers.length != 0 && (!searchParams.isPickTaqManProbe() || validHybridizationProbes.length != 0)){
+					if(validUpstreamPrimers.size() != 0 && validDownstreamPrimers.size() != 0 && (!searchParams.isPickTaqManProbe() || validHybridizationProbes.size() != 0)){
 						nextBestSite.setValidUpstreamPrimers(validUpstreamPrimers);
 						nextBestSite.setValidDownstreamPrimers(validDownstreamPrimers);
 						if(searchParams.isPickTaqManProbe()) nextBestSite.setValidTaqManProbes(validHybridizationProbes);
@@ -673,24 +647,138 @@ public class PrimerSearch {
 			}
 			//else throw new DuplicateUseOfRestrictionSiteException("Restriction site at position " + nextBestSite.getPosition() + " is used multiple times!");
 		}
-		if(nextBestSite != null && (validUpstreamPrimers.length == 0 || validDownstreamPrimers.length == 0 || (searchParams.isPickTaqManProbe() && validHybridizationProbes.length == 0)) && !allRSSIterator.hasNext()) throw new EmptyResultSetException("There are no more restriction sites to scan for in sequence region " + refinePosition + ": " + nextBestSite.getSequenceRegion().getSeqRegionStart() + "-" + nextBestSite.getSequenceRegion().getSeqRegionEnd() + " (currRSS: " + (nextBestSite.getSequenceRegion().getRestricionSiteIndex(nextBestSite)+1) + "/" + nextBestSite.getSequenceRegion().getNumRestrictionSites() + ")");
-		else if(nextBestSite == null && (validUpstreamPrimers.length == 0 || validDownstreamPrimers.length == 0 || (searchParams.isPickTaqManProbe() && validHybridizationProbes.length == 0)) && !allRSSIterator.hasNext()) throw new EmptyResultSetException("There are no more restriction sites to scan for in sequence region " + refinePosition);
+		if(nextBestSite != null && (validUpstreamPrimers.size() == 0 || validDownstreamPrimers.size() == 0 || (searchParams.isPickTaqManProbe() && validHybridizationProbes.size() == 0)) && !allRSSIterator.hasNext()) throw new EmptyResultSetException("There are no more restriction sites to scan for in sequence region " + refinePosition + ": " + nextBestSite.getSequenceRegion().getSeqRegionStart() + "-" + nextBestSite.getSequenceRegion().getSeqRegionEnd() + " (currRSS: " + (nextBestSite.getSequenceRegion().getRestricionSiteIndex(nextBestSite)+1) + "/" + nextBestSite.getSequenceRegion().getNumRestrictionSites() + ")");
+		else if(nextBestSite == null && (validUpstreamPrimers.size() == 0 || validDownstreamPrimers.size() == 0 || (searchParams.isPickTaqManProbe() && validHybridizationProbes.size() == 0)) && !allRSSIterator.hasNext()) throw new EmptyResultSetException("There are no more restriction sites to scan for in sequence region " + refinePosition);
 		
 		return sites;
 	}
 	
 	public int getPrimerCount(){
-		return this.primerCount;
+		return this.primerCount.get();
 	}
 	
 	public int getPrimerIndexCount(){
-		return this.primerIndexCount;
+		return this.primerIndexCount.get();
 	}
 	
 	public void setDoStat(boolean stat){
 		this.doStat = stat;
 	}
 	
+	/**
+	 * Scans a restriction site for primers, counting statistics of its own.
+	 * 
+	 * @author Sebastian Frhler
+	 *
+	 */
+	private class SiteScanTask extends RecursiveTask<RestrictionSite>{
+		private static final long serialVersionUID = 1L;
+		
+		private int index;
+		private List<RestrictionSite> optimalRSSs;
+		private Map<SimpleContig, Set<Integer>> optimalCoordinates;
+		private RestrictionEnzyme enzyme;
+		private PrimerSearchParameters searchParams;
+		private PrimerSearchStatistics stat = new PrimerSearchStatistics();
+		
+		public SiteScanTask(int index, List<RestrictionSite> optimalRSSs, Map<SimpleContig, Set<Integer>> optimalCoordinates, RestrictionEnzyme enzyme, PrimerSearchParameters searchParams){
+			this.index = index;
+			this.optimalRSSs = optimalRSSs;
+			this.optimalCoordinates = optimalCoordinates;
+			this.enzyme = enzyme;
+			this.searchParams = searchParams;
+		}
+		
+		protected RestrictionSite compute(){
+			return scanRestrictionSite(this.index, this.optimalRSSs, this.optimalCoordinates, this.enzyme, this.searchParams, this.stat);
+		}
+		
+		public PrimerSearchStatistics getStat(){
+			return this.stat;
+		}
+	}
+	
+	/**
+	 * Speculatively enumerates the valid primers of a scan region, counting statistics of its own.
+	 * 
+	 * The task only enumerates the primers satisfying all constraints but the mispriming check, the result is
+	 * completed and accounted for by commit(...) iff it is used at the restriction site.
+	 * 
+	 * @author Sebastian Frhler
+	 *
+	 */
+	private class ScanRegionTask extends RecursiveTask<PrimerCandidateTable>{
+		private static final long serialVersionUID = 1L;
+		
+		private String sequence;
+		private PrimerTypes primerType;
+		private int minlength;
+		private int maxlength;
+		private int regionStart;
+		private boolean returnOrdered;
+		private int fivePrimeDistToRSS;
+		private RestrictionSite restrictionSite;
+		private RestrictionEnzyme enzyme;
+		private PrimerSearchParameters searchParams;
+		private PrimerSearchStatistics stat = new PrimerSearchStatistics();
+		private SlidingWindowPrimerEnumerator enumerator;
+		
+		public ScanRegionTask(String sequence, PrimerTypes primerType, int minlength, int maxlength, int regionStart, boolean returnOrdered, int fivePrimeDistToRSS, RestrictionSite restrictionSite, RestrictionEnzyme enzyme, PrimerSearchParameters searchParams){
+			this.sequence = sequence;
+			this.primerType = primerType;
+			this.minlength = minlength;
+			this.maxlength = maxlength;
+			this.regionStart = regionStart;
+			this.returnOrdered = returnOrdered;
+			this.fivePrimeDistToRSS = fivePrimeDistToRSS;
+			this.restrictionSite = restrictionSite;
+			this.enzyme = enzyme;
+			this.searchParams = searchParams;
+		}
+		
+		protected PrimerCandidateTable compute(){
+			if(doStat) this.stat.incEnumeratePrimersCount();
+			this.enumerator = new SlidingWindowPrimerEnumerator(this.searchParams, getSequenceFilter(this.searchParams, this.enzyme), this.stat, doStat);
+			return this.enumerator.enumerateValidCandidates(this.sequence.toCharArray(), this.primerType, this.minlength, this.maxlength, this.regionStart, this.fivePrimeDistToRSS, this.restrictionSite);
+		}
+		
+		/**
+		 * Commits the primers enumerated by this task: sets the scan sequence of the restriction site, removes primers with misprimings
+		 * and adds the counts and statistics of this task.
+		 * 
+		 * @param candidates the result of this task
+		 * @param stat the statistics to add the statistics of this task to
+		 * 
+		 * @return the table of all valid primers of the scan region
+		 */
+		public PrimerCandidateTable commit(PrimerCandidateTable candidates, PrimerSearchStatistics stat){
+			setScanSequence(this.restrictionSite, this.primerType, this.sequence, this.regionStart);
+			if(this.searchParams.isPRINT_DEBUG_LOG()) System.err.println("Scan - enumerating primers in sequence: " + this.sequence);
+			this.enumerator.checkMisprimings(candidates);
+			if(this.returnOrdered) candidates.sortByDistanceToOptimalPrimer();
+			primerCount.addAndGet(this.enumerator.getCandidateCount());
+			primerIndexCount.addAndGet(this.enumerator.getIndexQueryCount());
+			stat.add(this.stat);
+			return candidates;
+		}
+	}
+	
+	/**
+	 * Holds a restriction site scanner together with the restriction enzyme it was compiled for.
+	 * 
+	 * @author Sebastian Frhler
+	 *
+	 */
+	private static class EnzymeScanner{
+		private final RestrictionEnzyme enzyme;
+		private final RestrictionSiteScanner scanner;
+		
+		public EnzymeScanner(RestrictionEnzyme enzyme, RestrictionSiteScanner scanner){
+			this.enzyme = enzyme;
+			this.scanner = scanner;
+		}
+	}
+	
 	public static void main(String[] args){
 		if(args.length < 7){
 			System.out.println("Usage: PrimerSearch <Target Region Sequence> <Background Region Index> <# Primer Pairs> <Enzyme Name> <Enzyme Site> <Enzyme Forward Cut Position> <Enzyme Reverse Cut Position>");
@@ -867,7 +955,7 @@ public class PrimerSearch {
 			if(!benchmark) System.out.println("Computing best primer set");
 
 			
-			SimpleGreedyPrimerPairPicking picker = new SimpleGreedyPrimerPairPicking();
+			PrimerPairPickingAlgorithm picker = searchParameters.getPRIMER_PAIR_PICKING_METHOD().createPicker();
 			PrimerPairSet bestPrimerPairSet = null; // = picker.pickBestPrimerSet(optimalSites, searchParameters);
 			
 //			AdvancedGreedyPrimerPairPicking picker = new AdvancedGreedyPrimerPairPicking();
@@ -944,8 +1032,9 @@ public class PrimerSearch {
 				}
 				
 				System.out.println("Total runtime: " + timer.getTotalTimestring());
-				System.out.println("Evaluated " + PrimerSearch.primerCount + " candidate primers in total.");
-				System.out.println("Evaluated " + PrimerSearch.primerIndexCount + " candidate primers in index in total.");
+				System.out.println("Evaluated " + search.getPrimerCount() + " candidate primers in total.");
+				System.out.println("Evaluated " + search.getPrimerIndexCount() + " candidate primers in index in total.");
+				if(searchParameters.isComputeScanningStatistics()) System.out.print(PackedSequenceCache.getStatistics());
 			}
 			else if(benchmark && bestPrimerPairSet == null){
 				System.out.print("\t FAILED!\t time:\t" + timer.getTotalTimestring());
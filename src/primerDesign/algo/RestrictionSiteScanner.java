@@ -0,0 +1,362 @@
+package primerDesign.algo;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import org.biojava.bio.molbio.RestrictionEnzyme;
+
+import primerDesign.util.SeqTools;
+import cern.colt.list.IntArrayList;
+
+/**
+ * Implements a scanner for the (possibly degenerate) recognition sites of several restriction enzymes on both strands of a sequence.
+ *
+ * The recognition sites of all enzymes are matched in a single pass over the sequence by a bit-parallel (shift-and) automaton:
+ * the recognition sites and the reverse complements of non-palindromic recognition sites are packed into 64 bit words,
+ * each IUPAC character of a recognition site sets the bits of all bases it represents.
+ * Degenerate recognition sites therefore do not have to be expanded into their concrete instances.
+ *
+ * Sites are reported by their 0-based start position on the forward strand, like the biojava restriction mapper each
+ * occurrence of the recognition site and each occurrence of its reverse complement (non-palindromic sites only) is reported.
+ * Non-ACGT characters in the sequence (e.g. N) never match.
+ *
+ * The scanner is immutable once compiled and may be shared among threads, e.g. to scan several contigs concurrently.
+ *
+ * @author Sebastian Frhler
+ *
+ */
+public class RestrictionSiteScanner {
+	private static final int WORD_SIZE = 64;
+	private static final int ALPHABET_SIZE = 4;
+
+	private String[] recognitionSites; // the upper case recognition site of each enzyme
+	private boolean[] palindromic;
+	private int numberOfWords;
+	private long[] baseMasks; // baseMasks[base * numberOfWords + word]: the bits of all pattern positions matching 'base'
+	private long[] startMasks; // the bits of the first position of each pattern
+	private long[] endMasks; // the bits of the last position of each pattern
+	private int[][] endEnzyme; // endEnzyme[word][bit]: the enzyme whose pattern ends at 'bit'
+
+	/**
+	 * Compiles a new restriction site scanner for a single restriction enzyme.
+	 *
+	 * @param enzyme the restriction enzyme
+	 */
+	public RestrictionSiteScanner(RestrictionEnzyme enzyme){
+		this(new String[]{enzyme.getRecognitionSite().seqString()});
+	}
+
+	/**
+	 * Compiles a new restriction site scanner for several restriction enzymes.
+	 *
+	 * @param enzymes the restriction enzymes, enzymes are indexed by their position in the list
+	 */
+	public RestrictionSiteScanner(List<RestrictionEnzyme> enzymes){
+		this(getRecognitionSites(enzymes));
+	}
+
+	/**
+	 * Compiles a new restriction site scanner for several recognition sites.
+	 *
+	 * @param recognitionSites the recognition sites in IUPAC notation, enzymes are indexed by their position in the array
+	 */
+	public RestrictionSiteScanner(String[] recognitionSites){
+		final int enzymes = recognitionSites.length;
+		this.recognitionSites = new String[enzymes];
+		this.palindromic = new boolean[enzymes];
+		String[] reverseComplements = new String[enzymes];
+
+		// assign patterns to words, a pattern must not span two words
+		int[] forwardWord = new int[enzymes];
+		int[] forwardBit = new int[enzymes];
+		int[] reverseWord = new int[enzymes];
+		int[] reverseBit = new int[enzymes];
+		int word = 0;
+		int bit = 0;
+		for(int i=0; i<enzymes; i++){
+			if(recognitionSites[i] == null || recognitionSites[i].length() == 0) throw new IllegalArgumentException("Recognition site must not be empty!");
+			if(recognitionSites[i].length() > WORD_SIZE) throw new IllegalArgumentException("Recognition sites are supported up to a length of " + WORD_SIZE + "bp: " + recognitionSites[i]);
+			this.recognitionSites[i] = recognitionSites[i].toUpperCase();
+			reverseComplements[i] = SeqTools.revcompDNA(this.recognitionSites[i].toCharArray());
+			this.palindromic[i] = this.recognitionSites[i].equals(reverseComplements[i]);
+
+			final int length = this.recognitionSites[i].length();
+			if(bit + length > WORD_SIZE){ word++; bit = 0; }
+			forwardWord[i] = word;
+			forwardBit[i] = bit;
+			bit += length;
+			if(!this.palindromic[i]){
+				if(bit + length > WORD_SIZE){ word++; bit = 0; }
+				reverseWord[i] = word;
+				reverseBit[i] = bit;
+				bit += length;
+			}
+		}
+		this.numberOfWords = (enzymes == 0) ? 0 : word + 1;
+
+		this.baseMasks = new long[ALPHABET_SIZE * this.numberOfWords];
+		this.startMasks = new long[this.numberOfWords];
+		this.endMasks = new long[this.numberOfWords];
+		this.endEnzyme = new int[this.numberOfWords][WORD_SIZE];
+		for(int i=0; i<enzymes; i++){
+			this.addPattern(this.recognitionSites[i], i, forwardWord[i], forwardBit[i]);
+			if(!this.palindromic[i]) this.addPattern(reverseComplements[i], i, reverseWord[i], reverseBit[i]);
+		}
+	}
+
+	/**
+	 * Returns the number of restriction enzymes of this scanner.
+	 *
+	 * @return the number of restriction enzymes of this scanner
+	 */
+	public int getNumberOfEnzymes(){
+		return this.recognitionSites.length;
+	}
+
+	/**
+	 * Returns the upper case recognition site of a restriction enzyme of this scanner.
+	 *
+	 * @param enzymeIndex the index of the restriction enzyme
+	 *
+	 * @return the upper case recognition site of restriction enzyme 'enzymeIndex'
+	 */
+	public String getRecognitionSite(int enzymeIndex){
+		return this.recognitionSites[enzymeIndex];
+	}
+
+	/**
+	 * Checks whether the recognition site of a restriction enzyme equals its reverse complement.
+	 *
+	 * @param enzymeIndex the index of the restriction enzyme
+	 *
+	 * @return true iff the recognition site of restriction enzyme 'enzymeIndex' is palindromic
+	 */
+	public boolean isPalindromic(int enzymeIndex){
+		return this.palindromic[enzymeIndex];
+	}
+
+	/**
+	 * Finds all restriction sites of all enzymes in a sequence.
+	 *
+	 * @param sequence the sequence to scan
+	 *
+	 * @return the sorted 0-based start positions of the restriction sites of each enzyme
+	 */
+	public IntArrayList[] findSites(CharSequence sequence){
+		final IntArrayList[] sites = new IntArrayList[this.getNumberOfEnzymes()];
+		for(int i=0; i<sites.length; i++) sites[i] = new IntArrayList();
+		this.scan(sequence, new SiteCollector(){
+			public boolean collect(int enzymeIndex, int start){
+				sites[enzymeIndex].add(start);
+				return true;
+			}
+		});
+		return sites;
+	}
+
+	/**
+	 * Finds all restriction sites of all enzymes in a sequence.
+	 *
+	 * @param sequence the sequence to scan
+	 *
+	 * @return the sorted 0-based start positions of the restriction sites of each enzyme
+	 */
+	public IntArrayList[] findSites(char[] sequence){
+		return this.findSites(CharBuffer.wrap(sequence));
+	}
+
+	/**
+	 * Counts the restriction sites of each enzyme in a sequence.
+	 *
+	 * @param sequence the sequence to scan
+	 *
+	 * @return the number of restriction sites of each enzyme in 'sequence'
+	 */
+	public int[] countSites(CharSequence sequence){
+		final int[] counts = new int[this.getNumberOfEnzymes()];
+		this.scan(sequence, new SiteCollector(){
+			public boolean collect(int enzymeIndex, int start){
+				counts[enzymeIndex]++;
+				return true;
+			}
+		});
+		return counts;
+	}
+
+	/**
+	 * Counts the restriction sites of one enzyme in a sequence, scanning stops as soon as 'limit' sites were found.
+	 *
+	 * @param sequence the sequence to scan
+	 * @param enzymeIndex the index of the restriction enzyme
+	 * @param limit the maximum number of sites to count
+	 *
+	 * @return min(limit, the number of restriction sites of enzyme 'enzymeIndex' in 'sequence')
+	 */
+	public int countSites(CharSequence sequence, final int enzymeIndex, final int limit){
+		if(limit <= 0) return 0;
+		final int[] count = new int[1];
+		this.scan(sequence, new SiteCollector(){
+			public boolean collect(int enzyme, int start){
+				if(enzyme == enzymeIndex) count[0]++;
+				return count[0] < limit;
+			}
+		});
+		return count[0];
+	}
+
+	/**
+	 * Checks for each enzyme whether it has at least one restriction site in a sequence, scanning stops as soon as all enzymes were found.
+	 *
+	 * @param sequence the sequence to scan
+	 *
+	 * @return true at index i iff enzyme i has at least one restriction site in 'sequence'
+	 */
+	public boolean[] containsSites(CharSequence sequence){
+		final boolean[] found = new boolean[this.getNumberOfEnzymes()];
+		final int[] remaining = new int[]{found.length};
+		if(found.length == 0) return found;
+		this.scan(sequence, new SiteCollector(){
+			public boolean collect(int enzymeIndex, int start){
+				if(!found[enzymeIndex]){
+					found[enzymeIndex] = true;
+					remaining[0]--;
+				}
+				return remaining[0] > 0;
+			}
+		});
+		return found;
+	}
+
+	/**
+	 * Scans a sequence once and reports each restriction site to a collector as soon as its last base was scanned.
+	 *
+	 * Sites are reported in ascending order of their end positions. All sites of one enzyme have the same length, thus the sites
+	 * of one enzyme are reported in ascending order of their start positions. Sites of different enzymes are not ordered by their
+	 * start positions (a longer site may start before a shorter site reported earlier), sites ending at the same position are
+	 * reported in no particular order.
+	 *
+	 * @param sequence the sequence to scan
+	 * @param collector the collector of restriction sites
+	 */
+	private void scan(CharSequence sequence, SiteCollector collector){
+		final int words = this.numberOfWords;
+		if(words == 0) return;
+		final long[] state = new long[words];
+		final int n = sequence.length();
+		int base;
+		long matches;
+		int bit;
+		for(int i=0; i<n; i++){
+			base = baseIndex(sequence.charAt(i));
+			if(base < 0){
+				Arrays.fill(state, 0);
+				continue;
+			}
+			// all patterns of an enzyme have the same length, the start position of each site reported for position i is i - length + 1
+			for(int w=0; w<words; w++){
+				state[w] = ((state[w] << 1) | this.startMasks[w]) & this.baseMasks[base * words + w];
+				matches = state[w] & this.endMasks[w];
+				while(matches != 0){
+					bit = Long.numberOfTrailingZeros(matches);
+					matches &= matches - 1;
+					int enzyme = this.endEnzyme[w][bit];
+					if(!collector.collect(enzyme, i - this.recognitionSites[enzyme].length() + 1)) return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds a pattern to the automaton.
+	 *
+	 * @param pattern the pattern in upper case IUPAC notation
+	 * @param enzymeIndex the index of the restriction enzyme of 'pattern'
+	 * @param word the word of the pattern
+	 * @param offset the bit offset of the pattern within 'word'
+	 */
+	private void addPattern(String pattern, int enzymeIndex, int word, int offset){
+		final int length = pattern.length();
+		this.startMasks[word] |= 1L << offset;
+		this.endMasks[word] |= 1L << (offset + length - 1);
+		this.endEnzyme[word][offset + length - 1] = enzymeIndex;
+		for(int i=0; i<length; i++){
+			for(int base : degenerateBases(pattern.charAt(i))){
+				this.baseMasks[base * this.numberOfWords + word] |= 1L << (offset + i);
+			}
+		}
+	}
+
+	/**
+	 * Returns the recognition sites of a list of restriction enzymes.
+	 *
+	 * @param enzymes the restriction enzymes
+	 *
+	 * @return the recognition sites of 'enzymes'
+	 */
+	private static String[] getRecognitionSites(List<RestrictionEnzyme> enzymes){
+		String[] result = new String[enzymes.size()];
+		for(int i=0; i<result.length; i++) result[i] = enzymes.get(i).getRecognitionSite().seqString();
+		return result;
+	}
+
+	/**
+	 * Returns the index of a base, A=0, C=1, G=2, T=3 or -1 iff 'base' is no such base.
+	 *
+	 * @param base the base, upper or lower case
+	 *
+	 * @return the index of 'base'
+	 */
+	private static int baseIndex(char base){
+		switch(base){
+			case 'A': case 'a': return 0;
+			case 'C': case 'c': return 1;
+			case 'G': case 'g': return 2;
+			case 'T': case 't': return 3;
+			default: return -1;
+		}
+	}
+
+	/**
+	 * Returns the base indices represented by an IUPAC character.
+	 *
+	 * @param code the upper case IUPAC character
+	 *
+	 * @return the base indices represented by 'code'
+	 */
+	private static int[] degenerateBases(char code){
+		switch(code){
+			case 'A': return new int[]{0};
+			case 'C': return new int[]{1};
+			case 'G': return new int[]{2};
+			case 'T': case 'U': return new int[]{3};
+			case 'M': return new int[]{0,1};
+			case 'R': return new int[]{0,2};
+			case 'W': return new int[]{0,3};
+			case 'S': return new int[]{1,2};
+			case 'Y': return new int[]{1,3};
+			case 'K': return new int[]{2,3};
+			case 'V': return new int[]{0,1,2};
+			case 'H': return new int[]{0,1,3};
+			case 'D': return new int[]{0,2,3};
+			case 'B': return new int[]{1,2,3};
+			case 'N': return new int[]{0,1,2,3};
+			default: throw new IllegalArgumentException("Unsupported IUPAC character: " + code);
+		}
+	}
+
+	/**
+	 * Receives the restriction sites found by a scan.
+	 */
+	private interface SiteCollector{
+		/**
+		 * Receives a restriction site.
+		 *
+		 * @param enzymeIndex the index of the restriction enzyme
+		 * @param start the 0-based start position of the site
+		 *
+		 * @return true iff scanning should continue
+		 */
+		public boolean collect(int enzymeIndex, int start);
+	}
+}
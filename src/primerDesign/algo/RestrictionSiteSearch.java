@@ -1,16 +1,9 @@
 package primerDesign.algo;
 
-import java.util.Iterator;
-import java.util.TreeSet;
 import java.util.Vector;
 
 import org.biojava.bio.molbio.RestrictionEnzyme;
-import org.biojava.bio.molbio.RestrictionEnzymeManager;
-import org.biojava.bio.molbio.RestrictionMapper;
 import org.biojava.bio.seq.DNATools;
-import org.biojava.bio.seq.Feature;
-import org.biojava.bio.seq.Sequence;
-import org.biojava.utils.SimpleThreadPool;
 
 import primerDesign.dsc.RestrictionSite;
 import primerDesign.dsc.SequenceRegion;
@@ -22,6 +15,7 @@ import primerDesign.util.SimpleContig;
 import primerDesign.util.SimpleTimer;
 import primerDesign.util.SlimFastaParser;
 import weka.core.FastVector;
+import cern.colt.list.IntArrayList;
 import cern.colt.list.ObjectArrayList;
 
 /**
@@ -86,28 +80,17 @@ public class RestrictionSiteSearch {
 	 * @return all restriction sites of enzyme 'enzyme' in sequence 'sequence
 	 */
 	private RestrictionSite[] findAllRestrictionSites(String sequence, RestrictionEnzyme enzyme, SequenceRegion sequenceRegion, int offset, PrimerSearchParameters searchParams){
-		RestrictionMapper mapper = new RestrictionMapper(new SimpleThreadPool(1, true));
-		mapper.addEnzyme(enzyme);
-		RestrictionEnzymeManager.register(enzyme, new TreeSet());
 		ObjectArrayList restrictionSites = new ObjectArrayList();
-		//Vector<RestrictionSite> restrictionSites = new Vector<RestrictionSite>();
 		
-		try{
-			Sequence dnaSeq = DNATools.createDNASequence(sequence, "");
-			Sequence newSeq = mapper.annotate(dnaSeq);
-			
-			Iterator iter = newSeq.features();
-			while(iter.hasNext()){
-				RestrictionSite site = new RestrictionSite(((Feature)iter.next()).getLocation().getMin() + offset, enzyme, searchParams);
-				site.setSequenceRegion(sequenceRegion);
-				site.setDistanceToIntervalMean(Math.abs(sequenceRegion.getMean()-site.getPosition()));
-				restrictionSites.add(site);
-				sequenceRegion.addRestrictionSite(site);
-				this.allRestrictionSites.add(site);
-			}
-		}
-		catch(Exception e){
-			e.printStackTrace();
+		IntArrayList positions = new RestrictionSiteScanner(enzyme).findSites(sequence)[0];
+		for(int i=0; i<positions.size(); i++){
+			// restriction site positions are 1-based (as formerly reported by the biojava restriction mapper)
+			RestrictionSite site = new RestrictionSite(positions.getQuick(i) + 1 + offset, enzyme, searchParams);
+			site.setSequenceRegion(sequenceRegion);
+			site.setDistanceToIntervalMean(Math.abs(sequenceRegion.getMean()-site.getPosition()));
+			restrictionSites.add(site);
+			sequenceRegion.addRestrictionSite(site);
+			this.allRestrictionSites.add(site);
 		}
 		
 		restrictionSites = RestrictionFragmentSizeFilter.excludeSitesMinMaxLength(restrictionSites, searchParams.getMIN_RESTRICTION_FRAGMENT_LENGTH(), searchParams.getMAX_RESTRICTION_FRAGMENT_LENGTH());
@@ -17,6 +17,12 @@ public class SantaLuciaTM implements PrimerMeltingTempCalculation {
 
 	private static HashMap<String, Double> deltaH = new HashMap<String, Double>();
 	private static HashMap<String, Double> deltaS = new HashMap<String, Double>();
+	// deltaH/ deltaS of dinucleotides (index: 4*first+second) and terminal bases (index: base) for in-place window evaluation, bases are indexed A=0, C=1, G=2, T=3
+	private static final char[] BASES = new char[]{'A', 'C', 'G', 'T'};
+	private static double[] dinucleotideDeltaH = new double[16];
+	private static double[] dinucleotideDeltaS = new double[16];
+	private static double[] terminalDeltaH = new double[4];
+	private static double[] terminalDeltaS = new double[4];
 	private static boolean isInitialized = false;
 	private static final int kilocalories = 1000;
 	private static final int temperatureDeltaG = 310;
@@ -87,6 +93,15 @@ public class SantaLuciaTM implements PrimerMeltingTempCalculation {
 		deltaS.put("G", -2.8);
 		deltaS.put("C", -2.8);
 		
+		for(int i=0; i<BASES.length; i++){
+			terminalDeltaH[i] = deltaH.get(String.valueOf(BASES[i]));
+			terminalDeltaS[i] = deltaS.get(String.valueOf(BASES[i]));
+			for(int j=0; j<BASES.length; j++){
+				dinucleotideDeltaH[4*i + j] = deltaH.get(String.valueOf(BASES[i]) + BASES[j]);
+				dinucleotideDeltaS[4*i + j] = deltaS.get(String.valueOf(BASES[i]) + BASES[j]);
+			}
+		}
+		
 		SantaLuciaTM.isInitialized = true;
 	}
 	
@@ -102,52 +117,68 @@ public class SantaLuciaTM implements PrimerMeltingTempCalculation {
 	 * @return the melting temperature of primer 'primr'
 	 */
 	public double computeMonoAndDivalentCationCorrectedTM(String primr, double primerConcentration, double cationConcentration, double divalentCationConcentration, double dNTPConcentration){
+		return computeMonoAndDivalentCationCorrectedTM(primr.toCharArray(), 0, primr.length(), primerConcentration, cationConcentration, divalentCationConcentration, dNTPConcentration);
+	}
+	
+	/**
+	 * Computes the melting temperature of the primer sequence[start..start+length-1].
+	 * 
+	 * The primer is evaluated in place, bases may be upper or lower case.
+	 * 
+	 * @param sequence the sequence containing the primer
+	 * @param start the start of the primer within 'sequence'
+	 * @param length the length of the primer
+	 * @param primerConcentration the primer concentration in mol!
+	 * @param cationConcentration the concentration of monovalent cations in mol!
+	 * @param divalentCationConcentration the concentration of divalent cations in mol!
+	 * @param dNTPConcentration the concentration of dNTPs in mol!
+	 * 
+	 * @return the melting temperature of the primer sequence[start..start+length-1]
+	 */
+	public double computeMonoAndDivalentCationCorrectedTM(char[] sequence, int start, int length, double primerConcentration, double cationConcentration, double divalentCationConcentration, double dNTPConcentration){
 		double tm = 0;
 		double dH = 0;
 		double dS = 0;
 		
-		if(primr.length() < 2) throw new IllegalArgumentException("Primer length must be >= 2!");
-		if(primr.length() > Constants.MAX_PRIMER_LENGTH_FOR_TM_CALC) throw new IllegalArgumentException("Tm calculation for primers is only valid for primer lengths <= " + Constants.MAX_PRIMER_LENGTH_FOR_TM_CALC + "bp");
+		if(length < 2) throw new IllegalArgumentException("Primer length must be >= 2!");
+		if(length > Constants.MAX_PRIMER_LENGTH_FOR_TM_CALC) throw new IllegalArgumentException("Tm calculation for primers is only valid for primer lengths <= " + Constants.MAX_PRIMER_LENGTH_FOR_TM_CALC + "bp");
+		if(start < 0 || start + length > sequence.length) throw new IndexOutOfBoundsException("Primer " + start + "-" + (start + length) + " exceeds sequence of length " + sequence.length);
 		if(primerConcentration <= 0 ) throw new IllegalArgumentException("Primer concentration (in mol!) must be > 0!!");
 		if(cationConcentration < 0) throw new IllegalArgumentException("The cation concentration must be >= 0!!!");
 		if(divalentCationConcentration < 0) throw new IllegalArgumentException("The divalent cation concentration must be >= 0!!!");
 		if(dNTPConcentration < 0) throw new IllegalArgumentException("The dNTP concentration must be >= 0!!!");
 		
-		String primer = primr.toUpperCase();
-		if(divalentCationConcentration > 0 && dNTPConcentration > 0){
-			cationConcentration += divalentToMonovalent(divalentCationConcentration*1000, dNTPConcentration*1000)/1000;
-		}
+		cationConcentration = effectiveMonovalentCationConcentration(cationConcentration, divalentCationConcentration, dNTPConcentration);
 		
 		// symmetry correction as in Primer3 & SantaLucia et.al.
-		if(isSymmetric(primr)) dS += -1.4;
-		
-		// compute delta S and delta H according to Table 2 in SantaLucia et.al.
-		for(int i=0; i < primer.length()-1; i++){
+		boolean symmetry = isSymmetric(sequence, start, length);
+		if(symmetry) dS += -1.4;
+		
+		// compute delta S and delta H according to Table 2 in SantaLucia et.al., same order of summation as for primer strings
+		int previous = baseIndex(sequence[start]);
+		int current;
+		for(int i=0; i < length-1; i++){
+			current = baseIndex(sequence[start + i + 1]);
 			if(i == 0){
 				// add initial bp penalty
-				dH += deltaH.get(primer.substring(0, 1));
-				dS += deltaS.get(primer.substring(0, 1));
+				dH += terminalDeltaH[previous];
+				dS += terminalDeltaS[previous];
 			}
-			if(i == primer.length()-2){
+			if(i == length-2){
 				// add terminal bp penalty
-				dH += deltaH.get(primer.substring(i+1, i+2));
-				dS += deltaS.get(primer.substring(i+1, i+2));
+				dH += terminalDeltaH[current];
+				dS += terminalDeltaS[current];
 			}
 			// add dinucleotide penalty
-			try{
-			dH += deltaH.get(primer.substring(i, i+2));
-			dS += deltaS.get(primer.substring(i, i+2));
-			}
-			catch(Exception e){
-				e.printStackTrace();
-			}
+			dH += dinucleotideDeltaH[4*previous + current];
+			dS += dinucleotideDeltaS[4*previous + current];
+			previous = current;
 		}
 		
 		if(cationConcentration > 0){	
-			dS += 0.368 * (primer.length() - 1) * Math.log(cationConcentration);
+			dS += 0.368 * (length - 1) * Math.log(cationConcentration);
 		}
-			
-		boolean symmetry = isSymmetric(primr);
+		
 		if(symmetry){
 			tm = dH * SantaLuciaTM.kilocalories/(dS + Constants.GAS_CONST_R * Math.log(primerConcentration)) + Constants.ABSOLUTE_ZERO_TEMP;
 		}
@@ -169,48 +200,73 @@ public class SantaLuciaTM implements PrimerMeltingTempCalculation {
 	 * @return the worst-case (optimal, complete binding) binding energy of the oligonucleotide sequence provided (in kcal/mol) at 37C
 	 */
 	public double computeDeltaG(String primer, double primerConcentration, double cationConcentration, double divalentCationConcentration, double dNTPConcentration){
-		
-		primer = primer.toUpperCase();
-		
+		return computeDeltaG(primer.toCharArray(), 0, primer.length(), primerConcentration, cationConcentration, divalentCationConcentration, dNTPConcentration);
+	}
+	
+	/**
+	 * Computes the worst-case (optimal, complete binding) binding energy of the oligonucleotide sequence[start..start+length-1] (in kcal/mol) at 37C.
+	 * 
+	 * @param sequence the sequence containing the oligonucleotide
+	 * @param start the start of the oligonucleotide within 'sequence'
+	 * @param length the length of the oligonucleotide
+	 * @param primerConcentration the oligonucleotide concentration
+	 * @param cationConcentration the monovalen cation concentration
+	 * @param divalentCationConcentration the divalent cation concentration
+	 * @param dNTPConcentration the dNTP concentration
+	 * 
+	 * @return the worst-case (optimal, complete binding) binding energy of the oligonucleotide sequence[start..start+length-1] (in kcal/mol) at 37C
+	 */
+	public double computeDeltaG(char[] sequence, int start, int length, double primerConcentration, double cationConcentration, double divalentCationConcentration, double dNTPConcentration){
 		double dH = 0;
 		double dS = 0;
 		
-		if(divalentCationConcentration > 0 && dNTPConcentration > 0){
-			cationConcentration += divalentToMonovalent(divalentCationConcentration*1000, dNTPConcentration*1000)/1000;
-		}
+		if(length < 2) throw new IllegalArgumentException("Primer length must be >= 2!");
+		if(start < 0 || start + length > sequence.length) throw new IndexOutOfBoundsException("Primer " + start + "-" + (start + length) + " exceeds sequence of length " + sequence.length);
+		
+		cationConcentration = effectiveMonovalentCationConcentration(cationConcentration, divalentCationConcentration, dNTPConcentration);
 		
 		// symmetry correction as in Primer3 & SantaLucia et.al.
-		if(isSymmetric(primer)) dS += -1.4;
+		if(isSymmetric(sequence, start, length)) dS += -1.4;
 		
-		// compute delta S and delta H according to Table 2 in SantaLucia et.al.
-		for(int i=0; i < primer.length()-1; i++){
+		// sum up all neighbor-terms plus initiation parameters at both ends of the primer
+		int previous = baseIndex(sequence[start]);
+		int current;
+		for(int i=0; i < length-1; i++){
+			current = baseIndex(sequence[start + i + 1]);
 			if(i == 0){
-				// add initial bp penalty
-				dH += deltaH.get(primer.substring(0, 1));
-				dS += deltaS.get(primer.substring(0, 1));
+				dH += terminalDeltaH[previous];
+				dS += terminalDeltaS[previous];
 			}
-			if(i == primer.length()-2){
-				// add terminal bp penalty
-				dH += deltaH.get(primer.substring(i+1, i+2));
-				dS += deltaS.get(primer.substring(i+1, i+2));
-			}
-			// add dinucleotide penalty
-			try{
-			dH += deltaH.get(primer.substring(i, i+2));
-			dS += deltaS.get(primer.substring(i, i+2));
-			}
-			catch(Exception e){
-				e.printStackTrace();
+			if(i == length-2){
+				dH += terminalDeltaH[current];
+				dS += terminalDeltaS[current];
 			}
+			dH += dinucleotideDeltaH[4*previous + current];
+			dS += dinucleotideDeltaS[4*previous + current];
+			previous = current;
 		}
 		
 		if(cationConcentration > 0){	
-			dS += 0.368 * (primer.length() - 1) * Math.log(cationConcentration);
+			dS += 0.368 * (length - 1) * Math.log(cationConcentration);
 		}
 		
 		return (dH * SantaLuciaTM.kilocalories - SantaLuciaTM.temperatureDeltaG * dS) / SantaLuciaTM.kilocalories;
 	}
 	
+	/**
+	 * Creates a table computing melting temperature and deltaG of any window of a scan region in constant time.
+	 * 
+	 * @param region the scan region
+	 * @param cationConcentration the concentration of monovalent cations in mol!
+	 * @param divalentCationConcentration the concentration of divalent cations in mol!
+	 * @param dNTPConcentration the concentration of dNTPs in mol!
+	 * 
+	 * @return the nearest-neighbor table of the scan region
+	 */
+	public NearestNeighborTMTable createScanRegionTable(char[] region, double cationConcentration, double divalentCationConcentration, double dNTPConcentration){
+		return new NearestNeighborTMTable(region, cationConcentration, divalentCationConcentration, dNTPConcentration);
+	}
+	
 	/* (non-Javadoc)
 	 * @see primerDesign.algo.PrimerMeltingTempCalculation#computeTM(java.lang.String, double)
 	 */
@@ -232,48 +288,98 @@ public class SantaLuciaTM implements PrimerMeltingTempCalculation {
 	}
 	
 	/**
-	 * Computes if a primer sequence is self-symmetric.
+	 * Computes if the primer sequence[start..start+length-1] is self-symmetric.
 	 * 
-	 * @param primer the primer for which symmetry should be computed
+	 * @param sequence the sequence containing the primer
+	 * @param start the start of the primer within 'sequence'
+	 * @param length the length of the primer
 	 * 
 	 * @return true, iff the primer is self-symmetric
 	 */
-	private boolean isSymmetric(String primer){		
-		if(primer.length() % 2 != 0){
-			return false;
-		}
-		else{
-			String inversePrimer = (new StringBuilder(primer)).reverse().toString();
-			char forward;
-			char inverse;
-			for(int i=0; i<primer.length(); i++){
-				forward = primer.charAt(i);
-				inverse = inversePrimer.charAt(i);
-				if(inverse != complementBase(forward)){
-					return false;
-				}
-			}
-			return true;
+	private boolean isSymmetric(char[] sequence, int start, int length){
+		if(length % 2 != 0) return false;
+		for(int i=0; i<length/2; i++){
+			// complementary bases sum up to 3 (A=0/T=3, C=1/G=2)
+			if(baseIndex(sequence[start + i]) + baseIndex(sequence[start + length - 1 - i]) != 3) return false;
 		}
+		return true;
 	}
 	
 	/**
-	 * Returns the complementary DNA base of a specific base.
-	 * @param base the DNA base to return the complementary base for
+	 * Returns the index of a DNA base in the dinucleotide and terminal base tables.
+	 * 
+	 * @param base the DNA base
 	 * 
-	 * @return the complementary DNA base of the respective base
+	 * @return the index of the DNA base: A=0, C=1, G=2, T=3
 	 */
-	private char complementBase(char base){
-		char ret;
-		
+	static int baseIndex(char base){
 		switch(base){
-			case 'A' : ret = 'T'; break;
-			case 'T' : ret = 'A'; break;
-			case 'G' : ret = 'C'; break;
-			case 'C' : ret = 'G'; break;
+			case 'A': case 'a': return 0;
+			case 'C': case 'c': return 1;
+			case 'G': case 'g': return 2;
+			case 'T': case 't': return 3;
 			default: throw new IllegalArgumentException("The DNA base " + base + " is no valid base!");
 		}
-		return ret;
+	}
+	
+	/**
+	 * Returns the monovalent cation concentration including the monovalent equivalent of divalent cations.
+	 * 
+	 * @param cationConcentration the concentration of monovalent cations in mol!
+	 * @param divalentCationConcentration the concentration of divalent cations in mol!
+	 * @param dNTPConcentration the concentration of dNTPs in mol!
+	 * 
+	 * @return the effective monovalent cation concentration in mol!
+	 */
+	static double effectiveMonovalentCationConcentration(double cationConcentration, double divalentCationConcentration, double dNTPConcentration){
+		if(divalentCationConcentration > 0 && dNTPConcentration > 0){
+			cationConcentration += divalentToMonovalent(divalentCationConcentration*1000, dNTPConcentration*1000)/1000;
+		}
+		return cationConcentration;
+	}
+	
+	/**
+	 * Returns deltaH of a dinucleotide (index: 4*first+second, bases indexed A=0, C=1, G=2, T=3).
+	 * 
+	 * @param dinucleotide the index of the dinucleotide
+	 * 
+	 * @return deltaH of the dinucleotide in kcal/mol
+	 */
+	static double getDinucleotideDeltaH(int dinucleotide){
+		return dinucleotideDeltaH[dinucleotide];
+	}
+	
+	/**
+	 * Returns deltaS of a dinucleotide (index: 4*first+second, bases indexed A=0, C=1, G=2, T=3).
+	 * 
+	 * @param dinucleotide the index of the dinucleotide
+	 * 
+	 * @return deltaS of the dinucleotide in cal/(K*mol)
+	 */
+	static double getDinucleotideDeltaS(int dinucleotide){
+		return dinucleotideDeltaS[dinucleotide];
+	}
+	
+	/**
+	 * Returns the initiation deltaH of a terminal base (bases indexed A=0, C=1, G=2, T=3).
+	 * 
+	 * @param base the index of the terminal base
+	 * 
+	 * @return the initiation deltaH of the terminal base in kcal/mol
+	 */
+	static double getTerminalDeltaH(int base){
+		return terminalDeltaH[base];
+	}
+	
+	/**
+	 * Returns the initiation deltaS of a terminal base (bases indexed A=0, C=1, G=2, T=3).
+	 * 
+	 * @param base the index of the terminal base
+	 * 
+	 * @return the initiation deltaS of the terminal base in cal/(K*mol)
+	 */
+	static double getTerminalDeltaS(int base){
+		return terminalDeltaS[base];
 	}
 	
 	/**
@@ -288,7 +394,7 @@ public class SantaLuciaTM implements PrimerMeltingTempCalculation {
 	 * 
 	 * @throws IllegalArgumentException if divalent or dntp is < 0 (Concentration must be positive!)
 	 */
-	private double divalentToMonovalent(double divalent, double dntp){
+	private static double divalentToMonovalent(double divalent, double dntp){
 		
 		if(divalent == 0) dntp = 0;
 		if(divalent < 0 || dntp < 0) throw new IllegalArgumentException("Arguments divalent AND dntp must be >= 0!!"); 
@@ -0,0 +1,267 @@
+package primerDesign.algo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import primerDesign.dsc.SequenceFilterMask;
+import primerDesign.util.Constants;
+import primerDesign.util.SeqTools;
+
+/**
+ * Implements a multi-pattern automaton (Aho-Corasick) recognizing all sequence patterns a primer must not contain.
+ *
+ * The automaton recognizes single nucleotide repeats of length MAX_POLY_X_LENGTH and the (possibly degenerate) recognition site of
+ * a restriction enzyme on both strands, ambiguity codes and masked bases are recognized per position.
+ * A scan region is scanned once, the resulting per-position masks answer for each candidate primer whether it has to be rejected.
+ *
+ * The automaton is immutable once compiled and may be shared among threads.
+ *
+ * @author Sebastian Frhler
+ *
+ */
+public class SequenceFilterAutomaton {
+	private static final int ALPHABET_SIZE = 4;
+	private static final int MAX_SITE_EXPANSIONS = 1 << 12;
+	private static final char MASKING_CHAR = Constants.REPETITIVE_ELEMENT_CHARACTER.toUpperCase().charAt(0);
+
+	private int maxPolyX;
+	private String recognitionSite;
+	private int[][] transitions; // transitions[state][base]: the successor state, failure transitions are resolved at compile time
+	private byte[] output; // output[state]: the bit mask of categories whose pattern ends in 'state'
+	private int[] categoryLength;
+
+	/**
+	 * Compiles a new sequence filter automaton.
+	 *
+	 * @param maxPolyX the minimum length of single nucleotide repeats to be recognized
+	 * @param recognitionSite the recognition site of the restriction enzyme in IUPAC notation, may be null
+	 */
+	public SequenceFilterAutomaton(int maxPolyX, String recognitionSite){
+		if(maxPolyX < 1) throw new IllegalArgumentException("MAX_POLY_X_LENGTH must be > 0!");
+		this.maxPolyX = maxPolyX;
+		this.recognitionSite = (recognitionSite == null || recognitionSite.length() == 0) ? null : recognitionSite.toUpperCase();
+
+		this.categoryLength = new int[SequenceFilterMask.NUMBER_OF_CATEGORIES];
+		this.categoryLength[SequenceFilterMask.AMBIGUITY_CODE] = 1;
+		this.categoryLength[SequenceFilterMask.MASKED_BASE] = 1;
+		this.categoryLength[SequenceFilterMask.SINGLE_NUCLEOTIDE_REPEAT] = maxPolyX;
+		this.categoryLength[SequenceFilterMask.RESTRICTION_SITE] = (this.recognitionSite == null) ? Integer.MAX_VALUE : this.recognitionSite.length();
+
+		ArrayList<int[]> trie = new ArrayList<int[]>();
+		ArrayList<Byte> trieOutput = new ArrayList<Byte>();
+		trie.add(newState());
+		trieOutput.add((byte) 0);
+
+		int[] pattern = new int[maxPolyX];
+		for(int base=0; base<ALPHABET_SIZE; base++){
+			Arrays.fill(pattern, base);
+			addPattern(trie, trieOutput, pattern, SequenceFilterMask.SINGLE_NUCLEOTIDE_REPEAT);
+		}
+		if(this.recognitionSite != null){
+			addDegeneratePattern(trie, trieOutput, this.recognitionSite.toCharArray());
+			addDegeneratePattern(trie, trieOutput, SeqTools.revcompDNA(this.recognitionSite.toCharArray()).toCharArray());
+		}
+		this.compile(trie, trieOutput);
+	}
+
+	/**
+	 * Scans a scan region once and returns the per-position filter masks of the scan region.
+	 *
+	 * @param sequence the scan region
+	 *
+	 * @return the filter masks of the scan region
+	 */
+	public SequenceFilterMask scan(char[] sequence){
+		byte[] endMask = new byte[sequence.length];
+		int state = 0;
+		int base;
+		char current;
+		for(int i=0; i<sequence.length; i++){
+			current = Character.toUpperCase(sequence[i]);
+			base = baseIndex(current);
+			if(base >= 0){
+				state = this.transitions[state][base];
+				endMask[i] = this.output[state];
+			}
+			else{
+				// no pattern can span a non-ACGT character
+				state = 0;
+				if(current == MASKING_CHAR) endMask[i] = 1 << SequenceFilterMask.MASKED_BASE;
+				else if(isAmbiguityCode(current)) endMask[i] = 1 << SequenceFilterMask.AMBIGUITY_CODE;
+			}
+		}
+		return new SequenceFilterMask(endMask, this.categoryLength);
+	}
+
+	/**
+	 * Returns true iff this automaton recognizes the patterns specified.
+	 *
+	 * @param maxPolyX the minimum length of single nucleotide repeats to be recognized
+	 * @param recognitionSite the recognition site of the restriction enzyme, may be null
+	 *
+	 * @return true iff this automaton recognizes the patterns specified
+	 */
+	public boolean isCompiledFor(int maxPolyX, String recognitionSite){
+		if(recognitionSite != null && recognitionSite.length() == 0) recognitionSite = null;
+		if(this.maxPolyX != maxPolyX) return false;
+		if(recognitionSite == null) return this.recognitionSite == null;
+		return recognitionSite.equalsIgnoreCase(this.recognitionSite);
+	}
+
+	/**
+	 * Adds all concrete instances of a degenerate pattern to the trie.
+	 *
+	 * @param trie the trie
+	 * @param trieOutput the output of each trie state
+	 * @param site the degenerate pattern in upper case IUPAC notation
+	 */
+	private static void addDegeneratePattern(ArrayList<int[]> trie, ArrayList<Byte> trieOutput, char[] site){
+		int[][] choices = new int[site.length][];
+		long expansions = 1;
+		for(int i=0; i<site.length; i++){
+			choices[i] = degenerateBases(site[i]);
+			expansions *= choices[i].length;
+			if(expansions > MAX_SITE_EXPANSIONS) throw new IllegalArgumentException("Restriction site is too degenerate: " + new String(site));
+		}
+		int[] pattern = new int[site.length];
+		int[] choice = new int[site.length];
+		for(long e=0; e<expansions; e++){
+			for(int i=0; i<site.length; i++) pattern[i] = choices[i][choice[i]];
+			addPattern(trie, trieOutput, pattern, SequenceFilterMask.RESTRICTION_SITE);
+			// advance to the next combination of bases
+			for(int i=site.length-1; i>=0; i--){
+				if(++choice[i] < choices[i].length) break;
+				choice[i] = 0;
+			}
+		}
+	}
+
+	/**
+	 * Adds a pattern to the trie.
+	 *
+	 * @param trie the trie
+	 * @param trieOutput the output of each trie state
+	 * @param pattern the pattern as base indices
+	 * @param category the filter category of the pattern
+	 */
+	private static void addPattern(ArrayList<int[]> trie, ArrayList<Byte> trieOutput, int[] pattern, int category){
+		int state = 0;
+		for(int base : pattern){
+			if(trie.get(state)[base] < 0){
+				trie.get(state)[base] = trie.size();
+				trie.add(newState());
+				trieOutput.add((byte) 0);
+			}
+			state = trie.get(state)[base];
+		}
+		trieOutput.set(state, (byte) (trieOutput.get(state) | (1 << category)));
+	}
+
+	/**
+	 * Computes failure links in breadth first order and resolves them into a complete transition table.
+	 *
+	 * @param trie the trie
+	 * @param trieOutput the output of each trie state
+	 */
+	private void compile(ArrayList<int[]> trie, ArrayList<Byte> trieOutput){
+		final int states = trie.size();
+		this.transitions = new int[states][];
+		this.output = new byte[states];
+		int[] failure = new int[states];
+		int[] queue = new int[states];
+		int head = 0;
+		int tail = 0;
+
+		this.transitions[0] = trie.get(0).clone();
+		this.output[0] = trieOutput.get(0);
+		for(int base=0; base<ALPHABET_SIZE; base++){
+			int child = this.transitions[0][base];
+			if(child < 0) this.transitions[0][base] = 0;
+			else{
+				failure[child] = 0;
+				queue[tail++] = child;
+			}
+		}
+		while(head < tail){
+			int state = queue[head++];
+			this.transitions[state] = trie.get(state).clone();
+			this.output[state] = (byte) (trieOutput.get(state) | this.output[failure[state]]);
+			for(int base=0; base<ALPHABET_SIZE; base++){
+				int child = this.transitions[state][base];
+				if(child < 0) this.transitions[state][base] = this.transitions[failure[state]][base];
+				else{
+					failure[child] = this.transitions[failure[state]][base];
+					queue[tail++] = child;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns a new trie state without transitions.
+	 *
+	 * @return a new trie state without transitions
+	 */
+	private static int[] newState(){
+		return new int[]{-1, -1, -1, -1};
+	}
+
+	/**
+	 * Returns the index of an upper case base, A=0, C=1, G=2, T=3 or -1 iff 'base' is no such base.
+	 *
+	 * @param base the base
+	 *
+	 * @return the index of 'base'
+	 */
+	private static int baseIndex(char base){
+		switch(base){
+			case 'A': return 0;
+			case 'C': return 1;
+			case 'G': return 2;
+			case 'T': return 3;
+			default: return -1;
+		}
+	}
+
+	/**
+	 * Returns the base indices represented by an IUPAC character.
+	 *
+	 * @param code the upper case IUPAC character
+	 *
+	 * @return the base indices represented by 'code'
+	 */
+	private static int[] degenerateBases(char code){
+		switch(code){
+			case 'A': return new int[]{0};
+			case 'C': return new int[]{1};
+			case 'G': return new int[]{2};
+			case 'T': case 'U': return new int[]{3};
+			case 'M': return new int[]{0,1};
+			case 'R': return new int[]{0,2};
+			case 'W': return new int[]{0,3};
+			case 'S': return new int[]{1,2};
+			case 'Y': return new int[]{1,3};
+			case 'K': return new int[]{2,3};
+			case 'V': return new int[]{0,1,2};
+			case 'H': return new int[]{0,1,3};
+			case 'D': return new int[]{0,2,3};
+			case 'B': return new int[]{1,2,3};
+			case 'N': return new int[]{0,1,2,3};
+			default: throw new IllegalArgumentException("Unsupported IUPAC character: " + code);
+		}
+	}
+
+	/**
+	 * Returns true iff 'base' is an IUPAC ambiguity code (except the masking character).
+	 *
+	 * @param base the upper case base
+	 *
+	 * @return true iff 'base' is an IUPAC ambiguity code
+	 */
+	private static boolean isAmbiguityCode(char base){
+		switch(base){
+			case 'M': case 'R': case 'W': case 'S': case 'Y': case 'K': case 'V': case 'H': case 'D': case 'B': return true;
+			default: return false;
+		}
+	}
+}
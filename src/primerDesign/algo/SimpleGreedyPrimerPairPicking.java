@@ -5,7 +5,8 @@ package primerDesign.algo;
 
 import java.util.Arrays;
 import java.util.Random;
-import java.util.Vector;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 import primerDesign.dsc.PrimerAlignmentScores;
 import primerDesign.dsc.PrimerPair;
@@ -14,6 +15,7 @@ import primerDesign.dsc.PrimerPairSet;
 import primerDesign.dsc.RestrictionSite;
 import primerDesign.util.Constants;
 import primerDesign.util.EmptyResultSetException;
+import primerDesign.util.ForkJoinPools;
 import primerDesign.util.MyExtendedMath;
 import primerDesign.util.PrimerSearchParameters;
 import primerDesign.util.SimpleTimer;
@@ -32,15 +34,18 @@ import cern.colt.list.ObjectArrayList;
  *  This set of primer pairs has the most-homogenous score-of-single primer pairs of all enumerated sets.
  * 
  * 
- * @author Sebastian Fr�hler
+ * @author Sebastian Frhler
  *
  */
-public class SimpleGreedyPrimerPairPicking{ // implements PrimerPickingAlgorithm {
+public class SimpleGreedyPrimerPairPicking implements PrimerPairPickingAlgorithm {
 	private boolean printTimingStatusInfo = false;
 	private boolean printDebugInfo = true;
 	private SimpleTimer timer = new SimpleTimer();
 	private boolean doStat = true;
 	PrimerPairPickingStatistics stat = null;
+	private static final int TASKS_PER_THREAD = 8; // the number of leaf ranges per worker, allows idle workers to steal from slow ranges
+	private volatile boolean cancelled = false;
+	private volatile PairSetEvalJob currentJob = null;
 
 	/**
 	 * @param printTimingStatusInfo the printTimingStatusInfo to set
@@ -57,37 +62,41 @@ public class SimpleGreedyPrimerPairPicking{ // implements PrimerPickingAlgorithm
 	}
 
 	/* (non-Javadoc)
-	 * @see primerDesign.algo.PrimerPickingAlgorithm#pickBestPrimerSet(primerDesign.dsc.RestrictionSite[])
+	 * @see primerDesign.algo.PrimerPairPickingAlgorithm#pickBestPrimerSet(primerDesign.dsc.RestrictionSite[], primerDesign.util.PrimerSearchParameters)
 	 */
 	public PrimerPairSet pickBestPrimerSet(RestrictionSite[] optimalSites, PrimerSearchParameters searchParams) {
-		if(optimalSites.length < 2) throw new IllegalArgumentException("The list of optimal restriction sites must contain >= 2 elements!");
-		
-		// enumerate valid primer pairs at each restriction site
-		if(printTimingStatusInfo) System.out.print("\nEnumerating valid primer pairs for each restriction site");
-		
-		this.doStat = searchParams.isComputePickingStatistics();
-		
-		for(int i=0; i<optimalSites.length; i++){
-			if(!optimalSites[i].hasEnumeratedPrimerPairs()){
-				optimalSites[i].enumeratePrimerPairs();
-				//optimalSites[i].sortPrimerPairs();
-				if(printDebugInfo) System.err.print("\nsite: " + i + " (valid primer pairs " + optimalSites[i].getNumberOfValidPrimerPairs() + ")");
-			}
+		return pickBestPrimerSet(optimalSites, searchParams, null);
+	}
+	
+	/* (non-Javadoc)
+	 * @see primerDesign.algo.PrimerPairPickingAlgorithm#pickBestPrimerSet(primerDesign.dsc.RestrictionSite[], primerDesign.util.PrimerSearchParameters, primerDesign.algo.PrimerPairSetAlignments)
+	 */
+	public PrimerPairSet pickBestPrimerSet(RestrictionSite[] optimalSites, PrimerSearchParameters searchParams, PrimerPairSetAlignments alignments) {
+		try{
+			return pick(optimalSites, searchParams, alignments);
 		}
-		if(printDebugInfo) System.err.println();
-		for(int i=0; i<optimalSites.length; i++){
-			if(optimalSites[i].getNumberOfValidPrimerPairs() == 0){
-				PrimerSearch search = searchParams.getPrimerSearch();
-			
-				while(optimalSites[i].getNumberOfValidPrimerPairs() == 0){
-					if(printDebugInfo) System.err.print("Refining sequence region: " + optimalSites[i].getPosition() + " (" + optimalSites[i].getNumberOfValidPrimerPairs() + " valid primer pairs)");
-					optimalSites = search.refineSeqRegion(optimalSites, i, searchParams);
-					optimalSites[i].enumeratePrimerPairs();
-					if(printDebugInfo) System.err.println(" -> " + optimalSites[i].getPosition() + " (" + optimalSites[i].getNumberOfValidPrimerPairs() + " valid primer pairs)");
-				}
-				if(optimalSites[i].getNumberOfValidPrimerPairs() == 0) throw new IllegalArgumentException("No valid! primer pairs exist for at least one interval: " + i + "!");
-			}
+		finally{
+			this.cancelled = false;
 		}
+	}
+	
+	/* (non-Javadoc)
+	 * @see primerDesign.algo.PrimerPairPickingAlgorithm#cancel()
+	 */
+	public void cancel(){
+		this.cancelled = true;
+		PairSetEvalJob job = this.currentJob;
+		if(job != null) job.cancel();
+	}
+	
+	/**
+	 * Orders a set of restriction sites as screened by the greedy picking.
+	 * 
+	 * Picking from ordered sites does not change their order, alignments of the ordered sites are therefore shared completely.
+	 * 
+	 * @param optimalSites the restriction sites to order
+	 */
+	static void orderSites(RestrictionSite[] optimalSites){
 		if(Constants.doSortedSitesScreening){
 			if(Constants.doGreedySitesScreening){
 				// sort optimal restriction sites by increasing primer set number, start enumerating pair sets with site with lowest number of primer pairs
@@ -100,15 +109,62 @@ public class SimpleGreedyPrimerPairPicking{ // implements PrimerPickingAlgorithm
 				Arrays.sort(optimalSites, new PrimerSetArrayComparatorRev());
 			}
 		}
+	}
+	
+	/**
+	 * Picks the best primer pair set of a set of restriction sites, refining sites until a set is found or the picking is cancelled.
+	 * 
+	 * @param optimalSites the restriction sites
+	 * @param searchParams the 3PD search parameters
+	 * @param previousAlignments the alignments of the scan regions of 'optimalSites' or of a previous set of restriction sites, null if there are none
+	 * 
+	 * @return the best primer pair set of 'optimalSites' or null if there is none
+	 */
+	private PrimerPairSet pick(RestrictionSite[] optimalSites, PrimerSearchParameters searchParams, PrimerPairSetAlignments previousAlignments) {
+		if(optimalSites.length < 2) throw new IllegalArgumentException("The list of optimal restriction sites must contain >= 2 elements!");
 		
-		if(printTimingStatusInfo) System.out.println(" - done in " + timer.getTimeString());
+		this.doStat = searchParams.isComputePickingStatistics();
+		PrimerPairSetAlignments alignments = previousAlignments;
+		PrimerPairSet bestPrimerPairs = null;
 		
-		if(printTimingStatusInfo) System.out.print("Sorting candidates matrix");
-		for(int i=0; i<optimalSites.length; i++) optimalSites[i].sortPrimerPairs();
-		if(printTimingStatusInfo) System.out.println(" - done in " + timer.getTimeString());
+		// sites are refined iteratively: each round replaces one site, the primer pairs of all other sites are kept
+		// and their alignments are shared with the alignments of the previous round
+		do{
+			// enumerate valid primer pairs at each restriction site
+			if(printTimingStatusInfo) System.out.print("\nEnumerating valid primer pairs for each restriction site");
+		
+			for(int i=0; i<optimalSites.length; i++){
+				if(!optimalSites[i].hasEnumeratedPrimerPairs()){
+					optimalSites[i].enumeratePrimerPairs();
+					//optimalSites[i].sortPrimerPairs();
+					if(printDebugInfo) System.err.print("\nsite: " + i + " (valid primer pairs " + optimalSites[i].getNumberOfValidPrimerPairs() + ")");
+				}
+			}
+			if(printDebugInfo) System.err.println();
+			for(int i=0; i<optimalSites.length; i++){
+				if(optimalSites[i].getNumberOfValidPrimerPairs() == 0){
+					PrimerSearch search = searchParams.getPrimerSearch();
+			
+					while(optimalSites[i].getNumberOfValidPrimerPairs() == 0){
+						if(this.cancelled) return null;
+						if(printDebugInfo) System.err.print("Refining sequence region: " + optimalSites[i].getPosition() + " (" + optimalSites[i].getNumberOfValidPrimerPairs() + " valid primer pairs)");
+						optimalSites = search.refineSeqRegion(optimalSites, i, searchParams);
+						optimalSites[i].enumeratePrimerPairs();
+						if(printDebugInfo) System.err.println(" -> " + optimalSites[i].getPosition() + " (" + optimalSites[i].getNumberOfValidPrimerPairs() + " valid primer pairs)");
+					}
+					if(optimalSites[i].getNumberOfValidPrimerPairs() == 0) throw new IllegalArgumentException("No valid! primer pairs exist for at least one interval: " + i + "!");
+				}
+			}
+			orderSites(optimalSites);
 		
-		// pick best set of primer pairs
-		if(printTimingStatusInfo) System.out.print("Picking best primer pair");
+			if(printTimingStatusInfo) System.out.println(" - done in " + timer.getTimeString());
+		
+			if(printTimingStatusInfo) System.out.print("Sorting candidates matrix");
+			for(int i=0; i<optimalSites.length; i++) optimalSites[i].sortPrimerPairs();
+			if(printTimingStatusInfo) System.out.println(" - done in " + timer.getTimeString());
+		
+			// pick best set of primer pairs
+			if(printTimingStatusInfo) System.out.print("Picking best primer pair");
 		
 //		PrimerPairSet bestPrimerPairs = new PrimerPairSet();
 //		int startElements = optimalSites[0].getNumberOfValidPrimerPairs();
@@ -134,105 +190,57 @@ public class SimpleGreedyPrimerPairPicking{ // implements PrimerPickingAlgorithm
 //				else if(Constants.PRINT_DEBUG_LOG) System.err.println("PA: " + currentBestSet.getMaxPairAlignScore() + " PEA: " + currentBestSet.getMaxPairAlignEndScore());
 //			}
 //		}
-		Vector<PrimerPairSet> threadResults = new Vector<PrimerPairSet>();
-		
-		int elements = optimalSites[0].getNumberOfValidPrimerPairs();
-		
-		double increment = 1.0 / Constants.MAX_NUM_PICKING_THREADS;
-		int start = 0;
-		int end = Math.min(MyExtendedMath.round(elements * increment), elements - 1);
-		ObjectArrayList threads = new ObjectArrayList();
-		int[] emptyBestPairCount = new int[optimalSites.length];
-		
-		for(int i=1; i<=Constants.MAX_NUM_PICKING_THREADS; i++){
-			threads.add(new PairSetEvalThread(start, end, optimalSites, threadResults, emptyBestPairCount, this.doStat, searchParams));
-			start = end +1;
-			if(start >= elements) break;
-			assert(i == Constants.MAX_NUM_PICKING_THREADS || start < elements);
-			end = Math.min(MyExtendedMath.round(start + elements * increment), elements-1);
-		}
-		
-//		PairSetEvalThread thread1 = new PairSetEvalThread(0, Math.round(elements*0.25f), optimalSites, threadResults);
-//		PairSetEvalThread thread2 = new PairSetEvalThread(Math.round(elements*0.25f)+1, Math.round(elements*0.5f), optimalSites, threadResults);
-//		PairSetEvalThread thread3 = new PairSetEvalThread(Math.round(elements*0.5f)+1, Math.round(elements*0.75f), optimalSites, threadResults);
-//		PairSetEvalThread thread4 = new PairSetEvalThread(Math.round(elements*0.75f)+1, elements-1, optimalSites, threadResults);
+			int elements = optimalSites[0].getNumberOfValidPrimerPairs();
 		
-		for(int i=0; i<threads.size(); i++){
-			((PairSetEvalThread)threads.get(i)).start();
-		}
-//		thread1.start();
-//		thread2.start();
-//		thread3.start();
-//		thread4.start();
+			// the inter-pair alignments of the scan regions are computed lazily and shared by all tasks of this job and by later refinement rounds
+			alignments = (alignments == null) ? new PrimerPairSetAlignments(optimalSites, searchParams) : alignments.deriveFor(optimalSites);
 		
-		try {
-			for(int i=0; i<threads.size(); i++){
-				((PairSetEvalThread)threads.get(i)).join();
+			// pair sets are evaluated by fork/join tasks splitting the range of start pairs dynamically, idle workers steal pending subranges
+			ForkJoinPool pool = ForkJoinPools.getPool(Constants.MAX_NUM_PICKING_THREADS);
+			PairSetEvalJob job = new PairSetEvalJob(optimalSites, alignments, this.doStat, searchParams, Math.max(1, elements / (pool.getParallelism() * TASKS_PER_THREAD)));
+			this.currentJob = job;
+			// a cancellation before the job was published has not reached the job
+			if(this.cancelled) job.cancel();
+			PairSetEvalResult result;
+			try{
+				result = pool.invoke(new PairSetEvalTask(job, 0, elements - 1));
 			}
-//			thread1.join();
-//			thread2.join();
-//			thread3.join();
-//			thread4.join();
-		} catch (InterruptedException e) {
-			e.printStackTrace();
-		}
-		
-		PrimerPairSet bestPrimerPairs = null;
-		PrimerPairSet currentPairSet;
-		double currentBestHomogenityScore = Double.MAX_VALUE;
-		double currentdOptPrimerPairSet = Double.MAX_VALUE;
-		
-//		int pa_max = searchParams.getMAX_PRIMER_PAIR_ALIGNMENT_SCORE();
-//		int pea_max = searchParams.getMAX_PRIMER_PAIR_END_ALIGNMENT_SCORE();
-		int pa_max = Integer.MAX_VALUE;
-		int pea_max = Integer.MAX_VALUE;
-		
-		if(this.doStat){
-			this.stat = searchParams.getPickingStat();
-			
-			for(int i=0; i<threads.size(); i++){
-				stat.combineStats(((PairSetEvalThread) threads.get(i)).getStat());
+			finally{
+				this.currentJob = null;
 			}
-		}
 		
-		for(int i=0; i<threadResults.size(); i++){
-			currentPairSet = threadResults.get(i);
-			
-			if(currentPairSet == null) continue;
-			else if(currentPairSet.getHomogenityScore() * searchParams.getPRIMER_PAIR_HOMOGENITY_WEIGHT() + currentPairSet.getAvgDistOptPrimerPair() * searchParams.getPRIMER_PAIR_DOPT_WEIGHT() + ((double)currentPairSet.getMaxPairAlignScore())/searchParams.getMAX_PRIMER_PAIR_ALIGNMENT_SCORE() * searchParams.getPAIR_ALIGNMENT_WEIGHT() + ((double)currentPairSet.getMaxPairAlignEndScore())/searchParams.getMAX_PRIMER_PAIR_END_ALIGNMENT_SCORE() * searchParams.getPAIR_END_ALIGNMENT_WEIGHT() < currentBestHomogenityScore * searchParams.getPRIMER_PAIR_HOMOGENITY_WEIGHT() + currentdOptPrimerPairSet * searchParams.getPRIMER_PAIR_DOPT_WEIGHT() + ((double)pa_max)/searchParams.getMAX_PRIMER_PAIR_ALIGNMENT_SCORE() * searchParams.getPAIR_ALIGNMENT_WEIGHT() + ((double)pea_max)/searchParams.getMAX_PRIMER_PAIR_END_ALIGNMENT_SCORE() * searchParams.getPAIR_END_ALIGNMENT_WEIGHT()){
-			//if(currentPairSet.getHomogenityScore() < currentBestHomogenityScore && currentPairSet.getMaxPairAlignScore() <= pa_max && currentPairSet.getMaxPairAlignEndScore() <= pea_max && currentPairSet.getAvgDistOptPrimerPair() < currentdOptPrimerPairSet){
-				bestPrimerPairs = currentPairSet;
-				currentBestHomogenityScore = currentPairSet.getHomogenityScore();
-				currentdOptPrimerPairSet = currentPairSet.getAvgDistOptPrimerPair();
-				pa_max = currentPairSet.getMaxPairAlignScore();
-				pea_max = currentPairSet.getMaxPairAlignEndScore();
+			bestPrimerPairs = result.bestPrimerPairs;
+			int[] emptyBestPairCount = result.emptyBestPairCount;
+		
+			if(this.doStat){
+				this.stat = searchParams.getPickingStat();
+				this.stat.combineStats(result.stat);
 			}
-		}
 
-		if(bestPrimerPairs == null){
-			
-			int refinePos = -1;
-			int temp = 0;
-			for(int i=0; i<optimalSites.length; i++){
-				if(emptyBestPairCount[i] > temp){
-					temp = emptyBestPairCount[i];
-					refinePos = i;
-				}
-			}
-			if(refinePos < 0) refinePos = new Random().nextInt(optimalSites.length);
-			if(refinePos >= 0){
-				if(printDebugInfo){ 
-					System.err.print("Refining sequence region: " + refinePos + " RSS: " + optimalSites[refinePos].getPosition());
+			if(bestPrimerPairs == null && !this.cancelled){
+				// refine the site most often lacking a compatible primer pair and start the next round
+				int refinePos = -1;
+				int temp = 0;
+				for(int i=0; i<optimalSites.length; i++){
+					if(emptyBestPairCount[i] > temp){
+						temp = emptyBestPairCount[i];
+						refinePos = i;
+					}
 				}
+				if(refinePos < 0) refinePos = new Random().nextInt(optimalSites.length);
+				if(refinePos >= 0){
+					if(printDebugInfo){ 
+						System.err.print("Refining sequence region: " + refinePos + " RSS: " + optimalSites[refinePos].getPosition());
+					}
 						
-				optimalSites = searchParams.getPrimerSearch().refineSeqRegion(optimalSites, refinePos, searchParams);
-				if(printDebugInfo){
-					System.err.println(" -> " + optimalSites[refinePos].getPosition());
+					optimalSites = searchParams.getPrimerSearch().refineSeqRegion(optimalSites, refinePos, searchParams);
+					if(printDebugInfo){
+						System.err.println(" -> " + optimalSites[refinePos].getPosition());
+					}
 				}
-				 
-				bestPrimerPairs = pickBestPrimerSet(optimalSites, searchParams);
 			}
-		}
+		
+		} while(bestPrimerPairs == null && !this.cancelled);
 		
 		if(printTimingStatusInfo) System.out.println(" - done in " + timer.getTimeString());
 		
@@ -244,43 +252,147 @@ public class SimpleGreedyPrimerPairPicking{ // implements PrimerPickingAlgorithm
 	}
 	
 	/**
-	 * This class encapsulates a set of tasks to be processed by a thread.
+	 * Computes the weighted score of a primer pair set, lower scores are better.
+	 * 
+	 * @param homogenityScore the homogenity score of the pair set
+	 * @param avgDistOptPrimerPair the average distance to the optimal primer pair of the pair set
+	 * @param pa the maximum pair alignment score of the pair set
+	 * @param pea the maximum pair end alignment score of the pair set
+	 * @param searchParams the 3PD search parameters
 	 * 
-	 * From a set of lists of valid primer pairs, a thread is supposed to search through a subset of all possible combinations.
+	 * @return the weighted score of the primer pair set
+	 */
+	static double weightedScore(double homogenityScore, double avgDistOptPrimerPair, int pa, int pea, PrimerSearchParameters searchParams){
+		return homogenityScore * searchParams.getPRIMER_PAIR_HOMOGENITY_WEIGHT() + avgDistOptPrimerPair * searchParams.getPRIMER_PAIR_DOPT_WEIGHT() + ((double)pa)/searchParams.getMAX_PRIMER_PAIR_ALIGNMENT_SCORE() * searchParams.getPAIR_ALIGNMENT_WEIGHT() + ((double)pea)/searchParams.getMAX_PRIMER_PAIR_END_ALIGNMENT_SCORE() * searchParams.getPAIR_END_ALIGNMENT_WEIGHT();
+	}
+	
+	/**
+	 * The state shared by all tasks of one picking job.
 	 * 
-	 * @author Sebastian Fr�hler
+	 * @author Sebastian Frhler
 	 *
 	 */
-	class PairSetEvalThread extends Thread{
-		private int start;
-		private int end;
-		private Vector<PrimerPairSet> result;
-		private RestrictionSite[] optimalSites;
+	private static class PairSetEvalJob{
+		private final RestrictionSite[] optimalSites;
+		private final PrimerPairSetAlignments alignments;
+		private final boolean doStat;
+		private final PrimerSearchParameters searchParams;
+		private final int grainSize;
+		private volatile boolean cancelled = false;
+		
+		PairSetEvalJob(RestrictionSite[] optimalSites, PrimerPairSetAlignments alignments, boolean doStat, PrimerSearchParameters searchParams, int grainSize){
+			this.optimalSites = optimalSites;
+			this.alignments = alignments;
+			this.doStat = doStat;
+			this.searchParams = searchParams;
+			this.grainSize = grainSize;
+		}
+		
+		/**
+		 * Cancels all pending tasks of this job, jobs are cancelled by cancelling the picking.
+		 */
+		void cancel(){
+			this.cancelled = true;
+		}
+		
+		boolean isCancelled(){
+			return this.cancelled;
+		}
+	}
+	
+	/**
+	 * The best primer pair set of a range of start pairs and the statistics of its evaluation.
+	 * 
+	 * @author Sebastian Frhler
+	 *
+	 */
+	private static class PairSetEvalResult{
+		private PrimerPairSet bestPrimerPairs;
+		private double bestScore = Double.MAX_VALUE;
 		private int[] emptyBestPairCount;
-		private boolean doStat;
 		private PrimerPairPickingStatistics stat;
-		private PrimerSearchParameters searchParams;
 		
-		public PairSetEvalThread(int start, int end, RestrictionSite[] optimalSites, Vector<PrimerPairSet> result, int[] emptyBestPairCount, boolean doStat, PrimerSearchParameters searchParams){
+		PairSetEvalResult(int sites, boolean doStat){
+			this.emptyBestPairCount = new int[sites];
+			if(doStat) this.stat = new PrimerPairPickingStatistics();
+		}
+		
+		/**
+		 * Merges the result of a range following the range of this result, on equal scores the pair set of this result is kept.
+		 * 
+		 * @param other the result of the following range
+		 * 
+		 * @return this result
+		 */
+		PairSetEvalResult merge(PairSetEvalResult other){
+			if(other.bestPrimerPairs != null && (this.bestPrimerPairs == null || other.bestScore < this.bestScore)){
+				this.bestPrimerPairs = other.bestPrimerPairs;
+				this.bestScore = other.bestScore;
+			}
+			for(int i=0; i<this.emptyBestPairCount.length; i++) this.emptyBestPairCount[i] += other.emptyBestPairCount[i];
+			if(this.stat != null) this.stat.combineStats(other.stat);
+			return this;
+		}
+	}
+	
+	/**
+	 * Evaluates the primer pair sets starting with a range of primer pairs of the first restriction site.
+	 * 
+	 * Ranges larger than the grain size of the job are split in halves, the per-range bests are reduced on joining without locks.
+	 * 
+	 * @author Sebastian Frhler
+	 *
+	 */
+	private class PairSetEvalTask extends RecursiveTask<PairSetEvalResult>{
+		private static final long serialVersionUID = 1L;
+		private final PairSetEvalJob job;
+		private final int start;
+		private final int end;
+		private final RestrictionSite[] optimalSites;
+		private final PrimerSearchParameters searchParams;
+		private final boolean doStat;
+		private PrimerPairPickingStatistics stat;
+		
+		PairSetEvalTask(PairSetEvalJob job, int start, int end){
+			this.job = job;
 			this.start = start;
 			this.end = end;
-			this.optimalSites = optimalSites;
-			this.result = result;
-			this.emptyBestPairCount = emptyBestPairCount;
-			this.doStat = doStat;
-			if(this.doStat) this.stat = new PrimerPairPickingStatistics();
-			this.searchParams = searchParams;
+			this.optimalSites = job.optimalSites;
+			this.searchParams = job.searchParams;
+			this.doStat = job.doStat;
+		}
+		
+		@Override
+		protected PairSetEvalResult compute(){
+			if(this.end - this.start + 1 > this.job.grainSize && !this.job.isCancelled()){
+				int middle = (this.start + this.end) >>> 1;
+				PairSetEvalTask first = new PairSetEvalTask(this.job, this.start, middle);
+				PairSetEvalTask second = new PairSetEvalTask(this.job, middle + 1, this.end);
+				second.fork();
+				PairSetEvalResult result = first.compute();
+				return result.merge(second.join());
+			}
+			else return this.evaluate();
 		}
 		
-		public void run(){
+		/**
+		 * Evaluates the primer pair sets of this range sequentially.
+		 * 
+		 * @return the best primer pair set of this range
+		 */
+		private PairSetEvalResult evaluate(){
+			PairSetEvalResult result = new PairSetEvalResult(this.optimalSites.length, this.doStat);
+			this.stat = result.stat;
+			
 			PrimerPairSet bestPrimerPairs = null;
 			
 			double currentBestHomogenityScore = Double.MAX_VALUE;
 			double currentdOptPrimerPairSet = Double.MAX_VALUE;
 			PrimerPairSet currentBestSet;
 			PrimerPairSet lastBestSet = null;
-			int[] emptyBestPairCount = new int[optimalSites.length];
+			int[] emptyBestPairCount = result.emptyBestPairCount;
 			int temp = -1;
+			final long threadID = Thread.currentThread().getId();
 			
 			// this is required to prevent init of best pair with pair having undesired alignment values but low dOpt and homogenity
 			int pa_max = searchParams.getMAX_PRIMER_PAIR_ALIGNMENT_SCORE() + 1;
@@ -288,10 +400,7 @@ public class SimpleGreedyPrimerPairPicking{ // implements PrimerPickingAlgorithm
 			final int pa = searchParams.getMAX_PRIMER_PAIR_ALIGNMENT_SCORE() + 1;
 			final int pea = searchParams.getMAX_PRIMER_PAIR_END_ALIGNMENT_SCORE() + 1;
 			
-			PrimerPairSetAlignments alignments = new PrimerPairSetAlignments(this.optimalSites.length);
-			for(int i=0; i<this.optimalSites.length; i++){
-				alignments.addScanRegion(optimalSites[i].getForwardScanSequence(), optimalSites[i].getProbeScanSequence(), this.searchParams);
-			}
+			PrimerPairSetAlignments alignments = this.job.alignments;
 			
 			PrimerPair candidate;
 			PrimerPairIterator iter;
@@ -302,6 +411,7 @@ public class SimpleGreedyPrimerPairPicking{ // implements PrimerPickingAlgorithm
 			PrimerAlignmentScores scores;
 			
 			for(int i=this.start; i<=this.end; i++){
+				if(this.job.isCancelled()) break;
 				currentBestSet = new PrimerPairSet(this.optimalSites[0].getPrimerPair(i), this.searchParams); 
 //				switch(this.optimalSites[0].getPrimerPair(i).getHashCode()){
 //					case -1981834031 : {
@@ -332,7 +442,7 @@ public class SimpleGreedyPrimerPairPicking{ // implements PrimerPickingAlgorithm
 							//
 							assert(currentBestSet.size() == j);
 							
-							iter = new PrimerPairIterator(this.optimalSites[j].getPrimerPairs(), currentBestSet);
+							iter = new PrimerPairIterator(this.optimalSites[j].getPrimerPairTable(), currentBestSet);
 							bestPair = null;
 							//int bestPairIndex = -1;
 							minScoreDifference = Integer.MAX_VALUE;
@@ -375,13 +485,13 @@ public class SimpleGreedyPrimerPairPicking{ // implements PrimerPickingAlgorithm
 								
 								if(stat != null) stat.incPairsScanned();
 								
-								if(Math.abs(candidate.getAverageTMPrimers() - currentBestSet.getAverageTMPrimers()) > searchParams.getMAX_PRIMER_TM_DIFFERENCE()){
+								if(!PrimerPairSet.isCompatibleMeltingTemp(candidate.getAverageTMPrimers(), currentBestSet.getAverageTMPrimers(), searchParams)){
 									if(stat != null)stat.incPairPrimerPrimerTMreject();
 									continue;
 								}
 								else if(stat != null) stat.incPairPrimerPrimerTMaccept();
 								
-								if(searchParams.isPickTaqManProbe() && Math.abs(candidate.getAverageTMProbe() - currentBestSet.getAverageTMProbes()) > searchParams.getMAX_PRIMER_TM_DIFFERENCE()){ 
+								if(searchParams.isPickTaqManProbe() && !PrimerPairSet.isCompatibleMeltingTemp(candidate.getAverageTMProbe(), currentBestSet.getAverageTMProbes(), searchParams)){ 
 									if(stat != null)stat.incPairPrimerProbeTMreject();
 									continue;
 								}
@@ -389,7 +499,7 @@ public class SimpleGreedyPrimerPairPicking{ // implements PrimerPickingAlgorithm
 								
 								if(candidate.getMaxPairElementsAlignmentScore().getPairScore() > searchParams.getMAX_PRIMER_PAIR_ALIGNMENT_SCORE() || candidate.getMaxPairElementsAlignmentScore().getPairEndScore() > searchParams.getMAX_PRIMER_PAIR_END_ALIGNMENT_SCORE()){
 									if(stat != null) stat.incIntraPairAlignmentReject();
-									if(printDebugInfo) System.err.println("Add pair Thread: " + this.getId() + " - invalid intra pair alignment: PA: " + candidate.getMaxPairElementsAlignmentScore().getPairScore() + " PEA: " + candidate.getMaxPairElementsAlignmentScore().getPairEndScore());
+									if(printDebugInfo) System.err.println("Add pair Thread: " + threadID + " - invalid intra pair alignment: PA: " + candidate.getMaxPairElementsAlignmentScore().getPairScore() + " PEA: " + candidate.getMaxPairElementsAlignmentScore().getPairEndScore());
 									continue;
 								}
 								
@@ -408,7 +518,7 @@ public class SimpleGreedyPrimerPairPicking{ // implements PrimerPickingAlgorithm
 	//							}
 								if(sa_max > searchParams.getMAX_PRIMER_PAIR_ALIGNMENT_SCORE() || sea_max > searchParams.getMAX_PRIMER_PAIR_END_ALIGNMENT_SCORE()){
 									if(stat != null) stat.incInterPairAlignmentReject();
-									if(printDebugInfo) System.err.println("Add pair Thread: " + this.getId() + "  - invalid inter-pair set alignment: PA: " + sa_max + " PEA: " + sea_max);
+									if(printDebugInfo) System.err.println("Add pair Thread: " + threadID + "  - invalid inter-pair set alignment: PA: " + sa_max + " PEA: " + sea_max);
 									continue;
 								}
 								
@@ -425,7 +535,7 @@ public class SimpleGreedyPrimerPairPicking{ // implements PrimerPickingAlgorithm
 									//bestPairIndex = this.optimalSites[j].getPrimerPairs().indexOf(candidate, true);
 									minScoreDifference = Math.abs(candidate.getDistanceToOptimalPrimerPair() - currentBestSet.getAvgDistOptPrimerPair());
 									if(stat != null) stat.incPairsAccepted();
-									if(printDebugInfo) System.err.println("Add pair Thread: " + this.getId() + ": Accept candidate pair " + i + ": sa " + sa_max + " sea " + sea_max + " dOpt " + candidate.getDistanceToOptimalPrimerPair() + " minDiff " + minScoreDifference + " PairSetSize: " + currentBestSet.getNumPrimerPairs() + " new  size: " + (currentBestSet.getNumPrimerPairs()+1) + "/" + searchParams.getNumPrimers());
+									if(printDebugInfo) System.err.println("Add pair Thread: " + threadID + ": Accept candidate pair " + i + ": sa " + sa_max + " sea " + sea_max + " dOpt " + candidate.getDistanceToOptimalPrimerPair() + " minDiff " + minScoreDifference + " PairSetSize: " + currentBestSet.getNumPrimerPairs() + " new  size: " + (currentBestSet.getNumPrimerPairs()+1) + "/" + searchParams.getNumPrimers());
 									
 //									try{
 //										assert(j== currentBestSet.size());
@@ -451,7 +561,7 @@ public class SimpleGreedyPrimerPairPicking{ // implements PrimerPickingAlgorithm
 								}
 								else{
 									if(stat != null) stat.incPairsRejected();
-									if(printDebugInfo) System.err.println("Add pair Thread: " + this.getId() + ": Reject candidate pair " + i + " (NO improvement!): sa " + sa_max + " sea " + sea_max + " dOpt " + candidate.getDistanceToOptimalPrimerPair() + " avgDist " + currentBestSet.getAvgDistOptPrimerPair() + " PairSetSize: " + currentBestSet.getNumPrimerPairs() + "/" + searchParams.getNumPrimers());
+									if(printDebugInfo) System.err.println("Add pair Thread: " + threadID + ": Reject candidate pair " + i + " (NO improvement!): sa " + sa_max + " sea " + sea_max + " dOpt " + candidate.getDistanceToOptimalPrimerPair() + " avgDist " + currentBestSet.getAvgDistOptPrimerPair() + " PairSetSize: " + currentBestSet.getNumPrimerPairs() + "/" + searchParams.getNumPrimers());
 								}
 							}
 	//						if(bestPair == null) throw new EmptyResultSetException();
@@ -465,11 +575,11 @@ public class SimpleGreedyPrimerPairPicking{ // implements PrimerPickingAlgorithm
 						}
 						else{					
 							/// OLD
-							//currentBestSet.addBestScoringPrimerPair(this.optimalSites[j].getPrimerPairs(), alignments, j, searchParams, true, this.getId(), this.stat);
+							//currentBestSet.addBestScoringPrimerPair(this.optimalSites[j].getPrimerPairs(), alignments, j, searchParams, true, threadID, this.stat);
 							/// NEW
-							//currentBestSet.addBestScoringPrimerPair(this.optimalSites[j].getPrimerPairs(), alignments, j, searchParams, searchParams.isCheckInterPairAlignments(), this.getId(), this.stat);
+							//currentBestSet.addBestScoringPrimerPair(this.optimalSites[j].getPrimerPairs(), alignments, j, searchParams, searchParams.isCheckInterPairAlignments(), threadID, this.stat);
 							assert(currentBestSet.size() == j);
-							currentBestSet.addBestScoringPrimerPair(this.optimalSites[j].getPrimerPairs(), alignments, currentBestSet.size(), searchParams, searchParams.isCheckInterPairAlignments(), this.getId(), this.stat);
+							currentBestSet.addBestScoringPrimerPair(this.optimalSites[j].getPrimerPairs(), alignments, currentBestSet.size(), searchParams, searchParams.isCheckInterPairAlignments(), threadID, this.stat);
 						}
 					}
 				}catch(EmptyResultSetException e){
@@ -505,18 +615,18 @@ public class SimpleGreedyPrimerPairPicking{ // implements PrimerPickingAlgorithm
 								this.searchParams.getSearchStat().incMispriming();
 							}
 							break;
-//								System.err.println("<REJECT " + this.getId() + ">");
+//								System.err.println("<REJECT " + threadID + ">");
 //								System.err.println(currentBestSet.getPrimerPair(j).toFormattedString());
-//								System.err.println("</REJECT " + this.getId() + ">");
+//								System.err.println("</REJECT " + threadID + ">");
 						}else{
 							synchronized(this.searchParams.getSearchStat()){
 								this.searchParams.getSearchStat().incNoMispriming();
 							}
 						}
 //							else{
-//								System.err.println("<ACCEPT " + this.getId() + ">");
+//								System.err.println("<ACCEPT " + threadID + ">");
 //								System.err.println(currentBestSet.getPrimerPair(j).toFormattedString());
-//								System.err.println("</ACCEPT " + this.getId() + ">");
+//								System.err.println("</ACCEPT " + threadID + ">");
 //							}
 						//lastBestSet = currentBestSet;
 					}
@@ -524,7 +634,7 @@ public class SimpleGreedyPrimerPairPicking{ // implements PrimerPickingAlgorithm
 						if(mismatchAt > 0){
 							i--;
 							lastBestSet = currentBestSet;
-//							System.err.println("pair set mispriming prune: " + this.getId() + " i: " + i + "/" + this.end)
+//							System.err.println("pair set mispriming prune: " + threadID + " i: " + i + "/" + this.end)
 							continue;
 						}
 						else if(mismatchAt == 0){
@@ -537,7 +647,7 @@ public class SimpleGreedyPrimerPairPicking{ // implements PrimerPickingAlgorithm
 				}
 
 				//if(currentBestSet.size() == optimalSites.length) System.err.println("Distance:\t" + currentBestSet.getAvgDistOptPrimerPair() + "\tHomogenity\t" + currentBestSet.getHomogenityScore());
-				if(currentBestSet.size() == optimalSites.length && currentBestSet.getHomogenityScore() * this.searchParams.getPRIMER_PAIR_HOMOGENITY_WEIGHT() + currentBestSet.getAvgDistOptPrimerPair() * this.searchParams.getPRIMER_PAIR_DOPT_WEIGHT() + ((double)currentBestSet.getMaxPairAlignScore())/this.searchParams.getMAX_PRIMER_PAIR_ALIGNMENT_SCORE() * this.searchParams.getPAIR_ALIGNMENT_WEIGHT() + ((double)currentBestSet.getMaxPairAlignEndScore())/this.searchParams.getMAX_PRIMER_PAIR_END_ALIGNMENT_SCORE() * this.searchParams.getPAIR_END_ALIGNMENT_WEIGHT() < currentBestHomogenityScore * this.searchParams.getPRIMER_PAIR_HOMOGENITY_WEIGHT() + currentdOptPrimerPairSet * this.searchParams.getPRIMER_PAIR_DOPT_WEIGHT() + ((double)pa_max)/this.searchParams.getMAX_PRIMER_PAIR_ALIGNMENT_SCORE() * this.searchParams.getPAIR_ALIGNMENT_WEIGHT() + ((double)pea_max)/this.searchParams.getMAX_PRIMER_PAIR_END_ALIGNMENT_SCORE() * this.searchParams.getPAIR_END_ALIGNMENT_WEIGHT()){
+				if(currentBestSet.size() == optimalSites.length && weightedScore(currentBestSet.getHomogenityScore(), currentBestSet.getAvgDistOptPrimerPair(), currentBestSet.getMaxPairAlignScore(), currentBestSet.getMaxPairAlignEndScore(), this.searchParams) < weightedScore(currentBestHomogenityScore, currentdOptPrimerPairSet, pa_max, pea_max, this.searchParams)){
 				//if(currentBestSet.getHomogenityScore() < currentBestHomogenityScore && currentBestSet.getAvgDistOptPrimerPair() < currentdOptPrimerPairSet){
 					//currentBestSet.computeMaxAlignmentScore();
 						// Inter pair alignments are efficiently checked during incremental pair set extension
@@ -556,35 +666,26 @@ public class SimpleGreedyPrimerPairPicking{ // implements PrimerPickingAlgorithm
 						pa_max = currentBestSet.getMaxPairAlignScore();
 						pea_max = currentBestSet.getMaxPairAlignEndScore();
 						if(this.doStat) this.stat.incAcceptedPairSets();
-						if(printDebugInfo) System.err.println("Picking Thread " + this.getId() + ": Accepting pair set - PA: " + pa_max + " PEA: " + pea_max);
+						if(printDebugInfo) System.err.println("Picking Thread " + threadID + ": Accepting pair set - PA: " + pa_max + " PEA: " + pea_max);
 					}
 					else{
 						if(this.doStat) this.stat.incNoImprovementOfAlignmentScore();
 					}
 //					}
-					//else if(printDebugInfo) System.err.println("Thread " + this.getId() + ": Rejecting pair set - PA: " + currentBestSet.getMaxPairAlignScore() + " PEA: " + currentBestSet.getMaxPairAlignEndScore());
+					//else if(printDebugInfo) System.err.println("Thread " + threadID + ": Rejecting pair set - PA: " + currentBestSet.getMaxPairAlignScore() + " PEA: " + currentBestSet.getMaxPairAlignEndScore());
 				}
 				else if(currentBestSet.size() < optimalSites.length){
 					if(this.doStat) this.stat.incInvalidPairSize();
-					if(printDebugInfo) System.err.println("Picking Thread " + this.getId() + ": Reject: Ivalid pair set of size: " + currentBestSet.size());
+					if(printDebugInfo) System.err.println("Picking Thread " + threadID + ": Reject: Ivalid pair set of size: " + currentBestSet.size());
 				}
 				else{
 					if(this.doStat) this.stat.incNoImprovementInWeightedSum();
-					if(printDebugInfo) System.err.println("Thread " + this.getId() + ": Reject: NO improvement of score");					
+					if(printDebugInfo) System.err.println("Thread " + threadID + ": Reject: NO improvement of score");					
 				}
 			}
-			synchronized (this.result) {
-				this.result.add(bestPrimerPairs);
-			}
-			synchronized (this.emptyBestPairCount) {
-				for(int i=0; i<emptyBestPairCount.length; i++){
-					this.emptyBestPairCount[i] += emptyBestPairCount[i];
-				}
-			}
-		}
-		
-		public PrimerPairPickingStatistics getStat(){
-			return this.stat;
+			result.bestPrimerPairs = bestPrimerPairs;
+			if(bestPrimerPairs != null) result.bestScore = weightedScore(currentBestHomogenityScore, currentdOptPrimerPairSet, pa_max, pea_max, this.searchParams);
+			return result;
 		}
 	}
 }
@@ -0,0 +1,398 @@
+/**
+ *
+ */
+package primerDesign.algo;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import primerDesign.dsc.PrimerAlignmentScores;
+import primerDesign.dsc.PrimerPair;
+import primerDesign.dsc.PrimerPairSet;
+import primerDesign.dsc.PrimerPairTable;
+import primerDesign.dsc.RestrictionSite;
+import primerDesign.util.PrimerSearchParameters;
+
+/**
+ * This class implements a simulated annealing primer pair set picking algorithm.
+ *
+ * Starting from the primer pairs closest to the optimal primer pair, each move replaces the primer pair of one restriction site by another
+ * valid primer pair of the same site, either a neighbour in the sorted primer pair table or a random one. Moves are accepted by the
+ * Metropolis criterion under a geometrically decreasing temperature.
+ *
+ * The energy of an assignment is its weighted score plus a penalty for each constraint violation: unacceptable pairs, intra-pair
+ * and inter-pair alignments exceeding the maximum scores and pairs failing the melting temperature check of the other primer pair
+ * picking algorithms, i.e. differing by more than MAX_PRIMER_TM_DIFFERENCE from the average melting temperatures of the pairs of the
+ * preceding restriction sites.
+ *
+ * Moves are scored incrementally: the sums of the distances and of their squares are updated in constant time, the inter-pair alignment
+ * scores of the changed site to all other sites are looked up in the shared PrimerPairSetAlignments and the maximum scores are
+ * maintained by score histograms. No primer pair set is built or rescanned during the search.
+ *
+ * @author Sebastian Frhler
+ *
+ */
+public class SimulatedAnnealingPrimerPairPicking implements PrimerPairPickingAlgorithm {
+	private static final double VIOLATION_PENALTY = 100; // the energy added per constraint violation
+	private static final int CANCEL_CHECK_INTERVAL = 1024; // the number of moves between two checks of a cancellation
+	private boolean printDebugInfo = false;
+	private boolean runDebugAssertions = false;
+	private volatile boolean cancelled = false;
+
+	private PrimerPairTable[] tables;
+	private PrimerPairSetAlignments alignments;
+	private PrimerSearchParameters searchParams;
+	private int n;
+	// the current assignment
+	private int[] rows;
+	private PrimerPair[] pairs;
+	private double sumDistance;
+	private double sumSquaredDistance;
+	private boolean[] validSites; // whether the primer pair of each site was valid when it was assigned or last checked
+	private int siteViolations;
+	private int pairViolations;
+	private int meltingTempViolations;
+	// the inter-pair scores of the current assignment, [i][j] is defined for i < j
+	private int[][] pa;
+	private int[][] pea;
+	private boolean[][] violates;
+	private int[] paCount; // the number of site pairs with inter-pair alignment score 'index'
+	private int[] peaCount;
+	private int paMax;
+	private int peaMax;
+
+	/**
+	 * @param printDebugInfo the printDebugInfo to set
+	 */
+	public void setPrintDebugInfo(boolean printDebugInfo) {
+		this.printDebugInfo = printDebugInfo;
+	}
+
+	/**
+	 * @param runDebugAssertions whether to check the incremental scores against their full recomputation after each move
+	 */
+	public void setRunDebugAssertions(boolean runDebugAssertions) {
+		this.runDebugAssertions = runDebugAssertions;
+	}
+
+	/* (non-Javadoc)
+	 * @see primerDesign.algo.PrimerPairPickingAlgorithm#pickBestPrimerSet(primerDesign.dsc.RestrictionSite[], primerDesign.util.PrimerSearchParameters)
+	 */
+	public PrimerPairSet pickBestPrimerSet(RestrictionSite[] optimalSites, PrimerSearchParameters searchParams) {
+		return this.pickBestPrimerSet(optimalSites, searchParams, null);
+	}
+
+	/* (non-Javadoc)
+	 * @see primerDesign.algo.PrimerPairPickingAlgorithm#cancel()
+	 */
+	public void cancel(){
+		this.cancelled = true;
+	}
+
+	/* (non-Javadoc)
+	 * @see primerDesign.algo.PrimerPairPickingAlgorithm#pickBestPrimerSet(primerDesign.dsc.RestrictionSite[], primerDesign.util.PrimerSearchParameters, primerDesign.algo.PrimerPairSetAlignments)
+	 */
+	public PrimerPairSet pickBestPrimerSet(RestrictionSite[] optimalSites, PrimerSearchParameters searchParams, PrimerPairSetAlignments alignments) {
+		try{
+			return this.anneal(optimalSites, searchParams, alignments);
+		}
+		finally{
+			this.cancelled = false;
+		}
+	}
+
+	/**
+	 * Picks the best primer pair set of a set of restriction sites by simulated annealing.
+	 *
+	 * @param optimalSites the restriction sites
+	 * @param searchParams the 3PD search parameters
+	 * @param alignments the alignments of the scan regions of 'optimalSites' or of a previous set of restriction sites, null if there are none
+	 *
+	 * @return the best primer pair set found or null if there is none
+	 */
+	private PrimerPairSet anneal(RestrictionSite[] optimalSites, PrimerSearchParameters searchParams, PrimerPairSetAlignments alignments) {
+		if(optimalSites.length < 2) throw new IllegalArgumentException("The list of optimal restriction sites must contain >= 2 elements!");
+
+		this.n = optimalSites.length;
+		this.tables = new PrimerPairTable[this.n];
+		for(int i=0; i<this.n; i++){
+			if(!optimalSites[i].hasEnumeratedPrimerPairs()) optimalSites[i].enumeratePrimerPairs();
+			if(optimalSites[i].getNumberOfValidPrimerPairs() == 0) return null;
+			optimalSites[i].sortPrimerPairs();
+			this.tables[i] = optimalSites[i].getPrimerPairTable();
+		}
+		this.alignments = (alignments == null) ? new PrimerPairSetAlignments(optimalSites, searchParams) : alignments.deriveFor(optimalSites);
+		this.searchParams = searchParams;
+		this.initialize();
+
+		Random random = new Random(searchParams.getSA_RANDOM_SEED());
+		int moves = searchParams.getSA_NUM_MOVES();
+		double temperature = searchParams.getSA_START_TEMPERATURE();
+		double cooling = (moves > 1) ? Math.pow(searchParams.getSA_END_TEMPERATURE() / searchParams.getSA_START_TEMPERATURE(), 1.0 / (moves - 1)) : 1;
+
+		double bestScore = Double.MAX_VALUE;
+		int[] bestRows = null;
+		if(this.isFeasible() && !this.containsUnacceptablePrimers()){
+			bestScore = this.score();
+			bestRows = this.rows.clone();
+		}
+		double energy = this.energy();
+		int site;
+		int oldRow;
+		double candidateEnergy;
+		for(int move=0; move<moves; move++, temperature *= cooling){
+			if(move % CANCEL_CHECK_INTERVAL == 0 && this.cancelled) break;
+			site = random.nextInt(this.n);
+			if(this.tables[site].size() < 2) continue;
+			oldRow = this.rows[site];
+			this.assign(site, this.neighbour(site, oldRow, random));
+			candidateEnergy = this.energy();
+			if(candidateEnergy <= energy || random.nextDouble() < Math.exp((energy - candidateEnergy) / temperature)){
+				energy = candidateEnergy;
+				// the lazy mispriming check is only done for feasible assignments improving the best score
+				if(this.isFeasible() && this.score() < bestScore){
+					if(!this.containsUnacceptablePrimers()){
+						bestScore = this.score();
+						bestRows = this.rows.clone();
+						if(this.printDebugInfo) System.err.println("Simulated annealing: new best score " + bestScore + " after " + move + " moves");
+					}
+					else energy = this.energy();
+				}
+			}
+			else this.assign(site, oldRow);
+			if(this.runDebugAssertions) this.checkIncrementalScores();
+		}
+
+		PrimerPairSet result = null;
+		if(bestRows != null){
+			for(int i=0; i<this.n; i++) this.assign(i, bestRows[i]);
+			result = new PrimerPairSet(this.pairs[0], searchParams);
+			PrimerAlignmentScores scores;
+			for(int i=1; i<this.n; i++){
+				scores = PrimerPairSet.checkInterPairAlignments(this.pairs[i], result, this.alignments, i, searchParams);
+				result.addPrimerPair(this.pairs[i], scores.getPairScore(), scores.getPairEndScore());
+			}
+		}
+		this.tables = null;
+		this.alignments = null;
+		this.pairs = null;
+		return result;
+	}
+
+	/**
+	 * Initializes the assignment to the primer pairs closest to the optimal primer pair.
+	 */
+	private void initialize(){
+		this.rows = new int[this.n];
+		this.pairs = new PrimerPair[this.n];
+		this.validSites = new boolean[this.n];
+		this.pa = new int[this.n][this.n];
+		this.pea = new int[this.n][this.n];
+		this.violates = new boolean[this.n][this.n];
+		this.paCount = new int[0];
+		this.peaCount = new int[0];
+		this.paMax = -1;
+		this.peaMax = -1;
+		this.sumDistance = 0;
+		this.sumSquaredDistance = 0;
+		this.siteViolations = 0;
+		this.pairViolations = 0;
+		for(int i=0; i<this.n; i++){
+			Arrays.fill(this.pa[i], -1);
+			Arrays.fill(this.pea[i], -1);
+			this.pairs[i] = this.tables[i].getPrimerPair(0);
+			this.addSite(i);
+		}
+		for(int i=0; i<this.n; i++){
+			for(int j=i+1; j<this.n; j++) this.addSitePair(i, j);
+		}
+		this.meltingTempViolations = this.countMeltingTempViolations();
+	}
+
+	/**
+	 * Assigns another primer pair to a restriction site, updating all scores incrementally.
+	 *
+	 * @param site the restriction site
+	 * @param row the row of the new primer pair in the primer pair table of 'site'
+	 */
+	private void assign(int site, int row){
+		for(int j=0; j<this.n; j++) if(j != site) this.removeSitePair(Math.min(site, j), Math.max(site, j));
+		this.removeSite(site);
+		this.rows[site] = row;
+		this.pairs[site] = this.tables[site].getPrimerPair(row);
+		this.addSite(site);
+		for(int j=0; j<this.n; j++) if(j != site) this.addSitePair(Math.min(site, j), Math.max(site, j));
+		// the averages of the melting temperatures change for all subsequent sites
+		this.meltingTempViolations = this.countMeltingTempViolations();
+	}
+
+	private void addSite(int site){
+		double distance = this.pairs[site].getDistanceToOptimalPrimerPair();
+		this.sumDistance += distance;
+		this.sumSquaredDistance += distance * distance;
+		this.validSites[site] = this.isValidPair(this.pairs[site]);
+		if(!this.validSites[site]) this.siteViolations++;
+	}
+
+	private void removeSite(int site){
+		double distance = this.pairs[site].getDistanceToOptimalPrimerPair();
+		this.sumDistance -= distance;
+		this.sumSquaredDistance -= distance * distance;
+		// the validity may have changed since by the lazy mispriming check, the violation counted is removed
+		if(!this.validSites[site]) this.siteViolations--;
+	}
+
+	private void addSitePair(int i, int j){
+		PrimerAlignmentScores scores = PrimerPairSet.getInterPairAlignmentScores(this.pairs[i], i, this.pairs[j], j, this.alignments, this.searchParams);
+		this.pa[i][j] = scores.getPairScore();
+		this.pea[i][j] = scores.getPairEndScore();
+		this.violates[i][j] = scores.getPairScore() > this.searchParams.getMAX_PRIMER_PAIR_ALIGNMENT_SCORE() || scores.getPairEndScore() > this.searchParams.getMAX_PRIMER_PAIR_END_ALIGNMENT_SCORE();
+		if(this.violates[i][j]) this.pairViolations++;
+		this.paCount = increment(this.paCount, this.pa[i][j]);
+		this.peaCount = increment(this.peaCount, this.pea[i][j]);
+		if(this.pa[i][j] > this.paMax) this.paMax = this.pa[i][j];
+		if(this.pea[i][j] > this.peaMax) this.peaMax = this.pea[i][j];
+	}
+
+	private void removeSitePair(int i, int j){
+		if(this.violates[i][j]) this.pairViolations--;
+		if(this.pa[i][j] >= 0) this.paCount[this.pa[i][j]]--;
+		if(this.pea[i][j] >= 0) this.peaCount[this.pea[i][j]]--;
+		// the maximum scores are lowered lazily by score()
+	}
+
+	/**
+	 * Counts the primer pairs of the current assignment failing the melting temperature check of the other primer pair picking algorithms.
+	 *
+	 * The primer pair set of an assignment is built in the order of the restriction sites, each pair is therefore checked against the
+	 * average melting temperatures of the pairs of the preceding sites.
+	 *
+	 * @return the number of primer pairs having incompatible melting temperatures
+	 */
+	private int countMeltingTempViolations(){
+		int result = 0;
+		double sumTMPrimers = this.pairs[0].getAverageTMPrimers();
+		double sumTMProbes = this.pairs[0].getAverageTMProbe();
+		for(int i=1; i<this.n; i++){
+			if(!PrimerPairSet.hasCompatibleMeltingTemps(this.pairs[i], sumTMPrimers / i, sumTMProbes / i, this.searchParams)) result++;
+			sumTMPrimers += this.pairs[i].getAverageTMPrimers();
+			sumTMProbes += this.pairs[i].getAverageTMProbe();
+		}
+		return result;
+	}
+
+	/**
+	 * Increments the count of a score, enlarging the histogram if necessary.
+	 *
+	 * @param counts the histogram
+	 * @param score the score, scores < 0 are not counted
+	 *
+	 * @return the histogram
+	 */
+	private static int[] increment(int[] counts, int score){
+		if(score < 0) return counts;
+		if(score >= counts.length) counts = Arrays.copyOf(counts, Math.max(2 * counts.length, score + 1));
+		counts[score]++;
+		return counts;
+	}
+
+	/**
+	 * Returns a random neighbour of a primer pair of a restriction site.
+	 *
+	 * @param site the restriction site, having at least two primer pairs
+	 * @param row the row of the current primer pair of 'site'
+	 * @param random the random number generator
+	 *
+	 * @return the row of another primer pair of 'site'
+	 */
+	private int neighbour(int site, int row, Random random){
+		int size = this.tables[site].size();
+		// half of the moves go to a neighbouring pair of similar distance to the optimal primer pair
+		if(random.nextBoolean()){
+			if(row == 0) return 1;
+			if(row == size - 1) return row - 1;
+			return random.nextBoolean() ? row + 1 : row - 1;
+		}
+		int result = random.nextInt(size - 1);
+		return result < row ? result : result + 1;
+	}
+
+	/**
+	 * Returns the weighted score of the current assignment as computed for primer pair sets by the greedy primer pair picking.
+	 *
+	 * @return the weighted score of the current assignment
+	 */
+	private double score(){
+		while(this.paMax >= 0 && this.paCount[this.paMax] == 0) this.paMax--;
+		while(this.peaMax >= 0 && this.peaCount[this.peaMax] == 0) this.peaMax--;
+		double mean = this.sumDistance / this.n;
+		double homogenity = Math.sqrt(Math.max(0, this.sumSquaredDistance / this.n - mean * mean));
+		return SimpleGreedyPrimerPairPicking.weightedScore(homogenity, mean, this.paMax, this.peaMax, this.searchParams);
+	}
+
+	private double energy(){
+		return this.score() + VIOLATION_PENALTY * (this.siteViolations + this.pairViolations + this.meltingTempViolations);
+	}
+
+	private boolean isFeasible(){
+		return this.siteViolations == 0 && this.pairViolations == 0 && this.meltingTempViolations == 0;
+	}
+
+	/**
+	 * Checks the primers of the current assignment for misprimings, counting the pairs found unacceptable as violations.
+	 *
+	 * @return true iff the current assignment contains unacceptable primers
+	 */
+	private boolean containsUnacceptablePrimers(){
+		boolean result = false;
+		for(int i=0; i<this.n && !result; i++){
+			result = this.pairs[i].containsUnacceptablePrimers();
+			if(result && this.validSites[i]){
+				this.validSites[i] = false;
+				this.siteViolations++;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Checks the incremental scores of the current assignment against their full recomputation.
+	 *
+	 * @throws IllegalStateException if the incremental scores differ from the recomputed ones
+	 */
+	private void checkIncrementalScores(){
+		double sumDistance = 0;
+		int siteViolations = 0;
+		for(int i=0; i<this.n; i++){
+			if(this.pairs[i] != this.tables[i].getPrimerPair(this.rows[i])) throw new IllegalStateException("The primer pair of site " + i + " differs from its row!");
+			sumDistance += this.pairs[i].getDistanceToOptimalPrimerPair();
+			if(!this.isValidPair(this.pairs[i])) siteViolations++;
+		}
+		double mean = sumDistance / this.n;
+		double sumSquaredDeviation = 0;
+		for(int i=0; i<this.n; i++) sumSquaredDeviation += (this.pairs[i].getDistanceToOptimalPrimerPair() - mean) * (this.pairs[i].getDistanceToOptimalPrimerPair() - mean);
+
+		int pairViolations = 0;
+		int paMax = -1;
+		int peaMax = -1;
+		PrimerAlignmentScores scores;
+		for(int i=0; i<this.n; i++){
+			for(int j=i+1; j<this.n; j++){
+				scores = PrimerPairSet.getInterPairAlignmentScores(this.pairs[i], i, this.pairs[j], j, this.alignments, this.searchParams);
+				if(scores.getPairScore() > this.searchParams.getMAX_PRIMER_PAIR_ALIGNMENT_SCORE() || scores.getPairEndScore() > this.searchParams.getMAX_PRIMER_PAIR_END_ALIGNMENT_SCORE()) pairViolations++;
+				paMax = Math.max(paMax, scores.getPairScore());
+				peaMax = Math.max(peaMax, scores.getPairEndScore());
+			}
+		}
+		double score = SimpleGreedyPrimerPairPicking.weightedScore(Math.sqrt(sumSquaredDeviation / this.n), mean, paMax, peaMax, this.searchParams);
+
+		if(siteViolations != this.siteViolations || pairViolations != this.pairViolations) throw new IllegalStateException("Incremental violations " + this.siteViolations + "/" + this.pairViolations + " differ from recomputed violations " + siteViolations + "/" + pairViolations + "!");
+		if(Math.abs(score - this.score()) > 1e-9 * Math.max(1, Math.abs(score)) || paMax != this.paMax || peaMax != this.peaMax) throw new IllegalStateException("Incremental score " + this.score() + " differs from recomputed score " + score + "!");
+	}
+
+	private boolean isValidPair(PrimerPair pair){
+		if(pair.isNotAcceptablePair()) return false;
+		PrimerAlignmentScores scores = pair.getMaxPairElementsAlignmentScore();
+		return scores.getPairScore() <= this.searchParams.getMAX_PRIMER_PAIR_ALIGNMENT_SCORE() && scores.getPairEndScore() <= this.searchParams.getMAX_PRIMER_PAIR_END_ALIGNMENT_SCORE();
+	}
+}
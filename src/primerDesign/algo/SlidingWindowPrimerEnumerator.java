@@ -0,0 +1,375 @@
+package primerDesign.algo;
+
+import primerDesign.dsc.Primer;
+import primerDesign.dsc.PrimerAcceptanceLevel;
+import primerDesign.dsc.PrimerAlignmentScores;
+import primerDesign.dsc.PrimerCandidateTable;
+import primerDesign.dsc.PrimerSearchStatistics;
+import primerDesign.dsc.PrimerTypes;
+import primerDesign.dsc.RestrictionSite;
+import primerDesign.dsc.SequenceFilterMask;
+import primerDesign.dsc.SequenceRegionAlignment;
+import primerDesign.dsc.indexStructures.primerMisprimingCheck.PrimerMisprimingCheck;
+import primerDesign.dsc.indexStructures.primerMisprimingCheck.ThreePrimeEndMisprimingCheck;
+import primerDesign.util.Constants;
+import primerDesign.util.PrimerSearchParameters;
+import cern.colt.list.ObjectArrayList;
+
+/**
+ * Enumerates all valid primers of a scan region in a single pass over the scan region.
+ *
+ * Ambiguity codes, masked bases, single nucleotide repeats and restriction sites are recognized by a single scan of a
+ * multi-pattern automaton, base composition and nearest-neighbor terms of the scan region are computed once as prefix sums.
+ * Each candidate primer (start, length) is then judged in constant time without creating its sequence string,
+ * candidates passing all constraints are stored column-wise in a primer candidate table which creates primer objects on demand only.
+ * Mispriming checks querying the 3' end of a primer only query each distinct 3' end of a scan region once.
+ *
+ * @author Sebastian Frhler
+ *
+ */
+public class SlidingWindowPrimerEnumerator {
+	private PrimerSearchParameters searchParams;
+	private SequenceFilterAutomaton filter;
+	private PrimerSearchStatistics stat;
+	private boolean doStat;
+	private PrimerMeltingTempCalculation tmCalc = Constants.PRIMER_TM_CALC_METHOD;
+
+	private char[] region; // the scan region in upper case
+	private int[] gcCount; // gcCount[i]: number of G|C in region[0..i-1]
+	private SequenceFilterMask mask; // the filter masks of the scan region
+	private NearestNeighborTMTable tmTable; // the nearest-neighbor terms of the scan region, null iff the Tm calculation method does not support tables
+
+	private int candidateCount = 0;
+	private int indexQueryCount = 0;
+
+	/**
+	 * Initializes the primer enumerator.
+	 *
+	 * @param searchParams the 3PD search parameters
+	 * @param filter the sequence filter recognizing patterns a primer must not contain
+	 * @param stat the primer search statistics to report rejected primers to
+	 * @param doStat whether to compute primer search statistics
+	 */
+	public SlidingWindowPrimerEnumerator(PrimerSearchParameters searchParams, SequenceFilterAutomaton filter, PrimerSearchStatistics stat, boolean doStat){
+		this.searchParams = searchParams;
+		this.filter = filter;
+		this.stat = stat;
+		this.doStat = doStat;
+	}
+
+	/**
+	 * Scans a scan region once and computes the filter masks and prefix counts needed to judge each primer candidate in constant time.
+	 *
+	 * @param sequence the scan region
+	 */
+	public void setScanRegion(char[] sequence){
+		final int n = sequence.length;
+		this.region = new char[n];
+		this.gcCount = new int[n + 1];
+		char base;
+		for(int i=0; i<n; i++){
+			base = Character.toUpperCase(sequence[i]);
+			this.region[i] = base;
+			this.gcCount[i+1] = this.gcCount[i] + ((base == 'G' || base == 'C') ? 1 : 0);
+		}
+		this.mask = this.filter.scan(this.region);
+		if(this.tmCalc instanceof SantaLuciaTM){
+			this.tmTable = ((SantaLuciaTM) this.tmCalc).createScanRegionTable(this.region, this.searchParams.getMONOVALENT_CATION_CONCENTRATION(), this.searchParams.getDIVALENT_CATION_CONCENTRATION(), this.searchParams.getDNTP_CONCENTRATION());
+		}
+	}
+
+	/**
+	 * Enumerates all 'potential' primers of a scan region and returns all valid primers.
+	 *
+	 * Semantics are the same as for PrimerSearch.enumeratePrimers(...).
+	 *
+	 * @param sequence the sequence the primer can be placed in
+	 * @param primerType the type of the primer
+	 * @param minlength the minimum primer length
+	 * @param maxlength the maximum primer length
+	 * @param regionStart the start of 'sequence' w.r.t. the genomic sequence
+	 * @param returnOrdered whether valid primers should be returned ordered by their distance to the '(virtual) optimal' primer
+	 * @param fivePrimeDistToRSS the five prime distance of the scan region to the restriction site
+	 * @param restrictionSite the restriction site adjacent to the scan region
+	 *
+	 * @return the set of all valid primers for sequence 'sequence'
+	 */
+	public Primer[] enumeratePrimers(char[] sequence, PrimerTypes primerType, int minlength, int maxlength, int regionStart, boolean returnOrdered, int fivePrimeDistToRSS, RestrictionSite restrictionSite){
+		return this.enumerateCandidates(sequence, primerType, minlength, maxlength, regionStart, returnOrdered, fivePrimeDistToRSS, restrictionSite).toPrimers();
+	}
+
+	/**
+	 * Enumerates all 'potential' primers of a scan region and returns all valid primers as primer candidate table.
+	 *
+	 * Semantics are the same as for enumeratePrimers(...), primer objects are only created for candidates which have to be
+	 * checked for misprimings in detail.
+	 *
+	 * @param sequence the sequence the primer can be placed in
+	 * @param primerType the type of the primer
+	 * @param minlength the minimum primer length
+	 * @param maxlength the maximum primer length
+	 * @param regionStart the start of 'sequence' w.r.t. the genomic sequence
+	 * @param returnOrdered whether valid primers should be returned ordered by their distance to the '(virtual) optimal' primer
+	 * @param fivePrimeDistToRSS the five prime distance of the scan region to the restriction site
+	 * @param restrictionSite the restriction site adjacent to the scan region
+	 *
+	 * @return the table of all valid primers for sequence 'sequence'
+	 */
+	public PrimerCandidateTable enumerateCandidates(char[] sequence, PrimerTypes primerType, int minlength, int maxlength, int regionStart, boolean returnOrdered, int fivePrimeDistToRSS, RestrictionSite restrictionSite){
+		PrimerCandidateTable primers = this.enumerateValidCandidates(sequence, primerType, minlength, maxlength, regionStart, fivePrimeDistToRSS, restrictionSite);
+		this.checkMisprimings(primers);
+		if(returnOrdered){
+			// sort primers in ascending distance to '(virtual) optimal' primer
+			primers.sortByDistanceToOptimalPrimer();
+		}
+		return primers;
+	}
+
+	/**
+	 * Enumerates all 'potential' primers of a scan region and returns all primers satisfying all constraints but the mispriming check.
+	 *
+	 * Neither the restriction site nor the mispriming index are accessed, thus a scan region may be enumerated speculatively.
+	 * Misprimings of the candidates returned have to be checked by checkMisprimings(...) before using them.
+	 *
+	 * @param sequence the sequence the primer can be placed in
+	 * @param primerType the type of the primer
+	 * @param minlength the minimum primer length
+	 * @param maxlength the maximum primer length
+	 * @param regionStart the start of 'sequence' w.r.t. the genomic sequence
+	 * @param fivePrimeDistToRSS the five prime distance of the scan region to the restriction site
+	 * @param restrictionSite the restriction site adjacent to the scan region
+	 *
+	 * @return the table of all primers for sequence 'sequence' satisfying all constraints but the mispriming check
+	 */
+	public PrimerCandidateTable enumerateValidCandidates(char[] sequence, PrimerTypes primerType, int minlength, int maxlength, int regionStart, int fivePrimeDistToRSS, RestrictionSite restrictionSite){
+		final boolean isProbe;
+		if(primerType.equals(PrimerTypes.forwardPrimer) || primerType.equals(PrimerTypes.reversePrimer)) isProbe = false;
+		else if(primerType.equals(PrimerTypes.hybridizationProbe)) isProbe = true;
+		else throw new IllegalArgumentException("Unsupported primer type! " + primerType);
+
+		this.setScanRegion(sequence);
+
+		final int n = this.region.length;
+		final int clampLength = this.searchParams.getGC_CLAMP_LENGTH();
+		final boolean debug = this.searchParams.isPRINT_DEBUG_LOG();
+
+		SequenceRegionAlignment alignment = SequenceRegionAligner.alignSequenceRegions(sequence, sequence, this.searchParams.getA_t_basepair_score(), this.searchParams.getG_c_basepair_score());
+		PrimerCandidateTable primers = new PrimerCandidateTable(primerType, this.region, restrictionSite, this.searchParams);
+		PrimerAlignmentScores scores;
+
+		int end;
+		int gc;
+		int relativePosition;
+		int distanceToRSS;
+		double gcContent;
+		double meltingTemp;
+		boolean isValid;
+
+		for(int length=minlength; length<=maxlength; length++){
+			for(int j=0; j+length<=n; j++){
+				end = j + length;
+
+				if(this.doStat) this.stat.incPrimerCount();
+				this.candidateCount++;
+
+				// skip primers containing ambiguity characters as bases
+				if(this.mask.windowContains(SequenceFilterMask.AMBIGUITY_CODE, j, length)){
+					if(this.doStat) this.stat.incPrimerAmbiguityCode();
+					continue;
+				}
+				// skip primers containing single nucleotide repeats
+				if(this.mask.windowContains(SequenceFilterMask.SINGLE_NUCLEOTIDE_REPEAT, j, length)){
+					if(this.doStat) this.stat.incSingleNucleotideRepeatPattern();
+					if(debug) System.err.println("Reject - repetitive single nucleotides: " + new String(this.region, j, length));
+					continue;
+				}
+				if(length < clampLength) throw new IllegalArgumentException("GC_CLAMP_LENGTH has to be <= than primer length!");
+				gc = this.gcCount[end] - this.gcCount[end - clampLength];
+				if(gc < this.searchParams.getMIN_GC_CLAMP() || gc > this.searchParams.getMAX_GC_CLAMP()){
+					if(this.doStat) this.stat.incGCClampCount();
+					if(debug) System.err.println("Reject - NO GC-Clamp: " + new String(this.region, j, length));
+					continue;
+				}
+				// primers containing repetitive dna are prone to mispriming, primers containing a restriction site would prevent full-length priming
+				boolean isMasked = this.mask.windowContains(SequenceFilterMask.MASKED_BASE, j, length);
+				boolean containsSite = this.mask.windowContains(SequenceFilterMask.RESTRICTION_SITE, j, length);
+				if(isMasked || containsSite){
+					if(debug && isMasked) System.err.println("Reject - masked basepairs (repeats): " + new String(this.region, j, length));
+					else if(debug) System.err.println("Reject - restriction site found: " + new String(this.region, j, length));
+					if(this.doStat){
+						if(isMasked) this.stat.incRepetitiveElementPattern();
+						if(containsSite) this.stat.incRestrictionEnzymePattern();
+					}
+					continue;
+				}
+
+				// due to 3C experiment setup, hybridization probes are designed to located at the reverse strand 5' of the restriction site
+				if(primerType.equals(PrimerTypes.forwardPrimer)) relativePosition = regionStart + j;
+				else relativePosition = regionStart - j;
+				if(isProbe) distanceToRSS = fivePrimeDistToRSS + j;
+				else distanceToRSS = fivePrimeDistToRSS - j;
+				if(distanceToRSS < 0) throw new IllegalArgumentException("Distance to restriction site must be >= 0!");
+
+				gcContent = ((double) (this.gcCount[end] - this.gcCount[j])) / length;
+				scores = alignment.getGlobalAlignmentValues(j, length, j, length);
+
+				// the melting temperature is the most expensive property, only compute it if required
+				if(isProbe){
+					isValid = gcContent >= this.searchParams.getTAQMAN_MIN_GC() && gcContent <= this.searchParams.getTAQMAN_MAX_GC()
+						&& scores.getPairScore() <= this.searchParams.getMAX_TAQMAN_SELF_ALIGNMENT_SCORE()
+						&& scores.getPairEndScore() <= this.searchParams.getMAX_TAQMAN_SELF_END_ALIGNMENT_SCORE()
+						&& this.region[j] != 'G';
+					meltingTemp = (isValid || this.doStat) ? this.computeMeltingTemp(j, length, this.searchParams.getTAQMAN_PROBE_CONCENTRATION()) : Double.NaN;
+					isValid = isValid && meltingTemp >= this.searchParams.getTAQMAN_MIN_TM() && meltingTemp <= this.searchParams.getTAQMAN_MAX_TM();
+				}
+				else{
+					isValid = gcContent >= this.searchParams.getMIN_GC() && gcContent <= this.searchParams.getMAX_GC()
+						&& scores.getPairScore() <= this.searchParams.getMAX_PRIMER_SELF_ALIGNMENT_SCORE()
+						&& scores.getPairEndScore() <= this.searchParams.getMAX_PRIMER_SELF_END_ALIGNMENT_SCORE();
+					meltingTemp = (isValid || this.doStat) ? this.computeMeltingTemp(j, length, this.searchParams.getPRIMER_CONCENTRATION()) : Double.NaN;
+					isValid = isValid && meltingTemp >= this.searchParams.getMIN_TM() && meltingTemp <= this.searchParams.getMAX_TM();
+				}
+
+				if(!isValid){
+					if(debug) System.err.println("Reject - Invalid " + (isProbe ? "TaqMan probe: " : "primer: ") + relativePosition + "\t" + new String(this.region, j, length) + "\t" + length + "\t" + distanceToRSS + "\t" + gcContent + "\t" + meltingTemp + "\t" + scores.getPairScore() + "\t" + scores.getPairEndScore());
+					if(this.doStat && isProbe){
+						this.stat.incInvalidTaqManPrimer();
+						this.stat.evaluateProbe(meltingTemp, gcContent, scores.getPairScore(), scores.getPairEndScore(), this.searchParams);
+					}
+					else if(this.doStat){
+						this.stat.incInvalidPrimer();
+						this.stat.evaluatePrimer(meltingTemp, gcContent, scores.getPairScore(), scores.getPairEndScore(), this.searchParams);
+					}
+					continue;
+				}
+
+				if(isProbe){
+					if(this.doStat) this.stat.incValidTaqManPrimer();
+					primers.add(j, length, relativePosition, distanceToRSS, meltingTemp, gcContent, scores.getPairScore(), scores.getPairEndScore(), PrimerAcceptanceLevel.ACCEPTABLE);
+					continue;
+				}
+				if(this.doStat) this.stat.incValidPrimer();
+
+				if(!Constants.doEarlyMMScan){
+					primers.add(j, length, relativePosition, distanceToRSS, meltingTemp, gcContent, scores.getPairScore(), scores.getPairEndScore(), PrimerAcceptanceLevel.NOT_TESTED);
+					if(this.doStat) this.stat.incNoMispriming();
+					continue;
+				}
+
+				primers.add(j, length, relativePosition, distanceToRSS, meltingTemp, gcContent, scores.getPairScore(), scores.getPairEndScore(), PrimerAcceptanceLevel.ACCEPTABLE);
+			}
+		}
+		return primers;
+	}
+
+	/**
+	 * Removes all candidates of a primer candidate table whose misprimings affect the experiment.
+	 *
+	 * 'primers' has to be the table enumerated last by enumerateValidCandidates(...), the order of the remaining candidates is kept.
+	 * Hybridization probes are not checked for misprimings, neither are primers if misprimings are not scanned early.
+	 *
+	 * @param primers the valid primers of the scan region enumerated last
+	 */
+	public void checkMisprimings(PrimerCandidateTable primers){
+		if(!Constants.doEarlyMMScan || primers.getPrimerType().equals(PrimerTypes.hybridizationProbe)) return;
+
+		final boolean debug = this.searchParams.isPRINT_DEBUG_LOG();
+		PrimerMisprimingCheck misprimingCheck = this.searchParams.getPrimerMisprimingCheck();
+		// threePrimeEndHits[end]: the index hits of the 3' end of all primers ending before position 'end', null iff not queried yet
+		ObjectArrayList[] threePrimeEndHits = (misprimingCheck instanceof ThreePrimeEndMisprimingCheck) ? new ObjectArrayList[this.region.length + 1] : null;
+		// mayHaveMisprimings[end]: whether primers with 3' end hits threePrimeEndHits[end] may have misprimings, judged once along with the query
+		boolean[] mayHaveMisprimings = (threePrimeEndHits == null) ? null : new boolean[this.region.length + 1];
+		ObjectArrayList hits;
+		int end;
+		boolean[] keep = new boolean[primers.size()];
+		int kept = 0;
+
+		for(int row=0; row<primers.size(); row++){
+			end = primers.getStart(row) + primers.getLength(row);
+			hits = this.getThreePrimeEndHits(misprimingCheck, primers.getLength(row), end, threePrimeEndHits, mayHaveMisprimings);
+			// only create the primer object if its misprimings have to be checked in detail
+			boolean primerMisprimingDoesNOTAffectExperiment;
+			if(hits == null) primerMisprimingDoesNOTAffectExperiment = !misprimingCheck.hasMisprimings(primers.getPrimer(row));
+			else if(mayHaveMisprimings[end]) primerMisprimingDoesNOTAffectExperiment = !((ThreePrimeEndMisprimingCheck) misprimingCheck).hasMisprimings(primers.getPrimer(row), hits);
+			else primerMisprimingDoesNOTAffectExperiment = true;
+
+			if(this.doStat) this.stat.incPrimerIndexCount();
+			this.indexQueryCount++;
+
+			if(primerMisprimingDoesNOTAffectExperiment){
+				if(this.doStat) this.stat.incNoMispriming();
+				keep[row] = true;
+				kept++;
+			}
+			else{
+				if(debug) System.err.println("Reject - Primer mispriming does affect experiment: found FP hits! for primer " + primers.getPrimer(row).toString());
+				if(this.doStat) this.stat.incMispriming();
+			}
+		}
+		if(kept < primers.size()) primers.retain(keep);
+	}
+
+	/**
+	 * Returns the index hits of the 3' end of a primer.
+	 *
+	 * The index hits of the 3' end of a primer are queried once per scan region and shared by all primers ending at the same position,
+	 * so is the verdict whether primers with these hits may have misprimings at all.
+	 *
+	 * @param misprimingCheck the mispriming check
+	 * @param length the length of the primer
+	 * @param end the end (exclusive) of the primer in the scan region
+	 * @param threePrimeEndHits the index hits of the 3' ends of the scan region by end position, null iff hits can not be shared
+	 * @param mayHaveMisprimings whether primers with the 3' end hits of each end position may have misprimings, set along with 'threePrimeEndHits'
+	 *
+	 * @return the index hits of the 3' end of the primer or null iff the primer has to be checked as a whole
+	 */
+	private ObjectArrayList getThreePrimeEndHits(PrimerMisprimingCheck misprimingCheck, int length, int end, ObjectArrayList[] threePrimeEndHits, boolean[] mayHaveMisprimings){
+		if(threePrimeEndHits == null) return null;
+		ThreePrimeEndMisprimingCheck check = (ThreePrimeEndMisprimingCheck) misprimingCheck;
+		int endLength = check.getThreePrimeEndLength();
+		if(endLength > length) return null;
+
+		if(threePrimeEndHits[end] == null){
+			threePrimeEndHits[end] = check.findThreePrimeEndHits(new String(this.region, end - endLength, endLength));
+			mayHaveMisprimings[end] = check.mayHaveMisprimings(threePrimeEndHits[end]);
+		}
+		return threePrimeEndHits[end];
+	}
+
+	/**
+	 * Computes the melting temperature of the primer region[start..start+length-1] as done for primer objects.
+	 *
+	 * @param start the start of the primer in the scan region
+	 * @param length the length of the primer
+	 * @param concentration the primer concentration
+	 *
+	 * @return the melting temperature of the primer
+	 */
+	private double computeMeltingTemp(int start, int length, double concentration){
+		// if short oligo: use 'cheap' Wallace method (2 degrees per {A,T}, 4 degrees per {G,C}), candidates are free of masked bases and ambiguity codes
+		if(length <= Constants.MAX_PRIMER_LENGTH_FOR_WALLACE_TM_CALC){
+			int gc = this.gcCount[start + length] - this.gcCount[start];
+			return 2*(length - gc) + 4*gc;
+		}
+		else if(this.tmTable != null) return this.tmTable.computeTM(start, length, concentration);
+		else return this.tmCalc.computeMonoAndDivalentCationCorrectedTM(this.region, start, length, concentration, this.searchParams.getMONOVALENT_CATION_CONCENTRATION(), this.searchParams.getDIVALENT_CATION_CONCENTRATION(), this.searchParams.getDNTP_CONCENTRATION());
+	}
+
+	/**
+	 * Returns the number of candidate primers enumerated by this enumerator.
+	 *
+	 * @return the number of candidate primers enumerated by this enumerator
+	 */
+	public int getCandidateCount(){
+		return this.candidateCount;
+	}
+
+	/**
+	 * Returns the number of candidate primers checked for misprimings by this enumerator.
+	 *
+	 * @return the number of candidate primers checked for misprimings by this enumerator
+	 */
+	public int getIndexQueryCount(){
+		return this.indexQueryCount;
+	}
+}
@@ -0,0 +1,68 @@
+package primerDesign.dsc;
+
+import java.util.Arrays;
+
+/**
+ * This class implements a fast (un-synchronized!) stack of long values, stored in a primitive array.
+ *
+ * @author Sebastian Frhler
+ *
+ */
+public class FastLongStack {
+	private long[] stack;
+	private int size;
+
+	public FastLongStack(){
+		this.stack = new long[16];
+		this.size = 0;
+	}
+
+	public FastLongStack(FastLongStack other){
+		this.stack = Arrays.copyOf(other.stack, Math.max(16, other.size));
+		this.size = other.size;
+	}
+
+	public void push(long element){
+		if(this.size == this.stack.length) this.stack = Arrays.copyOf(this.stack, 2 * this.size);
+		this.stack[this.size++] = element;
+	}
+
+	public long pop(){
+		if(this.size == 0) throw new IllegalStateException("The stack is empty!");
+		return this.stack[--this.size];
+	}
+
+	public long peek(){
+		if(this.size == 0) throw new IllegalStateException("The stack is empty!");
+		return this.stack[this.size - 1];
+	}
+
+	/**
+	 * Returns the element at position 'index', counted from the bottom of the stack.
+	 *
+	 * @param index the position of the element
+	 *
+	 * @return the element at position 'index'
+	 */
+	public long get(int index){
+		if(index < 0 || index >= this.size) throw new IndexOutOfBoundsException("Illegal stack position: " + index);
+		return this.stack[index];
+	}
+
+	public boolean empty(){
+		return this.size == 0;
+	}
+
+	public int size(){
+		return this.size;
+	}
+
+	public String toString(){
+		StringBuffer buffer = new StringBuffer();
+		for(int i=0; i<this.size; i++){
+			buffer.append(this.stack[i]);
+			if(i<this.size-1) buffer.append("\t");
+		}
+		return buffer.toString();
+	}
+}
@@ -1,11 +1,10 @@
 package primerDesign.dsc;
 
-import java.util.HashMap;
-
 import primerDesign.algo.PrimerAlignmentCalculation;
 import primerDesign.algo.PrimerMeltingTempCalculation;
 import primerDesign.algo.RSSDPAligner;
 import primerDesign.util.Constants;
+import primerDesign.util.PackedSequenceCache;
 import primerDesign.util.PrimerSearchParameters;
 
 
@@ -37,8 +36,8 @@ public class Primer implements Comparable{
 	
 	private static PrimerAlignmentCalculation ALIGNMENT;
 	private static PrimerMeltingTempCalculation TMCALCMETHOD = Constants.PRIMER_TM_CALC_METHOD;
-	private static HashMap<String, Double> gc_content_hash = new HashMap<String, Double>();
-	private static HashMap<String, Double> melting_temp_hash = new HashMap<String, Double>();
+	private static final PackedSequenceCache gcContentCache = new PackedSequenceCache("Primer GC content", Constants.SEQUENCE_CACHE_CAPACITY);
+	private static final PackedSequenceCache meltingTempCache = new PackedSequenceCache("Primer melting temperature", Constants.SEQUENCE_CACHE_CAPACITY);
 	
 	// assign maximum values for score normalization such that each component of the score
 	// scores equally when equal weights are assigned
@@ -123,6 +122,39 @@ public class Primer implements Comparable{
 		this.isVirtualOptimalPrimer = false;
 	}
 	
+	/**
+	 * Initializes a primer whose properties have already been computed, e.g. by a scan of the whole scan region.
+	 * 
+	 * @param sequence the primer sequence in upper case
+	 * @param primerType the primer type
+	 * @param relPos the relative position of the primer within the scan region
+	 * @param sa the self alignment value of this primer
+	 * @param sea the self-end alignment value of this primer
+	 * @param meltingTemp the melting temperature of this primer
+	 * @param gcContent the GC content of this primer
+	 * @param searchParams the 3PD primer search parameters
+	 */
+	public Primer(String sequence, Enum<PrimerTypes> primerType, int relPos, int sa, int sea, double meltingTemp, double gcContent, PrimerSearchParameters searchParams){
+		if(!isInitialized){
+			initDeltas(searchParams);
+		}
+		if(sequence.length() < 2) throw new IllegalArgumentException("Sequence length must be >= 2!");
+		
+		this.primerType = primerType;
+		this.acceptanceLevel = PrimerAcceptanceLevel.NOT_TESTED;
+		this.sequence = sequence;
+		this.length = sequence.length();
+		this.meltingTemp = meltingTemp;
+		this.gcContent = gcContent;
+		this.selfAlignmentScore = sa;
+		this.selfEndAlignmentScore = sea;
+		this.distanceToRSS = -1;
+		this.relativePosition = relPos;
+		this.falsePositiveMatches = 0;
+		this.computeDistanceToOptimalPrimer(searchParams);
+		this.isVirtualOptimalPrimer = false;
+	}
+	
 	/**
 	 * Initializes a primer.
 	 * 
@@ -157,27 +189,23 @@ public class Primer implements Comparable{
 		ALIGNMENT = searchParams.getPRIMER_ALIGNMENT_METHOD();
 	}
 	
-	private void initDeltas(PrimerSearchParameters searchParams){
-		// assign maximum values for score normalization such that each component of the score
-		// scores equally when equal weights are assigned
-		// except TM and GC values, all other values are integers, therefore division is bottomed at 1!
-		// for TM and GC, division is bottomed by a virtualMinValue
-		double virtualMinValue = 1E-09;
-		DELTA_TM_MAX = Math.max(searchParams.getMAX_TM() - searchParams.getMIN_TM(), virtualMinValue);
-		DELTA_TAQMAN_TM_MAX = Math.max(searchParams.getTAQMAN_MAX_TM() - searchParams.getTAQMAN_MIN_TM(), virtualMinValue);
-		DELTA_GC_MAX = Math.max(searchParams.getMAX_GC() - searchParams.getMIN_GC(), virtualMinValue);
-		DELTA_TAQMAN_GC_MAX = Math.max(searchParams.getTAQMAN_MAX_GC() - searchParams.getTAQMAN_MIN_GC(), virtualMinValue);
-		DELTA_LENGTH_MAX = Math.max(searchParams.getMAX_PRIMER_LENGTH() - searchParams.getMIN_PRIMER_LENGTH(),1);
-		DELTA_DIST_RSS_MAX = Math.max(searchParams.getMAX_AMPLICON_LENGTH()/2 - searchParams.getMIN_AMPLICON_LENGTH()/2,1);
-		DELTA_PRIMER_SA_MAX = Math.max(searchParams.getMAX_PRIMER_SELF_ALIGNMENT_SCORE(),1);
-		DELTA_PRIMER_SEA_MAX = Math.max(searchParams.getMAX_PRIMER_SELF_END_ALIGNMENT_SCORE(),1);
-		DELTA_PRIMER_PA_MAX = Math.max(searchParams.getMAX_PRIMER_PAIR_ALIGNMENT_SCORE(),1);
-		DELTA_PRIMER_PEA_MAX = Math.max(searchParams.getMAX_PRIMER_PAIR_END_ALIGNMENT_SCORE(),1);
-		DELTA_TAQMAN_SA_MAX = Math.max(searchParams.getMAX_TAQMAN_SELF_ALIGNMENT_SCORE(),1);
-		DELTA_TAQMAN_SEA_MAX = Math.max(searchParams.getMAX_TAQMAN_SELF_END_ALIGNMENT_SCORE(),1);
-		DELTA_TAQMAN_PA_MAX = Math.max(searchParams.getMAX_TAQMAN_PAIR_ALIGNMENT_SCORE(),1);
-		DELTA_TAQMAN_PEA_MAX = Math.max(searchParams.getMAX_TAQMAN_PAIR_END_ALIGNMENT_SCORE(),1);
-		MAX_FP = Math.max(searchParams.getMAX_PRIMER_MISPRIMING_CUTOFF(),1);
+	private static void initDeltas(PrimerSearchParameters searchParams){
+		ScoreNormalization normalization = new ScoreNormalization(searchParams);
+		DELTA_TM_MAX = normalization.deltaTmMax;
+		DELTA_TAQMAN_TM_MAX = normalization.deltaTaqManTmMax;
+		DELTA_GC_MAX = normalization.deltaGcMax;
+		DELTA_TAQMAN_GC_MAX = normalization.deltaTaqManGcMax;
+		DELTA_LENGTH_MAX = normalization.deltaLengthMax;
+		DELTA_DIST_RSS_MAX = normalization.deltaDistRSSMax;
+		DELTA_PRIMER_SA_MAX = normalization.deltaPrimerSAMax;
+		DELTA_PRIMER_SEA_MAX = normalization.deltaPrimerSEAMax;
+		DELTA_PRIMER_PA_MAX = normalization.deltaPrimerPAMax;
+		DELTA_PRIMER_PEA_MAX = normalization.deltaPrimerPEAMax;
+		DELTA_TAQMAN_SA_MAX = normalization.deltaTaqManSAMax;
+		DELTA_TAQMAN_SEA_MAX = normalization.deltaTaqManSEAMax;
+		DELTA_TAQMAN_PA_MAX = normalization.deltaTaqManPAMax;
+		DELTA_TAQMAN_PEA_MAX = normalization.deltaTaqManPEAMax;
+		MAX_FP = normalization.maxFP;
 	}
 	
 	/**
@@ -204,8 +232,10 @@ public class Primer implements Comparable{
 	 *
 	 */
 	private void computeGCContent(PrimerSearchParameters searchParams){
-		if(searchParams.isUseIndices() && gc_content_hash.containsKey(this.sequence)){
-			this.gcContent =  gc_content_hash.get(this.sequence);
+		long key = searchParams.isUseIndices() ? PackedSequenceCache.pack(this.sequence) : PackedSequenceCache.NOT_PACKABLE;
+		double cached = (key != PackedSequenceCache.NOT_PACKABLE) ? gcContentCache.getDouble(key) : Double.NaN;
+		if(!Double.isNaN(cached)){
+			this.gcContent = cached;
 		}
 		else{
 			double gcContent = 0;
@@ -221,7 +251,7 @@ public class Primer implements Comparable{
 				}
 			}
 			this.gcContent = gcContent/ (this.getLength() - maskedCharacters);
-			if(searchParams.isUseIndices()) gc_content_hash.put(this.sequence, this.gcContent);
+			if(key != PackedSequenceCache.NOT_PACKABLE) gcContentCache.putDouble(key, this.gcContent);
 		}
 	}
 	
@@ -230,8 +260,13 @@ public class Primer implements Comparable{
 	 *
 	 */
 	private void computeMeltingTemp(PrimerSearchParameters searchParams){
-		if(searchParams.isUseIndices() && Primer.melting_temp_hash.containsKey(this.sequence)){
-			this.meltingTemp = Primer.melting_temp_hash.get(this.sequence);
+		// the melting temperature depends on the primer (or probe) concentration and on the reaction conditions
+		double concentration = this.primerType.equals(PrimerTypes.hybridizationProbe) ? searchParams.getTAQMAN_PROBE_CONCENTRATION() : searchParams.getPRIMER_CONCENTRATION();
+		long key = searchParams.isUseIndices() ? PackedSequenceCache.pack(this.sequence) : PackedSequenceCache.NOT_PACKABLE;
+		long context = PackedSequenceCache.context(concentration, searchParams.getMONOVALENT_CATION_CONCENTRATION(), searchParams.getDIVALENT_CATION_CONCENTRATION(), searchParams.getDNTP_CONCENTRATION());
+		double cached = (key != PackedSequenceCache.NOT_PACKABLE) ? meltingTempCache.getDouble(key, 0, context) : Double.NaN;
+		if(!Double.isNaN(cached)){
+			this.meltingTemp = cached;
 		}else{
 			// if short oligo: use 'cheap' Wallace method
 			// Reference: Suggs et.al. 1981
@@ -239,7 +274,7 @@ public class Primer implements Comparable{
 			// http://en.wikipedia.org/wiki/DNA_melting
 			// This formula is valid for oligos <14 bases and assumes that the reaction is carried out in the presence of 50mM monovalent cations. 
 			// Source: http://www.promega.com/biomath/calc11.htm#disc
-			if(this.getLength() <= 16){
+			if(this.getLength() <= Constants.MAX_PRIMER_LENGTH_FOR_WALLACE_TM_CALC){
 				int a=0,t=0,g=0,c=0;
 				for(int i=0; i< this.getLength(); i++){
 					char base = this.getSequence().charAt(i);
@@ -259,7 +294,7 @@ public class Primer implements Comparable{
 				if(this.primerType.equals(PrimerTypes.hybridizationProbe)) this.meltingTemp = Primer.TMCALCMETHOD.computeMonoAndDivalentCationCorrectedTM(this.getSequence(), searchParams.getTAQMAN_PROBE_CONCENTRATION(), searchParams.getMONOVALENT_CATION_CONCENTRATION(), searchParams.getDIVALENT_CATION_CONCENTRATION(), searchParams.getDNTP_CONCENTRATION());
 				else this.meltingTemp = Primer.TMCALCMETHOD.computeMonoAndDivalentCationCorrectedTM(this.getSequence(), searchParams.getPRIMER_CONCENTRATION(), searchParams.getMONOVALENT_CATION_CONCENTRATION(), searchParams.getDIVALENT_CATION_CONCENTRATION(), searchParams.getDNTP_CONCENTRATION());
 			}
-			if(searchParams.isUseIndices()) Primer.melting_temp_hash.put(this.sequence, this.meltingTemp);
+			if(key != PackedSequenceCache.NOT_PACKABLE) meltingTempCache.putDouble(key, 0, context, this.meltingTemp);
 		}
 	}
 	
@@ -279,11 +314,67 @@ public class Primer implements Comparable{
 	 *
 	 */
 	private void computeDistanceToOptimalPrimer(PrimerSearchParameters searchParams){
-		if(this.primerType.equals(PrimerTypes.forwardPrimer) || this.primerType.equals(PrimerTypes.reversePrimer)){
-			this.distanceToOptimalPrimer = this.scoreTo(Primer.getVirtualOptimalPrimer(searchParams), searchParams);
+		this.distanceToOptimalPrimer = Primer.computeDistanceToOptimalPrimer(this.primerType, this.meltingTemp, this.gcContent, this.length, this.distanceToRSS, this.falsePositiveMatches, this.selfAlignmentScore, this.selfEndAlignmentScore, searchParams);
+	}
+	
+	/**
+	 * Computes the distance of a primer with the properties specified to a virtual optimal primer (or probe) with optimal values
+	 * as specified in the search parameters.
+	 * 
+	 * Results equal scoreTo(getVirtualOptimalPrimer(searchParams), searchParams) (or scoreTo(getVirtualOptimalProbe(searchParams), searchParams) for probes)
+	 * of a primer object with these properties, without requiring a primer object.
+	 * 
+	 * @param primerType the primer type
+	 * @param meltingTemp the melting temperature of the primer
+	 * @param gcContent the GC content of the primer
+	 * @param length the length of the primer
+	 * @param distanceToRSS the distance of the primer to the restriction site
+	 * @param falsePositiveMatches the number of false positive matches of the primer
+	 * @param selfAlignmentScore the self alignment score of the primer
+	 * @param selfEndAlignmentScore the self end alignment score of the primer
+	 * @param searchParams the 3PD search parameters
+	 * 
+	 * @return the distance of the primer to the virtual optimal primer
+	 */
+	public static double computeDistanceToOptimalPrimer(Enum<PrimerTypes> primerType, double meltingTemp, double gcContent, int length, int distanceToRSS, int falsePositiveMatches, double selfAlignmentScore, double selfEndAlignmentScore, PrimerSearchParameters searchParams){
+		return computeDistanceToOptimalPrimer(primerType, meltingTemp, gcContent, length, distanceToRSS, falsePositiveMatches, selfAlignmentScore, selfEndAlignmentScore, new ScoreNormalization(searchParams), searchParams);
+	}
+	
+	/**
+	 * Computes the distance of a primer with the properties specified to a virtual optimal primer (or probe), normalized by 'normalization'.
+	 * 
+	 * The normalization is immutable, thus the distance may be computed concurrently without touching the normalization of primer objects.
+	 * 
+	 * @param normalization the score normalization for the search parameters 'searchParams'
+	 * @param searchParams the 3PD search parameters
+	 * 
+	 * @return the distance of the primer to the virtual optimal primer
+	 * 
+	 * @see #computeDistanceToOptimalPrimer(Enum, double, double, int, int, int, double, double, PrimerSearchParameters)
+	 */
+	static double computeDistanceToOptimalPrimer(Enum<PrimerTypes> primerType, double meltingTemp, double gcContent, int length, int distanceToRSS, int falsePositiveMatches, double selfAlignmentScore, double selfEndAlignmentScore, ScoreNormalization normalization, PrimerSearchParameters searchParams){
+		// alignment scores to the virtual optimal primer are optimal (zero)
+		double score = 0;
+		if(primerType.equals(PrimerTypes.forwardPrimer) || primerType.equals(PrimerTypes.reversePrimer)){
+			score += searchParams.getPRIMER_DELTA_TM_WEIGHT() * Math.abs(meltingTemp - searchParams.getOPT_TM()) / normalization.deltaTmMax
+				+ searchParams.getPRIMER_DELTA_GC_WEIGHT() * Math.abs(gcContent - searchParams.getOPT_GC()) / normalization.deltaGcMax
+				+ searchParams.getPRIMER_FALSE_POSITIVES_WEIGHT() * (falsePositiveMatches + 0) / normalization.maxFP
+				+ searchParams.getPRIMER_DELTA_DISTANCE_TO_RSS_WEIGHT() * Math.abs(distanceToRSS - searchParams.getOPT_DISTANCE_TO_RSS()) / normalization.deltaDistRSSMax
+				+ searchParams.getPRIMER_DELTA_LENGTH_WEIGHT() * Math.abs(length - searchParams.getOPT_PRIMER_LENGTH()) / normalization.deltaLengthMax
+				+ searchParams.getSELF_ALIGNMENT_WEIGHT() * Math.max(selfAlignmentScore, 0) / normalization.deltaPrimerSAMax
+				+ searchParams.getSELF_END_ALIGNMENT_WEIGHT() * Math.max(selfEndAlignmentScore, 0) / normalization.deltaPrimerSEAMax
+				+ searchParams.getPAIR_ALIGNMENT_WEIGHT() * 0 / normalization.deltaPrimerPAMax
+				+ searchParams.getPAIR_END_ALIGNMENT_WEIGHT() * 0 / normalization.deltaPrimerPEAMax;
+			return score/ 9;
 		}
-		else if(this.primerType.equals(PrimerTypes.hybridizationProbe)){
-			this.distanceToOptimalPrimer = this.scoreTo(Primer.getVirtualOptimalProbe(searchParams), searchParams);
+		else if(primerType.equals(PrimerTypes.hybridizationProbe)){
+			score += searchParams.getPRIMER_DELTA_TM_WEIGHT() * Math.abs(meltingTemp - searchParams.getTAQMAN_OPT_TM()) / normalization.deltaTaqManTmMax
+				+ searchParams.getPRIMER_DELTA_GC_WEIGHT() * Math.abs(gcContent - searchParams.getTAQMAN_OPT_GC()) / normalization.deltaTaqManGcMax
+				+ searchParams.getSELF_ALIGNMENT_WEIGHT() * Math.max(selfAlignmentScore, 0) / normalization.deltaTaqManSAMax
+				+ searchParams.getSELF_END_ALIGNMENT_WEIGHT() * Math.max(selfEndAlignmentScore, 0) / normalization.deltaTaqManSEAMax
+				+ searchParams.getPAIR_ALIGNMENT_WEIGHT() * 0 / normalization.deltaTaqManPAMax
+				+ searchParams.getPAIR_END_ALIGNMENT_WEIGHT() * 0 / normalization.deltaTaqManPEAMax;
+			return score/ 6;
 		}
 		else throw new IllegalStateException("Unhandled case!");
 	}
@@ -703,4 +794,53 @@ public class Primer implements Comparable{
 	public synchronized void setAcceptanceLevel(PrimerAcceptanceLevel level){
 		this.acceptanceLevel = level;
 	}
+	
+	/**
+	 * The maximum deviations of primer properties from their optimal values, normalizing each component of a primer score.
+	 * 
+	 * Except TM and GC values, all other values are integers, therefore division is bottomed at 1!
+	 * For TM and GC, division is bottomed by a virtualMinValue.
+	 * 
+	 * @author Sebastian Frhler
+	 *
+	 */
+	static final class ScoreNormalization{
+		private static final double virtualMinValue = 1E-09;
+		
+		final double deltaTmMax;
+		final double deltaTaqManTmMax;
+		final double deltaGcMax;
+		final double deltaTaqManGcMax;
+		final int deltaLengthMax;
+		final int deltaDistRSSMax;
+		final int deltaPrimerSAMax;
+		final int deltaPrimerSEAMax;
+		final int deltaPrimerPAMax;
+		final int deltaPrimerPEAMax;
+		final int deltaTaqManSAMax;
+		final int deltaTaqManSEAMax;
+		final int deltaTaqManPAMax;
+		final int deltaTaqManPEAMax;
+		final int maxFP;
+		
+		ScoreNormalization(PrimerSearchParameters searchParams){
+			// assign maximum values for score normalization such that each component of the score
+			// scores equally when equal weights are assigned
+			this.deltaTmMax = Math.max(searchParams.getMAX_TM() - searchParams.getMIN_TM(), virtualMinValue);
+			this.deltaTaqManTmMax = Math.max(searchParams.getTAQMAN_MAX_TM() - searchParams.getTAQMAN_MIN_TM(), virtualMinValue);
+			this.deltaGcMax = Math.max(searchParams.getMAX_GC() - searchParams.getMIN_GC(), virtualMinValue);
+			this.deltaTaqManGcMax = Math.max(searchParams.getTAQMAN_MAX_GC() - searchParams.getTAQMAN_MIN_GC(), virtualMinValue);
+			this.deltaLengthMax = Math.max(searchParams.getMAX_PRIMER_LENGTH() - searchParams.getMIN_PRIMER_LENGTH(),1);
+			this.deltaDistRSSMax = Math.max(searchParams.getMAX_AMPLICON_LENGTH()/2 - searchParams.getMIN_AMPLICON_LENGTH()/2,1);
+			this.deltaPrimerSAMax = Math.max(searchParams.getMAX_PRIMER_SELF_ALIGNMENT_SCORE(),1);
+			this.deltaPrimerSEAMax = Math.max(searchParams.getMAX_PRIMER_SELF_END_ALIGNMENT_SCORE(),1);
+			this.deltaPrimerPAMax = Math.max(searchParams.getMAX_PRIMER_PAIR_ALIGNMENT_SCORE(),1);
+			this.deltaPrimerPEAMax = Math.max(searchParams.getMAX_PRIMER_PAIR_END_ALIGNMENT_SCORE(),1);
+			this.deltaTaqManSAMax = Math.max(searchParams.getMAX_TAQMAN_SELF_ALIGNMENT_SCORE(),1);
+			this.deltaTaqManSEAMax = Math.max(searchParams.getMAX_TAQMAN_SELF_END_ALIGNMENT_SCORE(),1);
+			this.deltaTaqManPAMax = Math.max(searchParams.getMAX_TAQMAN_PAIR_ALIGNMENT_SCORE(),1);
+			this.deltaTaqManPEAMax = Math.max(searchParams.getMAX_TAQMAN_PAIR_END_ALIGNMENT_SCORE(),1);
+			this.maxFP = Math.max(searchParams.getMAX_PRIMER_MISPRIMING_CUTOFF(),1);
+		}
+	}
 }
@@ -0,0 +1,358 @@
+package primerDesign.dsc;
+
+import primerDesign.util.PrimerSearchParameters;
+
+/**
+ * Stores the valid primer candidates of a scan region column-wise in primitive arrays.
+ *
+ * A candidate is identified by its row in the table, its sequence is the window (start, length) of the scan region.
+ * Primer objects are only created on demand (e.g. when a restriction site's primers are handed to primer pair picking)
+ * and are reused once created.
+ *
+ * @author Sebastian Frhler
+ *
+ */
+public class PrimerCandidateTable {
+	private static final int INITIAL_CAPACITY = 64;
+	private static final PrimerAcceptanceLevel[] ACCEPTANCE_LEVELS = PrimerAcceptanceLevel.values();
+
+	private Enum<PrimerTypes> primerType;
+	private char[] region;
+	private RestrictionSite restrictionSite;
+	private PrimerSearchParameters searchParams;
+	private Primer.ScoreNormalization normalization; // the normalization of the distance to the optimal primer, null iff no candidate was added yet
+
+	private int size = 0;
+	private int[] start;
+	private int[] length;
+	private int[] relativePosition;
+	private int[] distanceToRSS;
+	private double[] meltingTemp;
+	private double[] gcContent;
+	private int[] selfAlignmentScore;
+	private int[] selfEndAlignmentScore;
+	private double[] distanceToOptimalPrimer;
+	private byte[] acceptanceLevel;
+	private Primer[] primers; // primers created so far, null iff no primer was created yet
+
+	/**
+	 * Initializes an empty candidate table.
+	 *
+	 * @param primerType the type of all primers in this table
+	 * @param region the scan region in upper case
+	 * @param restrictionSite the restriction site adjacent to the scan region
+	 * @param searchParams the 3PD search parameters
+	 */
+	public PrimerCandidateTable(Enum<PrimerTypes> primerType, char[] region, RestrictionSite restrictionSite, PrimerSearchParameters searchParams){
+		this.primerType = primerType;
+		this.region = region;
+		this.restrictionSite = restrictionSite;
+		this.searchParams = searchParams;
+		this.allocate(0);
+	}
+
+	/**
+	 * Initializes an empty candidate table without scan region, no candidates can be added to it.
+	 *
+	 * @param primerType the type of all primers in this table
+	 * @param searchParams the 3PD search parameters
+	 */
+	public PrimerCandidateTable(Enum<PrimerTypes> primerType, PrimerSearchParameters searchParams){
+		this(primerType, new char[0], null, searchParams);
+	}
+
+	/**
+	 * Adds a candidate primer to the table, its distance to the virtual optimal primer is computed as done for primer objects.
+	 *
+	 * @param start the start of the primer in the scan region
+	 * @param length the length of the primer
+	 * @param relativePosition the relative position of the primer
+	 * @param distanceToRSS the distance of the primer to the restriction site
+	 * @param meltingTemp the melting temperature of the primer
+	 * @param gcContent the GC content of the primer
+	 * @param selfAlignmentScore the self alignment score of the primer
+	 * @param selfEndAlignmentScore the self end alignment score of the primer
+	 * @param acceptanceLevel the acceptance level of the primer
+	 *
+	 * @return the row of the new candidate
+	 */
+	public int add(int start, int length, int relativePosition, int distanceToRSS, double meltingTemp, double gcContent, int selfAlignmentScore, int selfEndAlignmentScore, PrimerAcceptanceLevel acceptanceLevel){
+		if(start < 0 || start + length > this.region.length) throw new IndexOutOfBoundsException("Primer " + start + "-" + (start + length) + " exceeds scan region of length " + this.region.length);
+		if(this.size == this.start.length) this.allocate(Math.max(INITIAL_CAPACITY, 2 * this.size));
+
+		int row = this.size++;
+		this.start[row] = start;
+		this.length[row] = length;
+		this.relativePosition[row] = relativePosition;
+		this.distanceToRSS[row] = distanceToRSS;
+		this.meltingTemp[row] = meltingTemp;
+		this.gcContent[row] = gcContent;
+		this.selfAlignmentScore[row] = selfAlignmentScore;
+		this.selfEndAlignmentScore[row] = selfEndAlignmentScore;
+		// as for new primer objects, the distance to the optimal primer is computed before the distance to the RSS is set
+		if(this.normalization == null) this.normalization = new Primer.ScoreNormalization(this.searchParams);
+		this.distanceToOptimalPrimer[row] = Primer.computeDistanceToOptimalPrimer(this.primerType, meltingTemp, gcContent, length, -1, 0, selfAlignmentScore, selfEndAlignmentScore, this.normalization, this.searchParams);
+		this.acceptanceLevel[row] = (byte) acceptanceLevel.ordinal();
+		if(this.primers != null) this.primers[row] = null;
+		return row;
+	}
+
+	/**
+	 * Removes the candidate added last.
+	 */
+	public void removeLast(){
+		if(this.size == 0) throw new IllegalStateException("The candidate table is empty!");
+		this.size--;
+		if(this.primers != null) this.primers[this.size] = null;
+	}
+
+	/**
+	 * Removes all candidates 'row' with keep[row] == false, the remaining candidates keep their order.
+	 *
+	 * @param keep whether to keep each candidate, of at least the size of this table
+	 */
+	public void retain(boolean[] keep){
+		int kept = 0;
+		for(int row=0; row<this.size; row++) if(keep[row]) kept++;
+		if(kept == this.size) return;
+		int[] order = new int[kept];
+		kept = 0;
+		for(int row=0; row<this.size; row++) if(keep[row]) order[kept++] = row;
+		this.permute(order);
+		this.size = kept;
+	}
+
+	/**
+	 * Sorts the candidates by ascending distance to the virtual optimal primer.
+	 *
+	 * The sort is stable, candidates of equal distance remain in their current order.
+	 */
+	public void sortByDistanceToOptimalPrimer(){
+		if(this.size < 2) return;
+		int[] order = new int[this.size];
+		for(int row=0; row<this.size; row++) order[row] = row;
+		mergeSort(order, new int[this.size], 0, this.size, this.distanceToOptimalPrimer);
+		this.permute(order);
+	}
+
+	/**
+	 * Returns the primer object of a candidate, the primer is created on first access.
+	 *
+	 * @param row the row of the candidate
+	 *
+	 * @return the primer object of candidate 'row'
+	 */
+	public Primer getPrimer(int row){
+		this.checkRow(row);
+		if(this.primers == null) this.primers = new Primer[this.start.length];
+		if(this.primers[row] == null){
+			Primer primer = new Primer(this.getSequence(row), this.primerType, this.relativePosition[row], this.selfAlignmentScore[row], this.selfEndAlignmentScore[row], this.meltingTemp[row], this.gcContent[row], this.searchParams);
+			primer.setRestrictionSite(this.restrictionSite);
+			primer.setPositionInScanSequence(this.start[row]);
+			primer.setDistanceToRSS(this.distanceToRSS[row]);
+			primer.setAcceptanceLevel(ACCEPTANCE_LEVELS[this.acceptanceLevel[row]]);
+			this.primers[row] = primer;
+		}
+		return this.primers[row];
+	}
+
+	/**
+	 * Returns the primer objects of all candidates in table order.
+	 *
+	 * @return the primer objects of all candidates
+	 */
+	public Primer[] toPrimers(){
+		Primer[] result = new Primer[this.size];
+		for(int row=0; row<this.size; row++) result[row] = this.getPrimer(row);
+		return result;
+	}
+
+	/**
+	 * Returns the number of candidates in this table.
+	 *
+	 * @return the number of candidates in this table
+	 */
+	public int size(){
+		return this.size;
+	}
+
+	/**
+	 * Returns the type of all primers in this table.
+	 *
+	 * @return the type of all primers in this table
+	 */
+	public Enum<PrimerTypes> getPrimerType(){
+		return this.primerType;
+	}
+
+	/**
+	 * Returns the sequence of a candidate.
+	 *
+	 * @param row the row of the candidate
+	 *
+	 * @return the sequence of candidate 'row'
+	 */
+	public String getSequence(int row){
+		this.checkRow(row);
+		return new String(this.region, this.start[row], this.length[row]);
+	}
+
+	public int getStart(int row){
+		this.checkRow(row);
+		return this.start[row];
+	}
+
+	public int getLength(int row){
+		this.checkRow(row);
+		return this.length[row];
+	}
+
+	public int getRelativePosition(int row){
+		this.checkRow(row);
+		return this.relativePosition[row];
+	}
+
+	public int getDistanceToRSS(int row){
+		this.checkRow(row);
+		return this.distanceToRSS[row];
+	}
+
+	public double getMeltingTemp(int row){
+		this.checkRow(row);
+		return this.meltingTemp[row];
+	}
+
+	public double getGcContent(int row){
+		this.checkRow(row);
+		return this.gcContent[row];
+	}
+
+	public int getSelfAlignmentScore(int row){
+		this.checkRow(row);
+		return this.selfAlignmentScore[row];
+	}
+
+	public int getSelfEndAlignmentScore(int row){
+		this.checkRow(row);
+		return this.selfEndAlignmentScore[row];
+	}
+
+	public double getDistanceToOptimalPrimer(int row){
+		this.checkRow(row);
+		return this.distanceToOptimalPrimer[row];
+	}
+
+	public PrimerAcceptanceLevel getAcceptanceLevel(int row){
+		this.checkRow(row);
+		return ACCEPTANCE_LEVELS[this.acceptanceLevel[row]];
+	}
+
+	public void setAcceptanceLevel(int row, PrimerAcceptanceLevel level){
+		this.checkRow(row);
+		this.acceptanceLevel[row] = (byte) level.ordinal();
+		if(this.primers != null && this.primers[row] != null) this.primers[row].setAcceptanceLevel(level);
+	}
+
+	/**
+	 * (Re-)allocates all columns to capacity 'capacity'.
+	 *
+	 * @param capacity the new capacity
+	 */
+	private void allocate(int capacity){
+		this.start = copyOf(this.start, capacity);
+		this.length = copyOf(this.length, capacity);
+		this.relativePosition = copyOf(this.relativePosition, capacity);
+		this.distanceToRSS = copyOf(this.distanceToRSS, capacity);
+		this.meltingTemp = copyOf(this.meltingTemp, capacity);
+		this.gcContent = copyOf(this.gcContent, capacity);
+		this.selfAlignmentScore = copyOf(this.selfAlignmentScore, capacity);
+		this.selfEndAlignmentScore = copyOf(this.selfEndAlignmentScore, capacity);
+		this.distanceToOptimalPrimer = copyOf(this.distanceToOptimalPrimer, capacity);
+		byte[] levels = new byte[capacity];
+		if(this.acceptanceLevel != null) System.arraycopy(this.acceptanceLevel, 0, levels, 0, this.size);
+		this.acceptanceLevel = levels;
+		if(this.primers != null){
+			Primer[] primers = new Primer[capacity];
+			System.arraycopy(this.primers, 0, primers, 0, this.size);
+			this.primers = primers;
+		}
+	}
+
+	/**
+	 * Rearranges all rows such that row 'order[i]' becomes row 'i'.
+	 *
+	 * @param order the new order of the rows
+	 */
+	private void permute(int[] order){
+		this.start = permute(this.start, order);
+		this.length = permute(this.length, order);
+		this.relativePosition = permute(this.relativePosition, order);
+		this.distanceToRSS = permute(this.distanceToRSS, order);
+		this.selfAlignmentScore = permute(this.selfAlignmentScore, order);
+		this.selfEndAlignmentScore = permute(this.selfEndAlignmentScore, order);
+		this.meltingTemp = permute(this.meltingTemp, order);
+		this.gcContent = permute(this.gcContent, order);
+		this.distanceToOptimalPrimer = permute(this.distanceToOptimalPrimer, order);
+		byte[] levels = new byte[this.acceptanceLevel.length];
+		for(int row=0; row<order.length; row++) levels[row] = this.acceptanceLevel[order[row]];
+		this.acceptanceLevel = levels;
+		if(this.primers != null){
+			Primer[] primers = new Primer[this.primers.length];
+			for(int row=0; row<order.length; row++) primers[row] = this.primers[order[row]];
+			this.primers = primers;
+		}
+	}
+
+	private static int[] permute(int[] column, int[] order){
+		int[] result = new int[column.length];
+		for(int row=0; row<order.length; row++) result[row] = column[order[row]];
+		return result;
+	}
+
+	private static double[] permute(double[] column, int[] order){
+		double[] result = new double[column.length];
+		for(int row=0; row<order.length; row++) result[row] = column[order[row]];
+		return result;
+	}
+
+	/**
+	 * Sorts order[from..to-1] stably by ascending key[order[i]].
+	 *
+	 * @param order the rows to sort
+	 * @param buffer a buffer of at least the size of 'order'
+	 * @param from the first position to sort (inclusive)
+	 * @param to the last position to sort (exclusive)
+	 * @param key the sort key of each row
+	 */
+	private static void mergeSort(int[] order, int[] buffer, int from, int to, double[] key){
+		if(to - from < 2) return;
+		int middle = (from + to) >>> 1;
+		mergeSort(order, buffer, from, middle, key);
+		mergeSort(order, buffer, middle, to, key);
+		if(key[order[middle-1]] <= key[order[middle]]) return;
+
+		int left = from;
+		int right = middle;
+		for(int i=from; i<to; i++){
+			if(right >= to || (left < middle && key[order[left]] <= key[order[right]])) buffer[i] = order[left++];
+			else buffer[i] = order[right++];
+		}
+		System.arraycopy(buffer, from, order, from, to - from);
+	}
+
+	private static int[] copyOf(int[] column, int capacity){
+		int[] result = new int[capacity];
+		if(column != null) System.arraycopy(column, 0, result, 0, Math.min(column.length, capacity));
+		return result;
+	}
+
+	private static double[] copyOf(double[] column, int capacity){
+		double[] result = new double[capacity];
+		if(column != null) System.arraycopy(column, 0, result, 0, Math.min(column.length, capacity));
+		return result;
+	}
+
+	private void checkRow(int row){
+		if(row < 0 || row >= this.size) throw new IndexOutOfBoundsException("Row " + row + " does not exist, table size: " + this.size);
+	}
+}
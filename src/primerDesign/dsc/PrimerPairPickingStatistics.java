@@ -206,6 +206,18 @@ public class PrimerPairPickingStatistics {
 			this.primerProbeTMreject++;
 		}
 		
+		public void addPrimerPrimerTMaccept(long count){
+			this.primerPrimerTMaccept += count;
+		}
+		
+		public void addPrimerPrimerTMreject(long count){
+			this.primerPrimerTMreject += count;
+		}
+		
+		public void addPrimerProbeTMreject(long count){
+			this.primerProbeTMreject += count;
+		}
+		
 		public void incPrimerPrimerAlignmentAccept(){
 			this.PrimerPrimerAlignmentAccept++;
 		}
@@ -246,6 +258,10 @@ public class PrimerPairPickingStatistics {
 			this.invalidPrimerPairsEnum++;
 		}
 		
+		public void addInvalidPrimerPairsEnum(long count){
+			this.invalidPrimerPairsEnum += count;
+		}
+		
 		public String printStat(){
 			StringBuffer buffy = new StringBuffer();
 			NumberFormat format = NumberFormat.getInstance();
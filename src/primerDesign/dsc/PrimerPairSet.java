@@ -3,6 +3,8 @@
  */
 package primerDesign.dsc;
 
+import java.util.Arrays;
+
 import primerDesign.algo.PrimerPairSetAlignments;
 import primerDesign.util.EmptyResultSetException;
 import primerDesign.util.PrimerSearchParameters;
@@ -11,35 +13,29 @@ import cern.colt.list.ObjectArrayList;
 /**
  * This class encapsulates a set of primer pairs.
  * 
+ * The primer pairs are stored in a persistent list of immutable nodes, each node holding the running statistics of the pairs up to itself.
+ * Copying a primer pair set shares all nodes with the original, adding and deleting the last pair is done in constant time and sets created
+ * from a common set (e.g. the branches of a greedy search) share the nodes of the common set. Scores are read from the running statistics in
+ * constant time, a pair at an arbitrary index is found in O(log n) time by skip pointers.
+ * 
+ * The distance of a primer pair to the virtual optimal primer pair combines the melting temperature, GC content and length deltas of its primers,
+ * the running statistics therefore cover these deltas. Primer pairs must not be modified while they are contained in a set.
+ * 
  * @author Sebastian Frhler
  *
  */
 public class PrimerPairSet{
-	private ObjectArrayList primerPairs;
-	private double sumDistanceToOptimalPrimerPair;  // the sum of the scores of the individual primer pairs
+	private Node last; // the node of the last primer pair, null iff this set is empty
 	private double homogenityScore; // the score representing the homogenity of primers in this primer pair set -> the StdDev of the score
-	private double averageTMPrimers;
-	private double averageTMProbes;
-	private boolean wasChanged;
-	private int pa_max;
-	private int pea_max;
 	private PrimerSearchParameters searchParams;
 	
-	private static boolean printDebugInfo = false;
-	
 	/***
 	 * Initializes a new empty primer pair set.
 	 * 
 	 * @param searchParams the 3PD search prameters
 	 */
 	public PrimerPairSet(PrimerSearchParameters searchParams){
-		this.primerPairs = new ObjectArrayList();
-		this.sumDistanceToOptimalPrimerPair = -1;
-		this.averageTMPrimers = -1;
-		this.averageTMProbes = -1;
-		this.wasChanged = true;
-		this.pa_max = -1;
-		this.pea_max = -1;
+		this.last = null;
 		this.searchParams = searchParams;
 	}
 	
@@ -50,39 +46,20 @@ public class PrimerPairSet{
 	 * @param searchParams the 3PD search parameters
 	 */
 	public PrimerPairSet(PrimerPair pair, PrimerSearchParameters searchParams){
-		this.primerPairs = new ObjectArrayList();
-		this.primerPairs.add(pair);
-
-		double score = pair.getDistanceToOptimalPrimerPair();
-		this.sumDistanceToOptimalPrimerPair = score;
-		this.averageTMPrimers = pair.getAverageTMPrimers();
-		this.averageTMProbes = pair.getAverageTMProbe();
-		
-		this.wasChanged = true;
-		this.pa_max = -1;
-		this.pea_max = -1;
+		this.last = new Node(null, pair, -1, -1);
 		this.searchParams = searchParams;
 	}
 	
 	/**
 	 * Initializes a primer pair set.
 	 * 
+	 * The new set shares all primer pairs with 'pairSet', changes of either set do not affect the other one.
+	 * 
 	 * @param pairSet the pair set to initialize with
 	 * @param searchParams the 3PD search parameters
 	 */
 	public PrimerPairSet(PrimerPairSet pairSet, PrimerSearchParameters searchParams){
-		this.primerPairs = new ObjectArrayList();
-		for(int i=0; i<pairSet.getNumPrimerPairs(); i++){
-			this.primerPairs.add(pairSet.getPrimerPair(i));
-		}
-		
-		this.sumDistanceToOptimalPrimerPair = pairSet.getAvgDistOptPrimerPair() * pairSet.getNumPrimerPairs();
-		this.homogenityScore = pairSet.getHomogenityScore();
-		this.averageTMPrimers = pairSet.averageTMPrimers;
-		this.averageTMProbes = pairSet.getAverageTMProbes();
-		this.pa_max = pairSet.getMaxPairAlignScore();
-		this.pea_max = pairSet.getMaxPairAlignEndScore();
-		this.wasChanged = false;
+		this.last = pairSet.last;
 		this.searchParams = searchParams;
 	}
 	
@@ -108,6 +85,8 @@ public class PrimerPairSet{
 		double minScoreDifference = Integer.MAX_VALUE;
 		int sa_max = -1;
 		int sea_max = -1;
+		int bestSaMax = -1;
+		int bestSeaMax = -1;
 		PrimerAlignmentScores scores;
 		
 		for(int i=0; i<pairs.size(); i++){
@@ -118,28 +97,27 @@ public class PrimerPairSet{
 			assert(currentPair.getMaxPairElementsAlignmentScore().getPairScore() >= 0 && currentPair.getMaxPairElementsAlignmentScore().getPairEndScore() >= 0);
 			
 			//Test for primer pair sets TM compatibility (primers and probes separated)
-			if(Math.abs(currentPair.getAverageTMPrimers() - this.getAverageTMPrimers()) > searchParams.getMAX_PRIMER_TM_DIFFERENCE()){
-				stat.incPairPrimerPrimerTMreject();
+			if(!isCompatibleMeltingTemp(currentPair.getAverageTMPrimers(), this.getAverageTMPrimers(), searchParams)){
+				if(stat != null) stat.incPairPrimerPrimerTMreject();
 				continue;
 			}
-			else stat.incPairPrimerPrimerTMaccept();
-			if(searchParams.isPickTaqManProbe() && Math.abs(currentPair.getAverageTMProbe() - this.getAverageTMProbes()) > searchParams.getMAX_PRIMER_TM_DIFFERENCE()){ 
-				stat.incPairPrimerProbeTMreject();
+			else if(stat != null) stat.incPairPrimerPrimerTMaccept();
+			if(searchParams.isPickTaqManProbe() && !isCompatibleMeltingTemp(currentPair.getAverageTMProbe(), this.getAverageTMProbes(), searchParams)){ 
+				if(stat != null) stat.incPairPrimerProbeTMreject();
 				continue;
 			}
-			else stat.incPairPrimerProbeTMaccept();
+			else if(stat != null) stat.incPairPrimerProbeTMaccept();
 			
 			if(currentPair.getMaxPairElementsAlignmentScore().getPairScore() > searchParams.getMAX_PRIMER_PAIR_ALIGNMENT_SCORE() || currentPair.getMaxPairElementsAlignmentScore().getPairEndScore() > searchParams.getMAX_PRIMER_PAIR_END_ALIGNMENT_SCORE()){
 				if(stat != null) stat.incIntraPairAlignmentReject();
-				if(printDebugInfo) System.err.println("Add pair Thread: " + threadID + " - invalid intra pair alignment: PA: " + currentPair.getMaxPairElementsAlignmentScore().getPairScore() + " PEA: " + currentPair.getMaxPairElementsAlignmentScore().getPairEndScore());
 				continue;
 			}
 			if(stat != null) stat.incIntraPairAlignmentAccept();
 			
-			assert(this.primerPairs.size() == position);
+			assert(this.size() == position);
 			if(checkInterPairAlignments){
 				//scores = checkInterPairAlignments(currentPair, this, alignments, position, searchParams);
-				scores = checkInterPairAlignments(currentPair, this, alignments, this.primerPairs.size(), searchParams);
+				scores = checkInterPairAlignments(currentPair, this, alignments, this.size(), searchParams);
 				sa_max = scores.getPairScore();
 				sea_max = scores.getPairEndScore();
 			}
@@ -150,7 +128,6 @@ public class PrimerPairSet{
 //			}
 			if(sa_max > searchParams.getMAX_PRIMER_PAIR_ALIGNMENT_SCORE() || sea_max > searchParams.getMAX_PRIMER_PAIR_END_ALIGNMENT_SCORE()){
 				if(stat != null) stat.incInterPairAlignmentReject();
-				if(printDebugInfo) System.err.println("Add pair Thread: " + threadID + "  - invalid inter-pair set alignment: PA: " + sa_max + " PEA: " + sea_max);
 				continue;
 			}
 			if(stat != null) stat.incInterPairAlignmentAccept();
@@ -164,28 +141,17 @@ public class PrimerPairSet{
 			if(Math.abs(currentPair.getDistanceToOptimalPrimerPair() - this.getAvgDistOptPrimerPair()) < minScoreDifference && sa_max <= searchParams.getMAX_PRIMER_PAIR_ALIGNMENT_SCORE() && sea_max <= searchParams.getMAX_PRIMER_PAIR_END_ALIGNMENT_SCORE()){
 				bestPair = currentPair; 
 				bestPairIndex = i;
+				bestSaMax = sa_max;
+				bestSeaMax = sea_max;
 				minScoreDifference = Math.abs(currentPair.getDistanceToOptimalPrimerPair() - this.getAvgDistOptPrimerPair());
 				if(stat != null) stat.incPairsAccepted();
-				if(printDebugInfo) System.err.println("Add pair Thread: " + threadID + ": Accept candidate pair " + i + ": sa " + sa_max + " sea " + sea_max + " dOpt " + currentPair.getDistanceToOptimalPrimerPair() + " minDiff " + minScoreDifference + " PairSetSize: " + this.primerPairs.size() + " new  size: " + (this.primerPairs.size()+1) + "/" + searchParams.getNumPrimers());
 			}
 			else{
 				if(stat != null) stat.incPairsRejected();
-				if(printDebugInfo) System.err.println("Add pair Thread: " + threadID + ": Reject candidate pair " + i + " (NO improvement!): sa " + sa_max + " sea " + sea_max + " dOpt " + currentPair.getDistanceToOptimalPrimerPair() + " avgDist " + this.getAvgDistOptPrimerPair() + " PairSetSize: " + this.primerPairs.size() + "/" + searchParams.getNumPrimers());
 			}
 		}
 		if(bestPair == null) throw new EmptyResultSetException();
-		this.primerPairs.add(bestPair);
-		this.averageTMPrimers += bestPair.getAverageTMPrimers();
-		this.averageTMProbes += bestPair.getAverageTMProbe();
-		if(this.pa_max < sa_max) this.pa_max = sa_max;
-		if(this.pea_max < sea_max) this.pea_max = sea_max;
-		this.sumDistanceToOptimalPrimerPair += bestPair.getDistanceToOptimalPrimerPair();
-		this.wasChanged = true;
-		
-		if(printDebugInfo){
-			System.err.println("Add pair Thread: " + threadID + " Adding pair: " + bestPairIndex + " new pairSetSize: " + this.primerPairs.size() + "/" + searchParams.getNumPrimers());
-			if(this.primerPairs.size() == searchParams.getNumPrimers()) System.err.println(this.toString());
-		}
+		this.addPrimerPair(bestPair, bestSaMax, bestSeaMax);
 		
 		return bestPairIndex;
 	}
@@ -198,13 +164,50 @@ public class PrimerPairSet{
 	 * @param seaMax the maximum self-end alignment value of 'pair'
 	 */
 	public void addPrimerPair(PrimerPair pair, int saMax, int seaMax){
-		this.primerPairs.add(pair);
-		this.averageTMPrimers += pair.getAverageTMPrimers();
-		this.averageTMProbes += pair.getAverageTMProbe();
-		if(this.pa_max < saMax) this.pa_max = saMax;
-		if(this.pea_max < seaMax) this.pea_max = seaMax;
-		this.sumDistanceToOptimalPrimerPair += pair.getDistanceToOptimalPrimerPair();
-		this.wasChanged = true;
+		this.last = new Node(this.last, pair, saMax, seaMax);
+	}
+	
+	/**
+	 * Checks the melting temperature compatibility of a primer pair to this primer pair set as done by greedy primer pair set extension.
+	 * 
+	 * The average melting temperature of the primers of 'pair' and, iff TaqMan probes are picked, the melting temperature of its probe must not
+	 * differ by more than MAX_PRIMER_TM_DIFFERENCE from the respective averages of this set. Any primer pair is compatible to an empty set.
+	 * 
+	 * @param pair the primer pair
+	 * @param searchParams the 3PD search parameters
+	 * 
+	 * @return true iff the melting temperatures of 'pair' are compatible to the ones of this primer pair set
+	 */
+	public boolean hasCompatibleMeltingTemps(PrimerPair pair, PrimerSearchParameters searchParams){
+		return hasCompatibleMeltingTemps(pair, this.getAverageTMPrimers(), this.getAverageTMProbes(), searchParams);
+	}
+	
+	/**
+	 * Checks the melting temperature compatibility of a primer pair to the average melting temperatures of a primer pair set.
+	 * 
+	 * @param pair the primer pair
+	 * @param averageTMPrimers the average melting temperature of the primers of the primer pair set
+	 * @param averageTMProbes the average melting temperature of the probes of the primer pair set
+	 * @param searchParams the 3PD search parameters
+	 * 
+	 * @return true iff the melting temperatures of 'pair' are compatible to the given averages
+	 */
+	public static boolean hasCompatibleMeltingTemps(PrimerPair pair, double averageTMPrimers, double averageTMProbes, PrimerSearchParameters searchParams){
+		if(!isCompatibleMeltingTemp(pair.getAverageTMPrimers(), averageTMPrimers, searchParams)) return false;
+		return !searchParams.isPickTaqManProbe() || isCompatibleMeltingTemp(pair.getAverageTMProbe(), averageTMProbes, searchParams);
+	}
+	
+	/**
+	 * Checks whether a melting temperature differs by at most MAX_PRIMER_TM_DIFFERENCE from an average melting temperature.
+	 * 
+	 * @param tm the melting temperature
+	 * @param averageTM the average melting temperature, NaN for an empty primer pair set
+	 * @param searchParams the 3PD search parameters
+	 * 
+	 * @return true iff 'tm' is compatible to 'averageTM'
+	 */
+	public static boolean isCompatibleMeltingTemp(double tm, double averageTM, PrimerSearchParameters searchParams){
+		return !(Math.abs(tm - averageTM) > searchParams.getMAX_PRIMER_TM_DIFFERENCE());
 	}
 	
 	/**
@@ -260,48 +263,57 @@ public class PrimerPairSet{
 		
 		assert(position <= pairSet.getNumPrimerPairs());
 		
-		PrimerPair other = null;
-		Primer primer1;
-		Primer primer2;
-		int fw1Fw2 = -1;
-		int fw1Fw2Max = -1;
-		int fw1Fw2MaxEnd = -1;
-		int fw1P2 = -1;
-		int fw1P2Max = -1;
-		int fw2P1 = -1;
-		int fw2P1Max = -1;
-		PrimerAlignmentScores scores = null;
-		for(int i=0; i<position; i++){
-
-			other = pairSet.getPrimerPair(i);
-
-			primer1 = other.getForwardPrimer();
-			primer2 = pair.getForwardPrimer();
-
-			scores = alignments.getAlignment(i, primer1.getPositionInScanSequence(), primer1.getLength(), position, primer2.getPositionInScanSequence(), primer2.getLength(), AlignmentType.forward1Forward2);
-			fw1Fw2 = scores.getPairScore();
-
-			if(searchParams.isPickTaqManProbe()){
-				primer2 = pair.getHybridizationProbe();
-				fw1P2 = alignments.getAlignment(i, primer1.getPositionInScanSequence(), primer1.getLength(), position, primer2.getPositionInScanSequence(), primer2.getLength(), AlignmentType.forward1Probe2).getPairScore();
-				
-				primer1 = other.getHybridizationProbe();
-				primer2 = pair.getForwardPrimer();
-				fw2P1 = alignments.getAlignment(i, primer2.getPositionInScanSequence(), primer2.getLength(), position, primer1.getPositionInScanSequence(), primer1.getLength(), AlignmentType.forward2Probe1).getPairScore();
-			}
-			if(fw1Fw2 > fw1Fw2Max) fw1Fw2Max = fw1Fw2;
-			if(scores.getPairEndScore() > fw1Fw2MaxEnd) fw1Fw2MaxEnd = scores.getPairEndScore();
-			if(fw1P2 > fw1P2Max) fw1P2Max = fw1P2;
-			if(fw2P1 > fw2P1Max) fw2P1Max = fw2P1;
+		int saMax = -1;
+		int seaMax = -1;
+		PrimerAlignmentScores scores;
+		for(Node node = (position > 0) ? pairSet.last.ancestor(position) : null; node != null; node = node.parent){
+			scores = getInterPairAlignmentScores(node.pair, node.size - 1, pair, position, alignments, searchParams);
+			if(scores.getPairScore() > saMax) saMax = scores.getPairScore();
+			if(scores.getPairEndScore() > seaMax) seaMax = scores.getPairEndScore();
 		}
 		
-		return new PrimerAlignmentScores(Math.max(fw1Fw2Max, Math.max(fw1P2Max, fw2P1Max)), fw1Fw2MaxEnd);
+		return new PrimerAlignmentScores(saMax, seaMax);
 		//return new PrimerAlignmentScores(0,0);
 	}
 	
+	/**
+	 * Computes the inter-pair alignment scores of two primer pairs of a primer pair set.
+	 * 
+	 * Only forward1-forward2 and forward{1|2}-probe primer alignments are computed since reverse primers do not co-occur in the same reaction tube with a probe.
+	 * 
+	 * @param first the primer pair of the restriction site at 'firstPosition'
+	 * @param firstPosition the position of the restriction site of 'first' in 'alignments'
+	 * @param second the primer pair of the restriction site at 'secondPosition'
+	 * @param secondPosition the position of the restriction site of 'second' in 'alignments', > 'firstPosition'
+	 * @param alignments the pair alignments
+	 * @param searchParams the 3PD search parameters
+	 * 
+	 * @return the maximum inter-pair alignment score and the inter-pair end alignment score of 'first' and 'second'
+	 */
+	public static PrimerAlignmentScores getInterPairAlignmentScores(PrimerPair first, int firstPosition, PrimerPair second, int secondPosition, PrimerPairSetAlignments alignments, PrimerSearchParameters searchParams){
+		assert(firstPosition < secondPosition);
+		
+		Primer primer1 = first.getForwardPrimer();
+		Primer primer2 = second.getForwardPrimer();
+		PrimerAlignmentScores scores = alignments.getAlignment(firstPosition, primer1.getPositionInScanSequence(), primer1.getLength(), secondPosition, primer2.getPositionInScanSequence(), primer2.getLength(), AlignmentType.forward1Forward2);
+		int fw1P2 = -1;
+		int fw2P1 = -1;
+		if(searchParams.isPickTaqManProbe()){
+			primer2 = second.getHybridizationProbe();
+			fw1P2 = alignments.getAlignment(firstPosition, primer1.getPositionInScanSequence(), primer1.getLength(), secondPosition, primer2.getPositionInScanSequence(), primer2.getLength(), AlignmentType.forward1Probe2).getPairScore();
+			
+			primer1 = first.getHybridizationProbe();
+			primer2 = second.getForwardPrimer();
+			fw2P1 = alignments.getAlignment(firstPosition, primer2.getPositionInScanSequence(), primer2.getLength(), secondPosition, primer1.getPositionInScanSequence(), primer1.getLength(), AlignmentType.forward2Probe1).getPairScore();
+		}
+		return new PrimerAlignmentScores(Math.max(scores.getPairScore(), Math.max(fw1P2, fw2P1)), scores.getPairEndScore());
+	}
+	
 	/**
 	 * Checks inter pair alignments.
 	 * 
+	 * The maximum alignment scores of this set are replaced by the scores computed.
+	 * 
 	 * @param alignments the pair alignments
 	 */
 	public void checkInterPairAlignments(PrimerPairSetAlignments alignments){
@@ -311,17 +323,18 @@ public class PrimerPairSet{
 		Primer primer1;
 		Primer primer2;
 		int fw1Fw2 = -1;
-		int fw1Fw2Max = -1;
-		int fw1Fw2MaxEnd = -1;
 		int fw1P2 = -1;
-		int fw1P2Max = -1;
 		int fw2P1 = -1;
-		int fw2P1Max = -1;
+		ObjectArrayList primerPairs = this.getPrimerPairs();
+		int[] saMax = new int[primerPairs.size()]; // the maximum inter-pair alignment scores of each pair to the preceding pairs
+		int[] seaMax = new int[primerPairs.size()];
+		Arrays.fill(saMax, -1);
+		Arrays.fill(seaMax, -1);
 		
-		for(int i=0; i<this.primerPairs.size(); i++){
-			pair1 = (PrimerPair) this.primerPairs.getQuick(i);
-			for(int j=i+1; j<this.primerPairs.size(); j++){
-				pair2 = (PrimerPair) this.primerPairs.getQuick(j);
+		for(int i=0; i<primerPairs.size(); i++){
+			pair1 = (PrimerPair) primerPairs.getQuick(i);
+			for(int j=i+1; j<primerPairs.size(); j++){
+				pair2 = (PrimerPair) primerPairs.getQuick(j);
 				
 				primer1 = pair1.getForwardPrimer();
 				primer2 = pair2.getForwardPrimer();
@@ -337,30 +350,44 @@ public class PrimerPairSet{
 				primer2 = pair2.getForwardPrimer();
 				fw2P1 = alignments.getAlignment(i, primer2.getPositionInScanSequence(), primer2.getLength(), j, primer1.getPositionInScanSequence(), primer1.getLength(), AlignmentType.forward2Probe1).getPairScore();
 
-				if(fw1Fw2 > fw1Fw2Max) fw1Fw2Max = fw1Fw2;
-				if(scores.getPairEndScore() > fw1Fw2MaxEnd) fw1Fw2MaxEnd = scores.getPairEndScore();
-				if(fw1P2 > fw1P2Max) fw1P2Max = fw1P2;
-				if(fw2P1 > fw2P1Max) fw2P1Max = fw2P1;
+				saMax[j] = Math.max(saMax[j], Math.max(fw1Fw2, Math.max(fw1P2, fw2P1)));
+				seaMax[j] = Math.max(seaMax[j], scores.getPairEndScore());
 			}
 		}
-		this.pa_max = Math.max(fw1Fw2Max, Math.max(fw1P2Max, fw2P1Max));
-		this.pea_max = fw1Fw2MaxEnd;
+		this.setAlignmentScores(saMax, seaMax);
 	}
 	
 	/**
 	 * Sets a primer pair.
 	 * 
+	 * The replaced pair and the pairs following it keep the inter-pair alignment scores they were added with, the maximum
+	 * alignment scores of this set are therefore not updated until checkInterPairAlignments(PrimerPairSetAlignments) is called.
+	 * 
 	 * @param index the position of the pair within this set
 	 * @param primerPair the primer pair to set
 	 */
 	public void setPrimerPair(int index, PrimerPair primerPair){
-		if(index < this.primerPairs.size()){
-			this.averageTMPrimers -= ((PrimerPair)this.primerPairs.getQuick(index)).getAverageTMPrimers();
-			this.averageTMProbes -= ((PrimerPair)this.primerPairs.getQuick(index)).getAverageTMProbe();
-		}
-		this.averageTMPrimers += primerPair.getAverageTMPrimers();
-		this.averageTMProbes += primerPair.getAverageTMProbe();
-		this.primerPairs.set(index, primerPair);
+		if(index < 0 || index >= this.size()) throw new IndexOutOfBoundsException();
+		// the pairs following 'index' are re-added to a new path, all nodes before 'index' remain shared
+		Node[] suffix = new Node[this.size() - index];
+		for(Node node = this.last; node != null && node.size > index; node = node.parent) suffix[node.size - index - 1] = node;
+		Node node = new Node(suffix[0].parent, primerPair, suffix[0].saMax, suffix[0].seaMax);
+		for(int i=1; i<suffix.length; i++) node = new Node(node, suffix[i].pair, suffix[i].saMax, suffix[i].seaMax);
+		this.last = node;
+	}
+	
+	/**
+	 * Replaces the alignment scores all primer pairs of this set were added with.
+	 * 
+	 * @param saMax the new maximum alignment score of each primer pair
+	 * @param seaMax the new maximum end alignment score of each primer pair
+	 */
+	private void setAlignmentScores(int[] saMax, int[] seaMax){
+		Node[] nodes = new Node[this.size()];
+		for(Node node = this.last; node != null; node = node.parent) nodes[node.size - 1] = node;
+		Node node = null;
+		for(int i=0; i<nodes.length; i++) node = new Node(node, nodes[i].pair, saMax[i], seaMax[i]);
+		this.last = node;
 	}
 	
 	/**
@@ -368,18 +395,19 @@ public class PrimerPairSet{
 	 * 
 	 */
 	public void deleteLastPrimerPair(){
-		this.averageTMPrimers -= ((PrimerPair)this.primerPairs.getQuick(this.primerPairs.size() - 1)).getAverageTMPrimers();
-		this.averageTMProbes -= ((PrimerPair)this.primerPairs.getQuick(this.primerPairs.size() - 1)).getAverageTMProbe();
-		this.primerPairs.remove(this.primerPairs.size() - 1);
+		if(this.last == null) throw new IndexOutOfBoundsException();
+		this.last = this.last.parent;
 	}
 	
 	/**
 	 * Returns all primer pairs of this set.
 	 * 
-	 * @return a reference to all primer pairs of this set
+	 * @return a new list containing all primer pairs of this set
 	 */
 	public ObjectArrayList getPrimerPairs(){
-		return this.primerPairs;
+		PrimerPair[] pairs = new PrimerPair[this.size()];
+		for(Node node = this.last; node != null; node = node.parent) pairs[node.size - 1] = node.pair;
+		return new ObjectArrayList(pairs);
 	}
 	
 	/**
@@ -388,7 +416,7 @@ public class PrimerPairSet{
 	 * @return the number of primer pairs in this set
 	 */
 	public int getNumPrimerPairs(){
-		return this.primerPairs.size();
+		return this.size();
 	}
 	
 	/**
@@ -398,18 +426,8 @@ public class PrimerPairSet{
 	 * @return the primer pair at position 'index' in this set
 	 */
 	public PrimerPair getPrimerPair(int index){
-		if(index<0 || index >= this.primerPairs.size()) throw new IndexOutOfBoundsException();
-		return (PrimerPair) this.primerPairs.getQuick(index);
-	}
-	
-	/**
-	 * Updates scores of this primer pair set.
-	 */
-	private void updateScores(){
-		this.sumDistanceToOptimalPrimerPair = 0;
-		for(int i=0; i<this.primerPairs.size(); i++){
-			this.sumDistanceToOptimalPrimerPair += ((PrimerPair)this.primerPairs.getQuick(i)).getDistanceToOptimalPrimerPair();
-		}
+		if(index<0 || index >= this.size()) throw new IndexOutOfBoundsException();
+		return this.last.ancestor(index + 1).pair;
 	}
 	
 	/**
@@ -418,7 +436,7 @@ public class PrimerPairSet{
 	 * @return the average distance to the virtual optimal primer pair
 	 */
 	public double getAvgDistOptPrimerPair(){
-		return this.sumDistanceToOptimalPrimerPair/this.primerPairs.size();
+		return (this.last == null) ? Double.NaN : this.last.meanDistance;
 	}
 	
 	/**
@@ -428,16 +446,7 @@ public class PrimerPairSet{
 	 *
 	 */
 	public void computeHomogenityScore(){
-		this.homogenityScore = 0;
-		this.updateScores();
-		double temp;
-		for(int i=0; i<this.primerPairs.size(); i++){
-			temp = ((PrimerPair)this.primerPairs.getQuick(i)).getDistanceToOptimalPrimerPair() - this.getAvgDistOptPrimerPair();
-			this.homogenityScore += (temp*temp);
-		}
-		this.homogenityScore = Math.sqrt(this.homogenityScore/ this.primerPairs.size());
-		
-		this.wasChanged = false;
+		this.homogenityScore = (this.last == null) ? Double.NaN : Math.sqrt(this.last.m2Distance / this.last.size);
 	}
 	
 	/**
@@ -450,54 +459,54 @@ public class PrimerPairSet{
 	 */
 	public void computeMaxAlignmentScore(){
 		PrimerAlignmentScores scores;
-		this.pa_max = -1;
-		this.pea_max = -1;
+		ObjectArrayList primerPairs = this.getPrimerPairs();
+		int[] saMax = new int[primerPairs.size()]; // the maximum intra-pair alignment scores of each pair and its alignment scores to the preceding pairs
+		int[] seaMax = new int[primerPairs.size()];
 		
-		for(int i=0; i<this.primerPairs.size()-1; i++){
-			scores = ((PrimerPair)this.primerPairs.getQuick(i)).getMaxPairElementsAlignmentScore();
-			if(this.pa_max < scores.getPairScore()) this.pa_max = scores.getPairScore();
-			if(this.pea_max < scores.getPairEndScore()) this.pea_max = scores.getPairEndScore();
+		for(int j=0; j<primerPairs.size(); j++){
+			scores = ((PrimerPair)primerPairs.getQuick(j)).getMaxPairElementsAlignmentScore();
+			saMax[j] = scores.getPairScore();
+			seaMax[j] = scores.getPairEndScore();
 			
-			for(int j=i+1; j<this.primerPairs.size(); j++){
-				scores = ((PrimerPair)this.primerPairs.getQuick(i)).getAlignmentValues((PrimerPair)this.primerPairs.getQuick(j));
-				if(this.pa_max < scores.getPairScore()) this.pa_max = scores.getPairScore();
-				if(this.pea_max < scores.getPairEndScore()) this.pea_max = scores.getPairEndScore();
+			for(int i=0; i<j; i++){
+				scores = ((PrimerPair)primerPairs.getQuick(i)).getAlignmentValues((PrimerPair)primerPairs.getQuick(j));
+				if(saMax[j] < scores.getPairScore()) saMax[j] = scores.getPairScore();
+				if(seaMax[j] < scores.getPairEndScore()) seaMax[j] = scores.getPairEndScore();
 			}
 		}
-		scores = ((PrimerPair)this.primerPairs.getQuick(this.primerPairs.size()-1)).getMaxPairElementsAlignmentScore();
-		if(this.pa_max < scores.getPairScore()) this.pa_max = scores.getPairScore();
-		if(this.pea_max < scores.getPairEndScore()) this.pea_max = scores.getPairEndScore();
+		this.setAlignmentScores(saMax, seaMax);
 	}
 	
 	public int getMaxPairAlignScore(){
-		return this.pa_max;
+		return (this.last == null) ? -1 : this.last.paMax;
 	}
 	
 	public int getMaxPairAlignEndScore(){
-		return this.pea_max;
+		return (this.last == null) ? -1 : this.last.peaMax;
 	}
 	
 	public double getHomogenityScore(){
-		if(this.wasChanged)	this.computeHomogenityScore();
+		this.computeHomogenityScore();
 		return this.homogenityScore;
 	}
 	
 	public int size(){
-		return this.primerPairs.size();
+		return (this.last == null) ? 0 : this.last.size;
 	}
 	
 	public double getAverageTMPrimers(){
-		return this.averageTMPrimers / this.primerPairs.size();
+		return (this.last == null) ? Double.NaN : this.last.sumTMPrimers / this.last.size;
 	}
 	
 	public double getAverageTMProbes(){
-		return this.averageTMProbes / this.primerPairs.size();
+		return (this.last == null) ? Double.NaN : this.last.sumTMProbes / this.last.size;
 	}
 	
 	public String toString(){
 		StringBuffer buffer = new StringBuffer();
-		for(int i=0; i<this.primerPairs.size(); i++){
-			buffer.append(((PrimerPair)this.primerPairs.getQuick(i)).toString() + "\n\n");
+		ObjectArrayList primerPairs = this.getPrimerPairs();
+		for(int i=0; i<primerPairs.size(); i++){
+			buffer.append(((PrimerPair)primerPairs.getQuick(i)).toString() + "\n\n");
 		}
 		buffer.append("avgdOptPrimerPAir: " + this.getAvgDistOptPrimerPair() + "\n");
 		buffer.append("Homogenity score: " + this.getHomogenityScore() + "\n");
@@ -507,8 +516,9 @@ public class PrimerPairSet{
 	
 	public String toFormattedString(){
 		StringBuffer buffer = new StringBuffer();
-		for(int i=0; i<this.primerPairs.size(); i++){
-			buffer.append(((PrimerPair)this.primerPairs.getQuick(i)).toFormattedString() + "\n\n");
+		ObjectArrayList primerPairs = this.getPrimerPairs();
+		for(int i=0; i<primerPairs.size(); i++){
+			buffer.append(((PrimerPair)primerPairs.getQuick(i)).toFormattedString() + "\n\n");
 		}
 		buffer.append("avgdOptPrimerPAir: " + this.getAvgDistOptPrimerPair() + "\n");
 		buffer.append("Homogenity score: " + this.getHomogenityScore() + "\n");
@@ -518,10 +528,8 @@ public class PrimerPairSet{
 	
 	public boolean equals(PrimerPairSet other){
 		if((this == null && other != null) || (this != null && other == null)) return false;
-		ObjectArrayList a = new ObjectArrayList();
-		a.addAllOfFromTo(this.primerPairs, 0, this.primerPairs.size() - 1);
-		ObjectArrayList b = new ObjectArrayList();
-		b.addAllOfFromTo(other.primerPairs, 0, other.primerPairs.size() -1);
+		ObjectArrayList a = this.getPrimerPairs();
+		ObjectArrayList b = other.getPrimerPairs();
 		a.sort();
 		b.sort();
 		return a.equals(b);
@@ -535,11 +543,72 @@ public class PrimerPairSet{
 	public int getHashCode(){
 		int result = 0;
 		
-		for(int i=0; i<this.primerPairs.size(); i++){
-			result += ((PrimerPair)this.primerPairs.getQuick(i)).getForwardPrimer().getSequence().hashCode();
-			result += ((PrimerPair)this.primerPairs.getQuick(i)).getReversePrimer().getSequence().hashCode();
-			if(this.searchParams.isPickTaqManProbe()) result += ((PrimerPair)this.primerPairs.getQuick(i)).getHybridizationProbe().getSequence().hashCode();
+		for(Node node = this.last; node != null; node = node.parent){
+			result += node.pair.getForwardPrimer().getSequence().hashCode();
+			result += node.pair.getReversePrimer().getSequence().hashCode();
+			if(this.searchParams.isPickTaqManProbe()) result += node.pair.getHybridizationProbe().getSequence().hashCode();
 		}
 		return result;
 	}
+	
+	/**
+	 * An immutable node of the persistent primer pair list, holding the running statistics of all pairs up to this node.
+	 */
+	private static final class Node{
+		private final Node parent;
+		private final Node jump; // an ancestor allowing to find any ancestor in O(log n) steps (skew-binary skip pointers)
+		private final PrimerPair pair;
+		private final int size; // the number of primer pairs up to this node, the index of 'pair' + 1
+		private final int saMax; // the inter-pair alignment scores 'pair' was added with
+		private final int seaMax;
+		private final int paMax; // the maximum inter-pair alignment scores of all pairs up to this node
+		private final int peaMax;
+		private final double meanDistance; // the mean and the sum of squared deviations of the distances to the optimal primer pair (Welford)
+		private final double m2Distance;
+		private final double sumTMPrimers;
+		private final double sumTMProbes;
+		
+		Node(Node parent, PrimerPair pair, int saMax, int seaMax){
+			this.parent = parent;
+			this.pair = pair;
+			this.saMax = saMax;
+			this.seaMax = seaMax;
+			double distance = pair.getDistanceToOptimalPrimerPair();
+			if(parent == null){
+				this.jump = this;
+				this.size = 1;
+				this.paMax = saMax;
+				this.peaMax = seaMax;
+				this.meanDistance = distance;
+				this.m2Distance = 0;
+				this.sumTMPrimers = pair.getAverageTMPrimers();
+				this.sumTMProbes = pair.getAverageTMProbe();
+			}
+			else{
+				this.jump = (parent.size - parent.jump.size == parent.jump.size - parent.jump.jump.size) ? parent.jump.jump : parent;
+				this.size = parent.size + 1;
+				this.paMax = Math.max(parent.paMax, saMax);
+				this.peaMax = Math.max(parent.peaMax, seaMax);
+				this.meanDistance = parent.meanDistance + (distance - parent.meanDistance) / this.size;
+				this.m2Distance = parent.m2Distance + (distance - parent.meanDistance) * (distance - this.meanDistance);
+				this.sumTMPrimers = parent.sumTMPrimers + pair.getAverageTMPrimers();
+				this.sumTMProbes = parent.sumTMProbes + pair.getAverageTMProbe();
+			}
+		}
+		
+		/**
+		 * Returns the ancestor of this node holding a given number of primer pairs.
+		 * 
+		 * @param size the number of primer pairs, 1 <= size <= this.size
+		 * 
+		 * @return the ancestor of this node (or this node) holding 'size' primer pairs
+		 */
+		Node ancestor(int size){
+			Node node = this;
+			while(node.size > size){
+				node = (node.jump.size >= size) ? node.jump : node.parent;
+			}
+			return node;
+		}
+	}
 }
@@ -0,0 +1,200 @@
+package primerDesign.dsc;
+
+import java.util.Arrays;
+
+import cern.colt.list.ObjectArrayList;
+
+/**
+ * Stores the valid primer pairs of a restriction site column-wise in primitive arrays.
+ *
+ * A primer pair is identified by its row in the table, its primers by their indices in the valid primer arrays of the restriction site.
+ * The distance of each primer pair to the virtual optimal primer pair is stored as primitive sort key, primer pairs are sorted
+ * by a stable LSD radix sort on these keys without comparing primer pair objects.
+ *
+ * @author Sebastian Frhler
+ *
+ */
+public class PrimerPairTable {
+	private static final int INITIAL_CAPACITY = 64;
+	private static final int RADIX_BITS = 8;
+	private static final int RADIX = 1 << RADIX_BITS;
+
+	private int size = 0;
+	private int[] forward;
+	private int[] reverse;
+	private int[] probe;
+	private double[] distanceToOptimalPrimerPair;
+	private PrimerPair[] pairs;
+	private ObjectArrayList list; // the primer pairs in table order, null iff not created since the last change
+	private boolean sorted = true; // whether the table is sorted by distance, sorted tables are not changed by sorting them again
+
+	/**
+	 * Initializes an empty primer pair table.
+	 */
+	public PrimerPairTable(){
+		this.allocate(0);
+	}
+
+	/**
+	 * Adds a primer pair to the table.
+	 *
+	 * @param forward the index of the forward primer
+	 * @param reverse the index of the reverse primer
+	 * @param probe the index of the hybridization probe, -1 if there is none
+	 * @param pair the primer pair
+	 *
+	 * @return the row of the new primer pair
+	 */
+	public int add(int forward, int reverse, int probe, PrimerPair pair){
+		if(this.size == this.pairs.length) this.allocate(Math.max(INITIAL_CAPACITY, 2 * this.size));
+
+		int row = this.size++;
+		this.forward[row] = forward;
+		this.reverse[row] = reverse;
+		this.probe[row] = probe;
+		this.distanceToOptimalPrimerPair[row] = pair.getDistanceToOptimalPrimerPair();
+		this.pairs[row] = pair;
+		this.list = null;
+		this.sorted = false;
+		return row;
+	}
+
+	/**
+	 * Sorts the primer pairs by ascending distance to the virtual optimal primer pair.
+	 *
+	 * The sort is stable, primer pairs of equal distance remain in their current order. Sorting a sorted table does not modify it,
+	 * sorted tables may therefore be sorted and read by any number of threads.
+	 */
+	public void sortByDistanceToOptimalPrimerPair(){
+		if(this.sorted) return;
+		this.sorted = true;
+		if(this.size < 2) return;
+		long[] keys = new long[this.size];
+		for(int row=0; row<this.size; row++) keys[row] = sortKey(this.distanceToOptimalPrimerPair[row]);
+
+		int[] order = new int[this.size];
+		int[] buffer = new int[this.size];
+		int[] temp;
+		for(int row=0; row<this.size; row++) order[row] = row;
+
+		int[] count = new int[RADIX + 1];
+		for(int shift=0; shift<Long.SIZE; shift+=RADIX_BITS){
+			Arrays.fill(count, 0);
+			for(int row=0; row<this.size; row++) count[(int)((keys[row] >>> shift) & (RADIX - 1)) + 1]++;
+			// all keys share this digit, the pass would not change the order
+			if(count[(int)((keys[0] >>> shift) & (RADIX - 1)) + 1] == this.size) continue;
+			for(int digit=0; digit<RADIX; digit++) count[digit + 1] += count[digit];
+			for(int i=0; i<this.size; i++) buffer[count[(int)((keys[order[i]] >>> shift) & (RADIX - 1))]++] = order[i];
+			temp = order;
+			order = buffer;
+			buffer = temp;
+		}
+		this.permute(order);
+	}
+
+	/**
+	 * Returns the number of primer pairs in the table.
+	 *
+	 * @return the number of primer pairs in the table
+	 */
+	public int size(){
+		return this.size;
+	}
+
+	public PrimerPair getPrimerPair(int row){
+		this.checkRow(row);
+		return this.pairs[row];
+	}
+
+	public int getForwardPrimerIndex(int row){
+		this.checkRow(row);
+		return this.forward[row];
+	}
+
+	public int getReversePrimerIndex(int row){
+		this.checkRow(row);
+		return this.reverse[row];
+	}
+
+	public int getProbeIndex(int row){
+		this.checkRow(row);
+		return this.probe[row];
+	}
+
+	public double getDistanceToOptimalPrimerPair(int row){
+		this.checkRow(row);
+		return this.distanceToOptimalPrimerPair[row];
+	}
+
+	/**
+	 * Returns the primer pairs in table order.
+	 *
+	 * @return the primer pairs in table order, the list must not be modified
+	 */
+	public ObjectArrayList toList(){
+		if(this.list == null){
+			PrimerPair[] elements = new PrimerPair[this.size];
+			System.arraycopy(this.pairs, 0, elements, 0, this.size);
+			this.list = new ObjectArrayList(elements);
+		}
+		return this.list;
+	}
+
+	/**
+	 * Returns a radix sort key preserving the order of distances.
+	 *
+	 * @param distance the distance
+	 *
+	 * @return a key whose unsigned order equals the numerical order of the distances
+	 */
+	private static long sortKey(double distance){
+		// adding 0.0 maps -0.0 to 0.0, both are equal w.r.t. the primer pair ordering
+		long bits = Double.doubleToLongBits(distance + 0.0);
+		return bits ^ ((bits >> 63) | Long.MIN_VALUE);
+	}
+
+	private void checkRow(int row){
+		if(row < 0 || row >= this.size) throw new IndexOutOfBoundsException("Row: " + row + ", size: " + this.size);
+	}
+
+	private void permute(int[] order){
+		int[] forward = new int[this.forward.length];
+		int[] reverse = new int[this.reverse.length];
+		int[] probe = new int[this.probe.length];
+		double[] distance = new double[this.distanceToOptimalPrimerPair.length];
+		PrimerPair[] pairs = new PrimerPair[this.pairs.length];
+		for(int row=0; row<this.size; row++){
+			forward[row] = this.forward[order[row]];
+			reverse[row] = this.reverse[order[row]];
+			probe[row] = this.probe[order[row]];
+			distance[row] = this.distanceToOptimalPrimerPair[order[row]];
+			pairs[row] = this.pairs[order[row]];
+		}
+		this.forward = forward;
+		this.reverse = reverse;
+		this.probe = probe;
+		this.distanceToOptimalPrimerPair = distance;
+		this.pairs = pairs;
+		this.list = null;
+	}
+
+	private void allocate(int capacity){
+		int[] forward = new int[capacity];
+		int[] reverse = new int[capacity];
+		int[] probe = new int[capacity];
+		double[] distance = new double[capacity];
+		PrimerPair[] pairs = new PrimerPair[capacity];
+		if(this.pairs != null){
+			System.arraycopy(this.forward, 0, forward, 0, this.size);
+			System.arraycopy(this.reverse, 0, reverse, 0, this.size);
+			System.arraycopy(this.probe, 0, probe, 0, this.size);
+			System.arraycopy(this.distanceToOptimalPrimerPair, 0, distance, 0, this.size);
+			System.arraycopy(this.pairs, 0, pairs, 0, this.size);
+		}
+		this.forward = forward;
+		this.reverse = reverse;
+		this.probe = probe;
+		this.distanceToOptimalPrimerPair = distance;
+		this.pairs = pairs;
+	}
+}
@@ -148,46 +148,121 @@ public class PrimerSearchStatistics {
 	
 	public void evaluatePrimer(Primer primer, PrimerSearchParameters params){
 		if(!primer.getPrimerType().equals(PrimerTypes.forwardPrimer) && !primer.getPrimerType().equals(PrimerTypes.reversePrimer)) throw new IllegalArgumentException("This method is designed for evaluating forward and reverse primers!");
-		if(primer.getMeltingTemp() < params.getMIN_TM()){
+		this.evaluatePrimer(primer.getMeltingTemp(), primer.getGcContent(), primer.getSelfAlignmentScore(), primer.getSelfEndAlignmentScore(), params);
+	}
+	
+	/**
+	 * Evaluates the properties of a forward or reverse primer which has not been materialized as a primer object.
+	 * 
+	 * @param meltingTemp the melting temperature of the primer
+	 * @param gcContent the GC content of the primer
+	 * @param selfAlignmentScore the self alignment score of the primer
+	 * @param selfEndAlignmentScore the self end alignment score of the primer
+	 * @param params the 3PD search parameters
+	 */
+	public void evaluatePrimer(double meltingTemp, double gcContent, double selfAlignmentScore, double selfEndAlignmentScore, PrimerSearchParameters params){
+		if(meltingTemp < params.getMIN_TM()){
 			this.invalidPrimerTM++;
 			this.invalidPrimerTMbelow++;
 		}
-		if(primer.getMeltingTemp() > params.getMAX_TM()){
+		if(meltingTemp > params.getMAX_TM()){
 			this.invalidPrimerTM++;
 			this.invalidPrimerTMabove++;
 		}
-		if(primer.getGcContent() < params.getMIN_GC()){
+		if(gcContent < params.getMIN_GC()){
 			this.invalidPrimerGC++;
 			this.invalidPrimerGCbelow++;
 		}
-		if(primer.getGcContent() > params.getMAX_GC()){
+		if(gcContent > params.getMAX_GC()){
 			this.invalidPrimerGC++;
 			this.invalidPrimerGCabove++;
 		}
-		if(primer.getSelfAlignmentScore() > params.getMAX_PRIMER_SELF_ALIGNMENT_SCORE()) this.invalidPrimerSA++;
-		if(primer.getSelfEndAlignmentScore() > params.getMAX_PRIMER_SELF_END_ALIGNMENT_SCORE()) this.invalidPrimerSEA++;
+		if(selfAlignmentScore > params.getMAX_PRIMER_SELF_ALIGNMENT_SCORE()) this.invalidPrimerSA++;
+		if(selfEndAlignmentScore > params.getMAX_PRIMER_SELF_END_ALIGNMENT_SCORE()) this.invalidPrimerSEA++;
 	}
 	
 	public void evaluateProbe(Primer primer, PrimerSearchParameters params){
 		if(!primer.getPrimerType().equals(PrimerTypes.hybridizationProbe)) throw new IllegalArgumentException("This method is designed for evaluating TaqMan probe primers!");
-		if(primer.getMeltingTemp() < params.getMIN_TM()){
+		this.evaluateProbe(primer.getMeltingTemp(), primer.getGcContent(), primer.getSelfAlignmentScore(), primer.getSelfEndAlignmentScore(), params);
+	}
+	
+	/**
+	 * Evaluates the properties of a TaqMan probe which has not been materialized as a primer object.
+	 * 
+	 * @param meltingTemp the melting temperature of the probe
+	 * @param gcContent the GC content of the probe
+	 * @param selfAlignmentScore the self alignment score of the probe
+	 * @param selfEndAlignmentScore the self end alignment score of the probe
+	 * @param params the 3PD search parameters
+	 */
+	public void evaluateProbe(double meltingTemp, double gcContent, double selfAlignmentScore, double selfEndAlignmentScore, PrimerSearchParameters params){
+		if(meltingTemp < params.getMIN_TM()){
 			this.invalidProbeTM++;
 			this.invalidProbeTMbelow++;
 		}
-		if(primer.getMeltingTemp() > params.getMAX_TM()){
+		if(meltingTemp > params.getMAX_TM()){
 			this.invalidProbeTM++;
 			this.invalidProbeTMabove++;
 		}
-		if(primer.getGcContent() < params.getMIN_GC()){
+		if(gcContent < params.getMIN_GC()){
 			this.invalidProbeGC++;
 			this.invalidProbeGCbelow++;
 		}
-		if(primer.getGcContent() > params.getMAX_GC()){
+		if(gcContent > params.getMAX_GC()){
 			this.invalidProbeGC++;
 			this.invalidProbeGCabove++;
 		}
-		if(primer.getSelfAlignmentScore() > params.getMAX_PRIMER_SELF_ALIGNMENT_SCORE()) this.invalidProbeSA++;
-		if(primer.getSelfEndAlignmentScore() > params.getMAX_PRIMER_SELF_END_ALIGNMENT_SCORE()) this.invalidProbeSEA++;
+		if(selfAlignmentScore > params.getMAX_PRIMER_SELF_ALIGNMENT_SCORE()) this.invalidProbeSA++;
+		if(selfEndAlignmentScore > params.getMAX_PRIMER_SELF_END_ALIGNMENT_SCORE()) this.invalidProbeSEA++;
+	}
+	
+	/**
+	 * Adds the counts of another primer search statistics to this statistics.
+	 * 
+	 * Concurrent scan tasks count into statistics of their own which are added up once a task is finished.
+	 * 
+	 * @param other the statistics to add
+	 */
+	public synchronized void add(PrimerSearchStatistics other){
+		this.primerCount += other.primerCount;
+		this.primerIndexCount += other.primerIndexCount;
+		this.anotherRSSinAmpliconCount += other.anotherRSSinAmpliconCount;
+		this.enumeratePrimersCount += other.enumeratePrimersCount;
+		this.emptyUpstreamPrimerList += other.emptyUpstreamPrimerList;
+		this.nonEmptyUpstreamPrimerList += other.nonEmptyUpstreamPrimerList;
+		this.emptyDownstreamPrimersList += other.emptyDownstreamPrimersList;
+		this.nonEmptyDownstreamPrimersList += other.nonEmptyDownstreamPrimersList;
+		this.emptyTaqManPrimersList += other.emptyTaqManPrimersList;
+		this.nonEmptyTaqManPrimersList += other.nonEmptyTaqManPrimersList;
+		this.emptyUpDownTaqManList += other.emptyUpDownTaqManList;
+		this.nonEmptyUpDownTaqManList += other.nonEmptyUpDownTaqManList;
+		this.primerAmbiguityCodeCount += other.primerAmbiguityCodeCount;
+		this.singleNucleotideRepeatPatternCount += other.singleNucleotideRepeatPatternCount;
+		this.gcClampCount += other.gcClampCount;
+		this.repetitiveElementPatternCount += other.repetitiveElementPatternCount;
+		this.restrictionEnzymePatternCount += other.restrictionEnzymePatternCount;
+		this.invalidPrimerCount += other.invalidPrimerCount;
+		this.validPrimerCount += other.validPrimerCount;
+		this.noMisprimingsCount += other.noMisprimingsCount;
+		this.misprimingCount += other.misprimingCount;
+		this.invalidTaqManCount += other.invalidTaqManCount;
+		this.validTaqManCount += other.validTaqManCount;
+		this.invalidPrimerTM += other.invalidPrimerTM;
+		this.invalidPrimerTMabove += other.invalidPrimerTMabove;
+		this.invalidPrimerTMbelow += other.invalidPrimerTMbelow;
+		this.invalidPrimerGC += other.invalidPrimerGC;
+		this.invalidPrimerGCabove += other.invalidPrimerGCabove;
+		this.invalidPrimerGCbelow += other.invalidPrimerGCbelow;
+		this.invalidPrimerSA += other.invalidPrimerSA;
+		this.invalidPrimerSEA += other.invalidPrimerSEA;
+		this.invalidProbeTM += other.invalidProbeTM;
+		this.invalidProbeTMabove += other.invalidProbeTMabove;
+		this.invalidProbeTMbelow += other.invalidProbeTMbelow;
+		this.invalidProbeGC += other.invalidProbeGC;
+		this.invalidProbeGCabove += other.invalidProbeGCabove;
+		this.invalidProbeGCbelow += other.invalidProbeGCbelow;
+		this.invalidProbeSA += other.invalidProbeSA;
+		this.invalidProbeSEA += other.invalidProbeSEA;
 	}
 	
 	public String getStat(){
@@ -1,5 +1,9 @@
 package primerDesign.dsc;
 
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
 import org.biojava.bio.molbio.RestrictionEnzyme;
 
 import primerDesign.algo.SequenceRegionAligner;
@@ -21,7 +25,10 @@ public class RestrictionSite implements Comparable{
 	private Primer[] validUpstreamPrimers;
 	private Primer[] validDownstreamPrimers;
 	private Primer[] validTaqManProbes;
-	private ObjectArrayList primerPairs;
+	private PrimerCandidateTable upstreamCandidates; // valid upstream primers not materialized yet, null iff validUpstreamPrimers holds them
+	private PrimerCandidateTable downstreamCandidates; // valid downstream primers not materialized yet, null iff validDownstreamPrimers holds them
+	private PrimerCandidateTable taqManCandidates; // valid TaqMan probes not materialized yet, null iff validTaqManProbes holds them
+	private PrimerPairTable primerPairs;
 	private SequenceRegion sequenceRegion;
 	private int distanceToIntervalMean;
 	private PrimerSearchParameters searchParams;
@@ -30,6 +37,9 @@ public class RestrictionSite implements Comparable{
 	private char[] forwardScanSequence; // the forward primer scan sequence in 5'->3' direction
 	private char[] reverseScanSequence; // the reverse primer scan sequence in 5'->3' direction
 	private char[] probeScanSequence; // the probe primer scan sequence in 5'->3' direction
+	private ScanRegion forwardScanRegion; // the coordinates of the forward primer scan sequence, null iff unknown
+	private ScanRegion reverseScanRegion; // the coordinates of the reverse primer scan sequence, null iff unknown
+	private ScanRegion probeScanRegion; // the coordinates of the probe primer scan sequence, null iff unknown
 	
 	/** 
 	 * Empty default constructor.
@@ -57,7 +67,7 @@ public class RestrictionSite implements Comparable{
 		this.validUpstreamPrimers = new Primer[0];
 		this.validDownstreamPrimers = new Primer[0];
 		this.validTaqManProbes = new Primer[0];
-		this.primerPairs = new ObjectArrayList();
+		this.primerPairs = new PrimerPairTable();
 		this.sequenceRegion = new SequenceRegion(null, 0,0);
 		this.distanceToIntervalMean = Integer.MIN_VALUE;
 		this.searchParams = searchParams;
@@ -80,12 +90,44 @@ public class RestrictionSite implements Comparable{
 		this.validUpstreamPrimers = new Primer[0];
 		this.validDownstreamPrimers = new Primer[0];
 		this.validTaqManProbes = new Primer[0];
-		this.primerPairs = new ObjectArrayList();
+		this.primerPairs = new PrimerPairTable();
 		this.sequenceRegion = region;
 		this.distanceToIntervalMean = Integer.MIN_VALUE;
 		this.searchParams = searchParams;
 	}
 	
+	/**
+	 * Initializes a copy of a restriction site located on another sequence region.
+	 * 
+	 * The copy shares the valid primers and the scan sequences of 'site' and, iff they are enumerated already, its primer pairs.
+	 * Otherwise the copy enumerates primer pairs of its own, the copy may therefore be scanned and enumerated independently of 'site'.
+	 * 
+	 * @param site the restriction site to copy
+	 * @param region the sequence region of the copy
+	 */
+	public RestrictionSite(RestrictionSite site, SequenceRegion region){
+		this.enzyme = site.enzyme;
+		this.position = site.position;
+		this.validUpstreamPrimers = site.validUpstreamPrimers;
+		this.validDownstreamPrimers = site.validDownstreamPrimers;
+		this.validTaqManProbes = site.validTaqManProbes;
+		this.upstreamCandidates = site.upstreamCandidates;
+		this.downstreamCandidates = site.downstreamCandidates;
+		this.taqManCandidates = site.taqManCandidates;
+		this.primerPairs = site.hasEnumeratedPrimerPairs ? site.primerPairs : new PrimerPairTable();
+		this.sequenceRegion = region;
+		this.distanceToIntervalMean = site.distanceToIntervalMean;
+		this.searchParams = site.searchParams;
+		this.wasScannedForPrimers = site.wasScannedForPrimers;
+		this.hasEnumeratedPrimerPairs = site.hasEnumeratedPrimerPairs;
+		this.forwardScanSequence = site.forwardScanSequence;
+		this.reverseScanSequence = site.reverseScanSequence;
+		this.probeScanSequence = site.probeScanSequence;
+		this.forwardScanRegion = site.forwardScanRegion;
+		this.reverseScanRegion = site.reverseScanRegion;
+		this.probeScanRegion = site.probeScanRegion;
+	}
+	
 	public boolean wasScannedForPrimers(){
 		return this.wasScannedForPrimers;
 	}
@@ -100,8 +142,8 @@ public class RestrictionSite implements Comparable{
 	 * @return the validUpstreamPrimers of a restriction site
 	 */
 	public Primer[] getValidUpstreamPrimers() {
-		if(validUpstreamPrimers.length == 0) throw new EmptyResultSetException("No upstream-primers were set for this restriction site.");
-		return validUpstreamPrimers;
+		if(this.getNumberOfValidUpstreamPrimers() == 0) throw new EmptyResultSetException("No upstream-primers were set for this restriction site.");
+		return this.upstreamPrimers();
 	}
 	
 	/**
@@ -110,8 +152,8 @@ public class RestrictionSite implements Comparable{
 	 * @return the validDownstreamPrimers of a restriction site
 	 */
 	public Primer[] getValidDownstreamPrimers(){
-		if(validDownstreamPrimers.length == 0) throw new EmptyResultSetException("No downstream-primers were set for this restriction site.");
-		return validDownstreamPrimers;
+		if(this.getNumberOfValidDownstreamPrimers() == 0) throw new EmptyResultSetException("No downstream-primers were set for this restriction site.");
+		return this.downstreamPrimers();
 	}
 	
 	/**
@@ -120,8 +162,8 @@ public class RestrictionSite implements Comparable{
 	 * @return the validTaqManProbes of a restriction site
 	 */
 	public Primer[] getValidTaqManProbes(){
-		if(validTaqManProbes.length == 0) throw new EmptyResultSetException("No TaqMan probes were set for this restriction site.");
-		return validTaqManProbes;
+		if(this.getNumberOfValidTaqManProbes() == 0) throw new EmptyResultSetException("No TaqMan probes were set for this restriction site.");
+		return this.taqManProbes();
 	}
 	
 	/**
@@ -130,7 +172,7 @@ public class RestrictionSite implements Comparable{
 	 * @return the number of valid upstream primers at this restriction site
 	 */
 	public int getNumberOfValidUpstreamPrimers(){
-		return this.validUpstreamPrimers.length;
+		return (this.upstreamCandidates != null) ? this.upstreamCandidates.size() : this.validUpstreamPrimers.length;
 	}
 	
 	/**
@@ -139,7 +181,7 @@ public class RestrictionSite implements Comparable{
 	 * @return the number of valid downstream primers at this restriction site
 	 */
 	public int getNumberOfValidDownstreamPrimers(){
-		return this.validDownstreamPrimers.length;
+		return (this.downstreamCandidates != null) ? this.downstreamCandidates.size() : this.validDownstreamPrimers.length;
 	}
 	
 	/**
@@ -148,7 +190,7 @@ public class RestrictionSite implements Comparable{
 	 * @return the number of valid TaqMan probes at this restriction site
 	 */
 	public int getNumberOfValidTaqManProbes(){
-		return this.validTaqManProbes.length;
+		return (this.taqManCandidates != null) ? this.taqManCandidates.size() : this.validTaqManProbes.length;
 	}
 	
 	/**
@@ -159,7 +201,7 @@ public class RestrictionSite implements Comparable{
 	 * @return the upstream primer at position 'index'
 	 */
 	public Primer getUpstreamPrimer(int index){
-		if(index < this.validUpstreamPrimers.length) return (Primer) this.validUpstreamPrimers[index];
+		if(index < this.getNumberOfValidUpstreamPrimers()) return (this.upstreamCandidates != null) ? this.upstreamCandidates.getPrimer(index) : this.validUpstreamPrimers[index];
 		else throw new IllegalArgumentException("Invalid primer index!");
 	}
 	
@@ -171,7 +213,7 @@ public class RestrictionSite implements Comparable{
 	 * @return the downstream primer at position 'index'
 	 */
 	public Primer getDownstreamPrimer(int index){
-		if(index < this.validDownstreamPrimers.length) return (Primer) this.validDownstreamPrimers[index];
+		if(index < this.getNumberOfValidDownstreamPrimers()) return (this.downstreamCandidates != null) ? this.downstreamCandidates.getPrimer(index) : this.validDownstreamPrimers[index];
 		else throw new IllegalArgumentException("Invalid primer index!");
 	}
 	
@@ -183,7 +225,7 @@ public class RestrictionSite implements Comparable{
 	 * @return the TaqMan probe at position 'index'
 	 */
 	public Primer getTaqManProbe(int index){
-		if(index < this.validTaqManProbes.length) return (Primer) this.validTaqManProbes[index];
+		if(index < this.getNumberOfValidTaqManProbes()) return (this.taqManCandidates != null) ? this.taqManCandidates.getPrimer(index) : this.validTaqManProbes[index];
 		else throw new IllegalArgumentException("Invalid primer index!");
 	}
 	
@@ -195,6 +237,7 @@ public class RestrictionSite implements Comparable{
 	public void setValidUpstreamPrimers(Primer[] primers){
 		if(primers.length == 0) throw new IllegalArgumentException("The upstream-primer vector 'primers' is empty! - no primers can be set!");
 		this.validUpstreamPrimers = primers;
+		this.upstreamCandidates = null;
 //		if(this.validUpstreamPrimers.length > 0 && this.validDownstreamPrimers.length > 0 && this.validTaqManProbes.length > 0){
 //			this.wasScannedForPrimers = true;
 //		}
@@ -209,6 +252,7 @@ public class RestrictionSite implements Comparable{
 	public void setValidDownstreamPrimers(Primer[] primers){
 		if(primers.length == 0) throw new IllegalArgumentException("The downstream-primer vector 'primers' is empty! - no primers can be set!");
 		this.validDownstreamPrimers = primers;
+		this.downstreamCandidates = null;
 //		if(this.validUpstreamPrimers.length > 0 && this.validDownstreamPrimers.length > 0 && this.validTaqManProbes.length > 0){
 //			this.wasScannedForPrimers = true;
 //		}
@@ -223,14 +267,51 @@ public class RestrictionSite implements Comparable{
 	public void setValidTaqManProbes(Primer[] primers){
 		if(primers.length == 0) throw new IllegalArgumentException("The TaqMan probe vector 'primers' is empty! - no primers can be set!");
 		this.validTaqManProbes = primers;
+		this.taqManCandidates = null;
 //		if(this.validUpstreamPrimers.length > 0 && this.validDownstreamPrimers.length > 0 && this.validTaqManProbes.length > 0){
 //			this.wasScannedForPrimers = true;
 //		}
 		this.wasScannedForPrimers = true;
 	}
 	
+	/**
+	 * Sets the valid upstream primers of a restriction site as primer candidate table, primer objects are created on first access.
+	 * 
+	 * @param candidates a table of valid upstream primers
+	 */
+	public void setValidUpstreamPrimers(PrimerCandidateTable candidates){
+		if(candidates.size() == 0) throw new IllegalArgumentException("The upstream-primer table 'candidates' is empty! - no primers can be set!");
+		this.upstreamCandidates = candidates;
+		this.validUpstreamPrimers = null;
+		this.wasScannedForPrimers = true;
+	}
+	
+	/**
+	 * Sets the valid downstream primers of a restriction site as primer candidate table, primer objects are created on first access.
+	 * 
+	 * @param candidates a table of valid downstream primers
+	 */
+	public void setValidDownstreamPrimers(PrimerCandidateTable candidates){
+		if(candidates.size() == 0) throw new IllegalArgumentException("The downstream-primer table 'candidates' is empty! - no primers can be set!");
+		this.downstreamCandidates = candidates;
+		this.validDownstreamPrimers = null;
+		this.wasScannedForPrimers = true;
+	}
+	
+	/**
+	 * Sets the valid TaqMan probes of a restriction site as primer candidate table, primer objects are created on first access.
+	 * 
+	 * @param candidates a table of valid TaqMan probes
+	 */
+	public void setValidTaqManProbes(PrimerCandidateTable candidates){
+		if(candidates.size() == 0) throw new IllegalArgumentException("The TaqMan probe table 'candidates' is empty! - no primers can be set!");
+		this.taqManCandidates = candidates;
+		this.validTaqManProbes = null;
+		this.wasScannedForPrimers = true;
+	}
+	
 	public void wasScannedForPrimers(boolean value){
-		if(value == true && this.validUpstreamPrimers.length > 0 && this.validDownstreamPrimers.length > 0 && (!searchParams.isPickTaqManProbe() || this.validTaqManProbes.length > 0)) this.wasScannedForPrimers = value;
+		if(value == true && this.getNumberOfValidUpstreamPrimers() > 0 && this.getNumberOfValidDownstreamPrimers() > 0 && (!searchParams.isPickTaqManProbe() || this.getNumberOfValidTaqManProbes() > 0)) this.wasScannedForPrimers = value;
 		else if(value == false) this.wasScannedForPrimers = value;
 		else throw new IllegalStateException("Not every primer list contains at least one entry!");
 	}
@@ -314,11 +395,18 @@ public class RestrictionSite implements Comparable{
 	/**
 	 * This method enumerates all valid primer pairs each consisting of one upstream, one downstream and one hybridization probe primer.
 	 * 
-	 * After enumeration, the list of valid primer pairs is orderd by increasing score w.r.t the virtual optimal primer.
+	 * Only combinations of compatible melting temperatures are visited: the downstream primers and probes are sorted by melting temperature
+	 * and the compatible ones are located by binary search, the remaining combinations are rejected in bulk.
+	 * The valid primer pairs keep the order of the exhaustive enumeration unless the number of primer pairs per site is limited,
+	 * then only the best primer pairs w.r.t. the virtual optimal primer pair are kept, ordered by increasing distance.
 	 *
 	 */
 	public void enumeratePrimerPairs(){
-		if(this.validUpstreamPrimers.length == 0 || this.validDownstreamPrimers.length == 0 || (searchParams.isPickTaqManProbe() && this.validTaqManProbes.length == 0)) throw new IllegalStateException("At least one list of valid primers is empty!");
+		if(this.getNumberOfValidUpstreamPrimers() == 0 || this.getNumberOfValidDownstreamPrimers() == 0 || (searchParams.isPickTaqManProbe() && this.getNumberOfValidTaqManProbes() == 0)) throw new IllegalStateException("At least one list of valid primers is empty!");
+		
+		Primer[] validUpstreamPrimers = this.upstreamPrimers();
+		Primer[] validDownstreamPrimers = this.downstreamPrimers();
+		Primer[] validTaqManProbes = this.taqManProbes();
 		
 		PrimerPair currentPair;
 		SequenceRegionAlignment fwRev = SequenceRegionAligner.alignSequenceRegions(this.getForwardScanSequence(), this.getReverseScanSequence(), this.searchParams.getA_t_basepair_score(), this.searchParams.getG_c_basepair_score());
@@ -328,32 +416,64 @@ public class RestrictionSite implements Comparable{
 			fwProbe = SequenceRegionAligner.alignSequenceRegions(this.getForwardScanSequence(), this.getProbeScanSequence(), this.searchParams.getA_t_basepair_score(), this.searchParams.getG_c_basepair_score());
 			revProbe = SequenceRegionAligner.alignSequenceRegions(this.getReverseScanSequence(), this.getProbeScanSequence(), this.searchParams.getA_t_basepair_score(), this.searchParams.getG_c_basepair_score());
 		}
-		for(int i=0; i<this.validUpstreamPrimers.length; i++){
-			for(int j=0; j<this.validDownstreamPrimers.length; j++){
+		
+		final double maxTmDifference = searchParams.getMAX_PRIMER_TM_DIFFERENCE();
+		final double minProbeTmDifference = searchParams.getMIN_TAQMAN_TM_DIFFERENCE();
+		final int probesPerPair = searchParams.isPickTaqManProbe() ? validTaqManProbes.length : 1;
+		
+		int[] downstreamByTm = sortByMeltingTemp(validDownstreamPrimers);
+		double[] downstreamTm = meltingTemps(validDownstreamPrimers, downstreamByTm);
+		int[] probesByTm = null;
+		double[] probeTm = null;
+		if(searchParams.isPickTaqManProbe()){
+			probesByTm = sortByMeltingTemp(validTaqManProbes);
+			probeTm = meltingTemps(validTaqManProbes, probesByTm);
+		}
+		int[] downstreamWindow = new int[validDownstreamPrimers.length];
+		int[] probeWindow = new int[probesPerPair];
+		
+		PrimerPairPickingStatistics stat = this.searchParams.getPickingStat();
+		TopPrimerPairs topPairs = (searchParams.getMAX_PRIMER_PAIRS_PER_SITE() > 0) ? new TopPrimerPairs(searchParams.getMAX_PRIMER_PAIRS_PER_SITE()) : null;
+		int windowSize;
+		int validProbes;
+		double forwardTm;
+		double reverseTm;
+		
+		for(int i=0; i<validUpstreamPrimers.length; i++){
+			// the downstream primers with |Tm(fw) - Tm(rev)| <= maxTmDifference form a contiguous window of the Tm-sorted primers
+			forwardTm = validUpstreamPrimers[i].getMeltingTemp();
+			windowSize = 0;
+			for(int j=firstNotMatching(downstreamTm, forwardTm, maxTmDifference, false); j<downstreamTm.length && downstreamTm[j] - forwardTm <= maxTmDifference; j++){
+				downstreamWindow[windowSize++] = downstreamByTm[j];
+			}
+			// visit compatible downstream primers in the order of the exhaustive enumeration
+			Arrays.sort(downstreamWindow, 0, windowSize);
+			stat.addPrimerPrimerTMreject((long)(validDownstreamPrimers.length - windowSize) * probesPerPair);
+			stat.addInvalidPrimerPairsEnum((long)(validDownstreamPrimers.length - windowSize) * probesPerPair);
+			
+			for(int w=0; w<windowSize; w++){
+				int j = downstreamWindow[w];
 				if(searchParams.isPickTaqManProbe()){
-					for(int k=0; k<this.validTaqManProbes.length; k++){
-						currentPair = new PrimerPair(this.validUpstreamPrimers[i], this.validDownstreamPrimers[j], this.validTaqManProbes[k], fwRev.getGlobalAlignmentValues(this.validUpstreamPrimers[i].getPositionInScanSequence(), this.validUpstreamPrimers[i].getLength(), this.validDownstreamPrimers[j].getPositionInScanSequence(), this.validDownstreamPrimers[j].getLength()), fwProbe.getGlobalAlignmentValues(this.validUpstreamPrimers[i].getPositionInScanSequence(), this.validUpstreamPrimers[i].getLength(), this.validTaqManProbes[k].getPositionInScanSequence(), this.validTaqManProbes[k].getLength()), revProbe.getGlobalAlignmentValues(this.validDownstreamPrimers[j].getPositionInScanSequence(), this.validDownstreamPrimers[j].getLength(), this.validTaqManProbes[k].getPositionInScanSequence(), this.validTaqManProbes[k].getLength()), this.searchParams);
-						currentPair.computeDistanceToOptimalPrimerPair();
-						if(isValidPrimerPair(currentPair, fwRev, fwProbe, revProbe)){
-							if(Constants.doEarlyMMScan) currentPair.setAcceptanceLevel(PrimerAcceptanceLevel.ACCEPTABLE);
-							this.primerPairs.add(currentPair);
-							this.searchParams.getPickingStat().incValidPrimerPairsEnum();
-						}
-						else this.searchParams.getPickingStat().incInvalidPrimerPairsEnum();
+					reverseTm = validDownstreamPrimers[j].getMeltingTemp();
+					validProbes = compatibleProbes(probeTm, probesByTm, Math.min(forwardTm, reverseTm), Math.max(forwardTm, reverseTm), minProbeTmDifference, probeWindow);
+					stat.addPrimerPrimerTMaccept(validTaqManProbes.length - validProbes);
+					stat.addPrimerProbeTMreject(validTaqManProbes.length - validProbes);
+					stat.addInvalidPrimerPairsEnum(validTaqManProbes.length - validProbes);
+					for(int v=0; v<validProbes; v++){
+						int k = probeWindow[v];
+						currentPair = new PrimerPair(validUpstreamPrimers[i], validDownstreamPrimers[j], validTaqManProbes[k], fwRev.getGlobalAlignmentValues(validUpstreamPrimers[i].getPositionInScanSequence(), validUpstreamPrimers[i].getLength(), validDownstreamPrimers[j].getPositionInScanSequence(), validDownstreamPrimers[j].getLength()), fwProbe.getGlobalAlignmentValues(validUpstreamPrimers[i].getPositionInScanSequence(), validUpstreamPrimers[i].getLength(), validTaqManProbes[k].getPositionInScanSequence(), validTaqManProbes[k].getLength()), revProbe.getGlobalAlignmentValues(validDownstreamPrimers[j].getPositionInScanSequence(), validDownstreamPrimers[j].getLength(), validTaqManProbes[k].getPositionInScanSequence(), validTaqManProbes[k].getLength()), this.searchParams);
+						this.addIfValid(i, j, k, currentPair, fwRev, fwProbe, revProbe, topPairs);
 					}
 				}
 				else{
-					currentPair = new PrimerPair(this.validUpstreamPrimers[i], this.validDownstreamPrimers[j], fwRev.getGlobalAlignmentValues(this.validUpstreamPrimers[i].getPositionInScanSequence(), this.validUpstreamPrimers[i].getLength(), this.validDownstreamPrimers[j].getPositionInScanSequence(), this.validDownstreamPrimers[j].getLength()), this.searchParams);
-					currentPair.computeDistanceToOptimalPrimerPair();
-					if(isValidPrimerPair(currentPair, fwRev, fwProbe, revProbe)){
-						if(Constants.doEarlyMMScan) currentPair.setAcceptanceLevel(PrimerAcceptanceLevel.ACCEPTABLE);
-						this.primerPairs.add(currentPair);
-						this.searchParams.getPickingStat().incValidPrimerPairsEnum();
-					}
-					else this.searchParams.getPickingStat().incInvalidPrimerPairsEnum();
+					currentPair = new PrimerPair(validUpstreamPrimers[i], validDownstreamPrimers[j], fwRev.getGlobalAlignmentValues(validUpstreamPrimers[i].getPositionInScanSequence(), validUpstreamPrimers[i].getLength(), validDownstreamPrimers[j].getPositionInScanSequence(), validDownstreamPrimers[j].getLength()), this.searchParams);
+					this.addIfValid(i, j, -1, currentPair, fwRev, fwProbe, revProbe, topPairs);
 				}
 			}
 		}
+		if(topPairs != null) topPairs.addTo(this.primerPairs);
+		// the list view is created before the primer pairs are shared by picking threads
+		this.primerPairs.toList();
 		if(this.primerPairs.size() > 0){
 			this.hasEnumeratedPrimerPairs = true;
 		}
@@ -361,16 +481,232 @@ public class RestrictionSite implements Comparable{
 		//this.primerPairs.quickSort();
 	}
 	
+	/**
+	 * Adds a primer pair to the valid primer pairs of this site iff it is valid.
+	 * 
+	 * @param forward the index of the forward primer
+	 * @param reverse the index of the reverse primer
+	 * @param probe the index of the hybridization probe, -1 if there is none
+	 * @param pair the primer pair
+	 * @param fwRev the alignment of the forward and reverse scan sequences
+	 * @param fwProbe the alignment of the forward and probe scan sequences, null if no probes are picked
+	 * @param revProbe the alignment of the reverse and probe scan sequences, null if no probes are picked
+	 * @param topPairs the best primer pairs to add 'pair' to, null if all valid primer pairs are kept
+	 */
+	private void addIfValid(int forward, int reverse, int probe, PrimerPair pair, SequenceRegionAlignment fwRev, SequenceRegionAlignment fwProbe, SequenceRegionAlignment revProbe, TopPrimerPairs topPairs){
+		pair.computeDistanceToOptimalPrimerPair();
+		if(isValidPrimerPair(pair, fwRev, fwProbe, revProbe)){
+			if(Constants.doEarlyMMScan) pair.setAcceptanceLevel(PrimerAcceptanceLevel.ACCEPTABLE);
+			if(topPairs == null) this.primerPairs.add(forward, reverse, probe, pair);
+			else topPairs.add(forward, reverse, probe, pair);
+			this.searchParams.getPickingStat().incValidPrimerPairsEnum();
+		}
+		else this.searchParams.getPickingStat().incInvalidPrimerPairsEnum();
+	}
+	
+	/**
+	 * Returns the indices of primers sorted by increasing melting temperature, primers of equal melting temperature keep their order.
+	 * 
+	 * @param primers the primers
+	 * 
+	 * @return the indices of 'primers' sorted by increasing melting temperature
+	 */
+	private static int[] sortByMeltingTemp(final Primer[] primers){
+		Integer[] order = new Integer[primers.length];
+		for(int i=0; i<order.length; i++) order[i] = i;
+		Arrays.sort(order, new Comparator<Integer>(){
+			public int compare(Integer o1, Integer o2){
+				return Double.compare(primers[o1].getMeltingTemp(), primers[o2].getMeltingTemp());
+			}
+		});
+		int[] result = new int[order.length];
+		for(int i=0; i<order.length; i++) result[i] = order[i];
+		return result;
+	}
+	
+	/**
+	 * Returns the melting temperatures of primers in a given order.
+	 * 
+	 * @param primers the primers
+	 * @param order the order of the primers
+	 * 
+	 * @return the melting temperatures of 'primers' in the order 'order'
+	 */
+	private static double[] meltingTemps(Primer[] primers, int[] order){
+		double[] result = new double[order.length];
+		for(int i=0; i<order.length; i++) result[i] = primers[order[i]].getMeltingTemp();
+		return result;
+	}
+	
+	/**
+	 * Returns the index of the first sorted melting temperature tm for which a Tm difference predicate is false.
+	 * 
+	 * The predicate is 'tm >= reference - difference' if 'below' is false, i.e. the index of the first tm NOT below the reference by more than 'difference',
+	 * and 'reference - tm >= difference' if 'below' is true, i.e. the index of the first tm NOT below the reference by at least 'difference'.
+	 * Both predicates are monotonous in tm and evaluated exactly as in the pairwise checks.
+	 * 
+	 * @param sortedTm the sorted melting temperatures
+	 * @param reference the reference melting temperature
+	 * @param difference the Tm difference
+	 * @param below the predicate to use
+	 * 
+	 * @return the index of the first element of 'sortedTm' not matching the predicate
+	 */
+	private static int firstNotMatching(double[] sortedTm, double reference, double difference, boolean below){
+		int low = 0;
+		int high = sortedTm.length;
+		int mid;
+		while(low < high){
+			mid = (low + high) >>> 1;
+			if(below ? reference - sortedTm[mid] >= difference : reference - sortedTm[mid] > difference) low = mid + 1;
+			else high = mid;
+		}
+		return low;
+	}
+	
+	/**
+	 * Returns the index of the first sorted melting temperature tm with 'tm - reference >= difference'.
+	 * 
+	 * @param sortedTm the sorted melting temperatures
+	 * @param reference the reference melting temperature
+	 * @param difference the Tm difference
+	 * 
+	 * @return the index of the first element of 'sortedTm' at least 'difference' above 'reference'
+	 */
+	private static int firstAbove(double[] sortedTm, double reference, double difference){
+		int low = 0;
+		int high = sortedTm.length;
+		int mid;
+		while(low < high){
+			mid = (low + high) >>> 1;
+			if(sortedTm[mid] - reference < difference) low = mid + 1;
+			else high = mid;
+		}
+		return low;
+	}
+	
+	/**
+	 * Collects the probes whose melting temperatures differ by at least 'minDifference' from both primer melting temperatures.
+	 * 
+	 * @param sortedTm the sorted probe melting temperatures
+	 * @param order the probe indices in the order of 'sortedTm'
+	 * @param lowTm the lower melting temperature of the primers
+	 * @param highTm the higher melting temperature of the primers
+	 * @param minDifference the minimum Tm difference of probes and primers
+	 * @param result the array to store the indices of compatible probes to, sorted increasingly
+	 * 
+	 * @return the number of compatible probes
+	 */
+	private static int compatibleProbes(double[] sortedTm, int[] order, double lowTm, double highTm, double minDifference, int[] result){
+		int size = 0;
+		if(minDifference <= 0){
+			for(int i=0; i<order.length; i++) result[size++] = i;
+		}
+		else{
+			// compatible probes are located below lowTm, between lowTm and highTm or above highTm
+			int belowLow = firstNotMatching(sortedTm, lowTm, minDifference, true);
+			int aboveLow = firstAbove(sortedTm, lowTm, minDifference);
+			int belowHigh = firstNotMatching(sortedTm, highTm, minDifference, true);
+			int aboveHigh = firstAbove(sortedTm, highTm, minDifference);
+			for(int i=0; i<belowLow; i++) result[size++] = order[i];
+			for(int i=aboveLow; i<belowHigh; i++) result[size++] = order[i];
+			for(int i=aboveHigh; i<order.length; i++) result[size++] = order[i];
+			Arrays.sort(result, 0, size);
+		}
+		return size;
+	}
+	
+	/**
+	 * Keeps the best primer pairs w.r.t. the virtual optimal primer pair in a bounded heap.
+	 * 
+	 * @author Sebastian Frhler
+	 *
+	 */
+	private static class TopPrimerPairs{
+		private final int capacity;
+		private final PriorityQueue<RankedPrimerPair> heap;
+		private int added = 0;
+		
+		TopPrimerPairs(int capacity){
+			this.capacity = capacity;
+			// the worst kept primer pair is at the head of the heap, on equal distances the later one is worse
+			this.heap = new PriorityQueue<RankedPrimerPair>(capacity, new Comparator<RankedPrimerPair>(){
+				public int compare(RankedPrimerPair o1, RankedPrimerPair o2){
+					return -o1.compareTo(o2);
+				}
+			});
+		}
+		
+		void add(int forward, int reverse, int probe, PrimerPair pair){
+			RankedPrimerPair candidate = new RankedPrimerPair(forward, reverse, probe, pair, this.added++);
+			if(this.heap.size() < this.capacity) this.heap.add(candidate);
+			else if(candidate.compareTo(this.heap.peek()) < 0){
+				this.heap.poll();
+				this.heap.add(candidate);
+			}
+		}
+		
+		/**
+		 * Adds the kept primer pairs ordered by increasing distance to the virtual optimal primer pair to a table.
+		 * 
+		 * @param table the table to add the kept primer pairs to
+		 */
+		void addTo(PrimerPairTable table){
+			RankedPrimerPair[] pairs = this.heap.toArray(new RankedPrimerPair[this.heap.size()]);
+			Arrays.sort(pairs);
+			for(int i=0; i<pairs.length; i++) table.add(pairs[i].forward, pairs[i].reverse, pairs[i].probe, pairs[i].pair);
+		}
+	}
+	
+	/**
+	 * A primer pair, the indices of its primers and its position in the enumeration.
+	 * 
+	 * @author Sebastian Frhler
+	 *
+	 */
+	private static class RankedPrimerPair implements Comparable<RankedPrimerPair>{
+		private final int forward;
+		private final int reverse;
+		private final int probe;
+		private final PrimerPair pair;
+		private final double distance;
+		private final int rank;
+		
+		RankedPrimerPair(int forward, int reverse, int probe, PrimerPair pair, int rank){
+			this.forward = forward;
+			this.reverse = reverse;
+			this.probe = probe;
+			this.pair = pair;
+			this.distance = pair.getDistanceToOptimalPrimerPair();
+			this.rank = rank;
+		}
+		
+		public int compareTo(RankedPrimerPair other){
+			int result = Double.compare(this.distance, other.distance);
+			return (result != 0) ? result : ((this.rank < other.rank) ? -1 : ((this.rank == other.rank) ? 0 : 1));
+		}
+	}
+	
 	public int getNumberOfValidPrimerPairs(){
 		return this.primerPairs.size();
 	}
 	
 	public PrimerPair getPrimerPair(int i){
 		if(!this.hasEnumeratedPrimerPairs) this.enumeratePrimerPairs();
-		return (PrimerPair)this.primerPairs.get(i);
+		return this.primerPairs.getPrimerPair(i);
 	}
 	
 	public ObjectArrayList getPrimerPairs(){
+		if(!this.hasEnumeratedPrimerPairs) this.enumeratePrimerPairs();
+		return this.primerPairs.toList();
+	}
+	
+	/**
+	 * Returns the table of valid primer pairs of this restriction site.
+	 * 
+	 * @return the table of valid primer pairs of this restriction site
+	 */
+	public PrimerPairTable getPrimerPairTable(){
 		if(!this.hasEnumeratedPrimerPairs) this.enumeratePrimerPairs();
 		return this.primerPairs;
 	}
@@ -441,6 +777,7 @@ public class RestrictionSite implements Comparable{
 	 */
 	public void setForwardScanSequence(char[] forwardScanSequence) {
 		this.forwardScanSequence = forwardScanSequence;
+		this.forwardScanRegion = null;
 	}
 
 	/**
@@ -455,6 +792,7 @@ public class RestrictionSite implements Comparable{
 	 */
 	public void setReverseScanSequence(char[] reverseScanSequence) {
 		this.reverseScanSequence = reverseScanSequence;
+		this.reverseScanRegion = null;
 	}
 
 	/**
@@ -469,15 +807,101 @@ public class RestrictionSite implements Comparable{
 	 */
 	public void setProbeScanSequence(char[] probeScanSequence) {
 		this.probeScanSequence = probeScanSequence;
+		this.probeScanRegion = null;
+	}
+	
+	/**
+	 * Sets the scan sequence of a primer type together with its coordinates.
+	 * 
+	 * @param region the coordinates of the scan sequence, its type selects the scan sequence to set
+	 * @param scanSequence the scan sequence in 5'->3' direction
+	 */
+	public void setScanSequence(ScanRegion region, char[] scanSequence){
+		if(region.getType().equals(PrimerTypes.forwardPrimer)){
+			this.setForwardScanSequence(scanSequence);
+			this.forwardScanRegion = region;
+		}
+		else if(region.getType().equals(PrimerTypes.reversePrimer)){
+			this.setReverseScanSequence(scanSequence);
+			this.reverseScanRegion = region;
+		}
+		else if(region.getType().equals(PrimerTypes.hybridizationProbe)){
+			this.setProbeScanSequence(scanSequence);
+			this.probeScanRegion = region;
+		}
+		else throw new IllegalArgumentException("Unsupported primer type!");
+	}
+	
+	/**
+	 * Returns the coordinates of the scan sequence of a primer type.
+	 * 
+	 * @param type the primer type
+	 * 
+	 * @return the coordinates of the scan sequence of primer type 'type', null iff they are unknown
+	 */
+	public ScanRegion getScanRegion(PrimerTypes type){
+		if(type.equals(PrimerTypes.forwardPrimer)) return this.forwardScanRegion;
+		else if(type.equals(PrimerTypes.reversePrimer)) return this.reverseScanRegion;
+		else if(type.equals(PrimerTypes.hybridizationProbe)) return this.probeScanRegion;
+		else throw new IllegalArgumentException("Unsupported primer type!");
 	}
 
 	/**
 	 * Sorts the primer pairs into ascending distance to the optimal primer pair (with distance 0 to itself :-).
 	 */
 	public void sortPrimerPairs(){
-		this.primerPairs.sort();
+		this.primerPairs.sortByDistanceToOptimalPrimerPair();
+		this.primerPairs.toList();
 	}
 
+	/**
+	 * Returns the valid upstream primers, creating the primer objects of a candidate table first.
+	 * 
+	 * @return the valid upstream primers
+	 */
+	private Primer[] upstreamPrimers(){
+		if(this.upstreamCandidates != null){
+			this.validUpstreamPrimers = this.upstreamCandidates.toPrimers();
+			this.upstreamCandidates = null;
+		}
+		return this.validUpstreamPrimers;
+	}
+	
+	/**
+	 * Returns the valid downstream primers, creating the primer objects of a candidate table first.
+	 * 
+	 * @return the valid downstream primers
+	 */
+	private Primer[] downstreamPrimers(){
+		if(this.downstreamCandidates != null){
+			this.validDownstreamPrimers = this.downstreamCandidates.toPrimers();
+			this.downstreamCandidates = null;
+		}
+		return this.validDownstreamPrimers;
+	}
+	
+	/**
+	 * Returns the valid TaqMan probes, creating the primer objects of a candidate table first.
+	 * 
+	 * @return the valid TaqMan probes
+	 */
+	private Primer[] taqManProbes(){
+		if(this.taqManCandidates != null){
+			this.validTaqManProbes = this.taqManCandidates.toPrimers();
+			this.taqManCandidates = null;
+		}
+		return this.validTaqManProbes;
+	}
+	
+	/**
+	 * Returns the object holding the valid upstream primers, either the candidate table or the primer array.
+	 * 
+	 * @return the object holding the valid upstream primers
+	 */
+	private Object upstreamPrimersHolder(){
+		return (this.upstreamCandidates != null) ? this.upstreamCandidates : this.validUpstreamPrimers;
+	}
+	
 	public int compareTo(Object o) {
 		RestrictionSite otherSite = (RestrictionSite) o;
 		if(this.distanceToIntervalMean < otherSite.getDistanceToIntervalMean()) return -1;
@@ -489,7 +913,7 @@ public class RestrictionSite implements Comparable{
 		RestrictionSite otherSite = (RestrictionSite) other;
 		if(this.enzyme.equals(otherSite.enzyme) && this.position == otherSite.position
 				&& this.distanceToIntervalMean == otherSite.distanceToIntervalMean
-				&& this.validUpstreamPrimers.equals(otherSite.validUpstreamPrimers) && this.sequenceRegion.equals(otherSite.sequenceRegion)) return true;
+				&& this.upstreamPrimersHolder().equals(otherSite.upstreamPrimersHolder()) && this.sequenceRegion.equals(otherSite.sequenceRegion)) return true;
 		else return false;
 	}
 	
@@ -0,0 +1,162 @@
+package primerDesign.dsc;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.biojava.bio.molbio.RestrictionEnzyme;
+
+import primerDesign.algo.RestrictionSiteScanner;
+import primerDesign.util.SimpleContig;
+import cern.colt.list.IntArrayList;
+
+/**
+ * Holds the sorted restriction site positions of one restriction enzyme on each contig of a background sequence.
+ *
+ * The restriction sites of a contig are scanned once on first access, queries for the number of restriction sites
+ * within a contig region are then answered by binary search without locking and without extracting the region sequence.
+ * Contigs are identified by their ID, an instance must therefore only be used for the contigs of one background sequence.
+ *
+ * Instances are thread-safe.
+ *
+ * @author Sebastian Frhler
+ *
+ */
+public class RestrictionSitePositions {
+	private final RestrictionSiteScanner scanner;
+	private final int siteLength;
+	private final ConcurrentHashMap<String, int[]> positions = new ConcurrentHashMap<String, int[]>(); // the sorted 0-based site start positions of each contig
+
+	/**
+	 * Initializes the restriction site positions of a restriction enzyme.
+	 *
+	 * @param enzyme the restriction enzyme
+	 */
+	public RestrictionSitePositions(RestrictionEnzyme enzyme){
+		this(new RestrictionSiteScanner(enzyme));
+	}
+
+	/**
+	 * Initializes the restriction site positions of the single restriction enzyme of a restriction site scanner.
+	 *
+	 * @param scanner the restriction site scanner
+	 */
+	public RestrictionSitePositions(RestrictionSiteScanner scanner){
+		if(scanner.getNumberOfEnzymes() != 1) throw new IllegalArgumentException("The restriction site scanner must be compiled for exactly one enzyme!");
+		this.scanner = scanner;
+		this.siteLength = scanner.getRecognitionSite(0).length();
+	}
+
+	/**
+	 * Checks whether these positions are computed for the recognition site of a restriction enzyme.
+	 *
+	 * @param enzyme the restriction enzyme
+	 *
+	 * @return true iff these positions are computed for the recognition site of 'enzyme'
+	 */
+	public boolean isComputedFor(RestrictionEnzyme enzyme){
+		return this.scanner.getRecognitionSite(0).equalsIgnoreCase(enzyme.getRecognitionSite().seqString());
+	}
+
+	/**
+	 * Returns the sorted 0-based start positions of all restriction sites on a contig.
+	 *
+	 * @param contig the contig
+	 *
+	 * @return the sorted 0-based start positions of all restriction sites on 'contig', the array must not be modified
+	 */
+	public int[] getPositions(final SimpleContig contig){
+		int[] result = this.positions.get(contig.getID());
+		if(result == null){
+			// each contig is scanned at most once, queries for already scanned contigs never block
+			result = this.positions.computeIfAbsent(contig.getID(), new Function<String, int[]>(){
+				public int[] apply(String id){
+					IntArrayList sites = scanner.findSites(contig.getSequence())[0];
+					return Arrays.copyOf(sites.elements(), sites.size());
+				}
+			});
+		}
+		return result;
+	}
+
+	/**
+	 * Counts the restriction sites located completely within the contig region [start, end).
+	 *
+	 * @param contig the contig
+	 * @param start the start of the region (inclusive)
+	 * @param end the end of the region (exclusive)
+	 *
+	 * @return the number of restriction sites within contig[start..end-1]
+	 */
+	public int countSites(SimpleContig contig, int start, int end){
+		final int lastStart = end - this.siteLength;
+		if(lastStart < start) return 0;
+		final int[] sites = this.getPositions(contig);
+		return firstGreaterThan(sites, lastStart) - firstGreaterThan(sites, start - 1);
+	}
+
+	/**
+	 * Returns the number of contigs scanned for restriction sites so far.
+	 *
+	 * @return the number of contigs scanned for restriction sites so far
+	 */
+	public int getNumberOfContigs(){
+		return this.positions.size();
+	}
+
+	/**
+	 * Holds the restriction site positions of the restriction enzyme used to check primers against one background sequence.
+	 *
+	 * The positions are created on first access and recreated only if the restriction enzyme changes,
+	 * all threads checking primers against the background sequence therefore share the same positions.
+	 * The positions are not serialized but recomputed on first access after deserialization.
+	 *
+	 * Instances are thread-safe.
+	 */
+	public static class Cache implements Serializable{
+		private static final long serialVersionUID = 1L;
+		private transient volatile RestrictionSitePositions positions;
+
+		/**
+		 * Returns the restriction site positions of a restriction enzyme on the contigs of the background sequence.
+		 *
+		 * @param enzyme the restriction enzyme
+		 *
+		 * @return the restriction site positions of 'enzyme'
+		 */
+		public RestrictionSitePositions get(RestrictionEnzyme enzyme){
+			RestrictionSitePositions result = this.positions;
+			if(result == null || !result.isComputedFor(enzyme)){
+				synchronized(this){
+					result = this.positions;
+					if(result == null || !result.isComputedFor(enzyme)){
+						result = new RestrictionSitePositions(enzyme);
+						this.positions = result;
+					}
+				}
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Returns the index of the first element of a sorted array greater than 'value'.
+	 *
+	 * @param sorted the sorted array
+	 * @param value the value
+	 *
+	 * @return the index of the first element of 'sorted' greater than 'value' or sorted.length if there is none
+	 */
+	private static int firstGreaterThan(int[] sorted, int value){
+		int low = 0;
+		int high = sorted.length;
+		int mid;
+		while(low < high){
+			mid = (low + high) >>> 1;
+			if(sorted[mid] <= value) low = mid + 1;
+			else high = mid;
+		}
+		return low;
+	}
+}
@@ -0,0 +1,84 @@
+package primerDesign.dsc;
+
+/**
+ * Encapsulates the coordinates of a primer scan region of a restriction site.
+ * 
+ * Scan regions are equal iff they are cut from the same contig at the same coordinates for the same primer type, their scan sequences are then equal as well.
+ * 
+ * @author Sebastian Frhler
+ *
+ */
+public class ScanRegion {
+	private final String contig;
+	private final int start;
+	private final int end;
+	private final PrimerTypes type;
+	
+	/**
+	 * Initializes a new scan region.
+	 * 
+	 * @param contig the ID of the contig the scan region is cut from
+	 * @param start the start of the scan region w.r.t. the contig sequence
+	 * @param end the end (inclusive) of the scan region w.r.t. the contig sequence
+	 * @param type the type of the primers scanned for in the scan region
+	 */
+	public ScanRegion(String contig, int start, int end, PrimerTypes type){
+		if(contig == null || type == null) throw new IllegalArgumentException("Contig and primer type must not be null!");
+		if(start > end) throw new IllegalArgumentException("Start must be <= end!");
+		this.contig = contig;
+		this.start = start;
+		this.end = end;
+		this.type = type;
+	}
+	
+	/**
+	 * Returns the ID of the contig of this scan region.
+	 * 
+	 * @return the ID of the contig of this scan region
+	 */
+	public String getContig(){
+		return this.contig;
+	}
+	
+	/**
+	 * Returns the start of this scan region.
+	 * 
+	 * @return the start of this scan region w.r.t. the contig sequence
+	 */
+	public int getStart(){
+		return this.start;
+	}
+	
+	/**
+	 * Returns the end of this scan region.
+	 * 
+	 * @return the end (inclusive) of this scan region w.r.t. the contig sequence
+	 */
+	public int getEnd(){
+		return this.end;
+	}
+	
+	/**
+	 * Returns the primer type of this scan region.
+	 * 
+	 * @return the type of the primers scanned for in this scan region
+	 */
+	public PrimerTypes getType(){
+		return this.type;
+	}
+	
+	public boolean equals(Object other){
+		if(this == other) return true;
+		if(!(other instanceof ScanRegion)) return false;
+		ScanRegion region = (ScanRegion) other;
+		return this.start == region.start && this.end == region.end && this.type == region.type && this.contig.equals(region.contig);
+	}
+	
+	public int hashCode(){
+		return ((this.contig.hashCode() * 31 + this.start) * 31 + this.end) * 31 + this.type.ordinal();
+	}
+	
+	public String toString(){
+		return this.type + " " + this.contig + ":" + this.start + "-" + this.end;
+	}
+}
@@ -0,0 +1,98 @@
+package primerDesign.dsc;
+
+/**
+ * Encapsulates the per-position filter masks of a scan region.
+ *
+ * For each position of the scan region, the mask holds the filter categories (ambiguity codes, masked bases, single nucleotide repeats
+ * and restriction sites) whose pattern ends at this position. Whether a window of the scan region contains a pattern of a category
+ * can be answered in constant time.
+ *
+ * @author Sebastian Frhler
+ *
+ */
+public class SequenceFilterMask {
+	public static final int AMBIGUITY_CODE = 0;
+	public static final int MASKED_BASE = 1;
+	public static final int SINGLE_NUCLEOTIDE_REPEAT = 2;
+	public static final int RESTRICTION_SITE = 3;
+	public static final int NUMBER_OF_CATEGORIES = 4;
+
+	private byte[] endMask;
+	private int[] categoryLength;
+	private int[][] nextEnd; // nextEnd[category][i]: the smallest position >= i at which a pattern of 'category' ends, length of scan region iff none
+
+	/**
+	 * Initializes a new sequence filter mask.
+	 *
+	 * @param endMask the bit mask of categories whose pattern ends at each position of the scan region
+	 * @param categoryLength the length of the patterns of each category, Integer.MAX_VALUE iff a category has no patterns
+	 */
+	public SequenceFilterMask(byte[] endMask, int[] categoryLength){
+		if(categoryLength.length != NUMBER_OF_CATEGORIES) throw new IllegalArgumentException("Pattern lengths must be specified for each category!");
+		this.endMask = endMask;
+		this.categoryLength = categoryLength;
+
+		final int n = endMask.length;
+		this.nextEnd = new int[NUMBER_OF_CATEGORIES][n + 1];
+		for(int category=0; category<NUMBER_OF_CATEGORIES; category++){
+			int[] next = this.nextEnd[category];
+			int bit = 1 << category;
+			next[n] = n;
+			for(int i=n-1; i>=0; i--){
+				next[i] = ((endMask[i] & bit) != 0) ? i : next[i+1];
+			}
+		}
+	}
+
+	/**
+	 * Returns true iff the window [start, start+length-1] of the scan region contains a pattern of category 'category'.
+	 *
+	 * @param category the filter category
+	 * @param start the start of the window
+	 * @param length the length of the window
+	 *
+	 * @return true iff the window contains a pattern of category 'category'
+	 */
+	public boolean windowContains(int category, int start, int length){
+		int patternLength = this.categoryLength[category];
+		if(patternLength > length) return false;
+		// a pattern is contained iff it ends within the window and starts at or after 'start'
+		return this.nextEnd[category][start + patternLength - 1] < start + length;
+	}
+
+	/**
+	 * Returns the bit mask of all categories with a pattern in the window [start, start+length-1] of the scan region.
+	 *
+	 * @param start the start of the window
+	 * @param length the length of the window
+	 *
+	 * @return the bit mask of all categories with a pattern in the window, bit i is set iff category i is contained
+	 */
+	public int getWindowMask(int start, int length){
+		int mask = 0;
+		for(int category=0; category<NUMBER_OF_CATEGORIES; category++){
+			if(this.windowContains(category, start, length)) mask |= 1 << category;
+		}
+		return mask;
+	}
+
+	/**
+	 * Returns the bit mask of categories whose pattern ends at position 'position' of the scan region.
+	 *
+	 * @param position the position in the scan region
+	 *
+	 * @return the bit mask of categories whose pattern ends at position 'position'
+	 */
+	public int getEndMask(int position){
+		return this.endMask[position];
+	}
+
+	/**
+	 * Returns the length of the scan region.
+	 *
+	 * @return the length of the scan region
+	 */
+	public int length(){
+		return this.endMask.length;
+	}
+}
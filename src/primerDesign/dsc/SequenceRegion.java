@@ -39,6 +39,23 @@ public class SequenceRegion {
 		this.isSorted = false;
 	}
 	
+	/**
+	 * Initializes a copy of a sequence region holding copies of all of its restriction sites.
+	 * 
+	 * The copy iterates its restriction sites independently of 'region' starting with the first one, refining the sites of
+	 * the copy (e.g. by PrimerSearch.refineSeqRegion()) does not modify 'region' or its sites.
+	 * 
+	 * @param region the sequence region to copy
+	 */
+	public SequenceRegion(SequenceRegion region){
+		this.contig = region.contig;
+		this.start = region.start;
+		this.end = region.end;
+		this.mean = region.mean;
+		for(RestrictionSite site : region.restrictionSites) this.restrictionSites.add(new RestrictionSite(site, this));
+		this.isSorted = region.isSorted;
+	}
+	
 	/**
 	 * Adds a restriction site to this interval.
 	 * 
@@ -115,6 +132,17 @@ public class SequenceRegion {
 		return this.restrictionSites.indexOf(rss);
 	}
 	
+	/**
+	 * Returns a restriction site of this region.
+	 * 
+	 * @param index the index of the restriction site, as returned by getRestricionSiteIndex()
+	 * 
+	 * @return the restriction site at 'index'
+	 */
+	public RestrictionSite getRestrictionSite(int index){
+		return this.restrictionSites.get(index);
+	}
+	
 	public int getNumRestrictionSites(){
 		return this.restrictionSites.size();
 	}
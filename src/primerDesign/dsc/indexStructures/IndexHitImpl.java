@@ -69,10 +69,7 @@ public class IndexHitImpl implements IndexHit, Serializable {
 	 */
 	public char[] getSequence(int length){
 		if(length < 0) throw new IllegalArgumentException();
-		char[] result = new char[length];
-		char[] temp = this.getContigSequence();
-		
-		System.arraycopy(temp, this.position, result, 0, length);
+		char[] result = this.contig.getSubsequence(this.position, this.position + length).toCharArray();
 		
 		if(!this.isForwardHit){
 			result = SeqTools.revcompDNA(result).toCharArray();
@@ -92,10 +89,7 @@ public class IndexHitImpl implements IndexHit, Serializable {
 	 */
 	public char[] getSubSequence(int start, int end){
 		if(start > end) throw new IllegalArgumentException();
-		int length = end - start + 1;
-		char[] result = new char[length];
-		
-		System.arraycopy(this.getContigSequence(), start, result, 0, length);
+		char[] result = this.contig.getSubsequence(start, end + 1).toCharArray();
 		
 		if(!this.isForwardHit){
 			result = SeqTools.revcompDNA(result).toCharArray();
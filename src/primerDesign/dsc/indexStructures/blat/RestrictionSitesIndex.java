@@ -3,37 +3,44 @@
  */
 package primerDesign.dsc.indexStructures.blat;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.biojava.bio.molbio.RestrictionEnzyme;
-import org.biojava.bio.molbio.RestrictionEnzymeManager;
-import org.biojava.bio.molbio.RestrictionMapper;
-import org.biojava.bio.molbio.RestrictionSite;
-import org.biojava.bio.seq.DNATools;
-import org.biojava.bio.seq.Sequence;
 import org.biojava.bio.symbol.IllegalAlphabetException;
 import org.biojava.bio.symbol.IllegalSymbolException;
-import org.biojava.utils.SimpleThreadPool;
 
-import primerDesign.util.Constants;
+import primerDesign.algo.RestrictionSiteScanner;
 import primerDesign.util.FileTools;
 import primerDesign.util.RestrictionEnzymeListParser;
 import primerDesign.util.SimpleContig;
 import primerDesign.util.SlimFastaParser;
+import cern.colt.list.IntArrayList;
 
 /**
  * Wraps an index of restriction site positions within a genome.
+ *
+ * Enzyme, organism and contig names are interned into identifier tables, the sorted restriction site positions of each
+ * (enzyme, organism, contig) entry are stored delta-compressed (variable length) in blocks of BLOCK_SIZE positions.
+ * A block table holding the first position of each block allows proximity queries in logarithmic time, only a single block
+ * needs to be decoded per query.
+ *
+ * The on-disk format is the in-memory format, indices are memory-mapped read-only on deserialization and may therefore be shared
+ * among processes via the page cache. All queries use absolute buffer accesses, an index is thread-safe once built.
  * 
  * @author Sebastian Frhler
  *
@@ -42,19 +49,25 @@ public class RestrictionSitesIndex implements Serializable{
 	/**
 	 * 
 	 */
-	private static final long serialVersionUID = -3998532871429223030L;
-	private HashMap<String, int[]> index;
-	private HashSet<String> organisms;
-	private HashSet<String> enzymes;
-	private HashSet<String> contigs;
+	private static final long serialVersionUID = -2383461327462540733L;
+	private static final int MAGIC = 0x52535349; // "RSSI"
+	private static final int VERSION = 1;
+	private static final int BLOCK_SIZE = 64; // the number of positions per block
+	private static final int MAX_IDENTIFIERS = 1 << 21;
 	
-	private static final String SERIALIZATION_SUFFIX = ".RSSIndex.ser";
+	private transient ArrayList<String> enzymes;
+	private transient ArrayList<String> organisms;
+	private transient ArrayList<String> contigs;
+	private transient HashMap<String, Integer> enzymeIds;
+	private transient HashMap<String, Integer> organismIds;
+	private transient HashMap<String, Integer> contigIds;
+	private transient ConcurrentHashMap<String, Integer> targetContigIds; // the contig identifier of each BLAT target name resolved so far
+	private transient HashMap<Long, Entry> entries;
+
+	private static final String SERIALIZATION_SUFFIX = ".RSSIndex.idx";
 	
 	public RestrictionSitesIndex(){
-		this.index = new HashMap<String, int[]>();
-		this.organisms = new HashSet<String>();
-		this.enzymes = new HashSet<String>();
-		this.contigs = new HashSet<String>();
+		this.init();
 	}
 	
 	/**
@@ -66,10 +79,12 @@ public class RestrictionSitesIndex implements Serializable{
 	 * @param sites the list of restriction sites for enzyme 'enzyme' in organism 'organism' on chromosome 'chromosome'
 	 */
 	public void addSites(String enzyme, String organism, String chromosome, int[] sites){
-		this.index.put(enzyme + organism + chromosome, sites);
-		this.enzymes.add(enzyme);
-		this.organisms.add(organism);
-		this.contigs.add(chromosome);
+		int[] sorted = sites.clone();
+		Arrays.sort(sorted);
+		if(sorted.length > 0 && sorted[0] < 0) throw new IllegalArgumentException("Restriction site positions must be >= 0!");
+		long key = entryKey(intern(enzyme, this.enzymes, this.enzymeIds), intern(organism, this.organisms, this.organismIds), intern(chromosome, this.contigs, this.contigIds));
+		byte[] data = encode(sorted);
+		this.entries.put(key, new Entry(ByteBuffer.wrap(data), 0, sorted.length));
 	}
 	
 	/**
@@ -78,10 +93,11 @@ public class RestrictionSitesIndex implements Serializable{
 	 * @param enzyme the restriction enzyme
 	 * @param Organism the organism
 	 * @param chromosome the chromosome of the organism
-	 * @return the list of restriction sites for the given parameters or NULL of no such list can be found
+	 * @return the sorted list of restriction sites for the given parameters or NULL of no such list can be found
 	 */
 	public int[] getSites(String enzyme, String Organism, String chromosome){
-		return this.index.get(enzyme + Organism + chromosome);
+		Entry entry = this.getEntry(enzyme, Organism, chromosome);
+		return (entry == null) ? null : entry.decode();
 	}
 	
 	/**
@@ -91,46 +107,36 @@ public class RestrictionSitesIndex implements Serializable{
 	 * @param threshold the threshold defining what 'sufficiently close' means
 	 * @param enzyme the enzyme generating the restriction site
 	 * @param organism the organism to scan
-	 * @param chromosome the chromosome of the organism
+	 * @param chromosome the chromosome of the organism, either its name in this index or its BLAT target name
 	 * 
 	 * @return true iff 'position' has distance <= 'threshold' to the next restriction site of enzyme 'enzyme' in organism 'organism'
 	 */
 	public boolean isSufficientlyClose(int position, int threshold, String enzyme, String organism, String chromosome){
-		chromosome = chromosome.replace('_', ' ').substring(0, chromosome.length() - 1);
-		int[] positions = getSites(enzyme, organism, chromosome);
-		if(positions == null){
+		Entry entry = this.getEntry(enzyme, organism, chromosome);
+		if(entry == null){
 			System.err.println("Contains Contig?: " + this.containsContig(chromosome));
 			System.err.println("Contains Enzyme?: " + this.containsEnzyme(enzyme));
 			System.err.println("Contains Organism?: " + this.containsOrganism(organism));
 			throw new IllegalStateException("No positions were specified for organism: " + organism + " and chromosome: " + chromosome + " and enzyme: " + enzyme);
 		}
 		
-		for(int pos : positions){
-			if(Math.abs(position - pos) <= threshold) return true;
-		}
-		return false;
+		return entry.containsSiteWithin((long) position - threshold, (long) position + threshold);
 	}
 	
 	public boolean containsOrganism(String organism){
-		return this.organisms.contains(organism);
+		return this.organismIds.containsKey(organism);
 	}
 	
 	public boolean containsEnzyme(String enzyme){
-		return this.enzymes.contains(enzyme);
+		return this.enzymeIds.containsKey(enzyme);
 	}
 	
 	public boolean containsContig(String contig){
-		return this.contigs.contains(contig);
+		return this.contigIds.containsKey(contig);
 	}
 	
 	public String[] getOrganisms(){
-		String[] result = new String[this.organisms.size()];
-		Iterator<String> iter = this.organisms.iterator();
-		int i=0;
-		while(iter.hasNext()){
-			result[i++] = iter.next();
-		}
-		return result;
+		return this.organisms.toArray(new String[this.organisms.size()]);
 	}
 	
 	/**
@@ -140,9 +146,8 @@ public class RestrictionSitesIndex implements Serializable{
 	 */
 	public final void serialize(File filename) {
 		try{
-			//ObjectOutputStream out = new ObjectOutputStream(new GZIPOutputStream(new FileOutputStream(filename)));
-			ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(filename + SERIALIZATION_SUFFIX));
-			out.writeObject(this);
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename + SERIALIZATION_SUFFIX)));
+			this.write(out);
 			out.close();
 		}catch(Exception e){
 			e.printStackTrace();
@@ -150,7 +155,7 @@ public class RestrictionSitesIndex implements Serializable{
 	}
 	
 	/**
-	 * Deserializes an index of this datatype from file 'filename'.
+	 * Deserializes an index of this datatype from file 'filename', the file is memory-mapped read-only.
 	 * 
 	 * @param filename the filename to deserialize the index from
 	 * 
@@ -159,17 +164,350 @@ public class RestrictionSitesIndex implements Serializable{
 	public static RestrictionSitesIndex deserialize(String filename){
 		RestrictionSitesIndex result = null;
 		try{
-			//ObjectInputStream in = new ObjectInputStream(new GZIPInputStream(new FileInputStream(filename)));
-			ObjectInputStream in = new ObjectInputStream(new FileInputStream(filename));
-			result = (RestrictionSitesIndex) in.readObject();
-//			System.out.println("### Org: " + result.organisms.contains("Ppacificus"));
-//			System.out.println("### Contig: " + result.contigs.contains("SUPERCONTIG:1:CONTIG40:1:1108810:1_SUPERCONTIG_CONTIG40_"));
-//			System.out.println("### Enzyme: " + result.enzymes.contains("EcoRI"));
+			RandomAccessFile file = new RandomAccessFile(filename, "r");
+			FileChannel channel = file.getChannel();
+			if(channel.size() > Integer.MAX_VALUE) throw new IllegalArgumentException("Restriction sites indices are supported up to a size of " + Integer.MAX_VALUE + " bytes!");
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			// the mapping remains valid after closing the channel
+			file.close();
+			result = new RestrictionSitesIndex();
+			result.read(buffer);
 		}catch(Exception e){
 			e.printStackTrace();
 		}
 		return result;
 	}
+
+	/**
+	 * Writes this index in its binary format.
+	 *
+	 * The format consists of a header (magic number, version), the enzyme, organism and contig identifier tables, the entry directory
+	 * and the encoded data of each entry in directory order.
+	 *
+	 * @param out the output to write to
+	 *
+	 * @throws IOException
+	 */
+	private void write(DataOutputStream out) throws IOException{
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		writeStrings(out, this.enzymes);
+		writeStrings(out, this.organisms);
+		writeStrings(out, this.contigs);
+
+		Long[] keys = this.entries.keySet().toArray(new Long[this.entries.size()]);
+		Arrays.sort(keys);
+		out.writeInt(keys.length);
+		Entry entry;
+		for(Long key : keys){
+			entry = this.entries.get(key);
+			out.writeLong(key);
+			out.writeInt(entry.numberOfSites);
+			out.writeInt(entry.length());
+		}
+		for(Long key : keys){
+			entry = this.entries.get(key);
+			for(int i=0; i<entry.length(); i++) out.writeByte(entry.buffer.get(entry.offset + i));
+		}
+	}
+
+	/**
+	 * Reads an index in its binary format, entries refer to 'buffer' and are not copied.
+	 *
+	 * @param buffer the buffer holding an index in binary format
+	 */
+	private void read(ByteBuffer buffer){
+		ByteBuffer in = buffer.duplicate();
+		if(in.getInt() != MAGIC) throw new IllegalArgumentException("Not a restriction sites index!");
+		int version = in.getInt();
+		if(version != VERSION) throw new IllegalArgumentException("Unsupported restriction sites index version: " + version);
+		readStrings(in, this.enzymes, this.enzymeIds);
+		readStrings(in, this.organisms, this.organismIds);
+		readStrings(in, this.contigs, this.contigIds);
+
+		final int size = in.getInt();
+		long[] keys = new long[size];
+		int[] numberOfSites = new int[size];
+		int[] lengths = new int[size];
+		for(int i=0; i<size; i++){
+			keys[i] = in.getLong();
+			numberOfSites[i] = in.getInt();
+			lengths[i] = in.getInt();
+		}
+		int offset = in.position();
+		for(int i=0; i<size; i++){
+			this.entries.put(keys[i], new Entry(buffer, offset, numberOfSites[i]));
+			offset += lengths[i];
+		}
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException{
+		out.defaultWriteObject();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream data = new DataOutputStream(bytes);
+		this.write(data);
+		data.close();
+		out.writeInt(bytes.size());
+		bytes.writeTo(out);
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException{
+		in.defaultReadObject();
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		this.init();
+		this.read(ByteBuffer.wrap(bytes));
+	}
+
+	/**
+	 * Initializes the identifier tables and the entries of an empty index.
+	 */
+	private void init(){
+		this.enzymes = new ArrayList<String>();
+		this.organisms = new ArrayList<String>();
+		this.contigs = new ArrayList<String>();
+		this.enzymeIds = new HashMap<String, Integer>();
+		this.organismIds = new HashMap<String, Integer>();
+		this.contigIds = new HashMap<String, Integer>();
+		this.targetContigIds = new ConcurrentHashMap<String, Integer>();
+		this.entries = new HashMap<Long, Entry>();
+	}
+
+	/**
+	 * Returns the entry of an (enzyme, organism, contig) triple or null iff there is no such entry.
+	 *
+	 * @param enzyme the restriction enzyme
+	 * @param organism the organism
+	 * @param chromosome the chromosome of the organism, either its name in this index or its BLAT target name
+	 *
+	 * @return the entry of the (enzyme, organism, contig) triple or null iff there is no such entry
+	 */
+	private Entry getEntry(String enzyme, String organism, String chromosome){
+		Integer enzymeId = this.enzymeIds.get(enzyme);
+		Integer organismId = this.organismIds.get(organism);
+		Integer contigId = this.getContigId(chromosome);
+		if(enzymeId == null || organismId == null || contigId == null) return null;
+		return this.entries.get(entryKey(enzymeId, organismId, contigId));
+	}
+
+	/**
+	 * Returns the identifier of a contig or null iff there is no such contig.
+	 *
+	 * BLAT reports a contig by its target name: the name of the contig with blanks replaced by '_' and one trailing character.
+	 * A target name is converted into the name of its contig the first time it is queried only, it is resolved by a single lookup afterwards.
+	 *
+	 * @param chromosome the name of the contig in this index or its BLAT target name
+	 *
+	 * @return the identifier of the contig or null iff there is no such contig
+	 */
+	private Integer getContigId(String chromosome){
+		Integer id = this.contigIds.get(chromosome);
+		if(id == null){
+			id = this.targetContigIds.get(chromosome);
+			if(id == null && chromosome.length() > 0){
+				id = this.contigIds.get(chromosome.replace('_', ' ').substring(0, chromosome.length() - 1));
+				if(id != null) this.targetContigIds.put(chromosome, id);
+			}
+		}
+		return id;
+	}
+
+	/**
+	 * Returns the identifier of a name, the name is added to the identifier table iff it is not contained yet.
+	 *
+	 * @param name the name
+	 * @param names the identifier table
+	 * @param ids the identifier of each name of the table
+	 *
+	 * @return the identifier of 'name'
+	 */
+	private static int intern(String name, ArrayList<String> names, HashMap<String, Integer> ids){
+		Integer id = ids.get(name);
+		if(id == null){
+			if(names.size() >= MAX_IDENTIFIERS) throw new IllegalStateException("At most " + MAX_IDENTIFIERS + " names are supported per identifier table!");
+			id = names.size();
+			names.add(name);
+			ids.put(name, id);
+		}
+		return id;
+	}
+
+	/**
+	 * Returns the key of an (enzyme, organism, contig) entry.
+	 *
+	 * @param enzymeId the identifier of the enzyme
+	 * @param organismId the identifier of the organism
+	 * @param contigId the identifier of the contig
+	 *
+	 * @return the key of the entry
+	 */
+	private static long entryKey(int enzymeId, int organismId, int contigId){
+		return ((long) enzymeId << 42) | ((long) organismId << 21) | contigId;
+	}
+
+	private static void writeStrings(DataOutputStream out, ArrayList<String> strings) throws IOException{
+		out.writeInt(strings.size());
+		for(String string : strings){
+			byte[] bytes = string.getBytes("UTF-8");
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+	}
+
+	private static void readStrings(ByteBuffer in, ArrayList<String> strings, HashMap<String, Integer> ids){
+		final int size = in.getInt();
+		byte[] bytes;
+		for(int i=0; i<size; i++){
+			bytes = new byte[in.getInt()];
+			in.get(bytes);
+			try{
+				intern(new String(bytes, "UTF-8"), strings, ids);
+			}catch(IOException e){
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+	/**
+	 * Encodes sorted restriction site positions into the block format of an entry.
+	 *
+	 * The block table holds (first position, data offset) of each block, the data of a block are the differences of consecutive positions
+	 * following the first position, each encoded in 7 bit groups (the highest bit of a byte marks continuation).
+	 *
+	 * @param sites the sorted restriction site positions
+	 *
+	 * @return the encoded entry
+	 */
+	private static byte[] encode(int[] sites){
+		final int blocks = (sites.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		final int dataStart = blocks * 8;
+		byte[] data = new byte[dataStart + 5 * sites.length];
+		ByteBuffer buffer = ByteBuffer.wrap(data);
+		int position = dataStart;
+		int delta;
+		for(int b=0; b<blocks; b++){
+			buffer.putInt(b * 8, sites[b * BLOCK_SIZE]);
+			buffer.putInt(b * 8 + 4, position - dataStart);
+			for(int i=b * BLOCK_SIZE + 1; i<Math.min(sites.length, (b + 1) * BLOCK_SIZE); i++){
+				delta = sites[i] - sites[i-1];
+				while((delta & ~0x7F) != 0){
+					data[position++] = (byte) ((delta & 0x7F) | 0x80);
+					delta >>>= 7;
+				}
+				data[position++] = (byte) delta;
+			}
+		}
+		return Arrays.copyOf(data, position);
+	}
+
+	/**
+	 * The encoded restriction site positions of one (enzyme, organism, contig) triple.
+	 */
+	private static class Entry{
+		private final ByteBuffer buffer;
+		private final int offset;
+		private final int numberOfSites;
+		private final int numberOfBlocks;
+		private final int dataStart;
+
+		Entry(ByteBuffer buffer, int offset, int numberOfSites){
+			this.buffer = buffer;
+			this.offset = offset;
+			this.numberOfSites = numberOfSites;
+			this.numberOfBlocks = (numberOfSites + BLOCK_SIZE - 1) / BLOCK_SIZE;
+			this.dataStart = offset + this.numberOfBlocks * 8;
+		}
+
+		/**
+		 * Returns the length of the encoded entry in bytes.
+		 *
+		 * @return the length of the encoded entry in bytes
+		 */
+		int length(){
+			if(this.numberOfBlocks == 0) return 0;
+			// the end of the last block is found by decoding it
+			int position = this.dataStart + this.buffer.getInt(this.offset + (this.numberOfBlocks - 1) * 8 + 4);
+			for(int i=(this.numberOfBlocks - 1) * BLOCK_SIZE + 1; i<this.numberOfSites; i++){
+				while((this.buffer.get(position++) & 0x80) != 0);
+			}
+			return position - this.offset;
+		}
+
+		/**
+		 * Checks whether a restriction site is located within [low, high].
+		 *
+		 * @param low the lowest position
+		 * @param high the highest position
+		 *
+		 * @return true iff a restriction site is located within [low, high]
+		 */
+		boolean containsSiteWithin(long low, long high){
+			// find the last block starting at or before 'high'
+			int first = 0;
+			int last = this.numberOfBlocks - 1;
+			int mid;
+			int block = -1;
+			while(first <= last){
+				mid = (first + last) >>> 1;
+				if(this.buffer.getInt(this.offset + mid * 8) <= high){
+					block = mid;
+					first = mid + 1;
+				}
+				else last = mid - 1;
+			}
+			if(block < 0) return false;
+
+			// find the last site of this block at or before 'high'
+			long site = this.buffer.getInt(this.offset + block * 8);
+			int position = this.dataStart + this.buffer.getInt(this.offset + block * 8 + 4);
+			final int end = Math.min(this.numberOfSites, (block + 1) * BLOCK_SIZE);
+			long next;
+			int delta;
+			int shift;
+			byte b;
+			for(int i=block * BLOCK_SIZE + 1; i<end; i++){
+				delta = 0;
+				shift = 0;
+				do{
+					b = this.buffer.get(position++);
+					delta |= (b & 0x7F) << shift;
+					shift += 7;
+				}while((b & 0x80) != 0);
+				next = site + delta;
+				if(next > high) break;
+				site = next;
+			}
+			return site >= low;
+		}
+
+		/**
+		 * Decodes all restriction site positions of this entry.
+		 *
+		 * @return the sorted restriction site positions of this entry
+		 */
+		int[] decode(){
+			int[] result = new int[this.numberOfSites];
+			int position = this.dataStart;
+			int delta;
+			int shift;
+			byte b;
+			for(int i=0; i<this.numberOfSites; i++){
+				if(i % BLOCK_SIZE == 0){
+					result[i] = this.buffer.getInt(this.offset + (i / BLOCK_SIZE) * 8);
+					continue;
+				}
+				delta = 0;
+				shift = 0;
+				do{
+					b = this.buffer.get(position++);
+					delta |= (b & 0x7F) << shift;
+					shift += 7;
+				}while((b & 0x80) != 0);
+				result[i] = result[i-1] + delta;
+			}
+			return result;
+		}
+	}
 	
 	public static void main(String[] args) throws NumberFormatException, IllegalAlphabetException, IllegalSymbolException, IOException{
 		if(args.length < 2){
@@ -181,13 +519,14 @@ public class RestrictionSitesIndex implements Serializable{
 		if(enzymes.size() == 0) throw new IllegalArgumentException("No restriction enzymes were parsed from file!\n" + getUsage());
 		
 		RestrictionSitesIndex index = new RestrictionSitesIndex();
+		// all enzymes are scanned in a single pass per contig
+		RestrictionSiteScanner scanner = new RestrictionSiteScanner(enzymes);
 		
 		SlimFastaParser fastaParser;
 		SimpleContig contig;
-		RestrictionMapper mapper = new RestrictionMapper(new SimpleThreadPool(Constants.MAX_NUM_RESTRICTION_MAPPER_THREADS, true));
-		Sequence dnaSeq = null;
-		Sequence newSeq = null;
 		String organismName;
+		IntArrayList[] sites;
+		int[] rss;
 		
 		// process each sequence
 		for(int i=2; i<args.length; i++){
@@ -196,30 +535,16 @@ public class RestrictionSitesIndex implements Serializable{
 			// process each chromosome
 			while(fastaParser.hasNextContig()){
 				contig = fastaParser.parseNextContigIgnoreCase();
-				// process each
-				for(RestrictionEnzyme enzyme : enzymes){
-					RestrictionEnzymeManager.register(enzyme, new TreeSet());
-					mapper.clearEnzymes();
-					mapper.addEnzyme(enzyme);
-					
-					try{
-						dnaSeq = DNATools.createDNASequence(new String(contig.getSequence()), "");
-					}catch(IllegalSymbolException e){
-						e.printStackTrace();
-					}
-					newSeq = mapper.annotate(dnaSeq);
-					Iterator<RestrictionSite> iter = newSeq.features();
-					
-					int[] rss = new int[newSeq.countFeatures()];
-					int temp = 0;
-					while(iter.hasNext()){
-						rss[temp++] = iter.next().getPosition();
-					}
-					index.addSites(enzyme.getName(), organismName, contig.getID(), rss);
+				sites = scanner.findSites(contig.getSequence());
+				for(int e=0; e<enzymes.size(); e++){
+					// restriction site positions are 1-based
+					rss = new int[sites[e].size()];
+					for(int j=0; j<rss.length; j++) rss[j] = sites[e].getQuick(j) + 1;
+					index.addSites(enzymes.get(e).getName(), organismName, contig.getID(), rss);
 				}
 			}
 		}
-		if(index.index.size() > 0) index.serialize(new File(args[0]));
+		if(index.entries.size() > 0) index.serialize(new File(args[0]));
 		else throw new IllegalArgumentException(getUsage());
 	}
 	
@@ -3,9 +3,21 @@
  */
 package primerDesign.dsc.indexStructures.blat;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
 import org.junit.Test;
 
 /**
@@ -21,7 +33,19 @@ public class RestrictionSitesIndexTest {
 	 */
 	@Test
 	public void testAddSites() {
+		RestrictionSitesIndex index = new RestrictionSitesIndex();
+		index.addSites("Enzyme", "Organism", "Chromosome", new int[]{10000, 0, 1000});
+		index.addSites("Enzyme", "Organism", "Other", new int[0]);
+		assertTrue(index.containsEnzyme("Enzyme"));
+		assertTrue(index.containsOrganism("Organism"));
+		assertTrue(index.containsContig("Chromosome"));
+		assertTrue(index.containsContig("Other"));
+		assertFalse(index.containsContig("Missing"));
+		assertArrayEquals(new String[]{"Organism"}, index.getOrganisms());
 		
+		// adding the sites of an entry again replaces them
+		index.addSites("Enzyme", "Organism", "Chromosome", new int[]{5});
+		assertArrayEquals(new int[]{5}, index.getSites("Enzyme", "Organism", "Chromosome"));
 	}
 
 	/**
@@ -29,7 +53,13 @@ public class RestrictionSitesIndexTest {
 	 */
 	@Test
 	public void testGetSites() {
-		
+		RestrictionSitesIndex index = new RestrictionSitesIndex();
+		index.addSites("Enzyme", "Organism", "Chromosome", new int[]{10000, 0, 1000});
+		index.addSites("Enzyme", "Organism", "Other", new int[0]);
+		assertArrayEquals(new int[]{0, 1000, 10000}, index.getSites("Enzyme", "Organism", "Chromosome"));
+		assertArrayEquals(new int[0], index.getSites("Enzyme", "Organism", "Other"));
+		assertNull(index.getSites("Enzyme", "Organism", "Missing"));
+		assertNull(index.getSites("Missing", "Organism", "Chromosome"));
 	}
 
 	/**
@@ -42,6 +72,130 @@ public class RestrictionSitesIndexTest {
 		assertFalse(index.isSufficientlyClose(20000, 1000, "Enzyme", "Organism", "Chromosome"));
 		assertTrue(index.isSufficientlyClose(2000, 1000, "Enzyme", "Organism", "Chromosome"));
 		assertFalse(index.isSufficientlyClose(2001, 1000, "Enzyme", "Organism", "Chromosome"));
+		
+		// BLAT target names replace blanks by '_' and carry a trailing character, names of the index are not converted
+		index.addSites("Enzyme", "Organism", "Chromosome 2", new int[]{500});
+		index.addSites("Enzyme", "Organism", "Chromosome_3", new int[]{700});
+		for(int i=0; i<2; i++){
+			assertTrue(index.isSufficientlyClose(600, 100, "Enzyme", "Organism", "Chromosome_2_"));
+			assertFalse(index.isSufficientlyClose(700, 100, "Enzyme", "Organism", "Chromosome_2_"));
+			assertTrue(index.isSufficientlyClose(700, 0, "Enzyme", "Organism", "Chromosome_3"));
+			assertTrue(index.isSufficientlyClose(1000, 0, "Enzyme", "Organism", "Chromosome_"));
+		}
+		assertArrayEquals(new int[]{500}, index.getSites("Enzyme", "Organism", "Chromosome_2_"));
+		assertFalse(index.containsContig("Chromosome_2_"));
+	}
+
+	/**
+	 * Test method for {@link primerDesign.dsc.indexStructures.blat.RestrictionSitesIndex#isSufficientlyClose(int, int, java.lang.String, java.lang.String, java.lang.String)}
+	 * on entries spanning several blocks of encoded positions.
+	 */
+	@Test
+	public void testIsSufficientlyCloseManyBlocks() {
+		int[] sites = createSites(new Random(1), 1000);
+		RestrictionSitesIndex index = new RestrictionSitesIndex();
+		index.addSites("Enzyme", "Organism", "Chromosome", sites);
+		assertArrayEquals(sites, index.getSites("Enzyme", "Organism", "Chromosome"));
+		
+		// BLAT contig names carry a trailing '_'
+		Random random = new Random(2);
+		int position;
+		int threshold;
+		for(int i=0; i<10000; i++){
+			position = random.nextInt(sites[sites.length - 1] + 1000);
+			threshold = random.nextInt(300);
+			assertEquals(isSufficientlyCloseNaively(sites, position, threshold), index.isSufficientlyClose(position, threshold, "Enzyme", "Organism", "Chromosome_"));
+		}
+		// the first and last site of each block
+		for(int i=0; i<sites.length; i+=63){
+			assertTrue(index.isSufficientlyClose(sites[i], 0, "Enzyme", "Organism", "Chromosome_"));
+			assertTrue(index.isSufficientlyClose(sites[i] + 1, 1, "Enzyme", "Organism", "Chromosome_"));
+		}
+	}
+
+	/**
+	 * Test method for {@link primerDesign.dsc.indexStructures.blat.RestrictionSitesIndex#serialize(java.io.File)} and
+	 * {@link primerDesign.dsc.indexStructures.blat.RestrictionSitesIndex#deserialize(java.lang.String)}.
+	 */
+	@Test
+	public void testSerialize() throws IOException {
+		RestrictionSitesIndex index = createIndex();
+		File file = File.createTempFile("rss", null);
+		File indexFile = new File(file + ".RSSIndex.idx");
+		try{
+			index.serialize(file);
+			assertIndexEquals(index, RestrictionSitesIndex.deserialize(indexFile.getPath()));
+		}
+		finally{
+			file.delete();
+			indexFile.delete();
+		}
+	}
+
+	/**
+	 * Test method for the java serialization of {@link primerDesign.dsc.indexStructures.blat.RestrictionSitesIndex}.
+	 */
+	@Test
+	public void testWriteReadObject() throws IOException, ClassNotFoundException {
+		RestrictionSitesIndex index = createIndex();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(index);
+		out.close();
+		ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		assertIndexEquals(index, (RestrictionSitesIndex) in.readObject());
+		in.close();
+	}
+
+	/**
+	 * Creates an index holding empty entries, entries of a single block, entries of several blocks and
+	 * large distances between consecutive sites requiring multi-byte encodings.
+	 */
+	private static RestrictionSitesIndex createIndex(){
+		Random random = new Random(3);
+		RestrictionSitesIndex index = new RestrictionSitesIndex();
+		index.addSites("EcoRI", "Human", "chr1", createSites(random, 1000));
+		index.addSites("EcoRI", "Human", "chr2", new int[0]);
+		index.addSites("EcoRI", "Mouse", "chr1", createSites(random, 64));
+		index.addSites("EcoRI", "Mouse", "chr2", createSites(random, 65));
+		index.addSites("HindIII", "Human", "chr1", new int[]{0, 127, 128, 16511, 2113663, Integer.MAX_VALUE});
+		index.addSites("HindIII", "Mouse", "chr\u00e4", new int[]{42});
+		return index;
+	}
+
+	private static void assertIndexEquals(RestrictionSitesIndex expected, RestrictionSitesIndex actual){
+		assertArrayEquals(expected.getOrganisms(), actual.getOrganisms());
+		for(String enzyme : new String[]{"EcoRI", "HindIII", "Missing"}){
+			for(String organism : new String[]{"Human", "Mouse"}){
+				for(String contig : new String[]{"chr1", "chr2", "chr\u00e4"}){
+					assertTrue(Arrays.equals(expected.getSites(enzyme, organism, contig), actual.getSites(enzyme, organism, contig)));
+				}
+			}
+			assertEquals(expected.containsEnzyme(enzyme), actual.containsEnzyme(enzyme));
+		}
+		assertTrue(actual.containsContig("chr\u00e4"));
+		assertTrue(actual.isSufficientlyClose(Integer.MAX_VALUE - 10, 10, "HindIII", "Human", "chr1_"));
+		assertFalse(actual.isSufficientlyClose(1000000, 1000, "HindIII", "Human", "chr1_"));
+	}
+
+	/**
+	 * Creates sorted restriction site positions with distances of up to 2^20.
+	 */
+	private static int[] createSites(Random random, int count){
+		int[] result = new int[count];
+		int position = random.nextInt(100);
+		for(int i=0; i<count; i++){
+			result[i] = position;
+			position += 1 + ((random.nextInt(4) == 0) ? random.nextInt(1 << 20) : random.nextInt(200));
+		}
+		return result;
+	}
+
+	private static boolean isSufficientlyCloseNaively(int[] sites, int position, int threshold){
+		for(int site : sites){
+			if(Math.abs(position - site) <= threshold) return true;
+		}
+		return false;
 	}
 
 }
@@ -0,0 +1,175 @@
+/**
+ *
+ */
+package primerDesign.dsc.indexStructures.esa;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import primerDesign.dsc.nio.SegmentedMemoryMappedByteFile;
+
+/**
+ * Implements the compact lcp table of an enhanced suffix array as proposed by Abouelhoda et.al. 2004.
+ *
+ * Reference: Abouelhoda, Kurtz, Ohlebusch: Replacing suffix trees with enhanced suffix arrays. J. Discr. Algor. 2 (2004) p.53-86
+ *
+ * Each lcp value is stored in one byte, values >= 255 are marked by the byte value 255 and stored in an exception table
+ * sorted by index, which is searched by binary search. In DNA sequences almost all lcp values are < 255, the table therefore
+ * takes about one quarter of the space of an integer table.
+ *
+ * The table is addressed by long indices. The byte entries are either stored in memory, which limits the table to the size of a java array,
+ * or in a segmented memory mapped file, which limits the table by the address space only. The exception table is always stored in memory.
+ * A memory mapped table is mapped READ_WRITE on construction and READ_ONLY after deserialization.
+ *
+ * @author Sebastian Frhler
+ *
+ */
+public class CompactLcpTable implements Serializable{
+
+	private static final long serialVersionUID = 1L;
+	public static final int OVERFLOW = 0xFF; // marks an lcp value stored in the exception table, lcp values >= OVERFLOW are stored there
+	private static final int INITIAL_CAPACITY = 16;
+	private static final int MAX_MEMORY_SIZE = Integer.MAX_VALUE - 8; // the max size of a java array
+
+	private long size;
+	private SegmentedMemoryMappedByteFile mappedEntries; // the entries of a memory mapped table, null iff the entries are stored in memory
+	private transient ByteBuffer entries; // the entries of a table stored in memory
+	private long[] exceptionIndices = new long[0];
+	private long[] exceptionValues = new long[0];
+	private int exceptions = 0;
+
+	/**
+	 * Initializes a compact lcp table in memory, all lcp values are 0.
+	 *
+	 * @param size the number of lcp values, at most the size of a java array
+	 */
+	public CompactLcpTable(long size){
+		if(size > MAX_MEMORY_SIZE) throw new IllegalArgumentException("The maximum size of a compact lcp table in memory is: " + MAX_MEMORY_SIZE);
+		this.size = size;
+		this.entries = ByteBuffer.allocate((int) size);
+	}
+
+	/**
+	 * Initializes a compact lcp table in a memory mapped file, all lcp values are 0.
+	 *
+	 * @param file the file to map the entries in memory
+	 * @param size the number of lcp values
+	 *
+	 * @throws IOException
+	 */
+	public CompactLcpTable(File file, long size) throws IOException{
+		this.size = size;
+		this.mappedEntries = new SegmentedMemoryMappedByteFile(file, size);
+		this.clear();
+	}
+
+	private int getEntry(long i){
+		return ((this.mappedEntries == null) ? this.entries.get((int) i) : this.mappedEntries.getQuick(i)) & OVERFLOW;
+	}
+
+	private void putEntry(long i, int entry){
+		if(this.mappedEntries == null) this.entries.put((int) i, (byte) entry);
+		else this.mappedEntries.putQuick(i, (byte) entry);
+	}
+
+	/**
+	 * Returns the lcp value at index 'i'.
+	 *
+	 * @param i the index
+	 *
+	 * @return the lcp value at index 'i'
+	 */
+	public long get(long i){
+		int entry = this.getEntry(i);
+		return (entry < OVERFLOW) ? entry : this.exceptionValues[Arrays.binarySearch(this.exceptionIndices, 0, this.exceptions, i)];
+	}
+
+	/**
+	 * Sets the lcp value at index 'i'.
+	 *
+	 * Values are usually set by ascending index, such exceptions are appended to the exception table in constant time.
+	 * Values < OVERFLOW may be set concurrently for distinct indices whose current values are < OVERFLOW.
+	 *
+	 * @param i the index
+	 * @param value the lcp value, must be >= 0
+	 */
+	public void set(long i, long value){
+		if(value < 0) throw new IllegalArgumentException("An lcp value must be >= 0!");
+		boolean isException = this.getEntry(i) == OVERFLOW;
+		if(value < OVERFLOW){
+			if(isException) this.removeException(i);
+			this.putEntry(i, (int) value);
+		}
+		else if(isException) this.exceptionValues[Arrays.binarySearch(this.exceptionIndices, 0, this.exceptions, i)] = value;
+		else{
+			this.addException(i, value);
+			this.putEntry(i, OVERFLOW);
+		}
+	}
+
+	/**
+	 * Sets all lcp values to 0.
+	 */
+	public void clear(){
+		for(long i=0; i<this.size; i++) this.putEntry(i, 0);
+		this.exceptions = 0;
+	}
+
+	/**
+	 * Returns the number of lcp values in the table.
+	 *
+	 * @return the number of lcp values in the table
+	 */
+	public long length(){
+		return this.size;
+	}
+
+	/**
+	 * Returns the number of lcp values stored in the exception table.
+	 *
+	 * @return the number of lcp values stored in the exception table
+	 */
+	public int getExceptionCount(){
+		return this.exceptions;
+	}
+
+	private void addException(long i, long value){
+		if(this.exceptions == this.exceptionIndices.length){
+			int capacity = Math.max(INITIAL_CAPACITY, 2 * this.exceptions);
+			this.exceptionIndices = Arrays.copyOf(this.exceptionIndices, capacity);
+			this.exceptionValues = Arrays.copyOf(this.exceptionValues, capacity);
+		}
+		int position = this.exceptions;
+		if(position > 0 && this.exceptionIndices[position - 1] > i){
+			position = -Arrays.binarySearch(this.exceptionIndices, 0, this.exceptions, i) - 1;
+			System.arraycopy(this.exceptionIndices, position, this.exceptionIndices, position + 1, this.exceptions - position);
+			System.arraycopy(this.exceptionValues, position, this.exceptionValues, position + 1, this.exceptions - position);
+		}
+		this.exceptionIndices[position] = i;
+		this.exceptionValues[position] = value;
+		this.exceptions++;
+	}
+
+	private void removeException(long i){
+		int position = Arrays.binarySearch(this.exceptionIndices, 0, this.exceptions, i);
+		System.arraycopy(this.exceptionIndices, position + 1, this.exceptionIndices, position, this.exceptions - position - 1);
+		System.arraycopy(this.exceptionValues, position + 1, this.exceptionValues, position, this.exceptions - position - 1);
+		this.exceptions--;
+	}
+
+	private void writeObject(java.io.ObjectOutputStream out) throws IOException{
+		this.exceptionIndices = Arrays.copyOf(this.exceptionIndices, this.exceptions);
+		this.exceptionValues = Arrays.copyOf(this.exceptionValues, this.exceptions);
+		out.defaultWriteObject();
+		if(this.mappedEntries == null) out.writeObject(this.entries.array());
+	}
+
+	private void readObject(java.io.ObjectInputStream in) throws IOException, ClassNotFoundException{
+		in.defaultReadObject();
+		// a deserialized memory mapped table is queried only, its entries are mapped READ_ONLY when they are deserialized
+		if(this.mappedEntries == null) this.entries = ByteBuffer.wrap((byte[]) in.readObject());
+	}
+}
@@ -0,0 +1,356 @@
+/**
+ *
+ */
+package primerDesign.dsc.indexStructures.esa;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import primerDesign.dsc.indexStructures.IndexHitImpl;
+import primerDesign.util.SimpleContig;
+import primerDesign.util.SimpleContigImpl;
+import primerDesign.util.SlimFastaParser;
+import cern.colt.list.IntArrayList;
+import cern.colt.list.ObjectArrayList;
+
+/**
+ * Implements an enhanced suffix array over all contigs of a multi-sequence index.
+ *
+ * In contrast to a MultiSeqIndex, which constructs one enhanced suffix array per contig and queries each of them in turn,
+ * this index constructs a single enhanced suffix array on the concatenation of all contigs, separated by a separator character
+ * which never occurs in a (DNA) query. A query therefore costs two searches (forward and reverse complement) independent of the number of contigs,
+ * no match can span the boundary of two contigs.
+ *
+ * The boundary table stores the start position of each contig in the concatenated sequence, a global position is mapped back to
+ * its contig and its offset in that contig by binary search.
+ *
+ * The concatenated sequence is the only copy of the contig sequences kept by this index, the contigs of its hits are views of it.
+ * When reading a file, the contigs are parsed twice: once to determine their lengths and once to copy them into the concatenated sequence,
+ * such that at most one contig is held in addition to the concatenated sequence.
+ *
+ * @author Sebastian Frhler
+ *
+ */
+public class ConcatenatedMultiSeqESAIndex extends EnhancedSuffixArrayFatOpt{
+
+	private static final long serialVersionUID = 1L;
+	protected static final char SEPARATOR = TERMINATION_SYMBOL.charAt(0);
+
+	private SimpleContigImpl[] contigs;
+	private int[] contigStarts; // the boundary table: contigStarts[i] is the position of the first character of contig 'i' in the concatenated sequence
+
+	/**
+	 * Initializes an enhanced suffix array over all contigs in a (multi-)fasta file.
+	 *
+	 * @param file the file containing the contig(s) to create the index on
+	 *
+	 * @throws IOException
+	 */
+	public ConcatenatedMultiSeqESAIndex(File file) throws IOException{
+		this(readContigs(file), file.getName());
+	}
+
+	/**
+	 * Initializes an enhanced suffix array over a set of contigs.
+	 *
+	 * The sequences of 'contigs' are copied into the concatenated sequence and not referenced by this index.
+	 *
+	 * @param contigs the contigs to create the index on
+	 * @param name the name of the index
+	 */
+	public ConcatenatedMultiSeqESAIndex(SimpleContig[] contigs, String name){
+		this(concatenate(contigs), name);
+	}
+
+	/**
+	 * Initializes an enhanced suffix array over a concatenation of contigs.
+	 *
+	 * @param concatenation the concatenated contigs
+	 * @param name the name of the index
+	 */
+	private ConcatenatedMultiSeqESAIndex(Concatenation concatenation, String name){
+		super(concatenation.sequence, name);
+		this.contigStarts = concatenation.starts;
+		this.contigs = new SimpleContigImpl[concatenation.ids.length];
+		for(int i=0; i<this.contigs.length; i++){
+			this.contigs[i] = new ContigView(concatenation.ids[i], this.sequence, this.contigStarts[i], concatenation.lengths[i]);
+		}
+	}
+
+	/**
+	 * Concatenates the sequences of a set of contigs, separated by the separator character.
+	 *
+	 * @param contigs the contigs to concatenate
+	 *
+	 * @return the concatenated sequences of 'contigs'
+	 */
+	private static Concatenation concatenate(SimpleContig[] contigs){
+		if(contigs == null) throw new IllegalArgumentException("The index must contain at least one contig!");
+		String[] ids = new String[contigs.length];
+		int[] lengths = new int[contigs.length];
+		for(int i=0; i<contigs.length; i++){
+			ids[i] = contigs[i].getID();
+			lengths[i] = contigs[i].getSequenceLength();
+		}
+		Concatenation result = new Concatenation(ids, lengths);
+		for(int i=0; i<contigs.length; i++) result.setContig(i, contigs[i].getSequence());
+		return result;
+	}
+
+	/**
+	 * Reads and concatenates all contigs of a (multi-)fasta file.
+	 *
+	 * @param file the file to read
+	 *
+	 * @return the concatenated contigs of 'file'
+	 *
+	 * @throws IOException
+	 */
+	private static Concatenation readContigs(File file) throws IOException{
+		// the first pass determines the length of the concatenated sequence
+		SlimFastaParser parser = new SlimFastaParser(file);
+		ArrayList<String> ids = new ArrayList<String>();
+		IntArrayList lengths = new IntArrayList();
+		SimpleContigImpl contig;
+		while(parser.hasNextContig()){
+			contig = parser.parseNextContigIgnoreCase();
+			ids.add(contig.getID().replaceAll("[ \t]+", "_"));
+			lengths.add(contig.getSequenceLength());
+		}
+		lengths.trimToSize();
+		Concatenation result = new Concatenation(ids.toArray(new String[ids.size()]), lengths.elements());
+
+		// the second pass copies each contig into the concatenated sequence
+		parser = new SlimFastaParser(file);
+		for(int i=0; i<ids.size(); i++){
+			if(!parser.hasNextContig()) throw new IOException("The file changed while creating the index: " + file);
+			contig = parser.parseNextContigIgnoreCase();
+			if(contig.getSequenceLength() != lengths.get(i)) throw new IOException("The file changed while creating the index: " + file);
+			result.setContig(i, contig.getSequence());
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the index of the contig containing a position of the concatenated sequence.
+	 *
+	 * @param position the position in the concatenated sequence
+	 *
+	 * @return the index of the contig containing 'position'
+	 */
+	private int getContigIndex(int position){
+		int index = Arrays.binarySearch(this.contigStarts, position);
+		return (index >= 0) ? index : -index - 2;
+	}
+
+	/**
+	 * Adds the hits of a set of positions in the concatenated sequence to a list of hits.
+	 *
+	 * @param positions the positions in the concatenated sequence
+	 * @param isForward whether the positions are forward hits
+	 * @param result the list to add the hits to
+	 */
+	@Override
+	protected void addHits(long[] positions, boolean isForward, ObjectArrayList result){
+		int contig;
+		for(long position : positions){
+			contig = getContigIndex((int) position);
+			result.add(new IndexHitImpl(this.contigs[contig], (int) position - this.contigStarts[contig], isForward));
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see primerDesign.dsc.indexStructures.esa.EnhancedSuffixArray#getContig()
+	 */
+	@Override
+	public SimpleContigImpl[] getContig(){
+		return this.contigs.clone();
+	}
+
+	/**
+	 * Returns the number of contigs of this index.
+	 *
+	 * @return the number of contigs of this index
+	 */
+	public int getNumberOfContigs(){
+		return this.contigs.length;
+	}
+
+	/**
+	 * Returns the total length of the contigs of this index, excluding the separators.
+	 *
+	 * @return the total length of the contigs of this index
+	 */
+	@Override
+	public long getSequenceLength(){
+		return this.sequenceLength - (this.contigs.length - 1);
+	}
+
+	/* (non-Javadoc)
+	 * @see primerDesign.dsc.indexStructures.esa.EnhancedSuffixArray#getSequence()
+	 */
+	@Override
+	public String getSequence(){
+		throw new IllegalStateException("Retrieving the sequence string is not supported by this kind of index!");
+	}
+
+	/* (non-Javadoc)
+	 * @see primerDesign.dsc.indexStructures.esa.EnhancedSuffixArray#getStatistics()
+	 */
+	@Override
+	public HashMap<Character, Integer> getStatistics(){
+		// the child intervals of the root include the separator interval, the characters are therefore counted directly
+		HashMap<Character, Integer> result = new HashMap<Character, Integer>();
+		Integer count;
+		for(int i=0; i<this.sequenceLength; i++){
+			if(this.sequence[i] == SEPARATOR) continue;
+			count = result.get(this.sequence[i]);
+			result.put(this.sequence[i], (count == null) ? 1 : count + 1);
+		}
+		return result;
+	}
+
+	/**
+	 * Deserializes a concatenated multi-sequence ESA.
+	 *
+	 * @param filename the filename to deserialize the index from
+	 *
+	 * @return a concatenated multi-sequence ESA from a file
+	 */
+	public static ConcatenatedMultiSeqESAIndex deserialize(File filename){
+		ConcatenatedMultiSeqESAIndex result = null;
+		try{
+			ObjectInputStream in = new ObjectInputStream(new FileInputStream(filename));
+			result = (ConcatenatedMultiSeqESAIndex) in.readObject();
+			in.close();
+		}catch(Exception e){
+			e.printStackTrace();
+		}
+		return result;
+	}
+
+	/**
+	 * The concatenated sequence of a set of contigs and its boundary table.
+	 */
+	private static class Concatenation {
+		private final String[] ids;
+		private final int[] lengths;
+		private final int[] starts;
+		private final char[] sequence;
+
+		/**
+		 * Initializes the concatenation of a set of contigs, the contig sequences are set separately.
+		 *
+		 * @param ids the IDs of the contigs
+		 * @param lengths the lengths of the contigs
+		 */
+		Concatenation(String[] ids, int[] lengths){
+			if(ids.length < 1) throw new IllegalArgumentException("The index must contain at least one contig!");
+			this.ids = ids;
+			this.lengths = lengths;
+			this.starts = new int[ids.length];
+			long start = 0;
+			for(int i=0; i<ids.length; i++){
+				if(lengths[i] < 1) throw new IllegalArgumentException("Illegal sequence for index creation: " + ids[i]);
+				this.starts[i] = (int) Math.min(start, Integer.MAX_VALUE);
+				start += lengths[i] + 1;
+			}
+			long length = start - 1;
+			if(length >= Integer.MAX_VALUE) throw new IllegalArgumentException("The concatenated contigs exceed the maximum index size of: " + (Integer.MAX_VALUE - 1));
+			this.sequence = new char[(int) length];
+			for(int i=1; i<ids.length; i++) this.sequence[this.starts[i] - 1] = SEPARATOR;
+		}
+
+		/**
+		 * Copies the sequence of a contig into the concatenated sequence.
+		 *
+		 * @param index the index of the contig
+		 * @param contigSequence the sequence of the contig
+		 */
+		void setContig(int index, char[] contigSequence){
+			System.arraycopy(contigSequence, 0, this.sequence, this.starts[index], this.lengths[index]);
+		}
+	}
+
+	/**
+	 * A contig of this index, viewing its range of the concatenated sequence.
+	 *
+	 * The contig sequence is copied only if it is requested as a whole, subsequences are read from the concatenated sequence.
+	 */
+	private static class ContigView extends SimpleContigImpl {
+		private static final long serialVersionUID = 1L;
+		private final char[] concatenatedSequence;
+		private final int start;
+		private final int length;
+
+		ContigView(String id, char[] concatenatedSequence, int start, int length){
+			super(id);
+			this.concatenatedSequence = concatenatedSequence;
+			this.start = start;
+			this.length = length;
+		}
+
+		/* (non-Javadoc)
+		 * @see primerDesign.util.SimpleContigImpl#getSequence()
+		 */
+		@Override
+		public char[] getSequence(){
+			return Arrays.copyOfRange(this.concatenatedSequence, this.start, this.start + this.length);
+		}
+
+		/* (non-Javadoc)
+		 * @see primerDesign.util.SimpleContigImpl#setSequence(char[])
+		 */
+		@Override
+		public void setSequence(char[] sequence){
+			throw new UnsupportedOperationException("The contigs of an index are immutable!");
+		}
+
+		/* (non-Javadoc)
+		 * @see primerDesign.util.SimpleContigImpl#getSubsequence(int, int)
+		 */
+		@Override
+		public String getSubsequence(int start, int end){
+			if(start < 0 || end > this.length || start > end) throw new IndexOutOfBoundsException("Illegal subsequence: " + start + "-" + end);
+			return new String(this.concatenatedSequence, this.start + start, end - start);
+		}
+
+		/* (non-Javadoc)
+		 * @see primerDesign.util.SimpleContigImpl#getSequenceLength()
+		 */
+		@Override
+		public int getSequenceLength(){
+			return this.length;
+		}
+
+		/* (non-Javadoc)
+		 * @see primerDesign.util.SimpleContigImpl#toFastaString()
+		 */
+		@Override
+		public String toFastaString(){
+			return ">" + this.getID() + "\n" + this.getSubsequence(0, this.length) + "\n";
+		}
+
+		/* (non-Javadoc)
+		 * @see primerDesign.util.SimpleContigImpl#equals(java.lang.Object)
+		 */
+		@Override
+		public boolean equals(Object o){
+			SimpleContig other = (SimpleContig) o;
+			return this.getID().equals(other.getID()) && Arrays.equals(this.getSequence(), other.getSequence());
+		}
+
+		/* (non-Javadoc)
+		 * @see java.lang.Object#hashCode()
+		 */
+		@Override
+		public int hashCode(){
+			return this.getID().hashCode();
+		}
+	}
+}
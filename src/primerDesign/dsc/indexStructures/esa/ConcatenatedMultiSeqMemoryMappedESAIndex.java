@@ -0,0 +1,226 @@
+/**
+ *
+ */
+package primerDesign.dsc.indexStructures.esa;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import primerDesign.algo.ESAConstruction;
+import primerDesign.dsc.indexStructures.IndexHitImpl;
+import primerDesign.util.SimpleContig;
+import primerDesign.util.SimpleContigImpl;
+import cern.colt.list.ObjectArrayList;
+
+/**
+ * Implements a memory mapped enhanced suffix array over all contigs of a multi-sequence index.
+ *
+ * Like ConcatenatedMultiSeqESAIndex, this index constructs a single enhanced suffix array on the concatenation of all contigs, separated by
+ * a separator character which never occurs in a (DNA) query, and maps the positions of its hits back to their contigs by a boundary table.
+ * The concatenated sequence and all tables are memory mapped and addressed by long positions, the concatenation of all contigs of a genome
+ * may therefore exceed 2^31 characters, only each single contig is limited to 2^31 characters.
+ *
+ * When reading a file, the contigs are parsed twice: once to determine their lengths and once to copy them line by line into the memory mapped
+ * sequence, such that no contig is held in memory.
+ *
+ * @author Sebastian Frhler
+ *
+ */
+public class ConcatenatedMultiSeqMemoryMappedESAIndex extends EnhancedSuffixArrayFatOptMemoryMapped{
+
+	private static final long serialVersionUID = 1L;
+	protected static final char SEPARATOR = TERMINATION_SYMBOL.charAt(0);
+
+	private SimpleContigImpl[] contigs;
+	private long[] contigStarts; // the boundary table: contigStarts[i] is the position of the first character of contig 'i' in the concatenated sequence
+
+	/**
+	 * Initializes a memory mapped enhanced suffix array over all contigs in a (multi-)fasta file.
+	 *
+	 * @param file the file containing the contig(s) to create the index on
+	 *
+	 * @throws IOException
+	 */
+	public ConcatenatedMultiSeqMemoryMappedESAIndex(File file) throws IOException{
+		this(file, EnhancedSuffixArrayFatOptMemoryMapped.getDefaultConstruction());
+	}
+
+	/**
+	 * Initializes a memory mapped enhanced suffix array over all contigs in a (multi-)fasta file.
+	 *
+	 * @param file the file containing the contig(s) to create the index on
+	 * @param construction the construction of the suffix array, the lcp table and the child table
+	 *
+	 * @throws IOException
+	 */
+	public ConcatenatedMultiSeqMemoryMappedESAIndex(File file, ESAConstruction construction) throws IOException{
+		this(ContigLengths.read(file, Integer.MAX_VALUE), file.getName(), file.getAbsolutePath(), construction);
+
+		// the second pass copies each contig into the concatenated sequence
+		int[] lengths = new int[this.contigs.length];
+		for(int i=0; i<lengths.length; i++) lengths[i] = this.contigs[i].getSequenceLength();
+		setText(file, this.contigStarts, lengths);
+	}
+
+	/**
+	 * Initializes a memory mapped enhanced suffix array over a set of contigs.
+	 *
+	 * The sequences of 'contigs' are copied into the memory mapped sequence and not referenced by this index.
+	 *
+	 * @param contigs the contigs to create the index on
+	 * @param name the name of the index
+	 * @param absolutePath the absolute path to the file where to store the memory mapped index into
+	 * @param construction the construction of the suffix array, the lcp table and the child table
+	 *
+	 * @throws IOException
+	 */
+	public ConcatenatedMultiSeqMemoryMappedESAIndex(SimpleContig[] contigs, String name, String absolutePath, ESAConstruction construction) throws IOException{
+		this(getLengths(contigs), name, absolutePath, construction);
+		for(int i=0; i<contigs.length; i++) setText(this.contigStarts[i], contigs[i].getSequence());
+	}
+
+	/**
+	 * Initializes the memory mapped sequence and the boundary table of a set of contigs, the contig sequences are set separately.
+	 *
+	 * @param lengths the IDs and the lengths of the contigs
+	 * @param name the name of the index
+	 * @param absolutePath the absolute path to the file where to store the memory mapped index into
+	 * @param construction the construction of the suffix array, the lcp table and the child table
+	 *
+	 * @throws IOException
+	 */
+	private ConcatenatedMultiSeqMemoryMappedESAIndex(ContigLengths lengths, String name, String absolutePath, ESAConstruction construction) throws IOException{
+		super(lengths.getConcatenatedLength(), name, absolutePath, construction);
+		this.contigStarts = new long[lengths.ids.length];
+		this.contigs = new SimpleContigImpl[lengths.ids.length];
+		long start = 0;
+		for(int i=0; i<this.contigs.length; i++){
+			this.contigStarts[i] = start;
+			this.contigs[i] = new MappedContigView(lengths.ids[i], getText(), start, lengths.lengths[i]);
+			if(i > 0) setText(start - 1, new char[]{SEPARATOR});
+			start += lengths.lengths[i] + 1;
+		}
+	}
+
+	/**
+	 * Returns the IDs and the lengths of a set of contigs.
+	 *
+	 * @param contigs the contigs
+	 *
+	 * @return the IDs and the lengths of 'contigs'
+	 */
+	private static ContigLengths getLengths(SimpleContig[] contigs){
+		if(contigs == null) throw new IllegalArgumentException("The index must contain at least one contig!");
+		String[] ids = new String[contigs.length];
+		int[] lengths = new int[contigs.length];
+		for(int i=0; i<contigs.length; i++){
+			ids[i] = contigs[i].getID();
+			lengths[i] = contigs[i].getSequenceLength();
+		}
+		return new ContigLengths(ids, lengths);
+	}
+
+	/**
+	 * Returns the index of the contig containing a position of the concatenated sequence.
+	 *
+	 * @param position the position in the concatenated sequence
+	 *
+	 * @return the index of the contig containing 'position'
+	 */
+	private int getContigIndex(long position){
+		int index = Arrays.binarySearch(this.contigStarts, position);
+		return (index >= 0) ? index : -index - 2;
+	}
+
+	/**
+	 * Adds the hits of a set of positions in the concatenated sequence to a list of hits.
+	 *
+	 * @param positions the positions in the concatenated sequence
+	 * @param isForward whether the positions are forward hits
+	 * @param result the list to add the hits to
+	 */
+	@Override
+	protected void addHits(long[] positions, boolean isForward, ObjectArrayList result){
+		int contig;
+		for(long position : positions){
+			contig = getContigIndex(position);
+			result.add(new IndexHitImpl(this.contigs[contig], (int) (position - this.contigStarts[contig]), isForward));
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see primerDesign.dsc.indexStructures.esa.EnhancedSuffixArrayFatOptMemoryMapped#getContig()
+	 */
+	@Override
+	public SimpleContigImpl[] getContig(){
+		return this.contigs.clone();
+	}
+
+	/**
+	 * Returns the number of contigs of this index.
+	 *
+	 * @return the number of contigs of this index
+	 */
+	public int getNumberOfContigs(){
+		return this.contigs.length;
+	}
+
+	/**
+	 * Returns the total length of the contigs of this index, excluding the separators.
+	 *
+	 * @return the total length of the contigs of this index
+	 */
+	@Override
+	public long getSequenceLength(){
+		return this.sequenceLength - (this.contigs.length - 1);
+	}
+
+	/* (non-Javadoc)
+	 * @see primerDesign.dsc.indexStructures.esa.EnhancedSuffixArrayFatOptMemoryMapped#getSequence()
+	 */
+	@Override
+	public String getSequence(){
+		throw new IllegalStateException("Retrieving the sequence string is not supported by this kind of index!");
+	}
+
+	/* (non-Javadoc)
+	 * @see primerDesign.dsc.indexStructures.esa.EnhancedSuffixArray#getStatistics()
+	 */
+	@Override
+	public HashMap<Character, Integer> getStatistics(){
+		// the child intervals of the root include the separator interval, the characters are therefore counted directly
+		HashMap<Character, Integer> result = new HashMap<Character, Integer>();
+		Integer count;
+		char c;
+		for(long i=0; i<this.sequenceLength; i++){
+			c = getCharacter(i);
+			if(c == SEPARATOR) continue;
+			count = result.get(c);
+			result.put(c, (count == null) ? 1 : count + 1);
+		}
+		return result;
+	}
+
+	/**
+	 * Deserializes a concatenated multi-sequence memory mapped ESA.
+	 *
+	 * @param filename the filename to deserialize the index from
+	 *
+	 * @return a concatenated multi-sequence memory mapped ESA from a file
+	 */
+	public static ConcatenatedMultiSeqMemoryMappedESAIndex deserialize(File filename){
+		ConcatenatedMultiSeqMemoryMappedESAIndex result = null;
+		try{
+			ObjectInputStream in = new ObjectInputStream(new FileInputStream(filename));
+			result = (ConcatenatedMultiSeqMemoryMappedESAIndex) in.readObject();
+			in.close();
+		}catch(Exception e){
+			e.printStackTrace();
+		}
+		return result;
+	}
+}
@@ -10,16 +10,15 @@ import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.HashMap;
 
-import primerDesign.dsc.FastStack;
+import primerDesign.dsc.FastLongStack;
 import primerDesign.dsc.indexStructures.DNASequenceIndex;
 import primerDesign.dsc.indexStructures.IndexHitImpl;
 import primerDesign.util.SeqTools;
 import primerDesign.util.SimpleContig;
 import primerDesign.util.SimpleContigImpl;
 import primerDesign.util.SlimFastaParser;
-import cern.colt.list.IntArrayList;
+import cern.colt.list.LongArrayList;
 import cern.colt.list.ObjectArrayList;
-import cern.colt.map.OpenIntIntHashMap;
 
 /**
  * Implements the basic methods for an enhanced suffix array (ESA) as proposed by Kurtz et.al. 2004.
@@ -29,6 +28,9 @@ import cern.colt.map.OpenIntIntHashMap;
  * Implementations of this ESA have to provide an appropriate datastructure for storing the tables: suftab, lcptab, childtab,
  * the corresponding accessor methods for those tables and a proper initialization.
  * 
+ * The tables are addressed by long positions, such that an implementation storing its tables and its sequence outside the java heap
+ * may index a text of more than 2^31 characters. Implementations not holding the sequence in 'sequence' have to override getCharacter().
+ * 
  * If sequence is to be searched case-insensitive, this has to be explicitely specified!
  *  
  * @author Sebastian Frhler
@@ -39,32 +41,32 @@ public abstract class EnhancedSuffixArray implements DNASequenceIndex, Serializa
 	private static final long serialVersionUID = -4436486307664490034L;
 
 	protected char[] sequence;
-	protected int sequenceLength;
+	protected long sequenceLength;
 	protected String name;
 	protected static final String TERMINATION_SYMBOL = "$";
-	protected OpenIntIntHashMap bucketTab;
+	protected HashMap<Integer, Long> bucketTab;
 	protected int d;
 	public static boolean printStatus = false;
 	
-	protected abstract boolean containsNextIndex(int i);
-	protected abstract boolean containsDownIndex(int i);
-	protected abstract boolean containsUpIndex(int i);
+	protected abstract boolean containsNextIndex(long i);
+	protected abstract boolean containsDownIndex(long i);
+	protected abstract boolean containsUpIndex(long i);
 	
-	protected abstract int getChildTabNext(int i);
-	protected abstract int getChildTabDown(int i);
-	protected abstract int getChildTabUP(int i);
+	protected abstract long getChildTabNext(long i);
+	protected abstract long getChildTabDown(long i);
+	protected abstract long getChildTabUP(long i);
 	
-	protected abstract void setChildTab(int i, int j);
-	protected abstract int getChildTab(int i);	
-	protected abstract int getChildTabLength();
+	protected abstract void setChildTab(long i, long j);
+	protected abstract long getChildTab(long i);	
+	protected abstract long getChildTabLength();
 	
-	protected abstract void setLcpTab(int i, int j);
-	protected abstract int getLcpTab(int i);	
-	protected abstract int getLcpTabLength();
+	protected abstract void setLcpTab(long i, long j);
+	protected abstract long getLcpTab(long i);	
+	protected abstract long getLcpTabLength();
 	
-	protected abstract void setSufTab(int i, int j);
-	protected abstract int getSufTab(int i);	
-	protected abstract int getSufTabLength();
+	protected abstract void setSufTab(long i, long j);
+	protected abstract long getSufTab(long i);	
+	protected abstract long getSufTabLength();
 	
 	public abstract void createIndex();
 
@@ -85,7 +87,7 @@ public abstract class EnhancedSuffixArray implements DNASequenceIndex, Serializa
 		this.sequenceLength = this.sequence.length;
 		this.name = contig.getID();
 		if(sequenceLength < 1 || sequence == null) throw new IllegalArgumentException("Illegal sequence for index creation!");
-		this.bucketTab = new OpenIntIntHashMap();
+		this.bucketTab = new HashMap<Integer, Long>();
 		this.d = 8;
 	}
 	
@@ -94,7 +96,7 @@ public abstract class EnhancedSuffixArray implements DNASequenceIndex, Serializa
 		this.sequenceLength = this.sequence.length;
 		this.name = name;
 		if(sequenceLength < 1 || sequence == null) throw new IllegalArgumentException("Illegal sequence for index creation!");
-		this.bucketTab = new OpenIntIntHashMap();
+		this.bucketTab = new HashMap<Integer, Long>();
 		this.d = 8;
 	}
 	
@@ -103,10 +105,35 @@ public abstract class EnhancedSuffixArray implements DNASequenceIndex, Serializa
 		this.sequenceLength = this.sequence.length;
 		this.name = name;
 		if(sequenceLength < 1 || sequence == null) throw new IllegalArgumentException("Illegal sequence for index creation!");
-		this.bucketTab = new OpenIntIntHashMap();
+		this.bucketTab = new HashMap<Integer, Long>();
 		this.d = 8;
 	}
 	
+	/**
+	 * Initializes an enhanced suffix array on a sequence which is not held in 'sequence', sets the max length of prefixes stored in the bucket table.
+	 * 
+	 * @param sequenceLength the length of the sequence
+	 * @param name the name of the sequence
+	 */
+	protected EnhancedSuffixArray(long sequenceLength, String name){
+		this.sequenceLength = sequenceLength;
+		this.name = name;
+		if(sequenceLength < 1) throw new IllegalArgumentException("Illegal sequence for index creation!");
+		this.bucketTab = new HashMap<Integer, Long>();
+		this.d = 8;
+	}
+	
+	/**
+	 * Returns the character at position 'i' of the sequence.
+	 * 
+	 * @param i the position, in [0,sequenceLength)
+	 * 
+	 * @return the character at position 'i' of the sequence
+	 */
+	protected char getCharacter(long i){
+		return this.sequence[(int) i];
+	}
+	
 	/**
 	 * Initializes the lcp table - data structure dependent.
 	 *
@@ -119,9 +146,9 @@ public abstract class EnhancedSuffixArray implements DNASequenceIndex, Serializa
 	 */
 	protected final void computeLCPTable() {
 		initLcpTab();
-		int lcp;
-		int stop = this.getSufTabLength();
-		for (int i = 0; i < stop; i++) {
+		long lcp;
+		long stop = this.getSufTabLength();
+		for (long i = 0; i < stop; i++) {
 			if(i == 0 || i == stop-1) setLcpTab(i, 0);
 			else{
 				lcp = computeLcp(i, i-1);
@@ -154,15 +181,15 @@ public abstract class EnhancedSuffixArray implements DNASequenceIndex, Serializa
 	 *
 	 */
 	private final void computeChildTabNext() {
-		FastStack stack = new FastStack();
+		FastLongStack stack = new FastLongStack();
 		stack.push(0);
-		for (int i = 1; i <= sequenceLength; i++) {
+		for (long i = 1; i <= sequenceLength; i++) {
 			while(getLcpTab(i) < getLcpTab(stack.peek())){
 				stack.pop();
 			}
 			assert(getLcpTab(i) >= getLcpTab(stack.peek()));
 			if(getLcpTab(i) == getLcpTab(stack.peek())){
-				int lastIndex = stack.pop();
+				long lastIndex = stack.pop();
 				setChildTabNext(lastIndex, i);
 			}
 			stack.push(i);
@@ -174,11 +201,11 @@ public abstract class EnhancedSuffixArray implements DNASequenceIndex, Serializa
 	 *
 	 */
 	private final void computeChildTabUpDown() {
-			FastStack stack = new FastStack();
+			FastLongStack stack = new FastLongStack();
 			stack.push(0);
-			int lastIndex = -1;
-			int top;
-			for (int i = 1; i <= sequenceLength; i++) {
+			long lastIndex = -1;
+			long top;
+			for (long i = 1; i <= sequenceLength; i++) {
 				while(getLcpTab(i) < getLcpTab(stack.peek())){
 					lastIndex = stack.pop();
 					top = stack.peek();
@@ -215,8 +242,8 @@ public abstract class EnhancedSuffixArray implements DNASequenceIndex, Serializa
 	 */
 	protected final void computeBucketTable() {
 			//String currentString;
-			int suftab;
-			for(int i=sequenceLength-1; i>=0; i--){
+			long suftab;
+			for(long i=sequenceLength-1; i>=0; i--){
 				suftab = getSufTab(i);
 				bucketTab.put(getHashCode(suftab, suftab + Math.min(d, sequenceLength-suftab)), i);
 			}
@@ -230,13 +257,13 @@ public abstract class EnhancedSuffixArray implements DNASequenceIndex, Serializa
 	 * 
 	 * @return the hash code of sequence[i]...sequence[j-1] as String.hashCode()
 	 */
-	private final int getHashCode(int i, int j) {
-		assert i>=0 && j>=i && i<=this.sequence.length && j<=this.sequence.length : "i: " + i + " j: " + j;
+	private final int getHashCode(long i, long j) {
+		assert i>=0 && j>=i && i<=this.sequenceLength && j<=this.sequenceLength : "i: " + i + " j: " + j;
 		int result = 0;
-		int length = j-i;
+		int length = (int) (j-i);
 		for(int k=0; k<length; k++){
 			//result += sequence[i+k] * 31^(length-1-k);
-			result = 31*result + this.sequence[i+k];
+			result = 31*result + getCharacter(i+k);
 		}
 		return result;
 	}
@@ -271,7 +298,7 @@ public abstract class EnhancedSuffixArray implements DNASequenceIndex, Serializa
 	 * 
 	 * @return the start index of an interval where pattern is one prefix
 	 */
-	private final int getFromBucketTab(String pattern) {
+	private final long getFromBucketTab(String pattern) {
 		assert pattern.length() > 0 && pattern != null;
 		if(isInBucketTab(pattern)) return bucketTab.get(pattern.substring(0, Math.min(d,pattern.length())).hashCode());
 		else throw new IllegalStateException("Presence in bucket table is supposed to be checked before calling getFromBucketTab!");
@@ -281,21 +308,21 @@ public abstract class EnhancedSuffixArray implements DNASequenceIndex, Serializa
 	 * Returns an interval where pattern is one prefix.
 	 * 
 	 * @param pattern the pattern
-	 * @return an int[start,stop] interval where pattern is one prefix
+	 * @return a long[start,stop] interval where pattern is one prefix
 	 */
-	private final int[] getIntervalFromBucketTable(String pattern) {
+	private final long[] getIntervalFromBucketTable(String pattern) {
 		assert pattern.length() >= d && pattern != null;
 		//pattern = pattern.substring(0, d);
-		if(!isInBucketTab(pattern)) return new int[]{0,-1}; // pattern of length 'd' was not put into bucket table -> has NO associated interval in the interval tree!
-		int start = getFromBucketTab(pattern);
-		int stop = start -1;
-		for(int i=start; i<sequenceLength; i++){
+		if(!isInBucketTab(pattern)) return new long[]{0,-1}; // pattern of length 'd' was not put into bucket table -> has NO associated interval in the interval tree!
+		long start = getFromBucketTab(pattern);
+		long stop = start -1;
+		for(long i=start; i<sequenceLength; i++){
 			if(getLcpTab(i+1) < d){
 				stop = i;
 				break;
 			}else stop = i;
 		}
-		return new int[]{start, stop};
+		return new long[]{start, stop};
 	}
 
 	/**
@@ -304,7 +331,7 @@ public abstract class EnhancedSuffixArray implements DNASequenceIndex, Serializa
 	 * @param i the index
 	 * @param j the value to set
 	 */
-	private void setChildTabUp(int i, int j) {
+	private void setChildTabUp(long i, long j) {
 		if(!containsNextIndex(i)) setChildTab(i-1, j);
 	}
 
@@ -313,7 +340,7 @@ public abstract class EnhancedSuffixArray implements DNASequenceIndex, Serializa
 	 * @param i the index
 	 * @param j the value to set
 	 */
-	private void setChildTabDown(int i, int j) {
+	private void setChildTabDown(long i, long j) {
 		if(!containsNextIndex(i) && !containsUpIndex(i)) setChildTab(i, j);
 	}
 
@@ -323,7 +350,7 @@ public abstract class EnhancedSuffixArray implements DNASequenceIndex, Serializa
 	 * @param i the index
 	 * @param j the value to set
 	 */
-	private void setChildTabNext(int i, int j) {
+	private void setChildTabNext(long i, long j) {
 		setChildTab(i, j);
 	}
 
@@ -334,13 +361,13 @@ public abstract class EnhancedSuffixArray implements DNASequenceIndex, Serializa
 	 * @param j the index of the second prefix
 	 * @return the longest common prefix of strings stored in suffix table 'i' and 'j'
 	 */
-	private final int computeLcp(int i, int j) {
-		int idxI = getSufTab(i);
-		int idxJ = getSufTab(j);
-		int end = sequenceLength - Math.max(idxI, idxJ);
-		int lcp = 0;
-		for(int k = 0; k < end; k++) {
-			if(this.sequence[idxI + k] == this.sequence[idxJ + k]) lcp++;
+	private final long computeLcp(long i, long j) {
+		long idxI = getSufTab(i);
+		long idxJ = getSufTab(j);
+		long end = sequenceLength - Math.max(idxI, idxJ);
+		long lcp = 0;
+		for(long k = 0; k < end; k++) {
+			if(getCharacter(idxI + k) == getCharacter(idxJ + k)) lcp++;
 			else break;
 		}
 		return lcp;
@@ -356,14 +383,14 @@ public abstract class EnhancedSuffixArray implements DNASequenceIndex, Serializa
 	 * 
 	 * @return a list of child intervals of the 'parent' interval [i,j], format: [DOWN,UP]_x
 	 */
-	protected final int[] getChildIntervals(int i, int j) {
+	protected final long[] getChildIntervals(long i, long j) {
 		assert i>=0 && j>=0 && i<this.getSufTabLength() && j<this.getSufTabLength();
 		// init intervals list
 		//int[] result = new int[0]; // list of child intervals: i%2=0 -> lower bound, i%2=1 -> upper bound
-		IntArrayList result = new IntArrayList();
+		LongArrayList result = new LongArrayList();
 		
 		if(i>=0 && j<sequenceLength){
-			int i1;
+			long i1;
 			
 			if(i < getChildTabUP(j+1) && getChildTabUP(j+1) <= j) i1 = getChildTabUP(j+1);
 			else i1 = getChildTabDown(i);
@@ -373,7 +400,7 @@ public abstract class EnhancedSuffixArray implements DNASequenceIndex, Serializa
 			result.add(i1-1);
 			
 			while(containsNextIndex(i1)){
-				int i2 = getChildTabNext(i1);
+				long i2 = getChildTabNext(i1);
 				//if(i2 == j) break;
 				// add i1, i2-1 to intervals list
 				//result = addInterval(result, i1, i2-1);
@@ -386,7 +413,7 @@ public abstract class EnhancedSuffixArray implements DNASequenceIndex, Serializa
 			result.add(i1);
 			result.add(j);
 		}else{
-			int k=i;
+			long k=i;
 			while(containsNextIndex(k)){
 				//result = addInterval(result, k, getChildTabNext(k)-1);
 				result.add(k);
@@ -400,7 +427,7 @@ public abstract class EnhancedSuffixArray implements DNASequenceIndex, Serializa
 			}
 		}
 		
-		int[] temp = new int[result.size()];
+		long[] temp = new long[result.size()];
 		for(int z=0; z<result.size(); z++) temp[z] = result.get(z);
 		
 		return temp; //result;
@@ -415,16 +442,16 @@ public abstract class EnhancedSuffixArray implements DNASequenceIndex, Serializa
 	 * 
 	 * @return the child interval of the interval [i,j] with character p at position getLCP(i,j) at all suffices in that interval
 	 */
-	protected final int[] getChildInterval(int i, int j, char p) {
+	protected final long[] getChildInterval(long i, long j, char p) {
 		assert i>=0 && j>=0 && i<this.getChildTabLength() && j<this.getChildTabLength() && p >= Character.MIN_VALUE && p<= Character.MAX_VALUE;
-		int[] result = new int[]{0,-1};
-		int lcpOffset = getLCP(i, j);
-		int[] intervals = getChildIntervals(i, j);
+		long[] result = new long[]{0,-1};
+		long lcpOffset = getLCP(i, j);
+		long[] intervals = getChildIntervals(i, j);
 		for(int k=0; k<intervals.length; k+=2){
-			int lowerBound = intervals[k]; 
-			int index = getSufTab(lowerBound) + lcpOffset;
-			if(index < sequenceLength && this.sequence[index] == p){
-				result = new int[]{intervals[k], intervals[k+1]};
+			long lowerBound = intervals[k]; 
+			long index = getSufTab(lowerBound) + lcpOffset;
+			if(index < sequenceLength && getCharacter(index) == p){
+				result = new long[]{intervals[k], intervals[k+1]};
 				break;
 			}
 		}
@@ -438,12 +465,12 @@ public abstract class EnhancedSuffixArray implements DNASequenceIndex, Serializa
 	 * 
 	 * @return all match positions in the string the suffix array was constructed for
 	 */
-	public final int[] findMatchPositions(String patter) {
+	public final long[] findMatchPositions(String patter) {
 		if(patter.length() < 1) throw new IllegalArgumentException("Invalid pattern to scan with!");
 		int c = 0;
 		boolean queryFound = true;
 		int elements;
-		int[] interval = new int[0];
+		long[] interval = new long[0];
 		// if pattern length >= d -> use bucket table to locate initial interval
 		//if(patter.length() >= d){
 		if(isInBucketTab(patter)){
@@ -456,14 +483,14 @@ public abstract class EnhancedSuffixArray implements DNASequenceIndex, Serializa
 			interval = getChildInterval(0, sequenceLength, patter.charAt(c));
 		}
 		if(interval[0] <= interval[1]){ // an empty interval has length -1: e.g. index a=0, index b=-1
-			int start = interval[0];
-			int end = interval[1];
-			int l;
+			long start = interval[0];
+			long end = interval[1];
+			long l;
 			int min;
 			while(interval[0] <= interval[1]  && c<patter.length() && queryFound){
 				if(start != end){
 					l = getLCP(start, end);
-					min = Math.min(l,patter.length());
+					min = (int) Math.min(l,patter.length());
 					queryFound = isEqualToSequRegion(patter, getSufTab(start)+c, c, min-c);
 					c = min;
 					if(c<patter.length()) interval = getChildInterval(start, end, patter.charAt(c));
@@ -481,8 +508,8 @@ public abstract class EnhancedSuffixArray implements DNASequenceIndex, Serializa
 			}
 		}
 		if(interval[0] > interval[1]  || !queryFound) elements = 0;
-		else elements = interval[1]-interval[0]+1;
-		int[] positions = new int[elements];
+		else elements = (int) (interval[1]-interval[0]+1);
+		long[] positions = new long[elements];
 		for(int i=0; i<elements; i++){
 			positions[i] = getSufTab(interval[0] + i);
 		}
@@ -499,11 +526,11 @@ public abstract class EnhancedSuffixArray implements DNASequenceIndex, Serializa
 	 * 
 	 * @return true iff sequence.substring(sstart,sstart+length).equals(pattern.substring(pstart,pstart+length))
 	 */
-	private boolean isEqualToSequRegion(String pattern, int sstart, int pstart, int length) {
+	private boolean isEqualToSequRegion(String pattern, long sstart, int pstart, int length) {
 		assert(sstart >= 0 && sstart <= sequenceLength && pstart >= 0 && pstart <= pattern.length() && length >=0);
 		if(sstart >= sequenceLength || pstart >= pattern.length() || length == 0 || sstart+length-1 >= sequenceLength || pstart+length-1 >= pattern.length()) return false;
 		for(int i=0; i<length; i++){
-			if(this.sequence[sstart+i] != pattern.charAt(pstart+i)) return false;
+			if(getCharacter(sstart+i) != pattern.charAt(pstart+i)) return false;
 		}
 		return true;
 	}
@@ -516,7 +543,7 @@ public abstract class EnhancedSuffixArray implements DNASequenceIndex, Serializa
 	 * 
 	 * @return the length of the longest common prefix of the interval [i,j]
 	 */
-	private final int getLCP(int i, int j) {
+	private final long getLCP(long i, long j) {
 		assert i>= 0 && j>=0 && i<=sequenceLength && j<=sequenceLength;
 		if(j == sequenceLength) return 0; // there is NO LCP between the whole string and the sentinel!
 		else if(i < getChildTabUP(j+1) && getChildTabUP(j+1) <= j) return getLcpTab(getChildTabUP(j+1));
@@ -529,12 +556,12 @@ public abstract class EnhancedSuffixArray implements DNASequenceIndex, Serializa
 	 * @param from first index to be included in the sorting
 	 * @param to last index to be included in the sorting
 	 */
-	protected void quicksortSuffices(int from, int to) {
+	protected void quicksortSuffices(long from, long to) {
 		assert(from>=0 && to>=0 && from<this.sequenceLength && to<this.sequenceLength && from < to) : "Suffix index 'from' has to be smaller than 'to'!";
-	    int i = from;
-	    int j = to;
+	    long i = from;
+	    long j = to;
 	    //int pivot = Math.round((from+to+0.0f)/2);
-	    int pivot = (from+to)/2;
+	    long pivot = (from+to)/2;
 	    //int pivot = from + (to-from) * (int) Math.random();
 	    //int pivot = from;
 	    
@@ -571,9 +598,9 @@ public abstract class EnhancedSuffixArray implements DNASequenceIndex, Serializa
 	 * @param a the first element
 	 * @param b the second element
 	 */
-	private void swap(int a, int b) {
+	private void swap(long a, long b) {
 		assert a>=0 && b>=0 && a<this.sequenceLength && b<this.sequenceLength;
-		int temp = getSufTab(a);
+		long temp = getSufTab(a);
 		setSufTab(a, getSufTab(b));
 		setSufTab(b, temp);
 	}
@@ -586,14 +613,14 @@ public abstract class EnhancedSuffixArray implements DNASequenceIndex, Serializa
 	 * 
 	 * @return -1|0|1 like compareTo for Strings does
 	 */
-	private int compareSuffix(int a, int b) {
+	private int compareSuffix(long a, long b) {
 		assert a>=0 && b>=0 && a<this.getSufTabLength() && b<this.getSufTabLength();
-		int idxA = getSufTab(a);
-		int idxB = getSufTab(b);
-		int end = Math.min(sequenceLength-idxA, sequenceLength-idxB);
-		for (int i = 0; i < end; i++) {
-			int first = this.sequence[idxA+i];
-			int second = this.sequence[idxB+i];
+		long idxA = getSufTab(a);
+		long idxB = getSufTab(b);
+		long end = Math.min(sequenceLength-idxA, sequenceLength-idxB);
+		for (long i = 0; i < end; i++) {
+			int first = getCharacter(idxA+i);
+			int second = getCharacter(idxB+i);
 			if(first == second) continue;
 			else if(first > second) return 1;
 			else if(first < second) return -1;
@@ -610,8 +637,8 @@ public abstract class EnhancedSuffixArray implements DNASequenceIndex, Serializa
 	 * 
 	 * @return the suffix starting at position 'i'
 	 */
-	protected String getSubstring(int i) {
-		return new String(this.sequence, i, sequenceLength - i);
+	protected String getSubstring(long i) {
+		return getSubstring(i, sequenceLength - i);
 	}
 
 	/**
@@ -622,8 +649,11 @@ public abstract class EnhancedSuffixArray implements DNASequenceIndex, Serializa
 	 * 
 	 * @return the substring from position 'i' (inclusive) to position j (exclusive)
 	 */
-	private String getSubstring(int i, int j) {
-		return new String(this.sequence, i, Math.min(sequenceLength - i, j));
+	private String getSubstring(long i, long j) {
+		StringBuilder result = new StringBuilder();
+		long end = i + Math.min(sequenceLength - i, j);
+		for(long k=i; k<end; k++) result.append(getCharacter(k));
+		return result.toString();
 	}
 
 	/**
@@ -638,10 +668,10 @@ public abstract class EnhancedSuffixArray implements DNASequenceIndex, Serializa
 	public HashMap<Character, Integer> getStatistics(){
 		HashMap<Character, Integer> result = new HashMap<Character, Integer>();
 		
-		int[] intervals = getChildIntervals(0, sequenceLength);
+		long[] intervals = getChildIntervals(0, sequenceLength);
 		// intervals have format: [DOWN,UP]_x, latz child interval of root is termination charater which does NOT appear in the original sequence!
 		for(int i=0; i<intervals.length-3; i+=2){
-			result.put(sequence[getSufTab(intervals[i])], intervals[i+1] - intervals[i] + 1);
+			result.put(getCharacter(getSufTab(intervals[i])), (int) (intervals[i+1] - intervals[i] + 1));
 			//System.err.println(sequence[getSufTab(intervals[i])] + "Interval: start: " + intervals[i] + " end: " + intervals[i+1]);
 		}		
 		return result;
@@ -661,7 +691,7 @@ public abstract class EnhancedSuffixArray implements DNASequenceIndex, Serializa
 	 * 
 	 * @return the length of the sequence this index is constucted on
 	 */
-	public int getSequenceLength(){
+	public long getSequenceLength(){
 		return this.sequenceLength;
 	}
 
@@ -674,16 +704,12 @@ public abstract class EnhancedSuffixArray implements DNASequenceIndex, Serializa
 	 */
 	public ObjectArrayList findHitPositions(String searchString) {
 			if(searchString == null || searchString.length() < 1) throw new IllegalArgumentException("Invalid search string!");
-			int[] positionsFW = findMatchPositions(searchString.toUpperCase());
-			int[] positionsRev = findMatchPositions(SeqTools.revcompDNA(searchString.toUpperCase().toCharArray()));
+			long[] positionsFW = findMatchPositions(searchString.toUpperCase());
+			long[] positionsRev = findMatchPositions(SeqTools.revcompDNA(searchString.toUpperCase().toCharArray()));
 			
 			ObjectArrayList result = new ObjectArrayList();
-			for(int position : positionsFW){
-				result.add(new IndexHitImpl(new SimpleContigImpl(this.name, this.sequence), position, true));
-			}
-			for(int position : positionsRev){
-				result.add(new IndexHitImpl(new SimpleContigImpl(this.name, this.sequence), position, false));
-			}
+			addHits(positionsFW, true, result);
+			addHits(positionsRev, false, result);
 			return result;
 			
 	//		if(searchString == null || searchString.length() < 1) throw new IllegalArgumentException("Invalid search string!");
@@ -703,12 +729,10 @@ public abstract class EnhancedSuffixArray implements DNASequenceIndex, Serializa
 	 */
 	public ObjectArrayList findForwardHits(String searchString){
 		if(searchString == null || searchString.length() < 1) throw new IllegalArgumentException("Invalid search string!");
-		int[] positionsFW = findMatchPositions(searchString.toUpperCase());
+		long[] positionsFW = findMatchPositions(searchString.toUpperCase());
 		
 		ObjectArrayList result = new ObjectArrayList();
-		for(int position : positionsFW){
-			result.add(new IndexHitImpl(new SimpleContigImpl(this.name, this.sequence), position, true));
-		}
+		addHits(positionsFW, true, result);
 		
 		return result;
 	}
@@ -722,14 +746,30 @@ public abstract class EnhancedSuffixArray implements DNASequenceIndex, Serializa
 	 */
 	public ObjectArrayList findReverseHits(String searchString){
 		if(searchString == null || searchString.length() < 1) throw new IllegalArgumentException("Invalid search string!");
-		int[] positionsRev = findMatchPositions(SeqTools.revcompDNA(searchString.toUpperCase().toCharArray()));
+		long[] positionsRev = findMatchPositions(SeqTools.revcompDNA(searchString.toUpperCase().toCharArray()));
 		
 		ObjectArrayList result = new ObjectArrayList();
-		for(int position : positionsRev){
-			result.add(new IndexHitImpl(new SimpleContigImpl(this.name, this.sequence), position, false));
-		}
+		addHits(positionsRev, false, result);
 		return result;
 	}
+	
+	/**
+	 * Adds the hits of a set of match positions to a list of hits.
+	 * 
+	 * The sequence of this index is a single contig, which is shorter than 2^31 characters. Indices on several contigs have to map
+	 * the positions to their contigs.
+	 * 
+	 * @param positions the match positions in the sequence of this index
+	 * @param isForward whether the positions are forward hits
+	 * @param result the list to add the hits to
+	 */
+	protected void addHits(long[] positions, boolean isForward, ObjectArrayList result){
+		if(positions.length == 0) return;
+		SimpleContigImpl contig = getContig()[0];
+		for(long position : positions){
+			result.add(new IndexHitImpl(contig, (int) position, isForward));
+		}
+	}
 
 	/**
 	 * Returns the number of matches of string 'searchString' and its reverse complement! in the index.
@@ -773,7 +813,7 @@ public abstract class EnhancedSuffixArray implements DNASequenceIndex, Serializa
 	 */
 	public void printESA(){
 		System.out.println("i\tsuftab\tlcptab\tchildtab\tsequence");
-		for(int i=0; i<sequenceLength; i++){
+		for(long i=0; i<sequenceLength; i++){
 			System.out.println(i + "\t" + getSufTab(i) + "\t" + getLcpTab(i) + "\t" + getChildTab(i) + "\t" + getSubstring(getSufTab(i)) + EnhancedSuffixArray.TERMINATION_SYMBOL);
 		}
 		System.out.println(sequenceLength + "\t" + getSufTab(sequenceLength) + "\t" + getLcpTab(sequenceLength) + "\t" + getChildTab(sequenceLength) + "\t" + EnhancedSuffixArray.TERMINATION_SYMBOL);
@@ -8,20 +8,36 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.text.NumberFormat;
+import java.util.ArrayList;
 
-import primerDesign.algo.KoAluruSuffixSort;
-import primerDesign.algo.LinearTimeLCP;
-import primerDesign.dsc.nio.MemoryMappedIntFile;
+import primerDesign.algo.ESAConstruction;
+import primerDesign.algo.ParallelESAConstruction;
+import primerDesign.dsc.nio.SegmentedMemoryMappedByteFile;
+import primerDesign.dsc.nio.SegmentedMemoryMappedLongFile;
 import primerDesign.util.FileTools;
 import primerDesign.util.SeqTools;
+import primerDesign.util.SimpleContigImpl;
 import primerDesign.util.SimpleTimer;
+import primerDesign.util.SlimFastaParser;
+import cern.colt.list.IntArrayList;
 
 /**
- *  This class implements the enhanced suffix array as proposed by Kurtz et.al. 2004 using memory-mapped integer tables.
+ *  This class implements the enhanced suffix array as proposed by Kurtz et.al. 2004 using memory-mapped tables.
  * 
  *  Reference: Abouelhoda, Kurtz, Ohlebusch: Replacing suffix trees with enhanced suffix arrays. J. Discr. Algor. 2 (2004) p.53-86
  *  
- *  As of now (2/2008), memory mapped integer files can take up to ~400.000.000 integer values.
+ *  The sequence is stored in a segmented memory mapped file of one byte per character, the tables 'suftab' and 'childtab' are stored in
+ *  segmented memory mapped long files (4 bytes per value for sequences of less than 2^32 characters, 8 bytes otherwise),
+ *  the table 'lcptab' is a compact lcp table storing one byte per value in a segmented memory mapped file.
+ *  All of them are addressed by long positions, the size of the index is therefore limited by the address space only and not by the size of a java array.
+ *  The suffix array, the lcp table and the child table are computed concurrently and written directly into their memory mapped files,
+ *  the heap memory used for the construction is bounded by the memory budget of the construction, the sequence and the tables may therefore exceed the available memory.
+ *  By default, the construction uses all available processors and a quarter of the maximum heap memory (ParallelESAConstruction),
+ *  for genomes whose tables exceed the physical memory, ExternalESAConstruction constructs them in sequential passes over temporary files.
+ *  
+ *  A fasta file is read line by line directly into the memory mapped sequence, its sequence is never held in memory.
+ *  Each contig is addressed by int positions and is therefore limited to 2^31 characters, sequences of more characters are indexed by
+ *  ConcatenatedMultiSeqMemoryMappedESAIndex, which writes the contigs of a genome one after the other into the memory mapped sequence.
  * 
  * @author Sebastian Frhler
  *
@@ -29,11 +45,13 @@ import primerDesign.util.SimpleTimer;
 public class EnhancedSuffixArrayFatOptMemoryMapped extends EnhancedSuffixArray {
 	
 	private static final long serialVersionUID = 1L;
-	private MemoryMappedIntFile suftab;
-	private MemoryMappedIntFile lcptab;
-	private MemoryMappedIntFile childtab;
+	private static final long UNDEFINED = ESAConstruction.UNDEFINED; // the value of an undefined child table entry in 'childtab'
+	private SegmentedMemoryMappedByteFile text;
+	private SegmentedMemoryMappedLongFile suftab;
+	private CompactLcpTable lcptab;
+	private SegmentedMemoryMappedLongFile childtab;
 	private String path;
-	private static final int MAX_CONTIG_SIZE = MemoryMappedIntFile.getMaxContigSize();
+	private transient ESAConstruction construction; // computes the suffix array, the lcp table and the child table, not needed once the index is created
 
 	/**
 	 * Creates a memory mapped version of the enhanced suffix array on the first sequence in file 'absolutePath'
@@ -43,16 +61,8 @@ public class EnhancedSuffixArrayFatOptMemoryMapped extends EnhancedSuffixArray {
 	 * @param absolutePath the absolute path to the file where to store the memory mapped index into
 	 * @throws IOException
 	 */
-	protected EnhancedSuffixArrayFatOptMemoryMapped(String sequence, String name, String absolutePath){
-		super(sequence, name);
-		this.path = absolutePath;
-		if(sequence.length() > EnhancedSuffixArrayFatOptMemoryMapped.MAX_CONTIG_SIZE) throw new IllegalArgumentException("The maximum size of the sequence in that index is: " + EnhancedSuffixArrayFatOptMemoryMapped.getMaxContigSize());
-		Runtime runtime = Runtime.getRuntime();
-		NumberFormat format = NumberFormat.getInstance();
-		if(printStatus){
-			System.gc();
-			System.out.println("Before all: " + format.format(runtime.totalMemory()-runtime.freeMemory()));
-		}
+	protected EnhancedSuffixArrayFatOptMemoryMapped(String sequence, String name, String absolutePath) throws IOException{
+		this(sequence.toCharArray(), name, absolutePath, EnhancedSuffixArrayFatOptMemoryMapped.getDefaultConstruction());
 	}
 	
 	/**
@@ -61,18 +71,37 @@ public class EnhancedSuffixArrayFatOptMemoryMapped extends EnhancedSuffixArray {
 	 * @param sequence the sequnce to construct the ESA from
 	 * @param name the name of the sequence
 	 * @param absolutePath the absolute path to the file where to store the memory mapped index into
+	 * @param construction the construction of the suffix array, the lcp table and the child table
 	 * @throws IOException
 	 */
-	protected EnhancedSuffixArrayFatOptMemoryMapped(char[] sequence, String name, String absolutePath){
-		super(sequence, name);
-		this.path = absolutePath;
-		if(sequence.length > EnhancedSuffixArrayFatOptMemoryMapped.MAX_CONTIG_SIZE) throw new IllegalArgumentException("The maximum size of the sequence in that index is: " + EnhancedSuffixArrayFatOptMemoryMapped.getMaxContigSize());
-		Runtime runtime = Runtime.getRuntime();
-		NumberFormat format = NumberFormat.getInstance();
-		if(printStatus){
-			System.gc();
-			System.out.println("Before all: " + format.format(runtime.totalMemory()-runtime.freeMemory()));
-		}
+	protected EnhancedSuffixArrayFatOptMemoryMapped(String sequence, String name, String absolutePath, ESAConstruction construction) throws IOException{
+		this(sequence.toCharArray(), name, absolutePath, construction);
+	}
+	
+	/**
+	 * Creates a memory mapped version of the enhanced suffix array on the first sequence in file 'absolutePath'
+	 * 
+	 * @param sequence the sequnce to construct the ESA from
+	 * @param name the name of the sequence
+	 * @param absolutePath the absolute path to the file where to store the memory mapped index into
+	 * @throws IOException
+	 */
+	protected EnhancedSuffixArrayFatOptMemoryMapped(char[] sequence, String name, String absolutePath) throws IOException{
+		this(sequence, name, absolutePath, EnhancedSuffixArrayFatOptMemoryMapped.getDefaultConstruction());
+	}
+	
+	/**
+	 * Creates a memory mapped version of the enhanced suffix array on the first sequence in file 'absolutePath'
+	 * 
+	 * @param sequence the sequnce to construct the ESA from
+	 * @param name the name of the sequence
+	 * @param absolutePath the absolute path to the file where to store the memory mapped index into
+	 * @param construction the construction of the suffix array, the lcp table and the child table
+	 * @throws IOException
+	 */
+	protected EnhancedSuffixArrayFatOptMemoryMapped(char[] sequence, String name, String absolutePath, ESAConstruction construction) throws IOException{
+		this(sequence.length, name, absolutePath, construction);
+		setText(0, sequence);
 	}
 	
 	/**
@@ -81,9 +110,38 @@ public class EnhancedSuffixArrayFatOptMemoryMapped extends EnhancedSuffixArray {
 	 * @throws IOException
 	 */
 	protected EnhancedSuffixArrayFatOptMemoryMapped(File file) throws IOException{
-		super(file);
-		this.path = FileTools.extractPath(file);
-		if(this.sequenceLength > EnhancedSuffixArrayFatOptMemoryMapped.MAX_CONTIG_SIZE) throw new IllegalArgumentException("The maximum size of the sequence in that index is: " + EnhancedSuffixArrayFatOptMemoryMapped.getMaxContigSize());
+		this(file, EnhancedSuffixArrayFatOptMemoryMapped.getDefaultConstruction());
+	}
+	
+	/**
+	 * Creates a memory mapped version of the enhanced suffix array on the first sequence in file 'file'
+	 * @param file the fasta file
+	 * @param construction the construction of the suffix array, the lcp table and the child table
+	 * @throws IOException
+	 */
+	protected EnhancedSuffixArrayFatOptMemoryMapped(File file, ESAConstruction construction) throws IOException{
+		this(ContigLengths.read(file, 1), FileTools.extractPath(file), construction);
+		setText(file, new long[]{0}, new int[]{(int) this.sequenceLength});
+	}
+	
+	private EnhancedSuffixArrayFatOptMemoryMapped(ContigLengths contig, String absolutePath, ESAConstruction construction) throws IOException{
+		this(contig.lengths[0], contig.ids[0], absolutePath, construction);
+	}
+	
+	/**
+	 * Creates a memory mapped version of the enhanced suffix array on a sequence of length 'sequenceLength', which is set by setText().
+	 * 
+	 * @param sequenceLength the length of the sequence
+	 * @param name the name of the sequence
+	 * @param absolutePath the absolute path to the file where to store the memory mapped index into
+	 * @param construction the construction of the suffix array, the lcp table and the child table
+	 * @throws IOException
+	 */
+	protected EnhancedSuffixArrayFatOptMemoryMapped(long sequenceLength, String name, String absolutePath, ESAConstruction construction) throws IOException{
+		super(sequenceLength, name);
+		this.path = absolutePath;
+		this.construction = construction;
+		this.text = new SegmentedMemoryMappedByteFile(new File(path + "_" + transformName(getName()) + "_text"), sequenceLength);
 		Runtime runtime = Runtime.getRuntime();
 		NumberFormat format = NumberFormat.getInstance();
 		if(printStatus){
@@ -92,25 +150,76 @@ public class EnhancedSuffixArrayFatOptMemoryMapped extends EnhancedSuffixArray {
 		}
 	}
 	
+	/**
+	 * Copies a part of the sequence into the memory mapped sequence of this index.
+	 * 
+	 * @param position the position of the first character to set
+	 * @param sequence the characters to set, each character must be < 256
+	 */
+	protected void setText(long position, char[] sequence){
+		for(int i=0; i<sequence.length; i++){
+			if(sequence[i] > 0xFF) throw new IllegalArgumentException("Illegal character for a memory mapped index: " + sequence[i]);
+			this.text.put(position + i, (byte) sequence[i]);
+		}
+	}
+	
+	/**
+	 * Copies the sequences of the first contigs of a (multi-)fasta file line by line into the memory mapped sequence of this index.
+	 * 
+	 * @param file the fasta file
+	 * @param starts the positions of the first characters of the contigs in the memory mapped sequence
+	 * @param lengths the lengths of the contigs
+	 * 
+	 * @throws IOException
+	 */
+	protected void setText(File file, long[] starts, int[] lengths) throws IOException{
+		SlimFastaParser parser = new SlimFastaParser(file);
+		final long[] position = new long[1];
+		SlimFastaParser.SequenceHandler handler = new SlimFastaParser.SequenceHandler(){
+			public void append(String sequence){
+				setText(position[0], sequence.toCharArray());
+				position[0] += sequence.length();
+			}
+		};
+		for(int i=0; i<starts.length; i++){
+			if(!parser.hasNextContig()) throw new IOException("The file changed while creating the index: " + file);
+			position[0] = starts[i];
+			parser.readNextContigIgnoreCase(handler);
+			if(position[0] - starts[i] != lengths[i]) throw new IOException("The file changed while creating the index: " + file);
+		}
+	}
+	
+	/* (non-Javadoc)
+	 * @see primerDesign.dsc.indexStructures.esa.EnhancedSuffixArray#getCharacter(long)
+	 */
+	@Override
+	protected char getCharacter(long i){
+		return (char) (this.text.getQuick(i) & 0xFF);
+	}
+	
+	/**
+	 * Returns the memory mapped sequence of this index.
+	 * 
+	 * @return the memory mapped sequence of this index
+	 */
+	protected SegmentedMemoryMappedByteFile getText(){
+		return this.text;
+	}
+	
 	/* (non-Javadoc)
 	 * @see primerDesign.Test.esa.EnhancedSuffixArray#createIndex(int, boolean)
 	 */
 	@Override
 	public void createIndex() {
 		try{
-			this.suftab = new MemoryMappedIntFile(new File(path + "_" + transformName(getName()) + "_suftab") , (sequenceLength+1));
-			this.lcptab = new MemoryMappedIntFile(new File(path + "_" + transformName(getName()) + "_lcptab") , (sequenceLength+1));
-			this.childtab = new MemoryMappedIntFile(new File(path + "_" + transformName(getName()) + "_childtab") , (sequenceLength+1));
+			this.suftab = new SegmentedMemoryMappedLongFile(new File(path + "_" + transformName(getName()) + "_suftab") , (sequenceLength+1), sequenceLength);
+			this.lcptab = new CompactLcpTable(new File(path + "_" + transformName(getName()) + "_lcptab") , (sequenceLength+1));
+			this.childtab = new SegmentedMemoryMappedLongFile(new File(path + "_" + transformName(getName()) + "_childtab") , (sequenceLength+1), sequenceLength);
 		}
 		catch(IOException e){
 			e.printStackTrace();
 		}
 		
-		for(int i=0; i< sequenceLength; i++){
-			setSufTab(i, i);
-		}
-		this.suftab.put(sequenceLength, Integer.MAX_VALUE);
-		
 		// sort table
 		Runtime runtime = Runtime.getRuntime();
 		NumberFormat format = NumberFormat.getInstance();
@@ -119,33 +228,15 @@ public class EnhancedSuffixArrayFatOptMemoryMapped extends EnhancedSuffixArray {
 			System.gc();
 			System.out.print("Before sort: " + format.format(runtime.totalMemory()-runtime.freeMemory()));
 		}
-		{
-			int[] sa;
-			{
-				KoAluruSuffixSort sorter = new KoAluruSuffixSort();
-				sa = sorter.getSuffixArray(sequence);
-				for(int i=0; i<sa.length; i++) this.suftab.put(i, sa[i]);
-			}
-			//quicksortSuffices(0, sequenceLength-1);
-			if(printStatus){
-				System.out.println(" - sorted in " + timer.getTimeString());
-				System.gc();
-				System.out.print("Before LCP Table: " + format.format(runtime.totalMemory()-runtime.freeMemory()));
-			}
-			{
-				int[] lcp = LinearTimeLCP.getLCP(sequence, sa);
-				for(int i=0; i<lcp.length; i++) this.lcptab.put(i, lcp[i]);
-			}
-			//computeLCPTable();
+		try{
+			// the suffix array, the lcp table and the child table are written directly into their memory mapped files
+			this.construction.createTables(this.text, this.suftab, this.lcptab, this.childtab, path + "_" + transformName(getName()));
 		}
-		if(printStatus){
-			System.out.println(" - lcp table computed in " + timer.getTimeString());
-			System.gc();
-			System.out.print("Before child table: " + format.format(runtime.totalMemory()-runtime.freeMemory()));
+		catch(IOException e){
+			e.printStackTrace();
 		}
-		computeChildTable();
 		if(printStatus){
-			System.out.println(" - child table computed in " + timer.getTimeString());
+			System.out.println(" - suffix array, lcp table and child table computed in " + timer.getTimeString());
 			System.gc();
 			System.out.print("Before bucket table: " + format.format(runtime.totalMemory()-runtime.freeMemory()));
 		}
@@ -162,7 +253,7 @@ public class EnhancedSuffixArrayFatOptMemoryMapped extends EnhancedSuffixArray {
 	 */
 	@Override
 	protected void initChildTable() {
-		for(int i=0; i<this.childtab.length(); i++) this.childtab.put(i, Integer.MIN_VALUE);
+		for(long i=0; i<this.childtab.length(); i++) this.childtab.put(i, UNDEFINED);
 	}
 	
 	/* (non-Javadoc)
@@ -170,14 +261,14 @@ public class EnhancedSuffixArrayFatOptMemoryMapped extends EnhancedSuffixArray {
 	 */
 	@Override
 	protected void initLcpTab(){
-		for(int i=0; i<this.lcptab.length(); i++) this.lcptab.put(i, Integer.MIN_VALUE);
+		this.lcptab.clear();
 	}
 	
 	/* (non-Javadoc)
 	 * @see primerDesign.Test.esa.EnhancedSuffixArray#containsUpIndex(int)
 	 */
 	@Override
-	protected boolean containsUpIndex(int i) {
+	protected boolean containsUpIndex(long i) {
 		assert(i>=0 && i<this.childtab.length());
 		if(i == sequenceLength) return true;
 		else return getLcpTab(i) > getLcpTab(i+1);
@@ -187,7 +278,7 @@ public class EnhancedSuffixArrayFatOptMemoryMapped extends EnhancedSuffixArray {
 	 * @see primerDesign.Test.esa.EnhancedSuffixArray#containsDownIndex(int)
 	 */
 	@Override
-	protected boolean containsDownIndex(int i) {
+	protected boolean containsDownIndex(long i) {
 		assert(i>=0 && i<this.childtab.length());
 		return getLcpTab(getChildTab(i)) > getLcpTab(i);
 	}
@@ -196,7 +287,7 @@ public class EnhancedSuffixArrayFatOptMemoryMapped extends EnhancedSuffixArray {
 	 * @see primerDesign.Test.esa.EnhancedSuffixArray#containsNextIndex(int)
 	 */
 	@Override
-	protected boolean containsNextIndex(int i) {
+	protected boolean containsNextIndex(long i) {
 		assert(i>=0 && i<this.childtab.length());
 		//return getChildTab(i) != Integer.MIN_VALUE && getLcpTab(getChildTab(i)) == getLcpTab(i);
 		return i != sequenceLength - 1 && getChildTab(i) != Integer.MIN_VALUE && getLcpTab(getChildTab(i)) == getLcpTab(i) && getChildTab(i) > i;
@@ -206,16 +297,18 @@ public class EnhancedSuffixArrayFatOptMemoryMapped extends EnhancedSuffixArray {
 	 * @see primerDesign.Test.esa.EnhancedSuffixArray#getChildTab(int)
 	 */
 	@Override
-	protected int getChildTab(int i) {
+	protected long getChildTab(long i) {
 		assert(i>=0 && i<this.childtab.length());
-		return this.childtab.get(i); 
+		// an undefined entry is stored as UNDEFINED, which fits the compact table, and returned as Integer.MIN_VALUE like in the other implementations
+		long value = this.childtab.get(i);
+		return (value == UNDEFINED) ? Integer.MIN_VALUE : value; 
 	}
 
 	/* (non-Javadoc)
 	 * @see primerDesign.Test.esa.EnhancedSuffixArray#getChildTabUP(int)
 	 */
 	@Override
-	protected int getChildTabUP(int i) {
+	protected long getChildTabUP(long i) {
 		assert containsUpIndex(i-1) : "Child table does not contain an up value for index " + i + "!";
 		return getChildTab(i-1);
 	}
@@ -224,7 +317,7 @@ public class EnhancedSuffixArrayFatOptMemoryMapped extends EnhancedSuffixArray {
 	 * @see primerDesign.Test.esa.EnhancedSuffixArray#getChildTabDown(int)
 	 */
 	@Override
-	protected int getChildTabDown(int i) {
+	protected long getChildTabDown(long i) {
 		assert containsDownIndex(i) : "up?: " + containsUpIndex(i)  + " down?: " + containsDownIndex(i) + " next?: " + containsNextIndex(i) + "\t" + printStatus(i) + "Child table does not contain a down value for index " + i + "!";
 		return getChildTab(i);
 	}
@@ -233,7 +326,7 @@ public class EnhancedSuffixArrayFatOptMemoryMapped extends EnhancedSuffixArray {
 	 * @see primerDesign.Test.esa.EnhancedSuffixArray#getChildTabNext(int)
 	 */
 	@Override
-	protected int getChildTabNext(int i) {
+	protected long getChildTabNext(long i) {
 		assert containsNextIndex(i) : "Child table does not contain a next value for index " + i + "!";
 		return getChildTab(i);
 	}
@@ -242,7 +335,7 @@ public class EnhancedSuffixArrayFatOptMemoryMapped extends EnhancedSuffixArray {
 	 * @see primerDesign.Test.esa.EnhancedSuffixArray#getChildTabLength()
 	 */
 	@Override
-	protected int getChildTabLength() {
+	protected long getChildTabLength() {
 		return this.childtab.length();
 	}
 
@@ -250,7 +343,7 @@ public class EnhancedSuffixArrayFatOptMemoryMapped extends EnhancedSuffixArray {
 	 * @see primerDesign.Test.esa.EnhancedSuffixArray#getLcpTab(int)
 	 */
 	@Override
-	protected int getLcpTab(int i) {
+	protected long getLcpTab(long i) {
 		assert(i>=0 && i<this.lcptab.length());
 		return this.lcptab.get(i);
 	}
@@ -259,7 +352,7 @@ public class EnhancedSuffixArrayFatOptMemoryMapped extends EnhancedSuffixArray {
 	 * @see primerDesign.Test.esa.EnhancedSuffixArray#getLcpTabLength()
 	 */
 	@Override
-	protected int getLcpTabLength() {
+	protected long getLcpTabLength() {
 		return this.lcptab.length();
 	}
 
@@ -267,7 +360,7 @@ public class EnhancedSuffixArrayFatOptMemoryMapped extends EnhancedSuffixArray {
 	 * @see primerDesign.Test.esa.EnhancedSuffixArray#getSufTab(int)
 	 */
 	@Override
-	protected int getSufTab(int i) {
+	protected long getSufTab(long i) {
 		assert(i>=0 && i<this.suftab.length());
 		return this.suftab.get(i);
 	}
@@ -276,7 +369,7 @@ public class EnhancedSuffixArrayFatOptMemoryMapped extends EnhancedSuffixArray {
 	 * @see primerDesign.Test.esa.EnhancedSuffixArray#getSufTabLength()
 	 */
 	@Override
-	protected int getSufTabLength() {
+	protected long getSufTabLength() {
 		return this.suftab.length();
 	}
 
@@ -284,7 +377,7 @@ public class EnhancedSuffixArrayFatOptMemoryMapped extends EnhancedSuffixArray {
 	 * @see primerDesign.Test.esa.EnhancedSuffixArray#setChildTab(int, int)
 	 */
 	@Override
-	protected void setChildTab(int i, int j) {
+	protected void setChildTab(long i, long j) {
 		assert i>=0 && i<this.suftab.length() && j>=0 && j<this.suftab.length() : "i and j must be in interval [0,sequenceLength]";
 		this.childtab.put(i, j);
 	}
@@ -293,35 +386,59 @@ public class EnhancedSuffixArrayFatOptMemoryMapped extends EnhancedSuffixArray {
 	 * @see primerDesign.Test.esa.EnhancedSuffixArray#setLcpTab(int, int)
 	 */
 	@Override
-	protected void setLcpTab(int i, int j) {
+	protected void setLcpTab(long i, long j) {
 		assert(i>=0 && j>=0 && i<this.lcptab.length() && j<=this.sequenceLength);
-		this.lcptab.put(i, j);
+		this.lcptab.set(i, j);
 	}
 
 	/* (non-Javadoc)
 	 * @see primerDesign.Test.esa.EnhancedSuffixArray#setSufTab(int, int)
 	 */
 	@Override
-	protected void setSufTab(int i, int j) {
+	protected void setSufTab(long i, long j) {
 		assert(i>=0 && j>=0 && i<this.suftab.length() && j<this.suftab.length());
 		this.suftab.put(i, j);
 	}
 	
-	private String printStatus(int i){
+	/* (non-Javadoc)
+	 * @see primerDesign.dsc.indexStructures.esa.EnhancedSuffixArray#getSequence()
+	 */
+	@Override
+	public String getSequence(){
+		if(this.sequenceLength > Integer.MAX_VALUE) throw new IllegalStateException("The sequence of this index exceeds the maximum size of a string!");
+		return getSubstring(0);
+	}
+	
+	/* (non-Javadoc)
+	 * @see primerDesign.dsc.indexStructures.esa.EnhancedSuffixArray#getContig()
+	 */
+	@Override
+	public SimpleContigImpl[] getContig(){
+		if(this.sequenceLength > Integer.MAX_VALUE) throw new IllegalStateException("The sequence of this index exceeds the maximum size of a contig!");
+		return new SimpleContigImpl[]{new MappedContigView(getName(), this.text, 0, (int) this.sequenceLength)};
+	}
+	
+	private String printStatus(long i){
 		return getChildTab(i) + "\t" + getLcpTab(getChildTab(i)) + "\t" + printSuffices(i-1, getChildTab(i) + 1, 15);
 	}
 	
-	private String printSuffices(int from, int to, int length){
+	private String printSuffices(long from, long to, int length){
 		StringBuffer buffer = new StringBuffer();
 		buffer.append("\n");
-		for(int i=from; i<=to; i++){
-			buffer.append(this.getSequence().substring(getSufTab(i), getSufTab(i) + length) + "\n");
+		for(long i=from; i<=to; i++){
+			for(long k=getSufTab(i); k<Math.min(getSufTab(i) + length, sequenceLength); k++) buffer.append(getCharacter(k));
+			buffer.append("\n");
 		}
 		return buffer.toString();
 	}
 	
-	private static int getMaxContigSize(){
-		return EnhancedSuffixArrayFatOptMemoryMapped.MAX_CONTIG_SIZE;
+	/**
+	 * Returns the default construction of the suffix array, the lcp table and the child table, using all available processors and a quarter of the maximum heap memory.
+	 * 
+	 * @return the default construction of the suffix array, the lcp table and the child table
+	 */
+	static ParallelESAConstruction getDefaultConstruction(){
+		return new ParallelESAConstruction(Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().maxMemory() / 4);
 	}
 	
 	public static EnhancedSuffixArrayFatOptMemoryMapped deserialize(String filename){
@@ -345,6 +462,65 @@ public class EnhancedSuffixArrayFatOptMemoryMapped extends EnhancedSuffixArray {
 		return name.replaceAll("[ /]", "_");
 	}
 	
+	/**
+	 * The IDs and the lengths of a set of contigs.
+	 */
+	static class ContigLengths {
+		final String[] ids;
+		final int[] lengths;
+		
+		ContigLengths(String[] ids, int[] lengths){
+			if(ids.length < 1) throw new IllegalArgumentException("The index must contain at least one contig!");
+			for(int i=0; i<ids.length; i++){
+				if(lengths[i] < 1) throw new IllegalArgumentException("Illegal sequence for index creation: " + ids[i]);
+			}
+			this.ids = ids;
+			this.lengths = lengths;
+		}
+		
+		/**
+		 * Reads the IDs and the lengths of the first contigs of a (multi-)fasta file, without storing their sequences.
+		 * 
+		 * @param file the file to read
+		 * @param maxContigs the max number of contigs to read
+		 * 
+		 * @return the IDs and the lengths of the first 'maxContigs' contigs of 'file'
+		 * 
+		 * @throws IOException
+		 */
+		static ContigLengths read(File file, int maxContigs) throws IOException{
+			SlimFastaParser parser = new SlimFastaParser(file);
+			ArrayList<String> ids = new ArrayList<String>();
+			IntArrayList lengths = new IntArrayList();
+			final long[] length = new long[1];
+			SlimFastaParser.SequenceHandler counter = new SlimFastaParser.SequenceHandler(){
+				public void append(String sequence){
+					length[0] += sequence.length();
+				}
+			};
+			while(ids.size() < maxContigs && parser.hasNextContig()){
+				length[0] = 0;
+				ids.add(parser.readNextContigIgnoreCase(counter));
+				// the contigs of an index are addressed by int positions
+				if(length[0] > Integer.MAX_VALUE) throw new IllegalArgumentException("The contig exceeds the maximum size of a contig: " + ids.get(ids.size() - 1));
+				lengths.add((int) length[0]);
+			}
+			lengths.trimToSize();
+			return new ContigLengths(ids.toArray(new String[ids.size()]), lengths.elements());
+		}
+		
+		/**
+		 * Returns the length of the concatenated contigs, including one separator between each two contigs.
+		 * 
+		 * @return the length of the concatenated contigs
+		 */
+		long getConcatenatedLength(){
+			long result = this.ids.length - 1;
+			for(int length : this.lengths) result += length;
+			return result;
+		}
+	}
+	
 //	public void exchangePath(String newPath){
 //		this.childtab.exchangePath(newPath);
 //		this.lcptab.exchangePath(newPath);
@@ -11,14 +11,13 @@ import java.text.NumberFormat;
 import java.util.Arrays;
 
 import primerDesign.util.SimpleTimer;
-import cern.colt.map.OpenIntIntHashMap;
 
 /**
  * This class implements the enhanced suffix array as proposed by Kurtz et.al. 2004 using byte tables (memory usage: ~14n).
  * 
  * Reference: Abouelhoda, Kurtz, Ohlebusch: Replacing suffix trees with enhanced suffix arrays. J. Discr. Algor. 2 (2004) p.53-86
  * 
- * For increased memory performance, the tables 'lcptab' and 'childtab' store byte values and therefore have to recompute some values!
+ * For increased memory performance, the tables 'lcptab' and 'childtab' store byte values, 'childtab' therefore has to recompute some values!
  * 
  * @author Sebastian Frhler
  *
@@ -30,9 +29,8 @@ public class EnhancedSuffixArrayIntOptRecomp extends EnhancedSuffixArray{
 	 */
 	private static final long serialVersionUID = 1L;
 	private int[] suftab;
-	private byte[] lcptab;
+	private CompactLcpTable lcptab;
 	private byte[] childtab;
-	private OpenIntIntHashMap lcpmap;  // a table to lookup clipping lcp values
 
 	/**
 	 * Initializes an enhanced suffix array.
@@ -70,16 +68,14 @@ public class EnhancedSuffixArrayIntOptRecomp extends EnhancedSuffixArray{
 	 */
 	@Override
 	public void createIndex() {
-		this.suftab = new int[sequenceLength+1];
-		this.lcptab = new byte[sequenceLength+1];
-		//this.lcpmap = new IntArrayList();
-		this.lcpmap = new OpenIntIntHashMap();
-		this.childtab = new byte[sequenceLength+1];
+		this.suftab = new int[(int) sequenceLength+1];
+		this.lcptab = new CompactLcpTable(sequenceLength+1);
+		this.childtab = new byte[(int) sequenceLength+1];
 		
 		for(int i=0; i< sequenceLength; i++){
 			this.suftab[i] = i;
 		}
-		this.suftab[sequenceLength] = Integer.MAX_VALUE;
+		this.suftab[(int) sequenceLength] = Integer.MAX_VALUE;
 		// sort table
 		Runtime runtime = Runtime.getRuntime();
 		NumberFormat format = NumberFormat.getInstance();
@@ -121,11 +117,11 @@ public class EnhancedSuffixArrayIntOptRecomp extends EnhancedSuffixArray{
 	 * 
 	 * @return the up value at position 'i'
 	 */
-	private int recompChildTabUp(int i){
-		int candidate = -1;
-		int min = Integer.MAX_VALUE;
-		int reference = getLcpTab(i);
-		for(int j=i-1; j>=0; j--){
+	private long recompChildTabUp(long i){
+		long candidate = -1;
+		long min = Long.MAX_VALUE;
+		long reference = getLcpTab(i);
+		for(long j=i-1; j>=0; j--){
 			min = Math.min(min, getLcpTab(j));
 			if(getLcpTab(j) > reference && min >= getLcpTab(j)) candidate = j;
 			else if(getLcpTab(j) <= reference) break;
@@ -140,11 +136,11 @@ public class EnhancedSuffixArrayIntOptRecomp extends EnhancedSuffixArray{
 	 * 
 	 * @return the down value at position 'i'
 	 */
-	private int recompChildTabDown(int i){
-		int candidate = -1;
-		int min = Integer.MAX_VALUE;
-		int reference = getLcpTab(i);
-		for(int j=i+1; j<=sequenceLength; j++){
+	private long recompChildTabDown(long i){
+		long candidate = -1;
+		long min = Long.MAX_VALUE;
+		long reference = getLcpTab(i);
+		for(long j=i+1; j<=sequenceLength; j++){
 			if(getLcpTab(j) > reference && min > getLcpTab(j)) candidate = j;
 			else if(getLcpTab(j) <= reference) break;
 			min = Math.min(min, getLcpTab(j));
@@ -159,11 +155,11 @@ public class EnhancedSuffixArrayIntOptRecomp extends EnhancedSuffixArray{
 	 * 
 	 * @return the next value at position 'i'
 	 */
-	private int recompChildTabNext(int i){
-		int candidate = -1;
-		int min = Integer.MAX_VALUE;
-		int reference = getLcpTab(i);
-		for(int j=i+1; j<=sequenceLength; j++){
+	private long recompChildTabNext(long i){
+		long candidate = -1;
+		long min = Long.MAX_VALUE;
+		long reference = getLcpTab(i);
+		for(long j=i+1; j<=sequenceLength; j++){
 			if(getLcpTab(j) == reference && min > reference) candidate = j;
 			else if(getLcpTab(j) < reference) break;
 			min = Math.min(min, getLcpTab(j));
@@ -175,7 +171,7 @@ public class EnhancedSuffixArrayIntOptRecomp extends EnhancedSuffixArray{
 	 * @see primerDesign.Test.esa.EnhancedSuffixArray#containsDownIndex(int)
 	 */
 	@Override
-	protected boolean containsDownIndex(int i) {
+	protected boolean containsDownIndex(long i) {
 		assert(i>=0 && i<this.childtab.length);
 		return getChildTab(i) < Byte.MAX_VALUE && getChildTab(i) != -1 ? getLcpTab(getChildTab(i)) > getLcpTab(i) : recompChildTabDown(i) != -1;
 	}
@@ -184,7 +180,7 @@ public class EnhancedSuffixArrayIntOptRecomp extends EnhancedSuffixArray{
 	 * @see primerDesign.Test.esa.EnhancedSuffixArray#containsNextIndex(int)
 	 */
 	@Override
-	protected boolean containsNextIndex(int i) {
+	protected boolean containsNextIndex(long i) {
 		assert(i>=0 && i<this.childtab.length);
 		return i != sequenceLength - 1 && getChildTab(i) < Byte.MAX_VALUE && getChildTab(i) != -1 ? getLcpTab(getChildTab(i)) == getLcpTab(i) && getChildTab(i) > i : recompChildTabNext(i) != -1 && recompChildTabNext(i) > i; // if no child value can be found during ChildTabNext-recomputation, value '-1' is returned to signal this
 	}
@@ -193,7 +189,7 @@ public class EnhancedSuffixArrayIntOptRecomp extends EnhancedSuffixArray{
 	 * @see primerDesign.Test.esa.EnhancedSuffixArray#containsUpIndex(int)
 	 */
 	@Override
-	protected boolean containsUpIndex(int i) {
+	protected boolean containsUpIndex(long i) {
 		assert(i>=0 && i<this.childtab.length);
 		if(i == sequenceLength) return true;
 		else return getLcpTab(i) > getLcpTab(i+1);
@@ -203,16 +199,16 @@ public class EnhancedSuffixArrayIntOptRecomp extends EnhancedSuffixArray{
 	 * @see primerDesign.Test.esa.EnhancedSuffixArray#getChildTab(int)
 	 */
 	@Override
-	protected int getChildTab(int i) {
+	protected long getChildTab(long i) {
 		assert(i>=0 && i<this.childtab.length);
-		return (this.childtab[i] < Byte.MAX_VALUE) ? this.childtab[i] - Byte.MIN_VALUE + i : -1; 
+		return (this.childtab[(int) i] < Byte.MAX_VALUE) ? this.childtab[(int) i] - Byte.MIN_VALUE + i : -1; 
 	}
 
 	/* (non-Javadoc)
 	 * @see primerDesign.Test.esa.EnhancedSuffixArray#getChildTabDown(int)
 	 */
 	@Override
-	protected int getChildTabDown(int i) {
+	protected long getChildTabDown(long i) {
 		assert containsDownIndex(i) : "Child table does not contain a down value for index " + i + "!";
 		return getChildTab(i) < Byte.MAX_VALUE && getChildTab(i) != -1 ? getChildTab(i) : recompChildTabDown(i);
 	}
@@ -221,7 +217,7 @@ public class EnhancedSuffixArrayIntOptRecomp extends EnhancedSuffixArray{
 	 * @see primerDesign.Test.esa.EnhancedSuffixArray#getChildTabUP(int)
 	 */
 	@Override
-	protected int getChildTabUP(int i) {
+	protected long getChildTabUP(long i) {
 		assert containsUpIndex(i-1) : "Child table does not contain an up value for index " + i + "!";
 		return getChildTab(i-1) < Byte.MAX_VALUE && getChildTab(i-1) != -1 ? getChildTab(i-1) : recompChildTabUp(i);
 	}
@@ -230,7 +226,7 @@ public class EnhancedSuffixArrayIntOptRecomp extends EnhancedSuffixArray{
 	 * @see primerDesign.Test.esa.EnhancedSuffixArray#getChildTabNext(int)
 	 */
 	@Override
-	protected int getChildTabNext(int i) {
+	protected long getChildTabNext(long i) {
 		assert containsNextIndex(i) : "Child table does not contain a next value for index " + i + "!";
 		return getChildTab(i) < Byte.MAX_VALUE && getChildTab(i) != -1 ? getChildTab(i) : recompChildTabNext(i);
 	}
@@ -239,7 +235,7 @@ public class EnhancedSuffixArrayIntOptRecomp extends EnhancedSuffixArray{
 	 * @see primerDesign.Test.esa.EnhancedSuffixArray#getChildTabLength()
 	 */
 	@Override
-	protected int getChildTabLength() {
+	protected long getChildTabLength() {
 		return this.childtab.length;
 	}
 	
@@ -247,15 +243,15 @@ public class EnhancedSuffixArrayIntOptRecomp extends EnhancedSuffixArray{
 	 * @see primerDesign.Test.esa.EnhancedSuffixArray#getLcpTabLength()
 	 */
 	@Override
-	protected int getLcpTabLength() {
-		return this.lcptab.length;
+	protected long getLcpTabLength() {
+		return this.lcptab.length();
 	}
 	
 	/* (non-Javadoc)
 	 * @see primerDesign.Test.esa.EnhancedSuffixArray#getSufTabLength()
 	 */
 	@Override
-	protected int getSufTabLength() {
+	protected long getSufTabLength() {
 		return this.suftab.length;
 	}
 
@@ -263,19 +259,18 @@ public class EnhancedSuffixArrayIntOptRecomp extends EnhancedSuffixArray{
 	 * @see primerDesign.Test.esa.EnhancedSuffixArray#getLcpTab(int)
 	 */
 	@Override
-	protected int getLcpTab(int i) {
-		assert(i>=0 && i<this.lcptab.length);
-		//return (this.lcptab[i] < Byte.MAX_VALUE) ? this.lcptab[i] - Byte.MIN_VALUE : getMap(this.lcpmap, i, 0, this.lcpmap.size()-1);
-		return (this.lcptab[i] < Byte.MAX_VALUE) ? this.lcptab[i] - Byte.MIN_VALUE : this.lcpmap.get(i);
+	protected long getLcpTab(long i) {
+		assert(i>=0 && i<this.lcptab.length());
+		return this.lcptab.get(i);
 	}
 
 	/* (non-Javadoc)
 	 * @see primerDesign.Test.esa.EnhancedSuffixArray#getSufTab(int)
 	 */
 	@Override
-	protected int getSufTab(int i) {
+	protected long getSufTab(long i) {
 		assert(i>=0 && i<this.suftab.length);
-		return this.suftab[i];
+		return this.suftab[(int) i];
 	}
 
 	/* (non-Javadoc)
@@ -287,18 +282,18 @@ public class EnhancedSuffixArrayIntOptRecomp extends EnhancedSuffixArray{
 	}
 	
 	protected void initLcpTab(){
-		Arrays.fill(this.lcptab, Byte.MIN_VALUE);
+		this.lcptab.clear();
 	}
 
 	/* (non-Javadoc)
 	 * @see primerDesign.Test.esa.EnhancedSuffixArray#setChildTab(int, int)
 	 */
 	@Override
-	protected void setChildTab(int i, int j) {
+	protected void setChildTab(long i, long j) {
 		assert i>=0 && i<this.suftab.length && j>=0 && j<this.suftab.length : "i and j must be in interval [0,sequenceLength]";
-		if(j-i + Byte.MIN_VALUE < Byte.MAX_VALUE && j-i >= 0) this.childtab[i] = (byte) (j-i+Byte.MIN_VALUE);
+		if(j-i + Byte.MIN_VALUE < Byte.MAX_VALUE && j-i >= 0) this.childtab[(int) i] = (byte) (j-i+Byte.MIN_VALUE);
 		else{
-			this.childtab[i] = Byte.MAX_VALUE;
+			this.childtab[(int) i] = Byte.MAX_VALUE;
 		}
 	}
 
@@ -306,23 +301,18 @@ public class EnhancedSuffixArrayIntOptRecomp extends EnhancedSuffixArray{
 	 * @see primerDesign.Test.esa.EnhancedSuffixArray#setLcpTab(int, int)
 	 */
 	@Override
-	protected void setLcpTab(int i, int j) {
-		assert(i>=0 && j>=0 && i<this.lcptab.length && j<=this.sequenceLength);
-		if(j + Byte.MIN_VALUE < Byte.MAX_VALUE) this.lcptab[i] = (byte) (j + Byte.MIN_VALUE);
-		else{
-			this.lcptab[i] = Byte.MAX_VALUE;
-			//putLcpMap(i, j);  // since computeLCPTable calls setLcpTable only one per index i, no 'contains' lookup needs to be done in lcpmap!!
-			this.lcpmap.put(i, j);
-		}
+	protected void setLcpTab(long i, long j) {
+		assert(i>=0 && j>=0 && i<this.lcptab.length() && j<=this.sequenceLength);
+		this.lcptab.set(i, j);
 	}
 
 	/* (non-Javadoc)
 	 * @see primerDesign.Test.esa.EnhancedSuffixArray#setSufTab(int, int)
 	 */
 	@Override
-	protected void setSufTab(int i, int j) {
+	protected void setSufTab(long i, long j) {
 		assert(i>=0 && j>=0 && i<this.suftab.length && j<this.suftab.length);
-		this.suftab[i] = j;
+		this.suftab[(int) i] = (int) j;
 	}
 	
 	public static EnhancedSuffixArrayIntOptRecomp deserialize(String filename){
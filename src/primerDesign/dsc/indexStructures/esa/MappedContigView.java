@@ -0,0 +1,102 @@
+/**
+ *
+ */
+package primerDesign.dsc.indexStructures.esa;
+
+import java.util.Arrays;
+
+import primerDesign.dsc.nio.SegmentedMemoryMappedByteFile;
+import primerDesign.util.SimpleContig;
+import primerDesign.util.SimpleContigImpl;
+
+/**
+ * A contig of a memory mapped index, viewing its range of the memory mapped text of the index.
+ *
+ * The contig sequence is copied only if it is requested as a whole, subsequences are read from the memory mapped text.
+ *
+ * @author Sebastian Frhler
+ *
+ */
+class MappedContigView extends SimpleContigImpl {
+	private static final long serialVersionUID = 1L;
+	private final SegmentedMemoryMappedByteFile text;
+	private final long start;
+	private final int length;
+
+	/**
+	 * Initializes a view of a contig in a memory mapped text.
+	 *
+	 * @param id the ID of the contig
+	 * @param text the memory mapped text containing the contig
+	 * @param start the position of the first character of the contig in 'text'
+	 * @param length the length of the contig
+	 */
+	MappedContigView(String id, SegmentedMemoryMappedByteFile text, long start, int length){
+		super(id);
+		this.text = text;
+		this.start = start;
+		this.length = length;
+	}
+
+	/* (non-Javadoc)
+	 * @see primerDesign.util.SimpleContigImpl#getSequence()
+	 */
+	@Override
+	public char[] getSequence(){
+		char[] result = new char[this.length];
+		for(int i=0; i<this.length; i++) result[i] = (char) (this.text.getQuick(this.start + i) & 0xFF);
+		return result;
+	}
+
+	/* (non-Javadoc)
+	 * @see primerDesign.util.SimpleContigImpl#setSequence(char[])
+	 */
+	@Override
+	public void setSequence(char[] sequence){
+		throw new UnsupportedOperationException("The contigs of an index are immutable!");
+	}
+
+	/* (non-Javadoc)
+	 * @see primerDesign.util.SimpleContigImpl#getSubsequence(int, int)
+	 */
+	@Override
+	public String getSubsequence(int start, int end){
+		if(start < 0 || end > this.length || start > end) throw new IndexOutOfBoundsException("Illegal subsequence: " + start + "-" + end);
+		char[] result = new char[end - start];
+		for(int i=start; i<end; i++) result[i - start] = (char) (this.text.getQuick(this.start + i) & 0xFF);
+		return new String(result);
+	}
+
+	/* (non-Javadoc)
+	 * @see primerDesign.util.SimpleContigImpl#getSequenceLength()
+	 */
+	@Override
+	public int getSequenceLength(){
+		return this.length;
+	}
+
+	/* (non-Javadoc)
+	 * @see primerDesign.util.SimpleContigImpl#toFastaString()
+	 */
+	@Override
+	public String toFastaString(){
+		return ">" + this.getID() + "\n" + this.getSubsequence(0, this.length) + "\n";
+	}
+
+	/* (non-Javadoc)
+	 * @see primerDesign.util.SimpleContigImpl#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(Object o){
+		SimpleContig other = (SimpleContig) o;
+		return this.getID().equals(other.getID()) && Arrays.equals(this.getSequence(), other.getSequence());
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode(){
+		return this.getID().hashCode();
+	}
+}
@@ -9,6 +9,7 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.Serializable;
 
+import primerDesign.algo.ESAConstruction;
 import primerDesign.dsc.indexStructures.DNASequenceIndex;
 import primerDesign.dsc.indexStructures.MultiSeqIndex;
 import primerDesign.util.SeqTools;
@@ -27,9 +28,21 @@ public class MultiSeqMemoryMappedESAIndex extends MultiSeqIndex implements Seria
 	
 	private static final long serialVersionUID = 1L;
 	private static boolean printStatus = true;
+	private transient ESAConstruction construction; // computes the suffix array, the lcp table and the child table of each contig
 	
 	public MultiSeqMemoryMappedESAIndex(File file){
+		this(file, EnhancedSuffixArrayFatOptMemoryMapped.getDefaultConstruction());
+	}
+	
+	/**
+	 * Initializes a multi sequence index of memory mapped enhanced suffix arrays.
+	 * 
+	 * @param file the file containing the contig(s) to create the index on
+	 * @param construction the construction of the suffix array, the lcp table and the child table of each contig
+	 */
+	public MultiSeqMemoryMappedESAIndex(File file, ESAConstruction construction){
 		super(file);
+		this.construction = construction;
 	}
 
 	/**
@@ -44,7 +57,7 @@ public class MultiSeqMemoryMappedESAIndex extends MultiSeqIndex implements Seria
 			
 			while(parser.hasNextContig()){
 				currentContig = parser.parseNextContigIgnoreCase();
-				currentIndex = new EnhancedSuffixArrayFatOptMemoryMapped(currentContig.getSequence(), currentContig.getID().replaceAll("[ \t]+", "_"), this.fastaFile.getAbsolutePath());
+				currentIndex = new EnhancedSuffixArrayFatOptMemoryMapped(currentContig.getSequence(), currentContig.getID().replaceAll("[ \t]+", "_"), this.fastaFile.getAbsolutePath(), this.construction);
 				currentIndex.createIndex();
 				super.putIndex(currentContig.getID(), currentIndex);
 				
@@ -27,7 +27,7 @@ import cern.colt.list.ObjectArrayList;
  * @author Sebastian Frhler
  *
  */
-public class Blat3CPrimerMisprimingScan implements PrimerMisprimingCheck, Serializable{
+public class Blat3CPrimerMisprimingScan implements ThreePrimeEndMisprimingCheck, Serializable{
 	
 	private static final long serialVersionUID = 1L;
 	private BLATQueryClient client;
@@ -58,12 +58,24 @@ public class Blat3CPrimerMisprimingScan implements PrimerMisprimingCheck, Serial
 	 */
 	@Override
 	public boolean hasMisprimings(Primer primer){
-		boolean result = false;
+		return this.hasMisprimings(primer, this.findThreePrimeEndHits(primer.getSubsequence(Math.max(0, primer.getSequenceLength() - this.scanLength))));
+	}
+	
+	/* (non-Javadoc)
+	 * @see primerDesign.dsc.indexStructures.primerMisprimingCheck.ThreePrimeEndMisprimingCheck#getThreePrimeEndLength()
+	 */
+	@Override
+	public int getThreePrimeEndLength(){
+		return this.scanLength;
+	}
+	
+	/* (non-Javadoc)
+	 * @see primerDesign.dsc.indexStructures.primerMisprimingCheck.ThreePrimeEndMisprimingCheck#findThreePrimeEndHits(java.lang.String)
+	 */
+	@Override
+	public ObjectArrayList findThreePrimeEndHits(String threePrimeEnd){
 		try{
-			ObjectArrayList hits = this.client.getPrimings("Primer", primer.getSubsequence(Math.max(0, primer.getSequenceLength() - this.scanLength)));
-			if(hits.size() > 1){
-				result = MisprimingVerifier.hasUnsafeMisprimings(hits, this.index, this.params);
-			}
+			return this.client.getPrimings("Primer", threePrimeEnd);
 		}catch(IOException e){
 			e.printStackTrace();
 			//System.exit(1);
@@ -71,7 +83,24 @@ public class Blat3CPrimerMisprimingScan implements PrimerMisprimingCheck, Serial
 			e.printStackTrace();
 			//System.exit(1);
 		}
-		return result;
+		return new ObjectArrayList();
+	}
+	
+	/* (non-Javadoc)
+	 * @see primerDesign.dsc.indexStructures.primerMisprimingCheck.ThreePrimeEndMisprimingCheck#mayHaveMisprimings(cern.colt.list.ObjectArrayList)
+	 */
+	@Override
+	public boolean mayHaveMisprimings(ObjectArrayList hits){
+		return hits.size() > 1;
+	}
+	
+	/* (non-Javadoc)
+	 * @see primerDesign.dsc.indexStructures.primerMisprimingCheck.ThreePrimeEndMisprimingCheck#hasMisprimings(primerDesign.dsc.Primer, cern.colt.list.ObjectArrayList)
+	 */
+	@Override
+	public boolean hasMisprimings(Primer primer, ObjectArrayList hits){
+		if(this.mayHaveMisprimings(hits)) return MisprimingVerifier.hasUnsafeMisprimings(hits, this.index, this.params);
+		else return false;
 	}
 
 	/* (non-Javadoc)
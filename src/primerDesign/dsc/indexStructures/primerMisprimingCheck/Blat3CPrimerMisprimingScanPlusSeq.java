@@ -5,8 +5,10 @@ package primerDesign.dsc.indexStructures.primerMisprimingCheck;
 
 import java.io.IOException;
 
+
 import primerDesign.algo.PrimerMispriming;
 import primerDesign.dsc.Primer;
+import primerDesign.dsc.RestrictionSitePositions;
 import primerDesign.dsc.indexStructures.IndexHitImpl;
 import primerDesign.dsc.indexStructures.blat.BLATQueryClient;
 import primerDesign.util.PrimerSearchParameters;
@@ -17,7 +19,7 @@ import cern.colt.list.ObjectArrayList;
 /**
  * Implements a mispriming scan for a primer in a BLAT-based index using sequence information instead of a restriction site index.
  * 
- * @author Sebastian Fr�hler
+ * @author Sebastian Frhler
  *
  */
 public class Blat3CPrimerMisprimingScanPlusSeq implements PrimerMisprimingCheck{
@@ -27,6 +29,7 @@ public class Blat3CPrimerMisprimingScanPlusSeq implements PrimerMisprimingCheck{
 	private PrimerSearchParameters params;
 	private int scanLength;
 	private boolean debug = true;
+	private final RestrictionSitePositions.Cache sitePositions = new RestrictionSitePositions.Cache();
 	
 	/**
 	 * Initilizes a mispriming scan.
@@ -84,7 +87,7 @@ public class Blat3CPrimerMisprimingScanPlusSeq implements PrimerMisprimingCheck{
 			// screen if primings are unsafe
 			if(hits.size() <= 1) return false;
 			else{
-				if(PrimerMispriming.hasSafeDistanceToNextRSS(primer, this.params.getEnzyme(), hits, this.params)) return false;
+				if(PrimerMispriming.hasSafeDistanceToNextRSS(primer, this.sitePositions.get(this.params.getEnzyme()), hits, this.params)) return false;
 				else return true;
 			}
 		}catch(IOException e){
@@ -13,6 +13,7 @@ import org.biojava.bio.symbol.IllegalSymbolException;
 import primerDesign.algo.PrimerMispriming;
 import primerDesign.dsc.Primer;
 import primerDesign.dsc.PrimerTypes;
+import primerDesign.dsc.RestrictionSitePositions;
 import primerDesign.dsc.indexStructures.DNASequenceIndex;
 import primerDesign.dsc.indexStructures.DNASequenceIndexDeserializer;
 import primerDesign.util.PrimerSearchParameters;
@@ -26,12 +27,13 @@ import cern.colt.list.ObjectArrayList;
  * @author Sebastian Frhler
  *
  */
-public class ESA3CPrimerMisprimingScan implements PrimerMisprimingCheck, Serializable {
+public class ESA3CPrimerMisprimingScan implements ThreePrimeEndMisprimingCheck, Serializable {
 
 	private static final long serialVersionUID = 1L;
 	private DNASequenceIndex index;
 	private PrimerSearchParameters params;
 	private RestrictionEnzyme enzyme;
+	private final RestrictionSitePositions.Cache sitePositions = new RestrictionSitePositions.Cache();
 	
 	/**
 	 * Initializes a new mispriming scan.
@@ -60,10 +62,41 @@ public class ESA3CPrimerMisprimingScan implements PrimerMisprimingCheck, Seriali
 	 */
 	@Override
 	public boolean hasMisprimings(Primer primer) {
-		ObjectArrayList hits = this.index.findHitPositions(primer.getSequence().substring(primer.getLength()  - this.params.getPRIMER_END_MISMATCH_SCAN_LENGTH()));
-		if(hits.size() <= 1) return false;
+		return this.hasMisprimings(primer, this.findThreePrimeEndHits(primer.getSequence().substring(primer.getLength()  - this.params.getPRIMER_END_MISMATCH_SCAN_LENGTH())));
+	}
+	
+	/* (non-Javadoc)
+	 * @see primerDesign.dsc.indexStructures.primerMisprimingCheck.ThreePrimeEndMisprimingCheck#getThreePrimeEndLength()
+	 */
+	@Override
+	public int getThreePrimeEndLength() {
+		return this.params.getPRIMER_END_MISMATCH_SCAN_LENGTH();
+	}
+	
+	/* (non-Javadoc)
+	 * @see primerDesign.dsc.indexStructures.primerMisprimingCheck.ThreePrimeEndMisprimingCheck#findThreePrimeEndHits(java.lang.String)
+	 */
+	@Override
+	public ObjectArrayList findThreePrimeEndHits(String threePrimeEnd) {
+		return this.index.findHitPositions(threePrimeEnd);
+	}
+	
+	/* (non-Javadoc)
+	 * @see primerDesign.dsc.indexStructures.primerMisprimingCheck.ThreePrimeEndMisprimingCheck#mayHaveMisprimings(cern.colt.list.ObjectArrayList)
+	 */
+	@Override
+	public boolean mayHaveMisprimings(ObjectArrayList hits) {
+		return hits.size() > 1;
+	}
+	
+	/* (non-Javadoc)
+	 * @see primerDesign.dsc.indexStructures.primerMisprimingCheck.ThreePrimeEndMisprimingCheck#hasMisprimings(primerDesign.dsc.Primer, cern.colt.list.ObjectArrayList)
+	 */
+	@Override
+	public boolean hasMisprimings(Primer primer, ObjectArrayList hits) {
+		if(!this.mayHaveMisprimings(hits)) return false;
 		else{
-			if(PrimerMispriming.hasSafeDistanceToNextRSS(primer, this.enzyme, hits, this.params)) return false;
+			if(PrimerMispriming.hasSafeDistanceToNextRSS(primer, this.sitePositions.get(this.enzyme), hits, this.params)) return false;
 			else return true;
 		}
 	}
@@ -45,7 +45,7 @@ public class PrimerMisprimingCheckDeserializer {
 		else if(filename.endsWith("DummyIndex.esaidx")){
 			checker = new ESA3CPrimerMisprimingScan(DummyIndex.deserialize(new File(filename)), params);
 		}
-		else if(filename.endsWith("RSSIndex.ser")){
+		else if(filename.endsWith("RSSIndex.idx")){
 			//checker = new Blat3CPrimerMisprimingScan(new BLATQueryClient(null, null, null, null), RestrictionSitesIndex.deserialize(filename), params);
 			checker = new Blat3CPrimerMisprimingScan(new BLATQueryClient(params.getValueFromConfigFile("BLAT_gfClient"), params.getValueFromConfigFile("BLAT_host"), params.getValueFromConfigFile("BLAT_PORT_" + params.getTargetOrganism()), params.getValueFromConfigFile("BLAT_SequenceDir")), RestrictionSitesIndex.deserialize(filename), params);
 		}
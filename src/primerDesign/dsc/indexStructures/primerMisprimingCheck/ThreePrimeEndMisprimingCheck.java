@@ -0,0 +1,57 @@
+/**
+ * 
+ */
+package primerDesign.dsc.indexStructures.primerMisprimingCheck;
+
+import primerDesign.dsc.Primer;
+import cern.colt.list.ObjectArrayList;
+
+/**
+ * Specifies a primer mispriming check which only queries the 3' end of a primer in its index.
+ *
+ * All primers of a scan region ending at the same position share the same 3' end, the index hits of this 3' end
+ * can therefore be queried once and reused for all of these primers.
+ *
+ * @author Sebastian Frhler
+ *
+ */
+public interface ThreePrimeEndMisprimingCheck extends PrimerMisprimingCheck {
+
+	/**
+	 * Returns the length of the 3' end of a primer queried in the index.
+	 *
+	 * @return the length of the 3' end of a primer queried in the index
+	 */
+	public int getThreePrimeEndLength();
+
+	/**
+	 * Searches for hits of the 3' end of a primer in the index.
+	 *
+	 * @param threePrimeEnd the 3' end of a primer, its length is getThreePrimeEndLength()
+	 *
+	 * @return a list of all hits of 'threePrimeEnd' in the index
+	 */
+	public ObjectArrayList findThreePrimeEndHits(String threePrimeEnd);
+
+	/**
+	 * Checks whether a primer with the given hits of its 3' end may have misprimings at all.
+	 *
+	 * Iff false, hasMisprimings(primer, threePrimeEndHits) returns false for each primer with these 3' end hits
+	 * and the primer does not need to be created for checking.
+	 *
+	 * @param threePrimeEndHits the hits of a 3' end as returned by findThreePrimeEndHits(...)
+	 *
+	 * @return true iff a primer with 3' end hits 'threePrimeEndHits' may have misprimings
+	 */
+	public boolean mayHaveMisprimings(ObjectArrayList threePrimeEndHits);
+
+	/**
+	 * Checks whether a given primer has misprimings, given the hits of its 3' end in the index.
+	 *
+	 * @param primer the primer to check for misprimings
+	 * @param threePrimeEndHits the hits of the 3' end of 'primer' as returned by findThreePrimeEndHits(...), the list is not modified
+	 *
+	 * @return true iff there are more than ONE priming in the given background sequence
+	 */
+	public boolean hasMisprimings(Primer primer, ObjectArrayList threePrimeEndHits);
+}
@@ -0,0 +1,153 @@
+/**
+ *
+ */
+package primerDesign.dsc.nio;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.text.NumberFormat;
+
+/**
+ * Encapsulates a memory mapped file (~'file-based array') to store integers, addressed by long indices.
+ *
+ * A single mapping is limited to Integer.MAX_VALUE bytes, the file is therefore mapped in segments of 2^segmentBits integers each
+ * (2^27 by default), the size of the table is limited by the address space only.
+ *
+ * A new table is mapped READ_WRITE to be filled, a pre-existing or deserialized table is mapped READ_ONLY for querying.
+ *
+ * @author Sebastian Frhler
+ *
+ */
+public class SegmentedMemoryMappedIntFile implements Serializable{
+	private static final long serialVersionUID = 1L;
+	private static NumberFormat format = NumberFormat.getInstance();
+	public static final int DEFAULT_SEGMENT_BITS = 27; // 2^27 integers per mapped segment (512MB)
+	private static final int MAX_SEGMENT_BITS = 28; // the largest segment whose size in bytes does not exceed Integer.MAX_VALUE
+
+	private long capacity;
+	private File filename;
+	private int segmentBits;
+	private transient int segmentMask;
+	private transient IntBuffer[] segments;
+
+	/**
+	 * Initializes a new SegmentedMemoryMappedIntFile of size 'size', mapped READ_WRITE.
+	 *
+	 * @param filename the file to map in memory
+	 * @param size the number of integer values to map
+	 *
+	 * @throws IOException
+	 */
+	public SegmentedMemoryMappedIntFile(File filename, long size) throws IOException{
+		this(filename, size, DEFAULT_SEGMENT_BITS);
+	}
+
+	/**
+	 * Initializes a new SegmentedMemoryMappedIntFile of size 'size' in segments of 2^segmentBits integers, mapped READ_WRITE.
+	 *
+	 * @param filename the file to map in memory
+	 * @param size the number of integer values to map
+	 * @param segmentBits the binary logarithm of the number of integers per mapped segment, in [0,28]
+	 *
+	 * @throws IOException
+	 */
+	public SegmentedMemoryMappedIntFile(File filename, long size, int segmentBits) throws IOException{
+		if(size < 0) throw new IllegalArgumentException("The size of a memory mapped int file must be >= 0!");
+		if(segmentBits < 0 || segmentBits > MAX_SEGMENT_BITS) throw new IllegalArgumentException("The segment bits of a memory mapped int file must be in [0," + MAX_SEGMENT_BITS + "]!");
+		this.capacity = size;
+		this.filename = filename;
+		this.segmentBits = segmentBits;
+		this.map(FileChannel.MapMode.READ_WRITE);
+	}
+
+	/**
+	 * Opens a pre-existing SegmentedMemoryMappedIntFile, mapped READ_ONLY.
+	 *
+	 * @param filename the file to open and map in memory
+	 *
+	 * @throws IOException
+	 */
+	public SegmentedMemoryMappedIntFile(File filename) throws IOException{
+		this.capacity = filename.length() / 4;
+		this.filename = filename;
+		this.segmentBits = DEFAULT_SEGMENT_BITS;
+		this.map(FileChannel.MapMode.READ_ONLY);
+	}
+
+	/**
+	 * Maps the segments of the file.
+	 *
+	 * @param mode the mapping mode
+	 *
+	 * @throws IOException
+	 */
+	private void map(FileChannel.MapMode mode) throws IOException{
+		long segmentSize = 1L << this.segmentBits;
+		this.segmentMask = (int) segmentSize - 1;
+		int numSegments = (int) ((this.capacity + segmentSize - 1) >>> this.segmentBits);
+		this.segments = new IntBuffer[numSegments];
+		RandomAccessFile file = new RandomAccessFile(this.filename, (mode == FileChannel.MapMode.READ_ONLY) ? "r" : "rw");
+		try{
+			FileChannel channel = file.getChannel();
+			long start;
+			for(int i=0; i<numSegments; i++){
+				start = (long) i << this.segmentBits;
+				this.segments[i] = channel.map(mode, start * 4, Math.min(segmentSize, this.capacity - start) * 4).asIntBuffer();
+			}
+		}
+		finally{
+			// the mappings remain valid after the file is closed
+			file.close();
+		}
+	}
+
+	public void put(long index, int value){
+		if(index < 0 || index >= this.capacity) throw new IllegalArgumentException("The max index of this memory mapped int file is " + format.format(this.capacity - 1));
+		this.segments[(int) (index >>> this.segmentBits)].put((int) index & this.segmentMask, value);
+	}
+
+	public void putQuick(long index, int value){
+		this.segments[(int) (index >>> this.segmentBits)].put((int) index & this.segmentMask, value);
+	}
+
+	public int get(long index){
+		if(index < 0 || index >= this.capacity) throw new IllegalArgumentException("The max index of this memory mapped int file is " + format.format(this.capacity - 1));
+		return this.segments[(int) (index >>> this.segmentBits)].get((int) index & this.segmentMask);
+	}
+
+	public int getQuick(long index){
+		return this.segments[(int) (index >>> this.segmentBits)].get((int) index & this.segmentMask);
+	}
+
+	public long length(){
+		return this.capacity;
+	}
+
+	/**
+	 * Returns the binary logarithm of the number of integers per mapped segment.
+	 *
+	 * @return the binary logarithm of the number of integers per mapped segment
+	 */
+	public int getSegmentBits(){
+		return this.segmentBits;
+	}
+
+	/**
+	 * Returns whether this file is mapped READ_ONLY.
+	 *
+	 * @return true iff this file is mapped READ_ONLY
+	 */
+	public boolean isReadOnly(){
+		return this.segments.length > 0 && this.segments[0].isReadOnly();
+	}
+
+	private void readObject(java.io.ObjectInputStream in) throws IOException, ClassNotFoundException{
+		in.defaultReadObject();
+		// a deserialized table is queried only
+		this.map(FileChannel.MapMode.READ_ONLY);
+	}
+}
@@ -0,0 +1,184 @@
+/**
+ *
+ */
+package primerDesign.dsc.nio;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.text.NumberFormat;
+
+/**
+ * Encapsulates a memory mapped file (~'file-based array') to store long values, addressed by long indices.
+ *
+ * The values are stored in 4 bytes each if they do not exceed MAX_COMPACT_VALUE, in 8 bytes each otherwise. The width is fixed when
+ * the table is created from the largest value to store, e.g. the positions of a text of less than 2^32 characters take 4 bytes.
+ * The value -1 is stored as all ones in either width, a compact table therefore stores values in [-1,MAX_COMPACT_VALUE].
+ *
+ * A single mapping is limited to Integer.MAX_VALUE bytes, the file is therefore mapped in segments of 2^segmentBits values each
+ * (2^27 by default), the size of the table is limited by the address space only.
+ *
+ * A new table is mapped READ_WRITE to be filled, a pre-existing or deserialized table is mapped READ_ONLY for querying.
+ *
+ * @author Sebastian Frhler
+ *
+ */
+public class SegmentedMemoryMappedLongFile implements Serializable{
+	private static final long serialVersionUID = 1L;
+	private static NumberFormat format = NumberFormat.getInstance();
+	public static final int DEFAULT_SEGMENT_BITS = 27; // 2^27 values per mapped segment (512MB or 1GB)
+	private static final int MAX_SEGMENT_BITS = 27; // the largest segment whose size in bytes does not exceed Integer.MAX_VALUE for 8 byte values
+	public static final long MAX_COMPACT_VALUE = 0xFFFFFFFEL; // the largest value stored in 4 bytes, all ones encode -1
+
+	private long capacity;
+	private File filename;
+	private int segmentBits;
+	private boolean isCompact; // true iff each value is stored in 4 bytes rather than 8
+	private transient int segmentMask;
+	private transient ByteBuffer[] segments;
+
+	/**
+	 * Initializes a new SegmentedMemoryMappedLongFile of size 'size', mapped READ_WRITE.
+	 *
+	 * @param filename the file to map in memory
+	 * @param size the number of values to map
+	 * @param maxValue the largest value to store
+	 *
+	 * @throws IOException
+	 */
+	public SegmentedMemoryMappedLongFile(File filename, long size, long maxValue) throws IOException{
+		this(filename, size, maxValue, DEFAULT_SEGMENT_BITS);
+	}
+
+	/**
+	 * Initializes a new SegmentedMemoryMappedLongFile of size 'size' in segments of 2^segmentBits values, mapped READ_WRITE.
+	 *
+	 * @param filename the file to map in memory
+	 * @param size the number of values to map
+	 * @param maxValue the largest value to store
+	 * @param segmentBits the binary logarithm of the number of values per mapped segment, in [0,27]
+	 *
+	 * @throws IOException
+	 */
+	public SegmentedMemoryMappedLongFile(File filename, long size, long maxValue, int segmentBits) throws IOException{
+		if(size < 0) throw new IllegalArgumentException("The size of a memory mapped long file must be >= 0!");
+		if(segmentBits < 0 || segmentBits > MAX_SEGMENT_BITS) throw new IllegalArgumentException("The segment bits of a memory mapped long file must be in [0," + MAX_SEGMENT_BITS + "]!");
+		this.capacity = size;
+		this.filename = filename;
+		this.segmentBits = segmentBits;
+		this.isCompact = maxValue <= MAX_COMPACT_VALUE;
+		this.map(FileChannel.MapMode.READ_WRITE);
+	}
+
+	/**
+	 * Opens a pre-existing SegmentedMemoryMappedLongFile, mapped READ_ONLY.
+	 *
+	 * @param filename the file to open and map in memory
+	 * @param isCompact whether the values of the file are stored in 4 bytes rather than 8
+	 *
+	 * @throws IOException
+	 */
+	public SegmentedMemoryMappedLongFile(File filename, boolean isCompact) throws IOException{
+		this.isCompact = isCompact;
+		this.capacity = filename.length() / this.getBytesPerValue();
+		this.filename = filename;
+		this.segmentBits = DEFAULT_SEGMENT_BITS;
+		this.map(FileChannel.MapMode.READ_ONLY);
+	}
+
+	/**
+	 * Maps the segments of the file.
+	 *
+	 * @param mode the mapping mode
+	 *
+	 * @throws IOException
+	 */
+	private void map(FileChannel.MapMode mode) throws IOException{
+		long segmentSize = 1L << this.segmentBits;
+		int bytesPerValue = this.getBytesPerValue();
+		this.segmentMask = (int) segmentSize - 1;
+		int numSegments = (int) ((this.capacity + segmentSize - 1) >>> this.segmentBits);
+		this.segments = new ByteBuffer[numSegments];
+		RandomAccessFile file = new RandomAccessFile(this.filename, (mode == FileChannel.MapMode.READ_ONLY) ? "r" : "rw");
+		try{
+			FileChannel channel = file.getChannel();
+			long start;
+			for(int i=0; i<numSegments; i++){
+				start = (long) i << this.segmentBits;
+				this.segments[i] = channel.map(mode, start * bytesPerValue, Math.min(segmentSize, this.capacity - start) * bytesPerValue);
+			}
+		}
+		finally{
+			// the mappings remain valid after the file is closed
+			file.close();
+		}
+	}
+
+	public void put(long index, long value){
+		if(index < 0 || index >= this.capacity) throw new IllegalArgumentException("The max index of this memory mapped long file is " + format.format(this.capacity - 1));
+		if(value < -1 || (this.isCompact && value > MAX_COMPACT_VALUE)) throw new IllegalArgumentException("The value " + value + " can not be stored in this memory mapped long file!");
+		this.putQuick(index, value);
+	}
+
+	public void putQuick(long index, long value){
+		ByteBuffer segment = this.segments[(int) (index >>> this.segmentBits)];
+		int offset = (int) index & this.segmentMask;
+		if(this.isCompact) segment.putInt(offset << 2, (int) value);
+		else segment.putLong(offset << 3, value);
+	}
+
+	public long get(long index){
+		if(index < 0 || index >= this.capacity) throw new IllegalArgumentException("The max index of this memory mapped long file is " + format.format(this.capacity - 1));
+		return this.getQuick(index);
+	}
+
+	public long getQuick(long index){
+		ByteBuffer segment = this.segments[(int) (index >>> this.segmentBits)];
+		int offset = (int) index & this.segmentMask;
+		if(this.isCompact){
+			int value = segment.getInt(offset << 2);
+			return (value == -1) ? -1 : value & 0xFFFFFFFFL;
+		}
+		else return segment.getLong(offset << 3);
+	}
+
+	public long length(){
+		return this.capacity;
+	}
+
+	/**
+	 * Returns the number of bytes storing each value.
+	 *
+	 * @return the number of bytes storing each value, 4 or 8
+	 */
+	public int getBytesPerValue(){
+		return (this.isCompact) ? 4 : 8;
+	}
+
+	/**
+	 * Returns the binary logarithm of the number of values per mapped segment.
+	 *
+	 * @return the binary logarithm of the number of values per mapped segment
+	 */
+	public int getSegmentBits(){
+		return this.segmentBits;
+	}
+
+	/**
+	 * Returns whether this file is mapped READ_ONLY.
+	 *
+	 * @return true iff this file is mapped READ_ONLY
+	 */
+	public boolean isReadOnly(){
+		return this.segments.length > 0 && this.segments[0].isReadOnly();
+	}
+
+	private void readObject(java.io.ObjectInputStream in) throws IOException, ClassNotFoundException{
+		in.defaultReadObject();
+		// a deserialized table is queried only
+		this.map(FileChannel.MapMode.READ_ONLY);
+	}
+}
@@ -2,19 +2,41 @@ package primerDesign.testSuite;
 
 import junit.framework.Test;
 import junit.framework.TestSuite;
+import primerDesign.testSuite.algo.BranchAndBoundPrimerPairPickingTest;
+import primerDesign.testSuite.algo.ExternalESAConstructionTest;
+import primerDesign.testSuite.algo.GAPrimerPairPickingTest;
 import primerDesign.testSuite.algo.LinearTimeLCPTest;
+import primerDesign.testSuite.algo.ParallelESAConstructionTest;
+import primerDesign.testSuite.algo.PortfolioPrimerPairPickingTest;
 import primerDesign.testSuite.algo.PrimerMisprimingTest;
 import primerDesign.testSuite.algo.PrimerPairSetAlignmentsTest;
 import primerDesign.testSuite.algo.PrimerSearchTest;
+import primerDesign.testSuite.algo.RestrictionSiteScannerTest;
 import primerDesign.testSuite.algo.RestrictionSiteSearchTest;
 import primerDesign.testSuite.algo.SantaLuciaTMTest;
+import primerDesign.testSuite.algo.SequenceFilterAutomatonTest;
 import primerDesign.testSuite.algo.SequenceRegionAlignerTest;
 import primerDesign.testSuite.algo.ShortFragmentExcluderTest;
 import primerDesign.testSuite.algo.SimpleAlignmentTest;
+import primerDesign.testSuite.algo.SimulatedAnnealingPrimerPairPickingTest;
+import primerDesign.testSuite.algo.SlidingWindowPrimerEnumeratorTest;
+import primerDesign.testSuite.dsc.CompactLcpTableTest;
+import primerDesign.testSuite.dsc.ConcatenatedMultiSeqESAIndexTest;
+import primerDesign.testSuite.dsc.ConcatenatedMultiSeqMemoryMappedESAIndexTest;
 import primerDesign.testSuite.dsc.DNASuffixTreeTest;
 import primerDesign.testSuite.dsc.DNASuffixTrieWithPositionsTest;
+import primerDesign.testSuite.dsc.PrimerCandidateTableTest;
+import primerDesign.testSuite.dsc.PrimerPairSetTest;
+import primerDesign.testSuite.dsc.PrimerPairTableTest;
 import primerDesign.testSuite.dsc.PrimerSetTest;
+import primerDesign.testSuite.dsc.RestrictionSitePositionsTest;
+import primerDesign.testSuite.dsc.RestrictionSiteTest;
+import primerDesign.testSuite.dsc.SegmentedMemoryMappedByteFileTest;
+import primerDesign.testSuite.dsc.SegmentedMemoryMappedIntFileTest;
+import primerDesign.testSuite.dsc.SegmentedMemoryMappedLongFileTest;
 import primerDesign.testSuite.dsc.SequenceRegionTest;
+import primerDesign.testSuite.util.ForkJoinPoolsTest;
+import primerDesign.testSuite.util.PackedSequenceCacheTest;
 
 public class AllTests {
 
@@ -23,25 +45,49 @@ public class AllTests {
 		//$JUnit-BEGIN$
 		
 		// algo
+		suite.addTestSuite(BranchAndBoundPrimerPairPickingTest.class);
+		suite.addTestSuite(ExternalESAConstructionTest.class);
+		suite.addTestSuite(GAPrimerPairPickingTest.class);
 		//suite.addTestSuite(KaempkePrimerAlignmentTest.class);
 		suite.addTestSuite(LinearTimeLCPTest.class);
+		suite.addTestSuite(ParallelESAConstructionTest.class);
+		suite.addTestSuite(PortfolioPrimerPairPickingTest.class);
 		suite.addTestSuite(PrimerMisprimingTest.class);
 		suite.addTestSuite(PrimerPairSetAlignmentsTest.class);
 		suite.addTestSuite(PrimerSearchTest.class);
+		suite.addTestSuite(RestrictionSiteScannerTest.class);
 		suite.addTestSuite(RestrictionSiteSearchTest.class);
 		//suite.addTestSuite(RSSDPAlignerTest.class);		
 		suite.addTestSuite(SantaLuciaTMTest.class);
+		suite.addTestSuite(SequenceFilterAutomatonTest.class);
 		suite.addTestSuite(SequenceRegionAlignerTest.class);
 		suite.addTestSuite(ShortFragmentExcluderTest.class);
 		suite.addTestSuite(SimpleAlignmentTest.class);
+		suite.addTestSuite(SimulatedAnnealingPrimerPairPickingTest.class);
+		suite.addTestSuite(SlidingWindowPrimerEnumeratorTest.class);
 		//suite.addTestSuite(SimpleGreedyPrimerPairPickingTest.class);
 		
 		// dsc
+		suite.addTestSuite(CompactLcpTableTest.class);
+		suite.addTestSuite(ConcatenatedMultiSeqESAIndexTest.class);
+		suite.addTestSuite(ConcatenatedMultiSeqMemoryMappedESAIndexTest.class);
 		suite.addTestSuite(DNASuffixTreeTest.class);
 		suite.addTestSuite(DNASuffixTrieWithPositionsTest.class);
+		suite.addTestSuite(PrimerCandidateTableTest.class);
+		suite.addTestSuite(PrimerPairSetTest.class);
+		suite.addTestSuite(PrimerPairTableTest.class);
 		suite.addTestSuite(PrimerSetTest.class);
+		suite.addTestSuite(RestrictionSitePositionsTest.class);
+		suite.addTestSuite(RestrictionSiteTest.class);
+		suite.addTestSuite(SegmentedMemoryMappedByteFileTest.class);
+		suite.addTestSuite(SegmentedMemoryMappedIntFileTest.class);
+		suite.addTestSuite(SegmentedMemoryMappedLongFileTest.class);
 		suite.addTestSuite(SequenceRegionTest.class);
 		
+		// util
+		suite.addTestSuite(ForkJoinPoolsTest.class);
+		suite.addTestSuite(PackedSequenceCacheTest.class);
+		
 		//$JUnit-END$
 		return suite;
 	}
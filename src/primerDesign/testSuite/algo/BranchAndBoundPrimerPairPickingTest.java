@@ -0,0 +1,200 @@
+package primerDesign.testSuite.algo;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.biojava.bio.molbio.RestrictionEnzyme;
+import org.biojava.bio.seq.DNATools;
+import org.biojava.bio.symbol.IllegalAlphabetException;
+import org.biojava.bio.symbol.IllegalSymbolException;
+
+import primerDesign.algo.BranchAndBoundPrimerPairPicking;
+import primerDesign.algo.PrimerPairSetAlignments;
+import primerDesign.dsc.Primer;
+import primerDesign.dsc.PrimerAcceptanceLevel;
+import primerDesign.dsc.PrimerAlignmentScores;
+import primerDesign.dsc.PrimerCandidateTable;
+import primerDesign.dsc.PrimerPair;
+import primerDesign.dsc.PrimerPairSet;
+import primerDesign.dsc.PrimerPairTable;
+import primerDesign.dsc.PrimerTypes;
+import primerDesign.dsc.RestrictionSite;
+import primerDesign.dsc.indexStructures.primerMisprimingCheck.PrimerMisprimingCheck;
+import primerDesign.util.PrimerSearchParameters;
+
+/**
+ * This unit test checks that the branch and bound primer pair picking finds primer pair sets as good as
+ * the ones found by enumerating all primer pair sets of small restriction sites.
+ */
+public class BranchAndBoundPrimerPairPickingTest extends TestCase {
+	private static final int REGION_LENGTH = 80;
+
+	private RestrictionEnzyme enzyme;
+
+	protected void setUp() throws IllegalAlphabetException, IllegalSymbolException {
+		this.enzyme = new RestrictionEnzyme("EcoRI", DNATools.createDNA("gaattc"), 0, 0);
+	}
+
+	public void testPickBestPrimerSet() {
+		int seedsWithSets = 0;
+		for(int seed=0; seed<8; seed++){
+			PrimerSearchParameters params = createParams();
+			RestrictionSite[] sites = createSites(params, new Random(seed), 3);
+			if(check(sites, params) > 1) seedsWithSets++;
+		}
+		assertTrue(seedsWithSets >= 4);
+	}
+
+	public void testPickBestPrimerSetOtherWeights() {
+		int seedsWithSets = 0;
+		for(int seed=0; seed<10; seed++){
+			PrimerSearchParameters params = createParams();
+			params.setPRIMER_PAIR_HOMOGENITY_WEIGHT(5.0);
+			params.setPRIMER_PAIR_DOPT_WEIGHT(0.1);
+			params.setPAIR_ALIGNMENT_WEIGHT(2.0);
+			params.setPAIR_END_ALIGNMENT_WEIGHT(0.0);
+			RestrictionSite[] sites = createSites(params, new Random(100 + seed), 3);
+			if(check(sites, params) > 1) seedsWithSets++;
+		}
+		assertTrue(seedsWithSets >= 4);
+	}
+
+	public void testPickBestPrimerSetFourSites() {
+		PrimerSearchParameters params = createParams();
+		RestrictionSite[] sites = createSites(params, new Random(3), 4);
+		assertTrue(check(sites, params) > 1);
+	}
+
+	/**
+	 * Checks the branch and bound primer pair picking against the enumeration of all primer pair sets.
+	 *
+	 * @return the number of valid primer pair sets
+	 */
+	private static long check(RestrictionSite[] sites, PrimerSearchParameters params){
+		BranchAndBoundPrimerPairPicking picker = new BranchAndBoundPrimerPairPicking();
+		PrimerPairSet picked = picker.pickBestPrimerSet(sites, params);
+		assertTrue(picker.isOptimal());
+
+		BruteForcePicking bruteForce = new BruteForcePicking(sites, params);
+		if(bruteForce.best == null){
+			assertNull(picked);
+			return 0;
+		}
+		assertNotNull(picked);
+		assertEquals(sites.length, picked.size());
+		assertEquals(bruteForce.bestScore, score(picked, params), 1e-9);
+		return bruteForce.sets;
+	}
+
+	private static double score(PrimerPairSet set, PrimerSearchParameters params){
+		return set.getHomogenityScore() * params.getPRIMER_PAIR_HOMOGENITY_WEIGHT() + set.getAvgDistOptPrimerPair() * params.getPRIMER_PAIR_DOPT_WEIGHT()
+			+ ((double) set.getMaxPairAlignScore()) / params.getMAX_PRIMER_PAIR_ALIGNMENT_SCORE() * params.getPAIR_ALIGNMENT_WEIGHT()
+			+ ((double) set.getMaxPairAlignEndScore()) / params.getMAX_PRIMER_PAIR_END_ALIGNMENT_SCORE() * params.getPAIR_END_ALIGNMENT_WEIGHT();
+	}
+
+	private static PrimerSearchParameters createParams(){
+		PrimerSearchParameters params = new PrimerSearchParameters();
+		params.setPRINT_DEBUG_LOG(false);
+		params.setPickTaqManProbe(true);
+		params.setMAX_PRIMER_TM_DIFFERENCE(1.5);
+		params.setPrimerMisprimingCheck(new PrimerMisprimingCheck(){
+			// rejects some primers to cover the lazy mispriming check
+			public boolean hasMisprimings(Primer primer){
+				return primer.getSequence().endsWith("CA");
+			}
+			public void setPrimerSearchParams(PrimerSearchParameters params){}
+		});
+		return params;
+	}
+
+	/**
+	 * Creates restriction sites of a few primers each, melting temperatures on a grid produce primer pairs of equal distance.
+	 */
+	private RestrictionSite[] createSites(PrimerSearchParameters params, Random random, int count){
+		RestrictionSite[] result = new RestrictionSite[count];
+		for(int i=0; i<count; i++){
+			RestrictionSite site = new RestrictionSite(1000 * (i + 1), this.enzyme, params);
+			site.setForwardScanSequence(createRegion(random));
+			site.setReverseScanSequence(createRegion(random));
+			site.setProbeScanSequence(createRegion(random));
+			site.setDistanceToIntervalMean(0);
+			site.setValidUpstreamPrimers(createCandidates(PrimerTypes.forwardPrimer, site.getForwardScanSequence(), site, params, random, 4, 56.0));
+			site.setValidDownstreamPrimers(createCandidates(PrimerTypes.reversePrimer, site.getReverseScanSequence(), site, params, random, 4, 56.0));
+			site.setValidTaqManProbes(createCandidates(PrimerTypes.hybridizationProbe, site.getProbeScanSequence(), site, params, random, 2, 63.0));
+			result[i] = site;
+		}
+		return result;
+	}
+
+	private static PrimerCandidateTable createCandidates(PrimerTypes type, char[] region, RestrictionSite site, PrimerSearchParameters params, Random random, int count, double minTm){
+		PrimerCandidateTable candidates = new PrimerCandidateTable(type, region, site, params);
+		int length;
+		for(int i=0; i<count; i++){
+			length = 18 + random.nextInt(5);
+			candidates.add(random.nextInt(REGION_LENGTH - length), length, i, 100 + random.nextInt(50), minTm + 0.5 * random.nextInt(4), 0.45 + 0.05 * random.nextInt(3), 4, 2, PrimerAcceptanceLevel.NOT_TESTED);
+		}
+		return candidates;
+	}
+
+	private static char[] createRegion(Random random){
+		char[] result = new char[REGION_LENGTH];
+		for(int i=0; i<result.length; i++) result[i] = "ACGT".charAt(random.nextInt(4));
+		return result;
+	}
+
+	/**
+	 * Enumerates all primer pair sets consisting of one primer pair per site, checking each set as the branch and bound search does.
+	 */
+	private static class BruteForcePicking{
+		private final RestrictionSite[] sites;
+		private final PrimerSearchParameters params;
+		private final PrimerPairSetAlignments alignments;
+		private PrimerPairSet best = null;
+		private double bestScore = Double.MAX_VALUE;
+		private long sets = 0;
+
+		BruteForcePicking(RestrictionSite[] sites, PrimerSearchParameters params){
+			this.sites = sites;
+			this.params = params;
+			this.alignments = new PrimerPairSetAlignments(sites, params);
+			PrimerPairTable roots = sites[0].getPrimerPairTable();
+			for(int i=0; i<roots.size(); i++){
+				PrimerPair root = roots.getPrimerPair(i);
+				if(!this.isValid(root)) continue;
+				this.search(new PrimerPairSet(root, params), 1);
+			}
+		}
+
+		private void search(PrimerPairSet set, int depth){
+			if(depth == this.sites.length){
+				this.sets++;
+				double score = score(set, this.params);
+				if(score < this.bestScore){
+					this.bestScore = score;
+					this.best = new PrimerPairSet(set, this.params);
+				}
+				return;
+			}
+			PrimerPairTable pairs = this.sites[depth].getPrimerPairTable();
+			PrimerPair pair;
+			PrimerAlignmentScores scores;
+			for(int i=0; i<pairs.size(); i++){
+				pair = pairs.getPrimerPair(i);
+				if(!this.isValid(pair)) continue;
+				if(Math.abs(pair.getAverageTMPrimers() - set.getAverageTMPrimers()) > this.params.getMAX_PRIMER_TM_DIFFERENCE()) continue;
+				if(Math.abs(pair.getAverageTMProbe() - set.getAverageTMProbes()) > this.params.getMAX_PRIMER_TM_DIFFERENCE()) continue;
+				scores = PrimerPairSet.checkInterPairAlignments(pair, set, this.alignments, depth, this.params);
+				if(scores.getPairScore() > this.params.getMAX_PRIMER_PAIR_ALIGNMENT_SCORE() || scores.getPairEndScore() > this.params.getMAX_PRIMER_PAIR_END_ALIGNMENT_SCORE()) continue;
+				set.addPrimerPair(pair, scores.getPairScore(), scores.getPairEndScore());
+				this.search(set, depth + 1);
+				set.deleteLastPrimerPair();
+			}
+		}
+
+		private boolean isValid(PrimerPair pair){
+			PrimerAlignmentScores scores = pair.getMaxPairElementsAlignmentScore();
+			return !pair.containsUnacceptablePrimers() && scores.getPairScore() <= this.params.getMAX_PRIMER_PAIR_ALIGNMENT_SCORE() && scores.getPairEndScore() <= this.params.getMAX_PRIMER_PAIR_END_ALIGNMENT_SCORE();
+		}
+	}
+}
@@ -0,0 +1,82 @@
+package primerDesign.testSuite.algo;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import primerDesign.algo.ExternalESAConstruction;
+import primerDesign.algo.KoAluruSuffixSort;
+import primerDesign.algo.LinearTimeLCP;
+import primerDesign.algo.ParallelESAConstruction;
+import primerDesign.dsc.indexStructures.esa.CompactLcpTable;
+import primerDesign.dsc.nio.SegmentedMemoryMappedByteFile;
+import primerDesign.dsc.nio.SegmentedMemoryMappedLongFile;
+
+/**
+ * This unit test checks that the external memory ESA construction computes the same tables as "KoAluruSuffixSort", "LinearTimeLCP"
+ * and the parallel ESA construction, using memory budgets smaller than the text.
+ */
+public class ExternalESAConstructionTest extends TestCase {
+
+	private File directory;
+	private char[] text;
+
+	protected void setUp() throws IOException {
+		Random random = new Random(42);
+		this.text = new char[20000];
+		for(int i=0; i<this.text.length; i++) this.text[i] = "ACGT".charAt(random.nextInt(4));
+		// long repeats and a run of N require several doubling steps and lcp values >= 255
+		System.arraycopy(this.text, 1000, this.text, 9000, 3000);
+		Arrays.fill(this.text, 15000, 16000, 'N');
+
+		this.directory = File.createTempFile("external", null);
+		this.directory.delete();
+		this.directory.mkdir();
+	}
+
+	protected void tearDown(){
+		for(File file : this.directory.listFiles()) file.delete();
+		this.directory.delete();
+	}
+
+	public void testSmallMemoryBudget() throws IOException {
+		// sort runs of a few records, merged in several passes, and stacks spilling blocks of a few records
+		check(new ExternalESAConstruction(4096), this.text, this.text.length, SegmentedMemoryMappedLongFile.DEFAULT_SEGMENT_BITS);
+	}
+
+	public void testWideTables() throws IOException {
+		// tables storing 8 bytes per value, as for texts of more than 2^32 characters, in segments of 2^10 values
+		check(new ExternalESAConstruction(8192), this.text, 1L << 32, 10);
+	}
+
+	public void testDeepStacks() throws IOException {
+		// periodic and unary texts leave deep stacks, which spill to their files
+		String[] texts = {"A", "ACGT", "AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA", "ACACACACACACACACACACACACACACACACACACACACGACACACACAC"};
+		for(String text : texts) check(new ExternalESAConstruction(0), text.toCharArray(), text.length(), SegmentedMemoryMappedLongFile.DEFAULT_SEGMENT_BITS);
+	}
+
+	private void check(ExternalESAConstruction construction, char[] sequence, long maxValue, int segmentBits) throws IOException {
+		int[] suffixArray = new KoAluruSuffixSort().getSuffixArray(sequence.clone());
+		int[] lcp = LinearTimeLCP.getLCP(sequence, suffixArray);
+
+		SegmentedMemoryMappedByteFile text = new SegmentedMemoryMappedByteFile(new File(this.directory, "text"), sequence.length, segmentBits);
+		for(int i=0; i<sequence.length; i++) text.put(i, (byte) sequence[i]);
+		SegmentedMemoryMappedLongFile suftab = new SegmentedMemoryMappedLongFile(new File(this.directory, "suftab"), sequence.length + 1, maxValue, segmentBits);
+		CompactLcpTable lcptab = new CompactLcpTable(new File(this.directory, "lcptab"), sequence.length + 1);
+		SegmentedMemoryMappedLongFile childtab = new SegmentedMemoryMappedLongFile(new File(this.directory, "childtab"), sequence.length + 1, maxValue, segmentBits);
+		construction.createTables(text, suftab, lcptab, childtab, new File(this.directory, "index").getAbsolutePath());
+		// the temporary files are deleted
+		assertEquals(4, this.directory.listFiles().length);
+
+		SegmentedMemoryMappedLongFile expectedChildtab = new SegmentedMemoryMappedLongFile(new File(this.directory, "expected"), sequence.length + 1, maxValue, segmentBits);
+		new ParallelESAConstruction(1).getChildTable(lcptab, expectedChildtab);
+		for(int i=0; i<=sequence.length; i++){
+			assertEquals(suffixArray[i], suftab.get(i));
+			assertEquals(lcp[i], lcptab.get(i));
+			assertEquals(expectedChildtab.get(i), childtab.get(i));
+		}
+		for(File file : this.directory.listFiles()) file.delete();
+	}
+}
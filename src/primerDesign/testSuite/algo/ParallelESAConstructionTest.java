@@ -0,0 +1,152 @@
+package primerDesign.testSuite.algo;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Stack;
+
+import junit.framework.TestCase;
+import primerDesign.algo.KoAluruSuffixSort;
+import primerDesign.algo.LinearTimeLCP;
+import primerDesign.algo.ParallelESAConstruction;
+import primerDesign.dsc.indexStructures.esa.CompactLcpTable;
+import primerDesign.dsc.nio.SegmentedMemoryMappedByteFile;
+import primerDesign.dsc.nio.SegmentedMemoryMappedLongFile;
+
+/**
+ * This unit test checks that the parallel ESA construction computes the same tables as "KoAluruSuffixSort" and "LinearTimeLCP",
+ * and the same child table as the sequential computation of "EnhancedSuffixArray".
+ */
+public class ParallelESAConstructionTest extends TestCase {
+
+	private char[] text;
+	private int[] suffixArray;
+	private int[] lcp;
+
+	protected void setUp(){
+		Random random = new Random(42);
+		this.text = new char[20000];
+		for(int i=0; i<this.text.length; i++) this.text[i] = "ACGT".charAt(random.nextInt(4));
+		// long repeats and a run of N require prefix doubling and lcp values >= 255
+		System.arraycopy(this.text, 1000, this.text, 9000, 3000);
+		Arrays.fill(this.text, 15000, 16000, 'N');
+
+		this.suffixArray = new KoAluruSuffixSort().getSuffixArray(this.text.clone());
+		this.lcp = LinearTimeLCP.getLCP(this.text, this.suffixArray);
+	}
+
+	public void testGetSuffixArrayAndLCP() throws IOException {
+		for(int threads=1; threads<=3; threads++) check(new ParallelESAConstruction(threads));
+	}
+
+	public void testSmallMemoryBudget() throws IOException {
+		// buckets and groups exceeding the budget are sorted in place in the suffix array
+		check(new ParallelESAConstruction(2, 4096));
+		check(new ParallelESAConstruction(3, 0));
+	}
+
+	public void testWideTables() throws IOException {
+		// tables storing 8 bytes per value, as for texts of more than 2^32 characters, in segments of 2^10 values
+		check(new ParallelESAConstruction(2), 1L << 32, 10);
+	}
+
+	public void testChildTable() throws IOException {
+		// periodic and unary texts leave deep stacks across many chunks
+		String[] texts = {"A", "ACGT", "AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA", "ACACACACACACACACACACACACACACACACACACACACGACACACACAC", "ACGTTGCAACGTTGCAAGGT"};
+		for(String text : texts){
+			for(int threads=1; threads<=16; threads*=2) checkChildTable(new ParallelESAConstruction(threads), text.toCharArray());
+		}
+		checkChildTable(new ParallelESAConstruction(7), this.text);
+	}
+
+	private void checkChildTable(ParallelESAConstruction construction, char[] text) throws IOException {
+		int[] lcp = LinearTimeLCP.getLCP(text, new KoAluruSuffixSort().getSuffixArray(text.clone()));
+		CompactLcpTable lcptab = new CompactLcpTable(lcp.length);
+		for(int i=0; i<lcp.length; i++) lcptab.set(i, lcp[i]);
+		File childFile = File.createTempFile("childtab", null);
+		try{
+			SegmentedMemoryMappedLongFile childtab = new SegmentedMemoryMappedLongFile(childFile, lcp.length, text.length);
+			construction.getChildTable(lcptab, childtab);
+			int[] expected = getChildTable(lcp);
+			for(int i=0; i<lcp.length; i++) assertEquals(new String(text) + ": " + i, (expected[i] == Integer.MIN_VALUE) ? ParallelESAConstruction.UNDEFINED : expected[i], childtab.get(i));
+		}
+		finally{
+			childFile.delete();
+		}
+	}
+
+	/**
+	 * Computes the child table like EnhancedSuffixArray.computeChildTable(), undefined entries are Integer.MIN_VALUE.
+	 */
+	private static int[] getChildTable(int[] lcp){
+		int n = lcp.length - 1;
+		int[] child = new int[lcp.length];
+		Arrays.fill(child, Integer.MIN_VALUE);
+		Stack<Integer> stack = new Stack<Integer>();
+		stack.push(0);
+		int lastIndex = -1;
+		int top;
+		for(int i=1; i<=n; i++){
+			while(lcp[i] < lcp[stack.peek()]){
+				lastIndex = stack.pop();
+				top = stack.peek();
+				if(lcp[i] <= lcp[top] && lcp[top] != lcp[lastIndex] && child[i] == Integer.MIN_VALUE){
+					// down value unless 'top' contains a next or an up index
+					if(!containsNextIndex(lcp, child, top) && !(top == n || lcp[top] > lcp[top + 1])) child[top] = lastIndex;
+				}
+			}
+			if(lastIndex != -1){
+				// up value unless i contains a next index
+				if(!containsNextIndex(lcp, child, i)) child[i - 1] = lastIndex;
+				lastIndex = -1;
+			}
+			stack.push(i);
+		}
+		stack.clear();
+		stack.push(0);
+		for(int i=1; i<=n; i++){
+			while(lcp[i] < lcp[stack.peek()]) stack.pop();
+			if(lcp[i] == lcp[stack.peek()]) child[stack.pop()] = i;
+			stack.push(i);
+		}
+		return child;
+	}
+
+	private static boolean containsNextIndex(int[] lcp, int[] child, int i){
+		return i != lcp.length - 2 && child[i] != Integer.MIN_VALUE && lcp[child[i]] == lcp[i] && child[i] > i;
+	}
+
+	private void check(ParallelESAConstruction construction) throws IOException {
+		check(construction, this.text.length, SegmentedMemoryMappedLongFile.DEFAULT_SEGMENT_BITS);
+	}
+
+	private void check(ParallelESAConstruction construction, long maxValue, int segmentBits) throws IOException {
+		File textFile = File.createTempFile("text", null);
+		File suffixFile = File.createTempFile("suftab", null);
+		File tempFile = File.createTempFile("temp", null);
+		File nextTempFile = File.createTempFile("temp", null);
+		try{
+			SegmentedMemoryMappedByteFile text = new SegmentedMemoryMappedByteFile(textFile, this.text.length, segmentBits);
+			for(int i=0; i<this.text.length; i++) text.put(i, (byte) this.text[i]);
+			SegmentedMemoryMappedLongFile suftab = new SegmentedMemoryMappedLongFile(suffixFile, this.text.length + 1, maxValue, segmentBits);
+			SegmentedMemoryMappedLongFile temp = new SegmentedMemoryMappedLongFile(tempFile, this.text.length + 1, maxValue, segmentBits);
+			SegmentedMemoryMappedLongFile nextTemp = new SegmentedMemoryMappedLongFile(nextTempFile, this.text.length + 1, maxValue, segmentBits);
+			CompactLcpTable lcptab = new CompactLcpTable(this.text.length + 1);
+			construction.getSuffixArray(text, suftab, temp, nextTemp);
+			construction.getLCP(text, suftab, temp, lcptab);
+
+			for(int i=0; i<=this.text.length; i++){
+				assertEquals(this.suffixArray[i], suftab.get(i));
+				assertEquals(this.lcp[i], lcptab.get(i));
+			}
+			assertTrue(lcptab.getExceptionCount() > 0);
+		}
+		finally{
+			textFile.delete();
+			suffixFile.delete();
+			tempFile.delete();
+			nextTempFile.delete();
+		}
+	}
+}
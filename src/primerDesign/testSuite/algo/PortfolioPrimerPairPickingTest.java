@@ -0,0 +1,260 @@
+package primerDesign.testSuite.algo;
+
+import java.util.Iterator;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.biojava.bio.molbio.RestrictionEnzyme;
+import org.biojava.bio.seq.DNATools;
+import org.biojava.bio.symbol.IllegalAlphabetException;
+import org.biojava.bio.symbol.IllegalSymbolException;
+
+import primerDesign.algo.BranchAndBoundPrimerPairPicking;
+import primerDesign.algo.PortfolioPrimerPairPicking;
+import primerDesign.algo.PrimerPairPickingAlgorithm;
+import primerDesign.algo.PrimerPairSetAlignments;
+import primerDesign.dsc.Primer;
+import primerDesign.dsc.PrimerAcceptanceLevel;
+import primerDesign.dsc.PrimerCandidateTable;
+import primerDesign.dsc.PrimerPairSet;
+import primerDesign.dsc.PrimerTypes;
+import primerDesign.dsc.RestrictionSite;
+import primerDesign.dsc.SequenceRegion;
+import primerDesign.dsc.indexStructures.primerMisprimingCheck.PrimerMisprimingCheck;
+import primerDesign.util.PrimerSearchParameters;
+
+/**
+ * This unit test checks that the portfolio primer pair picking returns at its deadline, cancels the remaining strategies
+ * once a set is known to be optimal and lets each strategy pick from copies of the restriction sites.
+ */
+public class PortfolioPrimerPairPickingTest extends TestCase {
+	private static final int REGION_LENGTH = 80;
+
+	private RestrictionEnzyme enzyme;
+	private PrimerSearchParameters params;
+	private SequenceRegion region;
+	private RestrictionSite[] sites;
+
+	protected void setUp() throws IllegalAlphabetException, IllegalSymbolException {
+		this.enzyme = new RestrictionEnzyme("EcoRI", DNATools.createDNA("gaattc"), 0, 0);
+		this.params = new PrimerSearchParameters();
+		this.params.setPRINT_DEBUG_LOG(false);
+		this.params.setPickTaqManProbe(true);
+		this.params.setMAX_PRIMER_TM_DIFFERENCE(1.5);
+		this.params.setPrimerMisprimingCheck(new PrimerMisprimingCheck(){
+			// rejects some primers to cover the lazy mispriming check
+			public boolean hasMisprimings(Primer primer){
+				return primer.getSequence().endsWith("CA");
+			}
+			public void setPrimerSearchParams(PrimerSearchParameters params){}
+		});
+		this.region = new SequenceRegion(null, 0, 10000);
+		this.sites = this.createSites(new Random(3), 4);
+	}
+
+	public void testDeadline() {
+		PrimerPairSet expected = new BranchAndBoundPrimerPairPicking().pickBestPrimerSet(this.sites.clone(), this.params);
+		assertNotNull(expected);
+		final SlowStrategy[] strategies = {new SlowStrategy(expected), new SlowStrategy(null)};
+		this.params.setPORTFOLIO_DEADLINE(300);
+
+		long start = System.currentTimeMillis();
+		PrimerPairSet picked = createPortfolio(strategies).pickBestPrimerSet(this.sites, this.params);
+		long time = System.currentTimeMillis() - start;
+
+		// the strategies still running at the deadline are cancelled and return their best set so far
+		assertSame(expected, picked);
+		assertTrue(time >= 300);
+		assertTrue(time < 10000);
+		for(int i=0; i<strategies.length; i++) assertTrue(strategies[i].cancelled);
+	}
+
+	public void testOptimalSetCancelsOtherStrategies() {
+		final SlowStrategy slow = new SlowStrategy(null);
+		final RecordingBranchAndBound exact = new RecordingBranchAndBound();
+		this.params.setPORTFOLIO_DEADLINE(600000);
+
+		long start = System.currentTimeMillis();
+		PrimerPairSet picked = createPortfolio(new PrimerPairPickingAlgorithm[]{slow, exact}).pickBestPrimerSet(this.sites, this.params);
+		long time = System.currentTimeMillis() - start;
+
+		// the optimal set is returned as soon as it is found, long before the deadline
+		assertNotNull(picked);
+		assertSame(exact.result, picked);
+		assertTrue(exact.isOptimal());
+		assertTrue(slow.cancelled);
+		assertTrue(time < 60000);
+	}
+
+	public void testCancel() throws InterruptedException {
+		final SlowStrategy[] strategies = {new SlowStrategy(null), new SlowStrategy(null)};
+		final PortfolioPrimerPairPicking portfolio = createPortfolio(strategies);
+		this.params.setPORTFOLIO_DEADLINE(600000);
+		Thread canceller = new Thread(){
+			public void run(){
+				// wait for the strategies to run
+				while(!strategies[0].started || !strategies[1].started) Thread.yield();
+				portfolio.cancel();
+			}
+		};
+		canceller.start();
+
+		assertNull(portfolio.pickBestPrimerSet(this.sites, this.params));
+		canceller.join();
+		for(int i=0; i<strategies.length; i++) assertTrue(strategies[i].cancelled);
+	}
+
+	public void testStrategiesPickFromCopies() {
+		final RecordingStrategy[] strategies = {new RecordingStrategy(), new RecordingStrategy()};
+		assertNull(createPortfolio(strategies).pickBestPrimerSet(this.sites, this.params));
+
+		for(int i=0; i<strategies.length; i++){
+			assertEquals(this.sites.length, strategies[i].sites.length);
+			for(int j=0; j<this.sites.length; j++){
+				RestrictionSite copy = strategies[i].sites[j];
+				RestrictionSite original = this.sites[indexOf(this.sites, copy.getPosition())];
+				assertNotSame(original, copy);
+				assertNotSame(this.region, copy.getSequenceRegion());
+				assertSame(strategies[i].sites[0].getSequenceRegion(), copy.getSequenceRegion());
+				assertSame(original.getForwardScanSequence(), copy.getForwardScanSequence());
+				assertSame(original.getPrimerPairTable(), copy.getPrimerPairTable());
+				for(int k=0; k<i; k++) assertNotSame(strategies[k].sites[j], copy);
+			}
+			// the unscanned alternative site of the region is copied as well
+			assertEquals(this.region.getNumRestrictionSites(), strategies[i].sites[0].getSequenceRegion().getNumRestrictionSites());
+		}
+		// iterating and scanning the copies does not affect the region or its alternative site
+		assertNull(this.region.getCurrentRestrictionSitesIterator());
+		RestrictionSite alternative = this.region.getRestrictionSite(this.region.getNumRestrictionSites() - 1);
+		assertFalse(alternative.wasScannedForPrimers());
+		assertEquals(0, alternative.getNumberOfValidUpstreamPrimers());
+	}
+
+	private static int indexOf(RestrictionSite[] sites, int position){
+		for(int i=0; i<sites.length; i++) if(sites[i].getPosition() == position) return i;
+		return -1;
+	}
+
+	private static PortfolioPrimerPairPicking createPortfolio(final PrimerPairPickingAlgorithm[] strategies){
+		return new PortfolioPrimerPairPicking(){
+			protected PrimerPairPickingAlgorithm[] createStrategies(){
+				return strategies;
+			}
+		};
+	}
+
+	/**
+	 * Creates restriction sites of a few primers each on a common sequence region, having one more (unscanned) site.
+	 */
+	private RestrictionSite[] createSites(Random random, int count){
+		RestrictionSite[] result = new RestrictionSite[count];
+		for(int i=0; i<count; i++){
+			RestrictionSite site = new RestrictionSite(this.region, 1000 * (i + 1), this.enzyme, this.params);
+			site.setForwardScanSequence(createRegion(random));
+			site.setReverseScanSequence(createRegion(random));
+			site.setProbeScanSequence(createRegion(random));
+			site.setDistanceToIntervalMean(i);
+			site.setValidUpstreamPrimers(createCandidates(PrimerTypes.forwardPrimer, site.getForwardScanSequence(), site, random, 4, 56.0));
+			site.setValidDownstreamPrimers(createCandidates(PrimerTypes.reversePrimer, site.getReverseScanSequence(), site, random, 4, 56.0));
+			site.setValidTaqManProbes(createCandidates(PrimerTypes.hybridizationProbe, site.getProbeScanSequence(), site, random, 2, 63.0));
+			this.region.addRestrictionSite(site);
+			result[i] = site;
+		}
+		RestrictionSite alternative = new RestrictionSite(this.region, 1000 * (count + 1), this.enzyme, this.params);
+		alternative.setDistanceToIntervalMean(count);
+		this.region.addRestrictionSite(alternative);
+		return result;
+	}
+
+	private PrimerCandidateTable createCandidates(PrimerTypes type, char[] region, RestrictionSite site, Random random, int count, double minTm){
+		PrimerCandidateTable candidates = new PrimerCandidateTable(type, region, site, this.params);
+		int length;
+		for(int i=0; i<count; i++){
+			length = 18 + random.nextInt(5);
+			candidates.add(random.nextInt(REGION_LENGTH - length), length, i, 100 + random.nextInt(50), minTm + 0.5 * random.nextInt(4), 0.45 + 0.05 * random.nextInt(3), 4, 2, PrimerAcceptanceLevel.NOT_TESTED);
+		}
+		return candidates;
+	}
+
+	private static char[] createRegion(Random random){
+		char[] result = new char[REGION_LENGTH];
+		for(int i=0; i<result.length; i++) result[i] = "ACGT".charAt(random.nextInt(4));
+		return result;
+	}
+
+	/**
+	 * A strategy running until it is cancelled, then returning a given primer pair set.
+	 */
+	private static class SlowStrategy implements PrimerPairPickingAlgorithm {
+		private final PrimerPairSet result;
+		private volatile boolean started = false;
+		private volatile boolean cancelled = false;
+
+		SlowStrategy(PrimerPairSet result){
+			this.result = result;
+		}
+
+		public PrimerPairSet pickBestPrimerSet(RestrictionSite[] optimalSites, PrimerSearchParameters searchParams){
+			return this.pickBestPrimerSet(optimalSites, searchParams, null);
+		}
+
+		public PrimerPairSet pickBestPrimerSet(RestrictionSite[] optimalSites, PrimerSearchParameters searchParams, PrimerPairSetAlignments alignments){
+			this.started = true;
+			long start = System.currentTimeMillis();
+			while(!this.cancelled){
+				if(System.currentTimeMillis() - start > 60000) throw new IllegalStateException("The strategy was not cancelled!");
+				try{
+					Thread.sleep(5);
+				}
+				catch(InterruptedException e){
+					throw new IllegalStateException(e);
+				}
+			}
+			return this.result;
+		}
+
+		public void cancel(){
+			this.cancelled = true;
+		}
+	}
+
+	/**
+	 * A branch and bound strategy recording the primer pair set it picked.
+	 */
+	private static class RecordingBranchAndBound extends BranchAndBoundPrimerPairPicking {
+		private volatile PrimerPairSet result;
+
+		public PrimerPairSet pickBestPrimerSet(RestrictionSite[] optimalSites, PrimerSearchParameters searchParams, PrimerPairSetAlignments alignments){
+			this.result = super.pickBestPrimerSet(optimalSites, searchParams, alignments);
+			return this.result;
+		}
+	}
+
+	/**
+	 * A strategy recording the restriction sites it picks from and refining their sequence region.
+	 */
+	private static class RecordingStrategy implements PrimerPairPickingAlgorithm {
+		private RestrictionSite[] sites;
+
+		public PrimerPairSet pickBestPrimerSet(RestrictionSite[] optimalSites, PrimerSearchParameters searchParams){
+			return this.pickBestPrimerSet(optimalSites, searchParams, null);
+		}
+
+		public PrimerPairSet pickBestPrimerSet(RestrictionSite[] optimalSites, PrimerSearchParameters searchParams, PrimerPairSetAlignments alignments){
+			this.sites = optimalSites;
+			// as PrimerSearch.refineSeqRegion() does: iterate the alternative sites of the region and scan one of them
+			SequenceRegion region = optimalSites[0].getSequenceRegion();
+			RestrictionSite alternative = null;
+			Iterator<RestrictionSite> iterator = region.getRestrictionSitesIterator(true);
+			while(iterator.hasNext()) alternative = iterator.next();
+			alternative.setValidUpstreamPrimers(optimalSites[0].getValidUpstreamPrimers());
+			alternative.setValidDownstreamPrimers(optimalSites[0].getValidDownstreamPrimers());
+			alternative.setValidTaqManProbes(optimalSites[0].getValidTaqManProbes());
+			alternative.wasScannedForPrimers(true);
+			return null;
+		}
+
+		public void cancel(){}
+	}
+}
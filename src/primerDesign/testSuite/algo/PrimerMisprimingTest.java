@@ -11,6 +11,7 @@ import primerDesign.Test.EnhancedSuffixArrayFatOpt;
 import primerDesign.algo.PrimerMispriming;
 import primerDesign.dsc.Primer;
 import primerDesign.dsc.PrimerTypes;
+import primerDesign.dsc.RestrictionSitePositions;
 import primerDesign.util.PrimerSearchParameters;
 import cern.colt.list.ObjectArrayList;
 
@@ -52,7 +53,7 @@ public class PrimerMisprimingTest extends TestCase {
 		
 		ObjectArrayList hits = bgIndex.findHitPositions(searchRegion.substring(searchRegion.length() - params.getPRIMER_END_MISMATCH_SCAN_LENGTH()));
 		
-		assertTrue(PrimerMispriming.hasSafeDistanceToNextRSS(new Primer(searchRegion,PrimerTypes.forwardPrimer, params), enzyme, hits, params));
+		assertTrue(PrimerMispriming.hasSafeDistanceToNextRSS(new Primer(searchRegion,PrimerTypes.forwardPrimer, params), new RestrictionSitePositions(enzyme), hits, params));
 		
 		// "set distance of FP match to "safe distance""
 		bg = searchRegion;
@@ -71,7 +72,7 @@ public class PrimerMisprimingTest extends TestCase {
 		
 		hits = bgIndex.findHitPositions(searchRegion.substring(searchRegion.length() - params.getPRIMER_END_MISMATCH_SCAN_LENGTH()));
 		
-		assertFalse(PrimerMispriming.hasSafeDistanceToNextRSS(new Primer(searchRegion,PrimerTypes.forwardPrimer, params), enzyme, hits, params));
+		assertFalse(PrimerMispriming.hasSafeDistanceToNextRSS(new Primer(searchRegion,PrimerTypes.forwardPrimer, params), new RestrictionSitePositions(enzyme), hits, params));
 		
 		// "set distance of FP match to "safe distance -1""
 		bg = searchRegion;
@@ -90,6 +91,6 @@ public class PrimerMisprimingTest extends TestCase {
 		
 		hits = bgIndex.findHitPositions(searchRegion.substring(searchRegion.length() - params.getPRIMER_END_MISMATCH_SCAN_LENGTH()));
 		
-		assertFalse(PrimerMispriming.hasSafeDistanceToNextRSS(new Primer(searchRegion,PrimerTypes.forwardPrimer, params), enzyme, hits, params));
+		assertFalse(PrimerMispriming.hasSafeDistanceToNextRSS(new Primer(searchRegion,PrimerTypes.forwardPrimer, params), new RestrictionSitePositions(enzyme), hits, params));
 	}
 }
@@ -3,12 +3,30 @@
  */
 package primerDesign.testSuite.algo;
 
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
 import junit.framework.TestCase;
 
+import org.biojava.bio.molbio.RestrictionEnzyme;
+import org.biojava.bio.seq.DNATools;
+import org.biojava.bio.symbol.IllegalAlphabetException;
+import org.biojava.bio.symbol.IllegalSymbolException;
 import org.junit.Test;
 
 import primerDesign.algo.PrimerPairSetAlignments;
+import primerDesign.algo.SequenceRegionAligner;
 import primerDesign.dsc.AlignmentType;
+import primerDesign.dsc.PrimerAlignmentScores;
+import primerDesign.dsc.PrimerTypes;
+import primerDesign.dsc.RestrictionSite;
+import primerDesign.dsc.ScanRegion;
+import primerDesign.util.ForkJoinPools;
 import primerDesign.util.PrimerSearchParameters;
 
 /**
@@ -147,4 +165,151 @@ public class PrimerPairSetAlignmentsTest extends TestCase{
 		assertEquals(12,alignments.getAlignment(0, 0, 3, 1, 1, 5, AlignmentType.forward2Probe1).getPairScore());
 		assertEquals(4,alignments.getAlignment(0, 0, 3, 1, 1, 5, AlignmentType.forward2Probe1).getPairEndScore());		
 	}
+
+	/**
+	 * Test method for the lazy computation of {@link primerDesign.algo.PrimerPairSetAlignments#getAlignment(int, int, int, int, int, int, java.lang.Enum)}.
+	 */
+	@Test
+	public void testLazyAlignment() {
+		PrimerSearchParameters params = new PrimerSearchParameters();
+		params.setPickTaqManProbe(true);
+		char[][] forward = createRegions(new Random(1), 4, 60);
+		char[][] probe = createRegions(new Random(2), 4, 40);
+		PrimerPairSetAlignments alignments = new PrimerPairSetAlignments(forward.length);
+		for(int i=0; i<forward.length; i++) alignments.addScanRegion(forward[i], probe[i], params);
+		
+		// no region pair is aligned before its first access
+		assertEquals(0, alignments.getNumberOfComputedRegionPairs());
+		PrimerAlignmentScores scores = alignments.getAlignment(1, 5, 20, 3, 10, 20, AlignmentType.forward1Forward2);
+		assertEquals(1, alignments.getNumberOfComputedRegionPairs());
+		assertEquals(expected(forward[1], forward[3], 5, 20, 10, 20, params).getPairScore(), scores.getPairScore());
+		
+		// each region pair is aligned once, all alignment types of a pair are computed together
+		alignments.getAlignment(1, 0, 20, 3, 0, 20, AlignmentType.forward1Forward2);
+		scores = alignments.getAlignment(1, 5, 20, 3, 10, 20, AlignmentType.forward1Probe2);
+		assertEquals(expected(forward[1], probe[3], 5, 20, 10, 20, params).getPairScore(), scores.getPairScore());
+		scores = alignments.getAlignment(1, 5, 20, 3, 10, 20, AlignmentType.forward2Probe1);
+		assertEquals(expected(forward[3], probe[1], 5, 20, 10, 20, params).getPairScore(), scores.getPairScore());
+		assertEquals(1, alignments.getNumberOfComputedRegionPairs());
+		
+		alignments.getAlignment(0, 0, 20, 2, 0, 20, AlignmentType.forward1Forward2);
+		assertEquals(2, alignments.getNumberOfComputedRegionPairs());
+	}
+	
+	/**
+	 * Test method for the concurrent access of {@link primerDesign.algo.PrimerPairSetAlignments#getAlignment(int, int, int, int, int, int, java.lang.Enum)}.
+	 */
+	@Test
+	public void testConcurrentAlignment() throws InterruptedException, ExecutionException {
+		final PrimerSearchParameters params = new PrimerSearchParameters();
+		final char[][] forward = createRegions(new Random(3), 6, 60);
+		final PrimerPairSetAlignments alignments = new PrimerPairSetAlignments(forward.length);
+		for(int i=0; i<forward.length; i++) alignments.addScanRegion(forward[i], forward[i], params);
+		
+		final CountDownLatch start = new CountDownLatch(1);
+		ArrayList<Callable<Boolean>> tasks = new ArrayList<Callable<Boolean>>();
+		for(int t=0; t<4; t++){
+			tasks.add(new Callable<Boolean>(){
+				public Boolean call() throws InterruptedException{
+					start.await();
+					for(int i=0; i<forward.length; i++){
+						for(int j=i+1; j<forward.length; j++){
+							if(alignments.getAlignment(i, 3, 18, j, 7, 22, AlignmentType.forward1Forward2).getPairScore() != expected(forward[i], forward[j], 3, 18, 7, 22, params).getPairScore()) return false;
+						}
+					}
+					return true;
+				}
+			});
+		}
+		ForkJoinPool pool = ForkJoinPools.getPool(tasks.size());
+		ArrayList<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+		for(Callable<Boolean> task : tasks) results.add(pool.submit(task));
+		start.countDown();
+		for(Future<Boolean> result : results) assertTrue(result.get());
+		assertEquals(forward.length * (forward.length - 1) / 2, alignments.getNumberOfComputedRegionPairs());
+	}
+	
+	/**
+	 * Test method for {@link primerDesign.algo.PrimerPairSetAlignments#deriveFor(RestrictionSite[])}.
+	 */
+	@Test
+	public void testDeriveFor() throws IllegalAlphabetException, IllegalSymbolException {
+		PrimerSearchParameters params = new PrimerSearchParameters();
+		params.setPickTaqManProbe(true);
+		RestrictionEnzyme enzyme = new RestrictionEnzyme("EcoRI", DNATools.createDNA("gaattc"), 0, 0);
+		char[][] forward = createRegions(new Random(4), 5, 60);
+		char[][] probe = createRegions(new Random(5), 5, 40);
+		RestrictionSite[] sites = new RestrictionSite[forward.length];
+		for(int i=0; i<sites.length; i++) sites[i] = createSite(1000 * (i + 1), forward[i], probe[i], enzyme, params);
+		PrimerPairSetAlignments alignments = new PrimerPairSetAlignments(new RestrictionSite[]{sites[0], sites[1], sites[2], sites[3]}, params);
+		for(int i=0; i<4; i++){
+			for(int j=i+1; j<4; j++) alignments.getAlignment(i, 0, 20, j, 0, 20, AlignmentType.forward1Forward2);
+		}
+		
+		// replacing site 1 and reordering stably keeps the alignments of all pairs of the other sites
+		PrimerPairSetAlignments derived = alignments.deriveFor(new RestrictionSite[]{sites[0], sites[2], sites[4], sites[3]});
+		assertEquals(3, derived.getNumberOfComputedRegionPairs());
+		assertDerived(derived, new int[]{0, 2, 4, 3}, forward, probe, params);
+		assertEquals(6, derived.getNumberOfComputedRegionPairs());
+		assertEquals(6, alignments.getNumberOfComputedRegionPairs());
+		
+		// alignments are directed, pairs of sites changing their order are aligned again
+		derived = alignments.deriveFor(new RestrictionSite[]{sites[3], sites[2], sites[1], sites[0]});
+		assertEquals(0, derived.getNumberOfComputedRegionPairs());
+		assertDerived(derived, new int[]{3, 2, 1, 0}, forward, probe, params);
+		
+		// sites are identified by the coordinates of their scan regions: copies and sites cut anew at equal coordinates are identified
+		RestrictionSite copy = new RestrictionSite(sites[2], null);
+		RestrictionSite recut = createSite(sites[3].getPosition(), forward[3].clone(), probe[3].clone(), enzyme, params);
+		RestrictionSite otherProbe = createSite(sites[1].getPosition(), forward[1], probe[1], enzyme, params);
+		otherProbe.setScanSequence(new ScanRegion("Contig", sites[1].getPosition() - 10, sites[1].getPosition() - 10 + probe[1].length, PrimerTypes.hybridizationProbe), probe[1]);
+		derived = alignments.deriveFor(new RestrictionSite[]{sites[0], otherProbe, copy, recut});
+		assertEquals(3, derived.getNumberOfComputedRegionPairs());
+		assertDerived(derived, new int[]{0, 1, 2, 3}, forward, probe, params);
+		
+		// scan regions are cut from a contig, the same coordinates on another contig or of unknown coordinates are not identified
+		RestrictionSite otherContig = createSite(sites[0].getPosition(), forward[0], probe[0], enzyme, params);
+		otherContig.setScanSequence(new ScanRegion("Other contig", sites[0].getPosition() - 100, sites[0].getPosition() - 100 + forward[0].length - 1, PrimerTypes.forwardPrimer), forward[0]);
+		RestrictionSite unknown = new RestrictionSite(sites[2].getPosition(), enzyme, params);
+		unknown.setForwardScanSequence(forward[2]);
+		unknown.setProbeScanSequence(probe[2]);
+		derived = alignments.deriveFor(new RestrictionSite[]{otherContig, sites[1], unknown, sites[3]});
+		assertEquals(1, derived.getNumberOfComputedRegionPairs());
+		assertDerived(derived, new int[]{0, 1, 2, 3}, forward, probe, params);
+	}
+	
+	/**
+	 * Checks the alignments of all pairs of scan regions of a derived alignment.
+	 */
+	private static void assertDerived(PrimerPairSetAlignments derived, int[] regions, char[][] forward, char[][] probe, PrimerSearchParameters params){
+		for(int i=0; i<regions.length; i++){
+			for(int j=i+1; j<regions.length; j++){
+				assertEquals(expected(forward[regions[i]], forward[regions[j]], 2, 20, 5, 20, params).getPairScore(), derived.getAlignment(i, 2, 20, j, 5, 20, AlignmentType.forward1Forward2).getPairScore());
+				assertEquals(expected(forward[regions[i]], probe[regions[j]], 2, 20, 5, 20, params).getPairScore(), derived.getAlignment(i, 2, 20, j, 5, 20, AlignmentType.forward1Probe2).getPairScore());
+				assertEquals(expected(forward[regions[j]], probe[regions[i]], 2, 20, 5, 20, params).getPairScore(), derived.getAlignment(i, 2, 20, j, 5, 20, AlignmentType.forward2Probe1).getPairScore());
+			}
+		}
+	}
+	
+	/**
+	 * Creates a restriction site of contig 'Contig' with scan regions ending 10 bases before its position (forward) and starting at its position (probe).
+	 */
+	private static RestrictionSite createSite(int position, char[] forward, char[] probe, RestrictionEnzyme enzyme, PrimerSearchParameters params){
+		RestrictionSite site = new RestrictionSite(position, enzyme, params);
+		site.setScanSequence(new ScanRegion("Contig", position - 10 - forward.length, position - 11, PrimerTypes.forwardPrimer), forward);
+		site.setScanSequence(new ScanRegion("Contig", position, position + probe.length - 1, PrimerTypes.hybridizationProbe), probe);
+		return site;
+	}
+	
+	private static PrimerAlignmentScores expected(char[] region1, char[] region2, int pos1, int length1, int pos2, int length2, PrimerSearchParameters params){
+		return SequenceRegionAligner.alignSequenceRegions(region1, region2, params.getA_t_basepair_score(), params.getG_c_basepair_score()).getGlobalAlignmentValues(pos1, length1, pos2, length2);
+	}
+	
+	private static char[][] createRegions(Random random, int count, int length){
+		char[][] result = new char[count][length];
+		for(int i=0; i<count; i++){
+			for(int j=0; j<length; j++) result[i][j] = "ACGT".charAt(random.nextInt(4));
+		}
+		return result;
+	}
 }
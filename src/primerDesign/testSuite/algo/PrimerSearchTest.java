@@ -1,5 +1,6 @@
 package primerDesign.testSuite.algo;
 
+import java.util.Random;
 import java.util.regex.Pattern;
 
 import junit.framework.TestCase;
@@ -15,8 +16,11 @@ import primerDesign.dsc.DNASequenceIndex;
 import primerDesign.dsc.Primer;
 import primerDesign.dsc.PrimerTypes;
 import primerDesign.dsc.RestrictionSite;
+import primerDesign.dsc.indexStructures.primerMisprimingCheck.PrimerMisprimingCheck;
 import primerDesign.util.PrimerSearchParameters;
 import primerDesign.util.SeqTools;
+import primerDesign.util.SimpleContig;
+import primerDesign.util.SimpleContigImpl;
 
 public class PrimerSearchTest extends TestCase {
 
@@ -198,6 +202,68 @@ public class PrimerSearchTest extends TestCase {
 	// RestrictionEnzyme enzyme = new RestrictionEnzyme("EcoRI", DNATools.createDNA("gaattc"), 0, 0);
 //		fail("Not yet implemented");
 //	}
+	
+	public void testParallelNaivePrimerSearch() throws IllegalAlphabetException, IllegalSymbolException {
+		// a masked forward scan region at the second site rejects it after enumerating its reverse and probe scan regions speculatively
+		PrimerSearchParameters sequentialParams = createSearchParams(1);
+		PrimerSearch sequentialSearch = new PrimerSearch();
+		RestrictionSite[] expected = sequentialSearch.naivePrimerSearch(sequentialParams);
+		
+		for(int threads=2; threads<=4; threads++){
+			PrimerSearchParameters params = createSearchParams(threads);
+			PrimerSearch search = new PrimerSearch();
+			RestrictionSite[] result = search.naivePrimerSearch(params);
+			
+			assertEquals(expected.length, result.length);
+			for(int i=0; i<result.length; i++){
+				assertEquals(expected[i].getPosition(), result[i].getPosition());
+				assertSamePrimers(expected[i].getValidUpstreamPrimers(), result[i].getValidUpstreamPrimers());
+				assertSamePrimers(expected[i].getValidDownstreamPrimers(), result[i].getValidDownstreamPrimers());
+				assertSamePrimers(expected[i].getValidTaqManProbes(), result[i].getValidTaqManProbes());
+				assertEquals(new String(expected[i].getReverseScanSequence()), new String(result[i].getReverseScanSequence()));
+				assertEquals(new String(expected[i].getProbeScanSequence()), new String(result[i].getProbeScanSequence()));
+			}
+			assertEquals(sequentialSearch.getPrimerCount(), search.getPrimerCount());
+			assertEquals(sequentialSearch.getPrimerIndexCount(), search.getPrimerIndexCount());
+			assertEquals(sequentialParams.getSearchStat().getStat(), params.getSearchStat().getStat());
+		}
+		assertTrue(sequentialSearch.getPrimerIndexCount() > 0);
+		// the second site is replaced by the next site of its sequence region
+		assertEquals(3501, expected[1].getPosition());
+	}
+	
+	private static PrimerSearchParameters createSearchParams(int threads) throws IllegalAlphabetException, IllegalSymbolException {
+		PrimerSearchParameters params = new PrimerSearchParameters();
+		params.setPRINT_DEBUG_LOG(false);
+		params.setNUM_SEARCH_THREADS(threads);
+		params.setPickTaqManProbe(true);
+		params.setEnzyme(new RestrictionEnzyme("EcoRI", DNATools.createDNA("gaattc"), 0, 0));
+		params.setPrimerMisprimingCheck(new PrimerMisprimingCheck(){
+			public boolean hasMisprimings(Primer primer){
+				return primer.getSequence().endsWith("CA");
+			}
+			public void setPrimerSearchParams(PrimerSearchParameters params){}
+		});
+		
+		Random random = new Random(1);
+		StringBuilder sequence = new StringBuilder();
+		for(int i=0; i<8000; i++) sequence.append("ACGT".charAt(random.nextInt(4)));
+		for(int i=sequence.indexOf("GAATTC"); i >= 0; i=sequence.indexOf("GAATTC")) sequence.setCharAt(i, 'C');
+		for(int site=1000; site<8000; site+=2000) sequence.replace(site, site + 6, "GAATTC");
+		sequence.replace(3500, 3506, "GAATTC");
+		for(int i=2900; i<3000; i++) sequence.setCharAt(i, 'N');
+		params.setContigs(new SimpleContig[]{new SimpleContigImpl("TEST", sequence.toString().toLowerCase().toCharArray())});
+		params.setNumPrimers(4);
+		return params;
+	}
+	
+	private static void assertSamePrimers(Primer[] expected, Primer[] primers){
+		assertEquals(expected.length, primers.length);
+		for(int i=0; i<primers.length; i++){
+			assertEquals(expected[i].getSequence(), primers[i].getSequence());
+			assertEquals(expected[i].getRelativePosition(), primers[i].getRelativePosition());
+		}
+	}
 //
 //	public void testPickBestPrimerSet() {
 	// RestrictionEnzyme enzyme = new RestrictionEnzyme("EcoRI", DNATools.createDNA("gaattc"), 0, 0);
@@ -0,0 +1,57 @@
+package primerDesign.testSuite.algo;
+
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import junit.framework.TestCase;
+import primerDesign.algo.RestrictionSiteScanner;
+import cern.colt.list.IntArrayList;
+
+public class RestrictionSiteScannerTest extends TestCase {
+
+	public void testFindSites() {
+		// EcoRI (palindromic), BsmBI (non-palindromic), BglI (degenerate, palindromic), XcmI (highly degenerate), BsrI (non-palindromic)
+		String[] sites = new String[]{"GAATTC", "CGTCTC", "GCCNNNNNGGC", "CCANNNNNNNNNTGG", "ACTGG"};
+		// the forward and reverse complement patterns of each site as regular expressions
+		String[][] patterns = new String[][]{{"GAATTC"}, {"CGTCTC", "GAGACG"}, {"GCC.....GGC"}, {"CCA.........TGG"}, {"ACTGG", "CCAGT"}};
+		RestrictionSiteScanner scanner = new RestrictionSiteScanner(sites);
+		assertTrue(scanner.isPalindromic(0));
+		assertFalse(scanner.isPalindromic(1));
+		assertTrue(scanner.isPalindromic(3));
+
+		String alphabet = "ACGTACGTACGTACGTGAATTCCGTCTCGAGACGGCCACTGGnN";
+		Random random = new Random(17);
+		for(int k=0; k<50; k++){
+			StringBuffer buffer = new StringBuffer();
+			for(int i=0; i<2000; i++) buffer.append(alphabet.charAt(random.nextInt(alphabet.length())));
+			String sequence = buffer.toString();
+			IntArrayList[] found = scanner.findSites(sequence);
+			int[] counts = scanner.countSites(sequence);
+			boolean[] contained = scanner.containsSites(sequence);
+
+			for(int e=0; e<sites.length; e++){
+				IntArrayList expected = new IntArrayList();
+				for(int start=0; start<sequence.length(); start++){
+					for(String pattern : patterns[e]){
+						Matcher matcher = Pattern.compile(pattern.replace(".", "[ACGT]")).matcher(sequence.toUpperCase().replace('N', 'X'));
+						matcher.region(start, sequence.length());
+						if(matcher.lookingAt()) expected.add(start);
+					}
+				}
+				assertEquals(expected, found[e]);
+				assertEquals(expected.size(), counts[e]);
+				assertEquals(expected.size() > 0, contained[e]);
+				assertEquals(Math.min(1, expected.size()), scanner.countSites(sequence, e, 1));
+			}
+		}
+	}
+
+	public void testSingleEnzyme() {
+		RestrictionSiteScanner scanner = new RestrictionSiteScanner(new String[]{"gaattc"});
+		assertEquals(2, scanner.countSites("GAATTCgaattc", 0, 5));
+		assertEquals(1, scanner.countSites("GAATTCgaattc", 0, 1));
+		assertEquals(0, scanner.countSites("GAATNCGAATTGAATTC".substring(0, 16), 0, 5));
+		assertEquals(11, scanner.findSites("GAATTCAAAAAGAATTC".toCharArray())[0].get(1));
+	}
+}
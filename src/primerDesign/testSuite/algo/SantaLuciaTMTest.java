@@ -1,6 +1,7 @@
 package primerDesign.testSuite.algo;
 
 import junit.framework.TestCase;
+import primerDesign.algo.NearestNeighborTMTable;
 import primerDesign.algo.SantaLuciaTM;
 import primerDesign.util.PrimerSearchParameters;
 
@@ -29,4 +30,47 @@ public class SantaLuciaTMTest extends TestCase {
 		// check for exception if primer length > 36 bp (formular is not valid from this length on!)
 	}
 
+	public void testComputeMonoAndDivalentCationCorrectedTMOfWindow() {
+		PrimerSearchParameters params = new PrimerSearchParameters();
+		SantaLuciaTM lucia = new SantaLuciaTM();
+		String region = "NNACGTTGCAGGTCCATGACCTAGNN";
+		char[] regionArray = region.toCharArray();
+		
+		// the window variant has to reproduce the string variant exactly
+		for(int length=17; length<=22; length++){
+			for(int start=2; start+length<=region.length()-2; start++){
+				assertEquals(lucia.computeMonoAndDivalentCationCorrectedTM(region.substring(start, start+length), params.getPRIMER_CONCENTRATION(), params.getMONOVALENT_CATION_CONCENTRATION(), params.getDIVALENT_CATION_CONCENTRATION(), params.getDNTP_CONCENTRATION()),
+						lucia.computeMonoAndDivalentCationCorrectedTM(regionArray, start, length, params.getPRIMER_CONCENTRATION(), params.getMONOVALENT_CATION_CONCENTRATION(), params.getDIVALENT_CATION_CONCENTRATION(), params.getDNTP_CONCENTRATION()), 0.0);
+			}
+		}
+	}
+
+	public void testScanRegionTable() {
+		PrimerSearchParameters params = new PrimerSearchParameters();
+		SantaLuciaTM lucia = new SantaLuciaTM();
+		// contains the self-symmetric oligos ACGT, GAATTC and GCGCGCGCGCGCGCGCGCGC
+		String region = "ttGAATTCACGTGCGCGCGCGCGCGCGCGCGCAGGTCCATGACCTAGGATCCAAGCTTN";
+		char[] regionArray = region.toCharArray();
+		NearestNeighborTMTable table = lucia.createScanRegionTable(regionArray, params.getMONOVALENT_CATION_CONCENTRATION(), params.getDIVALENT_CATION_CONCENTRATION(), params.getDNTP_CONCENTRATION());
+		
+		for(int length=2; length<=30; length++){
+			for(int start=0; start+length<=region.length()-1; start++){
+				assertEquals(lucia.computeMonoAndDivalentCationCorrectedTM(regionArray, start, length, params.getPRIMER_CONCENTRATION(), params.getMONOVALENT_CATION_CONCENTRATION(), params.getDIVALENT_CATION_CONCENTRATION(), params.getDNTP_CONCENTRATION()),
+						table.computeTM(start, length, params.getPRIMER_CONCENTRATION()), 1.0E-09);
+				assertEquals(lucia.computeDeltaG(regionArray, start, length, params.getPRIMER_CONCENTRATION(), params.getMONOVALENT_CATION_CONCENTRATION(), params.getDIVALENT_CATION_CONCENTRATION(), params.getDNTP_CONCENTRATION()),
+						table.computeDeltaG(start, length), 1.0E-09);
+			}
+		}
+		assertTrue(table.isSymmetric(2, 6));
+		assertTrue(table.isSymmetric(12, 20));
+		assertFalse(table.isSymmetric(12, 19));
+		try{
+			table.computeTM(region.length()-20, 20, params.getPRIMER_CONCENTRATION());
+			fail("Windows containing masked bases must be rejected!");
+		}
+		catch(IllegalArgumentException e){
+			// expected
+		}
+	}
+
 }
@@ -0,0 +1,57 @@
+package primerDesign.testSuite.algo;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import junit.framework.TestCase;
+import primerDesign.algo.SequenceFilterAutomaton;
+import primerDesign.dsc.SequenceFilterMask;
+
+public class SequenceFilterAutomatonTest extends TestCase {
+
+	public void testWindowContains() {
+		SequenceFilterAutomaton filter = new SequenceFilterAutomaton(4, "GANTC");
+		Pattern repeat = Pattern.compile(".*(A{4,}|C{4,}|G{4,}|T{4,}).*");
+		// GANTC is palindromic w.r.t. its reverse complement GANTC
+		Pattern site = Pattern.compile(".*GA[ACGT]TC.*");
+		Pattern ambiguity = Pattern.compile(".*[MRWSYKVHDB].*");
+		Pattern masked = Pattern.compile(".*N.*");
+
+		String alphabet = "ACGTACGTACGTACGTGANTCRYn";
+		Random random = new Random(13);
+		for(int k=0; k<50; k++){
+			StringBuffer buffer = new StringBuffer();
+			for(int i=0; i<200; i++) buffer.append(alphabet.charAt(random.nextInt(alphabet.length())));
+			String sequence = buffer.toString().toUpperCase();
+			SequenceFilterMask mask = filter.scan(buffer.toString().toCharArray());
+
+			for(int length=1; length<=20; length++){
+				for(int start=0; start+length<=sequence.length(); start++){
+					String window = sequence.substring(start, start+length);
+					assertEquals(ambiguity.matcher(window).matches(), mask.windowContains(SequenceFilterMask.AMBIGUITY_CODE, start, length));
+					assertEquals(masked.matcher(window).matches(), mask.windowContains(SequenceFilterMask.MASKED_BASE, start, length));
+					assertEquals(repeat.matcher(window).matches(), mask.windowContains(SequenceFilterMask.SINGLE_NUCLEOTIDE_REPEAT, start, length));
+					assertEquals(site.matcher(window).matches(), mask.windowContains(SequenceFilterMask.RESTRICTION_SITE, start, length));
+				}
+			}
+		}
+	}
+
+	public void testReverseComplementSite() {
+		SequenceFilterAutomaton filter = new SequenceFilterAutomaton(5, "GGATG");
+		SequenceFilterMask mask = filter.scan("ACATCCA".toCharArray());
+		assertTrue(mask.windowContains(SequenceFilterMask.RESTRICTION_SITE, 1, 5));
+		assertFalse(mask.windowContains(SequenceFilterMask.RESTRICTION_SITE, 2, 5));
+		assertFalse(mask.windowContains(SequenceFilterMask.RESTRICTION_SITE, 1, 4));
+	}
+
+	public void testWithoutEnzyme() {
+		SequenceFilterAutomaton filter = new SequenceFilterAutomaton(5, null);
+		SequenceFilterMask mask = filter.scan("ACGTTTTTGC".toCharArray());
+		assertFalse(mask.windowContains(SequenceFilterMask.RESTRICTION_SITE, 0, 10));
+		assertTrue(mask.windowContains(SequenceFilterMask.SINGLE_NUCLEOTIDE_REPEAT, 0, 10));
+		assertFalse(mask.windowContains(SequenceFilterMask.SINGLE_NUCLEOTIDE_REPEAT, 4, 6));
+		assertTrue(filter.isCompiledFor(5, ""));
+		assertFalse(filter.isCompiledFor(4, null));
+	}
+}
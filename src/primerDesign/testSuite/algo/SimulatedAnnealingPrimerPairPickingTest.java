@@ -0,0 +1,132 @@
+package primerDesign.testSuite.algo;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.biojava.bio.molbio.RestrictionEnzyme;
+import org.biojava.bio.seq.DNATools;
+import org.biojava.bio.symbol.IllegalAlphabetException;
+import org.biojava.bio.symbol.IllegalSymbolException;
+
+import primerDesign.algo.BranchAndBoundPrimerPairPicking;
+import primerDesign.algo.SimulatedAnnealingPrimerPairPicking;
+import primerDesign.dsc.Primer;
+import primerDesign.dsc.PrimerAcceptanceLevel;
+import primerDesign.dsc.PrimerCandidateTable;
+import primerDesign.dsc.PrimerPairSet;
+import primerDesign.dsc.PrimerTypes;
+import primerDesign.dsc.RestrictionSite;
+import primerDesign.dsc.indexStructures.primerMisprimingCheck.PrimerMisprimingCheck;
+import primerDesign.util.PrimerSearchParameters;
+
+/**
+ * This unit test checks that the incremental scores of the simulated annealing primer pair picking equal their full recomputation
+ * after each move and that the primer pair sets picked are valid.
+ */
+public class SimulatedAnnealingPrimerPairPickingTest extends TestCase {
+	private static final int REGION_LENGTH = 80;
+
+	private RestrictionEnzyme enzyme;
+
+	protected void setUp() throws IllegalAlphabetException, IllegalSymbolException {
+		this.enzyme = new RestrictionEnzyme("EcoRI", DNATools.createDNA("gaattc"), 0, 0);
+	}
+
+	public void testIncrementalScores() {
+		int picked = 0;
+		for(int seed=0; seed<6; seed++){
+			PrimerSearchParameters params = createParams();
+			params.setSA_RANDOM_SEED(seed);
+			// primers are checked for misprimings lazily while annealing, changing the validity of assigned primer pairs
+			RestrictionSite[] sites = createSites(params, new Random(seed), 4);
+			SimulatedAnnealingPrimerPairPicking picker = new SimulatedAnnealingPrimerPairPicking();
+			picker.setRunDebugAssertions(true);
+			if(picker.pickBestPrimerSet(sites, params) != null) picked++;
+		}
+		assertTrue(picked > 0);
+	}
+
+	public void testPickValidPrimerSet() {
+		for(int seed=0; seed<4; seed++){
+			PrimerSearchParameters params = createParams();
+			params.setSA_RANDOM_SEED(seed);
+			RestrictionSite[] sites = createSites(params, new Random(3), 4);
+			PrimerPairSet picked = new SimulatedAnnealingPrimerPairPicking().pickBestPrimerSet(sites, params);
+			BranchAndBoundPrimerPairPicking exact = new BranchAndBoundPrimerPairPicking();
+			PrimerPairSet optimal = exact.pickBestPrimerSet(sites, params);
+			assertTrue(exact.isOptimal());
+
+			assertNotNull(picked);
+			assertEquals(sites.length, picked.size());
+			// the melting temperatures pass the check of greedy primer pair set extension
+			PrimerPairSet prefix = new PrimerPairSet(params);
+			for(int i=0; i<picked.size(); i++){
+				assertSame(sites[i], picked.getPrimerPair(i).getForwardPrimer().getRestrictionSite());
+				assertFalse(picked.getPrimerPair(i).containsUnacceptablePrimers());
+				assertTrue(prefix.hasCompatibleMeltingTemps(picked.getPrimerPair(i), params));
+				prefix.addPrimerPair(picked.getPrimerPair(i), -1, -1);
+			}
+			assertTrue(picked.getMaxPairAlignScore() <= params.getMAX_PRIMER_PAIR_ALIGNMENT_SCORE());
+			assertTrue(picked.getMaxPairAlignEndScore() <= params.getMAX_PRIMER_PAIR_END_ALIGNMENT_SCORE());
+			assertTrue(score(picked, params) >= score(optimal, params) - 1e-9);
+		}
+	}
+
+	private static double score(PrimerPairSet set, PrimerSearchParameters params){
+		return set.getHomogenityScore() * params.getPRIMER_PAIR_HOMOGENITY_WEIGHT() + set.getAvgDistOptPrimerPair() * params.getPRIMER_PAIR_DOPT_WEIGHT()
+			+ ((double) set.getMaxPairAlignScore()) / params.getMAX_PRIMER_PAIR_ALIGNMENT_SCORE() * params.getPAIR_ALIGNMENT_WEIGHT()
+			+ ((double) set.getMaxPairAlignEndScore()) / params.getMAX_PRIMER_PAIR_END_ALIGNMENT_SCORE() * params.getPAIR_END_ALIGNMENT_WEIGHT();
+	}
+
+	private static PrimerSearchParameters createParams(){
+		PrimerSearchParameters params = new PrimerSearchParameters();
+		params.setPRINT_DEBUG_LOG(false);
+		params.setPickTaqManProbe(true);
+		params.setMAX_PRIMER_TM_DIFFERENCE(1.5);
+		params.setSA_NUM_MOVES(5000);
+		params.setPrimerMisprimingCheck(new PrimerMisprimingCheck(){
+			// rejects some primers to cover the lazy mispriming check
+			public boolean hasMisprimings(Primer primer){
+				return primer.getSequence().endsWith("CA");
+			}
+			public void setPrimerSearchParams(PrimerSearchParameters params){}
+		});
+		return params;
+	}
+
+	/**
+	 * Creates restriction sites of a few primers each.
+	 */
+	private RestrictionSite[] createSites(PrimerSearchParameters params, Random random, int count){
+		RestrictionSite[] result = new RestrictionSite[count];
+		for(int i=0; i<count; i++){
+			RestrictionSite site = new RestrictionSite(1000 * (i + 1), this.enzyme, params);
+			site.setForwardScanSequence(createRegion(random));
+			site.setReverseScanSequence(createRegion(random));
+			site.setProbeScanSequence(createRegion(random));
+			site.setDistanceToIntervalMean(0);
+			site.setValidUpstreamPrimers(createCandidates(PrimerTypes.forwardPrimer, site.getForwardScanSequence(), site, params, random, 4, 56.0));
+			site.setValidDownstreamPrimers(createCandidates(PrimerTypes.reversePrimer, site.getReverseScanSequence(), site, params, random, 4, 56.0));
+			site.setValidTaqManProbes(createCandidates(PrimerTypes.hybridizationProbe, site.getProbeScanSequence(), site, params, random, 2, 63.0));
+			result[i] = site;
+		}
+		return result;
+	}
+
+	private static PrimerCandidateTable createCandidates(PrimerTypes type, char[] region, RestrictionSite site, PrimerSearchParameters params, Random random, int count, double minTm){
+		PrimerCandidateTable candidates = new PrimerCandidateTable(type, region, site, params);
+		int length;
+		for(int i=0; i<count; i++){
+			length = 18 + random.nextInt(5);
+			candidates.add(random.nextInt(REGION_LENGTH - length), length, i, 100 + random.nextInt(50), minTm + 0.5 * random.nextInt(4), 0.45 + 0.05 * random.nextInt(3), 4, 2, PrimerAcceptanceLevel.NOT_TESTED);
+		}
+		return candidates;
+	}
+
+	private static char[] createRegion(Random random){
+		char[] result = new char[REGION_LENGTH];
+		for(int i=0; i<result.length; i++) result[i] = "ACGT".charAt(random.nextInt(4));
+		return result;
+	}
+}
@@ -0,0 +1,181 @@
+package primerDesign.testSuite.algo;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import junit.framework.TestCase;
+import primerDesign.algo.PrimerSearch;
+import primerDesign.algo.SequenceFilterAutomaton;
+import primerDesign.algo.SequenceRegionAligner;
+import primerDesign.algo.SlidingWindowPrimerEnumerator;
+import primerDesign.dsc.Primer;
+import primerDesign.dsc.PrimerAlignmentScores;
+import primerDesign.dsc.PrimerCandidateTable;
+import primerDesign.dsc.PrimerSearchStatistics;
+import primerDesign.dsc.PrimerTypes;
+import primerDesign.dsc.SequenceRegionAlignment;
+import primerDesign.dsc.indexStructures.primerMisprimingCheck.PrimerMisprimingCheck;
+import primerDesign.dsc.indexStructures.primerMisprimingCheck.ThreePrimeEndMisprimingCheck;
+import primerDesign.util.Constants;
+import primerDesign.util.PrimerSearchParameters;
+import primerDesign.util.SeqTools;
+import cern.colt.list.ObjectArrayList;
+
+/**
+ * This unit test checks that the sliding window primer enumerator returns the same primers as the former enumeration
+ * building and checking each candidate sequence by regular expressions.
+ */
+public class SlidingWindowPrimerEnumeratorTest extends TestCase {
+	private static final String SITE = "GAATTC";
+	private static final Pattern ambiguityCodePattern = Pattern.compile(".*[MRWSYKVHDB].*");
+	private static final Pattern repetitiveElementPattern = Pattern.compile(".*" + Constants.REPETITIVE_ELEMENT_CHARACTER.toUpperCase() + ".*");
+
+	private PrimerSearchParameters params;
+	private String region;
+
+	protected void setUp(){
+		this.params = new PrimerSearchParameters();
+		this.params.setPRINT_DEBUG_LOG(false);
+		this.params.setPrimerMisprimingCheck(new PrimerMisprimingCheck(){
+			// rejects some valid primers to cover the mispriming check
+			public boolean hasMisprimings(Primer primer){
+				return primer.getSequence().endsWith("CA");
+			}
+			public void setPrimerSearchParams(PrimerSearchParameters params){}
+		});
+		Random random = new Random(3);
+		StringBuilder sequence = new StringBuilder();
+		for(int i=0; i<400; i++) sequence.append("ACGT".charAt(random.nextInt(4)));
+		// masked bases, ambiguity codes, single nucleotide repeats and restriction sites in both orientations
+		sequence.replace(40, 43, "NNN");
+		sequence.setCharAt(90, 'R');
+		sequence.replace(130, 137, "AAAAAAA");
+		sequence.replace(200, 206, SITE);
+		sequence.replace(300, 306, SeqTools.revcompDNA("GAGCTC".toCharArray()));
+		this.region = sequence.toString().toLowerCase();
+	}
+
+	public void testEnumerateSameCandidates(){
+		for(PrimerTypes type : new PrimerTypes[]{PrimerTypes.forwardPrimer, PrimerTypes.reversePrimer, PrimerTypes.hybridizationProbe}){
+			int minLength = (type == PrimerTypes.hybridizationProbe) ? this.params.getTAQMAN_MIN_PRIMER_LENGTH() : this.params.getMIN_PRIMER_LENGTH();
+			int maxLength = (type == PrimerTypes.hybridizationProbe) ? this.params.getTAQMAN_MAX_PRIMER_LENGTH() : this.params.getMAX_PRIMER_LENGTH();
+			int regionStart = (type == PrimerTypes.forwardPrimer) ? 1000 : 2000;
+			int fivePrimeDistToRSS = (type == PrimerTypes.hybridizationProbe) ? 1 : 500;
+
+			SlidingWindowPrimerEnumerator enumerator = new SlidingWindowPrimerEnumerator(this.params, new SequenceFilterAutomaton(this.params.getMAX_POLY_X_LENGTH(), SITE), new PrimerSearchStatistics(), false);
+			Primer[] primers = enumerator.enumeratePrimers(this.region.toCharArray(), type, minLength, maxLength, regionStart, false, fivePrimeDistToRSS, null);
+			ArrayList<Primer> expected = enumerateNaively(type, minLength, maxLength, regionStart, fivePrimeDistToRSS);
+
+			assertTrue(expected.size() > 0);
+			assertEquals(expected.size(), primers.length);
+			for(int i=0; i<primers.length; i++){
+				assertEquals(expected.get(i).getSequence(), primers[i].getSequence());
+				assertEquals(expected.get(i).getRelativePosition(), primers[i].getRelativePosition());
+				assertEquals(expected.get(i).getDistanceToRSS(), primers[i].getDistanceToRSS());
+				assertEquals(expected.get(i).getMeltingTemp(), primers[i].getMeltingTemp(), 1e-9); // the nearest-neighbor terms are summed in a different order
+				assertEquals(expected.get(i).getGcContent(), primers[i].getGcContent(), 0.0);
+				assertEquals(expected.get(i).getSelfAlignmentScore(), primers[i].getSelfAlignmentScore());
+				assertEquals(expected.get(i).getSelfEndAlignmentScore(), primers[i].getSelfEndAlignmentScore());
+			}
+			assertEquals(countCandidates(minLength, maxLength), enumerator.getCandidateCount());
+		}
+	}
+
+	public void testSharedThreePrimeEndQuery(){
+		final int endLength = 8;
+		final ArrayList<String> queries = new ArrayList<String>();
+		final int[] verdicts = new int[1];
+		PrimerMisprimingCheck reference = this.params.getPrimerMisprimingCheck();
+		// rejects the same primers as the check of setUp(), but only by their 3' end hits
+		this.params.setPrimerMisprimingCheck(new ThreePrimeEndMisprimingCheck(){
+			public int getThreePrimeEndLength(){
+				return endLength;
+			}
+			public ObjectArrayList findThreePrimeEndHits(String threePrimeEnd){
+				queries.add(threePrimeEnd);
+				return new ObjectArrayList(new Object[]{threePrimeEnd});
+			}
+			public boolean mayHaveMisprimings(ObjectArrayList threePrimeEndHits){
+				verdicts[0]++;
+				return ((String) threePrimeEndHits.get(0)).endsWith("CA");
+			}
+			public boolean hasMisprimings(Primer primer, ObjectArrayList threePrimeEndHits){
+				assertTrue(primer.getSequence().endsWith((String) threePrimeEndHits.get(0)));
+				return primer.getSequence().endsWith("CA");
+			}
+			public boolean hasMisprimings(Primer primer){
+				fail("Primers longer than their 3' end must be checked by their 3' end hits");
+				return true;
+			}
+			public void setPrimerSearchParams(PrimerSearchParameters params){}
+		});
+		PrimerTypes type = PrimerTypes.forwardPrimer;
+		int minLength = this.params.getMIN_PRIMER_LENGTH();
+		int maxLength = this.params.getMAX_PRIMER_LENGTH();
+
+		SlidingWindowPrimerEnumerator enumerator = new SlidingWindowPrimerEnumerator(this.params, new SequenceFilterAutomaton(this.params.getMAX_POLY_X_LENGTH(), SITE), new PrimerSearchStatistics(), false);
+		PrimerCandidateTable candidates = enumerator.enumerateValidCandidates(this.region.toCharArray(), type, minLength, maxLength, 1000, 500, null);
+		HashSet<Integer> ends = new HashSet<Integer>();
+		for(int row=0; row<candidates.size(); row++) ends.add(candidates.getStart(row) + candidates.getLength(row));
+		int valid = candidates.size();
+		enumerator.checkMisprimings(candidates);
+
+		// each distinct 3' end of the candidates is queried and judged once, each candidate is checked
+		assertTrue(ends.size() < valid);
+		assertEquals(ends.size(), queries.size());
+		assertEquals(ends.size(), verdicts[0]);
+		assertEquals(valid, enumerator.getIndexQueryCount());
+
+		this.params.setPrimerMisprimingCheck(reference);
+		ArrayList<Primer> expected = enumerateNaively(type, minLength, maxLength, 1000, 500);
+		assertTrue(expected.size() < valid);
+		assertEquals(expected.size(), candidates.size());
+		for(int row=0; row<candidates.size(); row++) assertEquals(expected.get(row).getSequence(), candidates.getSequence(row));
+	}
+
+	/**
+	 * Enumerates the valid primers of the scan region as the former enumeration did: by creating each candidate sequence and primer.
+	 */
+	private ArrayList<Primer> enumerateNaively(PrimerTypes type, int minLength, int maxLength, int regionStart, int fivePrimeDistToRSS){
+		ArrayList<Primer> result = new ArrayList<Primer>();
+		boolean isProbe = type == PrimerTypes.hybridizationProbe;
+		SequenceRegionAlignment alignment = SequenceRegionAligner.alignSequenceRegions(this.region.toCharArray(), this.region.toCharArray(), this.params.getA_t_basepair_score(), this.params.getG_c_basepair_score());
+		String reverseSite = SeqTools.revcompDNA(SITE.toCharArray());
+		for(int length=minLength; length<=maxLength; length++){
+			for(int j=0; j+length<=this.region.length(); j++){
+				String sequence = this.region.substring(j, j + length).toUpperCase();
+				if(ambiguityCodePattern.matcher(sequence).matches()) continue;
+				if(this.params.getSINGLE_NUCLEOTIDE_REPEAT_PATTERN().matcher(sequence).matches()) continue;
+				if(!PrimerSearch.matchesGCClampPattern(sequence, this.params)) continue;
+				if(repetitiveElementPattern.matcher(sequence).matches() || sequence.contains(SITE) || sequence.contains(reverseSite)) continue;
+
+				PrimerAlignmentScores scores = alignment.getGlobalAlignmentValues(j, length, j, length);
+				Primer primer = new Primer(sequence, type, (type == PrimerTypes.forwardPrimer) ? regionStart + j : regionStart - j, scores.getPairScore(), scores.getPairEndScore(), this.params);
+				primer.setDistanceToRSS(isProbe ? fivePrimeDistToRSS + j : fivePrimeDistToRSS - j);
+				boolean isValid;
+				if(isProbe){
+					isValid = primer.getGcContent() >= this.params.getTAQMAN_MIN_GC() && primer.getGcContent() <= this.params.getTAQMAN_MAX_GC()
+						&& primer.getMeltingTemp() >= this.params.getTAQMAN_MIN_TM() && primer.getMeltingTemp() <= this.params.getTAQMAN_MAX_TM()
+						&& primer.getSelfAlignmentScore() <= this.params.getMAX_TAQMAN_SELF_ALIGNMENT_SCORE() && primer.getSelfEndAlignmentScore() <= this.params.getMAX_TAQMAN_SELF_END_ALIGNMENT_SCORE()
+						&& sequence.charAt(0) != 'G';
+				}
+				else{
+					isValid = primer.getGcContent() >= this.params.getMIN_GC() && primer.getGcContent() <= this.params.getMAX_GC()
+						&& primer.getMeltingTemp() >= this.params.getMIN_TM() && primer.getMeltingTemp() <= this.params.getMAX_TM()
+						&& primer.getSelfAlignmentScore() <= this.params.getMAX_PRIMER_SELF_ALIGNMENT_SCORE() && primer.getSelfEndAlignmentScore() <= this.params.getMAX_PRIMER_SELF_END_ALIGNMENT_SCORE()
+						&& (!Constants.doEarlyMMScan || !this.params.getPrimerMisprimingCheck().hasMisprimings(primer));
+				}
+				if(isValid) result.add(primer);
+			}
+		}
+		return result;
+	}
+
+	private int countCandidates(int minLength, int maxLength){
+		int count = 0;
+		for(int length=minLength; length<=maxLength; length++) count += Math.max(0, this.region.length() - length + 1);
+		return count;
+	}
+}
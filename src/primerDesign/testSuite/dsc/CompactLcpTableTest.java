@@ -0,0 +1,71 @@
+package primerDesign.testSuite.dsc;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import junit.framework.TestCase;
+import primerDesign.dsc.indexStructures.esa.CompactLcpTable;
+
+public class CompactLcpTableTest extends TestCase {
+
+	public void testGetSet() throws Exception {
+		int[] values = {0, 1, 254, 255, 256, 3, 100000, 7, 255, 0};
+		CompactLcpTable table = new CompactLcpTable(values.length);
+		for(int i=0; i<values.length; i++) table.set(i, values[i]);
+
+		assertEquals(values.length, table.length());
+		assertEquals(4, table.getExceptionCount());
+		for(int i=0; i<values.length; i++) assertEquals(values[i], table.get(i));
+
+		// exceptions may be set out of order, replaced and removed
+		table.set(1, 300);
+		table.set(4, 12);
+		table.set(6, 5000);
+		assertEquals(4, table.getExceptionCount());
+		assertEquals(300, table.get(1));
+		assertEquals(255, table.get(3));
+		assertEquals(12, table.get(4));
+		assertEquals(5000, table.get(6));
+		assertEquals(255, table.get(8));
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(table);
+		out.close();
+		CompactLcpTable copy = (CompactLcpTable) new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+		for(int i=0; i<values.length; i++) assertEquals(table.get(i), copy.get(i));
+
+		table.clear();
+		assertEquals(0, table.getExceptionCount());
+		for(int i=0; i<values.length; i++) assertEquals(0, table.get(i));
+	}
+
+	public void testMappedGetSet() throws Exception {
+		long[] values = {0, 1, 254, 255, 256, 3, 5000000000L, 7, 255, 0};
+		File file = File.createTempFile("lcptab", null);
+		try{
+			CompactLcpTable table = new CompactLcpTable(file, values.length);
+			for(int i=0; i<values.length; i++) table.set(i, values[i]);
+
+			// the byte table is stored in the file, the exceptions remain in memory
+			assertEquals(values.length, file.length());
+			assertEquals(values.length, table.length());
+			assertEquals(4, table.getExceptionCount());
+			for(int i=0; i<values.length; i++) assertEquals(values[i], table.get(i));
+
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			ObjectOutputStream out = new ObjectOutputStream(bytes);
+			out.writeObject(table);
+			out.close();
+			CompactLcpTable copy = (CompactLcpTable) new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+			assertEquals(values.length, copy.length());
+			for(int i=0; i<values.length; i++) assertEquals(values[i], copy.get(i));
+		}
+		finally{
+			file.delete();
+		}
+	}
+}
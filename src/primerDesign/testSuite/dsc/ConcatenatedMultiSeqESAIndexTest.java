@@ -0,0 +1,183 @@
+package primerDesign.testSuite.dsc;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import primerDesign.dsc.indexStructures.IndexHit;
+import primerDesign.dsc.indexStructures.MultiSeqIndex;
+import primerDesign.dsc.indexStructures.esa.ConcatenatedMultiSeqESAIndex;
+import primerDesign.dsc.indexStructures.esa.EnhancedSuffixArrayFatOpt;
+import primerDesign.util.SeqTools;
+import primerDesign.util.SimpleContig;
+import primerDesign.util.SimpleContigImpl;
+import primerDesign.util.SlimFastaParser;
+import cern.colt.list.ObjectArrayList;
+
+/**
+ * This unit test checks that the concatenated multi-sequence index finds the same hits as a multi-sequence index of one enhanced suffix array
+ * per contig, and that it reports the contigs and their lengths without the separators.
+ */
+public class ConcatenatedMultiSeqESAIndexTest extends TestCase {
+
+	private File fastaFile;
+	private String[] ids = {"chr1", "chr2", "chr3", "chr4", "chr5"};
+	private char[][] contigs;
+	private MultiSeqIndex expected;
+
+	protected void setUp() throws IOException {
+		Random random = new Random(11);
+		int[] lengths = {700, 1, 2000, 300, 1200};
+		this.contigs = new char[lengths.length][];
+		for(int i=0; i<lengths.length; i++){
+			this.contigs[i] = new char[lengths[i]];
+			for(int j=0; j<lengths[i]; j++) this.contigs[i][j] = "ACGT".charAt(random.nextInt(4));
+		}
+		// repeats within and across contigs, some of them adjacent to contig boundaries
+		System.arraycopy(this.contigs[0], 100, this.contigs[2], 1980, 20);
+		System.arraycopy(this.contigs[0], 100, this.contigs[3], 0, 20);
+		System.arraycopy(this.contigs[0], 100, this.contigs[4], 500, 50);
+		System.arraycopy(this.contigs[4], 1150, this.contigs[0], 0, 50);
+
+		this.fastaFile = File.createTempFile("contigs", ".fa");
+		FileWriter writer = new FileWriter(this.fastaFile);
+		for(int i=0; i<this.contigs.length; i++){
+			writer.write(">" + this.ids[i] + " contig " + i + "\n");
+			for(int j=0; j<this.contigs[i].length; j+=60) writer.write(new String(this.contigs[i], j, Math.min(60, this.contigs[i].length - j)).toLowerCase() + "\n");
+		}
+		writer.close();
+
+		this.expected = new PerContigIndex(this.fastaFile);
+		this.expected.createIndex();
+	}
+
+	protected void tearDown(){
+		this.fastaFile.delete();
+	}
+
+	public void testFindHits() throws IOException {
+		ConcatenatedMultiSeqESAIndex index = new ConcatenatedMultiSeqESAIndex(this.fastaFile);
+		index.createIndex();
+		ArrayList<String> queries = new ArrayList<String>();
+		Random random = new Random(5);
+		for(int i=0; i<300; i++){
+			// queries are as long as primer ends at least, shorter ones are not located by the bucket table and may miss occurrences in any enhanced suffix array
+			char[] contig = this.contigs[(i % 2 == 0) ? 0 : 2 + random.nextInt(3)];
+			int length = 8 + random.nextInt(Math.min(13, contig.length - 7));
+			int start = random.nextInt(contig.length - length + 1);
+			queries.add(new String(contig, start, length));
+		}
+		// queries spanning two adjacent contigs must not match across their boundary
+		for(int i=0; i+1<this.contigs.length; i++){
+			queries.add(new String(this.contigs[i], Math.max(0, this.contigs[i].length - 5), Math.min(5, this.contigs[i].length)) + new String(this.contigs[i + 1], 0, Math.min(5, this.contigs[i + 1].length)));
+			queries.add(new String(this.contigs[i], Math.max(0, this.contigs[i].length - 9), Math.min(9, this.contigs[i].length)) + new String(this.contigs[i + 1], 0, Math.min(9, this.contigs[i + 1].length)));
+		}
+		queries.add("ACGTACGTACGTACGTACGTACGT");
+
+		for(String query : queries){
+			ObjectArrayList hits = index.findHitPositions(query.toLowerCase());
+			assertEquals(query, toStrings(this.expected.findHitPositions(query)), toStrings(hits));
+			assertEquals(query, this.expected.findHitCount(query), index.findHitCount(query));
+			for(int i=0; i<hits.size(); i++){
+				IndexHit hit = (IndexHit) hits.get(i);
+				assertEquals(query, new String(hit.getSequence(query.length())));
+			}
+			assertEquals(query, toStrings(select(hits, true)), toStrings(index.findForwardHits(query)));
+			assertEquals(query, toStrings(select(hits, false)), toStrings(index.findReverseHits(query)));
+			assertEquals(query, toStrings(index.findReverseHits(query)), toStrings(index.findForwardHits(SeqTools.revcompDNA(query.toCharArray()))).replace(":true", ":false"));
+		}
+	}
+
+	public void testContigsAndLength() {
+		ConcatenatedMultiSeqESAIndex index = new ConcatenatedMultiSeqESAIndex(createContigs(), "contigs");
+		index.createIndex();
+		int length = 0;
+		for(int i=0; i<this.contigs.length; i++) length += this.contigs[i].length;
+		assertEquals(length, index.getSequenceLength());
+		assertEquals(this.expected.getSequenceLength(), index.getSequenceLength());
+		HashMap<Character, Integer> statistics = new HashMap<Character, Integer>();
+		for(int i=0; i<this.contigs.length; i++){
+			for(char c : this.contigs[i]) statistics.put(c, statistics.containsKey(c) ? statistics.get(c) + 1 : 1);
+		}
+		assertEquals(statistics, index.getStatistics());
+
+		SimpleContigImpl[] indexContigs = index.getContig();
+		assertEquals(this.contigs.length, index.getNumberOfContigs());
+		assertEquals(this.contigs.length, indexContigs.length);
+		for(int i=0; i<this.contigs.length; i++){
+			assertEquals(this.ids[i], indexContigs[i].getID());
+			assertEquals(this.contigs[i].length, indexContigs[i].getSequenceLength());
+			assertEquals(new String(this.contigs[i]), new String(indexContigs[i].getSequence()));
+			assertEquals(new String(this.contigs[i], 0, 1), indexContigs[i].getSubsequence(0, 1));
+			assertEquals(new String(this.contigs[i], this.contigs[i].length - 1, 1), indexContigs[i].getSubsequence(this.contigs[i].length - 1, this.contigs[i].length));
+		}
+		try{
+			indexContigs[1].getSubsequence(0, 2);
+			fail("Subsequences must not extend beyond their contig");
+		}
+		catch(IndexOutOfBoundsException e){
+			;
+		}
+	}
+
+	private SimpleContigImpl[] createContigs(){
+		SimpleContigImpl[] result = new SimpleContigImpl[this.contigs.length];
+		for(int i=0; i<result.length; i++) result[i] = new SimpleContigImpl(this.ids[i], this.contigs[i].clone());
+		return result;
+	}
+
+	private static ObjectArrayList select(ObjectArrayList hits, boolean isForward){
+		ObjectArrayList result = new ObjectArrayList();
+		for(int i=0; i<hits.size(); i++){
+			if(((IndexHit) hits.get(i)).isForwardHit() == isForward) result.add(hits.get(i));
+		}
+		return result;
+	}
+
+	/**
+	 * A multi-sequence index of one enhanced suffix array per contig.
+	 */
+	private static class PerContigIndex extends MultiSeqIndex {
+		private static final long serialVersionUID = 1L;
+
+		PerContigIndex(File file){
+			super(file);
+		}
+
+		public void createIndex(){
+			try{
+				SlimFastaParser parser = new SlimFastaParser(this.fastaFile);
+				SimpleContig contig;
+				EnhancedSuffixArrayFatOpt index;
+				while(parser.hasNextContig()){
+					contig = parser.parseNextContigIgnoreCase();
+					index = new EnhancedSuffixArrayFatOpt(contig.getSequence(), contig.getID());
+					index.createIndex();
+					this.putIndex(contig.getID(), index);
+				}
+			}
+			catch(IOException e){
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+	/**
+	 * Returns the sorted contig names, positions and strands of a list of hits.
+	 */
+	private static String toStrings(ObjectArrayList hits){
+		ArrayList<String> result = new ArrayList<String>();
+		IndexHit hit;
+		for(int i=0; i<hits.size(); i++){
+			hit = (IndexHit) hits.get(i);
+			result.add(hit.getContigName() + ":" + hit.getPosition() + ":" + hit.isForwardHit());
+		}
+		Collections.sort(result);
+		return result.toString();
+	}
+}
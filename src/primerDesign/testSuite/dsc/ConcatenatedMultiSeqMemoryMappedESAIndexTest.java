@@ -0,0 +1,140 @@
+package primerDesign.testSuite.dsc;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import primerDesign.algo.ExternalESAConstruction;
+import primerDesign.algo.ParallelESAConstruction;
+import primerDesign.dsc.indexStructures.IndexHit;
+import primerDesign.dsc.indexStructures.esa.ConcatenatedMultiSeqESAIndex;
+import primerDesign.dsc.indexStructures.esa.ConcatenatedMultiSeqMemoryMappedESAIndex;
+import primerDesign.util.SimpleContigImpl;
+import cern.colt.list.ObjectArrayList;
+
+/**
+ * This unit test checks that the memory mapped concatenated multi-sequence index finds the same hits as the in-memory concatenated
+ * multi-sequence index, both when reading the contigs from a file and when given the contigs, after deserializing it and when constructed
+ * in external memory.
+ */
+public class ConcatenatedMultiSeqMemoryMappedESAIndexTest extends TestCase {
+
+	private File directory;
+	private File fastaFile;
+	private String[] ids = {"chr1", "chr2", "chr3", "chr4"};
+	private char[][] contigs;
+	private ConcatenatedMultiSeqESAIndex expected;
+
+	protected void setUp() throws IOException {
+		Random random = new Random(13);
+		int[] lengths = {900, 1, 1500, 400};
+		this.contigs = new char[lengths.length][];
+		for(int i=0; i<lengths.length; i++){
+			this.contigs[i] = new char[lengths[i]];
+			for(int j=0; j<lengths[i]; j++) this.contigs[i][j] = "ACGT".charAt(random.nextInt(4));
+		}
+		// repeats within and across contigs, some of them adjacent to contig boundaries
+		System.arraycopy(this.contigs[0], 200, this.contigs[2], 1470, 30);
+		System.arraycopy(this.contigs[0], 200, this.contigs[3], 0, 30);
+		System.arraycopy(this.contigs[2], 700, this.contigs[2], 100, 60);
+
+		// the index files are named after the fasta file and stored next to it
+		this.directory = File.createTempFile("mappedIndex", null);
+		this.directory.delete();
+		this.directory.mkdir();
+		this.fastaFile = new File(this.directory, "contigs.fa");
+		FileWriter writer = new FileWriter(this.fastaFile);
+		for(int i=0; i<this.contigs.length; i++){
+			writer.write(">" + this.ids[i] + "\n");
+			for(int j=0; j<this.contigs[i].length; j+=60) writer.write(new String(this.contigs[i], j, Math.min(60, this.contigs[i].length - j)) + "\n");
+		}
+		writer.close();
+
+		this.expected = new ConcatenatedMultiSeqESAIndex(createContigs(), "contigs");
+		this.expected.createIndex();
+	}
+
+	protected void tearDown(){
+		for(File file : this.directory.listFiles()) file.delete();
+		this.directory.delete();
+	}
+
+	public void testFileIndex() throws IOException {
+		ConcatenatedMultiSeqMemoryMappedESAIndex index = new ConcatenatedMultiSeqMemoryMappedESAIndex(this.fastaFile, new ParallelESAConstruction(2));
+		index.createIndex();
+		checkIndex(index);
+	}
+
+	public void testExternalConstruction() throws IOException {
+		// a memory budget smaller than the concatenated contigs
+		ConcatenatedMultiSeqMemoryMappedESAIndex index = new ConcatenatedMultiSeqMemoryMappedESAIndex(this.fastaFile, new ExternalESAConstruction(1024));
+		index.createIndex();
+		checkIndex(index);
+	}
+
+	public void testContigIndex() throws IOException {
+		ConcatenatedMultiSeqMemoryMappedESAIndex index = new ConcatenatedMultiSeqMemoryMappedESAIndex(createContigs(), "contigs", new File(this.directory, "index").getAbsolutePath(), new ParallelESAConstruction(2));
+		index.createIndex();
+		checkIndex(index);
+
+		File serialized = new File(this.directory, "index.esaidx");
+		index.serialize(serialized);
+		checkIndex(ConcatenatedMultiSeqMemoryMappedESAIndex.deserialize(serialized));
+	}
+
+	private void checkIndex(ConcatenatedMultiSeqMemoryMappedESAIndex index){
+		assertEquals(this.expected.getSequenceLength(), index.getSequenceLength());
+		assertEquals(this.expected.getStatistics(), index.getStatistics());
+
+		SimpleContigImpl[] indexContigs = index.getContig();
+		assertEquals(this.contigs.length, index.getNumberOfContigs());
+		for(int i=0; i<this.contigs.length; i++){
+			assertEquals(this.ids[i], indexContigs[i].getID());
+			assertEquals(this.contigs[i].length, indexContigs[i].getSequenceLength());
+			assertEquals(new String(this.contigs[i]), new String(indexContigs[i].getSequence()));
+			assertEquals(new String(this.contigs[i], this.contigs[i].length - 1, 1), indexContigs[i].getSubsequence(this.contigs[i].length - 1, this.contigs[i].length));
+		}
+
+		ArrayList<String> queries = new ArrayList<String>();
+		Random random = new Random(7);
+		for(int i=0; i<200; i++){
+			// queries are as long as primer ends at least, shorter ones are not located by the bucket table
+			char[] contig = this.contigs[(i % 3 == 0) ? 0 : 2 + random.nextInt(2)];
+			int length = 8 + random.nextInt(13);
+			int start = random.nextInt(contig.length - length + 1);
+			queries.add(new String(contig, start, length));
+		}
+		// queries spanning two adjacent contigs must not match across their boundary
+		for(int i=0; i+1<this.contigs.length; i++){
+			queries.add(new String(this.contigs[i], Math.max(0, this.contigs[i].length - 9), Math.min(9, this.contigs[i].length)) + new String(this.contigs[i + 1], 0, Math.min(9, this.contigs[i + 1].length)));
+		}
+		for(String query : queries){
+			assertEquals(query, toStrings(this.expected.findHitPositions(query)), toStrings(index.findHitPositions(query)));
+			assertEquals(query, this.expected.findHitCount(query), index.findHitCount(query));
+		}
+	}
+
+	private SimpleContigImpl[] createContigs(){
+		SimpleContigImpl[] result = new SimpleContigImpl[this.contigs.length];
+		for(int i=0; i<result.length; i++) result[i] = new SimpleContigImpl(this.ids[i], this.contigs[i].clone());
+		return result;
+	}
+
+	/**
+	 * Returns the sorted contig names, positions and strands of a list of hits.
+	 */
+	private static String toStrings(ObjectArrayList hits){
+		ArrayList<String> result = new ArrayList<String>();
+		IndexHit hit;
+		for(int i=0; i<hits.size(); i++){
+			hit = (IndexHit) hits.get(i);
+			result.add(hit.getContigName() + ":" + hit.getPosition() + ":" + hit.isForwardHit());
+		}
+		Collections.sort(result);
+		return result.toString();
+	}
+}
@@ -0,0 +1,75 @@
+package primerDesign.testSuite.dsc;
+
+import junit.framework.TestCase;
+import primerDesign.dsc.Primer;
+import primerDesign.dsc.PrimerAcceptanceLevel;
+import primerDesign.dsc.PrimerCandidateTable;
+import primerDesign.dsc.PrimerTypes;
+import primerDesign.util.PrimerSearchParameters;
+
+public class PrimerCandidateTableTest extends TestCase {
+
+	public void testMaterializePrimers() {
+		PrimerSearchParameters params = new PrimerSearchParameters();
+		char[] region = "ATGCATGCATGCGGCCATATATATATATGCGCGCGCGCGC".toCharArray();
+		PrimerCandidateTable table = new PrimerCandidateTable(PrimerTypes.forwardPrimer, region, null, params);
+		table.add(0, 12, 100, 40, 40.0, 0.5, 4, 2, PrimerAcceptanceLevel.ACCEPTABLE);
+		table.add(16, 12, 116, 24, 60.0, 0.0, 12, 6, PrimerAcceptanceLevel.NOT_TESTED);
+		table.add(28, 12, 128, 12, 55.0, 1.0, 8, 4, PrimerAcceptanceLevel.ACCEPTABLE);
+		assertEquals(3, table.size());
+		assertEquals("ATATATATATAT", table.getSequence(1));
+
+		Primer primer = table.getPrimer(1);
+		assertSame(primer, table.getPrimer(1));
+		assertEquals("ATATATATATAT", primer.getSequence());
+		assertEquals(16, primer.getPositionInScanSequence());
+		assertEquals(24, primer.getDistanceToRSS());
+		assertEquals(PrimerAcceptanceLevel.NOT_TESTED, primer.getAcceptanceLevel());
+		assertEquals(primer.getDistanceToOptimalPrimer(), table.getDistanceToOptimalPrimer(1));
+
+		table.setAcceptanceLevel(1, PrimerAcceptanceLevel.UNACCEPTABLE);
+		assertEquals(PrimerAcceptanceLevel.UNACCEPTABLE, primer.getAcceptanceLevel());
+
+		table.removeLast();
+		assertEquals(2, table.size());
+		assertEquals(2, table.toPrimers().length);
+	}
+
+	public void testSortByDistanceToOptimalPrimer() {
+		PrimerSearchParameters params = new PrimerSearchParameters();
+		char[] region = "ACGTACGTACGTACGTACGTACGTACGTACGT".toCharArray();
+		PrimerCandidateTable table = new PrimerCandidateTable(PrimerTypes.forwardPrimer, region, null, params);
+		double[] temps = {50.0, 70.0, 50.0, 60.0, 45.0, 70.0};
+		for(int i=0; i<temps.length; i++) table.add(i, 20, i, 100, temps[i], 0.5, 4, 2, PrimerAcceptanceLevel.ACCEPTABLE);
+		Primer first = table.getPrimer(0);
+		table.sortByDistanceToOptimalPrimer();
+
+		for(int i=1; i<table.size(); i++){
+			assertTrue(table.getDistanceToOptimalPrimer(i-1) <= table.getDistanceToOptimalPrimer(i));
+			// candidates of equal distance keep their order
+			if(table.getDistanceToOptimalPrimer(i-1) == table.getDistanceToOptimalPrimer(i)) assertTrue(table.getStart(i-1) < table.getStart(i));
+		}
+		for(int i=0; i<table.size(); i++){
+			if(table.getStart(i) == 0) assertSame(first, table.getPrimer(i));
+		}
+	}
+
+	public void testRetain() {
+		PrimerSearchParameters params = new PrimerSearchParameters();
+		char[] region = "ACGTACGTACGTACGTACGTACGTACGTACGT".toCharArray();
+		PrimerCandidateTable table = new PrimerCandidateTable(PrimerTypes.forwardPrimer, region, null, params);
+		for(int i=0; i<5; i++) table.add(i, 20, 100 + i, 50 - i, 60.0, 0.5, 4, 2, PrimerAcceptanceLevel.ACCEPTABLE);
+		Primer third = table.getPrimer(2);
+		table.retain(new boolean[]{false, true, true, false, true});
+
+		assertEquals(3, table.size());
+		int[] starts = {1, 2, 4};
+		for(int i=0; i<starts.length; i++){
+			assertEquals(starts[i], table.getStart(i));
+			assertEquals(100 + starts[i], table.getRelativePosition(i));
+			assertEquals(50 - starts[i], table.getDistanceToRSS(i));
+		}
+		assertSame(third, table.getPrimer(1));
+		assertEquals(3, table.toPrimers().length);
+	}
+}
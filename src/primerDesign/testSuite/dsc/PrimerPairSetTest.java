@@ -0,0 +1,243 @@
+package primerDesign.testSuite.dsc;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import primerDesign.dsc.PrimerPair;
+import primerDesign.dsc.PrimerPairSet;
+import primerDesign.util.PrimerSearchParameters;
+import cern.colt.list.ObjectArrayList;
+
+/**
+ * This unit test checks the persistent primer pair set: its running statistics, the access of pairs by index,
+ * deleting and setting pairs and the independence of copies sharing their pairs.
+ */
+public class PrimerPairSetTest extends TestCase {
+	private PrimerSearchParameters params;
+	private Random random;
+
+	protected void setUp(){
+		this.params = new PrimerSearchParameters();
+		this.params.setPRINT_DEBUG_LOG(false);
+		this.random = new Random(7);
+	}
+
+	public void testRunningStatistics() {
+		PrimerPairSet set = new PrimerPairSet(this.params);
+		ArrayList<PrimerPair> pairs = new ArrayList<PrimerPair>();
+		ArrayList<Integer> saMax = new ArrayList<Integer>();
+		ArrayList<Integer> seaMax = new ArrayList<Integer>();
+		for(int i=0; i<50; i++){
+			pairs.add(this.createPair());
+			saMax.add(this.random.nextInt(20));
+			seaMax.add(this.random.nextInt(10));
+			set.addPrimerPair(pairs.get(i), saMax.get(i), seaMax.get(i));
+			assertStatistics(pairs, saMax, seaMax, set);
+		}
+	}
+
+	public void testGetPrimerPair() {
+		PrimerPairSet set = new PrimerPairSet(this.params);
+		ArrayList<PrimerPair> pairs = new ArrayList<PrimerPair>();
+		for(int i=0; i<300; i++){
+			pairs.add(this.createPair());
+			set.addPrimerPair(pairs.get(i), -1, -1);
+			// every index of every size, reached by following the skip pointers from the last pair
+			for(int j=0; j<=i; j++) assertSame(pairs.get(j), set.getPrimerPair(j));
+		}
+		ObjectArrayList list = set.getPrimerPairs();
+		assertEquals(pairs.size(), list.size());
+		for(int i=0; i<pairs.size(); i++) assertSame(pairs.get(i), list.get(i));
+
+		try{
+			set.getPrimerPair(pairs.size());
+			fail("Indices beyond the set size must not be accessible");
+		}
+		catch(IndexOutOfBoundsException e){
+			;
+		}
+		try{
+			set.getPrimerPair(-1);
+			fail("Negative indices must not be accessible");
+		}
+		catch(IndexOutOfBoundsException e){
+			;
+		}
+	}
+
+	public void testDeleteLastPrimerPair() {
+		PrimerPairSet set = new PrimerPairSet(this.params);
+		ArrayList<PrimerPair> pairs = new ArrayList<PrimerPair>();
+		ArrayList<Integer> saMax = new ArrayList<Integer>();
+		ArrayList<Integer> seaMax = new ArrayList<Integer>();
+		int[] scores = {3, 9, 5, 9, 1, 12, 0};
+		for(int i=0; i<scores.length; i++){
+			pairs.add(this.createPair());
+			saMax.add(scores[i]);
+			seaMax.add(scores[scores.length - i - 1]);
+			set.addPrimerPair(pairs.get(i), saMax.get(i), seaMax.get(i));
+		}
+		// deleting restores the statistics and the maximum alignment scores of the remaining pairs
+		while(pairs.size() > 0){
+			set.deleteLastPrimerPair();
+			pairs.remove(pairs.size() - 1);
+			saMax.remove(saMax.size() - 1);
+			seaMax.remove(seaMax.size() - 1);
+			assertStatistics(pairs, saMax, seaMax, set);
+		}
+		assertEquals(-1, set.getMaxPairAlignScore());
+		assertEquals(-1, set.getMaxPairAlignEndScore());
+		assertTrue(Double.isNaN(set.getAvgDistOptPrimerPair()));
+		try{
+			set.deleteLastPrimerPair();
+			fail("Deleting from an empty set must fail");
+		}
+		catch(IndexOutOfBoundsException e){
+			;
+		}
+	}
+
+	public void testSetPrimerPair() {
+		PrimerPairSet set = new PrimerPairSet(this.params);
+		ArrayList<PrimerPair> pairs = new ArrayList<PrimerPair>();
+		ArrayList<Integer> saMax = new ArrayList<Integer>();
+		ArrayList<Integer> seaMax = new ArrayList<Integer>();
+		for(int i=0; i<20; i++){
+			pairs.add(this.createPair());
+			saMax.add(i == 7 ? 30 : this.random.nextInt(20));
+			seaMax.add(this.random.nextInt(10));
+			set.addPrimerPair(pairs.get(i), saMax.get(i), seaMax.get(i));
+		}
+		PrimerPairSet copy = new PrimerPairSet(set, this.params);
+		ArrayList<PrimerPair> copyPairs = new ArrayList<PrimerPair>(pairs);
+
+		// the replaced pair keeps the alignment scores it was added with, the statistics cover the new pair
+		for(int index : new int[]{7, 0, 19, 12}){
+			pairs.set(index, this.createPair());
+			set.setPrimerPair(index, pairs.get(index));
+			assertStatistics(pairs, saMax, seaMax, set);
+			assertEquals(30, set.getMaxPairAlignScore());
+		}
+		assertStatistics(copyPairs, saMax, seaMax, copy);
+
+		try{
+			set.setPrimerPair(20, this.createPair());
+			fail("Indices beyond the set size must not be accessible");
+		}
+		catch(IndexOutOfBoundsException e){
+			;
+		}
+	}
+
+	public void testCopiesAreIndependent() {
+		PrimerPairSet set = new PrimerPairSet(this.createPair(), this.params);
+		ArrayList<PrimerPair> pairs = new ArrayList<PrimerPair>();
+		ArrayList<Integer> saMax = new ArrayList<Integer>();
+		ArrayList<Integer> seaMax = new ArrayList<Integer>();
+		pairs.add(set.getPrimerPair(0));
+		saMax.add(-1);
+		seaMax.add(-1);
+		for(int i=1; i<10; i++){
+			pairs.add(this.createPair());
+			saMax.add(i);
+			seaMax.add(i);
+			set.addPrimerPair(pairs.get(i), i, i);
+		}
+
+		// branches of a common set, as created by a greedy search, share the pairs of the common set
+		PrimerPairSet[] branches = new PrimerPairSet[5];
+		ArrayList<ArrayList<PrimerPair>> branchPairs = new ArrayList<ArrayList<PrimerPair>>();
+		for(int i=0; i<branches.length; i++){
+			branches[i] = new PrimerPairSet(set, this.params);
+			branchPairs.add(new ArrayList<PrimerPair>(pairs));
+			for(int j=0; j<i; j++) branches[i].deleteLastPrimerPair();
+			for(int j=0; j<i; j++) branchPairs.get(i).remove(branchPairs.get(i).size() - 1);
+			for(int j=0; j<3; j++){
+				PrimerPair pair = this.createPair();
+				branches[i].addPrimerPair(pair, 0, 0);
+				branchPairs.get(i).add(pair);
+			}
+		}
+		set.deleteLastPrimerPair();
+		set.setPrimerPair(2, this.createPair());
+
+		for(int i=0; i<branches.length; i++){
+			assertEquals(branchPairs.get(i).size(), branches[i].size());
+			for(int j=0; j<branches[i].size(); j++) assertSame(branchPairs.get(i).get(j), branches[i].getPrimerPair(j));
+			assertEquals(mean(branchPairs.get(i)), branches[i].getAvgDistOptPrimerPair(), 1e-9);
+			assertEquals(9 - i, branches[i].getMaxPairAlignScore());
+		}
+		assertEquals(9, set.size());
+		assertSame(pairs.get(8), set.getPrimerPair(8));
+		assertNotSame(pairs.get(2), set.getPrimerPair(2));
+	}
+
+	/**
+	 * Checks the statistics of a primer pair set against their computation from its pairs.
+	 */
+	private static void assertStatistics(ArrayList<PrimerPair> pairs, ArrayList<Integer> saMax, ArrayList<Integer> seaMax, PrimerPairSet set){
+		assertEquals(pairs.size(), set.size());
+		assertEquals(pairs.size(), set.getNumPrimerPairs());
+		int paMax = -1;
+		int peaMax = -1;
+		double sumTMPrimers = 0;
+		double sumTMProbes = 0;
+		for(int i=0; i<pairs.size(); i++){
+			assertSame(pairs.get(i), set.getPrimerPair(i));
+			paMax = Math.max(paMax, saMax.get(i));
+			peaMax = Math.max(peaMax, seaMax.get(i));
+			sumTMPrimers += pairs.get(i).getAverageTMPrimers();
+			sumTMProbes += pairs.get(i).getAverageTMProbe();
+		}
+		assertEquals(paMax, set.getMaxPairAlignScore());
+		assertEquals(peaMax, set.getMaxPairAlignEndScore());
+		if(pairs.size() == 0) return;
+
+		double mean = mean(pairs);
+		double sumSquares = 0;
+		for(int i=0; i<pairs.size(); i++) sumSquares += (pairs.get(i).getDistanceToOptimalPrimerPair() - mean) * (pairs.get(i).getDistanceToOptimalPrimerPair() - mean);
+		assertEquals(mean, set.getAvgDistOptPrimerPair(), 1e-9);
+		assertEquals(Math.sqrt(sumSquares / pairs.size()), set.getHomogenityScore(), 1e-9);
+		assertEquals(sumTMPrimers / pairs.size(), set.getAverageTMPrimers(), 1e-9);
+		assertEquals(sumTMProbes / pairs.size(), set.getAverageTMProbes(), 1e-9);
+	}
+
+	private static double mean(ArrayList<PrimerPair> pairs){
+		double sum = 0;
+		for(int i=0; i<pairs.size(); i++) sum += pairs.get(i).getDistanceToOptimalPrimerPair();
+		return sum / pairs.size();
+	}
+
+	private PrimerPair createPair(){
+		return new FixedPrimerPair(this.random.nextDouble() * 10, 55 + this.random.nextDouble() * 5, 63 + this.random.nextDouble() * 5, this.params);
+	}
+
+	/**
+	 * A primer pair of given distance to the optimal primer pair and given melting temperatures.
+	 */
+	private static class FixedPrimerPair extends PrimerPair {
+		private final double distance;
+		private final double tmPrimers;
+		private final double tmProbe;
+
+		FixedPrimerPair(double distance, double tmPrimers, double tmProbe, PrimerSearchParameters params){
+			super(params);
+			this.distance = distance;
+			this.tmPrimers = tmPrimers;
+			this.tmProbe = tmProbe;
+		}
+
+		public double getDistanceToOptimalPrimerPair(){
+			return this.distance;
+		}
+
+		public double getAverageTMPrimers(){
+			return this.tmPrimers;
+		}
+
+		public double getAverageTMProbe(){
+			return this.tmProbe;
+		}
+	}
+}
@@ -0,0 +1,170 @@
+package primerDesign.testSuite.dsc;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import primerDesign.dsc.PrimerAcceptanceLevel;
+import primerDesign.dsc.PrimerAlignmentScores;
+import primerDesign.dsc.PrimerCandidateTable;
+import primerDesign.dsc.PrimerPair;
+import primerDesign.dsc.PrimerPairTable;
+import primerDesign.dsc.PrimerTypes;
+import primerDesign.util.PrimerSearchParameters;
+import cern.colt.list.ObjectArrayList;
+
+/**
+ * This unit test checks that the primer pair table orders primer pairs as sorting the primer pair objects did
+ * and that the primer indices of each row stay attached to their primer pair.
+ */
+public class PrimerPairTableTest extends TestCase {
+	private PrimerSearchParameters params;
+
+	protected void setUp(){
+		this.params = new PrimerSearchParameters();
+		this.params.setPRINT_DEBUG_LOG(false);
+		this.params.setPickTaqManProbe(false);
+	}
+
+	public void testSortLikeComparablePrimerPairs() {
+		// primer pairs of a site: all combinations of forward and reverse candidates, melting temperatures on a grid produce equal distances
+		Random random = new Random(4);
+		char[] region = new char[100];
+		for(int i=0; i<region.length; i++) region[i] = "ACGT".charAt(random.nextInt(4));
+		PrimerCandidateTable forward = createCandidates(PrimerTypes.forwardPrimer, region, random, 20);
+		PrimerCandidateTable reverse = createCandidates(PrimerTypes.reversePrimer, region, random, 20);
+
+		PrimerPairTable table = new PrimerPairTable();
+		PrimerPair[] expected = new PrimerPair[forward.size() * reverse.size()];
+		for(int i=0; i<forward.size(); i++){
+			for(int j=0; j<reverse.size(); j++){
+				PrimerPair pair = new PrimerPair(forward.getPrimer(i), reverse.getPrimer(j), new PrimerAlignmentScores(0, 0), this.params);
+				expected[table.add(i, j, -1, pair)] = pair;
+			}
+		}
+		// the former ordering: a stable comparison sort of the primer pair objects
+		Arrays.sort(expected);
+		table.sortByDistanceToOptimalPrimerPair();
+
+		assertEquals(expected.length, table.size());
+		int ties = 0;
+		for(int row=0; row<table.size(); row++){
+			assertSame(expected[row], table.getPrimerPair(row));
+			assertSame(forward.getPrimer(table.getForwardPrimerIndex(row)), table.getPrimerPair(row).getForwardPrimer());
+			assertSame(reverse.getPrimer(table.getReversePrimerIndex(row)), table.getPrimerPair(row).getReversePrimer());
+			assertEquals(-1, table.getProbeIndex(row));
+			assertEquals(table.getPrimerPair(row).getDistanceToOptimalPrimerPair(), table.getDistanceToOptimalPrimerPair(row), 0.0);
+			if(row > 0 && table.getDistanceToOptimalPrimerPair(row-1) == table.getDistanceToOptimalPrimerPair(row)) ties++;
+		}
+		assertTrue(ties > 0);
+	}
+
+	public void testSortKeys() {
+		// distances sharing most bytes of their representation, zeros of both signs and extreme values
+		double[] distances = {1.0, Math.nextUp(1.0), 0.0, -0.0, Double.MAX_VALUE, Double.MIN_VALUE, 256.0, 255.0, 1.0, Math.nextDown(1.0), 1e-300, 1e300, 0.0};
+		PrimerPairTable table = new PrimerPairTable();
+		for(int i=0; i<distances.length; i++) table.add(i, i, i, new FixedDistancePrimerPair(distances[i], this.params));
+		table.sortByDistanceToOptimalPrimerPair();
+
+		double[] sorted = distances.clone();
+		Arrays.sort(sorted);
+		assertEquals(distances.length, table.size());
+		for(int row=0; row<table.size(); row++){
+			assertEquals(sorted[row], table.getDistanceToOptimalPrimerPair(row), 0.0);
+			assertEquals(distances[table.getForwardPrimerIndex(row)], table.getDistanceToOptimalPrimerPair(row), 0.0);
+			assertEquals(table.getForwardPrimerIndex(row), table.getReversePrimerIndex(row));
+			assertEquals(table.getForwardPrimerIndex(row), table.getProbeIndex(row));
+		}
+		// equal distances keep their order, -0.0 and 0.0 are equal
+		assertEquals(2, table.getForwardPrimerIndex(0));
+		assertEquals(3, table.getForwardPrimerIndex(1));
+		assertEquals(12, table.getForwardPrimerIndex(2));
+		assertEquals(0, table.getForwardPrimerIndex(6));
+		assertEquals(8, table.getForwardPrimerIndex(7));
+	}
+
+	public void testSortManyPairs() {
+		Random random = new Random(5);
+		PrimerPairTable table = new PrimerPairTable();
+		FixedDistancePrimerPair[] expected = new FixedDistancePrimerPair[5000];
+		for(int i=0; i<expected.length; i++){
+			// few distinct distances of different magnitude
+			expected[i] = new FixedDistancePrimerPair(random.nextInt(50) * Math.pow(10, random.nextInt(5) - 2), this.params);
+			assertEquals(i, table.add(i, i / 10, i % 10, expected[i]));
+		}
+		table.sortByDistanceToOptimalPrimerPair();
+		Arrays.sort(expected);
+
+		for(int row=0; row<table.size(); row++){
+			assertSame(expected[row], table.getPrimerPair(row));
+			assertEquals(table.getForwardPrimerIndex(row) / 10, table.getReversePrimerIndex(row));
+			assertEquals(table.getForwardPrimerIndex(row) % 10, table.getProbeIndex(row));
+		}
+	}
+
+	public void testToList() {
+		PrimerPairTable table = new PrimerPairTable();
+		assertEquals(0, table.toList().size());
+		for(int i=0; i<100; i++) table.add(i, 0, -1, new FixedDistancePrimerPair(100 - i, this.params));
+
+		ObjectArrayList list = table.toList();
+		assertSame(list, table.toList());
+		for(int row=0; row<table.size(); row++) assertSame(table.getPrimerPair(row), list.get(row));
+
+		// sorting creates the list in the new order, sorting again keeps it
+		table.sortByDistanceToOptimalPrimerPair();
+		list = table.toList();
+		assertEquals(99, table.getForwardPrimerIndex(0));
+		for(int row=0; row<table.size(); row++) assertSame(table.getPrimerPair(row), list.get(row));
+		table.sortByDistanceToOptimalPrimerPair();
+		assertSame(list, table.toList());
+
+		// adding a pair creates a new list
+		table.add(100, 0, -1, new FixedDistancePrimerPair(0.5, this.params));
+		assertEquals(101, table.toList().size());
+		assertEquals(100, list.size());
+		table.sortByDistanceToOptimalPrimerPair();
+		assertEquals(100, table.getForwardPrimerIndex(0));
+	}
+
+	public void testRowBounds() {
+		PrimerPairTable table = new PrimerPairTable();
+		table.add(0, 0, -1, new FixedDistancePrimerPair(1.0, this.params));
+		try{
+			table.getPrimerPair(1);
+			fail("Rows beyond the table size must not be accessible");
+		}
+		catch(IndexOutOfBoundsException e){
+			;
+		}
+		try{
+			table.getForwardPrimerIndex(-1);
+			fail("Negative rows must not be accessible");
+		}
+		catch(IndexOutOfBoundsException e){
+			;
+		}
+	}
+
+	private PrimerCandidateTable createCandidates(PrimerTypes type, char[] region, Random random, int count){
+		PrimerCandidateTable candidates = new PrimerCandidateTable(type, region, null, this.params);
+		for(int i=0; i<count; i++) candidates.add(random.nextInt(80), 20, i, 100, 55.0 + random.nextInt(8), 0.5, 4, 2, PrimerAcceptanceLevel.ACCEPTABLE);
+		return candidates;
+	}
+
+	/**
+	 * A primer pair of a given distance to the optimal primer pair.
+	 */
+	private static class FixedDistancePrimerPair extends PrimerPair {
+		private final double distance;
+
+		FixedDistancePrimerPair(double distance, PrimerSearchParameters params){
+			super(params);
+			this.distance = distance;
+		}
+
+		public double getDistanceToOptimalPrimerPair(){
+			return this.distance;
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package primerDesign.testSuite.dsc;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.biojava.bio.molbio.RestrictionEnzyme;
+import org.biojava.bio.seq.DNATools;
+import org.biojava.bio.symbol.IllegalAlphabetException;
+import org.biojava.bio.symbol.IllegalSymbolException;
+
+import primerDesign.dsc.RestrictionSitePositions;
+import primerDesign.util.SimpleContig;
+import primerDesign.util.SimpleContigImpl;
+
+/**
+ * This unit test checks that the restriction site positions count the same restriction sites as a naive scan of each region.
+ */
+public class RestrictionSitePositionsTest extends TestCase {
+	private static final String SITE = "GAATTC";
+
+	private RestrictionEnzyme enzyme;
+	private SimpleContig[] contigs;
+
+	protected void setUp() throws IllegalAlphabetException, IllegalSymbolException {
+		this.enzyme = new RestrictionEnzyme("EcoRI", DNATools.createDNA("gaattc"), 0, 0);
+		Random random = new Random(5);
+		this.contigs = new SimpleContig[3];
+		for(int c=0; c<this.contigs.length; c++){
+			StringBuilder sequence = new StringBuilder();
+			for(int i=0; i<3000; i++) sequence.append("ACGT".charAt(random.nextInt(4)));
+			for(int i=0; i<20; i++){
+				int position = random.nextInt(sequence.length() - SITE.length());
+				sequence.replace(position, position + SITE.length(), SITE);
+			}
+			// sites at both contig ends
+			sequence.replace(0, SITE.length(), SITE);
+			sequence.replace(sequence.length() - SITE.length(), sequence.length(), SITE);
+			this.contigs[c] = new SimpleContigImpl("contig" + c, sequence.toString().toCharArray());
+		}
+	}
+
+	public void testGetPositions(){
+		RestrictionSitePositions positions = new RestrictionSitePositions(this.enzyme);
+		for(SimpleContig contig : this.contigs){
+			String sequence = new String(contig.getSequence());
+			int[] sites = positions.getPositions(contig);
+			int count = 0;
+			for(int i=sequence.indexOf(SITE); i >= 0; i=sequence.indexOf(SITE, i + 1)) assertEquals(i, sites[count++]);
+			assertEquals(count, sites.length);
+			// each contig is scanned once
+			assertSame(sites, positions.getPositions(contig));
+		}
+		assertEquals(this.contigs.length, positions.getNumberOfContigs());
+	}
+
+	public void testCountSites(){
+		RestrictionSitePositions positions = new RestrictionSitePositions(this.enzyme);
+		Random random = new Random(6);
+		for(SimpleContig contig : this.contigs){
+			String sequence = new String(contig.getSequence());
+			// the whole contig, empty and too short regions and regions cutting sites
+			assertEquals(countNaively(sequence, 0, sequence.length()), positions.countSites(contig, 0, sequence.length()));
+			assertEquals(0, positions.countSites(contig, 10, 10));
+			assertEquals(0, positions.countSites(contig, 0, SITE.length() - 1));
+			assertEquals(1, positions.countSites(contig, 0, SITE.length()));
+			assertEquals(positions.getPositions(contig).length - 2, positions.countSites(contig, 1, sequence.length() - 1));
+			for(int i=0; i<1000; i++){
+				int start = random.nextInt(sequence.length());
+				int end = start + random.nextInt(sequence.length() - start + 1);
+				assertEquals(countNaively(sequence, start, end), positions.countSites(contig, start, end));
+			}
+		}
+	}
+
+	public void testCache() throws IllegalAlphabetException, IllegalSymbolException {
+		RestrictionSitePositions.Cache cache = new RestrictionSitePositions.Cache();
+		RestrictionSitePositions positions = cache.get(this.enzyme);
+		assertTrue(positions.isComputedFor(this.enzyme));
+		assertSame(positions, cache.get(new RestrictionEnzyme("EcoRI", DNATools.createDNA("gaattc"), 0, 0)));
+
+		RestrictionEnzyme other = new RestrictionEnzyme("BamHI", DNATools.createDNA("ggatcc"), 0, 0);
+		RestrictionSitePositions otherPositions = cache.get(other);
+		assertNotSame(positions, otherPositions);
+		assertTrue(otherPositions.isComputedFor(other));
+		assertFalse(otherPositions.isComputedFor(this.enzyme));
+	}
+
+	private static int countNaively(String sequence, int start, int end){
+		String region = sequence.substring(start, end);
+		int count = 0;
+		for(int i=region.indexOf(SITE); i >= 0; i=region.indexOf(SITE, i + 1)) count++;
+		return count;
+	}
+}
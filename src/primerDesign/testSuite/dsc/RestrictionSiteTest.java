@@ -0,0 +1,250 @@
+package primerDesign.testSuite.dsc;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.biojava.bio.molbio.RestrictionEnzyme;
+import org.biojava.bio.seq.DNATools;
+import org.biojava.bio.symbol.IllegalAlphabetException;
+import org.biojava.bio.symbol.IllegalSymbolException;
+
+import primerDesign.algo.SequenceRegionAligner;
+import primerDesign.dsc.Primer;
+import primerDesign.dsc.PrimerAcceptanceLevel;
+import primerDesign.dsc.PrimerAlignmentScores;
+import primerDesign.dsc.PrimerCandidateTable;
+import primerDesign.dsc.PrimerPair;
+import primerDesign.dsc.PrimerPairPickingStatistics;
+import primerDesign.dsc.PrimerPairTable;
+import primerDesign.dsc.PrimerTypes;
+import primerDesign.dsc.RestrictionSite;
+import primerDesign.dsc.SequenceRegionAlignment;
+import primerDesign.util.PrimerSearchParameters;
+
+/**
+ * This unit test checks that the primer pair enumeration over Tm-sorted candidates returns the same primer pairs as
+ * the exhaustive enumeration of all combinations of primers and probes.
+ */
+public class RestrictionSiteTest extends TestCase {
+	private static final int REGION_LENGTH = 120;
+
+	private RestrictionEnzyme enzyme;
+	private char[] forwardRegion;
+	private char[] reverseRegion;
+	private char[] probeRegion;
+
+	protected void setUp() throws IllegalAlphabetException, IllegalSymbolException {
+		this.enzyme = new RestrictionEnzyme("EcoRI", DNATools.createDNA("gaattc"), 0, 0);
+		Random random = new Random(11);
+		this.forwardRegion = createRegion(random);
+		this.reverseRegion = createRegion(random);
+		this.probeRegion = createRegion(random);
+	}
+
+	public void testEnumeratePrimerPairs(){
+		for(int seed=0; seed<5; seed++){
+			PrimerSearchParameters params = createParams(true, 0);
+			RestrictionSite site = createSite(params, new Random(seed), 25, 25, 12);
+			site.enumeratePrimerPairs();
+			ExhaustiveEnumeration expected = new ExhaustiveEnumeration(site, params);
+
+			assertTrue(expected.pairs.size() > 0);
+			assertTrue(expected.pairs.size() < 25 * 25 * 12);
+			assertSamePairs(expected.pairs, site.getPrimerPairTable());
+			// skipped combinations are counted as rejected by the exhaustive enumeration
+			assertEquals(expected.stat.printWebserviceStat(), params.getPickingStat().printWebserviceStat());
+		}
+	}
+
+	public void testEnumeratePrimerPairsWithoutProbes(){
+		for(int seed=0; seed<5; seed++){
+			PrimerSearchParameters params = createParams(false, 0);
+			RestrictionSite site = createSite(params, new Random(seed), 40, 40, 0);
+			site.enumeratePrimerPairs();
+			ExhaustiveEnumeration expected = new ExhaustiveEnumeration(site, params);
+
+			assertTrue(expected.pairs.size() > 0);
+			assertTrue(expected.pairs.size() < 40 * 40);
+			assertSamePairs(expected.pairs, site.getPrimerPairTable());
+			assertEquals(expected.stat.printWebserviceStat(), params.getPickingStat().printWebserviceStat());
+		}
+	}
+
+	public void testTopPrimerPairs(){
+		for(int k : new int[]{1, 7, 50, 100000}){
+			PrimerSearchParameters params = createParams(true, k);
+			RestrictionSite site = createSite(params, new Random(3), 25, 25, 12);
+			site.enumeratePrimerPairs();
+			ExhaustiveEnumeration expected = new ExhaustiveEnumeration(site, params);
+
+			// the best k primer pairs by distance to the optimal primer pair, pairs of equal distance in enumeration order
+			ArrayList<ExpectedPair> best = new ArrayList<ExpectedPair>(expected.pairs);
+			sortStablyByDistance(best);
+			while(best.size() > k) best.remove(best.size() - 1);
+			assertTrue(best.size() > 0);
+			assertSamePairs(best, site.getPrimerPairTable());
+			if(k < expected.pairs.size()) assertEquals(k, site.getNumberOfValidPrimerPairs());
+		}
+	}
+
+	private PrimerSearchParameters createParams(boolean pickTaqManProbe, int maxPairsPerSite){
+		PrimerSearchParameters params = new PrimerSearchParameters();
+		params.setPRINT_DEBUG_LOG(false);
+		params.setPickTaqManProbe(pickTaqManProbe);
+		params.setMAX_PRIMER_TM_DIFFERENCE(1.5);
+		params.setMIN_TAQMAN_TM_DIFFERENCE(5.0);
+		params.setMAX_PRIMER_PAIRS_PER_SITE(maxPairsPerSite);
+		return params;
+	}
+
+	/**
+	 * Creates a site whose primers have melting temperatures on a 0.5 degree grid, Tm differences thereby hit the Tm thresholds exactly.
+	 */
+	private RestrictionSite createSite(PrimerSearchParameters params, Random random, int forward, int reverse, int probes){
+		RestrictionSite site = new RestrictionSite(1000, this.enzyme, params);
+		site.setForwardScanSequence(this.forwardRegion);
+		site.setReverseScanSequence(this.reverseRegion);
+		site.setValidUpstreamPrimers(createCandidates(PrimerTypes.forwardPrimer, this.forwardRegion, site, params, random, forward, 56.0));
+		site.setValidDownstreamPrimers(createCandidates(PrimerTypes.reversePrimer, this.reverseRegion, site, params, random, reverse, 56.0));
+		if(probes > 0){
+			site.setProbeScanSequence(this.probeRegion);
+			site.setValidTaqManProbes(createCandidates(PrimerTypes.hybridizationProbe, this.probeRegion, site, params, random, probes, 60.0));
+		}
+		return site;
+	}
+
+	private static PrimerCandidateTable createCandidates(PrimerTypes type, char[] region, RestrictionSite site, PrimerSearchParameters params, Random random, int count, double minTm){
+		PrimerCandidateTable candidates = new PrimerCandidateTable(type, region, site, params);
+		int length;
+		for(int i=0; i<count; i++){
+			length = 18 + random.nextInt(8);
+			candidates.add(random.nextInt(REGION_LENGTH - length), length, i, 100 + i, minTm + 0.5 * random.nextInt(16), 0.5, 4, 2, PrimerAcceptanceLevel.ACCEPTABLE);
+		}
+		return candidates;
+	}
+
+	private static char[] createRegion(Random random){
+		char[] result = new char[REGION_LENGTH];
+		for(int i=0; i<result.length; i++) result[i] = "ACGT".charAt(random.nextInt(4));
+		return result;
+	}
+
+	private static void assertSamePairs(ArrayList<ExpectedPair> expected, PrimerPairTable table){
+		assertEquals(expected.size(), table.size());
+		for(int row=0; row<table.size(); row++){
+			ExpectedPair pair = expected.get(row);
+			assertEquals(pair.forward, table.getForwardPrimerIndex(row));
+			assertEquals(pair.reverse, table.getReversePrimerIndex(row));
+			assertEquals(pair.probe, table.getProbeIndex(row));
+			assertEquals(pair.distance, table.getDistanceToOptimalPrimerPair(row), 0.0);
+		}
+	}
+
+	private static void sortStablyByDistance(ArrayList<ExpectedPair> pairs){
+		ExpectedPair current;
+		int j;
+		for(int i=1; i<pairs.size(); i++){
+			current = pairs.get(i);
+			for(j=i; j>0 && pairs.get(j-1).distance > current.distance; j--) pairs.set(j, pairs.get(j-1));
+			pairs.set(j, current);
+		}
+	}
+
+	/**
+	 * A valid primer pair of the exhaustive enumeration.
+	 */
+	private static class ExpectedPair{
+		private final int forward;
+		private final int reverse;
+		private final int probe;
+		private final double distance;
+
+		ExpectedPair(int forward, int reverse, int probe, double distance){
+			this.forward = forward;
+			this.reverse = reverse;
+			this.probe = probe;
+			this.distance = distance;
+		}
+	}
+
+	/**
+	 * Enumerates the valid primer pairs of a site as the former enumeration did: by creating and checking each combination of primers and probes.
+	 */
+	private static class ExhaustiveEnumeration{
+		private final ArrayList<ExpectedPair> pairs = new ArrayList<ExpectedPair>();
+		private final PrimerPairPickingStatistics stat = new PrimerPairPickingStatistics();
+		private final PrimerSearchParameters params;
+
+		ExhaustiveEnumeration(RestrictionSite site, PrimerSearchParameters params){
+			this.params = params;
+			Primer[] forward = site.getValidUpstreamPrimers();
+			Primer[] reverse = site.getValidDownstreamPrimers();
+			Primer[] probes = params.isPickTaqManProbe() ? site.getValidTaqManProbes() : null;
+			SequenceRegionAlignment fwRev = align(site.getForwardScanSequence(), site.getReverseScanSequence());
+			SequenceRegionAlignment fwProbe = params.isPickTaqManProbe() ? align(site.getForwardScanSequence(), site.getProbeScanSequence()) : null;
+			SequenceRegionAlignment revProbe = params.isPickTaqManProbe() ? align(site.getReverseScanSequence(), site.getProbeScanSequence()) : null;
+
+			PrimerPair pair;
+			for(int i=0; i<forward.length; i++){
+				for(int j=0; j<reverse.length; j++){
+					if(params.isPickTaqManProbe()){
+						for(int k=0; k<probes.length; k++){
+							pair = new PrimerPair(forward[i], reverse[j], probes[k], scores(fwRev, forward[i], reverse[j]), scores(fwProbe, forward[i], probes[k]), scores(revProbe, reverse[j], probes[k]), params);
+							this.check(i, j, k, pair, fwRev, fwProbe, revProbe);
+						}
+					}
+					else{
+						pair = new PrimerPair(forward[i], reverse[j], scores(fwRev, forward[i], reverse[j]), params);
+						this.check(i, j, -1, pair, fwRev, fwProbe, revProbe);
+					}
+				}
+			}
+		}
+
+		private void check(int i, int j, int k, PrimerPair pair, SequenceRegionAlignment fwRev, SequenceRegionAlignment fwProbe, SequenceRegionAlignment revProbe){
+			pair.computeDistanceToOptimalPrimerPair();
+			if(this.isValid(pair, fwRev, fwProbe, revProbe)){
+				this.pairs.add(new ExpectedPair(i, j, k, pair.getDistanceToOptimalPrimerPair()));
+				this.stat.incValidPrimerPairsEnum();
+			}
+			else this.stat.incInvalidPrimerPairsEnum();
+		}
+
+		private boolean isValid(PrimerPair pair, SequenceRegionAlignment fwRev, SequenceRegionAlignment fwProbe, SequenceRegionAlignment revProbe){
+			Primer forward = pair.getForwardPrimer();
+			Primer reverse = pair.getReversePrimer();
+			if(Math.abs(forward.getMeltingTemp() - reverse.getMeltingTemp()) > this.params.getMAX_PRIMER_TM_DIFFERENCE()){
+				this.stat.incPrimerPrimerTMreject();
+				return false;
+			}
+			this.stat.incPrimerPrimerTMaccept();
+			Primer probe = pair.getHybridizationProbe();
+			if(this.params.isPickTaqManProbe() && (Math.abs(forward.getMeltingTemp() - probe.getMeltingTemp()) < this.params.getMIN_TAQMAN_TM_DIFFERENCE() || Math.abs(reverse.getMeltingTemp() - probe.getMeltingTemp()) < this.params.getMIN_TAQMAN_TM_DIFFERENCE())){
+				this.stat.incPrimerProbeTMreject();
+				return false;
+			}
+			this.stat.incPrimerProbeTMaccept();
+
+			PrimerAlignmentScores fwRevScores = scores(fwRev, forward, reverse);
+			int fwProbePA = (fwProbe == null) ? 0 : scores(fwProbe, forward, probe).getPairScore();
+			int revProbePA = (revProbe == null) ? 0 : scores(revProbe, reverse, probe).getPairScore();
+			boolean primersValid = fwRevScores.getPairScore() <= this.params.getMAX_PRIMER_PAIR_ALIGNMENT_SCORE() && fwRevScores.getPairEndScore() <= this.params.getMAX_PRIMER_PAIR_END_ALIGNMENT_SCORE();
+			boolean probeValid = fwProbePA <= this.params.getMAX_PRIMER_PAIR_ALIGNMENT_SCORE() && revProbePA <= this.params.getMAX_PRIMER_PAIR_ALIGNMENT_SCORE();
+			if(primersValid) this.stat.incPrimerPrimerAlignmentAccept();
+			else this.stat.incPrimerPrimerAlignmentReject();
+			if(probeValid) this.stat.incPrimerProbeAlignmentAccept();
+			else this.stat.incPrimerProbeAlignmentReject();
+			return primersValid && probeValid;
+		}
+
+		private SequenceRegionAlignment align(char[] region1, char[] region2){
+			return SequenceRegionAligner.alignSequenceRegions(region1, region2, this.params.getA_t_basepair_score(), this.params.getG_c_basepair_score());
+		}
+
+		private static PrimerAlignmentScores scores(SequenceRegionAlignment alignment, Primer primer1, Primer primer2){
+			return alignment.getGlobalAlignmentValues(primer1.getPositionInScanSequence(), primer1.getLength(), primer2.getPositionInScanSequence(), primer2.getLength());
+		}
+	}
+}
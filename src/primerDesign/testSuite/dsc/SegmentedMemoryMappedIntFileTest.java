@@ -0,0 +1,115 @@
+package primerDesign.testSuite.dsc;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import junit.framework.TestCase;
+import primerDesign.dsc.nio.SegmentedMemoryMappedIntFile;
+
+/**
+ * This unit test checks the access of a segmented memory mapped int file across its segment boundaries, using small segments.
+ */
+public class SegmentedMemoryMappedIntFileTest extends TestCase {
+	private static final int SEGMENT_BITS = 4;
+
+	private File file;
+
+	protected void setUp() throws IOException {
+		this.file = File.createTempFile("segments", null);
+	}
+
+	protected void tearDown(){
+		this.file.delete();
+	}
+
+	public void testSegmentBoundaries() throws IOException, ClassNotFoundException {
+		// five full segments and a partial one
+		long size = 5 * (1 << SEGMENT_BITS) + 3;
+		SegmentedMemoryMappedIntFile table = new SegmentedMemoryMappedIntFile(this.file, size, SEGMENT_BITS);
+		assertEquals(size, table.length());
+		assertEquals(SEGMENT_BITS, table.getSegmentBits());
+		assertFalse(table.isReadOnly());
+		for(long i=0; i<size; i++){
+			if(i % 2 == 0) table.put(i, value(i));
+			else table.putQuick(i, value(i));
+		}
+		// the last entry of a segment and the first entry of the next one are distinct
+		for(long i=1; i<=5; i++){
+			long boundary = i << SEGMENT_BITS;
+			assertEquals(value(boundary - 1), table.get(boundary - 1));
+			assertEquals(value(boundary), table.getQuick(boundary));
+		}
+		assertAll(table, size);
+		assertOutOfBounds(table, size);
+
+		// the file layout does not depend on the segments, it is read in segments of any size
+		SegmentedMemoryMappedIntFile opened = new SegmentedMemoryMappedIntFile(this.file);
+		assertEquals(SegmentedMemoryMappedIntFile.DEFAULT_SEGMENT_BITS, opened.getSegmentBits());
+		assertTrue(opened.isReadOnly());
+		assertAll(opened, size);
+
+		// a deserialized file is mapped in its segments again
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(table);
+		out.close();
+		SegmentedMemoryMappedIntFile deserialized = (SegmentedMemoryMappedIntFile) new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+		assertEquals(SEGMENT_BITS, deserialized.getSegmentBits());
+		assertTrue(deserialized.isReadOnly());
+		assertAll(deserialized, size);
+	}
+
+	public void testSingleEntrySegments() throws IOException {
+		SegmentedMemoryMappedIntFile table = new SegmentedMemoryMappedIntFile(this.file, 7, 0);
+		for(long i=0; i<7; i++) table.put(i, value(i));
+		assertAll(table, 7);
+		assertOutOfBounds(table, 7);
+	}
+
+	public void testIllegalSegmentBits() throws IOException {
+		try{
+			new SegmentedMemoryMappedIntFile(this.file, 10, -1);
+			fail("Negative segment bits must be rejected");
+		}
+		catch(IllegalArgumentException e){
+			;
+		}
+		try{
+			new SegmentedMemoryMappedIntFile(this.file, 10, 29);
+			fail("Segments exceeding a single mapping must be rejected");
+		}
+		catch(IllegalArgumentException e){
+			;
+		}
+	}
+
+	private static void assertAll(SegmentedMemoryMappedIntFile table, long size){
+		assertEquals(size, table.length());
+		for(long i=0; i<size; i++) assertEquals(value(i), table.get(i));
+	}
+
+	private static void assertOutOfBounds(SegmentedMemoryMappedIntFile table, long size){
+		try{
+			table.get(size);
+			fail("Indices beyond the table size must not be accessible");
+		}
+		catch(IllegalArgumentException e){
+			;
+		}
+		try{
+			table.put(-1, 0);
+			fail("Negative indices must not be accessible");
+		}
+		catch(IllegalArgumentException e){
+			;
+		}
+	}
+
+	private static int value(long index){
+		return (int) (index * 7919 - 1000);
+	}
+}
@@ -0,0 +1,121 @@
+package primerDesign.testSuite.dsc;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import junit.framework.TestCase;
+import primerDesign.dsc.nio.SegmentedMemoryMappedLongFile;
+
+/**
+ * This unit test checks the access of a segmented memory mapped long file in both value widths across its segment boundaries, using small segments.
+ */
+public class SegmentedMemoryMappedLongFileTest extends TestCase {
+	private static final int SEGMENT_BITS = 4;
+
+	private File file;
+
+	protected void setUp() throws IOException {
+		this.file = File.createTempFile("segments", null);
+	}
+
+	protected void tearDown(){
+		this.file.delete();
+	}
+
+	public void testCompactValues() throws IOException, ClassNotFoundException {
+		// values up to MAX_COMPACT_VALUE are stored in 4 bytes, including those >= 2^31
+		check(SegmentedMemoryMappedLongFile.MAX_COMPACT_VALUE, 4);
+	}
+
+	public void testWideValues() throws IOException, ClassNotFoundException {
+		// positions of a text of more than 2^32 characters are stored in 8 bytes
+		check(SegmentedMemoryMappedLongFile.MAX_COMPACT_VALUE + 1, 8);
+	}
+
+	public void testIllegalValues() throws IOException {
+		SegmentedMemoryMappedLongFile table = new SegmentedMemoryMappedLongFile(this.file, 10, 1000);
+		try{
+			table.put(0, SegmentedMemoryMappedLongFile.MAX_COMPACT_VALUE + 1);
+			fail("Values exceeding a compact table must be rejected");
+		}
+		catch(IllegalArgumentException e){
+			;
+		}
+		try{
+			table.put(0, -2);
+			fail("Negative values other than -1 must be rejected");
+		}
+		catch(IllegalArgumentException e){
+			;
+		}
+		try{
+			new SegmentedMemoryMappedLongFile(this.file, 10, 1000, 28);
+			fail("Segments exceeding a single mapping must be rejected");
+		}
+		catch(IllegalArgumentException e){
+			;
+		}
+	}
+
+	private void check(long maxValue, int bytesPerValue) throws IOException, ClassNotFoundException {
+		// five full segments and a partial one
+		long size = 5 * (1 << SEGMENT_BITS) + 3;
+		SegmentedMemoryMappedLongFile table = new SegmentedMemoryMappedLongFile(this.file, size, maxValue, SEGMENT_BITS);
+		assertEquals(size, table.length());
+		assertEquals(bytesPerValue, table.getBytesPerValue());
+		assertEquals(size * bytesPerValue, this.file.length());
+		assertFalse(table.isReadOnly());
+		for(long i=0; i<size; i++){
+			if(i % 2 == 0) table.put(i, value(i, maxValue));
+			else table.putQuick(i, value(i, maxValue));
+		}
+		// the last entry of a segment and the first entry of the next one are distinct
+		for(long i=1; i<=5; i++){
+			long boundary = i << SEGMENT_BITS;
+			assertEquals(value(boundary - 1, maxValue), table.get(boundary - 1));
+			assertEquals(value(boundary, maxValue), table.getQuick(boundary));
+		}
+		assertAll(table, size, maxValue);
+		try{
+			table.get(size);
+			fail("Indices beyond the table size must not be accessible");
+		}
+		catch(IllegalArgumentException e){
+			;
+		}
+
+		// the file layout does not depend on the segments, it is read in segments of any size
+		SegmentedMemoryMappedLongFile opened = new SegmentedMemoryMappedLongFile(this.file, bytesPerValue == 4);
+		assertTrue(opened.isReadOnly());
+		assertAll(opened, size, maxValue);
+
+		// a deserialized file is mapped in its segments again
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(table);
+		out.close();
+		SegmentedMemoryMappedLongFile deserialized = (SegmentedMemoryMappedLongFile) new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+		assertEquals(SEGMENT_BITS, deserialized.getSegmentBits());
+		assertEquals(bytesPerValue, deserialized.getBytesPerValue());
+		assertTrue(deserialized.isReadOnly());
+		assertAll(deserialized, size, maxValue);
+	}
+
+	private static void assertAll(SegmentedMemoryMappedLongFile table, long size, long maxValue){
+		assertEquals(size, table.length());
+		for(long i=0; i<size; i++) assertEquals(value(i, maxValue), table.get(i));
+	}
+
+	/**
+	 * Returns distinct values in [-1,maxValue], including -1, 0 and maxValue.
+	 */
+	private static long value(long index, long maxValue){
+		if(index == 0) return -1;
+		if(index == 1) return maxValue;
+		return (index * 7919 + maxValue / 3) % (maxValue + 1);
+	}
+}
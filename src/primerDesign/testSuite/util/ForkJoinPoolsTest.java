@@ -0,0 +1,80 @@
+package primerDesign.testSuite.util;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+import primerDesign.util.ForkJoinPools;
+
+public class ForkJoinPoolsTest extends TestCase {
+
+	public void testGetPool() {
+		ForkJoinPool pool = ForkJoinPools.getPool(2);
+		assertEquals(2, pool.getParallelism());
+		assertSame(pool, ForkJoinPools.getPool(2));
+		ForkJoinPool other = ForkJoinPools.getPool(3);
+		assertEquals(3, other.getParallelism());
+		assertNotSame(pool, other);
+		assertSame(pool, ForkJoinPools.getPool(2));
+		try{
+			ForkJoinPools.getPool(0);
+			fail("A parallelism of 0 must not be accepted");
+		}
+		catch(IllegalArgumentException e){
+			;
+		}
+	}
+
+	public void testConcurrentGetPool() throws InterruptedException, ExecutionException {
+		final CountDownLatch start = new CountDownLatch(1);
+		ArrayList<Callable<ForkJoinPool>> tasks = new ArrayList<Callable<ForkJoinPool>>();
+		for(int i=0; i<8; i++){
+			tasks.add(new Callable<ForkJoinPool>(){
+				public ForkJoinPool call() throws InterruptedException{
+					start.await();
+					return ForkJoinPools.getPool(5);
+				}
+			});
+		}
+		ArrayList<Future<ForkJoinPool>> results = new ArrayList<Future<ForkJoinPool>>();
+		ForkJoinPool caller = ForkJoinPools.getPool(tasks.size());
+		for(Callable<ForkJoinPool> task : tasks) results.add(caller.submit(task));
+		start.countDown();
+		ForkJoinPool pool = results.get(0).get();
+		for(Future<ForkJoinPool> result : results) assertSame(pool, result.get());
+	}
+
+	public void testRunningJobsSurviveOtherParallelism() throws InterruptedException, ExecutionException {
+		// a job running on the pool of one parallelism must not be disturbed by requesting the pool of another parallelism,
+		// as happens when the configured number of threads changes between two searches
+		final CountDownLatch running = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		ForkJoinPool pool = ForkJoinPools.getPool(2);
+		ForkJoinTask<Integer> job = pool.submit(new Callable<Integer>(){
+			public Integer call() throws InterruptedException{
+				running.countDown();
+				release.await();
+				return 42;
+			}
+		});
+		assertTrue(running.await(10, TimeUnit.SECONDS));
+		ForkJoinPools.getPool(4);
+		release.countDown();
+		assertEquals(42, job.get().intValue());
+
+		// the pool accepts new jobs afterwards
+		assertFalse(pool.isShutdown());
+		assertEquals(7, pool.submit(new Callable<Integer>(){
+			public Integer call(){
+				return 7;
+			}
+		}).get().intValue());
+		assertSame(pool, ForkJoinPools.getPool(2));
+	}
+}
@@ -0,0 +1,123 @@
+package primerDesign.testSuite.util;
+
+import junit.framework.TestCase;
+import primerDesign.util.PackedSequenceCache;
+
+public class PackedSequenceCacheTest extends TestCase {
+
+	public void testPack() {
+		assertEquals(1, PackedSequenceCache.pack(""));
+		assertEquals((1 << 8) | 0x1B, PackedSequenceCache.pack("ACGT"));
+		// the sentinel bit separates sequences of different lengths
+		assertTrue(PackedSequenceCache.pack("A") != PackedSequenceCache.pack("AA"));
+
+		StringBuffer sequence = new StringBuffer();
+		for(int i=0; i<PackedSequenceCache.MAX_PACKED_LENGTH; i++) sequence.append('T');
+		assertTrue(PackedSequenceCache.pack(sequence) > 0);
+		sequence.append('T');
+		assertEquals(PackedSequenceCache.NOT_PACKABLE, PackedSequenceCache.pack(sequence));
+
+		assertEquals(PackedSequenceCache.NOT_PACKABLE, PackedSequenceCache.pack("ACgT"));
+		assertEquals(PackedSequenceCache.NOT_PACKABLE, PackedSequenceCache.pack("ACNT"));
+
+		PackedSequenceCache cache = new PackedSequenceCache("test", 64);
+		try{
+			cache.get(PackedSequenceCache.NOT_PACKABLE);
+			fail("NOT_PACKABLE must not be accepted as key");
+		}
+		catch(IllegalArgumentException e){
+			;
+		}
+	}
+
+	public void testContexts() {
+		PackedSequenceCache cache = new PackedSequenceCache("test", 64);
+		long key = PackedSequenceCache.pack("ACGTACGT");
+		long otherKey = PackedSequenceCache.pack("TTGCA");
+		long context = PackedSequenceCache.context(50.0, 1.5, 0.2, 0.0);
+		long otherContext = PackedSequenceCache.context(50.0, 1.5, 0.2, 0.1);
+		assertTrue(context != otherContext);
+
+		cache.put(key, 1);
+		cache.put(key, otherKey, context, 2);
+		cache.put(key, otherKey, otherContext, 3);
+		cache.putDouble(key, 0, context, 4.5);
+		assertEquals(1, cache.get(key));
+		assertEquals(2, cache.get(key, otherKey, context));
+		assertEquals(3, cache.get(key, otherKey, otherContext));
+		assertEquals(4.5, cache.getDouble(key, 0, context), 0.0);
+		assertEquals(PackedSequenceCache.MISSING, cache.get(otherKey, key, context));
+		assertTrue(Double.isNaN(cache.getDouble(otherKey)));
+
+		// MISSING and NaN are not cached, values are replaced
+		cache.put(otherKey, PackedSequenceCache.MISSING);
+		cache.putDouble(otherKey, Double.NaN);
+		assertEquals(4, cache.size());
+		cache.put(key, 5);
+		assertEquals(5, cache.get(key));
+		assertEquals(4, cache.size());
+
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertEquals(PackedSequenceCache.MISSING, cache.get(key));
+	}
+
+	public void testEviction() {
+		PackedSequenceCache cache = new PackedSequenceCache("test", 64);
+		for(int i=1; i<=10000; i++){
+			cache.put(i, -i);
+			assertEquals(-i, cache.get(i));
+			assertTrue(cache.size() <= cache.getCapacity());
+			// each new entry is either added or replaces another one
+			assertEquals(i, cache.size() + cache.getEvictionCount());
+		}
+		assertEquals(cache.getCapacity(), cache.size());
+		assertEquals(cache.getCapacity(), cache.getAllocatedCapacity());
+	}
+
+	public void testLazyAllocation() {
+		PackedSequenceCache cache = new PackedSequenceCache("test", 1 << 20);
+		assertEquals(0, cache.getAllocatedCapacity());
+		for(int i=1; i<=1000; i++) cache.put(i, -i);
+		// segments grow instead of evicting entries before the capacity is allocated
+		assertEquals(0, cache.getEvictionCount());
+		assertEquals(1000, cache.size());
+		for(int i=1; i<=1000; i++) assertEquals(-i, cache.get(i));
+		assertTrue(cache.getAllocatedCapacity() < cache.getCapacity() / 16);
+	}
+
+	public void testConcurrentGetAndPut() throws InterruptedException {
+		final PackedSequenceCache cache = new PackedSequenceCache("test", 1 << 10);
+		final int lookups = 20000;
+		final Throwable[] failure = new Throwable[1];
+		Thread[] threads = new Thread[4];
+		for(int t=0; t<threads.length; t++){
+			final int seed = t;
+			threads[t] = new Thread(){
+				public void run(){
+					try{
+						long key;
+						long value;
+						for(int i=0; i<lookups; i++){
+							key = 1 + (i * 7919L + seed * 104729L) % 5000;
+							value = cache.get(key, key + 1, seed % 2);
+							// values are only ever cached for their own key and context
+							if(value != PackedSequenceCache.MISSING) assertEquals(3 * key + seed % 2, value);
+							else cache.put(key, key + 1, seed % 2, 3 * key + seed % 2);
+						}
+					}
+					catch(Throwable e){
+						synchronized(failure){
+							failure[0] = e;
+						}
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for(int t=0; t<threads.length; t++) threads[t].join();
+		if(failure[0] != null) fail(failure[0].toString());
+		assertEquals(threads.length * lookups, cache.getHitCount() + cache.getMissCount());
+		assertTrue(cache.size() <= cache.getCapacity());
+	}
+}
@@ -5,18 +5,17 @@ package primerDesign.util;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.CharBuffer;
 import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import org.biojava.bio.molbio.RestrictionEnzyme;
-import org.biojava.bio.molbio.RestrictionEnzymeManager;
-import org.biojava.bio.molbio.RestrictionMapper;
-import org.biojava.bio.seq.DNATools;
-import org.biojava.bio.seq.Sequence;
 import org.biojava.bio.symbol.IllegalAlphabetException;
 import org.biojava.bio.symbol.IllegalSymbolException;
-import org.biojava.utils.SimpleThreadPool;
+
+import primerDesign.algo.RestrictionSiteScanner;
 
 
 /**
@@ -43,35 +42,33 @@ public class CCCRSSScreener {
 			contigs.add(parser.parseNextContigIgnoreCase());
 		}
 		
-		RestrictionMapper mapper = new RestrictionMapper(new SimpleThreadPool(Constants.MAX_NUM_RESTRICTION_MAPPER_THREADS, true));
-		
-		for(SimpleContig contig : contigs){
-			for(int i=0; i<enzymes.size(); i++){
-					RestrictionEnzyme enzyme = enzymes.get(i);
-				RestrictionEnzymeManager.register(enzyme, new TreeSet());
-				mapper.clearEnzymes();
-				mapper.addEnzyme(enzyme);
-				
-				Sequence dnaSeq = null;
-				
-				try{
-					dnaSeq = DNATools.createDNASequence(new String(contig.getSequence()), "");
-				}catch(IllegalSymbolException e){
-					e.printStackTrace();
-				}
-				Sequence newSeq = mapper.annotate(dnaSeq);
-				Iterator iter = newSeq.features();
-				
-				if(iter.hasNext()){
-					enzymes.remove(i);
+		// all enzymes are scanned in a single pass per contig, contigs are scanned concurrently
+		final RestrictionSiteScanner scanner = new RestrictionSiteScanner(enzymes);
+		ArrayList<Callable<boolean[]>> tasks = new ArrayList<Callable<boolean[]>>();
+		for(final SimpleContig contig : contigs){
+			tasks.add(new Callable<boolean[]>(){
+				public boolean[] call(){
+					return scanner.containsSites(CharBuffer.wrap(contig.getSequence()));
 				}
+			});
+		}
+		boolean[] hasSites = new boolean[enzymes.size()];
+		try{
+			for(Future<boolean[]> result : ForkJoinPools.getPool(Runtime.getRuntime().availableProcessors()).invokeAll(tasks)){
+				boolean[] contigHasSites = result.get();
+				for(int i=0; i<hasSites.length; i++) hasSites[i] |= contigHasSites[i];
 			}
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Screening of restriction sites was interrupted!", e);
+		}catch(ExecutionException e){
+			throw new IllegalStateException("Screening of restriction sites failed!", e.getCause());
 		}
 		
 		System.out.println("The following enzymes have NO recognition sites within the contigs provided:");
 		System.out.println("----------------------------------------------------------------------------");
-		for(RestrictionEnzyme enzyme : enzymes){
-			System.out.println(enzyme.toString());
+		for(int i=0; i<enzymes.size(); i++){
+			if(!hasSites[i]) System.out.println(enzymes.get(i).toString());
 		}
 	}
 }
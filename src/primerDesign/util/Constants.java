@@ -14,10 +14,12 @@ public class Constants {
 	
 	// general constants
 	public static final int MAX_PRIMER_LENGTH_FOR_TM_CALC = 36;  // max primer length for "reliable" tm calculation
+	public static final int MAX_PRIMER_LENGTH_FOR_WALLACE_TM_CALC = 16;  // max primer length for which the 'cheap' Wallace tm calculation is used instead of the nearest-neighbor method
 	public static final double ABSOLUTE_ZERO_TEMP = -273.15;  // the absolute point zero temperature
 	public static final double GAS_CONST_R = 1.987;  // the universal gas constant
 	
 	public static final String REPETITIVE_ELEMENT_CHARACTER = "N";
+	public static final int SEQUENCE_CACHE_CAPACITY = 1 << 18; // max number of entries of each cache of sequence properties (Tm, GC content, alignment scores)
 	
 	// parallelization parameters
 	public static int MAX_NUM_PICKING_THREADS = Runtime.getRuntime().availableProcessors();
@@ -0,0 +1,36 @@
+package primerDesign.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Provides the fork/join pools shared by all parallel computations (primer search, primer pair picking, index construction).
+ *
+ * One pool is created per level of parallelism on first use and is never shut down, thus a pool may be used by concurrent searches
+ * without being terminated underneath a running computation. Idle worker threads of a pool terminate by themselves and
+ * are daemon threads, they do not prevent the JVM from exiting.
+ *
+ * @author Sebastian Frhler
+ *
+ */
+public class ForkJoinPools {
+	private static final Map<Integer, ForkJoinPool> pools = new HashMap<Integer, ForkJoinPool>();
+	
+	/**
+	 * Returns the shared fork/join pool of parallelism 'parallelism'.
+	 * 
+	 * @param parallelism the number of worker threads of the pool
+	 * 
+	 * @return the shared fork/join pool of parallelism 'parallelism'
+	 */
+	public static synchronized ForkJoinPool getPool(int parallelism){
+		if(parallelism < 1) throw new IllegalArgumentException("Parallelism must be > 0!");
+		ForkJoinPool pool = pools.get(parallelism);
+		if(pool == null){
+			pool = new ForkJoinPool(parallelism);
+			pools.put(parallelism, pool);
+		}
+		return pool;
+	}
+}
@@ -0,0 +1,492 @@
+package primerDesign.util;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Implements a bounded, thread-safe cache of (thermodynamic or alignment) properties of short DNA sequences.
+ *
+ * Sequences of up to MAX_PACKED_LENGTH bases are packed into a single long (2 bits per base plus a leading sentinel bit),
+ * an entry is identified by two packed sequences (the second one is 0 for single sequence properties) and a context,
+ * a fingerprint of all parameters the cached value depends on. Values are stored as long, doubles by their raw bits.
+ *
+ * The cache is divided into independently locked segments, each segment is organized as set-associative table of
+ * WAYS entries per set. A segment starts with few sets and doubles its number of sets whenever a set is full, until it
+ * reaches its share of the capacity. Only then an entry which was not used recently is replaced when a set is full.
+ * Thus the cache never holds more than 'capacity' entries and allocates memory in proportion to the entries cached,
+ * at most about 34 bytes per entry of capacity (about 9 MB for a capacity of 2^18 entries).
+ *
+ * All caches created are registered for common statistics and clearing.
+ *
+ * @author Sebastian Frhler
+ *
+ */
+public class PackedSequenceCache {
+	public static final int MAX_PACKED_LENGTH = 31;
+	public static final long NOT_PACKABLE = -1;
+	public static final long MISSING = Long.MIN_VALUE;
+
+	private static final int WAYS = 4;
+	private static final int SEGMENTS = 16;
+	private static final int INITIAL_SETS = 16; // the number of sets a segment starts with
+	private static final long NO_CONTEXT = 0;
+	private static final List<PackedSequenceCache> caches = new CopyOnWriteArrayList<PackedSequenceCache>();
+
+	private String name;
+	private int capacity;
+	private Segment[] segments;
+	private AtomicLong hits = new AtomicLong();
+	private AtomicLong misses = new AtomicLong();
+	private AtomicLong evictions = new AtomicLong();
+
+	/**
+	 * Initializes and registers a new cache.
+	 *
+	 * @param name the name of the cache
+	 * @param capacity the maximum number of entries of the cache, rounded up to a power of two, memory is allocated on demand
+	 */
+	public PackedSequenceCache(String name, int capacity){
+		if(capacity < SEGMENTS * WAYS) throw new IllegalArgumentException("Cache capacity must be >= " + SEGMENTS * WAYS);
+		if(capacity > 1 << 30) throw new IllegalArgumentException("Cache capacity must be <= " + (1 << 30));
+		this.name = name;
+		this.capacity = Integer.highestOneBit(capacity - 1) << 1;
+		this.segments = new Segment[SEGMENTS];
+		for(int i=0; i<SEGMENTS; i++) this.segments[i] = new Segment(this.capacity / SEGMENTS / WAYS);
+		caches.add(this);
+	}
+
+	/**
+	 * Packs a DNA sequence of at most MAX_PACKED_LENGTH bases (A,C,G,T in upper case) into a long.
+	 *
+	 * Lower case bases are not packed, since properties computed for them may differ from their upper case counterparts.
+	 *
+	 * @param sequence the sequence to pack
+	 *
+	 * @return the packed sequence (always > 0) or NOT_PACKABLE iff the sequence is too long or contains other characters
+	 */
+	public static long pack(CharSequence sequence){
+		final int length = sequence.length();
+		if(length > MAX_PACKED_LENGTH) return NOT_PACKABLE;
+		long packed = 1;
+		for(int i=0; i<length; i++){
+			switch(sequence.charAt(i)){
+				case 'A': packed = packed << 2; break;
+				case 'C': packed = (packed << 2) | 1; break;
+				case 'G': packed = (packed << 2) | 2; break;
+				case 'T': packed = (packed << 2) | 3; break;
+				default: return NOT_PACKABLE;
+			}
+		}
+		return packed;
+	}
+
+	/**
+	 * Computes the context fingerprint of a set of parameters.
+	 *
+	 * @param a the first parameter
+	 * @param b the second parameter
+	 * @param c the third parameter
+	 * @param d the fourth parameter
+	 *
+	 * @return the context fingerprint of the parameters
+	 */
+	public static long context(long a, long b, long c, long d){
+		long h = mix(a + 0x9E3779B97F4A7C15L);
+		h = mix(h ^ b);
+		h = mix(h ^ c);
+		return mix(h ^ d);
+	}
+
+	/**
+	 * Computes the context fingerprint of a set of parameters.
+	 *
+	 * @param a the first parameter
+	 * @param b the second parameter
+	 * @param c the third parameter
+	 * @param d the fourth parameter
+	 *
+	 * @return the context fingerprint of the parameters
+	 */
+	public static long context(double a, double b, double c, double d){
+		return context(Double.doubleToLongBits(a), Double.doubleToLongBits(b), Double.doubleToLongBits(c), Double.doubleToLongBits(d));
+	}
+
+	/**
+	 * Returns the value cached for a packed sequence.
+	 *
+	 * @param key the packed sequence
+	 *
+	 * @return the value cached or MISSING
+	 */
+	public long get(long key){
+		return this.get(key, 0, NO_CONTEXT);
+	}
+
+	/**
+	 * Returns the value cached for a pair of packed sequences in a context.
+	 *
+	 * @param key1 the first packed sequence
+	 * @param key2 the second packed sequence, 0 iff the value belongs to 'key1' alone
+	 * @param context the context fingerprint
+	 *
+	 * @return the value cached or MISSING
+	 */
+	public long get(long key1, long key2, long context){
+		checkKey(key1);
+		long hash = hash(key1, key2, context);
+		long value = this.segmentFor(hash).get(key1, key2, context, (int) hash);
+		if(value == MISSING) this.misses.incrementAndGet();
+		else this.hits.incrementAndGet();
+		return value;
+	}
+
+	/**
+	 * Returns the double value cached for a packed sequence.
+	 *
+	 * @param key the packed sequence
+	 *
+	 * @return the value cached or NaN iff no value is cached
+	 */
+	public double getDouble(long key){
+		return this.getDouble(key, 0, NO_CONTEXT);
+	}
+
+	/**
+	 * Returns the double value cached for a pair of packed sequences in a context.
+	 *
+	 * @param key1 the first packed sequence
+	 * @param key2 the second packed sequence, 0 iff the value belongs to 'key1' alone
+	 * @param context the context fingerprint
+	 *
+	 * @return the value cached or NaN iff no value is cached
+	 */
+	public double getDouble(long key1, long key2, long context){
+		long value = this.get(key1, key2, context);
+		return (value == MISSING) ? Double.NaN : Double.longBitsToDouble(value);
+	}
+
+	/**
+	 * Caches the value of a packed sequence.
+	 *
+	 * @param key the packed sequence
+	 * @param value the value, MISSING is not cached
+	 */
+	public void put(long key, long value){
+		this.put(key, 0, NO_CONTEXT, value);
+	}
+
+	/**
+	 * Caches the value of a pair of packed sequences in a context.
+	 *
+	 * @param key1 the first packed sequence
+	 * @param key2 the second packed sequence, 0 iff the value belongs to 'key1' alone
+	 * @param context the context fingerprint
+	 * @param value the value, MISSING is not cached
+	 */
+	public void put(long key1, long key2, long context, long value){
+		checkKey(key1);
+		if(value == MISSING) return;
+		long hash = hash(key1, key2, context);
+		if(this.segmentFor(hash).put(key1, key2, context, value, (int) hash)) this.evictions.incrementAndGet();
+	}
+
+	/**
+	 * Caches the double value of a packed sequence.
+	 *
+	 * @param key the packed sequence
+	 * @param value the value, NaN is not cached
+	 */
+	public void putDouble(long key, double value){
+		this.putDouble(key, 0, NO_CONTEXT, value);
+	}
+
+	/**
+	 * Caches the double value of a pair of packed sequences in a context.
+	 *
+	 * @param key1 the first packed sequence
+	 * @param key2 the second packed sequence, 0 iff the value belongs to 'key1' alone
+	 * @param context the context fingerprint
+	 * @param value the value, NaN is not cached
+	 */
+	public void putDouble(long key1, long key2, long context, double value){
+		if(!Double.isNaN(value)) this.put(key1, key2, context, Double.doubleToRawLongBits(value));
+	}
+
+	/**
+	 * Removes all entries of this cache, statistics are kept.
+	 */
+	public void clear(){
+		for(Segment segment : this.segments) segment.clear();
+	}
+
+	/**
+	 * Returns the name of this cache.
+	 *
+	 * @return the name of this cache
+	 */
+	public String getName(){
+		return this.name;
+	}
+
+	/**
+	 * Returns the maximum number of entries of this cache.
+	 *
+	 * @return the maximum number of entries of this cache
+	 */
+	public int getCapacity(){
+		return this.capacity;
+	}
+
+	/**
+	 * Returns the number of entries this cache has allocated memory for.
+	 *
+	 * @return the number of entries this cache has allocated memory for
+	 */
+	public int getAllocatedCapacity(){
+		int allocated = 0;
+		for(Segment segment : this.segments) allocated += segment.allocated();
+		return allocated;
+	}
+
+	/**
+	 * Returns the number of entries of this cache.
+	 *
+	 * @return the number of entries of this cache
+	 */
+	public int size(){
+		int size = 0;
+		for(Segment segment : this.segments) size += segment.size();
+		return size;
+	}
+
+	public long getHitCount(){
+		return this.hits.get();
+	}
+
+	public long getMissCount(){
+		return this.misses.get();
+	}
+
+	public long getEvictionCount(){
+		return this.evictions.get();
+	}
+
+	/**
+	 * Returns the fraction of lookups answered by this cache.
+	 *
+	 * @return the fraction of lookups answered by this cache
+	 */
+	public double getHitRate(){
+		long lookups = this.getHitCount() + this.getMissCount();
+		return (lookups == 0) ? 0 : ((double) this.getHitCount()) / lookups;
+	}
+
+	public String toString(){
+		return this.name + ": " + this.size() + "/" + this.capacity + " entries, " + this.getHitCount() + " hits, " + this.getMissCount() + " misses, " + this.getEvictionCount() + " evictions";
+	}
+
+	/**
+	 * Returns all caches created.
+	 *
+	 * @return all caches created
+	 */
+	public static List<PackedSequenceCache> getCaches(){
+		return Collections.unmodifiableList(caches);
+	}
+
+	/**
+	 * Removes all entries of all caches.
+	 */
+	public static void clearAll(){
+		for(PackedSequenceCache cache : caches) cache.clear();
+	}
+
+	/**
+	 * Returns the statistics of all caches, one cache per line.
+	 *
+	 * @return the statistics of all caches
+	 */
+	public static String getStatistics(){
+		StringBuffer result = new StringBuffer();
+		for(PackedSequenceCache cache : caches) result.append(cache.toString() + "\n");
+		return result.toString();
+	}
+
+	private Segment segmentFor(long hash){
+		return this.segments[(int) (hash >>> 60) & (SEGMENTS - 1)];
+	}
+
+	private static void checkKey(long key){
+		if(key <= 0) throw new IllegalArgumentException("Invalid packed sequence: " + key);
+	}
+
+	private static long hash(long key1, long key2, long context){
+		return mix(mix(key1 ^ mix(key2)) ^ context);
+	}
+
+	/**
+	 * Finalizes a 64 bit hash value (as in MurmurHash3).
+	 *
+	 * @param h the hash value
+	 *
+	 * @return the mixed hash value
+	 */
+	private static long mix(long h){
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		h *= 0xC4CEB9FE1A85EC53L;
+		return h ^ (h >>> 33);
+	}
+
+	/**
+	 * A set-associative table of cache entries guarded by its own lock.
+	 *
+	 * @author Sebastian Frhler
+	 *
+	 */
+	private static class Segment{
+		private int maxSets;
+		private int sets;
+		private long[] key1; // key1[slot] == 0 iff 'slot' is empty
+		private long[] key2;
+		private long[] context;
+		private long[] value;
+		private boolean[] recentlyUsed;
+		private int[] nextVictim;
+		private int size = 0;
+
+		public Segment(int maxSets){
+			this.maxSets = maxSets;
+			this.sets = Math.min(INITIAL_SETS, maxSets);
+		}
+
+		public synchronized long get(long key1, long key2, long context, int hash){
+			if(this.key1 == null) return MISSING;
+			int first = (hash & (this.sets - 1)) * WAYS;
+			for(int slot=first; slot<first+WAYS; slot++){
+				if(this.key1[slot] == key1 && this.key2[slot] == key2 && this.context[slot] == context){
+					this.recentlyUsed[slot] = true;
+					return this.value[slot];
+				}
+			}
+			return MISSING;
+		}
+
+		/**
+		 * Inserts or replaces an entry.
+		 *
+		 * @return true iff another entry was evicted
+		 */
+		public synchronized boolean put(long key1, long key2, long context, long value, int hash){
+			if(this.key1 == null) this.allocate();
+			int set;
+			int free;
+			while(true){
+				set = hash & (this.sets - 1);
+				int first = set * WAYS;
+				free = -1;
+				for(int slot=first; slot<first+WAYS; slot++){
+					if(this.key1[slot] == key1 && this.key2[slot] == key2 && this.context[slot] == context){
+						this.value[slot] = value;
+						this.recentlyUsed[slot] = true;
+						return false;
+					}
+					if(free < 0 && this.key1[slot] == 0) free = slot;
+				}
+				if(free >= 0 || this.sets == this.maxSets) break;
+				this.grow();
+			}
+			boolean evicted = false;
+			if(free < 0){
+				free = this.chooseVictim(set);
+				evicted = true;
+			}
+			else this.size++;
+			this.key1[free] = key1;
+			this.key2[free] = key2;
+			this.context[free] = context;
+			this.value[free] = value;
+			this.recentlyUsed[free] = false;
+			return evicted;
+		}
+
+		public synchronized void clear(){
+			this.sets = Math.min(INITIAL_SETS, this.maxSets);
+			this.key1 = null;
+			this.key2 = null;
+			this.context = null;
+			this.value = null;
+			this.recentlyUsed = null;
+			this.nextVictim = null;
+			this.size = 0;
+		}
+
+		public synchronized int size(){
+			return this.size;
+		}
+
+		/**
+		 * Returns the number of entries this segment has allocated memory for.
+		 *
+		 * @return the number of entries this segment has allocated memory for
+		 */
+		public synchronized int allocated(){
+			return (this.key1 == null) ? 0 : this.key1.length;
+		}
+
+		/**
+		 * Chooses the entry of a full set to be replaced, entries used since the set was last scanned get a second chance (clock algorithm).
+		 *
+		 * @param set the set
+		 *
+		 * @return the slot of the entry to be replaced
+		 */
+		private int chooseVictim(int set){
+			int first = set * WAYS;
+			while(true){
+				int slot = first + this.nextVictim[set];
+				this.nextVictim[set] = (this.nextVictim[set] + 1) % WAYS;
+				if(!this.recentlyUsed[slot]) return slot;
+				this.recentlyUsed[slot] = false;
+			}
+		}
+
+		/**
+		 * Doubles the number of sets of this segment.
+		 *
+		 * The entries of set 's' are distributed to sets 's' and 's + sets', thus no set overflows.
+		 */
+		private void grow(){
+			long[] key1 = this.key1;
+			long[] key2 = this.key2;
+			long[] context = this.context;
+			long[] value = this.value;
+			boolean[] recentlyUsed = this.recentlyUsed;
+			this.sets *= 2;
+			this.allocate();
+			for(int slot=0; slot<key1.length; slot++){
+				if(key1[slot] == 0) continue;
+				int free = ((int) hash(key1[slot], key2[slot], context[slot]) & (this.sets - 1)) * WAYS;
+				while(this.key1[free] != 0) free++;
+				this.key1[free] = key1[slot];
+				this.key2[free] = key2[slot];
+				this.context[free] = context[slot];
+				this.value[free] = value[slot];
+				this.recentlyUsed[free] = recentlyUsed[slot];
+			}
+		}
+
+		private void allocate(){
+			final int slots = this.sets * WAYS;
+			this.key1 = new long[slots];
+			this.key2 = new long[slots];
+			this.context = new long[slots];
+			this.value = new long[slots];
+			this.recentlyUsed = new boolean[slots];
+			this.nextVictim = new int[this.sets];
+		}
+	}
+}
@@ -9,6 +9,7 @@ import java.util.regex.Pattern;
 import org.biojava.bio.molbio.RestrictionEnzyme;
 
 import primerDesign.algo.PrimerAlignmentCalculation;
+import primerDesign.algo.PrimerPairPickingMethods;
 import primerDesign.algo.PrimerSearch;
 import primerDesign.algo.SimpleAlignment;
 import primerDesign.dsc.PrimerPairPickingStatistics;
@@ -19,13 +20,14 @@ import primerDesign.dsc.indexStructures.primerMisprimingCheck.PrimerMisprimingCh
 /**
  * Class for storing 3PD parameters.
  * 
- * @author Sebastian Fr�hler
+ * @author Sebastian Frhler
  */
 public class PrimerSearchParameters {
 	private boolean useIndices = true;  // re-use pre-computed values
 	private boolean PRINT_DEBUG_LOG = true; // print some debugging output about rejected primers
 	private boolean computeScanningStatistics = true;
 	private boolean computePickingStatistics = true;
+	private int NUM_SEARCH_THREADS = Runtime.getRuntime().availableProcessors(); // the number of threads scanning restriction sites for primers concurrently
 	
 	private PrimerSearchStatistics searchStat;
 	private PrimerPairPickingStatistics pickingStat;
@@ -99,6 +101,7 @@ public class PrimerSearchParameters {
 	
 	private double MAX_PRIMER_TM_DIFFERENCE = 1;  // primer pair (FW and Rev) TMs should not differ by more than x �C
 	private double MIN_TAQMAN_TM_DIFFERENCE = 5;  // TAQMAN TM in a primer set has to be at least x �C higher than TMs of primer pairs
+	private int MAX_PRIMER_PAIRS_PER_SITE = 0; // the number of best primer pairs w.r.t. the optimal primer pair to keep per restriction site, 0 keeps all valid primer pairs
 	
 	private double MAX_GC = 0.7; // ?? // primer3: 80
 	private double MIN_GC = 0.3; // ?? // primer3: 20
@@ -142,6 +145,23 @@ public class PrimerSearchParameters {
 	private double PRIMER_PAIR_HOMOGENITY_WEIGHT = 1;
 	private double PRIMER_PAIR_DOPT_WEIGHT = 1;
 	
+	// parameters for primer pair set picking
+	private PrimerPairPickingMethods PRIMER_PAIR_PICKING_METHOD = PrimerPairPickingMethods.simpleGreedy; // a new picker of this method is created per picking
+	private int GA_NUM_ISLANDS = 4; // the number of independently evolving subpopulations
+	private int GA_ISLAND_POPULATION_SIZE = 50; // the number of individuals per island
+	private int GA_NUM_GENERATIONS = 200;
+	private int GA_MIGRATION_INTERVAL = 20; // the number of generations between two migrations
+	private int GA_NUM_MIGRANTS = 2; // the number of best individuals migrating to the next island
+	private double GA_CROSSOVER_RATE = 0.9;
+	private double GA_MUTATION_RATE = 0.05; // the probability of mutating a single gene (primer pair)
+	private long GA_RANDOM_SEED = 0; // runs with equal seeds and parameters pick equal primer pair sets
+	private int GA_NUM_THREADS = Runtime.getRuntime().availableProcessors(); // the number of threads evaluating individuals concurrently
+	private int SA_NUM_MOVES = 100000; // the number of simulated annealing moves, each changing the primer pair of one site
+	private double SA_START_TEMPERATURE = 10;
+	private double SA_END_TEMPERATURE = 0.01; // the temperature decreases geometrically from start to end temperature
+	private long SA_RANDOM_SEED = 0;
+	private long PORTFOLIO_DEADLINE = 60000; // the time in milliseconds after which a portfolio picking returns the best primer pair set found
+	
 	private Enum<TargetOrganisms> targetOrganism;
 	private SimpleContig[] contigs;
 	private int numPrimers;
@@ -302,6 +322,196 @@ public class PrimerSearchParameters {
 			PrimerAlignmentCalculation primer_alignment_method) {
 		PRIMER_ALIGNMENT_METHOD = primer_alignment_method;
 	}
+	/**
+	 * @return the pRIMER_PAIR_PICKING_METHOD
+	 */
+	public PrimerPairPickingMethods getPRIMER_PAIR_PICKING_METHOD() {
+		return PRIMER_PAIR_PICKING_METHOD;
+	}
+	/**
+	 * @param primer_pair_picking_method the pRIMER_PAIR_PICKING_METHOD to set
+	 */
+	public void setPRIMER_PAIR_PICKING_METHOD(PrimerPairPickingMethods primer_pair_picking_method) {
+		PRIMER_PAIR_PICKING_METHOD = primer_pair_picking_method;
+	}
+	/**
+	 * @return the gA_NUM_ISLANDS
+	 */
+	public int getGA_NUM_ISLANDS() {
+		return GA_NUM_ISLANDS;
+	}
+	/**
+	 * @param ga_num_islands the gA_NUM_ISLANDS to set
+	 */
+	public void setGA_NUM_ISLANDS(int ga_num_islands) {
+		if(ga_num_islands < 1) throw new IllegalArgumentException("The number of islands must be >= 1!");
+		GA_NUM_ISLANDS = ga_num_islands;
+	}
+	/**
+	 * @return the gA_ISLAND_POPULATION_SIZE
+	 */
+	public int getGA_ISLAND_POPULATION_SIZE() {
+		return GA_ISLAND_POPULATION_SIZE;
+	}
+	/**
+	 * @param ga_island_population_size the gA_ISLAND_POPULATION_SIZE to set
+	 */
+	public void setGA_ISLAND_POPULATION_SIZE(int ga_island_population_size) {
+		if(ga_island_population_size < 2) throw new IllegalArgumentException("The island population size must be >= 2!");
+		GA_ISLAND_POPULATION_SIZE = ga_island_population_size;
+	}
+	/**
+	 * @return the gA_NUM_GENERATIONS
+	 */
+	public int getGA_NUM_GENERATIONS() {
+		return GA_NUM_GENERATIONS;
+	}
+	/**
+	 * @param ga_num_generations the gA_NUM_GENERATIONS to set
+	 */
+	public void setGA_NUM_GENERATIONS(int ga_num_generations) {
+		if(ga_num_generations < 0) throw new IllegalArgumentException("The number of generations must be >= 0!");
+		GA_NUM_GENERATIONS = ga_num_generations;
+	}
+	/**
+	 * @return the gA_MIGRATION_INTERVAL
+	 */
+	public int getGA_MIGRATION_INTERVAL() {
+		return GA_MIGRATION_INTERVAL;
+	}
+	/**
+	 * @param ga_migration_interval the gA_MIGRATION_INTERVAL to set
+	 */
+	public void setGA_MIGRATION_INTERVAL(int ga_migration_interval) {
+		if(ga_migration_interval < 1) throw new IllegalArgumentException("The migration interval must be >= 1!");
+		GA_MIGRATION_INTERVAL = ga_migration_interval;
+	}
+	/**
+	 * @return the gA_NUM_MIGRANTS
+	 */
+	public int getGA_NUM_MIGRANTS() {
+		return GA_NUM_MIGRANTS;
+	}
+	/**
+	 * @param ga_num_migrants the gA_NUM_MIGRANTS to set
+	 */
+	public void setGA_NUM_MIGRANTS(int ga_num_migrants) {
+		if(ga_num_migrants < 0) throw new IllegalArgumentException("The number of migrants must be >= 0!");
+		GA_NUM_MIGRANTS = ga_num_migrants;
+	}
+	/**
+	 * @return the gA_CROSSOVER_RATE
+	 */
+	public double getGA_CROSSOVER_RATE() {
+		return GA_CROSSOVER_RATE;
+	}
+	/**
+	 * @param ga_crossover_rate the gA_CROSSOVER_RATE to set
+	 */
+	public void setGA_CROSSOVER_RATE(double ga_crossover_rate) {
+		GA_CROSSOVER_RATE = ga_crossover_rate;
+	}
+	/**
+	 * @return the gA_MUTATION_RATE
+	 */
+	public double getGA_MUTATION_RATE() {
+		return GA_MUTATION_RATE;
+	}
+	/**
+	 * @param ga_mutation_rate the gA_MUTATION_RATE to set
+	 */
+	public void setGA_MUTATION_RATE(double ga_mutation_rate) {
+		GA_MUTATION_RATE = ga_mutation_rate;
+	}
+	/**
+	 * @return the gA_RANDOM_SEED
+	 */
+	public long getGA_RANDOM_SEED() {
+		return GA_RANDOM_SEED;
+	}
+	/**
+	 * @param ga_random_seed the gA_RANDOM_SEED to set
+	 */
+	public void setGA_RANDOM_SEED(long ga_random_seed) {
+		GA_RANDOM_SEED = ga_random_seed;
+	}
+	/**
+	 * @return the gA_NUM_THREADS
+	 */
+	public int getGA_NUM_THREADS() {
+		return GA_NUM_THREADS;
+	}
+	/**
+	 * @param ga_num_threads the gA_NUM_THREADS to set
+	 */
+	public void setGA_NUM_THREADS(int ga_num_threads) {
+		if(ga_num_threads < 1) throw new IllegalArgumentException("The number of GA threads must be >= 1!");
+		GA_NUM_THREADS = ga_num_threads;
+	}
+	/**
+	 * @return the sA_NUM_MOVES
+	 */
+	public int getSA_NUM_MOVES() {
+		return SA_NUM_MOVES;
+	}
+	/**
+	 * @param sa_num_moves the sA_NUM_MOVES to set
+	 */
+	public void setSA_NUM_MOVES(int sa_num_moves) {
+		if(sa_num_moves < 0) throw new IllegalArgumentException("The number of moves must be >= 0!");
+		SA_NUM_MOVES = sa_num_moves;
+	}
+	/**
+	 * @return the sA_START_TEMPERATURE
+	 */
+	public double getSA_START_TEMPERATURE() {
+		return SA_START_TEMPERATURE;
+	}
+	/**
+	 * @param sa_start_temperature the sA_START_TEMPERATURE to set
+	 */
+	public void setSA_START_TEMPERATURE(double sa_start_temperature) {
+		if(sa_start_temperature <= 0) throw new IllegalArgumentException("The start temperature must be > 0!");
+		SA_START_TEMPERATURE = sa_start_temperature;
+	}
+	/**
+	 * @return the sA_END_TEMPERATURE
+	 */
+	public double getSA_END_TEMPERATURE() {
+		return SA_END_TEMPERATURE;
+	}
+	/**
+	 * @param sa_end_temperature the sA_END_TEMPERATURE to set
+	 */
+	public void setSA_END_TEMPERATURE(double sa_end_temperature) {
+		if(sa_end_temperature <= 0) throw new IllegalArgumentException("The end temperature must be > 0!");
+		SA_END_TEMPERATURE = sa_end_temperature;
+	}
+	/**
+	 * @return the sA_RANDOM_SEED
+	 */
+	public long getSA_RANDOM_SEED() {
+		return SA_RANDOM_SEED;
+	}
+	/**
+	 * @param sa_random_seed the sA_RANDOM_SEED to set
+	 */
+	public void setSA_RANDOM_SEED(long sa_random_seed) {
+		SA_RANDOM_SEED = sa_random_seed;
+	}
+	/**
+	 * @return the pORTFOLIO_DEADLINE
+	 */
+	public long getPORTFOLIO_DEADLINE() {
+		return PORTFOLIO_DEADLINE;
+	}
+	/**
+	 * @param portfolio_deadline the pORTFOLIO_DEADLINE to set
+	 */
+	public void setPORTFOLIO_DEADLINE(long portfolio_deadline) {
+		if(portfolio_deadline <= 0) throw new IllegalArgumentException("The portfolio deadline must be > 0!");
+		PORTFOLIO_DEADLINE = portfolio_deadline;
+	}
 	/**
 	 * @return the a_t_basepair_score
 	 */
@@ -581,6 +791,7 @@ public class PrimerSearchParameters {
 	 */
 	public void setMAX_POLY_X_LENGTH(int max_poly_x_length) {
 		MAX_POLY_X_LENGTH = max_poly_x_length;
+		SINGLE_NUCLEOTIDE_REPEAT_PATTERN = Pattern.compile(".*([A]{" + MAX_POLY_X_LENGTH +  ",}|[T]{" + MAX_POLY_X_LENGTH +  ",}|[G]{" + MAX_POLY_X_LENGTH +  ",}|[C]{" + MAX_POLY_X_LENGTH +  ",}).*");
 	}
 	/**
 	 * @return the gC_CLAMP_LENGTH
@@ -702,6 +913,23 @@ public class PrimerSearchParameters {
 	public void setMAX_PRIMER_TM_DIFFERENCE(double max_primer_tm_difference) {
 		MAX_PRIMER_TM_DIFFERENCE = max_primer_tm_difference;
 	}
+	/**
+	 * Returns the number of best primer pairs kept per restriction site.
+	 * 
+	 * @return the number of best primer pairs w.r.t. the optimal primer pair kept per restriction site, 0 iff all valid primer pairs are kept
+	 */
+	public int getMAX_PRIMER_PAIRS_PER_SITE() {
+		return MAX_PRIMER_PAIRS_PER_SITE;
+	}
+	/**
+	 * Sets the number of best primer pairs kept per restriction site.
+	 * 
+	 * @param max_primer_pairs_per_site the number of best primer pairs w.r.t. the optimal primer pair to keep per restriction site, 0 keeps all valid primer pairs
+	 */
+	public void setMAX_PRIMER_PAIRS_PER_SITE(int max_primer_pairs_per_site) {
+		if(max_primer_pairs_per_site < 0) throw new IllegalArgumentException("The number of primer pairs per site must be >= 0!");
+		MAX_PRIMER_PAIRS_PER_SITE = max_primer_pairs_per_site;
+	}
 	/**
 	 * @return the mIN_TAQMAN_TM_DIFFERENCE
 	 */
@@ -1228,6 +1456,21 @@ public class PrimerSearchParameters {
 		this.pickTaqManProbe = pickTaqManProbe;
 	}
 	
+	/**
+	 * @return the nUM_SEARCH_THREADS
+	 */
+	public int getNUM_SEARCH_THREADS() {
+		return NUM_SEARCH_THREADS;
+	}
+	
+	/**
+	 * @param num_search_threads the nUM_SEARCH_THREADS to set
+	 */
+	public void setNUM_SEARCH_THREADS(int num_search_threads) {
+		if(num_search_threads < 1) throw new IllegalArgumentException("The number of search threads must be >= 1!");
+		NUM_SEARCH_THREADS = num_search_threads;
+	}
+	
 	/**
 	 * Returns all parameters for logging purposes.
 	 * 
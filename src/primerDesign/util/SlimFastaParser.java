@@ -109,6 +109,45 @@ public class SlimFastaParser {
 		else throw new EOFException("There are no more Contigs in this file!");
 	}
 	
+	/**
+	 * Reads the next contig ignoring case without storing its sequence.
+	 * 
+	 * The sequence is passed line by line to 'handler', such that contigs longer than the available memory can be processed.
+	 * 
+	 * All characters in the sequence are treated to be upper-case!
+	 * 
+	 * @param handler the handler to pass the lines of the sequence to
+	 * 
+	 * @return the ID of the contig
+	 * 
+	 * @throws IOException
+	 */
+	public String readNextContigIgnoreCase(SequenceHandler handler) throws IOException{
+		if(hasNextContig()){
+			String id = line.trim().substring(1).split(HEADER_SEPARATOR)[0];
+			
+			for(this.line = this.reader.readLine(); !(this.line == null) && !SlimFastaParser.fastaStart.matcher(this.line).matches(); this.line = this.reader.readLine()){
+				handler.append(line.trim().toUpperCase());
+			}
+			return id;
+		}
+		else throw new EOFException("There are no more Contigs in this file!");
+	}
+	
+	/**
+	 * A handler of the sequence lines of a contig read by readNextContigIgnoreCase().
+	 */
+	public interface SequenceHandler{
+		/**
+		 * Processes the next line of a sequence.
+		 * 
+		 * @param sequence the next line of the sequence
+		 * 
+		 * @throws IOException
+		 */
+		public void append(String sequence) throws IOException;
+	}
+	
 	/**
 	 * Checks whether more contigs can be parsed.
 	 * 